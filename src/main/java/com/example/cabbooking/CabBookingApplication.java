@@ -1,12 +1,25 @@
 package com.example.cabbooking;
 
+import com.example.cabbooking.config.ClientExportConfig;
+import com.example.cabbooking.controller.ClientExportCommand;
 import org.springframework.boot.SpringApplication;
+import org.springframework.boot.WebApplicationType;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
+import org.springframework.scheduling.annotation.EnableScheduling;
 
 @SpringBootApplication
+@EnableScheduling
 public class CabBookingApplication {
 
     public static void main(String[] args) {
+        if (ClientExportCommand.isRequested(args)) {
+            // a one-off export: only the beans it needs, no web server, and the JVM exits with the export's
+            // exit code once it is written
+            SpringApplication application = new SpringApplication(ClientExportConfig.class);
+            application.setWebApplicationType(WebApplicationType.NONE);
+            application.setAdditionalProfiles(ClientExportConfig.PROFILE);
+            System.exit(SpringApplication.exit(application.run(args)));
+        }
         SpringApplication.run(CabBookingApplication.class, args);
     }
 
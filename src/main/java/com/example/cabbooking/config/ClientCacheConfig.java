@@ -0,0 +1,35 @@
+package com.example.cabbooking.config;
+
+import com.example.cabbooking.repository.ClientInvalidationRepository;
+import com.example.cabbooking.service.ClientCacheInvalidator;
+import com.example.cabbooking.service.JdbcClientCacheInvalidator;
+import com.example.cabbooking.service.LocalClientCacheInvalidator;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+@Configuration
+public class ClientCacheConfig {
+
+    @Value("${client.cache.invalidation:local}")
+    private String invalidation;
+
+    @Value("${client.cache.invalidation.batch-size:500}")
+    private int batchSize;
+
+    @Value("${client.cache.invalidation.retention-hours:1}")
+    private long retentionHours;
+
+    /**
+     * how client changes reach the caches of the other nodes
+     * @return database-backed invalidator when client.cache.invalidation is jdbc, the single-node one otherwise
+     */
+    @Bean
+    public ClientCacheInvalidator clientCacheInvalidator(ClientInvalidationRepository invalidationRepository) {
+        if ("jdbc".equalsIgnoreCase(invalidation)) {
+            System.out.println("✓ Client cache changes will be shared through client_cache_invalidation");
+            return new JdbcClientCacheInvalidator(invalidationRepository, batchSize, retentionHours);
+        }
+        return new LocalClientCacheInvalidator();
+    }
+}
@@ -0,0 +1,24 @@
+package com.example.cabbooking.config;
+
+import com.example.cabbooking.controller.ClientExportCommand;
+import com.example.cabbooking.repository.ClientRepository;
+import com.example.cabbooking.service.ClientExportService;
+import com.example.cabbooking.service.ConnectionPoolMetrics;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Import;
+import org.springframework.context.annotation.Profile;
+
+/**
+ * the only beans a command-line client export needs: the connection pool, the client repository and the export.
+ * CabBookingApplication starts this instead of the whole application for --export-clients, so an export run next
+ * to a server does not open its ledger, booking journal or scheduled booking log, nor start scheduled jobs or
+ * pipeline threads of its own. The profile keeps it out of the full application, which picks it up when scanning.
+ */
+@Configuration
+@Profile(ClientExportConfig.PROFILE)
+@Import({DatabaseConfig.class, ConnectionPoolMetrics.class, ClientRepository.class, ClientExportService.class,
+        ClientExportCommand.class})
+public class ClientExportConfig {
+
+    public static final String PROFILE = "client-export";
+}
@@ -1,10 +1,14 @@
 package com.example.cabbooking.config;
 
+import com.example.cabbooking.service.ConnectionPoolMetrics;
+import com.zaxxer.hikari.HikariConfig;
+import com.zaxxer.hikari.HikariDataSource;
+import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
 import org.springframework.jdbc.core.JdbcTemplate;
-import org.springframework.jdbc.datasource.DriverManagerDataSource;
 
 import javax.sql.DataSource;
 
@@ -23,18 +27,127 @@ public class DatabaseConfig {
     @Value("${spring.datasource.driver-class-name}")
     private String driverClassName;
 
+    @Value("${spring.datasource.hikari.pool-name:cab-booking-db}")
+    private String poolName;
+
+    @Value("${spring.datasource.hikari.maximum-pool-size:20}")
+    private int maximumPoolSize;
+
+    @Value("${spring.datasource.hikari.minimum-idle:20}")
+    private int minimumIdle;
+
+    @Value("${spring.datasource.hikari.connection-timeout:3000}")
+    private long connectionTimeoutMillis;
+
+    @Value("${spring.datasource.hikari.idle-timeout:600000}")
+    private long idleTimeoutMillis;
+
+    @Value("${spring.datasource.hikari.max-lifetime:1800000}")
+    private long maxLifetimeMillis;
+
+    @Value("${spring.datasource.hikari.keepalive-time:300000}")
+    private long keepaliveTimeMillis;
+
+    @Value("${spring.datasource.hikari.leak-detection-threshold:20000}")
+    private long leakDetectionThresholdMillis;
+
+    @Value("${spring.datasource.streaming.pool-name:cab-booking-db-streaming}")
+    private String streamingPoolName;
+
+    @Value("${spring.datasource.streaming.maximum-pool-size:8}")
+    private int streamingMaximumPoolSize;
+
+    @Value("${spring.datasource.streaming.minimum-idle:0}")
+    private int streamingMinimumIdle;
+
+    @Value("${spring.datasource.streaming.connection-timeout:10000}")
+    private long streamingConnectionTimeoutMillis;
+
+    @Value("${spring.datasource.hikari.initialization-fail-timeout:-1}")
+    private long initializationFailTimeoutMillis;
+
+    @Value("${spring.datasource.hikari.prepared-statement-cache-size:250}")
+    private int preparedStatementCacheSize;
+
+    @Value("${spring.datasource.hikari.prepared-statement-cache-sql-limit:2048}")
+    private int preparedStatementCacheSqlLimit;
+
+    /**
+     * pooled connections, so a query borrows an open connection instead of opening a new one to MySQL
+     * @param poolMetrics receives connection acquire, usage and timeout events from the pool
+     * @return HikariCP data source, closed with the application context
+     */
     @Bean
-    public DataSource dataSource() {
-        DriverManagerDataSource dataSource = new DriverManagerDataSource();
-        dataSource.setDriverClassName(driverClassName);
-        dataSource.setUrl(url);
-        dataSource.setUsername(username);
-        dataSource.setPassword(password);
-        return dataSource;
+    @Primary
+    public DataSource dataSource(ConnectionPoolMetrics poolMetrics) {
+        HikariConfig config = hikariConfig(poolName, maximumPoolSize, minimumIdle, connectionTimeoutMillis);
+        // logs the stack of any caller holding a connection longer than this, 0 turns it off
+        config.setLeakDetectionThreshold(leakDetectionThresholdMillis);
+        config.setMetricsTrackerFactory(poolMetrics);
+
+        System.out.println("✓ Database pool " + poolName + " will hold up to " + maximumPoolSize + " connections");
+        return new HikariDataSource(config);
+    }
+
+    /**
+     * a small separate pool for the reads that hold one connection for as long as they stream rows:
+     * GET /clients/stream, GET /clients/export and each settlement slice. Leak detection is off here, since those
+     * holds are on purpose, and they cannot use up the connections short queries need
+     * @return HikariCP data source, closed with the application context
+     */
+    @Bean
+    public DataSource streamingDataSource() {
+        HikariConfig config = hikariConfig(streamingPoolName, streamingMaximumPoolSize, streamingMinimumIdle,
+                streamingConnectionTimeoutMillis);
+        config.setLeakDetectionThreshold(0);
+
+        System.out.println("✓ Database pool " + streamingPoolName + " will hold up to " + streamingMaximumPoolSize + " streaming connections");
+        return new HikariDataSource(config);
     }
 
     @Bean
+    @Primary
     public JdbcTemplate jdbcTemplate(DataSource dataSource) {
         return new JdbcTemplate(dataSource);
     }
-}
\ No newline at end of file
+
+    @Bean
+    public JdbcTemplate streamingJdbcTemplate(@Qualifier("streamingDataSource") DataSource streamingDataSource) {
+        return new JdbcTemplate(streamingDataSource);
+    }
+
+    /**
+     * helper method with the settings both pools share
+     */
+    private HikariConfig hikariConfig(String name, int maximumSize, int minimumIdleConnections, long connectionTimeout) {
+        HikariConfig config = new HikariConfig();
+        config.setPoolName(name);
+        config.setDriverClassName(driverClassName);
+        config.setJdbcUrl(url);
+        config.setUsername(username);
+        config.setPassword(password);
+        config.setMaximumPoolSize(maximumSize);
+        config.setMinimumIdle(minimumIdleConnections);
+        config.setConnectionTimeout(connectionTimeout);
+        config.setIdleTimeout(idleTimeoutMillis);
+        config.setMaxLifetime(maxLifetimeMillis);
+        config.setKeepaliveTime(keepaliveTimeMillis);
+        // -1 starts the pool without a first connection, so the application comes up while MySQL is still down
+        config.setInitializationFailTimeout(initializationFailTimeoutMillis);
+
+        // MySQL Connector/J statement cache: the same SQL is parsed once per connection, not once per call
+        config.addDataSourceProperty("cachePrepStmts", "true");
+        config.addDataSourceProperty("prepStmtCacheSize", String.valueOf(preparedStatementCacheSize));
+        config.addDataSourceProperty("prepStmtCacheSqlLimit", String.valueOf(preparedStatementCacheSqlLimit));
+        config.addDataSourceProperty("useServerPrepStmts", "true");
+        // skip round trips that only re-read session settings the driver already knows
+        config.addDataSourceProperty("useLocalSessionState", "true");
+        config.addDataSourceProperty("cacheResultSetMetadata", "true");
+        config.addDataSourceProperty("cacheServerConfiguration", "true");
+        config.addDataSourceProperty("elideSetAutoCommits", "true");
+        config.addDataSourceProperty("maintainTimeStats", "false");
+        // a JDBC batch of INSERTs goes to MySQL as a few multi-row INSERTs instead of one round trip per row
+        config.addDataSourceProperty("rewriteBatchedStatements", "true");
+        return config;
+    }
+}
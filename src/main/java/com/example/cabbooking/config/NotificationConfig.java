@@ -0,0 +1,45 @@
+package com.example.cabbooking.config;
+
+import com.example.cabbooking.service.FileNotifier;
+import com.example.cabbooking.service.Notifier;
+import com.example.cabbooking.service.SmtpNotifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+@Configuration
+public class NotificationConfig {
+
+    @Value("${notification.notifier:file}")
+    private String notifier;
+
+    @Value("${notification.from:no-reply@cabbooking.local}")
+    private String from;
+
+    @Value("${notification.file.directory:data/notifications}")
+    private String directory;
+
+    @Value("${notification.smtp.host:localhost}")
+    private String smtpHost;
+
+    @Value("${notification.smtp.port:25}")
+    private int smtpPort;
+
+    @Value("${notification.smtp.timeout-ms:5000}")
+    private int smtpTimeoutMillis;
+
+    /**
+     * notifier the outbox relay delivers to
+     * @return SMTP notifier when notification.notifier is smtp, the mailbox file stand-in otherwise
+     */
+    @Bean
+    public Notifier notifier() {
+        if ("smtp".equalsIgnoreCase(notifier)) {
+            System.out.println("✓ Notifications will be mailed through " + smtpHost + ":" + smtpPort);
+            return new SmtpNotifier(smtpHost, smtpPort, from, smtpTimeoutMillis);
+        }
+        FileNotifier fileNotifier = new FileNotifier(directory, from);
+        System.out.println("✓ Notifications will be written to " + fileNotifier.getFile());
+        return fileNotifier;
+    }
+}
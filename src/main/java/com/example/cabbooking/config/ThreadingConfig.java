@@ -0,0 +1,29 @@
+package com.example.cabbooking.config;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.task.VirtualThreadTaskExecutor;
+
+import java.util.concurrent.ThreadFactory;
+
+@Configuration
+public class ThreadingConfig {
+
+    // the same switch Spring Boot uses for Tomcat, @Scheduled and @Async, so one property moves everything over
+    @Value("${spring.threads.virtual.enabled:false}")
+    private boolean virtualThreads;
+
+    /**
+     * thread factory for the app's own long-running workers, e.g. the booking write-behind writer
+     * @return virtual thread factory when spring.threads.virtual.enabled is set (Java 21+), platform threads otherwise
+     */
+    @Bean
+    public ThreadFactory workerThreadFactory() {
+        if (virtualThreads) {
+            System.out.println("✓ Internal workers will run on virtual threads");
+            return new VirtualThreadTaskExecutor("cab-booking-worker-").getVirtualThreadFactory();
+        }
+        return Thread::new;
+    }
+}
@@ -1,10 +1,14 @@
 package com.example.cabbooking.controller;
 
+import com.example.cabbooking.model.Booking;
+import com.example.cabbooking.model.BookingStatus;
 import com.example.cabbooking.model.Client;
+import com.example.cabbooking.model.FareQuote;
 import com.example.cabbooking.model.Location;
 import com.example.cabbooking.model.Route;
 import com.example.cabbooking.service.*;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
@@ -17,21 +21,29 @@ import java.util.Map;
 @RequestMapping("/booking")
 public class BookingController {
 
+    public static final String IDEMPOTENCY_KEY_HEADER = "Idempotency-Key";
+
     //=============SERVICES==============
     private final BookingService bookingService;
     private final CalculateFareService calculateFareService;
     private final LocationService locationService;
     private final RouteService routeService;
+    private final FareQuoteService fareQuoteService;
+    private final IdempotencyStore idempotencyStore;
 
     @Autowired
     public BookingController(BookingService bookingService,
                              CalculateFareService calculateFareService,
                              LocationService locationService,
-                             RouteService routeService) {
+                             RouteService routeService,
+                             FareQuoteService fareQuoteService,
+                             IdempotencyStore idempotencyStore) {
         this.bookingService = bookingService;
         this.calculateFareService = calculateFareService;
         this.locationService = locationService;
         this.routeService = routeService;
+        this.fareQuoteService = fareQuoteService;
+        this.idempotencyStore = idempotencyStore;
     }
 
     /**
@@ -44,13 +56,51 @@ public class BookingController {
         System.out.println("Location setup complete! Ready for bookings.");
     }
 
+    // Exception Handler Methods, for POST /booking with an Idempotency-Key
+    @ExceptionHandler(IdempotencyStore.InvalidIdempotencyKeyException.class)
+    public ResponseEntity<Map<String, Object>> handleInvalidIdempotencyKey(IdempotencyStore.InvalidIdempotencyKeyException e) {
+        return ResponseEntity.badRequest().body(createErrorResponse(e.getMessage()));
+    }
+
+    @ExceptionHandler(IdempotencyStore.KeyReusedException.class)
+    public ResponseEntity<Map<String, Object>> handleKeyReused(IdempotencyStore.KeyReusedException e) {
+        return ResponseEntity.status(HttpStatus.UNPROCESSABLE_ENTITY).body(createErrorResponse(e.getMessage()));
+    }
+
+    @ExceptionHandler(IdempotencyStore.RequestInProgressException.class)
+    public ResponseEntity<Map<String, Object>> handleRequestInProgress(IdempotencyStore.RequestInProgressException e) {
+        return ResponseEntity.status(HttpStatus.CONFLICT).body(createErrorResponse(e.getMessage()));
+    }
+
     /**
-     * Booking endpoint
+     * books a cab without an Idempotency-Key, for callers inside the application; not mapped to a URL
+     * @param client The Client who is booking the Route
+     * @param route The Route which is being booked
+     */
+    public void bookCab(Client client, Route route) {
+        bookCab(null, client, route);
+    }
+
+    /**
+     * Booking endpoint, a retry carrying the same Idempotency-Key does not book a second cab.
+     * A key sent again with a different booking is answered with 422, a key whose first attempt is still
+     * running with 409 and a malformed key with 400
+     * @param idempotencyKey optional key chosen by the client for this booking attempt
      */
     @PostMapping
-    public void bookCab(@RequestBody Client client, Route route) {
-        bookingService.bookCab(client, route);
-        calculateFareService.calculateFare(route);
+    public void bookCab(@RequestHeader(value = IDEMPOTENCY_KEY_HEADER, required = false) String idempotencyKey,
+                        @RequestBody Client client, Route route) {
+        if (idempotencyKey == null) {
+            bookingService.bookCab(client, route);
+            calculateFareService.calculateFare(route);
+            return;
+        }
+
+        idempotencyStore.execute("POST /booking " + idempotencyKey, bookingFingerprint(client, route), () -> {
+            Booking booking = bookingService.bookCab(client, route);
+            calculateFareService.calculateFare(route);
+            return booking;
+        });
     }
 
     /**
@@ -86,10 +136,12 @@ public class BookingController {
 
             // Step 2: Create a Route object using RouteService
             Route route = routeService.createRoute(pickupLocationObj, dropoffLocationObj);
-            System.out.println("✓ Route created - Distance: " + String.format("%.2f", route.getDistance()) + " km");
+            System.out.println("✓ Route created - Distance: " + String.format("%.2f", route.getDistance()) + " km, " +
+                    "ETA: " + String.format("%.0f", route.getDuration()) + " min");
 
             // Step 3: Calculate the fare using CalculateFareService
             double fareAmount = calculateFareService.calculateFare(route);
+            FareQuote quote = fareQuoteService.issueQuote(route, fareAmount);
             System.out.println("✓ Fare calculated: $" + String.format("%.2f", fareAmount));
 
             // Step 4: Package everything into a response
@@ -98,7 +150,10 @@ public class BookingController {
             response.put("pickupLocation", request.getPickupLocation());
             response.put("dropoffLocation", request.getDropoffLocation());
             response.put("distance", route.getDistance());
+            response.put("duration", route.getDuration());
             response.put("fareAmount", fareAmount);
+            response.put("quoteToken", quote.getToken());
+            response.put("quoteExpiresAt", quote.getExpiresAt());
             response.put("message", "Fare calculated successfully using your booking services!");
 
             System.out.println("✓ Web booking calculation complete");
@@ -112,6 +167,58 @@ public class BookingController {
         }
     }
 
+    /**
+     * API endpoint to get the current status of a booking
+     * @param bookingId id of the booking
+     * @return booking id and status, or 404 if the booking is unknown
+     */
+    @GetMapping("/{bookingId}/status")
+    public ResponseEntity<Map<String, Object>> getBookingStatus(@PathVariable String bookingId) {
+        try {
+            Map<String, Object> response = new HashMap<>();
+            response.put("success", true);
+            response.put("bookingId", bookingId);
+            response.put("status", bookingService.getBookingStatus(bookingId));
+            return ResponseEntity.ok(response);
+
+        } catch (BookingLifecycleService.BookingNotFoundException e) {
+            return ResponseEntity.status(HttpStatus.NOT_FOUND).body(createErrorResponse(e.getMessage()));
+        }
+    }
+
+    /**
+     * API endpoint to move a booking to its next status, e.g. {"status": "CANCELLED"}
+     * @param bookingId id of the booking
+     * @param request JSON body holding the new status
+     * @return previous and new status, 404 if the booking is unknown or 409 if the transition is not allowed
+     */
+    @PostMapping("/{bookingId}/status")
+    public ResponseEntity<Map<String, Object>> updateBookingStatus(@PathVariable String bookingId,
+                                                                   @RequestBody Map<String, String> request) {
+        BookingStatus status;
+        try {
+            status = BookingStatus.valueOf(String.valueOf(request.get("status")).trim().toUpperCase());
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(createErrorResponse("Unknown booking status: " + request.get("status")));
+        }
+
+        try {
+            BookingStatus previous = bookingService.updateBookingStatus(bookingId, status);
+
+            Map<String, Object> response = new HashMap<>();
+            response.put("success", true);
+            response.put("bookingId", bookingId);
+            response.put("previousStatus", previous);
+            response.put("status", status);
+            return ResponseEntity.ok(response);
+
+        } catch (BookingLifecycleService.BookingNotFoundException e) {
+            return ResponseEntity.status(HttpStatus.NOT_FOUND).body(createErrorResponse(e.getMessage()));
+        } catch (BookingLifecycleService.InvalidTransitionException e) {
+            return ResponseEntity.status(HttpStatus.CONFLICT).body(createErrorResponse(e.getMessage()));
+        }
+    }
+
     /**
      * API endpoint to get all available locations
      * @return List of location objects
@@ -146,51 +253,112 @@ public class BookingController {
      * @param request the JSON delivered from the HTML request
      * @return HashMap of the booking request send from the HTML
      */
+    public ResponseEntity<Map<String, Object>> testBooking(TestBookingRequest request) {
+        return testBooking(null, request);
+    }
+
+    /**
+     * Test booking endpoint with Idempotency-Key support. The first request with a key books the cab,
+     * retries with the same key get the stored response back instead of booking again
+     * @param idempotencyKey optional key chosen by the client for this booking attempt
+     * @param request the JSON delivered from the HTML request
+     * @return HashMap of the booking request send from the HTML, 409 while the first attempt is still running
+     * or 422 if the key was used for a different request
+     */
     @PostMapping("/test-booking")
-    public ResponseEntity<Map<String, Object>> testBooking(@RequestBody TestBookingRequest request) {
+    public ResponseEntity<Map<String, Object>> testBooking(
+            @RequestHeader(value = IDEMPOTENCY_KEY_HEADER, required = false) String idempotencyKey,
+            @RequestBody TestBookingRequest request) {
         try {
-            System.out.println("Test booking request received for: " + request.getClient().getName());
-
-            // STEP 1: Create Client object from the JSON test data sent by frontend
-            Client client = new Client(
-                    request.getClient().getId(),
-                    request.getClient().getName(),
-                    request.getClient().getEmail(),
-                    request.getClient().getPhone(),
-                    request.getClient().getAddress(),
-                    request.getClient().getCredit_card()
-            );
-
-            // STEP 2: Find locations and create route
-            Location pickupLocationObj = locationService.findLocationByName(request.getPickupLocation());
-            Location dropoffLocationObj = locationService.findLocationByName(request.getDropoffLocation());
-
-            if (pickupLocationObj == null || dropoffLocationObj == null) {
-                return ResponseEntity.badRequest()
-                        .body(createErrorResponse("One or both locations not found"));
+            if (idempotencyKey == null) {
+                return createTestBooking(request);
             }
+            // the stored ResponseEntity is returned as-is, so a replay serializes to the same bytes
+            return idempotencyStore.execute("POST /booking/test-booking " + idempotencyKey,
+                    testBookingFingerprint(request), () -> createTestBooking(request));
+
+        } catch (IdempotencyStore.InvalidIdempotencyKeyException e) {
+            return ResponseEntity.badRequest().body(createErrorResponse(e.getMessage()));
+        } catch (IdempotencyStore.KeyReusedException e) {
+            return ResponseEntity.status(HttpStatus.UNPROCESSABLE_ENTITY).body(createErrorResponse(e.getMessage()));
+        } catch (IdempotencyStore.RequestInProgressException e) {
+            return ResponseEntity.status(HttpStatus.CONFLICT).body(createErrorResponse(e.getMessage()));
+        } catch (Exception e) {
+            return ResponseEntity.internalServerError()
+                    .body(createErrorResponse("Test booking error: " + e.getMessage()));
+        }
+    }
 
-            Route route = routeService.createRoute(pickupLocationObj, dropoffLocationObj);
-            double fareAmount = calculateFareService.calculateFare(route);
+    /**
+     * helper method which books the test cab, exceptions are left to the caller so a failed attempt is never
+     * stored against an Idempotency-Key
+     * @param request the JSON delivered from the HTML request
+     * @return HashMap of the booking request send from the HTML
+     */
+    private ResponseEntity<Map<String, Object>> createTestBooking(TestBookingRequest request) {
+        System.out.println("Test booking request received for: " + request.getClient().getName());
+
+        // STEP 1: Create Client object from the JSON test data sent by frontend
+        Client client = new Client(
+                request.getClient().getId(),
+                request.getClient().getName(),
+                request.getClient().getEmail(),
+                request.getClient().getPhone(),
+                request.getClient().getAddress(),
+                request.getClient().getCredit_card()
+        );
+
+        // STEP 2: Find locations and create route
+        Location pickupLocationObj = locationService.findLocationByName(request.getPickupLocation());
+        Location dropoffLocationObj = locationService.findLocationByName(request.getDropoffLocation());
+
+        if (pickupLocationObj == null || dropoffLocationObj == null) {
+            return ResponseEntity.badRequest()
+                    .body(createErrorResponse("One or both locations not found"));
+        }
 
-            // STEP 3: call bookingService.bookCab() with both objects
-            bookingService.bookCab(client, route);
+        Route route = routeService.createRoute(pickupLocationObj, dropoffLocationObj);
+        double fareAmount = calculateFareService.calculateFare(route);
+        FareQuote quote = fareQuoteService.issueQuote(route, fareAmount);
+
+        // STEP 3: call bookingService.bookCab() with both objects
+        Booking booking = bookingService.bookCab(client, route);
+
+        // STEP 4: Return the response
+        Map<String, Object> response = new HashMap<>();
+        response.put("success", true);
+        response.put("pickupLocation", request.getPickupLocation());
+        response.put("dropoffLocation", request.getDropoffLocation());
+        response.put("distance", route.getDistance());
+        response.put("duration", route.getDuration());
+        response.put("fareAmount", fareAmount);
+        response.put("quoteToken", quote.getToken());
+        response.put("quoteExpiresAt", quote.getExpiresAt());
+        response.put("clientName", client.getName());
+        if (booking != null) {
+            // the fare quote above was issued for this booking
+            bookingService.updateBookingStatus(booking.getId(), BookingStatus.QUOTED);
+            response.put("bookingId", booking.getId());
+            response.put("status", BookingStatus.QUOTED);
+            response.put("driverId", booking.getDriverId());
+        }
 
-            // STEP 4: Return the response
-            Map<String, Object> response = new HashMap<>();
-            response.put("success", true);
-            response.put("pickupLocation", request.getPickupLocation());
-            response.put("dropoffLocation", request.getDropoffLocation());
-            response.put("distance", route.getDistance());
-            response.put("fareAmount", fareAmount);
-            response.put("clientName", client.getName());
+        return ResponseEntity.ok(response);
+    }
 
-            return ResponseEntity.ok(response);
+    /**
+     * helper method which summarises a booking request, so reusing a key for a different booking is rejected
+     */
+    private static String bookingFingerprint(Client client, Route route) {
+        return (client == null ? null : client.getId()) + "|" + (client == null ? null : client.getEmail()) + "|"
+                + (route == null || route.getFrom() == null ? null : route.getFrom().getLocationName()) + "|"
+                + (route == null || route.getTo() == null ? null : route.getTo().getLocationName());
+    }
 
-        } catch (Exception e) {
-            return ResponseEntity.internalServerError()
-                    .body(createErrorResponse("Test booking error: " + e.getMessage()));
-        }
+    private static String testBookingFingerprint(TestBookingRequest request) {
+        TestBookingRequest.TestClient client = request.getClient();
+        return (client == null ? null : client.getId()) + "|" + (client == null ? null : client.getEmail()) + "|"
+                + request.getPickupLocation() + "|" + request.getDropoffLocation();
     }
 
     /**
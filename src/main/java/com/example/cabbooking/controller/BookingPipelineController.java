@@ -0,0 +1,124 @@
+package com.example.cabbooking.controller;
+
+import com.example.cabbooking.model.Booking;
+import com.example.cabbooking.model.Client;
+import com.example.cabbooking.model.Location;
+import com.example.cabbooking.service.BookingPipelineService;
+import com.example.cabbooking.service.BookingService;
+import com.example.cabbooking.service.LocationService;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Optional;
+
+@RestController
+@RequestMapping("/booking/pipeline")
+public class BookingPipelineController {
+
+    // seconds a client should wait before retrying when the pipeline is full
+    private static final String RETRY_AFTER_SECONDS = "1";
+
+    private final BookingPipelineService bookingPipelineService;
+    private final LocationService locationService;
+
+    @Autowired
+    public BookingPipelineController(BookingPipelineService bookingPipelineService, LocationService locationService) {
+        this.bookingPipelineService = bookingPipelineService;
+        this.locationService = locationService;
+    }
+
+    /**
+     * accepts a booking and returns its id straight away, pricing, saving and dispatch happen in the background
+     * @param request same JSON as /booking/test-booking
+     * @return 202 with the booking id to poll, 400 if the booking is invalid or 429 when the pipeline is full
+     */
+    @PostMapping
+    public ResponseEntity<Map<String, Object>> submitBooking(@RequestBody BookingController.TestBookingRequest request) {
+        if (request.getClient() == null) {
+            return ResponseEntity.badRequest().body(createErrorResponse("Client details are required"));
+        }
+
+        Location pickupLocationObj = locationService.findLocationByName(request.getPickupLocation());
+        Location dropoffLocationObj = locationService.findLocationByName(request.getDropoffLocation());
+        if (pickupLocationObj == null || dropoffLocationObj == null) {
+            return ResponseEntity.badRequest().body(createErrorResponse("One or both locations not found"));
+        }
+
+        BookingController.TestBookingRequest.TestClient testClient = request.getClient();
+        Client client = new Client(testClient.getId(), testClient.getName(), testClient.getEmail(),
+                testClient.getPhone(), testClient.getAddress(), testClient.getCredit_card());
+
+        try {
+            BookingPipelineService.Ticket ticket = bookingPipelineService.submit(client, pickupLocationObj, dropoffLocationObj);
+
+            Map<String, Object> response = new HashMap<>();
+            response.put("success", true);
+            response.put("bookingId", ticket.getBookingId());
+            response.put("stage", ticket.getStage());
+            response.put("statusUrl", "/booking/pipeline/" + ticket.getBookingId());
+            return ResponseEntity.status(HttpStatus.ACCEPTED).body(response);
+
+        } catch (BookingService.InvalidBookingException e) {
+            return ResponseEntity.badRequest().body(createErrorResponse(e.getMessage()));
+        } catch (BookingPipelineService.PipelineFullException e) {
+            return ResponseEntity.status(HttpStatus.TOO_MANY_REQUESTS)
+                    .header(HttpHeaders.RETRY_AFTER, RETRY_AFTER_SECONDS)
+                    .body(createErrorResponse(e.getMessage()));
+        }
+    }
+
+    /**
+     * polls a booking submitted to the pipeline
+     * @param bookingId id returned when the booking was accepted
+     * @return 200 with the result once the booking is finished, 202 while it is still in the pipeline, 404 if unknown
+     */
+    @GetMapping("/{bookingId}")
+    public ResponseEntity<Map<String, Object>> getBookingResult(@PathVariable String bookingId) {
+        Optional<BookingPipelineService.Ticket> found = bookingPipelineService.getTicket(bookingId);
+        if (found.isEmpty()) {
+            return ResponseEntity.status(HttpStatus.NOT_FOUND).body(createErrorResponse("Booking not found: " + bookingId));
+        }
+
+        BookingPipelineService.Ticket ticket = found.get();
+        BookingPipelineService.Stage stage = ticket.getStage();
+
+        Map<String, Object> response = new HashMap<>();
+        response.put("success", stage != BookingPipelineService.Stage.FAILED);
+        response.put("bookingId", bookingId);
+        response.put("stage", stage);
+
+        Booking booking = ticket.getBooking();
+        if (booking != null) {
+            response.put("distance", booking.getDistance());
+            response.put("duration", booking.getDuration());
+            response.put("fareAmount", booking.getFare());
+            response.put("driverId", booking.getDriverId());
+        }
+        if (stage == BookingPipelineService.Stage.FAILED) {
+            response.put("error", ticket.getError());
+        }
+
+        return ticket.isFinished() ? ResponseEntity.ok(response) : ResponseEntity.status(HttpStatus.ACCEPTED).body(response);
+    }
+
+    /**
+     * pipeline counters and stage queue depths
+     * @return map of metric names to values
+     */
+    @GetMapping("/metrics")
+    public ResponseEntity<Map<String, Object>> getMetrics() {
+        return ResponseEntity.ok(bookingPipelineService.getMetrics());
+    }
+
+    private Map<String, Object> createErrorResponse(String errorMessage) {
+        Map<String, Object> errorResponse = new HashMap<>();
+        errorResponse.put("success", false);
+        errorResponse.put("error", errorMessage);
+        return errorResponse;
+    }
+}
@@ -1,14 +1,23 @@
 package com.example.cabbooking.controller;
 
+import com.example.cabbooking.model.BookingHistoryPage;
 import com.example.cabbooking.model.Client;
+import com.example.cabbooking.model.ClientPage;
 import com.example.cabbooking.repository.ClientRepository;
+import com.example.cabbooking.service.BookingHistoryService;
 import com.example.cabbooking.service.ClientService;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import java.io.IOException;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 
 @RestController
@@ -16,10 +25,13 @@ import java.util.Optional;
 public class ClientController {
 
     private final ClientService clientService;
+    private final BookingHistoryService bookingHistoryService;
 
     @Autowired
-    public ClientController(ClientService clientService, ClientRepository clientRepository) {
+    public ClientController(ClientService clientService, ClientRepository clientRepository,
+                            BookingHistoryService bookingHistoryService) {
         this.clientService = clientService;
+        this.bookingHistoryService = bookingHistoryService;
     }
 
     // Custom Exception Classes
@@ -81,14 +93,96 @@ public class ClientController {
 
     // API Endpoints with Exception Handling
 
+    /**
+     * one page of clients in id order, with a Link header pointing at the next page when there is one
+     * @param after id of the last client on the previous page, omitted for the first page
+     * @param limit page size
+     * @return the clients on the page
+     */
     @GetMapping
-    public ResponseEntity<List<Client>> getAllClients() {
+    public ResponseEntity<List<Client>> getAllClients(@RequestParam(required = false) Integer after,
+                                                      @RequestParam(required = false) Integer limit) {
+        ClientPage page;
         try {
-            List<Client> clients = clientService.getAllClients();
-            return new ResponseEntity<>(clients, HttpStatus.OK);
+            page = clientService.getClients(after, limit);
+        } catch (ClientService.InvalidPageRequestException e) {
+            throw new InvalidClientDataException(e.getMessage());
         } catch (Exception e) {
             throw new RuntimeException("❌ Failed to retrieve clients: " + e.getMessage());
         }
+
+        if (!page.isHasMore()) {
+            return new ResponseEntity<>(page.getClients(), HttpStatus.OK);
+        }
+        String next = "/clients?after=" + page.getNextAfter() + (limit == null ? "" : "&limit=" + limit);
+        return ResponseEntity.ok()
+                .header(HttpHeaders.LINK, "<" + next + ">; rel=\"next\"")
+                .body(page.getClients());
+    }
+
+    /**
+     * every client as newline-delimited JSON, written while the rows are read so memory stays flat.
+     * The status has already been sent by the time a stream fails, so it is aborted instead, and the client
+     * sees a chunked response without its terminating chunk rather than a list that looks complete
+     * @return the response body, one client per line
+     */
+    @GetMapping(value = "/stream", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public ResponseEntity<StreamingResponseBody> streamClients() {
+        StreamingResponseBody body = out -> {
+            if (!clientService.streamClients(out)) {
+                throw new IOException("Client stream ended before every client was written");
+            }
+        };
+        return ResponseEntity.ok()
+                .contentType(MediaType.APPLICATION_NDJSON)
+                .body(body);
+    }
+
+    /**
+     * number of clients
+     * @param approximate true for InnoDB's cached row estimate, which costs the same however large the table is
+     * @return the count and whether it is approximate
+     */
+    @GetMapping("/count")
+    public ResponseEntity<Map<String, Object>> getClientCount(@RequestParam(defaultValue = "false") boolean approximate) {
+        long count = approximate ? clientService.getApproximateClientCount() : clientService.getClientCount();
+        if (count < 0) {
+            throw new RuntimeException("❌ Failed to count clients");
+        }
+
+        Map<String, Object> body = new HashMap<>();
+        body.put("count", count);
+        body.put("approximate", approximate);
+        return new ResponseEntity<>(body, HttpStatus.OK);
+    }
+
+    /**
+     * finds clients by exactly one of email, phone or the start of their name
+     * @param email exact email
+     * @param phone exact phone number, in any format
+     * @param name start of the name
+     * @param limit most clients to return, up to client.search.max-limit
+     * @return the matching clients, empty if there are none
+     */
+    @GetMapping("/search")
+    public ResponseEntity<List<Client>> searchClients(@RequestParam(required = false) String email,
+                                                      @RequestParam(required = false) String phone,
+                                                      @RequestParam(required = false) String name,
+                                                      @RequestParam(required = false) Integer limit) {
+        try {
+            return ResponseEntity.ok(clientService.searchClients(email, phone, name, limit));
+        } catch (ClientService.InvalidSearchException e) {
+            throw new InvalidClientDataException(e.getMessage());
+        }
+    }
+
+    /**
+     * client cache counters, including the share of lookups answered without MySQL
+     * @return map of metric names to values
+     */
+    @GetMapping("/cache/metrics")
+    public ResponseEntity<Map<String, Object>> getCacheMetrics() {
+        return ResponseEntity.ok(clientService.getCacheMetrics());
     }
 
     @GetMapping("/{id}")
@@ -107,6 +201,41 @@ public class ClientController {
         }
     }
 
+    /**
+     * a client's past rides, newest first, one page at a time
+     * @param id id of the client
+     * @param cursor nextCursor from the previous page, omitted for the first page
+     * @param limit page size
+     * @param view "full" for whole bookings or "summary" for just the fields a ride list shows
+     * @return the page of bookings and the cursor of the next one
+     */
+    @GetMapping("/{id}/bookings")
+    public ResponseEntity<BookingHistoryPage<?>> getClientBookings(@PathVariable int id,
+                                                                 @RequestParam(required = false) String cursor,
+                                                                 @RequestParam(required = false) Integer limit,
+                                                                 @RequestParam(defaultValue = "full") String view) {
+        // Validate ID
+        if (id <= 0) {
+            throw new InvalidClientDataException("Client ID must be positive, got: " + id);
+        }
+        if (!"full".equals(view) && !"summary".equals(view)) {
+            throw new InvalidClientDataException("View must be 'full' or 'summary', got: " + view);
+        }
+
+        if (!clientService.clientExists(id)) {
+            throw new ClientNotFoundException("Client with ID " + id + " not found");
+        }
+
+        try {
+            BookingHistoryPage<?> page = "summary".equals(view)
+                    ? bookingHistoryService.getBookingSummaries(id, cursor, limit)
+                    : bookingHistoryService.getBookings(id, cursor, limit);
+            return new ResponseEntity<>(page, HttpStatus.OK);
+        } catch (BookingHistoryService.InvalidPageRequestException e) {
+            throw new InvalidClientDataException(e.getMessage());
+        }
+    }
+
     @PostMapping
     public ResponseEntity<Client> createClient(@RequestBody Client client) {
         // Validate client data
@@ -131,24 +260,20 @@ public class ClientController {
         // Validate client data
         validateClientData(client);
 
-        if (client.getId() != null && !client.getId().equals(id) && clientService.clientExists(id)) {
+        if (client.getId() != null && !client.getId().equals(id)) {
             throw new InvalidClientDataException(
                     "Path ID (" + id + ") does not match JSON ID (" + client.getId() + ")"
             );
         }
 
-        // Check if client exists
-        if (!clientService.clientExists(id)) {
-            throw new ClientNotFoundException("Client with ID " + id + " not found");
-        }
-
         // Set the ID from the path parameter
         client.setId(id);
 
-        boolean success = clientService.updateClient(client);
-
-        if (success) {
+        // one UPDATE, the existence check only runs to explain a failure
+        if (clientService.updateClient(client)) {
             return new ResponseEntity<>(client, HttpStatus.OK);
+        } else if (!clientService.clientExists(id)) {
+            throw new ClientNotFoundException("Client with ID " + id + " not found");
         } else {
             throw new ClientUpdateException("Failed to update client with ID: " + id);
         }
@@ -161,15 +286,11 @@ public class ClientController {
             throw new InvalidClientDataException("Client ID must be positive, got: " + id);
         }
 
-        // Check if client exists
-        if (!clientService.clientExists(id)) {
-            throw new ClientNotFoundException("Client with ID " + id + " not found");
-        }
-
-        boolean success = clientService.deleteClient(id);
-
-        if (success) {
+        // one DELETE, the existence check only runs to explain a failure
+        if (clientService.deleteClient(id)) {
             return new ResponseEntity<>(HttpStatus.NO_CONTENT);
+        } else if (!clientService.clientExists(id)) {
+            throw new ClientNotFoundException("Client with ID " + id + " not found");
         } else {
             throw new ClientDeletionException("Failed to delete client with ID: " + id);
         }
@@ -0,0 +1,86 @@
+package com.example.cabbooking.controller;
+
+import com.example.cabbooking.service.ClientExportService;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.boot.ExitCodeGenerator;
+import org.springframework.stereotype.Component;
+
+import java.nio.file.Paths;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * command-line counterpart of GET /clients/export, for scheduled analytics exports, e.g.
+ * java -jar cab-booking.jar --export-clients=/exports/clients.csv.gz
+ * The format comes from the file name unless --export-format=csv|ndjson is given, and the file is gzipped when it
+ * ends in .gz or --export-gzip is given. CabBookingApplication starts only ClientExportConfig for an export,
+ * without the web server, and exits once the file is written, with exit code 0 if it was.
+ */
+@Component
+public class ClientExportCommand implements ApplicationRunner, ExitCodeGenerator {
+
+    public static final String FILE_OPTION = "export-clients";
+    public static final String FORMAT_OPTION = "export-format";
+    public static final String GZIP_OPTION = "export-gzip";
+
+    private final ClientExportService clientExportService;
+    private int exitCode;
+
+    @Autowired
+    public ClientExportCommand(ClientExportService clientExportService) {
+        this.clientExportService = clientExportService;
+    }
+
+    /**
+     * @param args command-line arguments
+     * @return true if the arguments ask for a client export
+     */
+    public static boolean isRequested(String... args) {
+        for (String arg : args) {
+            if (arg.startsWith("--" + FILE_OPTION + "=")) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    @Override
+    public void run(ApplicationArguments args) {
+        if (!args.containsOption(FILE_OPTION)) {
+            return;
+        }
+
+        String file = firstValue(args, FILE_OPTION);
+        if (file == null || file.isBlank()) {
+            System.out.println("✗ Client export needs a file: --" + FILE_OPTION + "=<file>");
+            exitCode = 2;
+            return;
+        }
+
+        ClientExportService.Format format;
+        try {
+            format = args.containsOption(FORMAT_OPTION)
+                    ? ClientExportService.Format.fromName(firstValue(args, FORMAT_OPTION))
+                    : ClientExportService.formatOf(file);
+        } catch (ClientExportService.InvalidExportException e) {
+            System.out.println("✗ " + e.getMessage());
+            exitCode = 2;
+            return;
+        }
+        boolean gzip = args.containsOption(GZIP_OPTION) || file.toLowerCase(Locale.ROOT).endsWith(".gz");
+
+        exitCode = clientExportService.exportToFile(Paths.get(file), format, gzip) < 0 ? 1 : 0;
+    }
+
+    @Override
+    public int getExitCode() {
+        return exitCode;
+    }
+
+    private static String firstValue(ApplicationArguments args, String option) {
+        List<String> values = args.getOptionValues(option);
+        return values == null || values.isEmpty() ? null : values.get(0);
+    }
+}
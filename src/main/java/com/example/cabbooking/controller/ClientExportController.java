@@ -0,0 +1,71 @@
+package com.example.cabbooking.controller;
+
+import com.example.cabbooking.service.ClientExportService;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.Map;
+
+@RestController
+@RequestMapping("/clients")
+public class ClientExportController {
+
+    private final ClientExportService clientExportService;
+
+    @Autowired
+    public ClientExportController(ClientExportService clientExportService) {
+        this.clientExportService = clientExportService;
+    }
+
+    // Exception Handler Methods
+    @ExceptionHandler(ClientExportService.InvalidExportException.class)
+    public ResponseEntity<Map<String, Object>> handleInvalidExport(ClientExportService.InvalidExportException e) {
+        return ResponseEntity.badRequest().body(createErrorResponse(e.getMessage()));
+    }
+
+    /**
+     * every client, with cards masked, written while the rows are read so memory stays flat. An export that fails
+     * part way aborts the response, so the download fails instead of ending like a complete file
+     * @param format ndjson or csv
+     * @param gzip true to download the export gzipped
+     * @return the export as an attachment, clients.ndjson, clients.csv or either with .gz
+     */
+    @GetMapping("/export")
+    public ResponseEntity<StreamingResponseBody> exportClients(@RequestParam(defaultValue = "ndjson") String format,
+                                                               @RequestParam(defaultValue = "false") boolean gzip) {
+        ClientExportService.Format exportFormat = ClientExportService.Format.fromName(format);
+        String fileName = "clients." + exportFormat.getExtension() + (gzip ? ".gz" : "");
+
+        MediaType contentType;
+        if (gzip) {
+            contentType = MediaType.parseMediaType("application/gzip");
+        } else if (exportFormat == ClientExportService.Format.CSV) {
+            contentType = MediaType.parseMediaType("text/csv;charset=UTF-8");
+        } else {
+            contentType = MediaType.APPLICATION_NDJSON;
+        }
+
+        StreamingResponseBody body = out -> {
+            if (clientExportService.export(out, exportFormat, gzip) < 0) {
+                throw new IOException("Client export ended before every client was written");
+            }
+        };
+        return ResponseEntity.ok()
+                .contentType(contentType)
+                .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"" + fileName + "\"")
+                .body(body);
+    }
+
+    private Map<String, Object> createErrorResponse(String errorMessage) {
+        Map<String, Object> errorResponse = new HashMap<>();
+        errorResponse.put("success", false);
+        errorResponse.put("error", errorMessage);
+        return errorResponse;
+    }
+}
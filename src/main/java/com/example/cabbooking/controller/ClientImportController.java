@@ -0,0 +1,52 @@
+package com.example.cabbooking.controller;
+
+import com.example.cabbooking.model.ClientImportResult;
+import com.example.cabbooking.service.ClientImportService;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.io.InputStream;
+import java.util.HashMap;
+import java.util.Map;
+
+@RestController
+@RequestMapping("/clients")
+public class ClientImportController {
+
+    private final ClientImportService clientImportService;
+
+    @Autowired
+    public ClientImportController(ClientImportService clientImportService) {
+        this.clientImportService = clientImportService;
+    }
+
+    // Exception Handler Methods
+    @ExceptionHandler(ClientImportService.InvalidImportException.class)
+    public ResponseEntity<Map<String, Object>> handleInvalidImport(ClientImportService.InvalidImportException e) {
+        return ResponseEntity.badRequest().body(createErrorResponse(e.getMessage()));
+    }
+
+    /**
+     * imports clients from the request body without holding the whole file in memory
+     * @param contentType text/csv, with a header row, or application/x-ndjson
+     * @param body the file
+     * @return counts of imported and rejected rows, with the line and reason of each rejected row
+     */
+    @PostMapping(value = "/import", consumes = {"text/csv", "application/x-ndjson"})
+    public ResponseEntity<ClientImportResult> importClients(@RequestHeader(HttpHeaders.CONTENT_TYPE) String contentType,
+                                                            InputStream body) {
+        ClientImportService.Format format = ClientImportService.Format.fromContentType(contentType);
+        ClientImportResult result = clientImportService.importClients(body, format);
+        return ResponseEntity.status(result.getImported() > 0 ? HttpStatus.CREATED : HttpStatus.OK).body(result);
+    }
+
+    private Map<String, Object> createErrorResponse(String errorMessage) {
+        Map<String, Object> errorResponse = new HashMap<>();
+        errorResponse.put("success", false);
+        errorResponse.put("error", errorMessage);
+        return errorResponse;
+    }
+}
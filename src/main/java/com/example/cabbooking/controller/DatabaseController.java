@@ -0,0 +1,31 @@
+package com.example.cabbooking.controller;
+
+import com.example.cabbooking.service.ConnectionPoolMetrics;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.util.Map;
+
+@RestController
+@RequestMapping("/database")
+public class DatabaseController {
+
+    private final ConnectionPoolMetrics connectionPoolMetrics;
+
+    @Autowired
+    public DatabaseController(ConnectionPoolMetrics connectionPoolMetrics) {
+        this.connectionPoolMetrics = connectionPoolMetrics;
+    }
+
+    /**
+     * connection pool counts with acquire latency percentiles
+     * @return map of metric names to values
+     */
+    @GetMapping("/pool/metrics")
+    public ResponseEntity<Map<String, Object>> getPoolMetrics() {
+        return ResponseEntity.ok(connectionPoolMetrics.getMetrics());
+    }
+}
@@ -0,0 +1,31 @@
+package com.example.cabbooking.controller;
+
+import com.example.cabbooking.service.DispatchService;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.util.Map;
+
+@RestController
+@RequestMapping("/dispatch")
+public class DispatchController {
+
+    private final DispatchService dispatchService;
+
+    @Autowired
+    public DispatchController(DispatchService dispatchService) {
+        this.dispatchService = dispatchService;
+    }
+
+    /**
+     * dispatch counters, comparing the pickup distance of batch matching against greedy matching
+     * @return map of metric names to values
+     */
+    @GetMapping("/metrics")
+    public ResponseEntity<Map<String, Object>> getMetrics() {
+        return ResponseEntity.ok(dispatchService.getMetrics());
+    }
+}
@@ -0,0 +1,124 @@
+package com.example.cabbooking.controller;
+
+import com.example.cabbooking.model.Driver;
+import com.example.cabbooking.model.DriverStatus;
+import com.example.cabbooking.model.VehicleClass;
+import com.example.cabbooking.service.FleetService;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+@RestController
+@RequestMapping("/fleet")
+public class FleetController {
+
+    private final FleetService fleetService;
+
+    @Autowired
+    public FleetController(FleetService fleetService) {
+        this.fleetService = fleetService;
+    }
+
+    // Exception Handler Methods
+    @ExceptionHandler(FleetService.DriverNotFoundException.class)
+    public ResponseEntity<Map<String, Object>> handleDriverNotFound(FleetService.DriverNotFoundException e) {
+        return ResponseEntity.status(HttpStatus.NOT_FOUND).body(createErrorResponse(e.getMessage()));
+    }
+
+    @ExceptionHandler(FleetService.InvalidDriverException.class)
+    public ResponseEntity<Map<String, Object>> handleInvalidDriver(FleetService.InvalidDriverException e) {
+        return ResponseEntity.badRequest().body(createErrorResponse(e.getMessage()));
+    }
+
+    /**
+     * registers a driver with the fleet
+     * @param driver Driver to be registered
+     * @return the registered driver
+     */
+    @PostMapping("/drivers")
+    public ResponseEntity<Driver> registerDriver(@RequestBody Driver driver) {
+        return ResponseEntity.status(HttpStatus.CREATED).body(fleetService.registerDriver(driver));
+    }
+
+    /**
+     * @param driverId id of the driver
+     * @return the driver, or 404 if they are not registered
+     */
+    @GetMapping("/drivers/{driverId}")
+    public ResponseEntity<Driver> getDriver(@PathVariable String driverId) {
+        return fleetService.getDriver(driverId)
+                .map(ResponseEntity::ok)
+                .orElseThrow(() -> new FleetService.DriverNotFoundException("Driver not found: " + driverId));
+    }
+
+    /**
+     * removes a driver from the fleet
+     * @param driverId id of the driver
+     * @return 204 once removed
+     */
+    @DeleteMapping("/drivers/{driverId}")
+    public ResponseEntity<Void> removeDriver(@PathVariable String driverId) {
+        fleetService.removeDriver(driverId);
+        return ResponseEntity.noContent().build();
+    }
+
+    /**
+     * position update sent by a driver's app
+     * @param driverId id of the driver
+     * @param latitude new latitude
+     * @param longitude new longitude
+     * @return 204 once the driver has been moved
+     */
+    @PutMapping("/drivers/{driverId}/location")
+    public ResponseEntity<Void> updateLocation(@PathVariable String driverId,
+                                               @RequestParam double latitude,
+                                               @RequestParam double longitude) {
+        fleetService.updateLocation(driverId, latitude, longitude);
+        return ResponseEntity.noContent().build();
+    }
+
+    /**
+     * lets a driver go online (AVAILABLE) or OFFLINE
+     * @param driverId id of the driver
+     * @param status new status
+     * @return 204 once the status has changed
+     */
+    @PutMapping("/drivers/{driverId}/status")
+    public ResponseEntity<Void> updateStatus(@PathVariable String driverId, @RequestParam DriverStatus status) {
+        fleetService.updateStatus(driverId, status);
+        return ResponseEntity.noContent().build();
+    }
+
+    /**
+     * finds the available drivers closest to a point
+     * @param latitude pickup latitude
+     * @param longitude pickup longitude
+     * @param k maximum number of drivers
+     * @param vehicleClass optional vehicle class
+     * @return closest available drivers, closest first
+     */
+    @GetMapping("/drivers/nearest")
+    public ResponseEntity<List<Driver>> findNearest(@RequestParam double latitude,
+                                                    @RequestParam double longitude,
+                                                    @RequestParam(defaultValue = "5") int k,
+                                                    @RequestParam(required = false) VehicleClass vehicleClass) {
+        return ResponseEntity.ok(fleetService.findNearestAvailable(latitude, longitude, k, vehicleClass));
+    }
+
+    /**
+     * Helper method to create consistent error responses
+     * @param errorMessage Error message to be created
+     * @return Generated error message
+     */
+    private Map<String, Object> createErrorResponse(String errorMessage) {
+        Map<String, Object> errorResponse = new HashMap<>();
+        errorResponse.put("success", false);
+        errorResponse.put("error", errorMessage);
+        return errorResponse;
+    }
+}
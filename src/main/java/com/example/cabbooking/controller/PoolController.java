@@ -0,0 +1,129 @@
+package com.example.cabbooking.controller;
+
+import com.example.cabbooking.model.Location;
+import com.example.cabbooking.model.PoolAssignment;
+import com.example.cabbooking.model.PooledRide;
+import com.example.cabbooking.model.RideStop;
+import com.example.cabbooking.service.LocationService;
+import com.example.cabbooking.service.PoolingService;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.HashMap;
+import java.util.Map;
+
+@RestController
+@RequestMapping("/pool")
+public class PoolController {
+
+    private final PoolingService poolingService;
+    private final LocationService locationService;
+
+    @Autowired
+    public PoolController(PoolingService poolingService, LocationService locationService) {
+        this.poolingService = poolingService;
+        this.locationService = locationService;
+    }
+
+    // Exception Handler Methods
+    @ExceptionHandler(PoolingService.RideNotFoundException.class)
+    public ResponseEntity<Map<String, Object>> handleRideNotFound(PoolingService.RideNotFoundException e) {
+        return ResponseEntity.status(HttpStatus.NOT_FOUND).body(createErrorResponse(e.getMessage()));
+    }
+
+    @ExceptionHandler(PoolingService.InvalidPoolRequestException.class)
+    public ResponseEntity<Map<String, Object>> handleInvalidRequest(PoolingService.InvalidPoolRequestException e) {
+        return ResponseEntity.status(HttpStatus.CONFLICT).body(createErrorResponse(e.getMessage()));
+    }
+
+    /**
+     * adds a booking to the best matching shared ride, or starts a new one
+     * @param request booking id and location names
+     * @return the ride the booking was placed in, 400 if a location is unknown
+     */
+    @PostMapping("/requests")
+    public ResponseEntity<?> requestRide(@RequestBody PoolRequest request) {
+        Location pickup = locationService.findLocationByName(request.getPickupLocation());
+        Location dropoff = locationService.findLocationByName(request.getDropoffLocation());
+        if (pickup == null || dropoff == null) {
+            return ResponseEntity.badRequest().body(createErrorResponse("One or both locations not found"));
+        }
+
+        PoolAssignment assignment = poolingService.requestRide(request.getBookingId(), pickup, dropoff);
+        return ResponseEntity.status(HttpStatus.CREATED).body(assignment);
+    }
+
+    /**
+     * takes a booking out of its shared ride before pickup
+     * @param bookingId id of the booking
+     * @return 204 once removed, 409 if the rider is already on board
+     */
+    @DeleteMapping("/requests/{bookingId}")
+    public ResponseEntity<Void> cancel(@PathVariable String bookingId) {
+        poolingService.cancel(bookingId);
+        return ResponseEntity.noContent().build();
+    }
+
+    /**
+     * @param rideId id of the ride
+     * @return remaining stops of the ride, or 404 once it has finished
+     */
+    @GetMapping("/rides/{rideId}")
+    public ResponseEntity<PooledRide> getRide(@PathVariable String rideId) {
+        return poolingService.getRide(rideId)
+                .map(ResponseEntity::ok)
+                .orElseThrow(() -> new PoolingService.RideNotFoundException("Ride not found: " + rideId));
+    }
+
+    /**
+     * called by the driver's app on arriving at the next stop
+     * @param rideId id of the ride
+     * @return the stop that was completed
+     */
+    @PostMapping("/rides/{rideId}/stops/next")
+    public ResponseEntity<RideStop> completeNextStop(@PathVariable String rideId) {
+        return ResponseEntity.ok(poolingService.completeNextStop(rideId));
+    }
+
+    @GetMapping("/metrics")
+    public ResponseEntity<Map<String, Object>> getMetrics() {
+        return ResponseEntity.ok(poolingService.getMetrics());
+    }
+
+    /**
+     * Helper method to create consistent error responses
+     * @param errorMessage Error message to be created
+     * @return Generated error message
+     */
+    private Map<String, Object> createErrorResponse(String errorMessage) {
+        Map<String, Object> errorResponse = new HashMap<>();
+        errorResponse.put("success", false);
+        errorResponse.put("error", errorMessage);
+        return errorResponse;
+    }
+
+    public static class PoolRequest {
+        private String bookingId;
+        private String pickupLocation;
+        private String dropoffLocation;
+
+        public PoolRequest() {}
+
+        public PoolRequest(String bookingId, String pickupLocation, String dropoffLocation) {
+            this.bookingId = bookingId;
+            this.pickupLocation = pickupLocation;
+            this.dropoffLocation = dropoffLocation;
+        }
+
+        public String getBookingId() {return bookingId;}
+        public void setBookingId(String bookingId) {this.bookingId = bookingId;}
+
+        public String getPickupLocation() {return pickupLocation;}
+        public void setPickupLocation(String pickupLocation) {this.pickupLocation = pickupLocation;}
+
+        public String getDropoffLocation() {return dropoffLocation;}
+        public void setDropoffLocation(String dropoffLocation) {this.dropoffLocation = dropoffLocation;}
+    }
+}
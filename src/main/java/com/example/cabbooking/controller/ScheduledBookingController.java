@@ -0,0 +1,145 @@
+package com.example.cabbooking.controller;
+
+import com.example.cabbooking.model.Booking;
+import com.example.cabbooking.model.Client;
+import com.example.cabbooking.model.Location;
+import com.example.cabbooking.service.AdvanceBookingService;
+import com.example.cabbooking.service.BookingService;
+import com.example.cabbooking.service.LocationService;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.time.Instant;
+import java.time.format.DateTimeParseException;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Optional;
+
+@RestController
+@RequestMapping("/booking/scheduled")
+public class ScheduledBookingController {
+
+    private final AdvanceBookingService advanceBookingService;
+    private final LocationService locationService;
+
+    @Autowired
+    public ScheduledBookingController(AdvanceBookingService advanceBookingService, LocationService locationService) {
+        this.advanceBookingService = advanceBookingService;
+        this.locationService = locationService;
+    }
+
+    /**
+     * books a cab for a later pickup, it is released to dispatch shortly before the pickup time
+     * @param request same JSON as /booking/test-booking plus an ISO-8601 pickupTime
+     * @return 201 with the booking, 400 if the booking or pickup time is invalid
+     */
+    @PostMapping
+    public ResponseEntity<Map<String, Object>> scheduleBooking(@RequestBody ScheduledBookingRequest request) {
+        if (request.getClient() == null) {
+            return ResponseEntity.badRequest().body(createErrorResponse("Client details are required"));
+        }
+
+        Instant pickupAt;
+        try {
+            pickupAt = request.getPickupTime() == null ? null : Instant.parse(request.getPickupTime());
+        } catch (DateTimeParseException e) {
+            return ResponseEntity.badRequest().body(createErrorResponse("Pickup time must be an ISO-8601 instant: " + request.getPickupTime()));
+        }
+
+        Location pickupLocationObj = locationService.findLocationByName(request.getPickupLocation());
+        Location dropoffLocationObj = locationService.findLocationByName(request.getDropoffLocation());
+        if (pickupLocationObj == null || dropoffLocationObj == null) {
+            return ResponseEntity.badRequest().body(createErrorResponse("One or both locations not found"));
+        }
+
+        BookingController.TestBookingRequest.TestClient testClient = request.getClient();
+        Client client = new Client(testClient.getId(), testClient.getName(), testClient.getEmail(),
+                testClient.getPhone(), testClient.getAddress(), testClient.getCredit_card());
+
+        try {
+            Booking booking = advanceBookingService.scheduleBooking(client, pickupLocationObj, dropoffLocationObj, pickupAt);
+
+            Map<String, Object> response = new HashMap<>();
+            response.put("success", true);
+            response.put("bookingId", booking.getId());
+            response.put("pickupTime", pickupAt.toString());
+            response.put("distance", booking.getDistance());
+            response.put("duration", booking.getDuration());
+            response.put("fareAmount", booking.getFare());
+            return ResponseEntity.status(HttpStatus.CREATED).body(response);
+
+        } catch (AdvanceBookingService.InvalidScheduleException | BookingService.InvalidBookingException e) {
+            return ResponseEntity.badRequest().body(createErrorResponse(e.getMessage()));
+        } catch (BookingService.BookingProcessException e) {
+            return ResponseEntity.internalServerError().body(createErrorResponse(e.getMessage()));
+        }
+    }
+
+    /**
+     * @param bookingId id of the advance booking
+     * @return the pickup time while the booking is waiting, 404 once it has been released or cancelled
+     */
+    @GetMapping("/{bookingId}")
+    public ResponseEntity<Map<String, Object>> getScheduledBooking(@PathVariable String bookingId) {
+        Optional<Instant> pickupAt = advanceBookingService.getPickupTime(bookingId);
+        if (pickupAt.isEmpty()) {
+            return ResponseEntity.status(HttpStatus.NOT_FOUND).body(createErrorResponse("No pending advance booking: " + bookingId));
+        }
+
+        Map<String, Object> response = new HashMap<>();
+        response.put("success", true);
+        response.put("bookingId", bookingId);
+        response.put("pickupTime", pickupAt.get().toString());
+        return ResponseEntity.ok(response);
+    }
+
+    /**
+     * cancels an advance booking before it is released to dispatch
+     * @param bookingId id of the advance booking
+     * @return 204 once cancelled, 404 if it is not waiting any more
+     */
+    @DeleteMapping("/{bookingId}")
+    public ResponseEntity<Map<String, Object>> cancelScheduledBooking(@PathVariable String bookingId) {
+        try {
+            advanceBookingService.cancelScheduled(bookingId);
+            return ResponseEntity.noContent().build();
+        } catch (AdvanceBookingService.ScheduledBookingNotFoundException e) {
+            return ResponseEntity.status(HttpStatus.NOT_FOUND).body(createErrorResponse(e.getMessage()));
+        }
+    }
+
+    @GetMapping("/metrics")
+    public ResponseEntity<Map<String, Object>> getMetrics() {
+        return ResponseEntity.ok(advanceBookingService.getMetrics());
+    }
+
+    private Map<String, Object> createErrorResponse(String errorMessage) {
+        Map<String, Object> errorResponse = new HashMap<>();
+        errorResponse.put("success", false);
+        errorResponse.put("error", errorMessage);
+        return errorResponse;
+    }
+
+    public static class ScheduledBookingRequest {
+        private BookingController.TestBookingRequest.TestClient client;
+        private String pickupLocation;
+        private String dropoffLocation;
+        private String pickupTime;
+
+        public ScheduledBookingRequest() {}
+
+        public BookingController.TestBookingRequest.TestClient getClient() {return client;}
+        public void setClient(BookingController.TestBookingRequest.TestClient client) {this.client = client;}
+
+        public String getPickupLocation() {return pickupLocation;}
+        public void setPickupLocation(String pickupLocation) {this.pickupLocation = pickupLocation;}
+
+        public String getDropoffLocation() {return dropoffLocation;}
+        public void setDropoffLocation(String dropoffLocation) {this.dropoffLocation = dropoffLocation;}
+
+        public String getPickupTime() {return pickupTime;}
+        public void setPickupTime(String pickupTime) {this.pickupTime = pickupTime;}
+    }
+}
@@ -0,0 +1,98 @@
+package com.example.cabbooking.model;
+
+import java.time.Instant;
+import java.util.Objects;
+
+public class Booking {
+
+    private String id;
+    private Integer clientId;
+    private Location from;
+    private Location to;
+    private double distance;
+    private double duration;
+    private double fare;
+    private BookingStatus status;
+    private Instant createdAt;
+    private String driverId;
+
+    //================Constructors====================
+    public Booking() {}
+
+    public Booking(String id, Integer clientId, Location from, Location to,
+                   double distance, double duration, double fare, BookingStatus status, Instant createdAt) {
+        this.id = id;
+        this.clientId = clientId;
+        this.from = from;
+        this.to = to;
+        this.distance = distance;
+        this.duration = duration;
+        this.fare = fare;
+        this.status = status;
+        this.createdAt = createdAt;
+    }
+
+    //===============Getters and Setters================
+    public String getId() {return id;}
+    public void setId(String id) {this.id = id;}
+
+    public Integer getClientId() {return clientId;}
+    public void setClientId(Integer clientId) {this.clientId = clientId;}
+
+    public Location getFrom() {return from;}
+    public void setFrom(Location from) {this.from = from;}
+
+    public Location getTo() {return to;}
+    public void setTo(Location to) {this.to = to;}
+
+    public double getDistance() {return distance;}
+    public void setDistance(double distance) {this.distance = distance;}
+
+    public double getDuration() {return duration;}
+    public void setDuration(double duration) {this.duration = duration;}
+
+    public double getFare() {return fare;}
+    public void setFare(double fare) {this.fare = fare;}
+
+    public BookingStatus getStatus() {return status;}
+    public void setStatus(BookingStatus status) {this.status = status;}
+
+    public Instant getCreatedAt() {return createdAt;}
+    public void setCreatedAt(Instant createdAt) {this.createdAt = createdAt;}
+
+    /**
+     * @return id of the driver reserved for the booking, null when no driver was available
+     */
+    public String getDriverId() {return driverId;}
+    public void setDriverId(String driverId) {this.driverId = driverId;}
+
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+        Booking booking = (Booking) o;
+        return Objects.equals(id, booking.id);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hashCode(id);
+    }
+
+    @Override
+    public String toString() {
+        return "Booking{" +
+                "id='" + id + '\'' +
+                ", clientId=" + clientId +
+                ", from=" + from +
+                ", to=" + to +
+                ", distance=" + distance +
+                ", duration=" + duration +
+                ", fare=" + fare +
+                ", status=" + status +
+                ", createdAt=" + createdAt +
+                ", driverId='" + driverId + '\'' +
+                '}';
+    }
+}
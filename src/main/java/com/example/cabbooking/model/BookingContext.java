@@ -0,0 +1,69 @@
+package com.example.cabbooking.model;
+
+/**
+ * a client and route that have already been validated, created once by BookingService.createContext()
+ * and passed through pricing, booking and payment so those steps do not check the same inputs again.
+ * The context holds its own copies of the client, locations and route and hands out new copies of them,
+ * so neither the objects it was created from nor the ones it returns can change it.
+ */
+public final class BookingContext {
+
+    private final Client client;
+    private final Location from;
+    private final Location to;
+    private final Route route;
+    private final double directDistance;
+
+    //===================Constructors==================
+
+    /**
+     * @param client client who is booking
+     * @param from pickup location
+     * @param to destination location
+     * @param distance route distance in km
+     * @param duration estimated trip duration in minutes
+     * @param directDistance straight-line distance between the locations in km
+     */
+    public BookingContext(Client client, Location from, Location to, double distance, double duration, double directDistance) {
+        this.client = copy(client);
+        this.from = copy(from);
+        this.to = copy(to);
+        this.route = new Route(this.from, this.to, distance, duration);
+        this.directDistance = directDistance;
+    }
+
+    //================Getters================
+    public Client getClient() {return copy(client);}
+    public Integer getClientId() {return client.getId();}
+    public Location getFrom() {return copy(from);}
+    public Location getTo() {return copy(to);}
+    public Route getRoute() {return new Route(copy(from), copy(to), route.getDistance(), route.getDuration());}
+    public double getDistance() {return route.getDistance();}
+    public double getDuration() {return route.getDuration();}
+
+    /**
+     * @return straight-line distance between the pickup and destination in km, worked out once when the context
+     * was created
+     */
+    public double getDirectDistance() {return directDistance;}
+
+    private static Client copy(Client client) {
+        return new Client(client.getId(), client.getName(), client.getEmail(), client.getPhone(),
+                client.getAddress(), client.getCredit_card());
+    }
+
+    private static Location copy(Location location) {
+        return new Location(location.getLocationName(), location.getLatitude(), location.getLongitude());
+    }
+
+    @Override
+    public String toString() {
+        return "BookingContext{" +
+                "clientId=" + client.getId() +
+                ", from=" + from +
+                ", to=" + to +
+                ", distance=" + route.getDistance() +
+                ", duration=" + route.getDuration() +
+                '}';
+    }
+}
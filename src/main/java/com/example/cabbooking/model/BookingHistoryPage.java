@@ -0,0 +1,55 @@
+package com.example.cabbooking.model;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * one page of a client's bookings, newest first
+ * @param <T> Booking, or BookingSummary when only the summary fields were asked for
+ */
+public class BookingHistoryPage<T> {
+
+    private List<T> bookings = new ArrayList<>();
+    // opaque position after the last booking on this page, null on the last page
+    private String nextCursor;
+
+    //================Constructors====================
+    public BookingHistoryPage() {}
+
+    public BookingHistoryPage(List<T> bookings, String nextCursor) {
+        this.bookings = bookings;
+        this.nextCursor = nextCursor;
+    }
+
+    //===============Getters and Setters================
+    public List<T> getBookings() {return bookings;}
+    public void setBookings(List<T> bookings) {this.bookings = bookings;}
+
+    public String getNextCursor() {return nextCursor;}
+    public void setNextCursor(String nextCursor) {this.nextCursor = nextCursor;}
+
+    public boolean isHasMore() {return nextCursor != null;}
+
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+        BookingHistoryPage<?> that = (BookingHistoryPage<?>) o;
+        return Objects.equals(bookings, that.bookings) && Objects.equals(nextCursor, that.nextCursor);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(bookings, nextCursor);
+    }
+
+    @Override
+    public String toString() {
+        return "BookingHistoryPage{" +
+                "bookings=" + bookings.size() +
+                ", nextCursor='" + nextCursor + '\'' +
+                '}';
+    }
+}
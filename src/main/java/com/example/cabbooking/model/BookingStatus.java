@@ -0,0 +1,56 @@
+package com.example.cabbooking.model;
+
+/**
+ * the steps a booking moves through, from being requested until it is completed or cancelled
+ */
+public enum BookingStatus {
+    REQUESTED,
+    QUOTED,
+    PAID,
+    DISPATCHED,
+    COMPLETED,
+    CANCELLED;
+
+    // cached so the journal can decode ordinals without allocating a new array each time
+    private static final BookingStatus[] VALUES = values();
+
+    /**
+     * method which checks whether a booking in this status is allowed to move to the next status
+     * @param next status the booking would move to
+     * @return true if the transition is allowed, false otherwise
+     */
+    public boolean canTransitionTo(BookingStatus next) {
+        if (next == null) {
+            return false;
+        }
+
+        switch (this) {
+            case REQUESTED:
+                return next == QUOTED || next == PAID || next == CANCELLED;
+            case QUOTED:
+                return next == PAID || next == CANCELLED;
+            case PAID:
+                // a paid booking is normally dispatched first, but can be completed directly when no driver is assigned
+                return next == DISPATCHED || next == COMPLETED || next == CANCELLED;
+            case DISPATCHED:
+                return next == COMPLETED || next == CANCELLED;
+            default:
+                return false;
+        }
+    }
+
+    public boolean isTerminal() {
+        return this == COMPLETED || this == CANCELLED;
+    }
+
+    /**
+     * @param ordinal ordinal written by the journal
+     * @return matching status
+     */
+    public static BookingStatus fromOrdinal(int ordinal) {
+        if (ordinal < 0 || ordinal >= VALUES.length) {
+            throw new IllegalArgumentException("Unknown booking status ordinal: " + ordinal);
+        }
+        return VALUES[ordinal];
+    }
+}
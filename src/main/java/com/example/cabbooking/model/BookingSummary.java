@@ -0,0 +1,75 @@
+package com.example.cabbooking.model;
+
+import java.time.Instant;
+import java.util.Objects;
+
+/**
+ * the few booking fields a ride history list shows, read without the coordinates or route details
+ */
+public class BookingSummary {
+
+    private String id;
+    private Instant createdAt;
+    private String pickupLocation;
+    private String dropoffLocation;
+    private double fare;
+    private BookingStatus status;
+
+    //================Constructors====================
+    public BookingSummary() {}
+
+    public BookingSummary(String id, Instant createdAt, String pickupLocation, String dropoffLocation,
+                          double fare, BookingStatus status) {
+        this.id = id;
+        this.createdAt = createdAt;
+        this.pickupLocation = pickupLocation;
+        this.dropoffLocation = dropoffLocation;
+        this.fare = fare;
+        this.status = status;
+    }
+
+    //===============Getters and Setters================
+    public String getId() {return id;}
+    public void setId(String id) {this.id = id;}
+
+    public Instant getCreatedAt() {return createdAt;}
+    public void setCreatedAt(Instant createdAt) {this.createdAt = createdAt;}
+
+    public String getPickupLocation() {return pickupLocation;}
+    public void setPickupLocation(String pickupLocation) {this.pickupLocation = pickupLocation;}
+
+    public String getDropoffLocation() {return dropoffLocation;}
+    public void setDropoffLocation(String dropoffLocation) {this.dropoffLocation = dropoffLocation;}
+
+    public double getFare() {return fare;}
+    public void setFare(double fare) {this.fare = fare;}
+
+    public BookingStatus getStatus() {return status;}
+    public void setStatus(BookingStatus status) {this.status = status;}
+
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+        BookingSummary that = (BookingSummary) o;
+        return Objects.equals(id, that.id);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hashCode(id);
+    }
+
+    @Override
+    public String toString() {
+        return "BookingSummary{" +
+                "id='" + id + '\'' +
+                ", createdAt=" + createdAt +
+                ", pickupLocation='" + pickupLocation + '\'' +
+                ", dropoffLocation='" + dropoffLocation + '\'' +
+                ", fare=" + fare +
+                ", status=" + status +
+                '}';
+    }
+}
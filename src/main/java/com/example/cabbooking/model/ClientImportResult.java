@@ -0,0 +1,81 @@
+package com.example.cabbooking.model;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * outcome of a bulk client import: how many rows were read and imported, and why the others were not
+ */
+public class ClientImportResult {
+
+    private long rows;
+    private long imported;
+    private long failed;
+    private List<RowError> errors = new ArrayList<>();
+    // true when more rows failed than errors lists
+    private boolean errorsTruncated;
+    private long elapsedMillis;
+
+    /**
+     * a row that was not imported
+     */
+    public static class RowError {
+        // line of the file, the CSV header is line 1
+        private long line;
+        private String message;
+
+        public RowError() {}
+
+        public RowError(long line, String message) {
+            this.line = line;
+            this.message = message;
+        }
+
+        public long getLine() {return line;}
+        public void setLine(long line) {this.line = line;}
+
+        public String getMessage() {return message;}
+        public void setMessage(String message) {this.message = message;}
+
+        @Override
+        public String toString() {
+            return "line " + line + ": " + message;
+        }
+    }
+
+    //================Constructors====================
+    public ClientImportResult() {}
+
+    //===============Getters and Setters================
+    public long getRows() {return rows;}
+    public void setRows(long rows) {this.rows = rows;}
+
+    public long getImported() {return imported;}
+    public void setImported(long imported) {this.imported = imported;}
+
+    public long getFailed() {return failed;}
+    public void setFailed(long failed) {this.failed = failed;}
+
+    public List<RowError> getErrors() {return errors;}
+    public void setErrors(List<RowError> errors) {this.errors = errors;}
+
+    public boolean isErrorsTruncated() {return errorsTruncated;}
+    public void setErrorsTruncated(boolean errorsTruncated) {this.errorsTruncated = errorsTruncated;}
+
+    public long getElapsedMillis() {return elapsedMillis;}
+    public void setElapsedMillis(long elapsedMillis) {this.elapsedMillis = elapsedMillis;}
+
+    public double getRowsPerSecond() {
+        return elapsedMillis == 0 ? rows : rows * 1000.0 / elapsedMillis;
+    }
+
+    @Override
+    public String toString() {
+        return "ClientImportResult{" +
+                "rows=" + rows +
+                ", imported=" + imported +
+                ", failed=" + failed +
+                ", elapsedMillis=" + elapsedMillis +
+                '}';
+    }
+}
@@ -0,0 +1,52 @@
+package com.example.cabbooking.model;
+
+import java.time.Instant;
+
+/**
+ * a change to a client that every node's client cache has to drop, written to client_cache_invalidation
+ */
+public class ClientInvalidation {
+
+    private long id;
+    // node that made the change, it has already invalidated its own cache
+    private String node;
+    private Integer clientId;
+    private String email;
+    private Instant createdAt;
+
+    //================Constructors====================
+    public ClientInvalidation() {}
+
+    public ClientInvalidation(String node, Integer clientId, String email, Instant createdAt) {
+        this.node = node;
+        this.clientId = clientId;
+        this.email = email;
+        this.createdAt = createdAt;
+    }
+
+    //===============Getters and Setters================
+    public long getId() {return id;}
+    public void setId(long id) {this.id = id;}
+
+    public String getNode() {return node;}
+    public void setNode(String node) {this.node = node;}
+
+    public Integer getClientId() {return clientId;}
+    public void setClientId(Integer clientId) {this.clientId = clientId;}
+
+    public String getEmail() {return email;}
+    public void setEmail(String email) {this.email = email;}
+
+    public Instant getCreatedAt() {return createdAt;}
+    public void setCreatedAt(Instant createdAt) {this.createdAt = createdAt;}
+
+    @Override
+    public String toString() {
+        return "ClientInvalidation{" +
+                "id=" + id +
+                ", node='" + node + '\'' +
+                ", clientId=" + clientId +
+                ", email='" + email + '\'' +
+                '}';
+    }
+}
@@ -0,0 +1,54 @@
+package com.example.cabbooking.model;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * one page of clients in id order
+ */
+public class ClientPage {
+
+    private List<Client> clients = new ArrayList<>();
+    // id of the last client on this page to ask for the next page with, null on the last page
+    private Integer nextAfter;
+
+    //================Constructors====================
+    public ClientPage() {}
+
+    public ClientPage(List<Client> clients, Integer nextAfter) {
+        this.clients = clients;
+        this.nextAfter = nextAfter;
+    }
+
+    //===============Getters and Setters================
+    public List<Client> getClients() {return clients;}
+    public void setClients(List<Client> clients) {this.clients = clients;}
+
+    public Integer getNextAfter() {return nextAfter;}
+    public void setNextAfter(Integer nextAfter) {this.nextAfter = nextAfter;}
+
+    public boolean isHasMore() {return nextAfter != null;}
+
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+        ClientPage that = (ClientPage) o;
+        return Objects.equals(clients, that.clients) && Objects.equals(nextAfter, that.nextAfter);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(clients, nextAfter);
+    }
+
+    @Override
+    public String toString() {
+        return "ClientPage{" +
+                "clients=" + clients.size() +
+                ", nextAfter=" + nextAfter +
+                '}';
+    }
+}
@@ -0,0 +1,79 @@
+package com.example.cabbooking.model;
+
+import java.util.Objects;
+
+public class Driver {
+
+    private String id;
+    private String name;
+    private double latitude;
+    private double longitude;
+    private DriverStatus status;
+    private VehicleClass vehicleClass;
+    private String bookingId;
+
+    //================Constructors====================
+    public Driver() {}
+
+    public Driver(String id, String name, double latitude, double longitude,
+                  DriverStatus status, VehicleClass vehicleClass) {
+        this.id = id;
+        this.name = name;
+        this.latitude = latitude;
+        this.longitude = longitude;
+        this.status = status;
+        this.vehicleClass = vehicleClass;
+    }
+
+    //===============Getters and Setters================
+    public String getId() {return id;}
+    public void setId(String id) {this.id = id;}
+
+    public String getName() {return name;}
+    public void setName(String name) {this.name = name;}
+
+    public double getLatitude() {return latitude;}
+    public void setLatitude(double latitude) {this.latitude = latitude;}
+
+    public double getLongitude() {return longitude;}
+    public void setLongitude(double longitude) {this.longitude = longitude;}
+
+    public DriverStatus getStatus() {return status;}
+    public void setStatus(DriverStatus status) {this.status = status;}
+
+    public VehicleClass getVehicleClass() {return vehicleClass;}
+    public void setVehicleClass(VehicleClass vehicleClass) {this.vehicleClass = vehicleClass;}
+
+    /**
+     * @return id of the booking the driver is reserved for or driving, null when there is none
+     */
+    public String getBookingId() {return bookingId;}
+    public void setBookingId(String bookingId) {this.bookingId = bookingId;}
+
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+        Driver driver = (Driver) o;
+        return Objects.equals(id, driver.id);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hashCode(id);
+    }
+
+    @Override
+    public String toString() {
+        return "Driver{" +
+                "id='" + id + '\'' +
+                ", name='" + name + '\'' +
+                ", latitude=" + latitude +
+                ", longitude=" + longitude +
+                ", status=" + status +
+                ", vehicleClass=" + vehicleClass +
+                ", bookingId='" + bookingId + '\'' +
+                '}';
+    }
+}
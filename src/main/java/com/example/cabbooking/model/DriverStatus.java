@@ -0,0 +1,11 @@
+package com.example.cabbooking.model;
+
+/**
+ * availability of a driver in the fleet
+ */
+public enum DriverStatus {
+    OFFLINE,
+    AVAILABLE,
+    RESERVED,
+    ON_TRIP
+}
@@ -0,0 +1,45 @@
+package com.example.cabbooking.model;
+
+public class FareQuote {
+
+    private double amount;
+    private String token;
+    private long expiresAt;
+    private int tariffVersion;
+
+    //===================Constructors==================
+    public FareQuote() {}
+
+    public FareQuote(double amount, String token, long expiresAt, int tariffVersion) {
+        this.amount = amount;
+        this.token = token;
+        this.expiresAt = expiresAt;
+        this.tariffVersion = tariffVersion;
+    }
+
+    //================Getters and Setters================
+    public double getAmount() {return amount;}
+    public void setAmount(double amount) {this.amount = amount;}
+
+    public String getToken() {return token;}
+    public void setToken(String token) {this.token = token;}
+
+    /**
+     * @return expiry time of the quote in epoch seconds
+     */
+    public long getExpiresAt() {return expiresAt;}
+    public void setExpiresAt(long expiresAt) {this.expiresAt = expiresAt;}
+
+    public int getTariffVersion() {return tariffVersion;}
+    public void setTariffVersion(int tariffVersion) {this.tariffVersion = tariffVersion;}
+
+
+    @Override
+    public String toString() {
+        return "FareQuote{" +
+                "amount=" + amount +
+                ", expiresAt=" + expiresAt +
+                ", tariffVersion=" + tariffVersion +
+                '}';
+    }
+}
@@ -0,0 +1,65 @@
+package com.example.cabbooking.model;
+
+import java.util.Objects;
+
+public class GatewayResponse {
+
+    private String transactionId;
+    private boolean approved;
+    private double amount;
+    private String declineReason;
+
+    //===================Constructors==================
+    public GatewayResponse() {}
+
+    public GatewayResponse(String transactionId, boolean approved, double amount, String declineReason) {
+        this.transactionId = transactionId;
+        this.approved = approved;
+        this.amount = amount;
+        this.declineReason = declineReason;
+    }
+
+    //================Getters and Setters================
+
+    /**
+     * @return the gateway's id for the authorization or capture, null when it was declined
+     */
+    public String getTransactionId() {return transactionId;}
+    public void setTransactionId(String transactionId) {this.transactionId = transactionId;}
+
+    public boolean isApproved() {return approved;}
+    public void setApproved(boolean approved) {this.approved = approved;}
+
+    public double getAmount() {return amount;}
+    public void setAmount(double amount) {this.amount = amount;}
+
+    public String getDeclineReason() {return declineReason;}
+    public void setDeclineReason(String declineReason) {this.declineReason = declineReason;}
+
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+        GatewayResponse that = (GatewayResponse) o;
+        return approved == that.approved &&
+                Double.compare(that.amount, amount) == 0 &&
+                Objects.equals(transactionId, that.transactionId) &&
+                Objects.equals(declineReason, that.declineReason);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(transactionId, approved, amount, declineReason);
+    }
+
+    @Override
+    public String toString() {
+        return "GatewayResponse{" +
+                "transactionId='" + transactionId + '\'' +
+                ", approved=" + approved +
+                ", amount=" + amount +
+                ", declineReason='" + declineReason + '\'' +
+                '}';
+    }
+}
@@ -0,0 +1,58 @@
+package com.example.cabbooking.model;
+
+import java.util.Objects;
+
+/**
+ * one leg of a ledger transaction; credits are positive and debits negative, so the postings of a
+ * balanced transaction add up to zero
+ */
+public class LedgerPosting {
+
+    private String account;
+    private long amountCents;
+
+    //===================Constructors==================
+    public LedgerPosting() {}
+
+    public LedgerPosting(String account, long amountCents) {
+        this.account = account;
+        this.amountCents = amountCents;
+    }
+
+    public static LedgerPosting debit(String account, long amountCents) {
+        return new LedgerPosting(account, -amountCents);
+    }
+
+    public static LedgerPosting credit(String account, long amountCents) {
+        return new LedgerPosting(account, amountCents);
+    }
+
+    //================Getters and Setters================
+    public String getAccount() {return account;}
+    public void setAccount(String account) {this.account = account;}
+
+    public long getAmountCents() {return amountCents;}
+    public void setAmountCents(long amountCents) {this.amountCents = amountCents;}
+
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+        LedgerPosting that = (LedgerPosting) o;
+        return amountCents == that.amountCents && Objects.equals(account, that.account);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(account, amountCents);
+    }
+
+    @Override
+    public String toString() {
+        return "LedgerPosting{" +
+                "account='" + account + '\'' +
+                ", amountCents=" + amountCents +
+                '}';
+    }
+}
@@ -0,0 +1,72 @@
+package com.example.cabbooking.model;
+
+import java.util.List;
+import java.util.Objects;
+
+public class LedgerTransaction {
+
+    private long id;
+    private String reference;
+    private long timestamp;
+    private List<LedgerPosting> postings;
+
+    //===================Constructors==================
+    public LedgerTransaction() {}
+
+    public LedgerTransaction(long id, String reference, long timestamp, List<LedgerPosting> postings) {
+        this.id = id;
+        this.reference = reference;
+        this.timestamp = timestamp;
+        this.postings = postings;
+    }
+
+    //================Getters and Setters================
+
+    /**
+     * @return position of the transaction in the ledger, 0 until it has been written
+     */
+    public long getId() {return id;}
+    public void setId(long id) {this.id = id;}
+
+    /**
+     * @return id of the booking or payment the transaction belongs to, may be null
+     */
+    public String getReference() {return reference;}
+    public void setReference(String reference) {this.reference = reference;}
+
+    /**
+     * @return time the transaction was written in epoch milliseconds
+     */
+    public long getTimestamp() {return timestamp;}
+    public void setTimestamp(long timestamp) {this.timestamp = timestamp;}
+
+    public List<LedgerPosting> getPostings() {return postings;}
+    public void setPostings(List<LedgerPosting> postings) {this.postings = postings;}
+
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+        LedgerTransaction that = (LedgerTransaction) o;
+        return id == that.id &&
+                timestamp == that.timestamp &&
+                Objects.equals(reference, that.reference) &&
+                Objects.equals(postings, that.postings);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(id, reference, timestamp, postings);
+    }
+
+    @Override
+    public String toString() {
+        return "LedgerTransaction{" +
+                "id=" + id +
+                ", reference='" + reference + '\'' +
+                ", timestamp=" + timestamp +
+                ", postings=" + postings +
+                '}';
+    }
+}
@@ -0,0 +1,104 @@
+package com.example.cabbooking.model;
+
+import java.time.Instant;
+import java.util.Objects;
+
+/**
+ * notification waiting in the outbox to be delivered
+ */
+public class OutboxMessage {
+
+    private Long id;
+    private String eventId;
+    private String type;
+    private String recipient;
+    private String subject;
+    private String body;
+    private Instant createdAt;
+    private int attempts;
+
+    //===================Constructors==================
+    public OutboxMessage() {}
+
+    public OutboxMessage(String eventId, String type, String recipient, String subject, String body, Instant createdAt) {
+        this.eventId = eventId;
+        this.type = type;
+        this.recipient = recipient;
+        this.subject = subject;
+        this.body = body;
+        this.createdAt = createdAt;
+    }
+
+    //================Getters and Setters================
+
+    /**
+     * @return row id in the outbox, null until the message has been read back from it
+     */
+    public Long getId() {return id;}
+    public void setId(Long id) {this.id = id;}
+
+    /**
+     * @return id of the event the message is about; the outbox keeps one message per event and notifiers use
+     * it to recognise a message they already delivered
+     */
+    public String getEventId() {return eventId;}
+    public void setEventId(String eventId) {this.eventId = eventId;}
+
+    public String getType() {return type;}
+    public void setType(String type) {this.type = type;}
+
+    /**
+     * @return email address the message goes to
+     */
+    public String getRecipient() {return recipient;}
+    public void setRecipient(String recipient) {this.recipient = recipient;}
+
+    public String getSubject() {return subject;}
+    public void setSubject(String subject) {this.subject = subject;}
+
+    public String getBody() {return body;}
+    public void setBody(String body) {this.body = body;}
+
+    public Instant getCreatedAt() {return createdAt;}
+    public void setCreatedAt(Instant createdAt) {this.createdAt = createdAt;}
+
+    /**
+     * @return delivery attempts that have failed so far
+     */
+    public int getAttempts() {return attempts;}
+    public void setAttempts(int attempts) {this.attempts = attempts;}
+
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+        OutboxMessage that = (OutboxMessage) o;
+        return attempts == that.attempts &&
+                Objects.equals(id, that.id) &&
+                Objects.equals(eventId, that.eventId) &&
+                Objects.equals(type, that.type) &&
+                Objects.equals(recipient, that.recipient) &&
+                Objects.equals(subject, that.subject) &&
+                Objects.equals(body, that.body) &&
+                Objects.equals(createdAt, that.createdAt);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(id, eventId, type, recipient, subject, body, createdAt, attempts);
+    }
+
+    @Override
+    public String toString() {
+        return "OutboxMessage{" +
+                "id=" + id +
+                ", eventId='" + eventId + '\'' +
+                ", type='" + type + '\'' +
+                ", recipient='" + recipient + '\'' +
+                ", subject='" + subject + '\'' +
+                ", createdAt=" + createdAt +
+                ", attempts=" + attempts +
+                '}';
+    }
+}
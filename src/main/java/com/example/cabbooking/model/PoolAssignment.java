@@ -0,0 +1,80 @@
+package com.example.cabbooking.model;
+
+public class PoolAssignment {
+
+    private String bookingId;
+    private String rideId;
+    private boolean newRide;
+    private int pickupPosition;
+    private int dropoffPosition;
+    private double addedKm;
+    private double riderKm;
+    private double directKm;
+
+    //===================Constructors==================
+    public PoolAssignment() {}
+
+    public PoolAssignment(String bookingId, String rideId, boolean newRide, int pickupPosition, int dropoffPosition,
+                          double addedKm, double riderKm, double directKm) {
+        this.bookingId = bookingId;
+        this.rideId = rideId;
+        this.newRide = newRide;
+        this.pickupPosition = pickupPosition;
+        this.dropoffPosition = dropoffPosition;
+        this.addedKm = addedKm;
+        this.riderKm = riderKm;
+        this.directKm = directKm;
+    }
+
+    //================Getters and Setters================
+    public String getBookingId() {return bookingId;}
+    public void setBookingId(String bookingId) {this.bookingId = bookingId;}
+
+    public String getRideId() {return rideId;}
+    public void setRideId(String rideId) {this.rideId = rideId;}
+
+    /**
+     * @return true if no open ride could take the booking and a new one was started
+     */
+    public boolean isNewRide() {return newRide;}
+    public void setNewRide(boolean newRide) {this.newRide = newRide;}
+
+    /**
+     * @return index of the pickup in the ride's remaining stops
+     */
+    public int getPickupPosition() {return pickupPosition;}
+    public void setPickupPosition(int pickupPosition) {this.pickupPosition = pickupPosition;}
+
+    public int getDropoffPosition() {return dropoffPosition;}
+    public void setDropoffPosition(int dropoffPosition) {this.dropoffPosition = dropoffPosition;}
+
+    /**
+     * @return kilometers the booking adds to the ride's remaining route
+     */
+    public double getAddedKm() {return addedKm;}
+    public void setAddedKm(double addedKm) {this.addedKm = addedKm;}
+
+    /**
+     * @return kilometers the rider spends in the vehicle, including detours for other riders
+     */
+    public double getRiderKm() {return riderKm;}
+    public void setRiderKm(double riderKm) {this.riderKm = riderKm;}
+
+    public double getDirectKm() {return directKm;}
+    public void setDirectKm(double directKm) {this.directKm = directKm;}
+
+
+    @Override
+    public String toString() {
+        return "PoolAssignment{" +
+                "bookingId='" + bookingId + '\'' +
+                ", rideId='" + rideId + '\'' +
+                ", newRide=" + newRide +
+                ", pickupPosition=" + pickupPosition +
+                ", dropoffPosition=" + dropoffPosition +
+                ", addedKm=" + addedKm +
+                ", riderKm=" + riderKm +
+                ", directKm=" + directKm +
+                '}';
+    }
+}
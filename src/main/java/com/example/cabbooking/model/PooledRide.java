@@ -0,0 +1,77 @@
+package com.example.cabbooking.model;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+
+public class PooledRide {
+
+    private String id;
+    private List<RideStop> stops = new ArrayList<>();
+    private int riders;
+    private boolean started;
+    private double remainingKm;
+    private double completedKm;
+
+    //===================Constructors==================
+    public PooledRide() {}
+
+    public PooledRide(String id, List<RideStop> stops, int riders, boolean started, double remainingKm, double completedKm) {
+        this.id = id;
+        this.stops = stops;
+        this.riders = riders;
+        this.started = started;
+        this.remainingKm = remainingKm;
+        this.completedKm = completedKm;
+    }
+
+    //================Getters and Setters================
+    public String getId() {return id;}
+    public void setId(String id) {this.id = id;}
+
+    /**
+     * @return stops the vehicle still has to make, in order
+     */
+    public List<RideStop> getStops() {return stops;}
+    public void setStops(List<RideStop> stops) {this.stops = stops;}
+
+    /**
+     * @return riders on board or waiting to be picked up
+     */
+    public int getRiders() {return riders;}
+    public void setRiders(int riders) {this.riders = riders;}
+
+    public boolean isStarted() {return started;}
+    public void setStarted(boolean started) {this.started = started;}
+
+    public double getRemainingKm() {return remainingKm;}
+    public void setRemainingKm(double remainingKm) {this.remainingKm = remainingKm;}
+
+    public double getCompletedKm() {return completedKm;}
+    public void setCompletedKm(double completedKm) {this.completedKm = completedKm;}
+
+
+    @Override
+    public boolean equals(Object o) {
+        if (o == null || getClass() != o.getClass()) return false;
+        PooledRide that = (PooledRide) o;
+        return Objects.equals(id, that.id);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hashCode(id);
+    }
+
+    @Override
+    public String toString() {
+        return "PooledRide{" +
+                "id='" + id + '\'' +
+                ", stops=" + stops +
+                ", riders=" + riders +
+                ", started=" + started +
+                ", remainingKm=" + remainingKm +
+                ", completedKm=" + completedKm +
+                '}';
+    }
+}
@@ -0,0 +1,53 @@
+package com.example.cabbooking.model;
+
+import java.util.Objects;
+
+public class RideStop {
+
+    public enum StopType { PICKUP, DROPOFF }
+
+    private String bookingId;
+    private StopType type;
+    private Location location;
+
+    //===================Constructors==================
+    public RideStop() {}
+
+    public RideStop(String bookingId, StopType type, Location location) {
+        this.bookingId = bookingId;
+        this.type = type;
+        this.location = location;
+    }
+
+    //================Getters and Setters================
+    public String getBookingId() {return bookingId;}
+    public void setBookingId(String bookingId) {this.bookingId = bookingId;}
+
+    public StopType getType() {return type;}
+    public void setType(StopType type) {this.type = type;}
+
+    public Location getLocation() {return location;}
+    public void setLocation(Location location) {this.location = location;}
+
+
+    @Override
+    public boolean equals(Object o) {
+        if (o == null || getClass() != o.getClass()) return false;
+        RideStop rideStop = (RideStop) o;
+        return Objects.equals(bookingId, rideStop.bookingId) && type == rideStop.type && Objects.equals(location, rideStop.location);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(bookingId, type, location);
+    }
+
+    @Override
+    public String toString() {
+        return "RideStop{" +
+                "bookingId='" + bookingId + '\'' +
+                ", type=" + type +
+                ", location=" + location +
+                '}';
+    }
+}
@@ -7,6 +7,7 @@ public class Route {
     private Location from;
     private Location to;
     private double distance;
+    private double duration;
 
     //===================Constructors==================
     public Route() {}
@@ -17,6 +18,13 @@ public class Route {
         this.distance = distance;
     }
 
+    public Route(Location from, Location to, double distance, double duration) {
+        this.from = from;
+        this.to = to;
+        this.distance = distance;
+        this.duration = duration;
+    }
+
     //================Getters and Setters================
     public Location getFrom() {return from;}
     public void setFrom(Location from) {this.from = from;}
@@ -27,17 +35,20 @@ public class Route {
     public double getDistance() {return distance;}
     public void setDistance(double distance) {this.distance = distance;}
 
+    public double getDuration() {return duration;}
+    public void setDuration(double duration) {this.duration = duration;}
+
 
     @Override
     public boolean equals(Object o) {
         if (o == null || getClass() != o.getClass()) return false;
         Route route = (Route) o;
-        return Double.compare(distance, route.distance) == 0 && Objects.equals(from, route.from) && Objects.equals(to, route.to);
+        return Double.compare(distance, route.distance) == 0 && Double.compare(duration, route.duration) == 0 && Objects.equals(from, route.from) && Objects.equals(to, route.to);
     }
 
     @Override
     public int hashCode() {
-        return Objects.hash(from, to, distance);
+        return Objects.hash(from, to, distance, duration);
     }
 
     @Override
@@ -46,6 +57,7 @@ public class Route {
                 "from=" + from +
                 ", to=" + to +
                 ", distance=" + distance +
+                ", duration=" + duration +
                 '}';
     }
 }
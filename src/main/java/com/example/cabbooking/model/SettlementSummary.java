@@ -0,0 +1,124 @@
+package com.example.cabbooking.model;
+
+import java.util.Objects;
+
+/**
+ * totals of one day's settlement; amounts are in cents
+ */
+public class SettlementSummary {
+
+    private String day;
+    private long rides;
+    private int drivers;
+    private long grossCents;
+    private long commissionCents;
+    private long payoutCents;
+    private long ledgerChargedCents;
+    private long ledgerDriversPayableCents;
+    private String payoutFile;
+    private long elapsedMillis;
+
+    //===================Constructors==================
+    public SettlementSummary() {}
+
+    public SettlementSummary(String day, long rides, int drivers, long grossCents, long commissionCents, long payoutCents,
+                             long ledgerChargedCents, long ledgerDriversPayableCents, String payoutFile, long elapsedMillis) {
+        this.day = day;
+        this.rides = rides;
+        this.drivers = drivers;
+        this.grossCents = grossCents;
+        this.commissionCents = commissionCents;
+        this.payoutCents = payoutCents;
+        this.ledgerChargedCents = ledgerChargedCents;
+        this.ledgerDriversPayableCents = ledgerDriversPayableCents;
+        this.payoutFile = payoutFile;
+        this.elapsedMillis = elapsedMillis;
+    }
+
+    //================Getters and Setters================
+
+    /**
+     * @return settled day as yyyy-MM-dd
+     */
+    public String getDay() {return day;}
+    public void setDay(String day) {this.day = day;}
+
+    public long getRides() {return rides;}
+    public void setRides(long rides) {this.rides = rides;}
+
+    public int getDrivers() {return drivers;}
+    public void setDrivers(int drivers) {this.drivers = drivers;}
+
+    /**
+     * @return fares of the day's completed rides
+     */
+    public long getGrossCents() {return grossCents;}
+    public void setGrossCents(long grossCents) {this.grossCents = grossCents;}
+
+    public long getCommissionCents() {return commissionCents;}
+    public void setCommissionCents(long commissionCents) {this.commissionCents = commissionCents;}
+
+    /**
+     * @return gross fares less commission, owed to drivers
+     */
+    public long getPayoutCents() {return payoutCents;}
+    public void setPayoutCents(long payoutCents) {this.payoutCents = payoutCents;}
+
+    /**
+     * @return amount the ledger shows was charged to riders during the day
+     */
+    public long getLedgerChargedCents() {return ledgerChargedCents;}
+    public void setLedgerChargedCents(long ledgerChargedCents) {this.ledgerChargedCents = ledgerChargedCents;}
+
+    /**
+     * @return amount the ledger shows was credited to drivers:payable during the day
+     */
+    public long getLedgerDriversPayableCents() {return ledgerDriversPayableCents;}
+    public void setLedgerDriversPayableCents(long ledgerDriversPayableCents) {this.ledgerDriversPayableCents = ledgerDriversPayableCents;}
+
+    public String getPayoutFile() {return payoutFile;}
+    public void setPayoutFile(String payoutFile) {this.payoutFile = payoutFile;}
+
+    public long getElapsedMillis() {return elapsedMillis;}
+    public void setElapsedMillis(long elapsedMillis) {this.elapsedMillis = elapsedMillis;}
+
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+        SettlementSummary that = (SettlementSummary) o;
+        return rides == that.rides &&
+                drivers == that.drivers &&
+                grossCents == that.grossCents &&
+                commissionCents == that.commissionCents &&
+                payoutCents == that.payoutCents &&
+                ledgerChargedCents == that.ledgerChargedCents &&
+                ledgerDriversPayableCents == that.ledgerDriversPayableCents &&
+                elapsedMillis == that.elapsedMillis &&
+                Objects.equals(day, that.day) &&
+                Objects.equals(payoutFile, that.payoutFile);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(day, rides, drivers, grossCents, commissionCents, payoutCents,
+                ledgerChargedCents, ledgerDriversPayableCents, payoutFile, elapsedMillis);
+    }
+
+    @Override
+    public String toString() {
+        return "SettlementSummary{" +
+                "day='" + day + '\'' +
+                ", rides=" + rides +
+                ", drivers=" + drivers +
+                ", grossCents=" + grossCents +
+                ", commissionCents=" + commissionCents +
+                ", payoutCents=" + payoutCents +
+                ", ledgerChargedCents=" + ledgerChargedCents +
+                ", ledgerDriversPayableCents=" + ledgerDriversPayableCents +
+                ", payoutFile='" + payoutFile + '\'' +
+                ", elapsedMillis=" + elapsedMillis +
+                '}';
+    }
+}
@@ -0,0 +1,11 @@
+package com.example.cabbooking.model;
+
+/**
+ * kind of vehicle a driver operates
+ */
+public enum VehicleClass {
+    STANDARD,
+    XL,
+    PREMIUM,
+    ACCESSIBLE
+}
@@ -0,0 +1,444 @@
+package com.example.cabbooking.repository;
+
+import com.example.cabbooking.model.BookingStatus;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Repository;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.*;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.stream.Stream;
+import java.util.zip.CRC32;
+
+/**
+ * append-only journal of booking status transitions
+ * transitions are written as fixed-size records into memory-mapped segment files, and the current
+ * status of every booking is written to a snapshot file now and then so a restart only replays
+ * the records written since the last snapshot
+ */
+@Repository
+public class BookingJournal {
+
+    // record layout: sequence (8), timestamp (8), booking id (16), from status (1), to status (1), padding (6), crc32 (4), padding (4)
+    static final int RECORD_SIZE = 48;
+    private static final int CHECKSUMMED_BYTES = 40;
+    private static final byte NO_STATUS = -1;
+
+    // snapshot layout: magic (4), sequence (8), entry count (4), entries of booking id (16) + status (1), crc32 (4)
+    private static final int SNAPSHOT_MAGIC = 0x424B534E;
+    private static final int SNAPSHOT_ENTRY_SIZE = 17;
+
+    private static final String SEGMENT_PREFIX = "segment-";
+    private static final String SEGMENT_SUFFIX = ".journal";
+    private static final String SNAPSHOT_PREFIX = "snapshot-";
+    private static final String SNAPSHOT_SUFFIX = ".snap";
+    private static final String LOCK_FILE = "booking-journal.lock";
+
+    private final Path directory;
+    private final int recordsPerSegment;
+    private final boolean forceOnAppend;
+    private final Map<String, BookingStatus> recoveredState;
+    private final DirectoryLock directoryLock;
+
+    // everything below is guarded by the lock, so only one thread writes to the active segment at a time
+    private final ReentrantLock lock = new ReentrantLock();
+    private final CRC32 crc = new CRC32();
+    private final List<Long> segmentStarts = new ArrayList<>();
+    private FileChannel activeChannel;
+    private MappedByteBuffer activeSegment;
+    private int activeCapacity;
+    private int activeRecords;
+    private long lastSequence;
+    private long snapshotSequence;
+
+    public static class JournalException extends RuntimeException {
+        public JournalException(String message) {
+            super(message);
+        }
+    }
+
+    @Autowired
+    public BookingJournal(@Value("${booking.journal.directory:data/booking-journal}") String directory,
+                          @Value("${booking.journal.segment-records:65536}") int recordsPerSegment,
+                          @Value("${booking.journal.fsync:false}") boolean forceOnAppend) {
+        if (recordsPerSegment <= 0) {
+            throw new IllegalArgumentException("Journal segment size must be positive: " + recordsPerSegment);
+        }
+
+        this.directory = Paths.get(directory);
+        this.recordsPerSegment = recordsPerSegment;
+        this.forceOnAppend = forceOnAppend;
+
+        try {
+            Files.createDirectories(this.directory);
+            this.directoryLock = DirectoryLock.tryAcquire(this.directory, LOCK_FILE);
+        } catch (IOException e) {
+            throw new JournalException("Booking journal could not be opened in " + directory + ": " + e.getMessage());
+        }
+        if (directoryLock == null) {
+            throw new JournalException("Booking journal in " + directory + " is already open in another process");
+        }
+
+        try {
+            Map<String, BookingStatus> state = loadLatestSnapshot();
+            lastSequence = snapshotSequence;
+
+            List<Path> segments = listFiles(SEGMENT_PREFIX, SEGMENT_SUFFIX);
+            for (int i = 0; i < segments.size(); i++) {
+                replaySegment(segments.get(i), i == segments.size() - 1, state);
+            }
+
+            this.recoveredState = state;
+        } catch (IOException e) {
+            directoryLock.release();
+            throw new JournalException("Booking journal could not be opened in " + directory + ": " + e.getMessage());
+        } catch (RuntimeException e) {
+            directoryLock.release();
+            throw e;
+        }
+
+        System.out.println("✓ Booking journal recovered " + recoveredState.size() + " bookings up to sequence " + lastSequence +
+                " (" + (lastSequence - snapshotSequence) + " records replayed after snapshot " + snapshotSequence + ")");
+    }
+
+    /**
+     * appends a status transition to the journal
+     * @param bookingId id of the booking, must be a UUID
+     * @param from status the booking is leaving, null when the booking is first registered
+     * @param to status the booking is moving to
+     * @return sequence number of the record
+     */
+    public long append(String bookingId, BookingStatus from, BookingStatus to) {
+        if (to == null) {
+            throw new JournalException("Journal record must have a target status");
+        }
+        UUID id = parseBookingId(bookingId);
+
+        lock.lock();
+        try {
+            if (activeSegment == null || activeRecords == activeCapacity) {
+                rollSegment();
+            }
+
+            long sequence = lastSequence + 1;
+            int offset = activeRecords * RECORD_SIZE;
+            activeSegment.putLong(offset, sequence);
+            activeSegment.putLong(offset + 8, System.currentTimeMillis());
+            activeSegment.putLong(offset + 16, id.getMostSignificantBits());
+            activeSegment.putLong(offset + 24, id.getLeastSignificantBits());
+            activeSegment.put(offset + 32, from == null ? NO_STATUS : (byte) from.ordinal());
+            activeSegment.put(offset + 33, (byte) to.ordinal());
+            activeSegment.putInt(offset + CHECKSUMMED_BYTES, checksum(activeSegment, offset));
+
+            if (forceOnAppend) {
+                activeSegment.force(offset, RECORD_SIZE);
+            }
+
+            activeRecords++;
+            lastSequence = sequence;
+            return sequence;
+        } catch (IOException e) {
+            throw new JournalException("Could not append to booking journal: " + e.getMessage());
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * writes the status of every booking to a snapshot file, then removes the segments
+     * and older snapshots it replaces
+     * @param sequence last journal sequence the state includes
+     * @param state status of every booking with every transition up to the sequence applied
+     */
+    public void snapshot(long sequence, Map<String, BookingStatus> state) {
+        lock.lock();
+        try {
+            if (sequence <= snapshotSequence || sequence > lastSequence) {
+                return;
+            }
+        } finally {
+            lock.unlock();
+        }
+
+        List<Map.Entry<String, BookingStatus>> entries = new ArrayList<>(state.entrySet());
+        ByteBuffer buffer = ByteBuffer.allocate(16 + entries.size() * SNAPSHOT_ENTRY_SIZE + 4);
+        buffer.putInt(SNAPSHOT_MAGIC).putLong(sequence).putInt(entries.size());
+        for (Map.Entry<String, BookingStatus> entry : entries) {
+            UUID id = parseBookingId(entry.getKey());
+            buffer.putLong(id.getMostSignificantBits())
+                    .putLong(id.getLeastSignificantBits())
+                    .put((byte) entry.getValue().ordinal());
+        }
+        CRC32 snapshotCrc = new CRC32();
+        snapshotCrc.update(buffer.array(), 0, buffer.position());
+        buffer.putInt((int) snapshotCrc.getValue());
+        buffer.flip();
+
+        Path target = directory.resolve(fileName(SNAPSHOT_PREFIX, sequence, SNAPSHOT_SUFFIX));
+        Path temp = directory.resolve(target.getFileName() + ".tmp");
+        try {
+            try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                    StandardOpenOption.TRUNCATE_EXISTING)) {
+                while (buffer.hasRemaining()) {
+                    channel.write(buffer);
+                }
+                channel.force(true);
+            }
+            Files.move(temp, target, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        } catch (IOException e) {
+            throw new JournalException("Could not write booking snapshot: " + e.getMessage());
+        }
+
+        lock.lock();
+        try {
+            snapshotSequence = Math.max(snapshotSequence, sequence);
+            deleteReplacedFiles();
+        } finally {
+            lock.unlock();
+        }
+
+        System.out.println("✓ Booking journal snapshot written at sequence " + sequence + " (" + entries.size() + " bookings)");
+    }
+
+    /**
+     * flushes the active segment to disk and releases the directory for another process
+     */
+    @PreDestroy
+    public void close() {
+        lock.lock();
+        try {
+            if (activeSegment != null) {
+                activeSegment.force();
+                activeChannel.close();
+                activeSegment = null;
+                activeChannel = null;
+            }
+        } catch (IOException e) {
+            System.out.println("✗ Booking journal could not be closed cleanly: " + e.getMessage());
+        } finally {
+            directoryLock.release();
+            lock.unlock();
+        }
+    }
+
+    //================Getters================
+
+    /**
+     * @return status of every booking as rebuilt from the snapshot and journal when the journal was opened
+     */
+    public Map<String, BookingStatus> getRecoveredState() {
+        return new HashMap<>(recoveredState);
+    }
+
+    public long getLastSequence() {
+        lock.lock();
+        try {
+            return lastSequence;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public long getSnapshotSequence() {
+        lock.lock();
+        try {
+            return snapshotSequence;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public long getRecordsSinceSnapshot() {
+        lock.lock();
+        try {
+            return lastSequence - snapshotSequence;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public int getSegmentCount() {
+        lock.lock();
+        try {
+            return segmentStarts.size();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    //================Recovery================
+
+    /**
+     * helper method which loads the newest snapshot that passes its checksum
+     * @return status of every booking in the snapshot, empty when there is none
+     */
+    private Map<String, BookingStatus> loadLatestSnapshot() throws IOException {
+        List<Path> snapshots = listFiles(SNAPSHOT_PREFIX, SNAPSHOT_SUFFIX);
+        Collections.reverse(snapshots);
+
+        for (Path snapshot : snapshots) {
+            ByteBuffer buffer = ByteBuffer.wrap(Files.readAllBytes(snapshot));
+            if (buffer.remaining() < 20 || buffer.getInt(0) != SNAPSHOT_MAGIC) {
+                System.out.println("✗ Ignoring unreadable booking snapshot " + snapshot.getFileName());
+                continue;
+            }
+
+            int count = buffer.getInt(12);
+            int length = 16 + count * SNAPSHOT_ENTRY_SIZE;
+            CRC32 snapshotCrc = new CRC32();
+            if (count < 0 || buffer.remaining() != length + 4) {
+                System.out.println("✗ Ignoring truncated booking snapshot " + snapshot.getFileName());
+                continue;
+            }
+            snapshotCrc.update(buffer.array(), 0, length);
+            if ((int) snapshotCrc.getValue() != buffer.getInt(length)) {
+                System.out.println("✗ Ignoring corrupt booking snapshot " + snapshot.getFileName());
+                continue;
+            }
+
+            Map<String, BookingStatus> state = new HashMap<>(count * 2);
+            buffer.position(16);
+            for (int i = 0; i < count; i++) {
+                UUID id = new UUID(buffer.getLong(), buffer.getLong());
+                state.put(id.toString(), BookingStatus.fromOrdinal(buffer.get()));
+            }
+            snapshotSequence = buffer.getLong(4);
+            return state;
+        }
+        return new HashMap<>();
+    }
+
+    /**
+     * helper method which replays the records of one segment on top of the snapshot
+     * @param segment segment file to read
+     * @param last true for the newest segment, which stays open for appending
+     * @param state booking statuses being rebuilt
+     */
+    private void replaySegment(Path segment, boolean last, Map<String, BookingStatus> state) throws IOException {
+        FileChannel channel = FileChannel.open(segment, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        int capacity = (int) (channel.size() / RECORD_SIZE);
+        MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, (long) capacity * RECORD_SIZE);
+
+        int records = 0;
+        while (records < capacity) {
+            int offset = records * RECORD_SIZE;
+            long sequence = buffer.getLong(offset);
+            if (sequence == 0) {
+                break;
+            }
+
+            // a record cut short by a crash fails its checksum; everything from there on is ignored and overwritten
+            if (buffer.getInt(offset + CHECKSUMMED_BYTES) != checksum(buffer, offset) || sequence <= lastSequence && sequence > snapshotSequence) {
+                System.out.println("✗ Booking journal " + segment.getFileName() + " ends with an unreadable record at " + records);
+                break;
+            }
+
+            if (sequence > snapshotSequence) {
+                UUID id = new UUID(buffer.getLong(offset + 16), buffer.getLong(offset + 24));
+                state.put(id.toString(), BookingStatus.fromOrdinal(buffer.get(offset + 33)));
+            }
+            lastSequence = Math.max(lastSequence, sequence);
+            records++;
+        }
+
+        segmentStarts.add(parseSequence(segment, SEGMENT_PREFIX, SEGMENT_SUFFIX));
+
+        if (last) {
+            activeChannel = channel;
+            activeSegment = buffer;
+            activeCapacity = capacity;
+            activeRecords = records;
+        } else {
+            channel.close();
+        }
+    }
+
+    //================Helpers================
+
+    /**
+     * helper method which closes the full segment and maps a new one, must be called while holding the lock
+     */
+    private void rollSegment() throws IOException {
+        if (activeSegment != null) {
+            activeSegment.force();
+            activeChannel.close();
+        }
+
+        long firstSequence = lastSequence + 1;
+        Path segment = directory.resolve(fileName(SEGMENT_PREFIX, firstSequence, SEGMENT_SUFFIX));
+        activeChannel = FileChannel.open(segment, StandardOpenOption.CREATE_NEW, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        // mapping past the end grows the file to its full size up front, already zero-filled
+        activeSegment = activeChannel.map(FileChannel.MapMode.READ_WRITE, 0, (long) recordsPerSegment * RECORD_SIZE);
+        activeCapacity = recordsPerSegment;
+        activeRecords = 0;
+        segmentStarts.add(firstSequence);
+    }
+
+    /**
+     * helper method which deletes segments whose records are all covered by the latest snapshot,
+     * along with older snapshots, must be called while holding the lock
+     */
+    private void deleteReplacedFiles() {
+        try {
+            // a segment is covered when the next one starts at or before the first record after the snapshot
+            while (segmentStarts.size() > 1 && segmentStarts.get(1) <= snapshotSequence + 1) {
+                Files.deleteIfExists(directory.resolve(fileName(SEGMENT_PREFIX, segmentStarts.remove(0), SEGMENT_SUFFIX)));
+            }
+
+            for (Path snapshot : listFiles(SNAPSHOT_PREFIX, SNAPSHOT_SUFFIX)) {
+                if (parseSequence(snapshot, SNAPSHOT_PREFIX, SNAPSHOT_SUFFIX) < snapshotSequence) {
+                    Files.deleteIfExists(snapshot);
+                }
+            }
+        } catch (IOException e) {
+            System.out.println("✗ Could not remove old booking journal files: " + e.getMessage());
+        }
+    }
+
+    private int checksum(ByteBuffer buffer, int offset) {
+        ByteBuffer record = buffer.duplicate();
+        record.position(offset).limit(offset + CHECKSUMMED_BYTES);
+        crc.reset();
+        crc.update(record);
+        return (int) crc.getValue();
+    }
+
+    private List<Path> listFiles(String prefix, String suffix) throws IOException {
+        try (Stream<Path> files = Files.list(directory)) {
+            List<Path> matches = new ArrayList<>();
+            files.filter(path -> path.getFileName().toString().startsWith(prefix)
+                            && path.getFileName().toString().endsWith(suffix))
+                    .forEach(matches::add);
+            // sequence numbers are zero-padded, so name order is sequence order
+            matches.sort(Comparator.comparing(path -> path.getFileName().toString()));
+            return matches;
+        }
+    }
+
+    private static long parseSequence(Path file, String prefix, String suffix) {
+        String name = file.getFileName().toString();
+        return Long.parseLong(name.substring(prefix.length(), name.length() - suffix.length()));
+    }
+
+    private static String fileName(String prefix, long sequence, String suffix) {
+        return prefix + String.format("%020d", sequence) + suffix;
+    }
+
+    private static UUID parseBookingId(String bookingId) {
+        try {
+            return UUID.fromString(bookingId);
+        } catch (IllegalArgumentException | NullPointerException e) {
+            throw new JournalException("Booking id must be a UUID: " + bookingId);
+        }
+    }
+}
@@ -0,0 +1,366 @@
+package com.example.cabbooking.repository;
+
+import com.example.cabbooking.model.Booking;
+import com.example.cabbooking.model.BookingStatus;
+import com.example.cabbooking.model.BookingSummary;
+import com.example.cabbooking.model.Location;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.jdbc.core.BatchPreparedStatementSetter;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.stereotype.Repository;
+
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.util.*;
+
+@Repository
+public class BookingRepository {
+
+    private static final String INSERT_BOOKING =
+            "INSERT INTO bookings (id, client_id, pickup_location, pickup_latitude, pickup_longitude, " +
+            "dropoff_location, dropoff_latitude, dropoff_longitude, distance_km, duration_minutes, fare, status, created_at, driver_id) " +
+            "VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?)";
+
+    private static final String SELECT_BOOKING =
+            "SELECT id, client_id, pickup_location, pickup_latitude, pickup_longitude, " +
+            "dropoff_location, dropoff_latitude, dropoff_longitude, distance_km, duration_minutes, fare, status, created_at, driver_id " +
+            "FROM bookings";
+
+    private static final String SELECT_BOOKING_SUMMARY =
+            "SELECT id, created_at, pickup_location, dropoff_location, fare, status FROM bookings";
+
+    // newest first; the seek condition picks up right after the last row of the previous page
+    private static final String CLIENT_PAGE_FIRST =
+            " WHERE client_id = ? ORDER BY created_at DESC, id DESC LIMIT ?";
+    private static final String CLIENT_PAGE_AFTER =
+            " WHERE client_id = ? AND (created_at < ? OR (created_at = ? AND id < ?)) ORDER BY created_at DESC, id DESC LIMIT ?";
+
+    // completed rides of one time slice for settlement, served by the (status, created_at) index
+    private static final String SELECT_SETTLEMENT_ROWS =
+            "SELECT driver_id, pickup_latitude, pickup_longitude, ROUND(fare * 100) AS fare_cents FROM bookings " +
+            "WHERE status = 'COMPLETED' AND driver_id IS NOT NULL AND created_at >= ? AND created_at < ?";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final JdbcTemplate streamingJdbcTemplate;
+
+    /**
+     * receives the rows of a settlement query one at a time
+     */
+    public interface SettlementRowHandler {
+        void onRow(String driverId, double pickupLatitude, double pickupLongitude, long fareCents);
+    }
+
+    /**
+     * @param jdbcTemplate queries that give their connection back straight away
+     * @param streamingJdbcTemplate streamCompletedRides, which holds its connection until the last row, on the streaming pool
+     */
+    public BookingRepository(JdbcTemplate jdbcTemplate, @Qualifier("streamingJdbcTemplate") JdbcTemplate streamingJdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.streamingJdbcTemplate = streamingJdbcTemplate;
+    }
+
+    private static class BookingRowMapper implements RowMapper<Booking> {
+        @Override
+        public Booking mapRow(ResultSet rs, int rowNum) throws SQLException {
+            Booking booking = new Booking();
+            booking.setId(rs.getString("id"));
+            booking.setClientId(rs.getInt("client_id"));
+            booking.setFrom(new Location(rs.getString("pickup_location"),
+                    rs.getDouble("pickup_latitude"), rs.getDouble("pickup_longitude")));
+            booking.setTo(new Location(rs.getString("dropoff_location"),
+                    rs.getDouble("dropoff_latitude"), rs.getDouble("dropoff_longitude")));
+            booking.setDistance(rs.getDouble("distance_km"));
+            booking.setDuration(rs.getDouble("duration_minutes"));
+            booking.setFare(rs.getDouble("fare"));
+            booking.setStatus(BookingStatus.valueOf(rs.getString("status")));
+            booking.setCreatedAt(rs.getTimestamp("created_at").toInstant());
+            booking.setDriverId(rs.getString("driver_id"));
+            return booking;
+        }
+    }
+
+    private static class BookingSummaryRowMapper implements RowMapper<BookingSummary> {
+        @Override
+        public BookingSummary mapRow(ResultSet rs, int rowNum) throws SQLException {
+            return new BookingSummary(rs.getString("id"), rs.getTimestamp("created_at").toInstant(),
+                    rs.getString("pickup_location"), rs.getString("dropoff_location"),
+                    rs.getDouble("fare"), BookingStatus.valueOf(rs.getString("status")));
+        }
+    }
+
+    /**
+     * method that runs a SQL query to insert a single booking
+     * @param booking Booking to be added to the database
+     * @return true if the booking was inserted, false otherwise
+     */
+    public boolean save(Booking booking) {
+        if (!isValid(booking)) {
+            return false;
+        }
+
+        try {
+            int rowsAffected = jdbcTemplate.update(INSERT_BOOKING, toRow(booking));
+
+            if (rowsAffected > 0) {
+                System.out.println("✓ Repository: Booking " + booking.getId() + " saved");
+                return true;
+            } else {
+                System.out.println("✗ Repository: Failed to save booking " + booking.getId());
+                return false;
+            }
+        } catch (Exception e) {
+            System.out.println("✗ Repository: Error saving booking " + booking.getId() + ": " + e.getMessage());
+            return false;
+        }
+    }
+
+    /**
+     * method that inserts many bookings as one JDBC batch, so a group of bookings costs one round trip
+     * @param bookings list of bookings to be added to the database
+     * @return true if every booking in the batch was inserted, false otherwise
+     */
+    public boolean saveAll(List<Booking> bookings) {
+        if (bookings == null || bookings.isEmpty()) {
+            return true;
+        }
+
+        for (Booking booking : bookings) {
+            if (!isValid(booking)) {
+                return false;
+            }
+        }
+
+        try {
+            int[] rowsAffected = jdbcTemplate.batchUpdate(INSERT_BOOKING, new BatchPreparedStatementSetter() {
+                @Override
+                public void setValues(PreparedStatement ps, int i) throws SQLException {
+                    Object[] row = toRow(bookings.get(i));
+                    for (int column = 0; column < row.length; column++) {
+                        ps.setObject(column + 1, row[column]);
+                    }
+                }
+
+                @Override
+                public int getBatchSize() {
+                    return bookings.size();
+                }
+            });
+
+            // drivers may report SUCCESS_NO_INFO (-2) for rewritten batches, which still counts as inserted
+            for (int rows : rowsAffected) {
+                if (rows == 0) {
+                    System.out.println("✗ Repository: Batch of " + bookings.size() + " bookings was only partly saved");
+                    return false;
+                }
+            }
+            System.out.println("✓ Repository: Saved batch of " + bookings.size() + " bookings");
+            return true;
+        } catch (Exception e) {
+            System.out.println("✗ Repository: Error saving batch of " + bookings.size() + " bookings: " + e.getMessage());
+            return false;
+        }
+    }
+
+    /**
+     * method that runs a SQL query to record the driver assigned to a booking after it was saved
+     * @param bookingId id of the booking
+     * @param driverId id of the assigned driver
+     * @return true if the booking was updated, false otherwise
+     */
+    public boolean updateDriver(String bookingId, String driverId) {
+        if (bookingId == null || bookingId.isBlank()) {
+            System.out.println("✗ Repository: Error: Invalid booking ID: " + bookingId);
+            return false;
+        }
+
+        try {
+            int rowsAffected = jdbcTemplate.update("UPDATE bookings SET driver_id = ? WHERE id = ?", driverId, bookingId);
+
+            if (rowsAffected > 0) {
+                return true;
+            } else {
+                System.out.println("✗ Repository: Booking with ID " + bookingId + " not found");
+                return false;
+            }
+        } catch (Exception e) {
+            System.out.println("✗ Repository: Error updating driver for booking " + bookingId + ": " + e.getMessage());
+            return false;
+        }
+    }
+
+    /**
+     * method that writes the latest status of some bookings as one JDBC batch, so the table follows
+     * the lifecycle for settlement and booking history
+     * @param statuses new status of each booking, by booking id
+     * @return true if every booking was updated, false if one was not found or there was an error
+     */
+    public boolean updateStatuses(Map<String, BookingStatus> statuses) {
+        if (statuses == null || statuses.isEmpty()) {
+            return true;
+        }
+
+        List<Map.Entry<String, BookingStatus>> updates = new ArrayList<>(statuses.entrySet());
+        try {
+            int[] rowsAffected = jdbcTemplate.batchUpdate("UPDATE bookings SET status = ? WHERE id = ?",
+                    new BatchPreparedStatementSetter() {
+                        @Override
+                        public void setValues(PreparedStatement ps, int i) throws SQLException {
+                            ps.setString(1, updates.get(i).getValue().name());
+                            ps.setString(2, updates.get(i).getKey());
+                        }
+
+                        @Override
+                        public int getBatchSize() {
+                            return updates.size();
+                        }
+                    });
+
+            for (int i = 0; i < rowsAffected.length; i++) {
+                if (rowsAffected[i] == 0) {
+                    System.out.println("✗ Repository: Booking with ID " + updates.get(i).getKey() + " not found");
+                    return false;
+                }
+            }
+            return true;
+        } catch (Exception e) {
+            System.out.println("✗ Repository: Error updating status of " + updates.size() + " bookings: " + e.getMessage());
+            return false;
+        }
+    }
+
+    /**
+     * method to run a SQL query which finds a booking by its id
+     * @param id Booking id to find by
+     * @return Optional of a Booking object if it was found
+     */
+    public Optional<Booking> findById(String id) {
+        if (id == null || id.isBlank()) {
+            System.out.println("✗ Repository: Error: Invalid booking ID: " + id);
+            return Optional.empty();
+        }
+
+        try {
+            List<Booking> bookings = jdbcTemplate.query(SELECT_BOOKING + " WHERE id = ?", new BookingRowMapper(), id);
+
+            if (bookings.isEmpty()) {
+                System.out.println("✗ Repository: Booking with ID " + id + " not found");
+                return Optional.empty();
+            } else {
+                return Optional.of(bookings.get(0));
+            }
+        } catch (Exception e) {
+            System.out.println("✗ Repository: Error finding booking with ID: " + id + ": " + e.getMessage());
+            return Optional.empty();
+        }
+    }
+
+    /**
+     * method that runs a SQL query for one page of a client's bookings, newest first.
+     * The page starts right after the last booking of the previous page instead of skipping rows with OFFSET,
+     * so with the (client_id, created_at, id) index every page costs the same however far back it is
+     * @param clientId id of the client
+     * @param afterCreatedAt created_at of the last booking on the previous page, null for the first page
+     * @param afterId id of the last booking on the previous page
+     * @param limit most bookings to return
+     * @return the bookings, empty if there are none or the query failed
+     */
+    public List<Booking> findPageByClient(int clientId, Instant afterCreatedAt, String afterId, int limit) {
+        return queryClientPage(SELECT_BOOKING, new BookingRowMapper(), clientId, afterCreatedAt, afterId, limit);
+    }
+
+    /**
+     * same page as findPageByClient, reading only the summary columns
+     * @param clientId id of the client
+     * @param afterCreatedAt created_at of the last booking on the previous page, null for the first page
+     * @param afterId id of the last booking on the previous page
+     * @param limit most bookings to return
+     * @return the booking summaries, empty if there are none or the query failed
+     */
+    public List<BookingSummary> findSummaryPageByClient(int clientId, Instant afterCreatedAt, String afterId, int limit) {
+        return queryClientPage(SELECT_BOOKING_SUMMARY, new BookingSummaryRowMapper(), clientId, afterCreatedAt, afterId, limit);
+    }
+
+    /**
+     * method that streams the completed, driver-assigned rides created in a time range to a handler.
+     * Nothing is collected: with a fetch size of Integer.MIN_VALUE the MySQL driver hands over one row at a time
+     * instead of buffering the whole result, so memory stays flat however many rides the range holds
+     * @param from start of the range, inclusive
+     * @param to end of the range, exclusive
+     * @param handler receives each ride
+     * @return true if every row was read, false if the query failed
+     */
+    public boolean streamCompletedRides(Instant from, Instant to, SettlementRowHandler handler) {
+        try {
+            streamingJdbcTemplate.query(con -> {
+                PreparedStatement ps = con.prepareStatement(SELECT_SETTLEMENT_ROWS, ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+                ps.setFetchSize(Integer.MIN_VALUE);
+                ps.setTimestamp(1, Timestamp.from(from));
+                ps.setTimestamp(2, Timestamp.from(to));
+                return ps;
+            }, (RowCallbackHandler) rs -> handler.onRow(rs.getString(1), rs.getDouble(2), rs.getDouble(3), rs.getLong(4)));
+            return true;
+        } catch (Exception e) {
+            System.out.println("✗ Repository: Error streaming completed rides from " + from + " to " + to + ": " + e.getMessage());
+            return false;
+        }
+    }
+
+    /**
+     * helper method which runs a client page query, mapping each row as the driver hands it over
+     * rather than collecting the result set first
+     */
+    private <T> List<T> queryClientPage(String select, RowMapper<T> rowMapper, int clientId,
+                                        Instant afterCreatedAt, String afterId, int limit) {
+        List<T> page = new ArrayList<>(Math.max(0, Math.min(limit, 1000)));
+        if (limit <= 0) {
+            return page;
+        }
+
+        RowCallbackHandler handler = rs -> page.add(rowMapper.mapRow(rs, page.size()));
+        try {
+            if (afterCreatedAt == null || afterId == null) {
+                jdbcTemplate.query(select + CLIENT_PAGE_FIRST, handler, clientId, limit);
+            } else {
+                Timestamp after = Timestamp.from(afterCreatedAt);
+                jdbcTemplate.query(select + CLIENT_PAGE_AFTER, handler, clientId, after, after, afterId, limit);
+            }
+            return page;
+        } catch (Exception e) {
+            System.out.println("✗ Repository: Error finding bookings for client " + clientId + ": " + e.getMessage());
+            return new ArrayList<>();
+        }
+    }
+
+    /**
+     * helper method which checks a booking has everything the table requires
+     * @param booking Booking to be checked
+     * @return true if the booking can be inserted
+     */
+    private boolean isValid(Booking booking) {
+        if (booking == null) {
+            System.out.println("✗ Repository: Error: Cannot save null booking");
+            return false;
+        }
+
+        if (booking.getId() == null || booking.getClientId() == null || booking.getFrom() == null
+                || booking.getTo() == null || booking.getStatus() == null || booking.getCreatedAt() == null) {
+            System.out.println("✗ Repository: Error: Booking is missing required fields: " + booking.getId());
+            return false;
+        }
+        return true;
+    }
+
+    private static Object[] toRow(Booking booking) {
+        return new Object[]{
+                booking.getId(), booking.getClientId(),
+                booking.getFrom().getLocationName(), booking.getFrom().getLatitude(), booking.getFrom().getLongitude(),
+                booking.getTo().getLocationName(), booking.getTo().getLatitude(), booking.getTo().getLongitude(),
+                booking.getDistance(), booking.getDuration(), booking.getFare(),
+                booking.getStatus().name(), Timestamp.from(booking.getCreatedAt()), booking.getDriverId()};
+    }
+}
@@ -0,0 +1,90 @@
+package com.example.cabbooking.repository;
+
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * encrypted card numbers by vault token, the only place a card number is stored
+ */
+@Repository
+public class CardVaultRepository {
+
+    private final JdbcTemplate jdbcTemplate;
+
+    public CardVaultRepository(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    /**
+     * method that runs a SQL query to store an encrypted card, a card already in the vault is left as it is
+     * @param token vault token of the card
+     * @param ciphertext encrypted card number
+     * @return true if the card is in the vault afterwards, false if there was an error
+     */
+    public boolean save(String token, byte[] ciphertext) {
+        if (token == null || ciphertext == null) {
+            System.out.println("✗ Repository: Error: Cannot store a card without a token and ciphertext");
+            return false;
+        }
+
+        try {
+            jdbcTemplate.update("INSERT IGNORE INTO card_vault (token, ciphertext) VALUES (?, ?)", token, ciphertext);
+            return true;
+        } catch (Exception e) {
+            System.out.println("✗ Repository: Error storing card in vault: " + e.getMessage());
+            return false;
+        }
+    }
+
+    /**
+     * method that stores many encrypted cards as one JDBC batch, cards already in the vault are left as they are
+     * @param ciphertexts encrypted card numbers by vault token
+     * @return true if every card is in the vault afterwards, false if there was an error
+     */
+    public boolean saveAll(Map<String, byte[]> ciphertexts) {
+        if (ciphertexts == null || ciphertexts.isEmpty()) {
+            return true;
+        }
+
+        List<Object[]> rows = new ArrayList<>(ciphertexts.size());
+        for (Map.Entry<String, byte[]> card : ciphertexts.entrySet()) {
+            if (card.getKey() == null || card.getValue() == null) {
+                System.out.println("✗ Repository: Error: Cannot store a card without a token and ciphertext");
+                return false;
+            }
+            rows.add(new Object[]{card.getKey(), card.getValue()});
+        }
+
+        try {
+            jdbcTemplate.batchUpdate("INSERT IGNORE INTO card_vault (token, ciphertext) VALUES (?, ?)", rows);
+            return true;
+        } catch (Exception e) {
+            System.out.println("✗ Repository: Error storing " + rows.size() + " cards in vault: " + e.getMessage());
+            return false;
+        }
+    }
+
+    /**
+     * @param token vault token of the card
+     * @return Optional of the encrypted card number, empty if the token is unknown or there was an error
+     */
+    public Optional<byte[]> findCiphertext(String token) {
+        if (token == null) {
+            return Optional.empty();
+        }
+
+        try {
+            List<byte[]> ciphertexts = jdbcTemplate.query("SELECT ciphertext FROM card_vault WHERE token = ?",
+                    (rs, rowNum) -> rs.getBytes("ciphertext"), token);
+            return ciphertexts.isEmpty() ? Optional.empty() : Optional.of(ciphertexts.get(0));
+        } catch (Exception e) {
+            System.out.println("✗ Repository: Error reading card from vault: " + e.getMessage());
+            return Optional.empty();
+        }
+    }
+}
@@ -0,0 +1,107 @@
+package com.example.cabbooking.repository;
+
+import com.example.cabbooking.model.ClientInvalidation;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.stereotype.Repository;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * client changes every node's client cache has to drop. Each node appends the changes it makes and reads the
+ * rows after the last one it has seen, so the table works as a shared, ordered invalidation log
+ */
+@Repository
+public class ClientInvalidationRepository {
+
+    private final JdbcTemplate jdbcTemplate;
+
+    public ClientInvalidationRepository(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    private static class ClientInvalidationRowMapper implements RowMapper<ClientInvalidation> {
+        @Override
+        public ClientInvalidation mapRow(ResultSet rs, int rowNum) throws SQLException {
+            int clientId = rs.getInt("client_id");
+            ClientInvalidation invalidation = new ClientInvalidation(rs.getString("node"),
+                    rs.wasNull() ? null : clientId, rs.getString("email"), rs.getTimestamp("created_at").toInstant());
+            invalidation.setId(rs.getLong("id"));
+            return invalidation;
+        }
+    }
+
+    /**
+     * method that runs a SQL query to append one change
+     * @param invalidation change to be appended
+     * @return true if the change was written, false if there was an error
+     */
+    public boolean save(ClientInvalidation invalidation) {
+        if (invalidation == null || invalidation.getNode() == null || invalidation.getCreatedAt() == null
+                || (invalidation.getClientId() == null && invalidation.getEmail() == null)) {
+            System.out.println("✗ Repository: Error: Client invalidation is missing required fields: " + invalidation);
+            return false;
+        }
+
+        try {
+            jdbcTemplate.update("INSERT INTO client_cache_invalidation (node, client_id, email, created_at) VALUES (?, ?, ?, ?)",
+                    invalidation.getNode(), invalidation.getClientId(), invalidation.getEmail(),
+                    Timestamp.from(invalidation.getCreatedAt()));
+            return true;
+        } catch (Exception e) {
+            System.out.println("✗ Repository: Error writing client invalidation " + invalidation + ": " + e.getMessage());
+            return false;
+        }
+    }
+
+    /**
+     * method that runs a SQL query for the changes appended after the last one a node has seen
+     * @param afterId id of the last change already seen
+     * @param limit most changes to return
+     * @return the changes in order, empty if there are none or the query failed
+     */
+    public List<ClientInvalidation> findAfter(long afterId, int limit) {
+        try {
+            return jdbcTemplate.query("SELECT id, node, client_id, email, created_at FROM client_cache_invalidation " +
+                    "WHERE id > ? ORDER BY id LIMIT ?", new ClientInvalidationRowMapper(), afterId, limit);
+        } catch (Exception e) {
+            System.out.println("✗ Repository: Error reading client invalidations: " + e.getMessage());
+            return new ArrayList<>();
+        }
+    }
+
+    /**
+     * method that runs a SQL query for the id of the newest change, where a node that just started begins reading
+     * @return id of the newest change, 0 if there are none, -1 if the query failed
+     */
+    public long findLatestId() {
+        try {
+            Long latest = jdbcTemplate.queryForObject("SELECT MAX(id) FROM client_cache_invalidation", Long.class);
+            return latest == null ? 0 : latest;
+        } catch (Exception e) {
+            System.out.println("✗ Repository: Error reading latest client invalidation: " + e.getMessage());
+            return -1;
+        }
+    }
+
+    /**
+     * method that deletes changes written before a point in time, a chunk at a time
+     * @param createdBefore changes written before this are deleted
+     * @param limit most changes to delete
+     * @return number of changes deleted, 0 if there was an error
+     */
+    public int deleteCreatedBefore(Instant createdBefore, int limit) {
+        try {
+            return jdbcTemplate.update("DELETE FROM client_cache_invalidation WHERE created_at < ? LIMIT ?",
+                    Timestamp.from(createdBefore), limit);
+        } catch (Exception e) {
+            System.out.println("✗ Repository: Error purging client invalidations: " + e.getMessage());
+            return 0;
+        }
+    }
+}
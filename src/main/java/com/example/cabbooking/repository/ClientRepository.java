@@ -1,10 +1,14 @@
 package com.example.cabbooking.repository;
 
 import com.example.cabbooking.model.Client;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.jdbc.core.BatchPreparedStatementSetter;
 import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
 import org.springframework.jdbc.core.RowMapper;
 import org.springframework.stereotype.Repository;
 
+import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.util.*;
@@ -12,10 +16,25 @@ import java.util.*;
 @Repository
 public class ClientRepository {
 
+    private static final String SELECT_CLIENT = "SELECT id, name, email, phone, address, credit_card FROM clients";
+
     private final JdbcTemplate jdbcTemplate;
+    private final JdbcTemplate streamingJdbcTemplate;
 
-    public ClientRepository(JdbcTemplate jdbcTemplate) {
+    /**
+     * receives each client read by streamAll
+     */
+    public interface ClientRowHandler {
+        void onClient(Client client);
+    }
+
+    /**
+     * @param jdbcTemplate queries that give their connection back straight away
+     * @param streamingJdbcTemplate streamAll, which holds its connection until the last row, on the streaming pool
+     */
+    public ClientRepository(JdbcTemplate jdbcTemplate, @Qualifier("streamingJdbcTemplate") JdbcTemplate streamingJdbcTemplate) {
         this.jdbcTemplate = jdbcTemplate;
+        this.streamingJdbcTemplate = streamingJdbcTemplate;
     }
 
     private static class ClientRowMapper implements RowMapper<Client> {
@@ -33,13 +52,14 @@ public class ClientRepository {
     }
 
     /**
-     * method which runs a SQL query to find all clients from the database
+     * method which runs a SQL query to find all clients from the database.
+     * Every row is held in memory, so large tables should be read with findPage or streamAll instead
      * @return ArrayList of clients from the SQL database
      */
     public List<Client> findAll() {
         try {
             List<Client> clients = jdbcTemplate.query(
-                    "SELECT id, name, email, phone, address, credit_card FROM clients",
+                    SELECT_CLIENT,
                     new ClientRowMapper());
             System.out.println("✓ Repository: Successfully retrieved " + clients.size() + " clients");
             return clients;
@@ -49,6 +69,51 @@ public class ClientRepository {
         }
     }
 
+    /**
+     * method that runs a SQL query for one page of clients in id order.
+     * The page starts right after the last id of the previous page instead of skipping rows with OFFSET,
+     * so every page is a short range scan of the primary key however far into the table it is
+     * @param afterId id of the last client on the previous page, 0 for the first page
+     * @param limit most clients to return
+     * @return the clients, empty if there are none or the query failed
+     */
+    public List<Client> findPage(int afterId, int limit) {
+        if (limit <= 0) {
+            return new ArrayList<>();
+        }
+
+        try {
+            return jdbcTemplate.query(SELECT_CLIENT + " WHERE id > ? ORDER BY id LIMIT ?",
+                    new ClientRowMapper(), afterId, limit);
+        } catch (Exception e) {
+            System.out.println("✗ Repository: Error retrieving clients after ID " + afterId + ": " + e.getMessage());
+            return new ArrayList<>();
+        }
+    }
+
+    /**
+     * method that streams every client to a handler in id order.
+     * Nothing is collected: with a fetch size of Integer.MIN_VALUE the MySQL driver hands over one row at a time
+     * instead of buffering the whole result, so memory stays flat however many clients there are. The connection
+     * is held until the last row has been handled
+     * @param handler receives each client
+     * @return true if every row was read, false if the query or the handler failed
+     */
+    public boolean streamAll(ClientRowHandler handler) {
+        ClientRowMapper rowMapper = new ClientRowMapper();
+        try {
+            streamingJdbcTemplate.query(con -> {
+                PreparedStatement ps = con.prepareStatement(SELECT_CLIENT + " ORDER BY id", ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+                ps.setFetchSize(Integer.MIN_VALUE);
+                return ps;
+            }, (RowCallbackHandler) rs -> handler.onClient(rowMapper.mapRow(rs, 0)));
+            return true;
+        } catch (Exception e) {
+            System.out.println("✗ Repository: Error streaming clients: " + e.getMessage());
+            return false;
+        }
+    }
+
     /**
      * method to run a SQL query which find a client by their id number in the database
      * @param id Client id to find by
@@ -62,7 +127,7 @@ public class ClientRepository {
 
         try {
             List<Client> clients = jdbcTemplate.query(
-                    "SELECT id, name, email, phone, address, credit_card FROM clients WHERE id = ?",
+                    SELECT_CLIENT + " WHERE id = ?",
                     new ClientRowMapper(), id);
 
             if (clients.isEmpty()) {
@@ -78,6 +143,141 @@ public class ClientRepository {
         }
     }
 
+    /**
+     * method to run a SQL query which finds a client by their email, emails are unique
+     * @param email Client email to find by
+     * @return Optional of a Client object if it was found
+     */
+    public Optional<Client> findByEmail(String email) {
+        if (email == null || email.isBlank()) {
+            System.out.println("✗ Repository: Error: Invalid client email: " + email);
+            return Optional.empty();
+        }
+
+        try {
+            List<Client> clients = jdbcTemplate.query(SELECT_CLIENT + " WHERE email = ?", new ClientRowMapper(), email.trim());
+            return clients.isEmpty() ? Optional.empty() : Optional.of(clients.get(0));
+        } catch (Exception e) {
+            System.out.println("✗ Repository: Error finding client with email: " + email + ": " + e.getMessage());
+            return Optional.empty();
+        }
+    }
+
+    /**
+     * method to run a SQL query which finds clients by phone number through idx_clients_phone_digits
+     * @param phone phone number in any format, see phoneDigits
+     * @param limit most clients to return
+     * @return the clients in id order, empty if there are none, the phone has no digits or the query failed
+     */
+    public List<Client> findByPhone(String phone, int limit) {
+        String digits = phoneDigits(phone);
+        if (digits.isEmpty() || limit <= 0) {
+            return new ArrayList<>();
+        }
+
+        try {
+            return jdbcTemplate.query(SELECT_CLIENT + " WHERE phone_digits = ? ORDER BY id LIMIT ?",
+                    new ClientRowMapper(), digits, limit);
+        } catch (Exception e) {
+            System.out.println("✗ Repository: Error finding clients by phone: " + e.getMessage());
+            return new ArrayList<>();
+        }
+    }
+
+    /**
+     * method to run a SQL query which finds clients whose name starts with a prefix, ignoring case.
+     * The prefix is a range scan of idx_clients_name, which also gives the (name, id) order
+     * @param prefix start of the name, % and _ in it are matched literally
+     * @param limit most clients to return
+     * @return the clients in name order, empty if there are none or the query failed
+     */
+    public List<Client> findByNamePrefix(String prefix, int limit) {
+        if (prefix == null || prefix.isBlank() || limit <= 0) {
+            return new ArrayList<>();
+        }
+
+        String pattern = prefix.replace("\\", "\\\\").replace("%", "\\%").replace("_", "\\_") + "%";
+        try {
+            return jdbcTemplate.query(SELECT_CLIENT + " WHERE name LIKE ? ORDER BY name, id LIMIT ?",
+                    new ClientRowMapper(), pattern, limit);
+        } catch (Exception e) {
+            System.out.println("✗ Repository: Error finding clients by name: " + e.getMessage());
+            return new ArrayList<>();
+        }
+    }
+
+    /**
+     * normalises a phone number the way the phone_digits column does, so it can be compared whether
+     * phone was stored as a number or as text: only the digits, without leading zeros
+     * @param phone phone number in any format, e.g. +1 (555) 123-4567
+     * @return the digits, empty if there are none
+     */
+    public static String phoneDigits(String phone) {
+        if (phone == null) {
+            return "";
+        }
+        StringBuilder digits = new StringBuilder(phone.length());
+        for (int i = 0; i < phone.length(); i++) {
+            char c = phone.charAt(i);
+            if (c >= '0' && c <= '9' && (c != '0' || digits.length() > 0)) {
+                digits.append(c);
+            }
+        }
+        return digits.toString();
+    }
+
+    /**
+     * method that runs a SQL query to check a client exists without reading the row
+     * @param id Client id to check
+     * @return true if a client with the id exists, false if not or the query failed
+     */
+    public boolean exists(int id) {
+        if (id <= 0) {
+            return false;
+        }
+
+        try {
+            return !jdbcTemplate.query("SELECT 1 FROM clients WHERE id = ? LIMIT 1", (rs, rowNum) -> 1, id).isEmpty();
+        } catch (Exception e) {
+            System.out.println("✗ Repository: Error checking client with ID: " + id + ": " + e.getMessage());
+            return false;
+        }
+    }
+
+    /**
+     * method that runs a SQL query to count the clients in the database
+     * @return number of clients, -1 if the query failed
+     */
+    public long count() {
+        try {
+            Long count = jdbcTemplate.queryForObject("SELECT COUNT(*) FROM clients", Long.class);
+            return count == null ? 0 : count;
+        } catch (Exception e) {
+            System.out.println("✗ Repository: Error counting clients: " + e.getMessage());
+            return -1;
+        }
+    }
+
+    /**
+     * method that reads InnoDB's persistent row estimate for the clients table instead of counting the rows.
+     * It costs the same however large the table is, but may be off by a few percent.
+     * information_schema.TABLES is not used because MySQL 8 caches it for information_schema_stats_expiry
+     * (a day by default), while innodb_table_stats is updated whenever InnoDB recalculates the table's statistics.
+     * The database user needs SELECT on mysql.innodb_table_stats
+     * @return estimated number of clients, -1 if the query failed
+     */
+    public long approximateCount() {
+        try {
+            Long count = jdbcTemplate.queryForObject(
+                    "SELECT n_rows FROM mysql.innodb_table_stats WHERE database_name = DATABASE() AND table_name = 'clients'",
+                    Long.class);
+            return count == null ? 0 : count;
+        } catch (Exception e) {
+            System.out.println("✗ Repository: Error estimating client count: " + e.getMessage());
+            return -1;
+        }
+    }
+
     /**
      * method that runs a SQL query to create a new client in the database
      * @param client Client object to be added to the database
@@ -118,6 +318,56 @@ public class ClientRepository {
         }
     }
 
+    /**
+     * method that inserts many clients as one JDBC batch, with no logging per client. With the driver's
+     * rewriteBatchedStatements the batch goes to MySQL as a few multi-row INSERTs instead of one per client.
+     * Clients are expected to be validated already, e.g. by ClientImportService
+     * @param clients clients to be added to the database
+     * @throws org.springframework.dao.DataAccessException if the batch could not be inserted, e.g. an email is taken
+     */
+    public void insertBatch(List<Client> clients) {
+        if (clients == null || clients.isEmpty()) {
+            return;
+        }
+
+        jdbcTemplate.batchUpdate(
+                "INSERT INTO clients (name, email, phone, address, credit_card) VALUES (?, ?, ?, ?, ?)",
+                new BatchPreparedStatementSetter() {
+                    @Override
+                    public void setValues(PreparedStatement ps, int i) throws SQLException {
+                        Client client = clients.get(i);
+                        ps.setString(1, client.getName());
+                        ps.setString(2, client.getEmail());
+                        ps.setString(3, client.getPhone());
+                        ps.setString(4, client.getAddress());
+                        ps.setString(5, client.getCredit_card());
+                    }
+
+                    @Override
+                    public int getBatchSize() {
+                        return clients.size();
+                    }
+                });
+    }
+
+    /**
+     * method that runs one SQL query to find which of some emails already belong to a client
+     * @param emails emails to check
+     * @return the emails that are taken, lower case, empty if none are
+     * @throws org.springframework.dao.DataAccessException if the query failed, so a failure is never read as no email being taken
+     */
+    public Set<String> findExistingEmails(Collection<String> emails) {
+        Set<String> existing = new HashSet<>();
+        if (emails == null || emails.isEmpty()) {
+            return existing;
+        }
+
+        String placeholders = String.join(", ", Collections.nCopies(emails.size(), "?"));
+        jdbcTemplate.query("SELECT email FROM clients WHERE email IN (" + placeholders + ")",
+                (RowCallbackHandler) rs -> existing.add(rs.getString(1).toLowerCase(Locale.ROOT)), emails.toArray());
+        return existing;
+    }
+
     /**
      * method that runs a SQL query to update client information in the database
      * @param client Client object to be updated with new data
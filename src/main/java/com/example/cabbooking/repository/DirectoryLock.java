@@ -0,0 +1,51 @@
+package com.example.cabbooking.repository;
+
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.channels.OverlappingFileLockException;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * exclusive lock on a file next to an append-only log, held for as long as the log is open, so a second process
+ * started on the same data directory cannot append to the log or cut off what it takes for a torn tail
+ */
+final class DirectoryLock {
+
+    private final FileChannel channel;
+
+    private DirectoryLock(FileChannel channel) {
+        this.channel = channel;
+    }
+
+    /**
+     * @param directory directory of the log
+     * @param name name of the lock file
+     * @return the lock, null if another process or another log in this one already holds it
+     */
+    static DirectoryLock tryAcquire(Path directory, String name) throws IOException {
+        FileChannel channel = FileChannel.open(directory.resolve(name), StandardOpenOption.CREATE, StandardOpenOption.WRITE);
+        try {
+            FileLock lock = channel.tryLock();
+            if (lock != null) {
+                return new DirectoryLock(channel);
+            }
+        } catch (OverlappingFileLockException e) {
+            // held by this JVM, e.g. the same directory opened twice
+        }
+        channel.close();
+        return null;
+    }
+
+    /**
+     * releases the lock, closing the channel releases it too when the process exits without calling this
+     */
+    void release() {
+        try {
+            channel.close();
+        } catch (IOException e) {
+            System.out.println("✗ Lock file could not be released: " + e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,529 @@
+package com.example.cabbooking.repository;
+
+import com.example.cabbooking.model.LedgerPosting;
+import com.example.cabbooking.model.LedgerTransaction;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Repository;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.*;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.stream.Stream;
+import java.util.zip.CRC32;
+
+/**
+ * append-only double-entry ledger split into segment files.
+ * Every posting is one fixed-size record, and the postings of a transaction are written next to each other, so
+ * a transaction cut short by a crash is recognised on replay and cut off. Transactions are appended a batch at a
+ * time with a single fsync per batch; the balance of every account is rebuilt from the log when it is opened.
+ */
+@Repository
+public class LedgerLog {
+
+    // record layout: transaction id (8), timestamp (8), amount in cents (8), reference (16), postings in the
+    // transaction (1), posting index (1), padding (2), account (32), crc32 (4)
+    static final int RECORD_SIZE = 80;
+    private static final int CHECKSUMMED_BYTES = 76;
+    private static final int ACCOUNT_OFFSET = 44;
+    public static final int MAX_ACCOUNT_LENGTH = 32;
+    public static final int MAX_POSTINGS = 127;
+
+    private static final String SEGMENT_PREFIX = "ledger-";
+    private static final String SEGMENT_SUFFIX = ".log";
+    private static final String LOCK_FILE = "ledger.lock";
+    private static final int READ_BUFFER_RECORDS = 4096;
+
+    private final Path directory;
+    private final long segmentBytes;
+    private final boolean forceOnAppend;
+    private final Map<String, Long> recoveredBalances;
+    private final Map<String, LedgerTransaction> recoveredTransactions;
+    private final DirectoryLock directoryLock;
+
+    // everything below is guarded by the lock
+    private final ReentrantLock lock = new ReentrantLock();
+    private final CRC32 crc = new CRC32();
+    private final List<Path> segments = new ArrayList<>();
+    private ByteBuffer writeBuffer = ByteBuffer.allocate(1024 * RECORD_SIZE);
+    private FileChannel activeChannel;
+    private long activeBytes;
+    private long lastTransactionId;
+    private long lastTimestamp;
+    private long transactionCount;
+
+    public static class LedgerException extends RuntimeException {
+        public LedgerException(String message) {
+            super(message);
+        }
+    }
+
+    /**
+     * receives the postings of replayed transactions one at a time
+     */
+    public interface PostingVisitor {
+        void visit(long transactionId, long timestamp, String account, long amountCents);
+    }
+
+    @Autowired
+    public LedgerLog(@Value("${ledger.directory:data/ledger}") String directory,
+                     @Value("${ledger.segment-bytes:67108864}") long segmentBytes,
+                     @Value("${ledger.fsync:true}") boolean forceOnAppend) {
+        if (segmentBytes < RECORD_SIZE * MAX_POSTINGS) {
+            throw new IllegalArgumentException("Ledger segments must hold at least one full transaction: " + segmentBytes);
+        }
+
+        this.directory = Paths.get(directory);
+        this.segmentBytes = segmentBytes;
+        this.forceOnAppend = forceOnAppend;
+
+        try {
+            Files.createDirectories(this.directory);
+            this.directoryLock = DirectoryLock.tryAcquire(this.directory, LOCK_FILE);
+        } catch (IOException e) {
+            throw new LedgerException("Ledger could not be opened in " + directory + ": " + e.getMessage());
+        }
+        if (directoryLock == null) {
+            throw new LedgerException("Ledger in " + directory + " is already open in another process");
+        }
+
+        try {
+            Map<String, Long> balances = new HashMap<>();
+            Map<String, LedgerTransaction> byReference = new HashMap<>();
+            List<Path> existing = listSegments();
+            for (int i = 0; i < existing.size(); i++) {
+                replaySegment(existing.get(i), i == existing.size() - 1, balances, byReference);
+            }
+            this.recoveredBalances = balances;
+            this.recoveredTransactions = byReference;
+        } catch (IOException e) {
+            directoryLock.release();
+            throw new LedgerException("Ledger could not be opened in " + directory + ": " + e.getMessage());
+        } catch (RuntimeException e) {
+            directoryLock.release();
+            throw e;
+        }
+
+        System.out.println("✓ Ledger recovered " + transactionCount + " transactions across " + recoveredBalances.size()
+                + " accounts from " + segments.size() + " segments");
+    }
+
+    /**
+     * writes a batch of balanced transactions and syncs them to disk once, giving each its id and timestamp.
+     * Either the whole batch is written or none of it is.
+     * @param transactions transactions to write, every one already validated
+     */
+    public void append(List<LedgerTransaction> transactions) {
+        if (transactions.isEmpty()) {
+            return;
+        }
+
+        lock.lock();
+        try {
+            int records = 0;
+            for (LedgerTransaction transaction : transactions) {
+                records += transaction.getPostings().size();
+            }
+            long batchBytes = (long) records * RECORD_SIZE;
+
+            // a batch never straddles two segments, so a failed batch only has to be cut off one file
+            if (activeChannel == null || (activeBytes > 0 && activeBytes + batchBytes > segmentBytes)) {
+                rollSegment();
+            }
+            if (writeBuffer.capacity() < batchBytes) {
+                writeBuffer = ByteBuffer.allocate((int) batchBytes);
+            }
+
+            // never behind the previous batch, so segments can be skipped by time when replaying
+            long timestamp = Math.max(System.currentTimeMillis(), lastTimestamp);
+            long nextId = lastTransactionId;
+            writeBuffer.clear();
+            for (LedgerTransaction transaction : transactions) {
+                encode(writeBuffer, ++nextId, timestamp, transaction);
+            }
+            writeBuffer.flip();
+
+            try {
+                while (writeBuffer.hasRemaining()) {
+                    activeChannel.write(writeBuffer, activeBytes + writeBuffer.position());
+                }
+                if (forceOnAppend) {
+                    activeChannel.force(false);
+                }
+            } catch (IOException e) {
+                cutOffFailedBatch();
+                throw e;
+            }
+
+            nextId = lastTransactionId;
+            for (LedgerTransaction transaction : transactions) {
+                transaction.setId(++nextId);
+                transaction.setTimestamp(timestamp);
+            }
+            activeBytes += batchBytes;
+            lastTransactionId = nextId;
+            lastTimestamp = timestamp;
+            transactionCount += transactions.size();
+        } catch (IOException e) {
+            throw new LedgerException("Could not append to ledger: " + e.getMessage());
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * streams the postings of every transaction written in a time range, oldest first. Segments are read in
+     * fixed-size chunks, so memory use does not depend on the size of the ledger, and segments that end
+     * before the range starts are skipped without being read
+     * @param fromMillis start of the range in epoch milliseconds, inclusive
+     * @param toMillis end of the range in epoch milliseconds, exclusive
+     * @param visitor receives each posting
+     */
+    public void replay(long fromMillis, long toMillis, PostingVisitor visitor) {
+        List<Path> snapshot;
+        long activeLimit;
+        lock.lock();
+        try {
+            snapshot = new ArrayList<>(segments);
+            activeLimit = activeBytes;
+        } finally {
+            lock.unlock();
+        }
+
+        CRC32 replayCrc = new CRC32();
+        ByteBuffer buffer = ByteBuffer.allocate(READ_BUFFER_RECORDS * RECORD_SIZE);
+        try {
+            for (int i = 0; i < snapshot.size(); i++) {
+                boolean last = i == snapshot.size() - 1;
+                if (!last && firstTimestamp(snapshot.get(i + 1), buffer) < fromMillis) {
+                    continue;
+                }
+
+                try (FileChannel channel = FileChannel.open(snapshot.get(i), StandardOpenOption.READ)) {
+                    long limit = last ? activeLimit : channel.size();
+                    long position = 0;
+                    buffer.clear();
+                    while (position < limit) {
+                        buffer.limit((int) Math.min(buffer.capacity(), limit - position));
+                        int read = channel.read(buffer, position + buffer.position());
+                        if (read <= 0) {
+                            break;
+                        }
+                        buffer.flip();
+                        while (buffer.remaining() >= RECORD_SIZE) {
+                            int offset = buffer.position();
+                            if (buffer.getInt(offset + CHECKSUMMED_BYTES) != checksum(replayCrc, buffer, offset)) {
+                                throw new LedgerException("Ledger segment " + snapshot.get(i).getFileName()
+                                        + " is damaged at byte " + (position + offset));
+                            }
+                            long timestamp = buffer.getLong(offset + 8);
+                            if (timestamp >= toMillis) {
+                                return;
+                            }
+                            if (timestamp >= fromMillis) {
+                                visitor.visit(buffer.getLong(offset), timestamp,
+                                        decodeAccount(buffer, offset + ACCOUNT_OFFSET), buffer.getLong(offset + 16));
+                            }
+                            buffer.position(offset + RECORD_SIZE);
+                        }
+                        position += buffer.position();
+                        buffer.compact();
+                    }
+                }
+            }
+        } catch (IOException e) {
+            throw new LedgerException("Could not replay ledger: " + e.getMessage());
+        }
+    }
+
+    /**
+     * flushes the active segment to disk and releases the directory for another process
+     */
+    @PreDestroy
+    public void close() {
+        lock.lock();
+        try {
+            if (activeChannel != null && activeChannel.isOpen()) {
+                activeChannel.force(true);
+                activeChannel.close();
+            }
+            activeChannel = null;
+        } catch (IOException e) {
+            System.out.println("✗ Ledger could not be closed cleanly: " + e.getMessage());
+        } finally {
+            directoryLock.release();
+            lock.unlock();
+        }
+    }
+
+    //================Getters================
+
+    /**
+     * @return balance in cents of every account as rebuilt from the log when it was opened
+     */
+    public Map<String, Long> getRecoveredBalances() {
+        return new HashMap<>(recoveredBalances);
+    }
+
+    /**
+     * @return every transaction written with a reference, by that reference, as rebuilt from the log when it was opened
+     */
+    public Map<String, LedgerTransaction> getRecoveredTransactions() {
+        return new HashMap<>(recoveredTransactions);
+    }
+
+    public long getLastTransactionId() {
+        lock.lock();
+        try {
+            return lastTransactionId;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public long getTransactionCount() {
+        lock.lock();
+        try {
+            return transactionCount;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public int getSegmentCount() {
+        lock.lock();
+        try {
+            return segments.size();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    //================Recovery================
+
+    /**
+     * helper method which replays the records of one segment into the balances and the index of transactions by
+     * reference; a transaction that is cut short or fails its checksum ends the newest segment, which is truncated
+     * there, and anywhere else means the ledger has been damaged and is not opened
+     */
+    private void replaySegment(Path segment, boolean last, Map<String, Long> balances,
+                               Map<String, LedgerTransaction> byReference) throws IOException {
+        FileChannel channel = FileChannel.open(segment, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        ByteBuffer buffer = ByteBuffer.allocate(READ_BUFFER_RECORDS * RECORD_SIZE);
+        List<LedgerPosting> pending = new ArrayList<>();
+        long pendingId = 0;
+        long pendingTimestamp = 0;
+        String pendingReference = null;
+        long validBytes = 0;
+        long readBytes = 0;
+        boolean corrupt = false;
+
+        while (!corrupt && channel.read(buffer) > 0) {
+            buffer.flip();
+            while (buffer.remaining() >= RECORD_SIZE) {
+                int offset = buffer.position();
+                long transactionId = buffer.getLong(offset);
+                int count = buffer.get(offset + 40);
+                int index = buffer.get(offset + 41);
+
+                boolean inSequence = index == 0 ? pending.isEmpty() && transactionId == lastTransactionId + 1
+                        : transactionId == pendingId && index == pending.size();
+                if (buffer.getInt(offset + CHECKSUMMED_BYTES) != checksum(crc, buffer, offset) || !inSequence
+                        || count < 2 || index >= count) {
+                    corrupt = true;
+                    break;
+                }
+
+                if (index == 0) {
+                    pendingTimestamp = buffer.getLong(offset + 8);
+                    pendingReference = decodeReference(buffer, offset + 24);
+                }
+                pendingId = transactionId;
+                lastTimestamp = buffer.getLong(offset + 8);
+                pending.add(new LedgerPosting(decodeAccount(buffer, offset + ACCOUNT_OFFSET), buffer.getLong(offset + 16)));
+                buffer.position(offset + RECORD_SIZE);
+                readBytes += RECORD_SIZE;
+
+                if (pending.size() == count) {
+                    long sum = 0;
+                    for (LedgerPosting posting : pending) {
+                        sum += posting.getAmountCents();
+                    }
+                    if (sum != 0) {
+                        corrupt = true;
+                        break;
+                    }
+                    for (LedgerPosting posting : pending) {
+                        balances.merge(posting.getAccount(), posting.getAmountCents(), Long::sum);
+                    }
+                    if (pendingReference != null) {
+                        byReference.putIfAbsent(pendingReference, new LedgerTransaction(transactionId, pendingReference,
+                                pendingTimestamp, new ArrayList<>(pending)));
+                    }
+                    pending.clear();
+                    lastTransactionId = transactionId;
+                    transactionCount++;
+                    validBytes = readBytes;
+                }
+            }
+            buffer.compact();
+        }
+
+        long size = channel.size();
+        if (validBytes < size) {
+            if (!last) {
+                channel.close();
+                throw new LedgerException("Ledger segment " + segment.getFileName() + " is damaged at byte " + validBytes
+                        + " and is not the newest segment, it needs to be repaired by hand");
+            }
+            System.out.println("✗ Ledger " + segment.getFileName() + " ends with an incomplete transaction, truncating "
+                    + (size - validBytes) + " bytes");
+            channel.truncate(validBytes);
+            channel.force(true);
+        }
+
+        segments.add(segment);
+        if (last) {
+            activeChannel = channel;
+            activeBytes = validBytes;
+        } else {
+            channel.close();
+        }
+    }
+
+    //================Helpers================
+
+    /**
+     * helper method which syncs and closes the active segment and starts a new one, must be called while holding the lock
+     */
+    private void rollSegment() throws IOException {
+        if (activeChannel != null) {
+            activeChannel.force(true);
+            activeChannel.close();
+        }
+
+        Path segment = directory.resolve(String.format("%s%020d%s", SEGMENT_PREFIX, lastTransactionId + 1, SEGMENT_SUFFIX));
+        activeChannel = FileChannel.open(segment, StandardOpenOption.CREATE_NEW, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        activeBytes = 0;
+        segments.add(segment);
+    }
+
+    /**
+     * helper method which truncates whatever part of a failed batch reached the file, must be called while holding the lock
+     */
+    private void cutOffFailedBatch() {
+        try {
+            activeChannel.truncate(activeBytes);
+        } catch (IOException e) {
+            // replay cuts off the partial transaction, but nothing more may be appended after it until then
+            System.out.println("✗ Ledger could not cut off a failed batch, closing the segment: " + e.getMessage());
+            try {
+                activeChannel.close();
+            } catch (IOException ignored) {
+                // already failing
+            }
+            activeChannel = null;
+            throw new LedgerException("Ledger segment is unusable after a failed write: " + e.getMessage());
+        }
+    }
+
+    private void encode(ByteBuffer buffer, long transactionId, long timestamp, LedgerTransaction transaction) {
+        List<LedgerPosting> postings = transaction.getPostings();
+        UUID reference = parseReference(transaction.getReference());
+
+        for (int i = 0; i < postings.size(); i++) {
+            LedgerPosting posting = postings.get(i);
+            byte[] account = posting.getAccount().getBytes(StandardCharsets.US_ASCII);
+            if (account.length > MAX_ACCOUNT_LENGTH) {
+                throw new LedgerException("Ledger account name is longer than " + MAX_ACCOUNT_LENGTH + " characters: " + posting.getAccount());
+            }
+
+            int offset = buffer.position();
+            buffer.putLong(transactionId)
+                    .putLong(timestamp)
+                    .putLong(posting.getAmountCents())
+                    .putLong(reference == null ? 0 : reference.getMostSignificantBits())
+                    .putLong(reference == null ? 0 : reference.getLeastSignificantBits())
+                    .put((byte) postings.size())
+                    .put((byte) i)
+                    .put((byte) 0).put((byte) 0)
+                    .put(account);
+            for (int pad = account.length; pad < MAX_ACCOUNT_LENGTH; pad++) {
+                buffer.put((byte) 0);
+            }
+            buffer.putInt(checksum(crc, buffer, offset));
+        }
+    }
+
+    private static String decodeAccount(ByteBuffer buffer, int offset) {
+        int length = 0;
+        while (length < MAX_ACCOUNT_LENGTH && buffer.get(offset + length) != 0) {
+            length++;
+        }
+        byte[] account = new byte[length];
+        for (int i = 0; i < length; i++) {
+            account[i] = buffer.get(offset + i);
+        }
+        return new String(account, StandardCharsets.US_ASCII);
+    }
+
+    /**
+     * helper method which reads a reference written by encode(), null when it was written without one
+     */
+    private static String decodeReference(ByteBuffer buffer, int offset) {
+        long most = buffer.getLong(offset);
+        long least = buffer.getLong(offset + 8);
+        return most == 0 && least == 0 ? null : new UUID(most, least).toString();
+    }
+
+    private static int checksum(CRC32 crc, ByteBuffer buffer, int offset) {
+        ByteBuffer record = buffer.duplicate();
+        record.position(offset).limit(offset + CHECKSUMMED_BYTES);
+        crc.reset();
+        crc.update(record);
+        return (int) crc.getValue();
+    }
+
+    /**
+     * helper method which reads the timestamp of the first record in a segment, Long.MAX_VALUE if it has none
+     */
+    private static long firstTimestamp(Path segment, ByteBuffer buffer) throws IOException {
+        buffer.clear().limit(16);
+        try (FileChannel channel = FileChannel.open(segment, StandardOpenOption.READ)) {
+            while (buffer.hasRemaining() && channel.read(buffer) > 0) {
+                // keep reading until the id and timestamp are in
+            }
+        }
+        return buffer.hasRemaining() ? Long.MAX_VALUE : buffer.getLong(8);
+    }
+
+    private List<Path> listSegments() throws IOException {
+        try (Stream<Path> files = Files.list(directory)) {
+            return files.filter(file -> {
+                        String name = file.getFileName().toString();
+                        return name.startsWith(SEGMENT_PREFIX) && name.endsWith(SEGMENT_SUFFIX);
+                    })
+                    .sorted()
+                    .collect(ArrayList::new, ArrayList::add, ArrayList::addAll);
+        }
+    }
+
+    private static UUID parseReference(String reference) {
+        if (reference == null) {
+            return null;
+        }
+        try {
+            return UUID.fromString(reference);
+        } catch (IllegalArgumentException e) {
+            throw new LedgerException("Ledger reference must be a UUID: " + reference);
+        }
+    }
+}
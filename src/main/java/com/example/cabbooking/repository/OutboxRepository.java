@@ -0,0 +1,199 @@
+package com.example.cabbooking.repository;
+
+import com.example.cabbooking.model.OutboxMessage;
+import org.springframework.jdbc.core.BatchPreparedStatementSetter;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.stereotype.Repository;
+
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * notifications waiting to be delivered. Messages are inserted in the same transaction as the booking they are
+ * about (payment messages right after the ledger entry), and the relay marks them sent once the notifier has taken them
+ */
+@Repository
+public class OutboxRepository {
+
+    // an event that is already in the outbox is skipped, so writing the same event twice queues one message
+    private static final String INSERT_MESSAGE =
+            "INSERT IGNORE INTO notification_outbox (event_id, type, recipient, subject, body, created_at, next_attempt_at) " +
+            "VALUES (?, ?, ?, ?, ?, ?, ?)";
+
+    private static final String SELECT_DUE =
+            "SELECT id, event_id, type, recipient, subject, body, created_at, attempts FROM notification_outbox " +
+            "WHERE sent_at IS NULL AND next_attempt_at <= ? AND attempts < ? ORDER BY id LIMIT ?";
+
+    private final JdbcTemplate jdbcTemplate;
+
+    public OutboxRepository(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    private static class OutboxMessageRowMapper implements RowMapper<OutboxMessage> {
+        @Override
+        public OutboxMessage mapRow(ResultSet rs, int rowNum) throws SQLException {
+            OutboxMessage message = new OutboxMessage(rs.getString("event_id"), rs.getString("type"),
+                    rs.getString("recipient"), rs.getString("subject"), rs.getString("body"),
+                    rs.getTimestamp("created_at").toInstant());
+            message.setId(rs.getLong("id"));
+            message.setAttempts(rs.getInt("attempts"));
+            return message;
+        }
+    }
+
+    /**
+     * method that runs a SQL query to queue one message
+     * @param message message to be queued
+     * @return true if the message is in the outbox afterwards, false if there was an error
+     */
+    public boolean save(OutboxMessage message) {
+        if (!isValid(message)) {
+            return false;
+        }
+
+        try {
+            jdbcTemplate.update(INSERT_MESSAGE, toRow(message));
+            return true;
+        } catch (Exception e) {
+            System.out.println("✗ Repository: Error queueing notification " + message.getEventId() + ": " + e.getMessage());
+            return false;
+        }
+    }
+
+    /**
+     * method that queues many messages as one JDBC batch
+     * @param messages messages to be queued
+     * @return true if every message is in the outbox afterwards, false otherwise
+     */
+    public boolean saveAll(List<OutboxMessage> messages) {
+        if (messages == null || messages.isEmpty()) {
+            return true;
+        }
+
+        for (OutboxMessage message : messages) {
+            if (!isValid(message)) {
+                return false;
+            }
+        }
+
+        try {
+            jdbcTemplate.batchUpdate(INSERT_MESSAGE, new BatchPreparedStatementSetter() {
+                @Override
+                public void setValues(PreparedStatement ps, int i) throws SQLException {
+                    Object[] row = toRow(messages.get(i));
+                    for (int column = 0; column < row.length; column++) {
+                        ps.setObject(column + 1, row[column]);
+                    }
+                }
+
+                @Override
+                public int getBatchSize() {
+                    return messages.size();
+                }
+            });
+            return true;
+        } catch (Exception e) {
+            System.out.println("✗ Repository: Error queueing batch of " + messages.size() + " notifications: " + e.getMessage());
+            return false;
+        }
+    }
+
+    /**
+     * method that runs a SQL query for the oldest messages that are due to be sent
+     * @param now messages whose next attempt is after this are left alone
+     * @param maxAttempts messages that have failed this many times are left alone
+     * @param limit most messages to return
+     * @return the messages, empty if there are none or the query failed
+     */
+    public List<OutboxMessage> findDue(Instant now, int maxAttempts, int limit) {
+        try {
+            return jdbcTemplate.query(SELECT_DUE, new OutboxMessageRowMapper(), Timestamp.from(now), maxAttempts, limit);
+        } catch (Exception e) {
+            System.out.println("✗ Repository: Error reading due notifications: " + e.getMessage());
+            return new ArrayList<>();
+        }
+    }
+
+    /**
+     * method that marks delivered messages as sent in one JDBC batch
+     * @param ids ids of the delivered messages
+     * @param sentAt time they were delivered
+     * @return true if the batch ran, false if there was an error
+     */
+    public boolean markSent(List<Long> ids, Instant sentAt) {
+        if (ids == null || ids.isEmpty()) {
+            return true;
+        }
+
+        Timestamp sent = Timestamp.from(sentAt);
+        List<Object[]> rows = new ArrayList<>(ids.size());
+        for (Long id : ids) {
+            rows.add(new Object[]{sent, id});
+        }
+
+        try {
+            jdbcTemplate.batchUpdate("UPDATE notification_outbox SET sent_at = ? WHERE id = ?", rows);
+            return true;
+        } catch (Exception e) {
+            System.out.println("✗ Repository: Error marking " + ids.size() + " notifications sent: " + e.getMessage());
+            return false;
+        }
+    }
+
+    /**
+     * method that records a failed delivery and when to try again
+     * @param id id of the message
+     * @param attempts failed attempts so far, including this one
+     * @param nextAttemptAt earliest time to try again
+     * @param error why the delivery failed
+     * @return true if the message was updated, false otherwise
+     */
+    public boolean markFailed(long id, int attempts, Instant nextAttemptAt, String error) {
+        String lastError = error == null || error.length() <= 255 ? error : error.substring(0, 255);
+        try {
+            return jdbcTemplate.update("UPDATE notification_outbox SET attempts = ?, next_attempt_at = ?, last_error = ? WHERE id = ?",
+                    attempts, Timestamp.from(nextAttemptAt), lastError, id) > 0;
+        } catch (Exception e) {
+            System.out.println("✗ Repository: Error recording failed notification " + id + ": " + e.getMessage());
+            return false;
+        }
+    }
+
+    /**
+     * method that deletes messages that were sent before a point in time, a chunk at a time so the purge
+     * never holds locks on a large part of the table
+     * @param sentBefore messages sent before this are deleted
+     * @param limit most messages to delete
+     * @return number of messages deleted, 0 if there was an error
+     */
+    public int deleteSentBefore(Instant sentBefore, int limit) {
+        try {
+            return jdbcTemplate.update("DELETE FROM notification_outbox WHERE sent_at < ? LIMIT ?", Timestamp.from(sentBefore), limit);
+        } catch (Exception e) {
+            System.out.println("✗ Repository: Error purging sent notifications: " + e.getMessage());
+            return 0;
+        }
+    }
+
+    private static boolean isValid(OutboxMessage message) {
+        if (message == null || message.getEventId() == null || message.getType() == null || message.getRecipient() == null
+                || message.getSubject() == null || message.getBody() == null || message.getCreatedAt() == null) {
+            System.out.println("✗ Repository: Error: Notification is missing required fields: " + message);
+            return false;
+        }
+        return true;
+    }
+
+    private static Object[] toRow(OutboxMessage message) {
+        Timestamp createdAt = Timestamp.from(message.getCreatedAt());
+        return new Object[]{message.getEventId(), message.getType(), message.getRecipient(), message.getSubject(),
+                message.getBody(), createdAt, createdAt};
+    }
+}
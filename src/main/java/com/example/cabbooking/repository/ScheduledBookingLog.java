@@ -0,0 +1,311 @@
+package com.example.cabbooking.repository;
+
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Repository;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
+import java.util.function.ObjLongConsumer;
+import java.util.zip.CRC32;
+
+/**
+ * append-only log of advance bookings waiting for their pickup time
+ * every booking scheduled or taken off the schedule adds one fixed-size record, and the log is rewritten
+ * with only the pending bookings once most of its records are stale, so a restart rebuilds the schedule
+ * from a file roughly the size of what is still pending
+ */
+@Repository
+public class ScheduledBookingLog {
+
+    // record layout: type (1), padding (3), booking id (16), pickup time (8), crc32 (4)
+    static final int RECORD_SIZE = 32;
+    private static final int CHECKSUMMED_BYTES = 28;
+    private static final byte SCHEDULED = 1;
+    private static final byte REMOVED = 2;
+
+    private static final String LOG_FILE = "scheduled-bookings.log";
+    // the log file itself is replaced when it is compacted, so the lock is held on a file of its own
+    private static final String LOCK_FILE = "scheduled-bookings.lock";
+    private static final int READ_BUFFER_RECORDS = 2048;
+    private static final long MIN_RECORDS_BEFORE_COMPACTION = 4096;
+
+    private final Path file;
+    private final boolean forceOnAppend;
+    private final Map<String, Long> recoveredBookings;
+    private final DirectoryLock directoryLock;
+
+    // everything below is guarded by the lock
+    private final ReentrantLock lock = new ReentrantLock();
+    private final CRC32 crc = new CRC32();
+    private final ByteBuffer record = ByteBuffer.allocate(RECORD_SIZE);
+    private FileChannel channel;
+    private long records;
+    private long pending;
+
+    public static class ScheduleLogException extends RuntimeException {
+        public ScheduleLogException(String message) {
+            super(message);
+        }
+    }
+
+    @Autowired
+    public ScheduledBookingLog(@Value("${booking.schedule.directory:data/scheduled-bookings}") String directory,
+                               @Value("${booking.schedule.fsync:false}") boolean forceOnAppend) {
+        this.file = Paths.get(directory).resolve(LOG_FILE);
+        this.forceOnAppend = forceOnAppend;
+
+        try {
+            Files.createDirectories(file.getParent());
+            this.directoryLock = DirectoryLock.tryAcquire(file.getParent(), LOCK_FILE);
+        } catch (IOException e) {
+            throw new ScheduleLogException("Scheduled booking log could not be opened in " + directory + ": " + e.getMessage());
+        }
+        if (directoryLock == null) {
+            throw new ScheduleLogException("Scheduled booking log in " + directory + " is already open in another process");
+        }
+
+        try {
+            channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+            this.recoveredBookings = replay();
+            pending = recoveredBookings.size();
+        } catch (IOException e) {
+            directoryLock.release();
+            throw new ScheduleLogException("Scheduled booking log could not be opened in " + directory + ": " + e.getMessage());
+        } catch (RuntimeException e) {
+            directoryLock.release();
+            throw e;
+        }
+
+        System.out.println("✓ Scheduled booking log recovered " + recoveredBookings.size() + " pending bookings from " + records + " records");
+    }
+
+    /**
+     * records that a booking is waiting for its pickup time
+     * @param bookingId id of the booking, must be a UUID
+     * @param pickupAtMillis pickup time in epoch milliseconds
+     */
+    public void appendScheduled(String bookingId, long pickupAtMillis) {
+        append(SCHEDULED, bookingId, pickupAtMillis);
+    }
+
+    /**
+     * records that a booking was released to dispatch or cancelled
+     * @param bookingId id of the booking, must be a UUID
+     */
+    public void appendRemoved(String bookingId) {
+        append(REMOVED, bookingId, 0);
+    }
+
+    /**
+     * @return true once stale records outnumber the pending bookings, so rewriting the log would at least halve it
+     */
+    public boolean needsCompaction() {
+        lock.lock();
+        try {
+            return records >= MIN_RECORDS_BEFORE_COMPACTION && records > 2 * pending;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * rewrites the log with one record per pending booking and swaps it in atomically.
+     * Appends wait while the log is rewritten, so nothing written meanwhile is lost.
+     * @param pendingBookings passes the id and pickup time of every pending booking to the consumer it is given
+     */
+    public void compact(Consumer<ObjLongConsumer<String>> pendingBookings) {
+        Path temp = file.resolveSibling(LOG_FILE + ".tmp");
+
+        lock.lock();
+        try {
+            long[] written = new long[1];
+            try (FileChannel compacted = FileChannel.open(temp, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                    StandardOpenOption.TRUNCATE_EXISTING)) {
+                ByteBuffer buffer = ByteBuffer.allocate(READ_BUFFER_RECORDS * RECORD_SIZE);
+                IOException[] failure = new IOException[1];
+
+                pendingBookings.accept((bookingId, pickupAtMillis) -> {
+                    if (failure[0] != null) {
+                        return;
+                    }
+                    try {
+                        if (!buffer.hasRemaining()) {
+                            writeFully(compacted, buffer);
+                        }
+                        encode(buffer, SCHEDULED, parseBookingId(bookingId), pickupAtMillis);
+                        written[0]++;
+                    } catch (IOException e) {
+                        failure[0] = e;
+                    }
+                });
+                if (failure[0] != null) {
+                    throw failure[0];
+                }
+                writeFully(compacted, buffer);
+                compacted.force(true);
+            }
+
+            channel.close();
+            Files.move(temp, file, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+            channel = FileChannel.open(file, StandardOpenOption.READ, StandardOpenOption.WRITE);
+            channel.position(channel.size());
+
+            System.out.println("✓ Scheduled booking log compacted from " + records + " to " + written[0] + " records");
+            records = written[0];
+            pending = written[0];
+        } catch (IOException e) {
+            throw new ScheduleLogException("Could not compact scheduled booking log: " + e.getMessage());
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * flushes the log to disk and releases the directory for another process
+     */
+    @PreDestroy
+    public void close() {
+        lock.lock();
+        try {
+            if (channel != null && channel.isOpen()) {
+                channel.force(true);
+                channel.close();
+            }
+        } catch (IOException e) {
+            System.out.println("✗ Scheduled booking log could not be closed cleanly: " + e.getMessage());
+        } finally {
+            directoryLock.release();
+            lock.unlock();
+        }
+    }
+
+    //================Getters================
+
+    /**
+     * @return pickup time of every booking that was still pending when the log was opened
+     */
+    public Map<String, Long> getRecoveredBookings() {
+        return new HashMap<>(recoveredBookings);
+    }
+
+    public long getRecordCount() {
+        lock.lock();
+        try {
+            return records;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    //================Helpers================
+
+    private void append(byte type, String bookingId, long pickupAtMillis) {
+        UUID id = parseBookingId(bookingId);
+
+        lock.lock();
+        try {
+            record.clear();
+            encode(record, type, id, pickupAtMillis);
+            writeFully(channel, record);
+            if (forceOnAppend) {
+                channel.force(false);
+            }
+
+            records++;
+            pending = Math.max(0, pending + (type == SCHEDULED ? 1 : -1));
+        } catch (IOException e) {
+            throw new ScheduleLogException("Could not append to scheduled booking log: " + e.getMessage());
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * helper method which reads every record in the log; a record cut short by a crash fails its checksum,
+     * and the log is truncated there so new records are not written after garbage
+     * @return pickup time of every booking scheduled and not removed
+     */
+    private Map<String, Long> replay() throws IOException {
+        Map<String, Long> bookings = new HashMap<>();
+        ByteBuffer buffer = ByteBuffer.allocate(READ_BUFFER_RECORDS * RECORD_SIZE);
+        long validBytes = 0;
+        boolean corrupt = false;
+
+        channel.position(0);
+        while (!corrupt && channel.read(buffer) > 0) {
+            buffer.flip();
+            while (buffer.remaining() >= RECORD_SIZE) {
+                int offset = buffer.position();
+                byte type = buffer.get(offset);
+                if ((type != SCHEDULED && type != REMOVED) || buffer.getInt(offset + CHECKSUMMED_BYTES) != checksum(buffer, offset)) {
+                    corrupt = true;
+                    break;
+                }
+
+                String bookingId = new UUID(buffer.getLong(offset + 4), buffer.getLong(offset + 12)).toString();
+                if (type == SCHEDULED) {
+                    bookings.put(bookingId, buffer.getLong(offset + 20));
+                } else {
+                    bookings.remove(bookingId);
+                }
+                buffer.position(offset + RECORD_SIZE);
+                validBytes += RECORD_SIZE;
+                records++;
+            }
+            buffer.compact();
+        }
+
+        if (validBytes < channel.size()) {
+            System.out.println("✗ Scheduled booking log ends with an unreadable record at " + records + ", truncating");
+            channel.truncate(validBytes);
+        }
+        channel.position(validBytes);
+        return bookings;
+    }
+
+    private void encode(ByteBuffer buffer, byte type, UUID id, long pickupAtMillis) {
+        int offset = buffer.position();
+        buffer.put(type).put((byte) 0).put((byte) 0).put((byte) 0)
+                .putLong(id.getMostSignificantBits())
+                .putLong(id.getLeastSignificantBits())
+                .putLong(pickupAtMillis);
+        buffer.putInt(checksum(buffer, offset));
+    }
+
+    private int checksum(ByteBuffer buffer, int offset) {
+        ByteBuffer checksummed = buffer.duplicate();
+        checksummed.position(offset).limit(offset + CHECKSUMMED_BYTES);
+        crc.reset();
+        crc.update(checksummed);
+        return (int) crc.getValue();
+    }
+
+    private static void writeFully(FileChannel target, ByteBuffer buffer) throws IOException {
+        buffer.flip();
+        while (buffer.hasRemaining()) {
+            target.write(buffer);
+        }
+        buffer.clear();
+    }
+
+    private static UUID parseBookingId(String bookingId) {
+        try {
+            return UUID.fromString(bookingId);
+        } catch (IllegalArgumentException | NullPointerException e) {
+            throw new ScheduleLogException("Booking id must be a UUID: " + bookingId);
+        }
+    }
+}
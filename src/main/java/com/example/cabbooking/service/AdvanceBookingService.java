@@ -0,0 +1,315 @@
+package com.example.cabbooking.service;
+
+import com.example.cabbooking.model.Booking;
+import com.example.cabbooking.model.BookingStatus;
+import com.example.cabbooking.model.Client;
+import com.example.cabbooking.model.Location;
+import com.example.cabbooking.model.Route;
+import com.example.cabbooking.repository.BookingRepository;
+import com.example.cabbooking.repository.ScheduledBookingLog;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+
+@Service
+public class AdvanceBookingService {
+
+    //===========SERVICES============
+    private final BookingService bookingService;
+    private final RouteService routeService;
+    private final BookingWriteBehindService bookingWriteBehindService;
+    private final BookingLifecycleService bookingLifecycleService;
+    private final BookingRepository bookingRepository;
+    private final DispatchService dispatchService;
+    private final ScheduledBookingLog scheduledBookingLog;
+
+    private final long dispatchLeadMillis;
+    private final long minAdvanceMillis;
+    private final long maxAdvanceMillis;
+    private final long retryMillis;
+
+    // the wheel holds each booking's release time (pickup time minus the dispatch lead), guarded by the lock
+    private final ReentrantLock lock = new ReentrantLock();
+    private final TimingWheel wheel;
+    // pickup times of bookings waiting to retry a failed release, whose wheel deadline is the retry instead
+    private final Map<String, Long> retryPickups = new HashMap<>();
+
+    private final AtomicLong scheduled = new AtomicLong();
+    private final AtomicLong released = new AtomicLong();
+    private final AtomicLong cancelled = new AtomicLong();
+    private final AtomicLong releaseRetries = new AtomicLong();
+    private final AtomicLong releaseFailures = new AtomicLong();
+
+    public static class InvalidScheduleException extends RuntimeException {
+        public InvalidScheduleException(String message) {
+            super(message);
+        }
+    }
+
+    public static class ScheduledBookingNotFoundException extends RuntimeException {
+        public ScheduledBookingNotFoundException(String message) {
+            super(message);
+        }
+    }
+
+    @Autowired
+    public AdvanceBookingService(BookingService bookingService,
+                                 RouteService routeService,
+                                 BookingWriteBehindService bookingWriteBehindService,
+                                 BookingLifecycleService bookingLifecycleService,
+                                 BookingRepository bookingRepository,
+                                 DispatchService dispatchService,
+                                 ScheduledBookingLog scheduledBookingLog,
+                                 @Value("${booking.schedule.tick-ms:1000}") long tickMillis,
+                                 @Value("${booking.schedule.wheel-levels:4}") int wheelLevels,
+                                 @Value("${booking.schedule.dispatch-lead-minutes:20}") long dispatchLeadMinutes,
+                                 @Value("${booking.schedule.min-advance-minutes:30}") long minAdvanceMinutes,
+                                 @Value("${booking.schedule.max-advance-days:30}") long maxAdvanceDays,
+                                 @Value("${booking.schedule.retry-seconds:30}") long retrySeconds) {
+        if (dispatchLeadMinutes < 0 || minAdvanceMinutes < dispatchLeadMinutes || maxAdvanceDays <= 0 || retrySeconds <= 0) {
+            throw new IllegalArgumentException("Advance booking window must start no earlier than the dispatch lead and retries must be positive");
+        }
+
+        this.bookingService = bookingService;
+        this.routeService = routeService;
+        this.bookingWriteBehindService = bookingWriteBehindService;
+        this.bookingLifecycleService = bookingLifecycleService;
+        this.bookingRepository = bookingRepository;
+        this.dispatchService = dispatchService;
+        this.scheduledBookingLog = scheduledBookingLog;
+        this.dispatchLeadMillis = TimeUnit.MINUTES.toMillis(dispatchLeadMinutes);
+        this.minAdvanceMillis = TimeUnit.MINUTES.toMillis(minAdvanceMinutes);
+        this.maxAdvanceMillis = TimeUnit.DAYS.toMillis(maxAdvanceDays);
+        this.retryMillis = TimeUnit.SECONDS.toMillis(retrySeconds);
+        this.wheel = new TimingWheel(tickMillis, wheelLevels, System.currentTimeMillis());
+
+        // bookings whose release time passed while the service was down are released on the first tick
+        Map<String, Long> recovered = scheduledBookingLog.getRecoveredBookings();
+        for (Map.Entry<String, Long> entry : recovered.entrySet()) {
+            wheel.schedule(entry.getKey(), entry.getValue() - dispatchLeadMillis);
+        }
+        System.out.println("✓ Advance bookings restored " + recovered.size() + " pending bookings (wheel spans "
+                + TimeUnit.MILLISECONDS.toDays(wheel.getSpanMillis()) + " days)");
+    }
+
+    /**
+     * prices and saves a booking now, and holds it until it is released to dispatch ahead of the pickup time
+     * @param client The Client who is booking
+     * @param from pickup location
+     * @param to destination location
+     * @param pickupAt time the client wants to be picked up
+     * @return the saved Booking
+     */
+    public Booking scheduleBooking(Client client, Location from, Location to, Instant pickupAt) {
+        if (pickupAt == null) {
+            throw new InvalidScheduleException("Pickup time is required for an advance booking");
+        }
+
+        long now = System.currentTimeMillis();
+        long pickupAtMillis = pickupAt.toEpochMilli();
+        if (pickupAtMillis < now + minAdvanceMillis) {
+            throw new InvalidScheduleException("Advance bookings must be made at least "
+                    + TimeUnit.MILLISECONDS.toMinutes(minAdvanceMillis) + " minutes before pickup");
+        }
+        if (pickupAtMillis > now + maxAdvanceMillis) {
+            throw new InvalidScheduleException("Advance bookings can be made at most "
+                    + TimeUnit.MILLISECONDS.toDays(maxAdvanceMillis) + " days ahead");
+        }
+
+        Route route = new Route(from, to, 0);
+        bookingService.validateBookingInputs(client, route);
+        Booking booking = bookingService.priceBooking(UUID.randomUUID().toString(), client, routeService.createRoute(from, to));
+
+        // saved without a driver, one is found when the booking is released
+        bookingWriteBehindService.persist(booking);
+        bookingLifecycleService.register(booking.getId());
+
+        lock.lock();
+        try {
+            scheduledBookingLog.appendScheduled(booking.getId(), pickupAtMillis);
+            wheel.schedule(booking.getId(), pickupAtMillis - dispatchLeadMillis);
+        } finally {
+            lock.unlock();
+        }
+
+        scheduled.incrementAndGet();
+        System.out.println("✓ Advance booking " + booking.getId() + " scheduled for pickup at " + pickupAt);
+        return booking;
+    }
+
+    /**
+     * cancels an advance booking that has not been released to dispatch yet
+     * @param bookingId id of the booking
+     */
+    public void cancelScheduled(String bookingId) {
+        lock.lock();
+        try {
+            if (bookingId == null || !wheel.cancel(bookingId)) {
+                throw new ScheduledBookingNotFoundException("No pending advance booking: " + bookingId);
+            }
+            retryPickups.remove(bookingId);
+            scheduledBookingLog.appendRemoved(bookingId);
+        } finally {
+            lock.unlock();
+        }
+
+        cancelled.incrementAndGet();
+        try {
+            bookingService.updateBookingStatus(bookingId, BookingStatus.CANCELLED);
+        } catch (BookingLifecycleService.BookingNotFoundException | BookingLifecycleService.InvalidTransitionException e) {
+            System.out.println("✗ Advance booking " + bookingId + " removed from the schedule but not cancelled: " + e.getMessage());
+        }
+    }
+
+    /**
+     * @param bookingId id of the booking
+     * @return pickup time of a pending advance booking, empty once it has been released or cancelled
+     */
+    public Optional<Instant> getPickupTime(String bookingId) {
+        if (bookingId == null) {
+            return Optional.empty();
+        }
+
+        lock.lock();
+        try {
+            long releaseAt = wheel.getDeadline(bookingId);
+            return releaseAt < 0 ? Optional.empty() : Optional.of(Instant.ofEpochMilli(pickupTime(bookingId, releaseAt)));
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * releases the bookings whose dispatch lead time has been reached
+     * @return number of bookings released
+     */
+    @Scheduled(fixedDelayString = "${booking.schedule.tick-ms:1000}")
+    public int releaseDue() {
+        return releaseDue(System.currentTimeMillis());
+    }
+
+    int releaseDue(long nowMillis) {
+        List<String> due = new ArrayList<>();
+        List<Long> duePickups = new ArrayList<>();
+        lock.lock();
+        try {
+            wheel.advanceTo(nowMillis, (bookingId, releaseAt) -> {
+                due.add(bookingId);
+                duePickups.add(pickupTime(bookingId, releaseAt));
+                retryPickups.remove(bookingId);
+            });
+        } finally {
+            lock.unlock();
+        }
+
+        int releasedNow = 0;
+        for (int i = 0; i < due.size(); i++) {
+            if (release(due.get(i), duePickups.get(i), nowMillis)) {
+                releasedNow++;
+            }
+        }
+
+        if (scheduledBookingLog.needsCompaction()) {
+            lock.lock();
+            try {
+                scheduledBookingLog.compact(writer ->
+                        wheel.forEach((bookingId, releaseAt) -> writer.accept(bookingId, pickupTime(bookingId, releaseAt))));
+            } finally {
+                lock.unlock();
+            }
+        }
+        return releasedNow;
+    }
+
+    /**
+     * advance booking counters
+     * @return map of metric names to values
+     */
+    public Map<String, Object> getMetrics() {
+        Map<String, Object> metrics = new HashMap<>();
+        metrics.put("scheduled", scheduled.get());
+        metrics.put("released", released.get());
+        metrics.put("cancelled", cancelled.get());
+        metrics.put("releaseRetries", releaseRetries.get());
+        metrics.put("releaseFailures", releaseFailures.get());
+        metrics.put("pending", getPendingCount());
+        metrics.put("logRecords", scheduledBookingLog.getRecordCount());
+        return metrics;
+    }
+
+    public int getPendingCount() {
+        lock.lock();
+        try {
+            return wheel.size();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * helper method which hands a due booking to dispatch; a booking that cannot be loaded is tried again
+     * until its pickup time has passed
+     * @return true if the booking was dispatched
+     */
+    private boolean release(String bookingId, long pickupAtMillis, long nowMillis) {
+        try {
+            if (bookingLifecycleService.getStatus(bookingId).isTerminal()) {
+                scheduledBookingLog.appendRemoved(bookingId);
+                return false;
+            }
+
+            Optional<Booking> booking = bookingRepository.findById(bookingId);
+            if (booking.isPresent()) {
+                dispatchService.dispatchSaved(booking.get());
+                scheduledBookingLog.appendRemoved(bookingId);
+                released.incrementAndGet();
+                System.out.println("✓ Advance booking " + bookingId + " released to dispatch");
+                return true;
+            }
+        } catch (BookingLifecycleService.BookingNotFoundException e) {
+            System.out.println("✗ Advance booking " + bookingId + " has no lifecycle record, dropping it");
+            scheduledBookingLog.appendRemoved(bookingId);
+            releaseFailures.incrementAndGet();
+            return false;
+        } catch (RuntimeException e) {
+            System.out.println("✗ Could not release advance booking " + bookingId + ": " + e.getMessage());
+        }
+
+        lock.lock();
+        try {
+            if (nowMillis + retryMillis < pickupAtMillis) {
+                retryPickups.put(bookingId, pickupAtMillis);
+                wheel.schedule(bookingId, nowMillis + retryMillis);
+                releaseRetries.incrementAndGet();
+                return false;
+            }
+            scheduledBookingLog.appendRemoved(bookingId);
+        } finally {
+            lock.unlock();
+        }
+
+        releaseFailures.incrementAndGet();
+        System.out.println("✗ Advance booking " + bookingId + " could not be released before pickup at " + Instant.ofEpochMilli(pickupAtMillis));
+        return false;
+    }
+
+    /**
+     * helper method which turns a wheel deadline back into the pickup time, must be called while holding the lock
+     */
+    private long pickupTime(String bookingId, long releaseAtMillis) {
+        Long retrying = retryPickups.get(bookingId);
+        return retrying != null ? retrying : releaseAtMillis + dispatchLeadMillis;
+    }
+}
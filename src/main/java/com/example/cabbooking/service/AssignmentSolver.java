@@ -0,0 +1,182 @@
+package com.example.cabbooking.service;
+
+import java.util.Arrays;
+
+/**
+ * solvers for matching waiting bookings (rows) to drivers (columns) from a row-major cost matrix
+ */
+public final class AssignmentSolver {
+
+    /**
+     * cost used for pairs that must not be matched, e.g. a driver beyond the pickup radius
+     */
+    public static final double INFEASIBLE = 1_000_000.0;
+
+    private AssignmentSolver() {}
+
+    /**
+     * Hungarian algorithm (shortest augmenting path with potentials), O(n^2 m) for n rows and m columns
+     * gives up once the deadline passes, so a dispatch tick can fall back to greedy instead of overrunning
+     * @param cost row-major rows x cols cost matrix
+     * @param rows number of rows
+     * @param cols number of columns
+     * @param deadlineNanos System.nanoTime() value after which the solver stops
+     * @return column assigned to each row (-1 for none or infeasible), or null if the deadline passed
+     */
+    public static int[] solveOptimal(double[] cost, int rows, int cols, long deadlineNanos) {
+        if (rows == 0 || cols == 0) {
+            return emptyAssignment(rows);
+        }
+
+        // the algorithm needs at least as many columns as rows, so solve the transposed problem otherwise
+        if (rows > cols) {
+            double[] transposed = new double[rows * cols];
+            for (int i = 0; i < rows; i++) {
+                for (int j = 0; j < cols; j++) {
+                    transposed[j * rows + i] = cost[i * cols + j];
+                }
+            }
+            int[] byColumn = solveOptimal(transposed, cols, rows, deadlineNanos);
+            if (byColumn == null) {
+                return null;
+            }
+            int[] byRow = emptyAssignment(rows);
+            for (int j = 0; j < cols; j++) {
+                if (byColumn[j] >= 0) {
+                    byRow[byColumn[j]] = j;
+                }
+            }
+            return byRow;
+        }
+
+        // 1-based arrays as in the textbook version; index 0 is the virtual starting column
+        double[] u = new double[rows + 1];
+        double[] v = new double[cols + 1];
+        int[] match = new int[cols + 1];
+        int[] way = new int[cols + 1];
+        double[] minValue = new double[cols + 1];
+        boolean[] used = new boolean[cols + 1];
+
+        for (int i = 1; i <= rows; i++) {
+            if (System.nanoTime() > deadlineNanos) {
+                return null;
+            }
+
+            match[0] = i;
+            int column = 0;
+            Arrays.fill(minValue, Double.POSITIVE_INFINITY);
+            Arrays.fill(used, false);
+
+            do {
+                used[column] = true;
+                int row = match[column];
+                int rowOffset = (row - 1) * cols - 1;
+                double delta = Double.POSITIVE_INFINITY;
+                int next = 0;
+
+                for (int j = 1; j <= cols; j++) {
+                    if (!used[j]) {
+                        double reduced = cost[rowOffset + j] - u[row] - v[j];
+                        if (reduced < minValue[j]) {
+                            minValue[j] = reduced;
+                            way[j] = column;
+                        }
+                        if (minValue[j] < delta) {
+                            delta = minValue[j];
+                            next = j;
+                        }
+                    }
+                }
+
+                for (int j = 0; j <= cols; j++) {
+                    if (used[j]) {
+                        u[match[j]] += delta;
+                        v[j] -= delta;
+                    } else {
+                        minValue[j] -= delta;
+                    }
+                }
+                column = next;
+            } while (match[column] != 0);
+
+            do {
+                int previous = way[column];
+                match[column] = match[previous];
+                column = previous;
+            } while (column != 0);
+        }
+
+        int[] assignment = emptyAssignment(rows);
+        for (int j = 1; j <= cols; j++) {
+            if (match[j] != 0 && cost[(match[j] - 1) * cols + j - 1] < INFEASIBLE) {
+                assignment[match[j] - 1] = j - 1;
+            }
+        }
+        return assignment;
+    }
+
+    /**
+     * first-come greedy matching: each row in turn takes the cheapest column nobody has taken yet
+     * @param cost row-major rows x cols cost matrix
+     * @param rows number of rows, in arrival order
+     * @param cols number of columns
+     * @return column assigned to each row, -1 for none
+     */
+    public static int[] solveGreedy(double[] cost, int rows, int cols) {
+        int[] assignment = emptyAssignment(rows);
+        boolean[] taken = new boolean[cols];
+
+        for (int i = 0; i < rows; i++) {
+            int best = -1;
+            double bestCost = INFEASIBLE;
+            for (int j = 0; j < cols; j++) {
+                double c = cost[i * cols + j];
+                if (!taken[j] && c < bestCost) {
+                    best = j;
+                    bestCost = c;
+                }
+            }
+            if (best >= 0) {
+                taken[best] = true;
+                assignment[i] = best;
+            }
+        }
+        return assignment;
+    }
+
+    /**
+     * @param cost row-major cost matrix
+     * @param cols number of columns
+     * @param assignment column assigned to each row, -1 for none
+     * @return total cost of the matched pairs
+     */
+    public static double totalCost(double[] cost, int cols, int[] assignment) {
+        double total = 0;
+        for (int i = 0; i < assignment.length; i++) {
+            if (assignment[i] >= 0) {
+                total += cost[i * cols + assignment[i]];
+            }
+        }
+        return total;
+    }
+
+    /**
+     * @param assignment column assigned to each row, -1 for none
+     * @return number of rows that were matched
+     */
+    public static int matchedCount(int[] assignment) {
+        int matched = 0;
+        for (int column : assignment) {
+            if (column >= 0) {
+                matched++;
+            }
+        }
+        return matched;
+    }
+
+    private static int[] emptyAssignment(int rows) {
+        int[] assignment = new int[rows];
+        Arrays.fill(assignment, -1);
+        return assignment;
+    }
+}
@@ -0,0 +1,165 @@
+package com.example.cabbooking.service;
+
+import com.example.cabbooking.model.Booking;
+import com.example.cabbooking.model.BookingHistoryPage;
+import com.example.cabbooking.model.BookingStatus;
+import com.example.cabbooking.model.BookingSummary;
+import com.example.cabbooking.repository.BookingRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.nio.charset.StandardCharsets;
+import java.time.DateTimeException;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.List;
+import java.util.Map;
+import java.util.function.BiConsumer;
+import java.util.function.Function;
+
+@Service
+public class BookingHistoryService {
+
+    private final BookingRepository bookingRepository;
+    private final BookingLifecycleService bookingLifecycleService;
+    private final int defaultPageSize;
+    private final int maxPageSize;
+
+    public static class InvalidPageRequestException extends RuntimeException {
+        public InvalidPageRequestException(String message) {
+            super(message);
+        }
+    }
+
+    @Autowired
+    public BookingHistoryService(BookingRepository bookingRepository,
+                                 BookingLifecycleService bookingLifecycleService,
+                                 @Value("${booking.history.default-page-size:20}") int defaultPageSize,
+                                 @Value("${booking.history.max-page-size:100}") int maxPageSize) {
+        if (defaultPageSize <= 0 || maxPageSize < defaultPageSize) {
+            throw new IllegalArgumentException("History page sizes must be positive and the default cannot exceed the maximum");
+        }
+        this.bookingRepository = bookingRepository;
+        this.bookingLifecycleService = bookingLifecycleService;
+        this.defaultPageSize = defaultPageSize;
+        this.maxPageSize = maxPageSize;
+    }
+
+    /**
+     * one page of a client's bookings, newest first
+     * @param clientId id of the client
+     * @param cursor nextCursor of the previous page, null for the first page
+     * @param limit page size, null for the default
+     * @return the bookings and the cursor of the next page
+     */
+    public BookingHistoryPage<Booking> getBookings(int clientId, String cursor, Integer limit) {
+        int pageSize = pageSize(limit);
+        Position after = decodeCursor(cursor);
+        List<Booking> rows = bookingRepository.findPageByClient(clientId, after.createdAt, after.id, pageSize + 1);
+        BookingHistoryPage<Booking> page = toPage(rows, pageSize, Booking::getCreatedAt, Booking::getId);
+        applyCurrentStatus(page.getBookings(), Booking::getId, Booking::setStatus);
+        return page;
+    }
+
+    /**
+     * same as getBookings, with only the summary fields of each booking
+     * @param clientId id of the client
+     * @param cursor nextCursor of the previous page, null for the first page
+     * @param limit page size, null for the default
+     * @return the booking summaries and the cursor of the next page
+     */
+    public BookingHistoryPage<BookingSummary> getBookingSummaries(int clientId, String cursor, Integer limit) {
+        int pageSize = pageSize(limit);
+        Position after = decodeCursor(cursor);
+        List<BookingSummary> rows = bookingRepository.findSummaryPageByClient(clientId, after.createdAt, after.id, pageSize + 1);
+        BookingHistoryPage<BookingSummary> page = toPage(rows, pageSize, BookingSummary::getCreatedAt, BookingSummary::getId);
+        applyCurrentStatus(page.getBookings(), BookingSummary::getId, BookingSummary::setStatus);
+        return page;
+    }
+
+    //================Helpers================
+
+    /**
+     * helper method which trims the one extra row fetched to tell whether another page follows
+     */
+    private <T> BookingHistoryPage<T> toPage(List<T> rows, int pageSize, Function<T, Instant> createdAt, Function<T, String> id) {
+        if (rows.size() <= pageSize) {
+            return new BookingHistoryPage<>(rows, null);
+        }
+
+        List<T> page = rows.subList(0, pageSize);
+        T last = page.get(pageSize - 1);
+        return new BookingHistoryPage<>(page, encodeCursor(createdAt.apply(last), id.apply(last)));
+    }
+
+    /**
+     * helper method which shows each booking on a page in its current status. The row's status can trail the
+     * lifecycle while its update waits behind the write-behind queue; bookings the lifecycle has purged keep the row's
+     */
+    private <T> void applyCurrentStatus(List<T> page, Function<T, String> id, BiConsumer<T, BookingStatus> setStatus) {
+        if (page.isEmpty()) {
+            return;
+        }
+
+        List<String> ids = new ArrayList<>(page.size());
+        for (T row : page) {
+            ids.add(id.apply(row));
+        }
+        Map<String, BookingStatus> current = bookingLifecycleService.getStatuses(ids);
+        for (T row : page) {
+            BookingStatus status = current.get(id.apply(row));
+            if (status != null) {
+                setStatus.accept(row, status);
+            }
+        }
+    }
+
+    private int pageSize(Integer limit) {
+        if (limit == null) {
+            return defaultPageSize;
+        }
+        if (limit <= 0 || limit > maxPageSize) {
+            throw new InvalidPageRequestException("Page size must be between 1 and " + maxPageSize + ", got: " + limit);
+        }
+        return limit;
+    }
+
+    /**
+     * the cursor is the created_at and id of the last booking on a page, base64 encoded so clients treat it as opaque
+     */
+    static String encodeCursor(Instant createdAt, String id) {
+        String position = createdAt.getEpochSecond() + ":" + createdAt.getNano() + ":" + id;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(position.getBytes(StandardCharsets.UTF_8));
+    }
+
+    static Position decodeCursor(String cursor) {
+        if (cursor == null || cursor.isBlank()) {
+            return new Position(null, null);
+        }
+
+        try {
+            String[] parts = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8).split(":", 3);
+            if (parts.length != 3 || parts[2].isBlank()) {
+                throw new IllegalArgumentException("wrong number of fields");
+            }
+            return new Position(Instant.ofEpochSecond(Long.parseLong(parts[0]), Long.parseLong(parts[1])), parts[2]);
+        } catch (IllegalArgumentException | DateTimeException e) {
+            throw new InvalidPageRequestException("Invalid page cursor: " + cursor);
+        }
+    }
+
+    static final class Position {
+        private final Instant createdAt;
+        private final String id;
+
+        private Position(Instant createdAt, String id) {
+            this.createdAt = createdAt;
+            this.id = id;
+        }
+
+        Instant getCreatedAt() {return createdAt;}
+        String getId() {return id;}
+    }
+}
@@ -0,0 +1,321 @@
+package com.example.cabbooking.service;
+
+import com.example.cabbooking.model.BookingStatus;
+import com.example.cabbooking.repository.BookingJournal;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+@Service
+public class BookingLifecycleService {
+
+    private static final int LOCK_STRIPES = 64;
+
+    private final BookingJournal bookingJournal;
+    private final long snapshotInterval;
+    private final long terminalRetentionMillis;
+
+    // current status of every booking, rebuilt from the journal on start-up
+    private final ConcurrentHashMap<String, BookingStatus> statuses;
+    private final AtomicBoolean snapshotRunning = new AtomicBoolean();
+
+    // when each completed or cancelled booking reached that status, so it can be forgotten after the retention
+    private final ConcurrentHashMap<String, Long> terminalSince = new ConcurrentHashMap<>();
+
+    // bookings whose payment is being taken; kept out of the journal, since a charge is keyed by its quote and
+    // confirming again after a restart cannot charge twice
+    private final Set<String> paymentClaims = ConcurrentHashMap.newKeySet();
+
+    // transitions share the read lock; a snapshot briefly takes the write lock so no journal record
+    // is written without its status change already being in the map it copies
+    private final ReentrantReadWriteLock snapshotLock = new ReentrantReadWriteLock();
+
+    // serialises changes to the same booking so its journal records are written in the order they are applied;
+    // not ConcurrentHashMap.compute, whose bin lock is a monitor and would pin a virtual thread during the journal write
+    private final ReentrantLock[] bookingLocks = new ReentrantLock[LOCK_STRIPES];
+
+    public static class BookingNotFoundException extends RuntimeException {
+        public BookingNotFoundException(String message) {
+            super(message);
+        }
+    }
+
+    public static class InvalidTransitionException extends RuntimeException {
+        public InvalidTransitionException(String message) {
+            super(message);
+        }
+    }
+
+    @Autowired
+    public BookingLifecycleService(BookingJournal bookingJournal,
+                                   @Value("${booking.journal.snapshot-interval:10000}") long snapshotInterval,
+                                   @Value("${booking.lifecycle.terminal-retention-ms:3600000}") long terminalRetentionMillis) {
+        if (snapshotInterval <= 0) {
+            throw new IllegalArgumentException("Snapshot interval must be positive: " + snapshotInterval);
+        }
+        if (terminalRetentionMillis < 0) {
+            throw new IllegalArgumentException("Terminal booking retention cannot be negative: " + terminalRetentionMillis);
+        }
+
+        this.bookingJournal = bookingJournal;
+        this.snapshotInterval = snapshotInterval;
+        this.terminalRetentionMillis = terminalRetentionMillis;
+        this.statuses = new ConcurrentHashMap<>(bookingJournal.getRecoveredState());
+        long now = System.currentTimeMillis();
+        statuses.forEach((bookingId, status) -> {
+            if (status.isTerminal()) {
+                terminalSince.put(bookingId, now);
+            }
+        });
+        for (int i = 0; i < LOCK_STRIPES; i++) {
+            bookingLocks[i] = new ReentrantLock();
+        }
+    }
+
+    /**
+     * records a new booking in the REQUESTED status
+     * @param bookingId id of the new booking
+     */
+    public void register(String bookingId) {
+        validateBookingId(bookingId);
+
+        ReentrantLock bookingLock = lockFor(bookingId);
+        snapshotLock.readLock().lock();
+        bookingLock.lock();
+        try {
+            BookingStatus current = statuses.get(bookingId);
+            if (current != null) {
+                throw new InvalidTransitionException("Booking " + bookingId + " is already registered as " + current);
+            }
+            bookingJournal.append(bookingId, null, BookingStatus.REQUESTED);
+            statuses.put(bookingId, BookingStatus.REQUESTED);
+        } finally {
+            bookingLock.unlock();
+            snapshotLock.readLock().unlock();
+        }
+
+        snapshotIfDue();
+    }
+
+    /**
+     * moves a booking to its next status if the state machine allows it
+     * @param bookingId id of the booking
+     * @param next status the booking is moving to
+     * @return status the booking had before the transition
+     */
+    public BookingStatus transition(String bookingId, BookingStatus next) {
+        return transition(bookingId, next, false);
+    }
+
+    /**
+     * claims a booking for payment, so only one caller can charge for it and it cannot move anywhere else
+     * until the claim is completed or released
+     * @param bookingId id of the booking
+     * @return current status of the booking
+     */
+    public BookingStatus claimPayment(String bookingId) {
+        validateBookingId(bookingId);
+
+        ReentrantLock bookingLock = lockFor(bookingId);
+        bookingLock.lock();
+        try {
+            BookingStatus current = statuses.get(bookingId);
+            if (current == null) {
+                throw new BookingNotFoundException("Booking not found: " + bookingId);
+            }
+            if (!current.canTransitionTo(BookingStatus.PAID)) {
+                throw new InvalidTransitionException("Booking " + bookingId + " cannot be paid while it is " + current);
+            }
+            if (!paymentClaims.add(bookingId)) {
+                throw new InvalidTransitionException("Booking " + bookingId + " is already being paid");
+            }
+            return current;
+        } finally {
+            bookingLock.unlock();
+        }
+    }
+
+    /**
+     * moves a booking claimed with claimPayment() to PAID and drops the claim
+     * @param bookingId id of the booking
+     * @return status the booking had before it was paid
+     */
+    public BookingStatus completePayment(String bookingId) {
+        return transition(bookingId, BookingStatus.PAID, true);
+    }
+
+    /**
+     * drops a payment claim without moving the booking, when the charge failed
+     * @param bookingId id of the booking
+     */
+    public void releasePayment(String bookingId) {
+        if (bookingId != null) {
+            paymentClaims.remove(bookingId);
+        }
+    }
+
+    /**
+     * helper method which applies a transition; a booking being paid only moves when its payment completes
+     */
+    private BookingStatus transition(String bookingId, BookingStatus next, boolean completingPayment) {
+        validateBookingId(bookingId);
+
+        if (next == null) {
+            throw new InvalidTransitionException("Target status cannot be null");
+        }
+
+        BookingStatus previous;
+        ReentrantLock bookingLock = lockFor(bookingId);
+        snapshotLock.readLock().lock();
+        bookingLock.lock();
+        try {
+            previous = statuses.get(bookingId);
+            if (previous == null) {
+                throw new BookingNotFoundException("Booking not found: " + bookingId);
+            }
+            if (paymentClaims.contains(bookingId) != completingPayment) {
+                throw new InvalidTransitionException(completingPayment
+                        ? "Booking " + bookingId + " was not claimed for payment"
+                        : "Booking " + bookingId + " cannot move to " + next + " while its payment is being taken");
+            }
+            if (!previous.canTransitionTo(next)) {
+                throw new InvalidTransitionException("Booking " + bookingId + " cannot move from " + previous + " to " + next);
+            }
+            bookingJournal.append(bookingId, previous, next);
+            statuses.put(bookingId, next);
+            paymentClaims.remove(bookingId);
+            if (next.isTerminal()) {
+                terminalSince.put(bookingId, System.currentTimeMillis());
+            }
+        } finally {
+            bookingLock.unlock();
+            snapshotLock.readLock().unlock();
+        }
+
+        snapshotIfDue();
+        System.out.println("✓ Booking " + bookingId + " moved from " + previous + " to " + next);
+        return previous;
+    }
+
+    /**
+     * gets the current status of a booking
+     * @param bookingId id of the booking
+     * @return current status
+     */
+    public BookingStatus getStatus(String bookingId) {
+        validateBookingId(bookingId);
+
+        BookingStatus status = statuses.get(bookingId);
+        if (status == null) {
+            throw new BookingNotFoundException("Booking not found: " + bookingId);
+        }
+        return status;
+    }
+
+    /**
+     * gets the current status of several bookings at once, such as one page of a client's history
+     * @param bookingIds ids of the bookings
+     * @return current status by booking id, leaving out bookings that are unknown or were purged
+     */
+    public Map<String, BookingStatus> getStatuses(Collection<String> bookingIds) {
+        Map<String, BookingStatus> found = new HashMap<>();
+        for (String bookingId : bookingIds) {
+            BookingStatus status = bookingId == null ? null : statuses.get(bookingId);
+            if (status != null) {
+                found.put(bookingId, status);
+            }
+        }
+        return found;
+    }
+
+    public int getBookingCount() {
+        return statuses.size();
+    }
+
+    /**
+     * forgets completed and cancelled bookings once they have been in that status for the retention,
+     * after which getStatus() no longer finds them. Snapshots already leave them out
+     * @return number of bookings removed
+     */
+    @Scheduled(fixedDelayString = "${booking.lifecycle.purge-ms:60000}")
+    public int purgeTerminal() {
+        long cutoff = System.currentTimeMillis() - terminalRetentionMillis;
+        int removed = 0;
+        for (Map.Entry<String, Long> entry : terminalSince.entrySet()) {
+            if (entry.getValue() > cutoff) {
+                continue;
+            }
+            String bookingId = entry.getKey();
+            ReentrantLock bookingLock = lockFor(bookingId);
+            bookingLock.lock();
+            try {
+                BookingStatus status = statuses.get(bookingId);
+                if (status == null || status.isTerminal()) {
+                    statuses.remove(bookingId);
+                    removed++;
+                }
+                terminalSince.remove(bookingId);
+            } finally {
+                bookingLock.unlock();
+            }
+        }
+        return removed;
+    }
+
+    /**
+     * helper method which writes a snapshot once enough records have been appended since the last one,
+     * only one caller writes it while the others carry on
+     */
+    private void snapshotIfDue() {
+        if (bookingJournal.getRecordsSinceSnapshot() < snapshotInterval || !snapshotRunning.compareAndSet(false, true)) {
+            return;
+        }
+
+        try {
+            long sequence;
+            Map<String, BookingStatus> state;
+            snapshotLock.writeLock().lock();
+            try {
+                sequence = bookingJournal.getLastSequence();
+                // completed and cancelled bookings cannot move again, so a restart does not need them
+                Map<String, BookingStatus> active = new HashMap<>(statuses.size());
+                statuses.forEach((bookingId, status) -> {
+                    if (!status.isTerminal()) {
+                        active.put(bookingId, status);
+                    }
+                });
+                state = active;
+            } finally {
+                snapshotLock.writeLock().unlock();
+            }
+
+            // the file itself is written without holding up transitions
+            bookingJournal.snapshot(sequence, state);
+        } catch (BookingJournal.JournalException e) {
+            System.out.println("✗ Booking snapshot failed, journal will be replayed from the previous one: " + e.getMessage());
+        } finally {
+            snapshotRunning.set(false);
+        }
+    }
+
+    private ReentrantLock lockFor(String bookingId) {
+        int hash = bookingId.hashCode();
+        return bookingLocks[((hash ^ (hash >>> 16)) & 0x7fffffff) % LOCK_STRIPES];
+    }
+
+    private static void validateBookingId(String bookingId) {
+        if (bookingId == null || bookingId.trim().isEmpty()) {
+            throw new BookingNotFoundException("Booking id cannot be null or empty");
+        }
+    }
+}
@@ -0,0 +1,355 @@
+package com.example.cabbooking.service;
+
+import com.example.cabbooking.model.Booking;
+import com.example.cabbooking.model.Client;
+import com.example.cabbooking.model.Location;
+import com.example.cabbooking.model.OutboxMessage;
+import com.example.cabbooking.model.Route;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.Consumer;
+
+@Service
+public class BookingPipelineService {
+
+    /**
+     * how far a booking has got: ACCEPTED -> PRICED -> PERSISTED -> COMPLETED, or FAILED at any stage
+     */
+    public enum Stage { ACCEPTED, PRICED, PERSISTED, COMPLETED, FAILED }
+
+    private static final long IDLE_PARK_NANOS = TimeUnit.MILLISECONDS.toNanos(1);
+    private static final int STAGE_BATCH_SIZE = 64;
+    private static final long STOP_TIMEOUT_MILLIS = 5_000;
+
+    //===========SERVICES============
+    private final BookingService bookingService;
+    private final RouteService routeService;
+    private final BookingWriteBehindService bookingWriteBehindService;
+    private final BookingLifecycleService bookingLifecycleService;
+    private final DispatchService dispatchService;
+    private final ThreadFactory threadFactory;
+
+    private final int persistBatchSize;
+    private final long resultTtlMillis;
+
+    // stage inputs: accepted bookings wait to be priced, priced ones to be saved, saved ones to be dispatched
+    private final RingBuffer<Ticket> acceptedQueue;
+    private final RingBuffer<Ticket> pricedQueue;
+    private final RingBuffer<Ticket> persistedQueue;
+
+    private final ConcurrentHashMap<String, Ticket> tickets = new ConcurrentHashMap<>();
+    private final List<Thread> stageThreads = new ArrayList<>();
+    private volatile boolean running;
+
+    private final AtomicLong accepted = new AtomicLong();
+    private final AtomicLong rejected = new AtomicLong();
+    private final AtomicLong completed = new AtomicLong();
+    private final AtomicLong failed = new AtomicLong();
+    private final AtomicLong persistBatches = new AtomicLong();
+
+    public static class PipelineFullException extends RuntimeException {
+        public PipelineFullException(String message) {
+            super(message);
+        }
+    }
+
+    @Autowired
+    public BookingPipelineService(BookingService bookingService,
+                                  RouteService routeService,
+                                  BookingWriteBehindService bookingWriteBehindService,
+                                  BookingLifecycleService bookingLifecycleService,
+                                  DispatchService dispatchService,
+                                  ThreadFactory workerThreadFactory,
+                                  @Value("${booking.pipeline.queue-capacity:4096}") int queueCapacity,
+                                  @Value("${booking.pipeline.persist-batch-size:200}") int persistBatchSize,
+                                  @Value("${booking.pipeline.result-ttl-seconds:600}") long resultTtlSeconds) {
+        if (queueCapacity < 2 || persistBatchSize <= 0 || resultTtlSeconds < 0) {
+            throw new IllegalArgumentException("Pipeline queue capacity must be at least 2, batch size positive and result ttl not negative");
+        }
+
+        this.bookingService = bookingService;
+        this.routeService = routeService;
+        this.bookingWriteBehindService = bookingWriteBehindService;
+        this.bookingLifecycleService = bookingLifecycleService;
+        this.dispatchService = dispatchService;
+        this.threadFactory = workerThreadFactory;
+        this.persistBatchSize = persistBatchSize;
+        this.resultTtlMillis = TimeUnit.SECONDS.toMillis(resultTtlSeconds);
+        this.acceptedQueue = new RingBuffer<>(queueCapacity);
+        this.pricedQueue = new RingBuffer<>(queueCapacity);
+        this.persistedQueue = new RingBuffer<>(queueCapacity);
+    }
+
+    /**
+     * starts one thread per stage
+     */
+    @PostConstruct
+    public void start() {
+        if (running) {
+            return;
+        }
+
+        running = true;
+        Thread pricing = startStage("booking-pipeline-price", acceptedQueue, null, STAGE_BATCH_SIZE, this::priceStage);
+        Thread persisting = startStage("booking-pipeline-persist", pricedQueue, pricing, persistBatchSize, this::persistStage);
+        startStage("booking-pipeline-dispatch", persistedQueue, persisting, STAGE_BATCH_SIZE, this::dispatchStage);
+        System.out.println("✓ Booking pipeline started (queue capacity " + acceptedQueue.capacity() + ", persist batch " + persistBatchSize + ")");
+    }
+
+    /**
+     * stops accepting bookings and lets every stage finish what is already queued
+     */
+    @PreDestroy
+    public void stop() {
+        running = false;
+        for (Thread stage : stageThreads) {
+            try {
+                stage.join(STOP_TIMEOUT_MILLIS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        stageThreads.clear();
+    }
+
+    /**
+     * accept stage: validates the booking on the caller's thread and queues it for pricing
+     * @param client The Client who is booking
+     * @param from pickup location
+     * @param to destination location
+     * @return ticket holding the new booking id, to be polled for the result
+     */
+    public Ticket submit(Client client, Location from, Location to) {
+        bookingService.validateBookingInputs(client, new Route(from, to, 0));
+        if (from.equals(to)) {
+            throw new BookingService.InvalidBookingException("Cannot book cab for same pickup and destination location: " + from.getLocationName());
+        }
+
+        if (!running) {
+            rejected.incrementAndGet();
+            throw new PipelineFullException("Booking pipeline is not accepting bookings");
+        }
+
+        Ticket ticket = new Ticket(UUID.randomUUID().toString(), client, from, to);
+        tickets.put(ticket.bookingId, ticket);
+        if (!acceptedQueue.offer(ticket)) {
+            tickets.remove(ticket.bookingId);
+            rejected.incrementAndGet();
+            throw new PipelineFullException("Booking pipeline is full, please try again shortly");
+        }
+
+        accepted.incrementAndGet();
+        return ticket;
+    }
+
+    /**
+     * @param bookingId id returned by submit()
+     * @return the booking's ticket, empty if the id is unknown or its result has expired
+     */
+    public Optional<Ticket> getTicket(String bookingId) {
+        return bookingId == null ? Optional.empty() : Optional.ofNullable(tickets.get(bookingId));
+    }
+
+    /**
+     * forgets finished bookings once their result has been available for the ttl
+     * @return number of tickets removed
+     */
+    @Scheduled(fixedDelayString = "${booking.pipeline.purge-ms:60000}")
+    public int purgeFinished() {
+        long cutoff = System.currentTimeMillis() - resultTtlMillis;
+        int removed = 0;
+        for (Ticket ticket : tickets.values()) {
+            if (ticket.finishedAt > 0 && ticket.finishedAt <= cutoff && tickets.remove(ticket.bookingId, ticket)) {
+                removed++;
+            }
+        }
+        return removed;
+    }
+
+    /**
+     * pipeline counters and how full each stage queue is
+     * @return map of metric names to values
+     */
+    public Map<String, Object> getMetrics() {
+        Map<String, Object> metrics = new HashMap<>();
+        metrics.put("accepted", accepted.get());
+        metrics.put("rejected", rejected.get());
+        metrics.put("completed", completed.get());
+        metrics.put("failed", failed.get());
+        metrics.put("persistBatches", persistBatches.get());
+        metrics.put("queueCapacity", acceptedQueue.capacity());
+        metrics.put("waitingForPricing", acceptedQueue.size());
+        metrics.put("waitingForPersistence", pricedQueue.size());
+        metrics.put("waitingForDispatch", persistedQueue.size());
+        return metrics;
+    }
+
+    //================Stages================
+
+    private void priceStage(List<Ticket> batch) {
+        for (Ticket ticket : batch) {
+            try {
+                Route route = routeService.createRoute(ticket.from, ticket.to);
+                ticket.booking = bookingService.priceBooking(ticket.bookingId, ticket.client, route);
+                ticket.stage = Stage.PRICED;
+                handOff(pricedQueue, ticket);
+            } catch (RuntimeException e) {
+                fail(ticket, "Cannot price booking: " + e.getMessage());
+            }
+        }
+    }
+
+    private void persistStage(List<Ticket> batch) {
+        List<Booking> bookings = new ArrayList<>(batch.size());
+        List<OutboxMessage> confirmations = new ArrayList<>(batch.size());
+        for (Ticket ticket : batch) {
+            bookings.add(ticket.booking);
+            confirmations.add(bookingService.bookingConfirmation(ticket.client, ticket.booking));
+        }
+
+        boolean[] saved;
+        try {
+            saved = bookingWriteBehindService.persistBatch(bookings, confirmations);
+            persistBatches.incrementAndGet();
+        } catch (RuntimeException e) {
+            for (Ticket ticket : batch) {
+                fail(ticket, "Cannot save booking: " + e.getMessage());
+            }
+            return;
+        }
+
+        for (int i = 0; i < batch.size(); i++) {
+            Ticket ticket = batch.get(i);
+            if (saved[i]) {
+                ticket.stage = Stage.PERSISTED;
+                handOff(persistedQueue, ticket);
+            } else {
+                fail(ticket, "Cannot save booking: booking " + ticket.bookingId + " could not be saved");
+            }
+        }
+    }
+
+    private void dispatchStage(List<Ticket> batch) {
+        for (Ticket ticket : batch) {
+            try {
+                bookingLifecycleService.register(ticket.bookingId);
+                dispatchService.dispatchSaved(ticket.booking);
+                ticket.finishedAt = System.currentTimeMillis();
+                ticket.stage = Stage.COMPLETED;
+                completed.incrementAndGet();
+            } catch (RuntimeException e) {
+                fail(ticket, "Cannot dispatch booking: " + e.getMessage());
+            }
+        }
+    }
+
+    //================Stage plumbing================
+
+    private Thread startStage(String name, RingBuffer<Ticket> input, Thread upstream, int batchSize,
+                              Consumer<List<Ticket>> handler) {
+        Thread stage = threadFactory.newThread(() -> runStage(input, upstream, batchSize, handler));
+        stage.setName(name);
+        stage.setDaemon(true);
+        stage.start();
+        stageThreads.add(stage);
+        return stage;
+    }
+
+    /**
+     * stage loop: drain whatever is waiting (up to batchSize) and handle it together, park briefly when idle.
+     * On shutdown a stage keeps going until its upstream stage has finished and its own input is empty.
+     */
+    private void runStage(RingBuffer<Ticket> input, Thread upstream, int batchSize, Consumer<List<Ticket>> handler) {
+        List<Ticket> batch = new ArrayList<>(batchSize);
+        while (running || !input.isEmpty() || (upstream != null && upstream.isAlive())) {
+            if (input.drainTo(batch, batchSize) == 0) {
+                LockSupport.parkNanos(IDLE_PARK_NANOS);
+                continue;
+            }
+
+            try {
+                handler.accept(batch);
+            } catch (RuntimeException e) {
+                System.out.println("✗ Booking pipeline stage error: " + e.getMessage());
+                for (Ticket ticket : batch) {
+                    if (ticket.finishedAt == 0) {
+                        fail(ticket, "Booking pipeline error: " + e.getMessage());
+                    }
+                }
+            } finally {
+                batch.clear();
+            }
+        }
+    }
+
+    /**
+     * helper method which passes a ticket to the next stage, waiting while that stage is full.
+     * The wait backs up this stage's own input until the accept stage starts refusing new bookings.
+     */
+    private static void handOff(RingBuffer<Ticket> next, Ticket ticket) {
+        while (!next.offer(ticket)) {
+            LockSupport.parkNanos(IDLE_PARK_NANOS);
+        }
+    }
+
+    private void fail(Ticket ticket, String error) {
+        System.out.println("✗ Booking " + ticket.bookingId + " failed in the pipeline: " + error);
+        ticket.error = error;
+        ticket.finishedAt = System.currentTimeMillis();
+        ticket.stage = Stage.FAILED;
+        failed.incrementAndGet();
+    }
+
+    /**
+     * a booking travelling through the pipeline, the poll endpoint reads its stage and result
+     */
+    public static final class Ticket {
+        private final String bookingId;
+        private final Client client;
+        private final Location from;
+        private final Location to;
+        private final long acceptedAt = System.currentTimeMillis();
+
+        private volatile Booking booking;
+        private volatile String error;
+        private volatile long finishedAt;
+        // written last by each stage, so a reader that sees the stage also sees the fields set before it
+        private volatile Stage stage = Stage.ACCEPTED;
+
+        private Ticket(String bookingId, Client client, Location from, Location to) {
+            this.bookingId = bookingId;
+            this.client = client;
+            this.from = from;
+            this.to = to;
+        }
+
+        //================Getters================
+        public String getBookingId() {return bookingId;}
+        public Stage getStage() {return stage;}
+        public Booking getBooking() {return booking;}
+        public String getError() {return error;}
+        public long getAcceptedAt() {return acceptedAt;}
+        public long getFinishedAt() {return finishedAt;}
+
+        public boolean isFinished() {
+            Stage current = stage;
+            return current == Stage.COMPLETED || current == Stage.FAILED;
+        }
+    }
+}
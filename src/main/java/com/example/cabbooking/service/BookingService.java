@@ -1,17 +1,31 @@
 package com.example.cabbooking.service;
 
+import com.example.cabbooking.model.Booking;
+import com.example.cabbooking.model.BookingContext;
+import com.example.cabbooking.model.BookingStatus;
 import com.example.cabbooking.model.Client;
+import com.example.cabbooking.model.Driver;
 import com.example.cabbooking.model.Location;
+import com.example.cabbooking.model.OutboxMessage;
 import com.example.cabbooking.model.Route;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 
+import java.time.Instant;
+import java.util.Optional;
+import java.util.UUID;
+
 @Service
 public class BookingService {
 
     //===========SERVICES============
     private final RouteService routeService;
     private final LocationDistanceCalculatorService locationDistanceCalculatorService;
+    private final CalculateFareService calculateFareService;
+    private final BookingWriteBehindService bookingWriteBehindService;
+    private final BookingLifecycleService bookingLifecycleService;
+    private final DispatchService dispatchService;
+    private final NotificationService notificationService;
 
     // ============Custom exceptions for booking-related problems=============
     public static class InvalidBookingException extends RuntimeException {
@@ -27,18 +41,81 @@ public class BookingService {
     }
 
     @Autowired
-    public BookingService(RouteService routeService, LocationDistanceCalculatorService locationDistanceCalculatorService) {
+    public BookingService(RouteService routeService, LocationDistanceCalculatorService locationDistanceCalculatorService,
+                          CalculateFareService calculateFareService, BookingWriteBehindService bookingWriteBehindService,
+                          BookingLifecycleService bookingLifecycleService, DispatchService dispatchService,
+                          NotificationService notificationService) {
         this.routeService = routeService;
         this.locationDistanceCalculatorService = locationDistanceCalculatorService;
+        this.calculateFareService = calculateFareService;
+        this.bookingWriteBehindService = bookingWriteBehindService;
+        this.bookingLifecycleService = bookingLifecycleService;
+        this.dispatchService = dispatchService;
+        this.notificationService = notificationService;
     }
 
     /**
      * business logic for booking
      * @param client The Client who is booking the Route
      * @param route The Route which is being booked and run through the services
+     * @return the Booking which was saved
+     */
+    public Booking bookCab(Client client, Route route) {
+        return bookCab(createContext(client, route));
+    }
+
+    /**
+     * books a cab for a client and route that were validated when the context was created
+     * @param context booking context from createContext()
+     * @return the Booking which was saved
      */
-    public void bookCab(Client client, Route route) {
-        // Validate inputs
+    public Booking bookCab(BookingContext context) {
+        try {
+            Booking booking = priceBooking(UUID.randomUUID().toString(), context);
+
+            // in greedy mode the closest free driver is reserved before saving, so the booking is stored with its driver
+            Optional<Driver> driver = dispatchService.reserveDriver(booking);
+            driver.ifPresent(reserved -> booking.setDriverId(reserved.getId()));
+
+            // the confirmation is saved with the booking and mailed later by the NotificationRelay
+            try {
+                bookingWriteBehindService.persist(booking, bookingConfirmation(context.getClient(), booking));
+            } catch (BookingWriteBehindService.BookingPersistenceException e) {
+                dispatchService.release(booking.getId());
+                throw e;
+            }
+            try {
+                bookingLifecycleService.register(booking.getId());
+            } catch (RuntimeException e) {
+                // the booking cannot be paid or dispatched without its status, so its driver goes back to the fleet
+                dispatchService.release(booking.getId());
+                throw new BookingProcessException("Cannot register booking: " + e.getMessage());
+            }
+
+            // in batch mode the booking waits for the next dispatch tick instead
+            dispatchService.queueForNextTick(booking);
+
+            System.out.println("✓ Cab booking initiated successfully for " + context.getClient().getName() + " (booking " + booking.getId() + ")");
+            return booking;
+
+        } catch (BookingWriteBehindService.BookingPersistenceException e) {
+            throw new BookingProcessException("Cannot save booking: " + e.getMessage());
+        } catch (Exception e) {
+            if (e instanceof InvalidBookingException || e instanceof BookingProcessException) {
+                throw e; // Re-throw custom exceptions
+            }
+            throw new BookingProcessException("Failed to book cab: " + e.getMessage());
+        }
+    }
+
+    /**
+     * validates a client and route once, at the edge, and captures them with the route's locations, distance and
+     * duration in a context the rest of the booking and payment can trust without checking again
+     * @param client The Client who is booking the Route
+     * @param route The Route which is being booked
+     * @return the validated booking context
+     */
+    public BookingContext createContext(Client client, Route route) {
         validateBookingInputs(client, route);
 
         try {
@@ -50,22 +127,10 @@ public class BookingService {
                 throw new InvalidBookingException("Cannot book cab for same pickup and destination location: " + from.getLocationName());
             }
 
-            System.out.println("Booking cab from " + from + " to " + to);
-            System.out.println("Booking cab for client " + client.getName() + " (ID: " + client.getId() + ")");
-
-            //Validate distance calculation
-            double calculatedDistance = locationDistanceCalculatorService.calculateDistanceUsingLocation(from, to);
-            double routeDistance = routeService.getRouteDistance(route);
-
-            //Check if distances are close enough (allow 10% variance for rounding)
-            if (Math.abs(calculatedDistance - routeDistance) > (calculatedDistance * 0.1)) {
-                System.out.println("Warning: Route distance (" + routeDistance + ") " +
-                        "differs significantly from calculated distance (" + calculatedDistance + ")");
-            }
-
-            locationDistanceCalculatorService.printDistanceReport(from, to);
-
-            System.out.println("✓ Cab booking initiated successfully for " + client.getName());
+            // also checks both locations have a name and valid coordinates
+            double directDistance = locationDistanceCalculatorService.calculateDistanceUsingLocation(from, to);
+            return new BookingContext(client, from, to, routeService.getRouteDistance(route),
+                    routeService.getRouteDuration(route), directDistance);
 
         } catch (RouteService.InvalidRouteException e) {
             throw new BookingProcessException("Cannot book cab due to invalid route: " + e.getMessage());
@@ -79,6 +144,113 @@ public class BookingService {
         }
     }
 
+    /**
+     * checks the route and works out the fare, building the booking without saving or dispatching it
+     * @param bookingId id to give the booking
+     * @param client The Client who is booking the Route
+     * @param route The Route which is being booked
+     * @return the priced Booking in the REQUESTED status
+     */
+    public Booking priceBooking(String bookingId, Client client, Route route) {
+        return priceBooking(bookingId, createContext(client, route));
+    }
+
+    /**
+     * works out the fare for a validated booking context, building the booking without saving or dispatching it
+     * @param bookingId id to give the booking
+     * @param context booking context from createContext()
+     * @return the priced Booking in the REQUESTED status
+     */
+    public Booking priceBooking(String bookingId, BookingContext context) {
+        Client client = context.getClient();
+
+        System.out.println("Booking cab from " + context.getFrom() + " to " + context.getTo());
+        System.out.println("Booking cab for client " + client.getName() + " (ID: " + client.getId() + ")");
+
+        //Check if distances are close enough (allow 10% variance for rounding)
+        double calculatedDistance = context.getDirectDistance();
+        double routeDistance = context.getDistance();
+        if (Math.abs(calculatedDistance - routeDistance) > (calculatedDistance * 0.1)) {
+            System.out.println("Warning: Route distance (" + routeDistance + ") " +
+                    "differs significantly from calculated distance (" + calculatedDistance + ")");
+        }
+
+        locationDistanceCalculatorService.printDistanceReport(context.getFrom(), context.getTo(), calculatedDistance);
+
+        double fare = Math.round(calculateFareService.calculateFareFor(context) * 100) / 100.0;
+        return new Booking(bookingId, client.getId(), context.getFrom(), context.getTo(),
+                routeDistance, context.getDuration(), fare, BookingStatus.REQUESTED, Instant.now());
+    }
+
+    /**
+     * builds the confirmation to be saved with a booking
+     * @param client The Client who booked
+     * @param booking the priced Booking
+     * @return message for the client, null if they have no email address
+     */
+    public OutboxMessage bookingConfirmation(Client client, Booking booking) {
+        return notificationService.bookingConfirmed(client, booking);
+    }
+
+    /**
+     * gets the current status of a booking
+     * @param bookingId id of the Booking returned by bookCab()
+     * @return current BookingStatus
+     */
+    public BookingStatus getBookingStatus(String bookingId) {
+        return bookingLifecycleService.getStatus(bookingId);
+    }
+
+    /**
+     * moves a booking to its next status, lifecycle exceptions are passed on so callers can tell
+     * an unknown booking from a transition that is not allowed
+     * @param bookingId id of the Booking returned by bookCab()
+     * @param status status the booking is moving to
+     * @return status the booking had before
+     */
+    public BookingStatus updateBookingStatus(String bookingId, BookingStatus status) {
+        BookingStatus previous = bookingLifecycleService.transition(bookingId, status);
+        // settlement and booking history read the status from the bookings table
+        bookingWriteBehindService.updateStatus(bookingId, status);
+
+        // keep the reserved driver in step with the booking
+        if (status == BookingStatus.DISPATCHED) {
+            dispatchService.startTrip(bookingId);
+        } else if (status.isTerminal()) {
+            dispatchService.release(bookingId);
+        }
+        return previous;
+    }
+
+    /**
+     * claims a booking for payment so a second confirmation cannot charge for it at the same time,
+     * lifecycle exceptions are passed on like updateBookingStatus()
+     * @param bookingId id of the Booking returned by bookCab()
+     * @return current BookingStatus
+     */
+    public BookingStatus claimPayment(String bookingId) {
+        return bookingLifecycleService.claimPayment(bookingId);
+    }
+
+    /**
+     * moves a booking claimed with claimPayment() to PAID
+     * @param bookingId id of the Booking returned by bookCab()
+     * @return status the booking had before
+     */
+    public BookingStatus completePayment(String bookingId) {
+        BookingStatus previous = bookingLifecycleService.completePayment(bookingId);
+        bookingWriteBehindService.updateStatus(bookingId, BookingStatus.PAID);
+        return previous;
+    }
+
+    /**
+     * gives up a payment claim after the charge failed, leaving the booking where it was
+     * @param bookingId id of the Booking returned by bookCab()
+     */
+    public void releasePayment(String bookingId) {
+        bookingLifecycleService.releasePayment(bookingId);
+    }
+
     /**
      * varify booking was completed successfully
      * @param client The Client who is booking the Route
@@ -89,12 +261,7 @@ public class BookingService {
         validateBookingInputs(client, route);
 
         try {
-            Location from = routeService.getRouteLocationFrom(route);
-            Location to = routeService.getRouteLocationTo(route);
-
-            System.out.println("Your cab from " + from.getLocationName() + " to " + to.getLocationName() + " is booked!");
-            System.out.println("Thank you " + client.getName() + "! We hope you enjoy your ride!");
-            System.out.println("✓ Booking completed successfully");
+            printBookingFinished(client, routeService.getRouteLocationFrom(route), routeService.getRouteLocationTo(route));
 
         } catch (RouteService.InvalidRouteException e) {
             throw new BookingProcessException("Cannot finish booking due to invalid route: " + e.getMessage());
@@ -106,12 +273,26 @@ public class BookingService {
         }
     }
 
+    /**
+     * varify booking was completed successfully for a validated booking context
+     * @param context booking context from createContext()
+     */
+    public void finishBookingCab(BookingContext context) {
+        printBookingFinished(context.getClient(), context.getFrom(), context.getTo());
+    }
+
+    private static void printBookingFinished(Client client, Location from, Location to) {
+        System.out.println("Your cab from " + from.getLocationName() + " to " + to.getLocationName() + " is booked!");
+        System.out.println("Thank you " + client.getName() + "! We hope you enjoy your ride!");
+        System.out.println("✓ Booking completed successfully");
+    }
+
     /**
      * Helper method to validate booking inputs
      * @param client The Client who is booking the Route and needs to be validated
      * @param route The Route which needs to be validated before being run through the services
      * */
-    private void validateBookingInputs(Client client, Route route) {
+    void validateBookingInputs(Client client, Route route) {
         if (client == null) {
             throw new InvalidBookingException("Client cannot be null");
         }
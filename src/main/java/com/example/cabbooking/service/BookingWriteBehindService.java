@@ -0,0 +1,477 @@
+package com.example.cabbooking.service;
+
+import com.example.cabbooking.model.Booking;
+import com.example.cabbooking.model.BookingStatus;
+import com.example.cabbooking.model.OutboxMessage;
+import com.example.cabbooking.repository.BookingRepository;
+import com.example.cabbooking.repository.OutboxRepository;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.BooleanSupplier;
+
+@Service
+public class BookingWriteBehindService {
+
+    /**
+     * how long bookCab waits for the database before giving up on a booking
+     * SYNC: inserts on the request thread, one round trip per booking
+     * GROUP_COMMIT: queues the booking and waits until the batch containing it is committed
+     * ASYNC: queues the booking and returns straight away (a crash can lose queued bookings)
+     */
+    public enum DurabilityMode { SYNC, GROUP_COMMIT, ASYNC }
+
+    private static final long ENQUEUE_TIMEOUT_MILLIS = 100;
+    private static final long DEFAULT_COMMIT_TIMEOUT_MILLIS = 5_000;
+    private static final long IDLE_POLL_MILLIS = 100;
+
+    private final BookingRepository bookingRepository;
+    private final OutboxRepository outboxRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final DurabilityMode mode;
+    private final int batchSize;
+    private final long lingerMillis;
+    private final long commitTimeoutMillis;
+    private final BlockingQueue<PendingWrite> queue;
+    private final ThreadFactory threadFactory;
+
+    private final AtomicLong bookingsWritten = new AtomicLong();
+    private final AtomicLong bookingsFailed = new AtomicLong();
+    private final AtomicLong batchesWritten = new AtomicLong();
+
+    private volatile boolean running;
+    private Thread writer;
+
+    public static class BookingPersistenceException extends RuntimeException {
+        public BookingPersistenceException(String message) {
+            super(message);
+        }
+    }
+
+    public BookingWriteBehindService(BookingRepository bookingRepository, DurabilityMode mode,
+                                     int batchSize, int queueCapacity, long lingerMillis) {
+        this(bookingRepository, mode, batchSize, queueCapacity, lingerMillis, Thread::new);
+    }
+
+    public BookingWriteBehindService(BookingRepository bookingRepository, DurabilityMode mode,
+                                     int batchSize, int queueCapacity, long lingerMillis,
+                                     ThreadFactory workerThreadFactory) {
+        this(bookingRepository, null, null, mode, batchSize, queueCapacity, lingerMillis, DEFAULT_COMMIT_TIMEOUT_MILLIS,
+                workerThreadFactory);
+    }
+
+    /**
+     * @param outboxRepository outbox that booking notifications are written to, null to only print them
+     * @param transactionTemplate transaction each batch of bookings is written in together with its notifications,
+     *                            null to write without one
+     * @param commitTimeoutMillis how long a GROUP_COMMIT booking waits for its batch before it is taken off the queue
+     */
+    @Autowired
+    public BookingWriteBehindService(BookingRepository bookingRepository,
+                                     OutboxRepository outboxRepository,
+                                     TransactionTemplate transactionTemplate,
+                                     @Value("${booking.persistence.mode:GROUP_COMMIT}") DurabilityMode mode,
+                                     @Value("${booking.persistence.batch-size:200}") int batchSize,
+                                     @Value("${booking.persistence.queue-capacity:10000}") int queueCapacity,
+                                     @Value("${booking.persistence.linger-ms:2}") long lingerMillis,
+                                     @Value("${booking.persistence.commit-timeout-ms:5000}") long commitTimeoutMillis,
+                                     ThreadFactory workerThreadFactory) {
+        if (batchSize <= 0 || queueCapacity <= 0 || lingerMillis < 0 || commitTimeoutMillis <= 0) {
+            throw new IllegalArgumentException("Booking persistence batch size, queue capacity and commit timeout must be positive, linger cannot be negative");
+        }
+
+        this.bookingRepository = bookingRepository;
+        this.outboxRepository = outboxRepository;
+        this.transactionTemplate = transactionTemplate;
+        this.mode = mode;
+        this.batchSize = batchSize;
+        this.lingerMillis = lingerMillis;
+        this.commitTimeoutMillis = commitTimeoutMillis;
+        this.queue = new ArrayBlockingQueue<>(queueCapacity);
+        this.threadFactory = workerThreadFactory;
+    }
+
+    /**
+     * starts the writer thread that turns queued bookings into JDBC batches
+     */
+    @PostConstruct
+    public void start() {
+        if (mode == DurabilityMode.SYNC || running) {
+            return;
+        }
+
+        running = true;
+        writer = threadFactory.newThread(this::writeLoop);
+        writer.setName("booking-write-behind");
+        writer.setDaemon(true);
+        writer.start();
+        System.out.println("✓ Booking write-behind started (" + mode + ", batch size " + batchSize + ")");
+    }
+
+    /**
+     * stops the writer thread once every queued booking has been written
+     */
+    @PreDestroy
+    public void stop() {
+        running = false;
+        if (writer == null) {
+            return;
+        }
+
+        try {
+            writer.join(commitTimeoutMillis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+
+        if (!queue.isEmpty()) {
+            System.out.println("✗ Booking write-behind stopped with " + queue.size() + " bookings still queued");
+        }
+        writer = null;
+    }
+
+    /**
+     * persists a booking according to the configured durability mode
+     * @param booking Booking to be saved
+     */
+    public void persist(Booking booking) {
+        persist(booking, null);
+    }
+
+    /**
+     * persists a booking according to the configured durability mode, with the notification about it written to
+     * the outbox in the same transaction, so the message exists exactly when the booking does
+     * @param booking Booking to be saved
+     * @param notification message to queue with the booking, or null
+     */
+    public void persist(Booking booking, OutboxMessage notification) {
+        if (booking == null) {
+            throw new BookingPersistenceException("Cannot persist null booking");
+        }
+
+        // without a running writer there is nobody to drain the queue, so write on the caller thread
+        if (mode == DurabilityMode.SYNC || !running) {
+            List<OutboxMessage> notifications = notification == null ? List.of() : List.of(notification);
+            if (!inTransaction(() -> bookingRepository.save(booking) && queueNotifications(notifications))) {
+                bookingsFailed.incrementAndGet();
+                throw new BookingPersistenceException("Booking " + booking.getId() + " could not be saved");
+            }
+            bookingsWritten.incrementAndGet();
+            return;
+        }
+
+        PendingWrite pending = new PendingWrite(booking, notification, mode == DurabilityMode.GROUP_COMMIT);
+        try {
+            if (!queue.offer(pending, ENQUEUE_TIMEOUT_MILLIS, TimeUnit.MILLISECONDS)) {
+                throw new BookingPersistenceException("Booking queue is full, please try again shortly");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new BookingPersistenceException("Interrupted while queueing booking " + booking.getId());
+        }
+
+        if (pending.committed == null) {
+            return;
+        }
+
+        try {
+            if (!awaitCommit(pending)) {
+                throw new BookingPersistenceException("Booking " + booking.getId() + " could not be saved");
+            }
+        } catch (TimeoutException e) {
+            throw new BookingPersistenceException("Timed out waiting for booking " + booking.getId() + " to be saved, it was not saved");
+        } catch (ExecutionException e) {
+            throw new BookingPersistenceException("Booking " + booking.getId() + " could not be saved: " + e.getCause().getMessage());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new BookingPersistenceException("Interrupted while saving booking " + booking.getId());
+        }
+    }
+
+    /**
+     * helper method which waits for the batch holding a GROUP_COMMIT booking. When the wait times out the booking is
+     * taken back off the queue, so a caller told it failed never finds it saved later; if the writer has already
+     * picked it up the batch in flight decides, and the caller waits for that answer instead
+     * @return whether the booking was saved
+     * @throws TimeoutException the booking was still queued after the commit timeout and will not be written
+     */
+    private boolean awaitCommit(PendingWrite pending) throws TimeoutException, ExecutionException, InterruptedException {
+        try {
+            return pending.committed.get(commitTimeoutMillis, TimeUnit.MILLISECONDS);
+        } catch (TimeoutException e) {
+            if (pending.claim()) {
+                queue.remove(pending);
+                bookingsFailed.incrementAndGet();
+                throw e;
+            }
+            return pending.committed.get();
+        }
+    }
+
+    /**
+     * writes a booking's new status to its row, so the table follows the lifecycle for settlement and history.
+     * Behind a running writer the update is queued after the booking's own insert and cannot reach the table first.
+     * Nobody waits for it: the booking journal is the record of the status, the table only follows it
+     * @param bookingId id of the booking
+     * @param status status the booking moved to
+     */
+    public void updateStatus(String bookingId, BookingStatus status) {
+        if (bookingId == null || status == null) {
+            return;
+        }
+
+        if (mode != DurabilityMode.SYNC && running) {
+            try {
+                if (queue.offer(new PendingWrite(bookingId, status), ENQUEUE_TIMEOUT_MILLIS, TimeUnit.MILLISECONDS)) {
+                    return;
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            // a queue that stayed full this long has long since written the booking itself
+        }
+        if (!bookingRepository.updateStatuses(Map.of(bookingId, status))) {
+            System.out.println("✗ Booking " + bookingId + " status " + status + " could not be written");
+        }
+    }
+
+    //================Writer thread================
+
+    private void writeLoop() {
+        List<PendingWrite> batch = new ArrayList<>(batchSize);
+
+        while (running || !queue.isEmpty()) {
+            try {
+                PendingWrite first = queue.poll(IDLE_POLL_MILLIS, TimeUnit.MILLISECONDS);
+                if (first == null) {
+                    continue;
+                }
+
+                batch.add(first);
+                queue.drainTo(batch, batchSize - 1);
+
+                // a short linger lets a burst of bookings share one round trip instead of trickling in one by one
+                if (lingerMillis > 0 && batch.size() < batchSize) {
+                    long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(lingerMillis);
+                    while (batch.size() < batchSize) {
+                        long remaining = deadline - System.nanoTime();
+                        PendingWrite next = remaining > 0 ? queue.poll(remaining, TimeUnit.NANOSECONDS) : null;
+                        if (next == null) {
+                            break;
+                        }
+                        batch.add(next);
+                        queue.drainTo(batch, batchSize - batch.size());
+                    }
+                }
+
+                writeBatch(batch);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                running = false;
+                if (!batch.isEmpty()) {
+                    writeBatch(batch);
+                }
+            } catch (RuntimeException e) {
+                System.out.println("✗ Booking write-behind error: " + e.getMessage());
+                bookingsFailed.addAndGet(batch.stream().filter(pending -> pending.booking != null).count());
+                completeAll(batch, false);
+            } finally {
+                batch.clear();
+            }
+        }
+    }
+
+    /**
+     * writes a batch of bookings on the caller's thread in one round trip, falling back to single inserts
+     * so one bad row does not fail the rest
+     * @param bookings bookings to be saved
+     * @return whether each booking was saved, in the same order
+     */
+    public boolean[] persistBatch(List<Booking> bookings) {
+        return persistBatch(bookings, null);
+    }
+
+    /**
+     * writes a batch of bookings and their notifications on the caller's thread, each batch in one transaction,
+     * falling back to one transaction per booking so one bad row does not fail the rest
+     * @param bookings bookings to be saved
+     * @param notifications message to queue with each booking, in the same order (entries may be null), or null for none
+     * @return whether each booking was saved, in the same order
+     */
+    public boolean[] persistBatch(List<Booking> bookings, List<OutboxMessage> notifications) {
+        boolean[] saved = new boolean[bookings.size()];
+        if (bookings.isEmpty()) {
+            return saved;
+        }
+
+        List<OutboxMessage> queued = new ArrayList<>();
+        if (notifications != null) {
+            for (OutboxMessage notification : notifications) {
+                if (notification != null) {
+                    queued.add(notification);
+                }
+            }
+        }
+
+        if (inTransaction(() -> bookingRepository.saveAll(bookings) && queueNotifications(queued))) {
+            batchesWritten.incrementAndGet();
+            bookingsWritten.addAndGet(bookings.size());
+            Arrays.fill(saved, true);
+            return saved;
+        }
+
+        for (int i = 0; i < bookings.size(); i++) {
+            Booking booking = bookings.get(i);
+            OutboxMessage notification = notifications == null ? null : notifications.get(i);
+            List<OutboxMessage> single = notification == null ? List.of() : List.of(notification);
+            saved[i] = inTransaction(() -> bookingRepository.save(booking) && queueNotifications(single));
+            (saved[i] ? bookingsWritten : bookingsFailed).incrementAndGet();
+        }
+        return saved;
+    }
+
+    /**
+     * helper method which runs a write in a transaction that is rolled back if the write reports a failure
+     * @param write the write, returning false if any part of it failed
+     * @return true if the write succeeded and was committed
+     */
+    private boolean inTransaction(BooleanSupplier write) {
+        if (transactionTemplate == null) {
+            return write.getAsBoolean();
+        }
+
+        try {
+            Boolean committed = transactionTemplate.execute(status -> {
+                if (write.getAsBoolean()) {
+                    return true;
+                }
+                status.setRollbackOnly();
+                return false;
+            });
+            return Boolean.TRUE.equals(committed);
+        } catch (RuntimeException e) {
+            System.out.println("✗ Booking transaction failed: " + e.getMessage());
+            return false;
+        }
+    }
+
+    /**
+     * helper method which writes notifications to the outbox, or prints them when there is no outbox
+     * @param notifications messages to be queued
+     * @return true if every message was queued
+     */
+    private boolean queueNotifications(List<OutboxMessage> notifications) {
+        if (notifications.isEmpty()) {
+            return true;
+        }
+        if (outboxRepository == null) {
+            for (OutboxMessage notification : notifications) {
+                System.out.println("Notification to " + notification.getRecipient() + ": " + notification.getSubject());
+            }
+            return true;
+        }
+        return outboxRepository.saveAll(notifications);
+    }
+
+    /**
+     * helper method which writes one batch of queued bookings and tells any waiting callers how it went
+     * @param batch queued bookings to be written
+     */
+    private void writeBatch(List<PendingWrite> batch) {
+        List<PendingWrite> inserts = new ArrayList<>(batch.size());
+        List<Booking> bookings = new ArrayList<>(batch.size());
+        List<OutboxMessage> notifications = new ArrayList<>(batch.size());
+        // a status update is always queued after its booking, so the inserts go first; the last status of a booking wins
+        Map<String, BookingStatus> statuses = new LinkedHashMap<>();
+        for (PendingWrite pending : batch) {
+            if (pending.booking == null) {
+                statuses.put(pending.bookingId, pending.status);
+                continue;
+            }
+            // a caller that gave up waiting has already claimed its booking and reported it as not saved
+            if (!pending.claim()) {
+                continue;
+            }
+            inserts.add(pending);
+            bookings.add(pending.booking);
+            notifications.add(pending.notification);
+        }
+
+        boolean[] saved = persistBatch(bookings, notifications);
+        for (int i = 0; i < inserts.size(); i++) {
+            if (inserts.get(i).committed != null) {
+                inserts.get(i).committed.complete(saved[i]);
+            }
+        }
+
+        if (!statuses.isEmpty() && !bookingRepository.updateStatuses(statuses)) {
+            System.out.println("✗ Booking write-behind could not write the status of " + statuses.size() + " bookings");
+        }
+    }
+
+    private static void completeAll(List<PendingWrite> batch, boolean saved) {
+        for (PendingWrite pending : batch) {
+            if (pending.committed != null) {
+                pending.committed.complete(saved);
+            }
+        }
+    }
+
+    //================Getters================
+    public DurabilityMode getMode() {return mode;}
+    public int getQueuedCount() {return queue.size();}
+    public long getBookingsWritten() {return bookingsWritten.get();}
+    public long getBookingsFailed() {return bookingsFailed.get();}
+    public long getBatchesWritten() {return batchesWritten.get();}
+
+    /**
+     * a queued booking insert, or a status update for a booking queued before it
+     */
+    private static final class PendingWrite {
+        private final Booking booking;
+        private final OutboxMessage notification;
+        private final CompletableFuture<Boolean> committed;
+        private final String bookingId;
+        private final BookingStatus status;
+        // taken by whoever decides the booking's fate first: the writer putting it in a batch, or its caller timing out
+        private final AtomicBoolean claimed = new AtomicBoolean();
+
+        private PendingWrite(Booking booking, OutboxMessage notification, boolean waitForCommit) {
+            this.booking = booking;
+            this.notification = notification;
+            this.committed = waitForCommit ? new CompletableFuture<>() : null;
+            this.bookingId = booking.getId();
+            this.status = null;
+        }
+
+        private PendingWrite(String bookingId, BookingStatus status) {
+            this.booking = null;
+            this.notification = null;
+            this.committed = null;
+            this.bookingId = bookingId;
+            this.status = status;
+        }
+
+        private boolean claim() {
+            return claimed.compareAndSet(false, true);
+        }
+    }
+}
@@ -1,9 +1,12 @@
 package com.example.cabbooking.service;
 
+import com.example.cabbooking.model.BookingContext;
 import com.example.cabbooking.model.Route;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 
+import java.util.concurrent.atomic.AtomicInteger;
+
 @Service
 public class CalculateFareService {
 
@@ -29,10 +32,17 @@ public class CalculateFareService {
 
     public int dollarsPerMile = 3;
     public int initialBookingFee = 3;
+    public double dollarsPerMinute = 0.35;
+
+    /**
+     * bumped whenever a fare parameter changes through a setter, so signed quotes
+     * issued under the old tariff stop verifying
+     */
+    private final AtomicInteger tariffVersion = new AtomicInteger(1);
 
     /**
      * Method which calculates the fare from a Route object
-     * @param route Route which will have its fare calculated based on its distance
+     * @param route Route which will have its fare calculated based on its distance and estimated duration
      * @return The calculated fare price
      */
     public double calculateFare(Route route) {
@@ -47,22 +57,17 @@ public class CalculateFareService {
                 throw new FareCalculationException("Distance cannot be negative: " + distance);
             }
 
-            //Validate fare parameters
-            validateFareParameters();
-
-            double cabFare = initialBookingFee + (distance * dollarsPerMile);
+            double duration = routeService.getRouteDuration(route);
 
-            //Validate final result
-            if (cabFare < 0) {
-                throw new FareCalculationException("Calculated fare cannot be negative: " + cabFare);
+            //Validate duration result
+            if (duration < 0) {
+                throw new FareCalculationException("Duration cannot be negative: " + duration);
             }
 
-            if (Double.isNaN(cabFare) || Double.isInfinite(cabFare)) {
-                throw new FareCalculationException("Calculated fare is invalid: " + cabFare);
-            }
+            //Validate fare parameters
+            validateFareParameters();
 
-            System.out.println("Cab Fare: " + cabFare);
-            return cabFare;
+            return fare(distance, duration);
 
         } catch (RouteService.InvalidRouteException e) {
             throw new FareCalculationException("Cannot calculate fare due to invalid route: " + e.getMessage());
@@ -74,6 +79,39 @@ public class CalculateFareService {
         }
     }
 
+    /**
+     * calculates the fare for a validated booking context; the route in it is trusted, so only the fare
+     * parameters (which are public and can change at any time) are checked
+     * @param context booking context from BookingService.createContext()
+     * @return The calculated fare price
+     */
+    public double calculateFareFor(BookingContext context) {
+        validateFareParameters();
+        return fare(context.getDistance(), context.getDuration());
+    }
+
+    /**
+     * Helper method which applies the tariff to a trip
+     * @param distance trip distance
+     * @param duration estimated trip duration in minutes
+     * @return The calculated fare price
+     */
+    private double fare(double distance, double duration) {
+        double cabFare = initialBookingFee + (distance * dollarsPerMile) + (duration * dollarsPerMinute);
+
+        //Validate final result
+        if (cabFare < 0) {
+            throw new FareCalculationException("Calculated fare cannot be negative: " + cabFare);
+        }
+
+        if (Double.isNaN(cabFare) || Double.isInfinite(cabFare)) {
+            throw new FareCalculationException("Calculated fare is invalid: " + cabFare);
+        }
+
+        System.out.println("Cab Fare: " + cabFare);
+        return cabFare;
+    }
+
     /**
      * Helper method to validate route input
      * @param route Route object which will have its params verified
@@ -100,6 +138,10 @@ public class CalculateFareService {
             throw new InvalidFareParametersException("Initial booking fee cannot be negative: " + initialBookingFee);
         }
 
+        if (dollarsPerMinute < 0 || Double.isNaN(dollarsPerMinute) || Double.isInfinite(dollarsPerMinute)) {
+            throw new InvalidFareParametersException("Dollars per minute must be a non-negative number: " + dollarsPerMinute);
+        }
+
         if (dollarsPerMile == 0 && initialBookingFee == 0) {
             throw new InvalidFareParametersException("Both rate and booking fee cannot be zero");
         }
@@ -114,6 +156,7 @@ public class CalculateFareService {
             throw new InvalidFareParametersException("Dollars per mile cannot be negative: " + dollarsPerMile);
         }
         this.dollarsPerMile = dollarsPerMile;
+        tariffVersion.incrementAndGet();
     }
     /**
      * method to safely update booking fee fare parameter
@@ -124,10 +167,27 @@ public class CalculateFareService {
             throw new InvalidFareParametersException("Initial booking fee cannot be negative: " + initialBookingFee);
         }
         this.initialBookingFee = initialBookingFee;
+        tariffVersion.incrementAndGet();
+    }
+
+    /**
+     * method to safely update the per-minute fare parameter
+     * @param dollarsPerMinute New amount charged per minute of estimated trip time
+     */
+    public void setDollarsPerMinute(double dollarsPerMinute) {
+        if (dollarsPerMinute < 0 || Double.isNaN(dollarsPerMinute) || Double.isInfinite(dollarsPerMinute)) {
+            throw new InvalidFareParametersException("Dollars per minute must be a non-negative number: " + dollarsPerMinute);
+        }
+        this.dollarsPerMinute = dollarsPerMinute;
+        tariffVersion.incrementAndGet();
     }
 
     //============Getter methods for testing=============
     public int getDollarsPerMile() {return dollarsPerMile;}
 
     public int getInitialBookingFee() {return initialBookingFee;}
+
+    public double getDollarsPerMinute() {return dollarsPerMinute;}
+
+    public int getTariffVersion() {return tariffVersion.get();}
 }
\ No newline at end of file
@@ -0,0 +1,445 @@
+package com.example.cabbooking.service;
+
+import com.example.cabbooking.repository.CardVaultRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import javax.crypto.Cipher;
+import javax.crypto.Mac;
+import javax.crypto.spec.GCMParameterSpec;
+import javax.crypto.spec.SecretKeySpec;
+import java.nio.charset.StandardCharsets;
+import java.security.DigestException;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.security.SecureRandom;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * in-process card tokenisation vault.
+ * A card number is normalised and Luhn-checked once, encrypted with AES-GCM into the card_vault table, and
+ * replaced everywhere else by a token of the form tok_&lt;last four&gt;_&lt;32 hex digits&gt;, the hex being an
+ * HMAC-SHA256 of the card number truncated to 128 bits. The same card always gets the same token, so a card
+ * offered at payment is checked by recomputing its HMAC and comparing it with the token in constant time; that
+ * path works on pooled buffers and allocates nothing.
+ */
+@Service
+public class CardVault {
+
+    static final String TOKEN_PREFIX = "tok_";
+    static final int MIN_DIGITS = 13;
+    static final int MAX_DIGITS = 19;
+
+    private static final int DIGEST_BYTES = 16;
+    private static final int TOKEN_LENGTH = TOKEN_PREFIX.length() + 4 + 1 + DIGEST_BYTES * 2;
+    private static final int DIGEST_OFFSET = TOKEN_LENGTH - DIGEST_BYTES * 2;
+    private static final int SHA256_BYTES = 32;
+    private static final int HMAC_BLOCK_BYTES = 64;
+    private static final int GCM_IV_BYTES = 12;
+    private static final int GCM_TAG_BITS = 128;
+    private static final int SCRATCH_POOL_SIZE = 16;
+    private static final char[] HEX = "0123456789abcdef".toCharArray();
+
+    private final CardVaultRepository repository;
+    private final SecretKeySpec encryptionKey;
+    // the HMAC key xor'ed with the inner and outer pads, so an HMAC is two SHA-256 passes into reused buffers
+    private final byte[] innerPad = new byte[HMAC_BLOCK_BYTES];
+    private final byte[] outerPad = new byte[HMAC_BLOCK_BYTES];
+    private final SecureRandom random = new SecureRandom();
+
+    // ciphertexts of a vault without a database behind it, see the no-arg constructor
+    private final Map<String, byte[]> localCiphertexts = new ConcurrentHashMap<>();
+
+    // digit and digest buffers are borrowed per call; like FareQuoteService's Mac pool this is a pool rather
+    // than a ThreadLocal, which would build new buffers for every short-lived virtual thread
+    private final AtomicReferenceArray<Scratch> scratchPool = new AtomicReferenceArray<>(SCRATCH_POOL_SIZE);
+
+    public static class InvalidCardException extends RuntimeException {
+        public InvalidCardException(String message) {
+            super(message);
+        }
+    }
+
+    public static class CardVaultException extends RuntimeException {
+        public CardVaultException(String message) {
+            super(message);
+        }
+    }
+
+    /**
+     * @param repository where ciphertexts are stored, null to keep them in memory
+     * @param secret key the card keys are derived from, blank for a random key that lasts until restart
+     */
+    @Autowired
+    public CardVault(CardVaultRepository repository,
+                     @Value("${card.vault.secret:}") String secret) {
+        this.repository = repository;
+
+        byte[] master;
+        if (secret == null || secret.isBlank()) {
+            master = new byte[32];
+            random.nextBytes(master);
+            if (repository != null) {
+                System.out.println("✗ Card vault: no card.vault.secret configured, using a random key " +
+                        "(stored cards cannot be read after a restart)");
+            }
+        } else {
+            master = secret.getBytes(StandardCharsets.UTF_8);
+        }
+
+        // separate keys for encryption and tokens, so neither use can leak anything about the other
+        this.encryptionKey = new SecretKeySpec(deriveKey(master, "card-vault-encryption"), "AES");
+        byte[] tokenKey = deriveKey(master, "card-vault-token");
+        for (int i = 0; i < HMAC_BLOCK_BYTES; i++) {
+            byte keyByte = i < tokenKey.length ? tokenKey[i] : 0;
+            innerPad[i] = (byte) (keyByte ^ 0x36);
+            outerPad[i] = (byte) (keyByte ^ 0x5c);
+        }
+    }
+
+    /**
+     * a card that has been tokenised and encrypted but not yet written to the vault, see storeAll
+     */
+    public static final class SealedCard {
+        private final String token;
+        private final byte[] ciphertext;
+
+        private SealedCard(String token, byte[] ciphertext) {
+            this.token = token;
+            this.ciphertext = ciphertext;
+        }
+
+        public String getToken() {return token;}
+        public byte[] getCiphertext() {return ciphertext;}
+    }
+
+    /**
+     * stores a card in the vault
+     * @param cardNumber card number, spaces and dashes are ignored
+     * @return the card's token, the same token every time the same card is stored
+     */
+    public String tokenize(CharSequence cardNumber) {
+        SealedCard card = seal(cardNumber);
+        storeAll(List.of(card));
+        return card.getToken();
+    }
+
+    /**
+     * tokenises and encrypts a card without writing it, so many cards can be stored in one batch with storeAll.
+     * Safe to call from several threads at once
+     * @param cardNumber card number, spaces and dashes are ignored
+     * @return the card's token and ciphertext
+     */
+    public SealedCard seal(CharSequence cardNumber) {
+        Scratch scratch = borrow();
+        try {
+            int length = readCardNumber(cardNumber, scratch.digits);
+            hmac(scratch, length);
+
+            char[] token = new char[TOKEN_LENGTH];
+            TOKEN_PREFIX.getChars(0, TOKEN_PREFIX.length(), token, 0);
+            for (int i = 0; i < 4; i++) {
+                token[TOKEN_PREFIX.length() + i] = (char) scratch.digits[length - 4 + i];
+            }
+            token[DIGEST_OFFSET - 1] = '_';
+            for (int i = 0; i < DIGEST_BYTES; i++) {
+                token[DIGEST_OFFSET + 2 * i] = HEX[(scratch.digest[i] >>> 4) & 0xf];
+                token[DIGEST_OFFSET + 2 * i + 1] = HEX[scratch.digest[i] & 0xf];
+            }
+            String vaultToken = new String(token);
+
+            return new SealedCard(vaultToken, encrypt(scratch.digits, length, vaultToken));
+        } finally {
+            release(scratch);
+        }
+    }
+
+    /**
+     * writes sealed cards to the vault, as one batch when there is more than one
+     * @param cards cards returned by seal
+     */
+    public void storeAll(List<SealedCard> cards) {
+        if (cards.isEmpty()) {
+            return;
+        }
+        if (repository == null) {
+            for (SealedCard card : cards) {
+                localCiphertexts.putIfAbsent(card.token, card.ciphertext);
+            }
+            return;
+        }
+
+        boolean stored;
+        if (cards.size() == 1) {
+            stored = repository.save(cards.get(0).token, cards.get(0).ciphertext);
+        } else {
+            Map<String, byte[]> ciphertexts = new LinkedHashMap<>();
+            for (SealedCard card : cards) {
+                ciphertexts.putIfAbsent(card.token, card.ciphertext);
+            }
+            stored = repository.saveAll(ciphertexts);
+        }
+        if (!stored) {
+            throw new CardVaultException(cards.size() == 1 ? "Card could not be stored in the vault"
+                    : cards.size() + " cards could not be stored in the vault");
+        }
+    }
+
+    /**
+     * checks a card offered for payment against the card on file, in constant time and without allocating
+     * @param cardNumber card number offered, spaces and dashes are ignored
+     * @param cardOnFile the client's vault token, or a card number stored before the vault existed
+     * @return true if they are the same card
+     */
+    public boolean matches(CharSequence cardNumber, String cardOnFile) {
+        Scratch scratch = borrow();
+        try {
+            int length = readCardNumber(cardNumber, scratch.digits);
+
+            int difference = 0;
+            if (isToken(cardOnFile)) {
+                hmac(scratch, length);
+                for (int i = 0; i < DIGEST_BYTES; i++) {
+                    difference |= cardOnFile.charAt(DIGEST_OFFSET + 2 * i) ^ HEX[(scratch.digest[i] >>> 4) & 0xf];
+                    difference |= cardOnFile.charAt(DIGEST_OFFSET + 2 * i + 1) ^ HEX[scratch.digest[i] & 0xf];
+                }
+            } else {
+                int lengthOnFile = cardOnFile == null ? -1 : normalize(cardOnFile, scratch.otherDigits);
+                difference = length ^ lengthOnFile;
+                for (int i = 0; i < MAX_DIGITS; i++) {
+                    difference |= scratch.digits[i] ^ scratch.otherDigits[i];
+                }
+            }
+            return difference == 0;
+        } finally {
+            release(scratch);
+        }
+    }
+
+    /**
+     * reads a card back out of the vault, only for handing it to the payment gateway
+     * @param cardOnFile the client's vault token, or a card number stored before the vault existed
+     * @return the card number, digits only
+     */
+    public String reveal(String cardOnFile) {
+        if (!isToken(cardOnFile)) {
+            Scratch scratch = borrow();
+            try {
+                int length = readCardNumber(cardOnFile, scratch.digits);
+                return new String(scratch.digits, 0, length, StandardCharsets.US_ASCII);
+            } finally {
+                release(scratch);
+            }
+        }
+
+        Optional<byte[]> ciphertext = repository == null
+                ? Optional.ofNullable(localCiphertexts.get(cardOnFile))
+                : repository.findCiphertext(cardOnFile);
+        if (ciphertext.isEmpty()) {
+            throw new CardVaultException("Card token is not in the vault");
+        }
+        return decrypt(ciphertext.get(), cardOnFile);
+    }
+
+    /**
+     * @param card a vault token or a card number
+     * @return true if it is a vault token
+     */
+    public static boolean isToken(String card) {
+        return card != null && card.length() == TOKEN_LENGTH && card.startsWith(TOKEN_PREFIX);
+    }
+
+    /**
+     * @param cardOnFile a vault token or a card number
+     * @return the last four digits of the card, or null if there are not four
+     */
+    public static String lastFour(String cardOnFile) {
+        if (cardOnFile == null) {
+            return null;
+        }
+        if (isToken(cardOnFile)) {
+            return cardOnFile.substring(TOKEN_PREFIX.length(), TOKEN_PREFIX.length() + 4);
+        }
+
+        char[] last = new char[4];
+        int found = 0;
+        for (int i = cardOnFile.length() - 1; i >= 0 && found < 4; i--) {
+            char c = cardOnFile.charAt(i);
+            if (c >= '0' && c <= '9') {
+                last[3 - found++] = c;
+            }
+        }
+        return found < 4 ? null : new String(last);
+    }
+
+    /**
+     * @param cardOnFile a vault token or a card number
+     * @return the card as it may be shown, ****1111, or **** if there are not four digits
+     */
+    public static String mask(String cardOnFile) {
+        String lastFour = lastFour(cardOnFile);
+        return lastFour == null ? "****" : "****" + lastFour;
+    }
+
+    //================Helpers================
+
+    /**
+     * helper method which copies the digits of a card number into a buffer, skipping the whitespace and
+     * dashes people type between groups of digits
+     * @return number of digits, or -1 if there is anything else in it or it is not 13 to 19 digits long
+     */
+    static int normalize(CharSequence cardNumber, byte[] digits) {
+        int length = 0;
+        for (int i = 0, n = cardNumber.length(); i < n; i++) {
+            char c = cardNumber.charAt(i);
+            if (c >= '0' && c <= '9') {
+                if (length == MAX_DIGITS) {
+                    return -1;
+                }
+                digits[length++] = (byte) c;
+            } else if (c != ' ' && c != '-' && (c < '\t' || c > '\r')) {
+                return -1;
+            }
+        }
+        return length < MIN_DIGITS ? -1 : length;
+    }
+
+    /**
+     * @param digits ASCII digits of a card number
+     * @return true if the Luhn check digit is right
+     */
+    static boolean luhn(byte[] digits, int length) {
+        int sum = 0;
+        boolean doubled = false;
+        for (int i = length - 1; i >= 0; i--) {
+            int digit = digits[i] - '0';
+            if (doubled) {
+                digit *= 2;
+                if (digit > 9) {
+                    digit -= 9;
+                }
+            }
+            sum += digit;
+            doubled = !doubled;
+        }
+        return sum % 10 == 0;
+    }
+
+    private static int readCardNumber(CharSequence cardNumber, byte[] digits) {
+        if (cardNumber == null) {
+            throw new InvalidCardException("Credit card number cannot be null or empty");
+        }
+        int length = normalize(cardNumber, digits);
+        if (length < 0) {
+            throw new InvalidCardException("Invalid credit card number format");
+        }
+        if (!luhn(digits, length)) {
+            throw new InvalidCardException("Credit card number failed its check digit");
+        }
+        return length;
+    }
+
+    /**
+     * helper method which computes HMAC-SHA256(token key, digits) into scratch.digest
+     */
+    private void hmac(Scratch scratch, int length) {
+        MessageDigest sha256 = scratch.sha256;
+        try {
+            sha256.update(innerPad);
+            sha256.update(scratch.digits, 0, length);
+            sha256.digest(scratch.inner, 0, SHA256_BYTES);
+            sha256.update(outerPad);
+            sha256.update(scratch.inner, 0, SHA256_BYTES);
+            sha256.digest(scratch.digest, 0, SHA256_BYTES);
+        } catch (DigestException e) {
+            sha256.reset();
+            throw new CardVaultException("Card digest failed: " + e.getMessage());
+        }
+    }
+
+    private byte[] encrypt(byte[] digits, int length, String token) {
+        try {
+            byte[] iv = new byte[GCM_IV_BYTES];
+            random.nextBytes(iv);
+
+            Cipher cipher = Cipher.getInstance("AES/GCM/NoPadding");
+            cipher.init(Cipher.ENCRYPT_MODE, encryptionKey, new GCMParameterSpec(GCM_TAG_BITS, iv));
+            // the token is authenticated with the card, so a ciphertext copied under another token will not decrypt
+            cipher.updateAAD(token.getBytes(StandardCharsets.US_ASCII));
+
+            byte[] ciphertext = new byte[GCM_IV_BYTES + cipher.getOutputSize(length)];
+            System.arraycopy(iv, 0, ciphertext, 0, GCM_IV_BYTES);
+            cipher.doFinal(digits, 0, length, ciphertext, GCM_IV_BYTES);
+            return ciphertext;
+        } catch (GeneralSecurityException e) {
+            throw new CardVaultException("Card could not be encrypted: " + e.getMessage());
+        }
+    }
+
+    private String decrypt(byte[] ciphertext, String token) {
+        try {
+            Cipher cipher = Cipher.getInstance("AES/GCM/NoPadding");
+            cipher.init(Cipher.DECRYPT_MODE, encryptionKey, new GCMParameterSpec(GCM_TAG_BITS, ciphertext, 0, GCM_IV_BYTES));
+            cipher.updateAAD(token.getBytes(StandardCharsets.US_ASCII));
+            byte[] digits = cipher.doFinal(ciphertext, GCM_IV_BYTES, ciphertext.length - GCM_IV_BYTES);
+            return new String(digits, StandardCharsets.US_ASCII);
+        } catch (GeneralSecurityException e) {
+            throw new CardVaultException("Card could not be decrypted, the vault key may have changed: " + e.getMessage());
+        }
+    }
+
+    private static byte[] deriveKey(byte[] master, String label) {
+        try {
+            Mac mac = Mac.getInstance("HmacSHA256");
+            mac.init(new SecretKeySpec(master, "HmacSHA256"));
+            return mac.doFinal(label.getBytes(StandardCharsets.UTF_8));
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException("HmacSHA256 is not available", e);
+        }
+    }
+
+    private Scratch borrow() {
+        for (int i = 0; i < SCRATCH_POOL_SIZE; i++) {
+            Scratch scratch = scratchPool.getAndSet(i, null);
+            if (scratch != null) {
+                return scratch;
+            }
+        }
+        return new Scratch();
+    }
+
+    private void release(Scratch scratch) {
+        // card digits never outlive the call that needed them
+        Arrays.fill(scratch.digits, (byte) 0);
+        Arrays.fill(scratch.otherDigits, (byte) 0);
+        for (int i = 0; i < SCRATCH_POOL_SIZE; i++) {
+            if (scratchPool.compareAndSet(i, null, scratch)) {
+                return;
+            }
+        }
+    }
+
+    private static final class Scratch {
+        private final byte[] digits = new byte[MAX_DIGITS];
+        private final byte[] otherDigits = new byte[MAX_DIGITS];
+        private final byte[] inner = new byte[SHA256_BYTES];
+        private final byte[] digest = new byte[SHA256_BYTES];
+        private final MessageDigest sha256;
+
+        private Scratch() {
+            try {
+                sha256 = MessageDigest.getInstance("SHA-256");
+            } catch (NoSuchAlgorithmException e) {
+                throw new IllegalStateException("SHA-256 is not available", e);
+            }
+        }
+    }
+}
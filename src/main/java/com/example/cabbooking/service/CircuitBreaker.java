@@ -0,0 +1,154 @@
+package com.example.cabbooking.service;
+
+import java.util.function.LongSupplier;
+
+/**
+ * count-based circuit breaker.
+ * While CLOSED it remembers the outcome of the last windowSize calls and OPENs once enough of them failed. While
+ * OPEN every call is refused without reaching the remote side, and after openMillis a few trial calls are let
+ * through HALF_OPEN: if they all succeed the breaker closes again, the first failure opens it for another period.
+ */
+final class CircuitBreaker {
+
+    enum State { CLOSED, OPEN, HALF_OPEN }
+
+    private final int windowSize;
+    private final double failureRateThreshold;
+    private final int minimumCalls;
+    private final long openMillis;
+    private final int halfOpenCalls;
+    private final LongSupplier clock;
+
+    // everything below is guarded by this
+    private final boolean[] window;
+    private int next;
+    private int recorded;
+    private int failures;
+    private State state = State.CLOSED;
+    private long openedAt;
+    private int trialsStarted;
+    private int trialsSucceeded;
+    private long timesOpened;
+
+    CircuitBreaker(int windowSize, double failureRateThreshold, int minimumCalls, long openMillis, int halfOpenCalls) {
+        this(windowSize, failureRateThreshold, minimumCalls, openMillis, halfOpenCalls, System::currentTimeMillis);
+    }
+
+    CircuitBreaker(int windowSize, double failureRateThreshold, int minimumCalls, long openMillis, int halfOpenCalls,
+                   LongSupplier clock) {
+        if (windowSize < 1 || minimumCalls < 1 || minimumCalls > windowSize || halfOpenCalls < 1 || openMillis <= 0
+                || failureRateThreshold <= 0 || failureRateThreshold > 1) {
+            throw new IllegalArgumentException("Circuit breaker needs a positive window no smaller than its minimum calls, "
+                    + "a positive open period and trial count, and a failure rate threshold in (0, 1]");
+        }
+
+        this.windowSize = windowSize;
+        this.failureRateThreshold = failureRateThreshold;
+        this.minimumCalls = minimumCalls;
+        this.openMillis = openMillis;
+        this.halfOpenCalls = halfOpenCalls;
+        this.clock = clock;
+        this.window = new boolean[windowSize];
+    }
+
+    /**
+     * @return true if a call may go ahead, in which case its outcome must be reported with onSuccess() or onFailure()
+     */
+    synchronized boolean tryAcquire() {
+        if (state == State.OPEN) {
+            if (clock.getAsLong() - openedAt < openMillis) {
+                return false;
+            }
+            state = State.HALF_OPEN;
+            trialsStarted = 0;
+            trialsSucceeded = 0;
+        }
+
+        if (state == State.HALF_OPEN) {
+            if (trialsStarted >= halfOpenCalls) {
+                return false;
+            }
+            trialsStarted++;
+        }
+        return true;
+    }
+
+    /**
+     * hands back a permit from tryAcquire() for a call that was never made
+     */
+    synchronized void release() {
+        if (state == State.HALF_OPEN && trialsStarted > trialsSucceeded) {
+            trialsStarted--;
+        }
+    }
+
+    synchronized void onSuccess() {
+        if (state == State.HALF_OPEN) {
+            if (++trialsSucceeded >= halfOpenCalls) {
+                reset();
+                System.out.println("✓ Circuit breaker closed after " + halfOpenCalls + " successful trial calls");
+            }
+        } else if (state == State.CLOSED) {
+            record(false);
+        }
+    }
+
+    synchronized void onFailure() {
+        if (state == State.HALF_OPEN) {
+            open();
+        } else if (state == State.CLOSED) {
+            record(true);
+            if (recorded >= minimumCalls && failures >= failureRateThreshold * recorded) {
+                open();
+            }
+        }
+    }
+
+    synchronized State getState() {
+        // report HALF_OPEN as soon as the open period is over, not only once the next call arrives
+        if (state == State.OPEN && clock.getAsLong() - openedAt >= openMillis) {
+            return State.HALF_OPEN;
+        }
+        return state;
+    }
+
+    /**
+     * @return share of the calls in the window that failed, 0 while none have been recorded
+     */
+    synchronized double getFailureRate() {
+        return recorded == 0 ? 0 : (double) failures / recorded;
+    }
+
+    synchronized long getTimesOpened() {
+        return timesOpened;
+    }
+
+    private void record(boolean failed) {
+        if (recorded == windowSize) {
+            if (window[next]) {
+                failures--;
+            }
+        } else {
+            recorded++;
+        }
+        window[next] = failed;
+        if (failed) {
+            failures++;
+        }
+        next = (next + 1) % windowSize;
+    }
+
+    private void open() {
+        state = State.OPEN;
+        openedAt = clock.getAsLong();
+        timesOpened++;
+        System.out.println("✗ Circuit breaker opened for " + openMillis + " ms");
+    }
+
+    private void reset() {
+        state = State.CLOSED;
+        next = 0;
+        recorded = 0;
+        failures = 0;
+    }
+}
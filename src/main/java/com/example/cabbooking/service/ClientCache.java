@@ -0,0 +1,277 @@
+package com.example.cabbooking.service;
+
+import com.example.cabbooking.model.Client;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongSupplier;
+
+/**
+ * bounded client cache in front of ClientService's lookups, keyed by id and by email.
+ * Misses are cached too (for a shorter time), so repeated lookups of an unknown client do not reach MySQL.
+ * The least recently used entries are evicted once the cache is full, and every entry expires after its TTL,
+ * which also bounds how stale a node can be if an invalidation from another node is lost.
+ * Cached clients are copies, callers can change what they are given without changing the cache.
+ */
+@Service
+public class ClientCache {
+
+    private final int maxEntries;
+    private final long ttlNanos;
+    private final long negativeTtlNanos;
+    private final LongSupplier clock;
+
+    // guarded by this, in access order so the least recently used entry is first
+    private final LinkedHashMap<Integer, Entry> byId;
+    private final Map<String, Entry> byEmail = new HashMap<>();
+
+    // bumped by every invalidation, so a load that started before one does not put back what it removed
+    private long generation;
+
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong negativeHits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong evictions = new AtomicLong();
+    private final AtomicLong invalidations = new AtomicLong();
+
+    public ClientCache() {
+        this(10000, 300000, 5000, System::nanoTime);
+    }
+
+    @Autowired
+    public ClientCache(@Value("${client.cache.max-entries:10000}") int maxEntries,
+                       @Value("${client.cache.ttl-ms:300000}") long ttlMillis,
+                       @Value("${client.cache.negative-ttl-ms:5000}") long negativeTtlMillis) {
+        this(maxEntries, ttlMillis, negativeTtlMillis, System::nanoTime);
+    }
+
+    ClientCache(int maxEntries, long ttlMillis, long negativeTtlMillis, LongSupplier clock) {
+        if (maxEntries < 0 || ttlMillis < 0 || negativeTtlMillis < 0) {
+            throw new IllegalArgumentException("Client cache size and TTLs cannot be negative");
+        }
+        this.maxEntries = maxEntries;
+        this.ttlNanos = TimeUnit.MILLISECONDS.toNanos(ttlMillis);
+        this.negativeTtlNanos = TimeUnit.MILLISECONDS.toNanos(negativeTtlMillis);
+        this.clock = clock;
+        this.byId = new LinkedHashMap<>(16, 0.75f, true);
+    }
+
+    /**
+     * @param id client id
+     * @return null if the cache does not know the id, an empty Optional if it is known not to exist,
+     * otherwise a copy of the client
+     */
+    public synchronized Optional<Client> getById(int id) {
+        return read(byId.get(id));
+    }
+
+    /**
+     * @param email client email, compared the way MySQL does, ignoring case
+     * @return null if the cache does not know the email, an empty Optional if it is known not to exist,
+     * otherwise a copy of the client
+     */
+    public synchronized Optional<Client> getByEmail(String email) {
+        return read(byEmail.get(normalize(email)));
+    }
+
+    /**
+     * @return current generation, to pass to putById or putByEmail after the database has been read
+     */
+    public synchronized long generation() {
+        return generation;
+    }
+
+    /**
+     * stores the result of looking a client up by id, unless it was invalidated since the lookup started
+     * @param id client id that was looked up
+     * @param client what the database returned
+     * @param loadedAt generation() read before the lookup
+     */
+    public synchronized void putById(int id, Optional<Client> client, long loadedAt) {
+        if (loadedAt != generation || maxEntries == 0) {
+            return;
+        }
+        if (client.isPresent()) {
+            store(client.get());
+        } else {
+            removeId(id);
+            byId.put(id, new Entry(null, id, null, clock.getAsLong() + negativeTtlNanos));
+            evict();
+        }
+    }
+
+    /**
+     * stores the result of looking a client up by email, unless it was invalidated since the lookup started
+     * @param email email that was looked up
+     * @param client what the database returned
+     * @param loadedAt generation() read before the lookup
+     */
+    public synchronized void putByEmail(String email, Optional<Client> client, long loadedAt) {
+        if (loadedAt != generation || maxEntries == 0) {
+            return;
+        }
+        if (client.isPresent()) {
+            store(client.get());
+        } else if (email != null) {
+            String key = normalize(email);
+            removeEmail(key);
+            byEmail.put(key, new Entry(null, null, key, clock.getAsLong() + negativeTtlNanos));
+        }
+    }
+
+    /**
+     * forgets a client, under its id, under the email it was cached with and under the email it may have now
+     * @param id client id, null if only an email changed, e.g. a new client
+     * @param email client email, null if not known
+     */
+    public synchronized void invalidate(Integer id, String email) {
+        generation++;
+        invalidations.incrementAndGet();
+        if (id != null) {
+            removeId(id);
+        }
+        if (email != null) {
+            removeEmail(normalize(email));
+        }
+    }
+
+    public synchronized void clear() {
+        generation++;
+        byId.clear();
+        byEmail.clear();
+    }
+
+    public synchronized int size() {
+        return byId.size() + byEmail.size();
+    }
+
+    /**
+     * hit, miss and eviction counters and the share of lookups answered without MySQL
+     * @return map of metric names to values
+     */
+    public Map<String, Object> getMetrics() {
+        long hitCount = hits.get();
+        long negativeHitCount = negativeHits.get();
+        long missCount = misses.get();
+        long lookups = hitCount + negativeHitCount + missCount;
+
+        Map<String, Object> metrics = new HashMap<>();
+        metrics.put("entries", size());
+        metrics.put("maxEntries", maxEntries);
+        metrics.put("hits", hitCount);
+        metrics.put("negativeHits", negativeHitCount);
+        metrics.put("misses", missCount);
+        metrics.put("hitRatio", lookups == 0 ? 0.0 : (double) (hitCount + negativeHitCount) / lookups);
+        metrics.put("evictions", evictions.get());
+        metrics.put("invalidations", invalidations.get());
+        return metrics;
+    }
+
+    //================Helpers================
+
+    private Optional<Client> read(Entry entry) {
+        if (entry == null || entry.expiresAt - clock.getAsLong() <= 0) {
+            if (entry != null) {
+                remove(entry);
+            }
+            misses.incrementAndGet();
+            return null;
+        }
+        if (entry.client == null) {
+            negativeHits.incrementAndGet();
+            return Optional.empty();
+        }
+        hits.incrementAndGet();
+        return Optional.of(copy(entry.client));
+    }
+
+    /**
+     * helper method which caches a client under its id and email, replacing whatever either key held
+     */
+    private void store(Client client) {
+        if (client.getId() == null) {
+            return;
+        }
+        removeId(client.getId());
+        String email = client.getEmail() == null ? null : normalize(client.getEmail());
+        if (email != null) {
+            removeEmail(email);
+        }
+
+        Entry entry = new Entry(copy(client), client.getId(), email, clock.getAsLong() + ttlNanos);
+        byId.put(client.getId(), entry);
+        if (email != null) {
+            byEmail.put(email, entry);
+        }
+        evict();
+    }
+
+    private void evict() {
+        while (byId.size() > maxEntries) {
+            Entry eldest = byId.values().iterator().next();
+            remove(eldest);
+            evictions.incrementAndGet();
+        }
+        // email misses have no id entry to be evicted with, so they are capped on their own
+        if (byEmail.size() > maxEntries) {
+            byEmail.values().removeIf(entry -> entry.client == null);
+        }
+    }
+
+    private void removeId(int id) {
+        Entry entry = byId.get(id);
+        if (entry != null) {
+            remove(entry);
+        }
+    }
+
+    private void removeEmail(String email) {
+        Entry entry = byEmail.get(email);
+        if (entry != null) {
+            remove(entry);
+        }
+    }
+
+    private void remove(Entry entry) {
+        if (entry.id != null && byId.get(entry.id) == entry) {
+            byId.remove(entry.id);
+        }
+        if (entry.email != null && byEmail.get(entry.email) == entry) {
+            byEmail.remove(entry.email);
+        }
+    }
+
+    private static String normalize(String email) {
+        return email.trim().toLowerCase(Locale.ROOT);
+    }
+
+    private static Client copy(Client client) {
+        return new Client(client.getId(), client.getName(), client.getEmail(), client.getPhone(),
+                client.getAddress(), client.getCredit_card());
+    }
+
+    /**
+     * a cached client, or a cached miss when client is null
+     */
+    private static final class Entry {
+        private final Client client;
+        private final Integer id;
+        private final String email;
+        private final long expiresAt;
+
+        private Entry(Client client, Integer id, String email, long expiresAt) {
+            this.client = client;
+            this.id = id;
+            this.email = email;
+            this.expiresAt = expiresAt;
+        }
+    }
+}
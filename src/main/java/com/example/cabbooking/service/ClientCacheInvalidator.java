@@ -0,0 +1,30 @@
+package com.example.cabbooking.service;
+
+/**
+ * tells the other nodes that a client changed, so their client caches drop it.
+ * ClientService invalidates its own cache first and then publishes, and invalidates again for every change
+ * another node publishes. Delivery may be late or lost, the cache TTL bounds how long a node can stay stale.
+ */
+public interface ClientCacheInvalidator {
+
+    interface Listener {
+        /**
+         * @param clientId id of the client that changed, null when only an email is affected, e.g. a new client
+         * @param email email of the client now, null if not known
+         */
+        void onInvalidate(Integer clientId, String email);
+    }
+
+    /**
+     * @param clientId id of the client that changed, null when only an email is affected
+     * @param email email of the client now, null if not known
+     */
+    void publish(Integer clientId, String email);
+
+    /**
+     * @param listener called for changes published by other nodes
+     */
+    void subscribe(Listener listener);
+
+    String getName();
+}
@@ -0,0 +1,352 @@
+package com.example.cabbooking.service;
+
+import com.example.cabbooking.model.Client;
+import com.example.cabbooking.repository.ClientRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Locale;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * full client export for analytics, as NDJSON or CSV and optionally gzipped. Rows are written as MySQL sends them
+ * from one forward-only result set, so memory stays flat however many clients there are.
+ * Cards are always masked to their last four digits.
+ */
+@Service
+public class ClientExportService {
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private final ClientRepository clientRepository;
+
+    /**
+     * file formats a client export can be written in
+     */
+    public enum Format {
+        NDJSON("ndjson"), CSV("csv");
+
+        private final String extension;
+
+        Format(String extension) {
+            this.extension = extension;
+        }
+
+        public String getExtension() {
+            return extension;
+        }
+
+        /**
+         * @param name ndjson or csv, in any case
+         * @return the format with that name
+         */
+        public static Format fromName(String name) {
+            for (Format format : values()) {
+                if (format.extension.equalsIgnoreCase(name == null ? "" : name.trim())) {
+                    return format;
+                }
+            }
+            throw new InvalidExportException("Client export format must be ndjson or csv, got: " + name);
+        }
+    }
+
+    public static class InvalidExportException extends RuntimeException {
+        public InvalidExportException(String message) {
+            super(message);
+        }
+    }
+
+    @Autowired
+    public ClientExportService(ClientRepository clientRepository) {
+        this.clientRepository = clientRepository;
+    }
+
+    /**
+     * writes every client to a stream. The stream holds a database connection until the last row is written,
+     * so a slow reader keeps that connection busy
+     * @param out stream to write to, left open
+     * @param format NDJSON or CSV
+     * @param gzip true to gzip what is written
+     * @return number of clients written, -1 if reading or writing failed part way
+     */
+    public long export(OutputStream out, Format format, boolean gzip) {
+        try {
+            GZIPOutputStream compressed = gzip ? new GZIPOutputStream(out, BUFFER_SIZE) : null;
+            long rows = write(Channels.newChannel(compressed != null ? compressed : out), format);
+            if (compressed != null) {
+                compressed.finish();
+            }
+            out.flush();
+            return report(rows, format, "stream");
+        } catch (IOException | UncheckedIOException e) {
+            System.out.println("✗ Service Error: Client export stream was closed early: " + e.getMessage());
+            return -1;
+        }
+    }
+
+    /**
+     * writes every client to a file, under a temporary name until the last row is written
+     * so a reader never sees half an export
+     * @param file file to write, replaced if it exists
+     * @param format NDJSON or CSV
+     * @param gzip true to gzip the file
+     * @return number of clients written, -1 if the export failed and no file was written
+     */
+    public long exportToFile(Path file, Format format, boolean gzip) {
+        Path temp = file.resolveSibling(file.getFileName() + ".tmp");
+        try {
+            long rows;
+            try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                    StandardOpenOption.TRUNCATE_EXISTING)) {
+                if (gzip) {
+                    GZIPOutputStream compressed = new GZIPOutputStream(Channels.newOutputStream(channel), BUFFER_SIZE);
+                    rows = write(Channels.newChannel(compressed), format);
+                    compressed.finish();
+                } else {
+                    rows = write(channel, format);
+                }
+                channel.force(true);
+            }
+
+            if (rows < 0) {
+                Files.deleteIfExists(temp);
+                return report(rows, format, file.toString());
+            }
+            Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            return report(rows, format, file.toString());
+        } catch (IOException | UncheckedIOException e) {
+            System.out.println("✗ Service Error: Client export to " + file + " failed: " + e.getMessage());
+            try {
+                Files.deleteIfExists(temp);
+            } catch (IOException ignored) {
+                // the next export truncates it
+            }
+            return -1;
+        }
+    }
+
+    /**
+     * @param name export file name, e.g. clients.csv.gz
+     * @return NDJSON unless the name ends in .csv or .csv.gz
+     */
+    public static Format formatOf(String name) {
+        String lower = name.toLowerCase(Locale.ROOT);
+        return lower.endsWith(".csv") || lower.endsWith(".csv.gz") ? Format.CSV : Format.NDJSON;
+    }
+
+    //================Writing================
+
+    private long write(WritableByteChannel channel, Format format) throws IOException {
+        ClientWriter writer = new ClientWriter(channel, format);
+        writer.header();
+        long[] rows = new long[1];
+        boolean complete = clientRepository.streamAll(client -> {
+            try {
+                writer.client(client);
+                rows[0]++;
+            } catch (IOException e) {
+                // stops the result set, streamAll reports the export as incomplete
+                throw new UncheckedIOException(e);
+            }
+        });
+        writer.flush();
+        return complete ? rows[0] : -1;
+    }
+
+    private static long report(long rows, Format format, String target) {
+        if (rows < 0) {
+            System.out.println("✗ Service: Client export to " + target + " ended early");
+        } else {
+            System.out.println("✓ Service: Exported " + rows + " clients as " + format + " to " + target);
+        }
+        return rows;
+    }
+
+    /**
+     * writes clients as UTF-8 through one buffer, handing the channel a full buffer at a time
+     * instead of building a string or a byte array per client
+     */
+    private static final class ClientWriter {
+
+        private static final String[] CSV_COLUMNS = {"id", "name", "email", "phone", "address", "credit_card"};
+        private static final byte[] HEX = "0123456789abcdef".getBytes();
+
+        private final WritableByteChannel channel;
+        private final Format format;
+        private final ByteBuffer buffer = ByteBuffer.allocateDirect(BUFFER_SIZE);
+
+        private ClientWriter(WritableByteChannel channel, Format format) {
+            this.channel = channel;
+            this.format = format;
+        }
+
+        private void header() throws IOException {
+            if (format == Format.CSV) {
+                ascii(String.join(",", CSV_COLUMNS));
+                put('\n');
+            }
+        }
+
+        private void client(Client client) throws IOException {
+            String card = client.getCredit_card() == null || client.getCredit_card().isBlank()
+                    ? null : CardVault.mask(client.getCredit_card());
+            if (format == Format.CSV) {
+                ascii(String.valueOf(client.getId()));
+                csv(client.getName());
+                csv(client.getEmail());
+                csv(client.getPhone());
+                csv(client.getAddress());
+                csv(card);
+                put('\n');
+            } else {
+                ascii("{\"id\":");
+                ascii(String.valueOf(client.getId()));
+                json("name", client.getName());
+                json("email", client.getEmail());
+                json("phone", client.getPhone());
+                json("address", client.getAddress());
+                json("credit_card", card);
+                ascii("}\n");
+            }
+        }
+
+        /**
+         * a comma and the field, quoted when it holds a comma, quote or line break, empty when null
+         */
+        private void csv(String value) throws IOException {
+            put(',');
+            if (value == null) {
+                return;
+            }
+            boolean quote = false;
+            for (int i = 0; i < value.length() && !quote; i++) {
+                char c = value.charAt(i);
+                quote = c == ',' || c == '"' || c == '\n' || c == '\r';
+            }
+            if (!quote) {
+                text(value);
+                return;
+            }
+            put('"');
+            for (int i = 0; i < value.length(); ) {
+                if (value.charAt(i) == '"') {
+                    put('"');
+                }
+                i += character(value, i);
+            }
+            put('"');
+        }
+
+        /**
+         * a comma and "name":"value", or "name":null
+         */
+        private void json(String name, String value) throws IOException {
+            ascii(",\"");
+            ascii(name);
+            ascii("\":");
+            if (value == null) {
+                ascii("null");
+                return;
+            }
+            put('"');
+            for (int i = 0; i < value.length(); ) {
+                char c = value.charAt(i);
+                if (c >= 0x20 && c != '"' && c != '\\') {
+                    i += character(value, i);
+                    continue;
+                }
+                i++;
+                if (c == '"' || c == '\\') {
+                    put('\\');
+                    put(c);
+                } else if (c == '\n') {
+                    ascii("\\n");
+                } else if (c == '\r') {
+                    ascii("\\r");
+                } else if (c == '\t') {
+                    ascii("\\t");
+                } else {
+                    ascii("\\u00");
+                    put((char) HEX[c >>> 4]);
+                    put((char) HEX[c & 0xf]);
+                }
+            }
+            put('"');
+        }
+
+        private void text(String value) throws IOException {
+            for (int i = 0; i < value.length(); ) {
+                i += character(value, i);
+            }
+        }
+
+        private void ascii(String value) throws IOException {
+            for (int i = 0; i < value.length(); i++) {
+                put(value.charAt(i));
+            }
+        }
+
+        /**
+         * encodes the character at index as UTF-8, with the low surrogate after it when it is a high surrogate
+         * @return number of chars encoded, 2 for a surrogate pair
+         */
+        private int character(String value, int index) throws IOException {
+            char c = value.charAt(index);
+            if (c < 0x80) {
+                put(c);
+                return 1;
+            }
+            ensure(4);
+            if (c < 0x800) {
+                buffer.put((byte) (0xc0 | c >>> 6));
+                buffer.put((byte) (0x80 | c & 0x3f));
+            } else if (Character.isHighSurrogate(c) && index + 1 < value.length()
+                    && Character.isLowSurrogate(value.charAt(index + 1))) {
+                int codePoint = Character.toCodePoint(c, value.charAt(index + 1));
+                buffer.put((byte) (0xf0 | codePoint >>> 18));
+                buffer.put((byte) (0x80 | codePoint >>> 12 & 0x3f));
+                buffer.put((byte) (0x80 | codePoint >>> 6 & 0x3f));
+                buffer.put((byte) (0x80 | codePoint & 0x3f));
+                return 2;
+            } else if (Character.isSurrogate(c)) {
+                // half of a pair on its own cannot be encoded
+                buffer.put((byte) '?');
+            } else {
+                buffer.put((byte) (0xe0 | c >>> 12));
+                buffer.put((byte) (0x80 | c >>> 6 & 0x3f));
+                buffer.put((byte) (0x80 | c & 0x3f));
+            }
+            return 1;
+        }
+
+        private void put(char ascii) throws IOException {
+            ensure(1);
+            buffer.put((byte) ascii);
+        }
+
+        private void ensure(int bytes) throws IOException {
+            if (buffer.remaining() < bytes) {
+                flush();
+            }
+        }
+
+        private void flush() throws IOException {
+            buffer.flip();
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+            buffer.clear();
+        }
+    }
+}
@@ -0,0 +1,524 @@
+package com.example.cabbooking.service;
+
+import com.example.cabbooking.model.Client;
+import com.example.cabbooking.model.ClientImportResult;
+import com.example.cabbooking.repository.ClientRepository;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+
+/**
+ * bulk client import from CSV or NDJSON. The file is read in batches: while one batch is written to MySQL
+ * (cards and clients as JDBC batches in one transaction) the next one is validated and its cards encrypted
+ * on the other cores, so neither the parsing nor the database waits for the other.
+ * A row that cannot be imported is reported with its line and does not stop the rows around it.
+ */
+@Service
+public class ClientImportService {
+
+    private static final ObjectMapper JSON = new ObjectMapper();
+    // below this many rows a batch is validated on one thread
+    private static final int MIN_ROWS_PER_SLICE = 64;
+
+    private final ClientRepository clientRepository;
+    private final CardVault cardVault;
+    private final ClientCache clientCache;
+    private final TransactionTemplate transactionTemplate;
+    private final int batchSize;
+    private final int maxErrors;
+    private final int validationThreads;
+    private final ThreadFactory threadFactory;
+
+    /**
+     * file formats an import can be sent in
+     * CSV: a header row naming the columns (name, email, phone, address, credit_card), then one client per line
+     * NDJSON: one client JSON object per line, as GET /clients/stream writes them
+     */
+    public enum Format {
+        CSV, NDJSON;
+
+        /**
+         * @param contentType Content-Type of the request, e.g. text/csv or application/x-ndjson
+         * @return the format the content type names
+         */
+        public static Format fromContentType(String contentType) {
+            String type = contentType == null ? "" : contentType.toLowerCase(Locale.ROOT);
+            if (type.contains("csv")) {
+                return CSV;
+            }
+            if (type.contains("ndjson") || type.contains("jsonl")) {
+                return NDJSON;
+            }
+            throw new InvalidImportException("Client import must be text/csv or application/x-ndjson, got: " + contentType);
+        }
+    }
+
+    public static class InvalidImportException extends RuntimeException {
+        public InvalidImportException(String message) {
+            super(message);
+        }
+    }
+
+    public ClientImportService(ClientRepository clientRepository, CardVault cardVault, ClientCache clientCache) {
+        this(clientRepository, cardVault, clientCache, null, 1000, 100, 0, Thread::new);
+    }
+
+    /**
+     * @param transactionTemplate transaction each batch's cards and clients are written in, null to write without one
+     * @param validationThreads threads validating rows and encrypting cards, 0 for one per core
+     */
+    @Autowired
+    public ClientImportService(ClientRepository clientRepository,
+                               CardVault cardVault,
+                               ClientCache clientCache,
+                               TransactionTemplate transactionTemplate,
+                               @Value("${client.import.batch-size:1000}") int batchSize,
+                               @Value("${client.import.max-errors:100}") int maxErrors,
+                               @Value("${client.import.validation-threads:0}") int validationThreads,
+                               ThreadFactory workerThreadFactory) {
+        if (batchSize <= 0 || maxErrors < 0 || validationThreads < 0) {
+            throw new IllegalArgumentException("Client import batch size must be positive, max errors and threads cannot be negative");
+        }
+
+        this.clientRepository = clientRepository;
+        this.cardVault = cardVault;
+        this.clientCache = clientCache;
+        this.transactionTemplate = transactionTemplate;
+        this.batchSize = batchSize;
+        this.maxErrors = maxErrors;
+        this.validationThreads = validationThreads == 0 ? Runtime.getRuntime().availableProcessors() : validationThreads;
+        this.threadFactory = workerThreadFactory;
+    }
+
+    /**
+     * imports every client in a file. Batches that were written stay written if a later one fails.
+     * Other nodes may keep an imported email cached as a miss until client.cache.negative-ttl-ms passes,
+     * invalidations are not broadcast per imported row
+     * @param input file contents, UTF-8
+     * @param format CSV or NDJSON
+     * @return rows read, imported and failed, with the reason each failed row was rejected
+     */
+    public ClientImportResult importClients(InputStream input, Format format) {
+        if (input == null || format == null) {
+            throw new InvalidImportException("Client import needs a file and a format");
+        }
+
+        long started = System.nanoTime();
+        ClientImportResult result = new ClientImportResult();
+        ExecutorService validators = Executors.newFixedThreadPool(validationThreads, threadFactory);
+        BufferedReader reader = new BufferedReader(new InputStreamReader(input, StandardCharsets.UTF_8), 1 << 16);
+        RowReader rows = format == Format.CSV ? new CsvRowReader(reader) : new NdjsonRowReader(reader);
+        try {
+            // one batch is validated while the previous one is written
+            CompletableFuture<List<Row>> pending = null;
+            List<Row> batch;
+            while (!(batch = rows.next(batchSize)).isEmpty()) {
+                result.setRows(result.getRows() + batch.size());
+                CompletableFuture<List<Row>> validated = validate(batch, validators);
+                if (pending != null) {
+                    write(pending.join(), result);
+                }
+                pending = validated;
+            }
+            if (pending != null) {
+                write(pending.join(), result);
+            }
+        } catch (IOException e) {
+            // what was written before the read failed stays written, so report it rather than throw it away
+            addError(result, rows.line(), "Import stopped, the file could not be read: " + e.getMessage());
+        } finally {
+            validators.shutdownNow();
+        }
+
+        result.setElapsedMillis((System.nanoTime() - started) / 1_000_000);
+        System.out.println("✓ Service: Imported " + result.getImported() + " of " + result.getRows() + " clients ("
+                + result.getFailed() + " rejected) in " + result.getElapsedMillis() + " ms");
+        return result;
+    }
+
+    //================Validation================
+
+    /**
+     * validates a batch in slices on the validator threads
+     * @return the same rows once every slice is done, failed rows carrying their error
+     */
+    private CompletableFuture<List<Row>> validate(List<Row> batch, ExecutorService validators) {
+        int slices = Math.max(1, Math.min(validationThreads, batch.size() / MIN_ROWS_PER_SLICE));
+        int sliceSize = (batch.size() + slices - 1) / slices;
+
+        CompletableFuture<?>[] work = new CompletableFuture<?>[slices];
+        for (int i = 0; i < slices; i++) {
+            List<Row> slice = batch.subList(i * sliceSize, Math.min(batch.size(), (i + 1) * sliceSize));
+            work[i] = CompletableFuture.runAsync(() -> slice.forEach(this::validate), validators);
+        }
+        return CompletableFuture.allOf(work).thenApply(done -> batch);
+    }
+
+    /**
+     * the checks POST /clients makes, and the card tokenised and encrypted ready for storeAll
+     */
+    private void validate(Row row) {
+        if (row.error != null) {
+            return;
+        }
+
+        Client client = row.client;
+        if (client.getName() == null || client.getName().trim().isEmpty()) {
+            row.error = "Client name is required";
+            return;
+        }
+        if (client.getEmail() == null || client.getEmail().trim().isEmpty()) {
+            row.error = "Client email is required";
+            return;
+        }
+        if (!client.getEmail().contains("@")) {
+            row.error = "Invalid email format: " + client.getEmail();
+            return;
+        }
+        client.setEmail(client.getEmail().trim());
+
+        String card = client.getCredit_card();
+        if (card == null || card.isBlank() || CardVault.isToken(card)) {
+            return;
+        }
+        try {
+            row.card = cardVault.seal(card);
+            client.setCredit_card(row.card.getToken());
+        } catch (CardVault.InvalidCardException | CardVault.CardVaultException e) {
+            // the messages never repeat the card number
+            row.error = e.getMessage();
+        }
+    }
+
+    //================Writing================
+
+    /**
+     * writes a validated batch: rows whose email is taken, in the database or earlier in the batch, are rejected,
+     * then the cards and clients of the rest are inserted together
+     */
+    private void write(List<Row> batch, ClientImportResult result) {
+        Map<String, Row> byEmail = new LinkedHashMap<>();
+        for (Row row : batch) {
+            if (row.error != null) {
+                addFailure(result, row.line, row.error);
+                continue;
+            }
+            Row first = byEmail.putIfAbsent(row.client.getEmail().toLowerCase(Locale.ROOT), row);
+            if (first != null) {
+                addFailure(result, row.line, "Email " + row.client.getEmail() + " is already used on line " + first.line);
+            }
+        }
+        if (byEmail.isEmpty()) {
+            return;
+        }
+
+        // earlier batches are committed by now, so this also catches duplicates across batches
+        Set<String> taken;
+        try {
+            taken = clientRepository.findExistingEmails(byEmail.keySet());
+        } catch (RuntimeException e) {
+            String error = "Emails could not be checked, row was not imported: " + rootMessage(e);
+            System.out.println("✗ Service: Client import " + error);
+            for (Row row : byEmail.values()) {
+                addFailure(result, row.line, error);
+            }
+            return;
+        }
+        List<Row> accepted = new ArrayList<>(byEmail.size());
+        for (Map.Entry<String, Row> entry : byEmail.entrySet()) {
+            Row row = entry.getValue();
+            if (taken.contains(entry.getKey())) {
+                addFailure(result, row.line, "Client with email " + row.client.getEmail() + " already exists");
+                continue;
+            }
+            accepted.add(row);
+        }
+        insert(accepted, result);
+    }
+
+    /**
+     * inserts rows as one batch; when the batch fails it is retried in halves, down to single rows,
+     * so the rows that can be written are and each one that cannot is reported with its own error
+     */
+    private void insert(List<Row> rows, ClientImportResult result) {
+        if (rows.isEmpty()) {
+            return;
+        }
+        String error = inTransaction(rows);
+        if (error == null) {
+            result.setImported(result.getImported() + rows.size());
+            for (Row row : rows) {
+                // the email may be cached as a miss
+                clientCache.invalidate(null, row.client.getEmail());
+            }
+        } else if (rows.size() == 1) {
+            addFailure(result, rows.get(0).line, error);
+        } else {
+            int half = rows.size() / 2;
+            insert(rows.subList(0, half), result);
+            insert(rows.subList(half, rows.size()), result);
+        }
+    }
+
+    /**
+     * helper method which writes the cards and clients of some rows, in a transaction when there is one
+     * @return null if the write was committed, otherwise why it failed
+     */
+    private String inTransaction(List<Row> rows) {
+        List<Client> clients = new ArrayList<>(rows.size());
+        List<CardVault.SealedCard> cards = new ArrayList<>();
+        for (Row row : rows) {
+            clients.add(row.client);
+            if (row.card != null) {
+                cards.add(row.card);
+            }
+        }
+        try {
+            if (transactionTemplate == null) {
+                cardVault.storeAll(cards);
+                clientRepository.insertBatch(clients);
+            } else {
+                transactionTemplate.executeWithoutResult(status -> {
+                    cardVault.storeAll(cards);
+                    clientRepository.insertBatch(clients);
+                });
+            }
+            return null;
+        } catch (RuntimeException e) {
+            if (rows.size() > 1) {
+                System.out.println("✗ Service: Client import batch of " + rows.size() + " rows failed, retrying in halves: "
+                        + rootMessage(e));
+            }
+            return "Client could not be written: " + rootMessage(e);
+        }
+    }
+
+    /**
+     * the message of the innermost cause, e.g. MySQL's own error instead of the JDBC wrapper repeating the SQL
+     */
+    private static String rootMessage(Throwable e) {
+        Throwable cause = e;
+        while (cause.getCause() != null && cause.getCause() != cause) {
+            cause = cause.getCause();
+        }
+        return cause.getMessage() != null ? cause.getMessage() : cause.getClass().getSimpleName();
+    }
+
+    private void addFailure(ClientImportResult result, long line, String message) {
+        result.setFailed(result.getFailed() + 1);
+        addError(result, line, message);
+    }
+
+    private void addError(ClientImportResult result, long line, String message) {
+        if (result.getErrors().size() < maxErrors) {
+            result.getErrors().add(new ClientImportResult.RowError(line, message));
+        } else {
+            result.setErrorsTruncated(true);
+        }
+    }
+
+    //================Parsing================
+
+    /**
+     * a parsed line, with the error that will keep it out of the database if it has one
+     */
+    private static final class Row {
+        private final long line;
+        private final Client client;
+        private String error;
+        private CardVault.SealedCard card;
+
+        private Row(long line, Client client, String error) {
+            this.line = line;
+            this.client = client;
+            this.error = error;
+        }
+    }
+
+    private abstract static class RowReader {
+        private final BufferedReader reader;
+        private long line;
+
+        RowReader(BufferedReader reader) {
+            this.reader = reader;
+        }
+
+        /**
+         * @return up to max rows, empty at the end of the file
+         */
+        List<Row> next(int max) throws IOException {
+            List<Row> rows = new ArrayList<>(max);
+            String text;
+            while (rows.size() < max && (text = nextLine()) != null) {
+                rows.add(parse(line, text));
+            }
+            return rows;
+        }
+
+        /**
+         * @return the next line that is not blank, null at the end of the file
+         */
+        String nextLine() throws IOException {
+            String text;
+            while ((text = reader.readLine()) != null) {
+                line++;
+                if (!text.isBlank()) {
+                    return text;
+                }
+            }
+            return null;
+        }
+
+        long line() {
+            return line;
+        }
+
+        abstract Row parse(long line, String text) throws IOException;
+    }
+
+    private static final class NdjsonRowReader extends RowReader {
+        NdjsonRowReader(BufferedReader reader) {
+            super(reader);
+        }
+
+        @Override
+        Row parse(long line, String text) {
+            try {
+                Client client = JSON.readValue(text, Client.class);
+                if (client == null) {
+                    return new Row(line, null, "Line is not a client");
+                }
+                // ids are assigned by the database
+                client.setId(null);
+                return new Row(line, client, null);
+            } catch (JsonProcessingException e) {
+                return new Row(line, null, "Invalid JSON: " + e.getOriginalMessage());
+            }
+        }
+    }
+
+    private static final class CsvRowReader extends RowReader {
+        private static final List<String> COLUMNS = List.of("name", "email", "phone", "address", "credit_card");
+
+        // position of each of COLUMNS in the file, -1 if the file does not have it
+        private int[] positions;
+        private int width;
+
+        CsvRowReader(BufferedReader reader) {
+            super(reader);
+        }
+
+        @Override
+        List<Row> next(int max) throws IOException {
+            if (positions == null) {
+                readHeader();
+            }
+            return super.next(max);
+        }
+
+        private void readHeader() throws IOException {
+            String text = nextLine();
+            if (text == null) {
+                throw new InvalidImportException("Client import is empty, a CSV file needs a header row");
+            }
+            List<String> header = split(text);
+            if (header == null) {
+                throw new InvalidImportException("CSV header on line " + line() + " has an unterminated quote");
+            }
+
+            positions = new int[COLUMNS.size()];
+            for (int i = 0; i < COLUMNS.size(); i++) {
+                positions[i] = indexOf(header, COLUMNS.get(i));
+            }
+            if (positions[0] < 0 || positions[1] < 0) {
+                throw new InvalidImportException("CSV header must name a name and an email column, got: " + text);
+            }
+            width = header.size();
+        }
+
+        @Override
+        Row parse(long line, String text) {
+            List<String> fields = split(text);
+            if (fields == null) {
+                return new Row(line, null, "Unterminated quote");
+            }
+            if (fields.size() != width) {
+                return new Row(line, null, "Expected " + width + " fields, found " + fields.size());
+            }
+            Client client = new Client();
+            client.setName(field(fields, 0));
+            client.setEmail(field(fields, 1));
+            client.setPhone(field(fields, 2));
+            client.setAddress(field(fields, 3));
+            client.setCredit_card(field(fields, 4));
+            return new Row(line, client, null);
+        }
+
+        private String field(List<String> fields, int column) {
+            int position = positions[column];
+            if (position < 0) {
+                return null;
+            }
+            String value = fields.get(position);
+            return value.isEmpty() ? null : value;
+        }
+
+        private static int indexOf(List<String> header, String column) {
+            for (int i = 0; i < header.size(); i++) {
+                if (header.get(i).trim().equalsIgnoreCase(column)) {
+                    return i;
+                }
+            }
+            return -1;
+        }
+
+        /**
+         * splits a CSV line on commas, fields may be quoted with "" standing for a quote inside them
+         * @return the fields, null if a quote is never closed (a field cannot span lines)
+         */
+        static List<String> split(String text) {
+            List<String> fields = new ArrayList<>();
+            StringBuilder field = new StringBuilder();
+            boolean quoted = false;
+            for (int i = 0; i < text.length(); i++) {
+                char c = text.charAt(i);
+                if (quoted) {
+                    if (c != '"') {
+                        field.append(c);
+                    } else if (i + 1 < text.length() && text.charAt(i + 1) == '"') {
+                        field.append('"');
+                        i++;
+                    } else {
+                        quoted = false;
+                    }
+                } else if (c == '"') {
+                    quoted = true;
+                } else if (c == ',') {
+                    fields.add(field.toString());
+                    field.setLength(0);
+                } else {
+                    field.append(c);
+                }
+            }
+            if (quoted) {
+                return null;
+            }
+            fields.add(field.toString());
+            return fields;
+        }
+    }
+}
@@ -1,21 +1,93 @@
 package com.example.cabbooking.service;
 
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
 
 import com.example.cabbooking.model.Client;
+import com.example.cabbooking.model.ClientPage;
 import com.example.cabbooking.repository.ClientRepository;
+import com.fasterxml.jackson.databind.ObjectMapper;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 
 @Service
 public class ClientService {
 
+   private static final ObjectMapper JSON = new ObjectMapper();
+
    private final ClientRepository clientRepository;
+   private final CardVault cardVault;
+   private final ClientCache clientCache;
+   private final ClientCacheInvalidator cacheInvalidator;
+   private final int defaultPageSize;
+   private final int maxPageSize;
+   private final long countCacheTtlNanos;
+   private final int defaultSearchLimit;
+   private final int maxSearchLimit;
+
+   // approximate client count and when it was read, shared by every caller until it is older than the TTL
+   private volatile long cachedCount = -1;
+   private volatile long cachedCountAt;
+   // held by the one caller reading a fresh estimate; the others keep the old one meanwhile
+   private final ReentrantLock countRefresh = new ReentrantLock();
+
+   public static class InvalidPageRequestException extends RuntimeException {
+      public InvalidPageRequestException(String message) {
+         super(message);
+      }
+   }
+
+   public static class InvalidSearchException extends RuntimeException {
+      public InvalidSearchException(String message) {
+         super(message);
+      }
+   }
 
-   @Autowired
    public ClientService(ClientRepository clientRepository) {
+      this(clientRepository, new CardVault(null, ""));
+   }
+
+   public ClientService(ClientRepository clientRepository, CardVault cardVault) {
+      this(clientRepository, cardVault, new ClientCache(), new LocalClientCacheInvalidator(), 100, 1000, 60000, 20, 100);
+   }
+
+   @Autowired
+   public ClientService(ClientRepository clientRepository, CardVault cardVault,
+                        ClientCache clientCache, ClientCacheInvalidator cacheInvalidator,
+                        @Value("${client.page.default-size:100}") int defaultPageSize,
+                        @Value("${client.page.max-size:1000}") int maxPageSize,
+                        @Value("${client.count.cache-ttl-ms:60000}") long countCacheTtlMillis,
+                        @Value("${client.search.default-limit:20}") int defaultSearchLimit,
+                        @Value("${client.search.max-limit:100}") int maxSearchLimit) {
+      if (defaultPageSize <= 0 || maxPageSize < defaultPageSize) {
+         throw new IllegalArgumentException("Client page sizes must be positive and the default cannot exceed the maximum");
+      }
+      if (defaultSearchLimit <= 0 || maxSearchLimit < defaultSearchLimit) {
+         throw new IllegalArgumentException("Client search limits must be positive and the default cannot exceed the maximum");
+      }
+      if (countCacheTtlMillis < 0) {
+         throw new IllegalArgumentException("Client count cache TTL cannot be negative");
+      }
       this.clientRepository = clientRepository;
+      this.cardVault = cardVault;
+      this.clientCache = clientCache;
+      this.cacheInvalidator = cacheInvalidator;
+      this.defaultPageSize = defaultPageSize;
+      this.maxPageSize = maxPageSize;
+      this.countCacheTtlNanos = TimeUnit.MILLISECONDS.toNanos(countCacheTtlMillis);
+      this.defaultSearchLimit = defaultSearchLimit;
+      this.maxSearchLimit = maxSearchLimit;
+
+      // changes made on other nodes
+      cacheInvalidator.subscribe(clientCache::invalidate);
    }
 
    /**
@@ -27,16 +99,131 @@ public class ClientService {
    }
 
    /**
-    * Get a client by their ID
+    * Get one page of clients in id order
+    * @param after id of the last client on the previous page, null for the first page
+    * @param limit page size, null for the default
+    * @return the clients and the id to ask for the next page with
+    */
+   public ClientPage getClients(Integer after, Integer limit) {
+      if (after != null && after < 0) {
+         throw new InvalidPageRequestException("After must be a client ID, got: " + after);
+      }
+      if (limit != null && (limit <= 0 || limit > maxPageSize)) {
+         throw new InvalidPageRequestException("Page size must be between 1 and " + maxPageSize + ", got: " + limit);
+      }
+      int pageSize = limit == null ? defaultPageSize : limit;
+
+      // one extra row tells whether another page follows
+      List<Client> rows = clientRepository.findPage(after == null ? 0 : after, pageSize + 1);
+      if (rows.size() <= pageSize) {
+         return new ClientPage(rows, null);
+      }
+      List<Client> page = rows.subList(0, pageSize);
+      return new ClientPage(page, page.get(pageSize - 1).getId());
+   }
+
+   /**
+    * Write every client to a stream as newline-delimited JSON, one client per line, as the rows are read,
+    * so memory stays flat however many clients there are
+    * @param out stream to write to, left open
+    * @return true if every client was written, false if reading or writing failed part way
+    */
+   public boolean streamClients(OutputStream out) {
+      BufferedOutputStream buffered = new BufferedOutputStream(out);
+      boolean complete = clientRepository.streamAll(client -> {
+         try {
+            buffered.write(JSON.writeValueAsBytes(client));
+            buffered.write('\n');
+         } catch (IOException e) {
+            throw new UncheckedIOException(e);
+         }
+      });
+
+      try {
+         buffered.flush();
+      } catch (IOException e) {
+         System.out.println("✗ Service Error: Client stream was closed early: " + e.getMessage());
+         return false;
+      }
+      if (!complete) {
+         System.out.println("✗ Service: Client stream ended early");
+      }
+      return complete;
+   }
+
+   /**
+    * Get a client by their ID, from the client cache when it is there.
+    * A miss is cached too, for client.cache.negative-ttl-ms
     * @param id The client ID to search for
-    * @return Optional containing the client if found, empty otherwise
+    * @return Optional containing a copy of the client if found, empty otherwise
     */
    public Optional<Client> getClientById(Integer id) {
       if (id == null) {
          System.out.println("✗ Service Error: Client ID cannot be null");
          return Optional.empty();
       }
-      return clientRepository.findById(id);
+
+      Optional<Client> cached = clientCache.getById(id);
+      if (cached != null) {
+         return cached;
+      }
+      long generation = clientCache.generation();
+      Optional<Client> client = clientRepository.findById(id);
+      clientCache.putById(id, client, generation);
+      return client;
+   }
+
+   /**
+    * Get a client by their email, from the client cache when it is there.
+    * A miss is cached too, for client.cache.negative-ttl-ms
+    * @param email The client email to search for
+    * @return Optional containing a copy of the client if found, empty otherwise
+    */
+   public Optional<Client> getClientByEmail(String email) {
+      if (email == null || email.isBlank()) {
+         System.out.println("✗ Service Error: Client email cannot be empty");
+         return Optional.empty();
+      }
+
+      Optional<Client> cached = clientCache.getByEmail(email);
+      if (cached != null) {
+         return cached;
+      }
+      long generation = clientCache.generation();
+      Optional<Client> client = clientRepository.findByEmail(email);
+      clientCache.putByEmail(email, client, generation);
+      return client;
+   }
+
+   /**
+    * Search clients by exactly one of email, phone or the start of their name, each answered from an index.
+    * Email is looked up through the client cache; phone is compared as digits, so any formatting matches
+    * @param email exact email, ignoring case
+    * @param phone exact phone number in any format
+    * @param namePrefix start of the name, ignoring case
+    * @param limit most clients to return, null for the default
+    * @return the matching clients, in name order for a name search and id order otherwise
+    */
+   public List<Client> searchClients(String email, String phone, String namePrefix, Integer limit) {
+      int criteria = (isBlank(email) ? 0 : 1) + (isBlank(phone) ? 0 : 1) + (isBlank(namePrefix) ? 0 : 1);
+      if (criteria != 1) {
+         throw new InvalidSearchException("Search by exactly one of email, phone or name");
+      }
+      if (limit != null && (limit <= 0 || limit > maxSearchLimit)) {
+         throw new InvalidSearchException("Search limit must be between 1 and " + maxSearchLimit + ", got: " + limit);
+      }
+      int maxResults = limit == null ? defaultSearchLimit : limit;
+
+      if (!isBlank(email)) {
+         return getClientByEmail(email).map(List::of).orElseGet(List::of);
+      }
+      if (!isBlank(phone)) {
+         if (ClientRepository.phoneDigits(phone).isEmpty()) {
+            throw new InvalidSearchException("Phone must contain digits, got: " + phone);
+         }
+         return clientRepository.findByPhone(phone, maxResults);
+      }
+      return clientRepository.findByNamePrefix(namePrefix.trim(), maxResults);
    }
 
    /**
@@ -50,8 +237,14 @@ public class ClientService {
          return false;
       }
 
+      if (!tokenizeCard(client)) {
+         return false;
+      }
+
       boolean success = clientRepository.newClient(client);
       if (success) {
+         // the email may be cached as a miss
+         invalidate(null, client.getEmail());
          System.out.println("✓ Service: Client successfully added through service layer");
       } else {
          System.out.println("✗ Service: Failed to add client through service layer");
@@ -75,8 +268,13 @@ public class ClientService {
          return false;
       }
 
+      if (!tokenizeCard(client)) {
+         return false;
+      }
+
       boolean success = clientRepository.updateClient(client);
       if (success) {
+         invalidate(client.getId(), client.getEmail());
          System.out.println("✓ Service: Client successfully updated through service layer");
       } else {
          System.out.println("✗ Service: Failed to update client through service layer");
@@ -102,6 +300,7 @@ public class ClientService {
 
       boolean success = clientRepository.deleteClient(id);
       if (success) {
+         invalidate(id, null);
          System.out.println("✓ Service: Client successfully deleted through service layer");
       } else {
          System.out.println("✗ Service: Failed to delete client through service layer");
@@ -118,15 +317,99 @@ public class ClientService {
       if (id == null || id <= 0) {
          return false;
       }
-      return getClientById(id).isPresent();
+
+      Optional<Client> cached = clientCache.getById(id);
+      if (cached != null) {
+         return cached.isPresent();
+      }
+      return clientRepository.exists(id);
+   }
+
+   /**
+    * Get the total number of clients in the database, counted by the database without reading any rows
+    * @return The count of all clients, -1 if it could not be counted
+    */
+   public long getClientCount() {
+      return clientRepository.count();
+   }
+
+   /**
+    * Get an estimate of the number of clients that costs the same however large the table is.
+    * The estimate is read at most once per client.count.cache-ttl-ms and shared until then.
+    * Only one caller reads it at a time; while it does, the others get the expired estimate instead of waiting
+    * @return The approximate count of all clients, -1 if it could not be read
+    */
+   public long getApproximateClientCount() {
+      long count = cachedCount;
+      if (count >= 0 && System.nanoTime() - cachedCountAt < countCacheTtlNanos) {
+         return count;
+      }
+      if (count >= 0) {
+         if (!countRefresh.tryLock()) {
+            return count;
+         }
+      } else {
+         // nothing to hand out yet, so wait for whoever is reading it
+         countRefresh.lock();
+      }
+
+      try {
+         // another caller may have refreshed it meanwhile
+         if (cachedCount >= 0 && System.nanoTime() - cachedCountAt < countCacheTtlNanos) {
+            return cachedCount;
+         }
+         long fresh = clientRepository.approximateCount();
+         if (fresh < 0) {
+            return cachedCount;
+         }
+         cachedCountAt = System.nanoTime();
+         cachedCount = fresh;
+         return fresh;
+      } finally {
+         countRefresh.unlock();
+      }
+   }
+
+   /**
+    * Client cache counters, including the share of lookups answered without MySQL
+    * @return map of metric names to values
+    */
+   public Map<String, Object> getCacheMetrics() {
+      Map<String, Object> metrics = clientCache.getMetrics();
+      metrics.put("invalidation", cacheInvalidator.getName());
+      return metrics;
+   }
+
+   /**
+    * helper method which drops a changed client from this node's cache and tells the other nodes
+    */
+   private void invalidate(Integer id, String email) {
+      clientCache.invalidate(id, email);
+      cacheInvalidator.publish(id, email);
    }
 
    /**
-    * Get the total number of clients in the database
-    * @return The count of all clients
+    * helper method which swaps a client's card number for its vault token before the client is saved,
+    * a client whose card is already a token is left alone
+    * @param client The client about to be saved
+    * @return false if the card number is not a valid card
     */
-   public int getClientCount() {
-      List<Client> clients = getAllClients();
-      return clients.size();
+   private boolean tokenizeCard(Client client) {
+      String card = client.getCredit_card();
+      if (card == null || card.isBlank() || CardVault.isToken(card)) {
+         return true;
+      }
+
+      try {
+         client.setCredit_card(cardVault.tokenize(card));
+         return true;
+      } catch (CardVault.InvalidCardException | CardVault.CardVaultException e) {
+         System.out.println("✗ Service Error: Client card could not be stored: " + e.getMessage());
+         return false;
+      }
+   }
+
+   private static boolean isBlank(String value) {
+      return value == null || value.isBlank();
    }
-}
\ No newline at end of file
+}
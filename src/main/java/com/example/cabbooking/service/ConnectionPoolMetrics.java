@@ -0,0 +1,80 @@
+package com.example.cabbooking.service;
+
+import com.zaxxer.hikari.metrics.IMetricsTracker;
+import com.zaxxer.hikari.metrics.MetricsTrackerFactory;
+import com.zaxxer.hikari.metrics.PoolStats;
+import org.springframework.stereotype.Service;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * database connection pool metrics. DatabaseConfig hands this to HikariCP, which reports every connection
+ * it creates, lends out and fails to lend; the pool's own counts are read when the metrics are asked for.
+ */
+@Service
+public class ConnectionPoolMetrics implements MetricsTrackerFactory {
+
+    private final LatencyHistogram acquireLatency = new LatencyHistogram();
+    private final LatencyHistogram usageTime = new LatencyHistogram();
+    private final LatencyHistogram createTime = new LatencyHistogram();
+    private final AtomicLong timeouts = new AtomicLong();
+
+    private volatile String poolName;
+    private volatile PoolStats poolStats;
+
+    /**
+     * called by HikariCP once when the pool starts
+     * @param poolName name of the pool
+     * @param poolStats live connection counts of the pool
+     * @return tracker HikariCP reports connection events to
+     */
+    @Override
+    public IMetricsTracker create(String poolName, PoolStats poolStats) {
+        this.poolName = poolName;
+        this.poolStats = poolStats;
+        return new IMetricsTracker() {
+            @Override
+            public void recordConnectionCreatedMillis(long connectionCreatedMillis) {
+                createTime.record(TimeUnit.MILLISECONDS.toNanos(connectionCreatedMillis));
+            }
+
+            @Override
+            public void recordConnectionAcquiredNanos(long elapsedAcquiredNanos) {
+                acquireLatency.record(elapsedAcquiredNanos);
+            }
+
+            @Override
+            public void recordConnectionUsageMillis(long elapsedBorrowedMillis) {
+                usageTime.record(TimeUnit.MILLISECONDS.toNanos(elapsedBorrowedMillis));
+            }
+
+            @Override
+            public void recordConnectionTimeout() {
+                timeouts.incrementAndGet();
+            }
+        };
+    }
+
+    /**
+     * active, idle and pending connections, with how long callers waited for a connection and how long they kept it
+     * @return map of metric names to values
+     */
+    public Map<String, Object> getMetrics() {
+        Map<String, Object> metrics = new HashMap<>();
+        PoolStats stats = poolStats;
+        metrics.put("pool", stats == null ? "not started" : poolName);
+        metrics.put("active", stats == null ? 0 : stats.getActiveConnections());
+        metrics.put("idle", stats == null ? 0 : stats.getIdleConnections());
+        metrics.put("total", stats == null ? 0 : stats.getTotalConnections());
+        metrics.put("pending", stats == null ? 0 : stats.getPendingThreads());
+        metrics.put("maxConnections", stats == null ? 0 : stats.getMaxConnections());
+        metrics.put("timeouts", timeouts.get());
+        metrics.put("acquireLatency", acquireLatency.snapshot());
+        metrics.put("usageTime", usageTime.snapshot());
+        metrics.put("connectionsCreated", createTime.snapshot());
+        return metrics;
+    }
+}
@@ -0,0 +1,400 @@
+package com.example.cabbooking.service;
+
+import com.example.cabbooking.model.Booking;
+import com.example.cabbooking.model.Driver;
+import com.example.cabbooking.repository.BookingRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.DoubleAdder;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * decides which driver gets each booking
+ * GREEDY: bookCab reserves the nearest available driver straight away
+ * BATCH: bookings wait for the next dispatch tick, where all waiting bookings and nearby drivers are
+ * matched together to minimise the total pickup distance
+ * A driver that cannot be written to its booking yet, because a write-behind mode has not inserted the booking,
+ * is written again on each tick until the booking appears, and released if it never does.
+ */
+@Service
+public class DispatchService {
+
+    public enum DispatchMode { GREEDY, BATCH }
+
+    private final FleetService fleetService;
+    private final BookingRepository bookingRepository;
+    private final DispatchMode mode;
+    private final long solverBudgetMillis;
+    private final int candidatesPerBooking;
+    private final int maxBatchSize;
+    private final long maxWaitMillis;
+
+    private final ConcurrentHashMap<String, PendingDispatch> pending = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<String, PendingDriverUpdate> driverUpdates = new ConcurrentHashMap<>();
+    private final AtomicLong arrivals = new AtomicLong();
+    private final ReentrantLock tickLock = new ReentrantLock();
+
+    //================Metrics================
+    private final AtomicLong ticks = new AtomicLong();
+    private final AtomicLong assigned = new AtomicLong();
+    private final AtomicLong expired = new AtomicLong();
+    private final AtomicLong solverFallbacks = new AtomicLong();
+    private final AtomicLong totalWaitMillis = new AtomicLong();
+    private final AtomicLong batchMatches = new AtomicLong();
+    private final AtomicLong greedyMatches = new AtomicLong();
+    private final AtomicLong driverUpdatesRetried = new AtomicLong();
+    private final AtomicLong driverUpdatesAbandoned = new AtomicLong();
+    private final DoubleAdder batchPickupKm = new DoubleAdder();
+    private final DoubleAdder greedyPickupKm = new DoubleAdder();
+    private volatile long lastTickMillis;
+    private volatile int lastBatchSize;
+
+    @Autowired
+    public DispatchService(FleetService fleetService,
+                           BookingRepository bookingRepository,
+                           @Value("${booking.dispatch.mode:GREEDY}") DispatchMode mode,
+                           @Value("${booking.dispatch.solver-budget-ms:500}") long solverBudgetMillis,
+                           @Value("${booking.dispatch.candidates-per-booking:5}") int candidatesPerBooking,
+                           @Value("${booking.dispatch.max-batch-size:500}") int maxBatchSize,
+                           @Value("${booking.dispatch.max-wait-seconds:120}") long maxWaitSeconds) {
+        if (solverBudgetMillis <= 0 || candidatesPerBooking <= 0 || candidatesPerBooking > FleetService.MAX_CANDIDATES
+                || maxBatchSize <= 0 || maxWaitSeconds <= 0) {
+            throw new IllegalArgumentException("Dispatch budget, candidate count, batch size and wait limit must be positive");
+        }
+
+        this.fleetService = fleetService;
+        this.bookingRepository = bookingRepository;
+        this.mode = mode;
+        this.solverBudgetMillis = solverBudgetMillis;
+        this.candidatesPerBooking = candidatesPerBooking;
+        this.maxBatchSize = maxBatchSize;
+        this.maxWaitMillis = TimeUnit.SECONDS.toMillis(maxWaitSeconds);
+    }
+
+    /**
+     * in GREEDY mode reserves the nearest available driver for a new booking, so it can be saved with its driver
+     * @param booking new booking
+     * @return the reserved driver, always empty in BATCH mode where the next tick assigns one
+     */
+    public Optional<Driver> reserveDriver(Booking booking) {
+        if (mode == DispatchMode.BATCH) {
+            return Optional.empty();
+        }
+        return fleetService.reserveNearest(booking.getFrom().getLatitude(), booking.getFrom().getLongitude(),
+                null, booking.getId());
+    }
+
+    /**
+     * dispatches a booking that has already been saved: GREEDY reserves a driver now and records it on the booking,
+     * BATCH leaves it for the next tick
+     * @param booking saved booking
+     * @return the reserved driver, empty if none was free or the mode is BATCH
+     */
+    public Optional<Driver> dispatchSaved(Booking booking) {
+        Optional<Driver> driver = reserveDriver(booking);
+        if (driver.isPresent()) {
+            booking.setDriverId(driver.get().getId());
+            recordDriver(booking.getId(), driver.get().getId(), System.currentTimeMillis());
+        } else {
+            queueForNextTick(booking);
+        }
+        return driver;
+    }
+
+    /**
+     * in BATCH mode queues a saved booking for the next dispatch tick, does nothing in GREEDY mode
+     * @param booking booking which has been saved without a driver
+     */
+    public void queueForNextTick(Booking booking) {
+        if (mode != DispatchMode.BATCH || booking.getDriverId() != null) {
+            return;
+        }
+
+        pending.put(booking.getId(), new PendingDispatch(booking.getId(), booking.getFrom().getLatitude(),
+                booking.getFrom().getLongitude(), arrivals.incrementAndGet(), System.currentTimeMillis()));
+    }
+
+    /**
+     * marks the driver of a booking as on the trip
+     * @param bookingId booking being dispatched
+     */
+    public void startTrip(String bookingId) {
+        fleetService.startTrip(bookingId);
+    }
+
+    /**
+     * stops dispatching a finished or cancelled booking and frees its driver
+     * @param bookingId booking which is finished or cancelled
+     */
+    public void release(String bookingId) {
+        pending.remove(bookingId);
+        driverUpdates.remove(bookingId);
+        fleetService.releaseBooking(bookingId);
+    }
+
+    /**
+     * scheduled dispatch tick, retries driver assignments that could not be saved yet and in BATCH mode
+     * matches the waiting bookings
+     */
+    @Scheduled(fixedDelayString = "${booking.dispatch.tick-ms:2000}")
+    public void tick() {
+        retryDriverUpdates();
+        if (mode == DispatchMode.BATCH) {
+            dispatchPending();
+        }
+    }
+
+    /**
+     * writes again every driver assignment whose booking was not in the database yet; one whose booking still
+     * is not there after the wait limit loses its driver, which would otherwise stay reserved for a booking
+     * that no driver is recorded against
+     * @return number of assignments written
+     */
+    public int retryDriverUpdates() {
+        if (driverUpdates.isEmpty()) {
+            return 0;
+        }
+
+        long now = System.currentTimeMillis();
+        int written = 0;
+        for (PendingDriverUpdate update : driverUpdates.values()) {
+            driverUpdatesRetried.incrementAndGet();
+            if (bookingRepository.updateDriver(update.bookingId, update.driverId)) {
+                driverUpdates.remove(update.bookingId, update);
+                written++;
+            } else if (now - update.assignedAt > maxWaitMillis && driverUpdates.remove(update.bookingId, update)) {
+                driverUpdatesAbandoned.incrementAndGet();
+                fleetService.releaseBooking(update.bookingId);
+                System.out.println("✗ Driver " + update.driverId + " released, booking " + update.bookingId
+                        + " was not saved within " + maxWaitMillis / 1000 + " s");
+            }
+        }
+        return written;
+    }
+
+    /**
+     * matches every waiting booking against the drivers near it in one go
+     * @return number of bookings that got a driver
+     */
+    public int dispatchPending() {
+        if (!tickLock.tryLock()) {
+            return 0;
+        }
+
+        try {
+            long started = System.nanoTime();
+            long now = System.currentTimeMillis();
+
+            List<PendingDispatch> batch = takeBatch(now);
+            lastBatchSize = batch.size();
+            if (batch.isEmpty()) {
+                return 0;
+            }
+            ticks.incrementAndGet();
+
+            // every driver near any waiting booking becomes a column of the cost matrix
+            Map<String, Driver> candidates = new LinkedHashMap<>();
+            for (PendingDispatch booking : batch) {
+                for (Driver driver : fleetService.findNearestAvailable(booking.latitude, booking.longitude, candidatesPerBooking, null)) {
+                    candidates.putIfAbsent(driver.getId(), driver);
+                }
+            }
+            if (candidates.isEmpty()) {
+                lastTickMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - started);
+                return 0;
+            }
+
+            Driver[] drivers = candidates.values().toArray(new Driver[0]);
+            int rows = batch.size();
+            int cols = drivers.length;
+            double[] cost = buildCostMatrix(batch, drivers);
+
+            int[] greedy = AssignmentSolver.solveGreedy(cost, rows, cols);
+            int[] optimal = AssignmentSolver.solveOptimal(cost, rows, cols, started + TimeUnit.MILLISECONDS.toNanos(solverBudgetMillis));
+            if (optimal == null) {
+                solverFallbacks.incrementAndGet();
+                System.out.println("✗ Dispatch solver ran past " + solverBudgetMillis + " ms for " + rows + " x " + cols + ", using greedy");
+                optimal = greedy;
+            }
+
+            // greedy is scored on the same matrix so the two can be compared tick by tick
+            greedyPickupKm.add(AssignmentSolver.totalCost(cost, cols, greedy));
+            greedyMatches.addAndGet(AssignmentSolver.matchedCount(greedy));
+            batchPickupKm.add(AssignmentSolver.totalCost(cost, cols, optimal));
+            batchMatches.addAndGet(AssignmentSolver.matchedCount(optimal));
+
+            int assignedThisTick = 0;
+            for (int i = 0; i < rows; i++) {
+                if (optimal[i] >= 0 && assign(batch.get(i), drivers[optimal[i]], now)) {
+                    assignedThisTick++;
+                }
+            }
+
+            lastTickMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - started);
+            System.out.println("✓ Dispatch tick assigned " + assignedThisTick + " of " + rows + " bookings to " + cols +
+                    " candidate drivers in " + lastTickMillis + " ms");
+            return assignedThisTick;
+
+        } finally {
+            tickLock.unlock();
+        }
+    }
+
+    /**
+     * @return dispatch counters, including the pickup distance greedy matching would have used on the same ticks
+     */
+    public Map<String, Object> getMetrics() {
+        Map<String, Object> metrics = new LinkedHashMap<>();
+        long assignedCount = assigned.get();
+        metrics.put("mode", mode);
+        metrics.put("pending", pending.size());
+        metrics.put("ticks", ticks.get());
+        metrics.put("assigned", assignedCount);
+        metrics.put("expired", expired.get());
+        metrics.put("solverFallbacks", solverFallbacks.get());
+        metrics.put("batchMatches", batchMatches.get());
+        metrics.put("greedyMatches", greedyMatches.get());
+        metrics.put("batchPickupKm", batchPickupKm.sum());
+        metrics.put("greedyPickupKm", greedyPickupKm.sum());
+        metrics.put("driverUpdatesPending", driverUpdates.size());
+        metrics.put("driverUpdatesRetried", driverUpdatesRetried.get());
+        metrics.put("driverUpdatesAbandoned", driverUpdatesAbandoned.get());
+        metrics.put("averageWaitSeconds", assignedCount == 0 ? 0.0 : totalWaitMillis.get() / 1000.0 / assignedCount);
+        metrics.put("lastBatchSize", lastBatchSize);
+        metrics.put("lastTickMillis", lastTickMillis);
+        return metrics;
+    }
+
+    public DispatchMode getMode() {
+        return mode;
+    }
+
+    public int getPendingCount() {
+        return pending.size();
+    }
+
+    //================Helpers================
+
+    /**
+     * helper method which drops bookings that waited too long and takes the oldest ones up to the batch size
+     */
+    private List<PendingDispatch> takeBatch(long now) {
+        List<PendingDispatch> waiting = new ArrayList<>(pending.values());
+        waiting.sort(Comparator.comparingLong(booking -> booking.arrival));
+
+        List<PendingDispatch> batch = new ArrayList<>(Math.min(waiting.size(), maxBatchSize));
+        for (PendingDispatch booking : waiting) {
+            if (now - booking.queuedAt > maxWaitMillis) {
+                if (pending.remove(booking.bookingId, booking)) {
+                    expired.incrementAndGet();
+                    System.out.println("✗ No driver found for booking " + booking.bookingId + " within " + maxWaitMillis / 1000 + " s");
+                }
+            } else if (batch.size() < maxBatchSize) {
+                batch.add(booking);
+            }
+        }
+        return batch;
+    }
+
+    /**
+     * helper method which fills the pickup distance matrix, marking pairs beyond the pickup radius as infeasible
+     */
+    private double[] buildCostMatrix(List<PendingDispatch> batch, Driver[] drivers) {
+        int rows = batch.size();
+        int cols = drivers.length;
+        double[] pickupLat = new double[rows];
+        double[] pickupLng = new double[rows];
+        double[] driverLat = new double[cols];
+        double[] driverLng = new double[cols];
+
+        for (int i = 0; i < rows; i++) {
+            pickupLat[i] = batch.get(i).latitude;
+            pickupLng[i] = batch.get(i).longitude;
+        }
+        for (int j = 0; j < cols; j++) {
+            driverLat[j] = drivers[j].getLatitude();
+            driverLng[j] = drivers[j].getLongitude();
+        }
+
+        double[] cost = new double[rows * cols];
+        DistanceCalculatorService.calculateDistanceMatrix(pickupLat, pickupLng, rows, driverLat, driverLng, cols, cost);
+
+        double maxPickupKm = fleetService.getMaxPickupKm();
+        for (int k = 0; k < cost.length; k++) {
+            if (cost[k] > maxPickupKm) {
+                cost[k] = AssignmentSolver.INFEASIBLE;
+            }
+        }
+        return cost;
+    }
+
+    /**
+     * helper method which reserves the chosen driver, leaving the booking for the next tick if the driver was taken meanwhile
+     */
+    private boolean assign(PendingDispatch booking, Driver driver, long now) {
+        if (!fleetService.reserveDriver(driver.getId(), booking.bookingId)) {
+            return false;
+        }
+
+        // the booking was cancelled while the tick was running
+        if (!pending.remove(booking.bookingId, booking)) {
+            fleetService.releaseBooking(booking.bookingId);
+            return false;
+        }
+
+        recordDriver(booking.bookingId, driver.getId(), now);
+        assigned.incrementAndGet();
+        totalWaitMillis.addAndGet(now - booking.queuedAt);
+        return true;
+    }
+
+    /**
+     * helper method which writes the driver to its booking, keeping it for the next tick when the booking has not
+     * been inserted yet, as happens when the write-behind queue is still holding it
+     */
+    private void recordDriver(String bookingId, String driverId, long now) {
+        if (!bookingRepository.updateDriver(bookingId, driverId)) {
+            driverUpdates.put(bookingId, new PendingDriverUpdate(bookingId, driverId, now));
+        }
+    }
+
+    private static final class PendingDriverUpdate {
+        private final String bookingId;
+        private final String driverId;
+        private final long assignedAt;
+
+        private PendingDriverUpdate(String bookingId, String driverId, long assignedAt) {
+            this.bookingId = bookingId;
+            this.driverId = driverId;
+            this.assignedAt = assignedAt;
+        }
+    }
+
+    private static final class PendingDispatch {
+        private final String bookingId;
+        private final double latitude;
+        private final double longitude;
+        private final long arrival;
+        private final long queuedAt;
+
+        private PendingDispatch(String bookingId, double latitude, double longitude, long arrival, long queuedAt) {
+            this.bookingId = bookingId;
+            this.latitude = latitude;
+            this.longitude = longitude;
+            this.arrival = arrival;
+            this.queuedAt = queuedAt;
+        }
+    }
+}
@@ -48,4 +48,47 @@ public class DistanceCalculatorService {
         double miles = kilometers * 0.621371;
         return miles;
     }
-}
\ No newline at end of file
+
+    /**
+     * batch version of calculateDistance() which fills a rows x cols matrix of Haversine distances,
+     * e.g. from every waiting pickup to every candidate driver
+     * works on plain arrays and pre-computes the per-point trigonometry once, so the inner loop
+     * is a tight loop the JIT can optimise instead of one method call per pair
+     * @param fromLat latitudes of the row points
+     * @param fromLon longitudes of the row points
+     * @param rows number of row points
+     * @param toLat latitudes of the column points
+     * @param toLon longitudes of the column points
+     * @param cols number of column points
+     * @param out row-major matrix of at least rows * cols values, filled with distances in kilometers
+     */
+    public static void calculateDistanceMatrix(double[] fromLat, double[] fromLon, int rows,
+                                               double[] toLat, double[] toLon, int cols, double[] out) {
+        if (out.length < rows * cols) {
+            throw new IllegalArgumentException("Output matrix is too small: " + out.length + " < " + rows * cols);
+        }
+
+        double[] toLatRad = new double[cols];
+        double[] toLonRad = new double[cols];
+        double[] toCosLat = new double[cols];
+        for (int j = 0; j < cols; j++) {
+            toLatRad[j] = Math.toRadians(toLat[j]);
+            toLonRad[j] = Math.toRadians(toLon[j]);
+            toCosLat[j] = Math.cos(toLatRad[j]);
+        }
+
+        for (int i = 0; i < rows; i++) {
+            double latRad = Math.toRadians(fromLat[i]);
+            double lonRad = Math.toRadians(fromLon[i]);
+            double cosLat = Math.cos(latRad);
+            int offset = i * cols;
+
+            for (int j = 0; j < cols; j++) {
+                double sinHalfLat = Math.sin((toLatRad[j] - latRad) / 2);
+                double sinHalfLon = Math.sin((toLonRad[j] - lonRad) / 2);
+                double a = sinHalfLat * sinHalfLat + cosLat * toCosLat[j] * sinHalfLon * sinHalfLon;
+                out[offset + j] = 2 * EARTH_RADIUS_KM * Math.asin(Math.min(1.0, Math.sqrt(a)));
+            }
+        }
+    }
+}
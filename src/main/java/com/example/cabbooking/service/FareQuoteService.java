@@ -0,0 +1,259 @@
+package com.example.cabbooking.service;
+
+import com.example.cabbooking.model.FareQuote;
+import com.example.cabbooking.model.Location;
+import com.example.cabbooking.model.Route;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.SecureRandom;
+import java.util.Base64;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+@Service
+public class FareQuoteService {
+
+    private static final String HMAC_ALGORITHM = "HmacSHA256";
+
+    // payload: quote id (8), amount in cents (4), route fingerprint (8), tariff version (4), expiry in unsigned epoch seconds (4)
+    private static final int PAYLOAD_LENGTH = 28;
+    // HMAC-SHA256 truncated to 128 bits
+    private static final int SIGNATURE_LENGTH = 16;
+    private static final int TOKEN_LENGTH = PAYLOAD_LENGTH + SIGNATURE_LENGTH;
+    private static final int MAC_POOL_SIZE = 16;
+
+    private final CalculateFareService calculateFareService;
+    private final IdempotencyStore idempotencyStore;
+    private final SecretKeySpec key;
+    private final long ttlSeconds;
+
+    // Mac instances are not thread-safe, so callers borrow one from a small pool. A ThreadLocal would
+    // build a new Mac for every request once requests run on short-lived virtual threads. The pool has fixed
+    // slots, so a burst of concurrent quotes cannot leave more Macs behind than it holds
+    private final AtomicReferenceArray<Mac> macs = new AtomicReferenceArray<>(MAC_POOL_SIZE);
+
+    public static class InvalidQuoteException extends RuntimeException {
+        public InvalidQuoteException(String message) {
+            super(message);
+        }
+    }
+
+    @Autowired
+    public FareQuoteService(CalculateFareService calculateFareService,
+                            IdempotencyStore idempotencyStore,
+                            @Value("${fare.quote.secret:}") String secret,
+                            @Value("${fare.quote.ttl-seconds:300}") long ttlSeconds) {
+        this.calculateFareService = calculateFareService;
+        this.idempotencyStore = idempotencyStore;
+        this.ttlSeconds = ttlSeconds;
+
+        byte[] keyBytes;
+        if (secret == null || secret.isBlank()) {
+            keyBytes = new byte[32];
+            new SecureRandom().nextBytes(keyBytes);
+            System.out.println("✗ Fare quotes: no fare.quote.secret configured, using a random key " +
+                    "(quotes will not survive a restart or verify on other nodes)");
+        } else {
+            keyBytes = secret.getBytes(StandardCharsets.UTF_8);
+        }
+
+        this.key = new SecretKeySpec(keyBytes, HMAC_ALGORITHM);
+    }
+
+    /**
+     * prices a route and signs the result
+     * @param route Route to be quoted
+     * @return signed fare quote
+     */
+    public FareQuote quoteFare(Route route) {
+        return issueQuote(route, calculateFareService.calculateFare(route));
+    }
+
+    /**
+     * signs an already calculated fare so later steps can trust it without re-pricing
+     * @param route Route the fare was calculated for
+     * @param fare fare calculated by CalculateFareService
+     * @return signed fare quote
+     */
+    public FareQuote issueQuote(Route route, double fare) {
+        if (route == null || route.getFrom() == null || route.getTo() == null) {
+            throw new InvalidQuoteException("Cannot quote a route without starting and destination locations");
+        }
+
+        long amountCents = Math.round(fare * 100);
+        if (amountCents < 0 || amountCents > Integer.MAX_VALUE) {
+            throw new InvalidQuoteException("Cannot quote a fare of $" + String.format("%.2f", fare));
+        }
+        int tariffVersion = calculateFareService.getTariffVersion();
+        long expiresAt = System.currentTimeMillis() / 1000 + ttlSeconds;
+
+        byte[] token = new byte[TOKEN_LENGTH];
+        // the random quote id tells apart two quotes for the same route and fare, so each can be redeemed once
+        ByteBuffer.wrap(token)
+                .putLong(ThreadLocalRandom.current().nextLong())
+                .putInt((int) amountCents)
+                .putLong(routeFingerprint(route))
+                .putInt(tariffVersion)
+                .putInt((int) expiresAt);
+
+        System.arraycopy(sign(token), 0, token, PAYLOAD_LENGTH, SIGNATURE_LENGTH);
+
+        String encoded = Base64.getUrlEncoder().withoutPadding().encodeToString(token);
+        return new FareQuote(amountCents / 100.0, encoded, expiresAt, tariffVersion);
+    }
+
+    /**
+     * checks a quote token's signature, expiry, tariff version and route
+     * @param quoteToken token from a previously issued FareQuote
+     * @param route Route the client is paying for
+     * @return the verified fare quote
+     */
+    public FareQuote verifyQuote(String quoteToken, Route route) {
+        if (quoteToken == null || quoteToken.isBlank()) {
+            throw new InvalidQuoteException("Quote token cannot be null or empty");
+        }
+
+        if (route == null || route.getFrom() == null || route.getTo() == null) {
+            throw new InvalidQuoteException("Route must have valid starting and destination locations");
+        }
+
+        byte[] token;
+        try {
+            token = Base64.getUrlDecoder().decode(quoteToken);
+        } catch (IllegalArgumentException e) {
+            throw new InvalidQuoteException("Quote token is not valid");
+        }
+
+        if (token.length != TOKEN_LENGTH) {
+            throw new InvalidQuoteException("Quote token is not valid");
+        }
+
+        byte[] expected = sign(token);
+
+        // constant-time comparison so response timing does not leak how much of the signature matched
+        int difference = 0;
+        for (int i = 0; i < SIGNATURE_LENGTH; i++) {
+            difference |= expected[i] ^ token[PAYLOAD_LENGTH + i];
+        }
+        if (difference != 0) {
+            throw new InvalidQuoteException("Quote token signature does not match");
+        }
+
+        ByteBuffer payload = ByteBuffer.wrap(token, 0, PAYLOAD_LENGTH);
+        payload.getLong(); // quote id, only there to make the token unique
+        long amountCents = payload.getInt();
+        long fingerprint = payload.getLong();
+        int tariffVersion = payload.getInt();
+        long expiresAt = Integer.toUnsignedLong(payload.getInt());
+
+        if (System.currentTimeMillis() / 1000 >= expiresAt) {
+            throw new InvalidQuoteException("Quote has expired, please request a new fare");
+        }
+
+        if (tariffVersion != calculateFareService.getTariffVersion()) {
+            throw new InvalidQuoteException("Fares have changed since this quote was issued, please request a new fare");
+        }
+
+        if (fingerprint != routeFingerprint(route)) {
+            throw new InvalidQuoteException("Quote was issued for a different route");
+        }
+
+        return new FareQuote(amountCents / 100.0, quoteToken, expiresAt, tariffVersion);
+    }
+
+    /**
+     * verifies a quote and spends it, so the same token cannot pay for a second ride. A spent quote is remembered in
+     * the IdempotencyStore, whose ttl is longer than any quote lives
+     * @param quoteToken token from a previously issued FareQuote
+     * @param route Route the client is paying for
+     * @return the verified fare quote
+     */
+    public FareQuote redeemQuote(String quoteToken, Route route) {
+        FareQuote quote = verifyQuote(quoteToken, route);
+        if (!idempotencyStore.markUsed(spentQuoteKey(quoteToken))) {
+            throw new InvalidQuoteException("Quote has already been used, please request a new fare");
+        }
+        return quote;
+    }
+
+    /**
+     * hands back a quote spent by redeemQuote(), for a payment that failed and may be tried again with it
+     * @param quoteToken token passed to redeemQuote()
+     */
+    public void releaseQuote(String quoteToken) {
+        idempotencyStore.forget(spentQuoteKey(quoteToken));
+    }
+
+    private static String spentQuoteKey(String quoteToken) {
+        return "fare-quote:" + quoteToken;
+    }
+
+    /**
+     * helper method which identifies a route by its pickup and destination coordinates
+     * @param route Route to fingerprint
+     * @return 64-bit fingerprint of the route's endpoints
+     */
+    private static long routeFingerprint(Route route) {
+        long hash = 1125899906842597L;
+        hash = mix(hash, route.getFrom());
+        hash = mix(hash, route.getTo());
+        return hash;
+    }
+
+    private static long mix(long hash, Location location) {
+        hash = 31 * hash + Double.doubleToLongBits(location.getLatitude());
+        hash = 31 * hash + Double.doubleToLongBits(location.getLongitude());
+        return hash ^ (hash >>> 29);
+    }
+
+    /**
+     * helper method which computes the HMAC of a token's payload with a pooled Mac
+     * @param token token bytes, only the first PAYLOAD_LENGTH bytes are signed
+     * @return full HMAC-SHA256 of the payload
+     */
+    private byte[] sign(byte[] token) {
+        Mac mac = borrow();
+        try {
+            mac.update(token, 0, PAYLOAD_LENGTH);
+            return mac.doFinal();
+        } finally {
+            release(mac);
+        }
+    }
+
+    private Mac borrow() {
+        for (int i = 0; i < MAC_POOL_SIZE; i++) {
+            Mac mac = macs.getAndSet(i, null);
+            if (mac != null) {
+                return mac;
+            }
+        }
+        return newMac();
+    }
+
+    private void release(Mac mac) {
+        // when every slot is taken the Mac is dropped
+        for (int i = 0; i < MAC_POOL_SIZE; i++) {
+            if (macs.compareAndSet(i, null, mac)) {
+                return;
+            }
+        }
+    }
+
+    private Mac newMac() {
+        try {
+            Mac mac = Mac.getInstance(HMAC_ALGORITHM);
+            mac.init(key);
+            return mac;
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException("HMAC-SHA256 is not available: " + e.getMessage());
+        }
+    }
+}
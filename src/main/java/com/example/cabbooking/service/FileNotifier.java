@@ -0,0 +1,106 @@
+package com.example.cabbooking.service;
+
+import com.example.cabbooking.model.OutboxMessage;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * stand-in for a mail server: appends each message to a mailbox file in the same shape as an email, so
+ * notifications can be checked without SMTP. Event ids already in the file are remembered, and a message
+ * handed over again is skipped instead of being written twice.
+ */
+public class FileNotifier implements Notifier {
+
+    private static final String MESSAGE_ID_HEADER = "Message-ID: <";
+    private static final int REMEMBERED_EVENTS = 100_000;
+
+    private final Path file;
+    private final String from;
+    private final Set<String> delivered;
+    private FileChannel channel;
+
+    public FileNotifier(String directory, String from) {
+        this.from = from;
+        this.file = Paths.get(directory).resolve("notifications.mbox");
+        // only the most recent events can come round again, so older ones are forgotten
+        this.delivered = Collections.newSetFromMap(new LinkedHashMap<>() {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Boolean> eldest) {
+                return size() > REMEMBERED_EVENTS;
+            }
+        });
+
+        try {
+            Files.createDirectories(file.getParent());
+            if (Files.exists(file)) {
+                try (BufferedReader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+                    String line;
+                    while ((line = reader.readLine()) != null) {
+                        if (line.startsWith(MESSAGE_ID_HEADER) && line.endsWith(">")) {
+                            delivered.add(line.substring(MESSAGE_ID_HEADER.length(), line.length() - 1));
+                        }
+                    }
+                }
+            }
+            this.channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+        } catch (IOException e) {
+            throw new NotificationException("Notification file could not be opened in " + directory + ": " + e.getMessage(), false);
+        }
+    }
+
+    @Override
+    public synchronized void send(OutboxMessage message) {
+        if (delivered.contains(message.getEventId())) {
+            return;
+        }
+
+        String text = "From " + from + " " + message.getCreatedAt() + "\n"
+                + "From: " + from + "\n"
+                + "To: " + message.getRecipient() + "\n"
+                + "Subject: " + message.getSubject() + "\n"
+                + MESSAGE_ID_HEADER + message.getEventId() + ">\n"
+                + "Date: " + message.getCreatedAt() + "\n"
+                + "\n"
+                // mbox quoting, so a body line cannot be mistaken for the start of the next message
+                + message.getBody().replaceAll("(?m)^(>*From )", ">$1") + "\n\n";
+
+        try {
+            ByteBuffer buffer = ByteBuffer.wrap(text.getBytes(StandardCharsets.UTF_8));
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+        } catch (IOException e) {
+            throw new NotificationException("Notification " + message.getEventId() + " could not be written: " + e.getMessage(), true);
+        }
+        delivered.add(message.getEventId());
+    }
+
+    @Override
+    public String getName() {
+        return "file";
+    }
+
+    public Path getFile() {
+        return file;
+    }
+
+    public synchronized void close() {
+        try {
+            channel.close();
+        } catch (IOException e) {
+            System.out.println("✗ Notification file could not be closed cleanly: " + e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,452 @@
+package com.example.cabbooking.service;
+
+import com.example.cabbooking.model.Driver;
+import com.example.cabbooking.model.DriverStatus;
+import com.example.cabbooking.model.VehicleClass;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * in-memory registry of the drivers online on this node
+ * drivers are indexed in a grid of lat/lng cells, so a nearest-driver search only looks at the
+ * cells around the pickup instead of the whole fleet
+ */
+@Service
+public class FleetService {
+
+    public static final int MAX_CANDIDATES = 100;
+
+    // kilometers per degree of latitude (and of longitude at the equator)
+    private static final double KM_PER_DEGREE = 6371.0 * Math.PI / 180.0;
+
+    private final double cellDegrees;
+    private final double maxPickupKm;
+    private final int reserveCandidates;
+
+    private final ConcurrentHashMap<String, DriverEntry> drivers = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<Long, Set<DriverEntry>> grid = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<String, DriverEntry> bookingDrivers = new ConcurrentHashMap<>();
+
+    public static class DriverNotFoundException extends RuntimeException {
+        public DriverNotFoundException(String message) {
+            super(message);
+        }
+    }
+
+    public static class InvalidDriverException extends RuntimeException {
+        public InvalidDriverException(String message) {
+            super(message);
+        }
+    }
+
+    @Autowired
+    public FleetService(@Value("${fleet.grid.cell-degrees:0.01}") double cellDegrees,
+                        @Value("${fleet.dispatch.max-pickup-km:15}") double maxPickupKm,
+                        @Value("${fleet.dispatch.reserve-candidates:8}") int reserveCandidates) {
+        if (!(cellDegrees > 0) || !(maxPickupKm > 0) || reserveCandidates <= 0 || reserveCandidates > MAX_CANDIDATES) {
+            throw new IllegalArgumentException("Fleet grid cell size, pickup radius and candidate count must be positive");
+        }
+
+        this.cellDegrees = cellDegrees;
+        this.maxPickupKm = maxPickupKm;
+        this.reserveCandidates = reserveCandidates;
+    }
+
+    //================Registry================
+
+    /**
+     * adds a driver to the fleet, or replaces the driver's details if they are already registered
+     * @param driver Driver to be registered, OFFLINE or AVAILABLE
+     * @return copy of the registered driver
+     */
+    public Driver registerDriver(Driver driver) {
+        validateDriver(driver);
+
+        DriverStatus status = driver.getStatus() == null ? DriverStatus.AVAILABLE : driver.getStatus();
+        if (status != DriverStatus.AVAILABLE && status != DriverStatus.OFFLINE) {
+            throw new InvalidDriverException("New drivers must be AVAILABLE or OFFLINE, not " + status);
+        }
+
+        DriverEntry entry = new DriverEntry(driver.getId(), driver.getName(), driver.getVehicleClass(), status);
+        drivers.compute(driver.getId(), (id, existing) -> {
+            if (existing != null) {
+                takeOffline(existing);
+                removeFromCell(existing);
+            }
+            entry.latitude = driver.getLatitude();
+            entry.longitude = driver.getLongitude();
+            entry.cell = cellKey(driver.getLatitude(), driver.getLongitude());
+            grid.computeIfAbsent(entry.cell, key -> ConcurrentHashMap.newKeySet()).add(entry);
+            return entry;
+        });
+
+        return entry.toDriver();
+    }
+
+    /**
+     * removes a driver who is not currently reserved or on a trip
+     * @param driverId id of the driver
+     */
+    public void removeDriver(String driverId) {
+        if (driverId == null) {
+            throw new DriverNotFoundException("Driver id cannot be null");
+        }
+
+        drivers.compute(driverId, (id, entry) -> {
+            if (entry == null) {
+                throw new DriverNotFoundException("Driver not found: " + id);
+            }
+            takeOffline(entry);
+            removeFromCell(entry);
+            return null;
+        });
+    }
+
+    /**
+     * moves a driver to a new position, re-indexing them if they crossed into another grid cell
+     * @param driverId id of the driver
+     * @param latitude new latitude
+     * @param longitude new longitude
+     */
+    public void updateLocation(String driverId, double latitude, double longitude) {
+        validateCoordinates(latitude, longitude);
+        if (driverId == null) {
+            throw new DriverNotFoundException("Driver id cannot be null");
+        }
+
+        // compute serialises moves of the same driver so they always end up in exactly one cell
+        DriverEntry moved = drivers.computeIfPresent(driverId, (id, entry) -> {
+            long cell = cellKey(latitude, longitude);
+            entry.latitude = latitude;
+            entry.longitude = longitude;
+            if (cell != entry.cell) {
+                removeFromCell(entry);
+                entry.cell = cell;
+                grid.computeIfAbsent(cell, key -> ConcurrentHashMap.newKeySet()).add(entry);
+            }
+            return entry;
+        });
+
+        if (moved == null) {
+            throw new DriverNotFoundException("Driver not found: " + driverId);
+        }
+    }
+
+    /**
+     * lets a driver go online or offline, reserved drivers and drivers on a trip cannot change
+     * @param driverId id of the driver
+     * @param status AVAILABLE or OFFLINE
+     */
+    public void updateStatus(String driverId, DriverStatus status) {
+        if (status != DriverStatus.AVAILABLE && status != DriverStatus.OFFLINE) {
+            throw new InvalidDriverException("Drivers can only switch between AVAILABLE and OFFLINE, not " + status);
+        }
+
+        DriverEntry entry = getEntry(driverId);
+        DriverStatus other = status == DriverStatus.AVAILABLE ? DriverStatus.OFFLINE : DriverStatus.AVAILABLE;
+        if (!entry.status.compareAndSet(other, status) && entry.status.get() != status) {
+            throw new InvalidDriverException("Driver " + driverId + " cannot go " + status + " while " + entry.status.get());
+        }
+    }
+
+    public Optional<Driver> getDriver(String driverId) {
+        DriverEntry entry = drivers.get(driverId);
+        return entry == null ? Optional.empty() : Optional.of(entry.toDriver());
+    }
+
+    public int getDriverCount() {
+        return drivers.size();
+    }
+
+    public double getMaxPickupKm() {
+        return maxPickupKm;
+    }
+
+    //================Matching================
+
+    /**
+     * finds the available drivers closest to a pickup point
+     * @param latitude pickup latitude
+     * @param longitude pickup longitude
+     * @param k maximum number of drivers to return
+     * @param vehicleClass required vehicle class, null for any
+     * @return up to k available drivers, closest first
+     */
+    public List<Driver> findNearestAvailable(double latitude, double longitude, int k, VehicleClass vehicleClass) {
+        List<Driver> nearest = new ArrayList<>();
+        for (DriverEntry entry : searchNearest(latitude, longitude, k, vehicleClass)) {
+            nearest.add(entry.toDriver());
+        }
+        return nearest;
+    }
+
+    /**
+     * reserves the closest available driver for a booking, a driver can only ever be reserved by one booking
+     * @param latitude pickup latitude
+     * @param longitude pickup longitude
+     * @param vehicleClass required vehicle class, null for any
+     * @param bookingId booking the driver is reserved for
+     * @return the reserved driver, or empty if no driver is available within the pickup radius
+     */
+    public Optional<Driver> reserveNearest(double latitude, double longitude, VehicleClass vehicleClass, String bookingId) {
+        if (bookingId == null || bookingId.trim().isEmpty()) {
+            throw new InvalidDriverException("Booking id is required to reserve a driver");
+        }
+
+        // another booking may grab a candidate between the search and the reservation, so search again once if all were taken
+        for (int attempt = 0; attempt < 2; attempt++) {
+            for (DriverEntry entry : searchNearest(latitude, longitude, reserveCandidates, vehicleClass)) {
+                if (entry.status.compareAndSet(DriverStatus.AVAILABLE, DriverStatus.RESERVED)) {
+                    entry.bookingId = bookingId;
+                    bookingDrivers.put(bookingId, entry);
+                    System.out.println("✓ Driver " + entry.id + " reserved for booking " + bookingId);
+                    return Optional.of(entry.toDriver());
+                }
+            }
+        }
+
+        System.out.println("✗ No available driver within " + maxPickupKm + " km for booking " + bookingId);
+        return Optional.empty();
+    }
+
+    /**
+     * reserves a specific driver for a booking, used when the driver was chosen by the batch dispatcher
+     * @param driverId driver to reserve
+     * @param bookingId booking the driver is reserved for
+     * @return true if the driver was still available and is now reserved
+     */
+    public boolean reserveDriver(String driverId, String bookingId) {
+        if (bookingId == null || bookingId.trim().isEmpty()) {
+            throw new InvalidDriverException("Booking id is required to reserve a driver");
+        }
+
+        DriverEntry entry = driverId == null ? null : drivers.get(driverId);
+        if (entry == null || !entry.status.compareAndSet(DriverStatus.AVAILABLE, DriverStatus.RESERVED)) {
+            return false;
+        }
+
+        entry.bookingId = bookingId;
+        bookingDrivers.put(bookingId, entry);
+        return true;
+    }
+
+    /**
+     * marks the driver reserved for a booking as on the trip
+     * @param bookingId booking the driver was reserved for
+     * @return true if the booking had a reserved driver
+     */
+    public boolean startTrip(String bookingId) {
+        DriverEntry entry = bookingId == null ? null : bookingDrivers.get(bookingId);
+        return entry != null && entry.status.compareAndSet(DriverStatus.RESERVED, DriverStatus.ON_TRIP);
+    }
+
+    /**
+     * makes the driver of a finished or cancelled booking available again
+     * @param bookingId booking the driver was reserved for
+     * @return true if a driver was released
+     */
+    public boolean releaseBooking(String bookingId) {
+        DriverEntry entry = bookingId == null ? null : bookingDrivers.remove(bookingId);
+        if (entry == null) {
+            return false;
+        }
+
+        entry.bookingId = null;
+        entry.status.set(DriverStatus.AVAILABLE);
+        System.out.println("✓ Driver " + entry.id + " released from booking " + bookingId);
+        return true;
+    }
+
+    /**
+     * @param bookingId booking the driver was reserved for
+     * @return the driver reserved for or driving the booking
+     */
+    public Optional<Driver> getDriverForBooking(String bookingId) {
+        DriverEntry entry = bookingId == null ? null : bookingDrivers.get(bookingId);
+        return entry == null ? Optional.empty() : Optional.of(entry.toDriver());
+    }
+
+    /**
+     * helper method which searches the grid in rings of cells around the pickup until no unvisited
+     * cell can hold a driver closer than the k-th best found so far
+     */
+    private List<DriverEntry> searchNearest(double latitude, double longitude, int k, VehicleClass vehicleClass) {
+        validateCoordinates(latitude, longitude);
+        if (k <= 0 || k > MAX_CANDIDATES) {
+            throw new InvalidDriverException("Number of drivers must be between 1 and " + MAX_CANDIDATES + ": " + k);
+        }
+
+        double cosLatitude = Math.cos(Math.toRadians(latitude));
+        // the narrowest side of a cell, so ring distances are a safe lower bound
+        double cellKm = cellDegrees * KM_PER_DEGREE * Math.max(cosLatitude, 0.01);
+        int maxRing = (int) Math.ceil(maxPickupKm / cellKm);
+
+        DriverEntry[] best = new DriverEntry[k];
+        double[] bestKm = new double[k];
+        int found = 0;
+
+        long row = (long) Math.floor(latitude / cellDegrees);
+        long column = (long) Math.floor(longitude / cellDegrees);
+
+        for (int ring = 0; ring <= maxRing; ring++) {
+            // every cell in this ring is at least (ring - 1) cells away from the pickup
+            if (found == k && bestKm[k - 1] <= (ring - 1) * cellKm) {
+                break;
+            }
+
+            for (long r = row - ring; r <= row + ring; r++) {
+                boolean edgeRow = r == row - ring || r == row + ring;
+                long step = edgeRow || ring == 0 ? 1 : 2L * ring;
+                for (long c = column - ring; c <= column + ring; c += step) {
+                    Set<DriverEntry> cell = grid.get(cellKey(r, c));
+                    if (cell == null) {
+                        continue;
+                    }
+
+                    for (DriverEntry entry : cell) {
+                        if (entry.status.get() != DriverStatus.AVAILABLE
+                                || (vehicleClass != null && entry.vehicleClass != vehicleClass)) {
+                            continue;
+                        }
+
+                        double km = approximateKm(latitude, longitude, entry.latitude, entry.longitude, cosLatitude);
+                        if (km > maxPickupKm || (found == k && km >= bestKm[k - 1]) || contains(best, found, entry)) {
+                            continue;
+                        }
+
+                        // insertion into the small sorted candidate array
+                        int position = found < k ? found++ : k - 1;
+                        while (position > 0 && bestKm[position - 1] > km) {
+                            best[position] = best[position - 1];
+                            bestKm[position] = bestKm[position - 1];
+                            position--;
+                        }
+                        best[position] = entry;
+                        bestKm[position] = km;
+                    }
+                }
+            }
+        }
+
+        List<DriverEntry> nearest = new ArrayList<>(found);
+        for (int i = 0; i < found; i++) {
+            nearest.add(best[i]);
+        }
+        return nearest;
+    }
+
+    //================Helpers================
+
+    /**
+     * equirectangular approximation of the distance in km, accurate to well under 1% over city distances
+     * and much cheaper than the Haversine formula for ranking many candidates
+     */
+    private static double approximateKm(double lat1, double lng1, double lat2, double lng2, double cosLatitude) {
+        double dx = (lng2 - lng1) * cosLatitude;
+        double dy = lat2 - lat1;
+        return Math.sqrt(dx * dx + dy * dy) * KM_PER_DEGREE;
+    }
+
+    private static boolean contains(DriverEntry[] entries, int count, DriverEntry entry) {
+        // a driver moving between cells can briefly be seen in both
+        for (int i = 0; i < count; i++) {
+            if (entries[i] == entry) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private long cellKey(double latitude, double longitude) {
+        return cellKey((long) Math.floor(latitude / cellDegrees), (long) Math.floor(longitude / cellDegrees));
+    }
+
+    private static long cellKey(long row, long column) {
+        return (row << 32) | (column & 0xffffffffL);
+    }
+
+    private void removeFromCell(DriverEntry entry) {
+        grid.computeIfPresent(entry.cell, (key, cell) -> {
+            cell.remove(entry);
+            return cell.isEmpty() ? null : cell;
+        });
+    }
+
+    /**
+     * helper method which takes a driver offline unless a booking holds them, using compare-and-set
+     * so a reservation cannot slip in between the check and the change
+     */
+    private static void takeOffline(DriverEntry entry) {
+        while (true) {
+            DriverStatus status = entry.status.get();
+            if (status == DriverStatus.RESERVED || status == DriverStatus.ON_TRIP) {
+                throw new InvalidDriverException("Driver " + entry.id + " cannot be changed while " + status);
+            }
+            if (entry.status.compareAndSet(status, DriverStatus.OFFLINE)) {
+                return;
+            }
+        }
+    }
+
+    private DriverEntry getEntry(String driverId) {
+        DriverEntry entry = driverId == null ? null : drivers.get(driverId);
+        if (entry == null) {
+            throw new DriverNotFoundException("Driver not found: " + driverId);
+        }
+        return entry;
+    }
+
+    private static void validateDriver(Driver driver) {
+        if (driver == null) {
+            throw new InvalidDriverException("Driver cannot be null");
+        }
+
+        if (driver.getId() == null || driver.getId().trim().isEmpty()) {
+            throw new InvalidDriverException("Driver must have a valid ID");
+        }
+
+        if (driver.getVehicleClass() == null) {
+            throw new InvalidDriverException("Driver must have a vehicle class");
+        }
+
+        validateCoordinates(driver.getLatitude(), driver.getLongitude());
+    }
+
+    private static void validateCoordinates(double latitude, double longitude) {
+        if (!(latitude >= -90 && latitude <= 90) || !(longitude >= -180 && longitude <= 180)) {
+            throw new InvalidDriverException("Invalid coordinates: " + latitude + ", " + longitude);
+        }
+    }
+
+    private static final class DriverEntry {
+        private final String id;
+        private final String name;
+        private final VehicleClass vehicleClass;
+        private final AtomicReference<DriverStatus> status;
+        private volatile double latitude;
+        private volatile double longitude;
+        private volatile long cell;
+        private volatile String bookingId;
+
+        private DriverEntry(String id, String name, VehicleClass vehicleClass, DriverStatus status) {
+            this.id = id;
+            this.name = name;
+            this.vehicleClass = vehicleClass;
+            this.status = new AtomicReference<>(status);
+        }
+
+        private Driver toDriver() {
+            Driver driver = new Driver(id, name, latitude, longitude, status.get(), vehicleClass);
+            driver.setBookingId(bookingId);
+            return driver;
+        }
+    }
+}
@@ -0,0 +1,232 @@
+package com.example.cabbooking.service;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Supplier;
+
+@Service
+public class IdempotencyStore {
+
+    public static final int MAX_KEY_LENGTH = 255;
+
+    private final long ttlMillis;
+    private final int maxEntries;
+    private final long waitMillis;
+
+    private final ConcurrentHashMap<String, Entry> entries = new ConcurrentHashMap<>();
+
+    // keys in insertion order, so the oldest completed results are evicted first when the store is full
+    private final ConcurrentLinkedQueue<String> insertionOrder = new ConcurrentLinkedQueue<>();
+
+    public static class InvalidIdempotencyKeyException extends RuntimeException {
+        public InvalidIdempotencyKeyException(String message) {
+            super(message);
+        }
+    }
+
+    public static class KeyReusedException extends RuntimeException {
+        public KeyReusedException(String message) {
+            super(message);
+        }
+    }
+
+    public static class RequestInProgressException extends RuntimeException {
+        public RequestInProgressException(String message) {
+            super(message);
+        }
+    }
+
+    @Autowired
+    public IdempotencyStore(@Value("${booking.idempotency.ttl-seconds:86400}") long ttlSeconds,
+                            @Value("${booking.idempotency.max-entries:100000}") int maxEntries,
+                            @Value("${booking.idempotency.wait-ms:10000}") long waitMillis) {
+        if (ttlSeconds < 0 || maxEntries < 1 || waitMillis < 0) {
+            throw new IllegalArgumentException("Idempotency ttl and wait must not be negative and max entries must be positive");
+        }
+        this.ttlMillis = TimeUnit.SECONDS.toMillis(ttlSeconds);
+        this.maxEntries = maxEntries;
+        this.waitMillis = waitMillis;
+    }
+
+    /**
+     * runs an action at most once per idempotency key and returns the stored result for repeats.
+     * A repeat that arrives while the first execution is still running waits for it instead of running again.
+     * Actions that throw are not stored, so the client can retry with the same key.
+     * @param key Idempotency-Key sent by the client, already scoped to the endpoint
+     * @param fingerprint summary of the request body, used to detect a key being reused for a different request
+     * @param action work to run the first time the key is seen
+     * @return result of the first execution for this key
+     */
+    @SuppressWarnings("unchecked")
+    public <T> T execute(String key, String fingerprint, Supplier<T> action) {
+        validateKey(key);
+
+        String requestFingerprint = fingerprint == null ? "" : fingerprint;
+        while (true) {
+            Entry created = new Entry(requestFingerprint);
+            Entry existing = entries.putIfAbsent(key, created);
+
+            if (existing == null) {
+                insertionOrder.add(key);
+                evictIfFull();
+                return runFirst(key, created, action);
+            }
+
+            if (existing.isExpired(System.currentTimeMillis())) {
+                entries.remove(key, existing);
+                continue;
+            }
+
+            if (!existing.fingerprint.equals(requestFingerprint)) {
+                throw new KeyReusedException("Idempotency-Key " + key + " was already used for a different request");
+            }
+
+            return (T) awaitResult(key, existing);
+        }
+    }
+
+    /**
+     * records a single-use key, such as a fare quote being redeemed, which is refused when it comes again within the ttl
+     * @param key the single-use key
+     * @return true the first time the key is seen, false if it has already been used
+     */
+    public boolean markUsed(String key) {
+        validateKey(key);
+
+        while (true) {
+            Entry used = new Entry("");
+            used.completedAt = System.currentTimeMillis();
+            used.result.complete(Boolean.TRUE);
+            Entry existing = entries.putIfAbsent(key, used);
+
+            if (existing == null) {
+                insertionOrder.add(key);
+                evictIfFull();
+                return true;
+            }
+
+            if (!existing.isExpired(System.currentTimeMillis())) {
+                return false;
+            }
+            entries.remove(key, existing);
+        }
+    }
+
+    /**
+     * forgets a key recorded with markUsed(), so it can be used again
+     * @param key the single-use key
+     */
+    public void forget(String key) {
+        if (key != null) {
+            entries.remove(key);
+        }
+    }
+
+    /**
+     * removes completed results older than the ttl
+     * @return number of entries removed
+     */
+    @Scheduled(fixedDelayString = "${booking.idempotency.purge-ms:60000}")
+    public int purgeExpired() {
+        long now = System.currentTimeMillis();
+        int removed = 0;
+        for (Map.Entry<String, Entry> e : entries.entrySet()) {
+            if (e.getValue().isExpired(now) && entries.remove(e.getKey(), e.getValue())) {
+                removed++;
+            }
+        }
+        insertionOrder.removeIf(key -> !entries.containsKey(key));
+        return removed;
+    }
+
+    public int size() {
+        return entries.size();
+    }
+
+    private static void validateKey(String key) {
+        if (key == null || key.isBlank() || key.length() > MAX_KEY_LENGTH) {
+            throw new InvalidIdempotencyKeyException("Idempotency-Key must be between 1 and " + MAX_KEY_LENGTH + " characters");
+        }
+    }
+
+    private <T> T runFirst(String key, Entry entry, Supplier<T> action) {
+        T result;
+        try {
+            result = action.get();
+        } catch (RuntimeException | Error e) {
+            // nothing was stored, a retry with the same key runs again
+            entries.remove(key, entry);
+            entry.result.completeExceptionally(e);
+            throw e;
+        }
+
+        entry.completedAt = System.currentTimeMillis();
+        entry.result.complete(result);
+        return result;
+    }
+
+    private Object awaitResult(String key, Entry entry) {
+        try {
+            return entry.result.get(waitMillis, TimeUnit.MILLISECONDS);
+        } catch (TimeoutException e) {
+            throw new RequestInProgressException("A request with Idempotency-Key " + key + " is still being processed");
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RequestInProgressException("Interrupted while waiting for Idempotency-Key " + key);
+        } catch (ExecutionException e) {
+            // the first execution failed, so this duplicate sees the same failure
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw new IllegalStateException(e.getCause());
+        }
+    }
+
+    /**
+     * helper method which drops the oldest completed results once the store holds more than maxEntries.
+     * In-flight entries are never evicted, otherwise a duplicate could run the action a second time.
+     */
+    private void evictIfFull() {
+        if (entries.size() <= maxEntries) {
+            return;
+        }
+
+        long now = System.currentTimeMillis();
+        Iterator<String> oldest = insertionOrder.iterator();
+        while (entries.size() > maxEntries && oldest.hasNext()) {
+            String key = oldest.next();
+            Entry entry = entries.get(key);
+            if (entry == null) {
+                oldest.remove();
+            } else if (entry.completedAt > 0 || entry.isExpired(now)) {
+                entries.remove(key, entry);
+                oldest.remove();
+            }
+        }
+    }
+
+    private final class Entry {
+        private final String fingerprint;
+        private final CompletableFuture<Object> result = new CompletableFuture<>();
+        private volatile long completedAt;
+
+        private Entry(String fingerprint) {
+            this.fingerprint = fingerprint;
+        }
+
+        private boolean isExpired(long now) {
+            return completedAt > 0 && now - completedAt >= ttlMillis;
+        }
+    }
+}
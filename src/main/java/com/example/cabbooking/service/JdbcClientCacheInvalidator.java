@@ -0,0 +1,111 @@
+package com.example.cabbooking.service;
+
+import com.example.cabbooking.model.ClientInvalidation;
+import com.example.cabbooking.repository.ClientInvalidationRepository;
+import org.springframework.scheduling.annotation.Scheduled;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * invalidator for several nodes sharing one database. Changes are appended to client_cache_invalidation and
+ * every node polls for the rows after the last one it has seen, skipping its own. A node that starts reads
+ * from the newest row, its cache is empty so nothing older concerns it.
+ */
+public class JdbcClientCacheInvalidator implements ClientCacheInvalidator {
+
+    private static final int PURGE_CHUNK = 1000;
+
+    private final ClientInvalidationRepository invalidationRepository;
+    private final int batchSize;
+    private final Duration retention;
+    private final String node = UUID.randomUUID().toString();
+    private final List<Listener> listeners = new CopyOnWriteArrayList<>();
+    private final AtomicBoolean polling = new AtomicBoolean();
+
+    // id of the last change this node has applied, -1 until the starting point has been read
+    private volatile long lastSeenId = -1;
+
+    public JdbcClientCacheInvalidator(ClientInvalidationRepository invalidationRepository, int batchSize, long retentionHours) {
+        if (batchSize <= 0 || retentionHours <= 0) {
+            throw new IllegalArgumentException("Client invalidation batch size and retention must be positive");
+        }
+        this.invalidationRepository = invalidationRepository;
+        this.batchSize = batchSize;
+        this.retention = Duration.ofHours(retentionHours);
+        this.lastSeenId = invalidationRepository.findLatestId();
+    }
+
+    @Override
+    public void publish(Integer clientId, String email) {
+        if (!invalidationRepository.save(new ClientInvalidation(node, clientId, email, Instant.now()))) {
+            System.out.println("✗ Other nodes were not told about client " + (clientId == null ? email : clientId)
+                    + ", their caches expire it after the TTL");
+        }
+    }
+
+    @Override
+    public void subscribe(Listener listener) {
+        listeners.add(listener);
+    }
+
+    @Override
+    public String getName() {
+        return "jdbc";
+    }
+
+    /**
+     * applies the changes other nodes made since the last poll
+     * @return number of changes read
+     */
+    @Scheduled(fixedDelayString = "${client.cache.invalidation.poll-ms:1000}")
+    public int poll() {
+        if (!polling.compareAndSet(false, true)) {
+            return 0;
+        }
+        try {
+            if (lastSeenId < 0) {
+                lastSeenId = invalidationRepository.findLatestId();
+                return 0;
+            }
+
+            int read = 0;
+            List<ClientInvalidation> changes;
+            do {
+                changes = invalidationRepository.findAfter(lastSeenId, batchSize);
+                for (ClientInvalidation change : changes) {
+                    if (!node.equals(change.getNode())) {
+                        for (Listener listener : listeners) {
+                            listener.onInvalidate(change.getClientId(), change.getEmail());
+                        }
+                    }
+                    lastSeenId = change.getId();
+                }
+                read += changes.size();
+            } while (changes.size() == batchSize);
+            return read;
+        } finally {
+            polling.set(false);
+        }
+    }
+
+    /**
+     * deletes changes older than the retention period, every node has read them long before
+     */
+    @Scheduled(fixedDelayString = "${client.cache.invalidation.purge-ms:600000}")
+    public void purge() {
+        Instant cutoff = Instant.now().minus(retention);
+        int deleted;
+        do {
+            deleted = invalidationRepository.deleteCreatedBefore(cutoff, PURGE_CHUNK);
+        } while (deleted == PURGE_CHUNK);
+    }
+
+    String getNode() {
+        return node;
+    }
+}
@@ -0,0 +1,104 @@
+package com.example.cabbooking.service;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * lock-free latency histogram with log-linear buckets.
+ * Every power of two of microseconds is split into 8 equal buckets, so any percentile is reported within 12.5%
+ * of the true value from a fixed 2 KB of counters, however many calls are recorded. Values above about
+ * 70 minutes land in the last bucket.
+ */
+final class LatencyHistogram {
+
+    private static final int SUB_BUCKET_BITS = 3;
+    private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+    private static final int MAX_EXPONENT = 31;
+    private static final long MAX_MICROS = (1L << (MAX_EXPONENT + 1)) - 1;
+    private static final int BUCKETS = (MAX_EXPONENT - SUB_BUCKET_BITS + 2) * SUB_BUCKETS;
+
+    private final AtomicLongArray counts = new AtomicLongArray(BUCKETS);
+    private final AtomicLong count = new AtomicLong();
+    private final AtomicLong totalMicros = new AtomicLong();
+    private final AtomicLong maxMicros = new AtomicLong();
+
+    /**
+     * @param nanos duration of one call
+     */
+    void record(long nanos) {
+        long micros = Math.min(Math.max(nanos / 1000, 0), MAX_MICROS);
+        counts.incrementAndGet(bucket(micros));
+        count.incrementAndGet();
+        totalMicros.addAndGet(micros);
+        maxMicros.accumulateAndGet(micros, Math::max);
+    }
+
+    /**
+     * @param percentile between 0 and 100
+     * @return upper bound in milliseconds of the bucket holding the percentile, 0 if nothing was recorded
+     */
+    double getPercentileMillis(double percentile) {
+        long total = count.get();
+        if (total == 0) {
+            return 0;
+        }
+
+        long rank = Math.max(1, (long) Math.ceil(percentile / 100.0 * total));
+        long seen = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            seen += counts.get(i);
+            if (seen >= rank) {
+                return Math.min(upperBound(i), maxMicros.get()) / 1000.0;
+            }
+        }
+        // counts recorded after count was read can leave the rank just out of reach
+        return maxMicros.get() / 1000.0;
+    }
+
+    long getCount() {
+        return count.get();
+    }
+
+    double getMeanMillis() {
+        long total = count.get();
+        return total == 0 ? 0 : totalMicros.get() / 1000.0 / total;
+    }
+
+    double getMaxMillis() {
+        return maxMicros.get() / 1000.0;
+    }
+
+    /**
+     * @return count, mean, p50, p95, p99 and max, in milliseconds
+     */
+    Map<String, Object> snapshot() {
+        Map<String, Object> snapshot = new HashMap<>();
+        snapshot.put("count", getCount());
+        snapshot.put("meanMs", getMeanMillis());
+        snapshot.put("p50Ms", getPercentileMillis(50));
+        snapshot.put("p95Ms", getPercentileMillis(95));
+        snapshot.put("p99Ms", getPercentileMillis(99));
+        snapshot.put("maxMs", getMaxMillis());
+        return snapshot;
+    }
+
+    static int bucket(long micros) {
+        if (micros < SUB_BUCKETS) {
+            return (int) micros;
+        }
+        int exponent = 63 - Long.numberOfLeadingZeros(micros);
+        int subBucket = (int) ((micros >>> (exponent - SUB_BUCKET_BITS)) & (SUB_BUCKETS - 1));
+        return (exponent - SUB_BUCKET_BITS + 1) * SUB_BUCKETS + subBucket;
+    }
+
+    static long upperBound(int bucket) {
+        if (bucket < SUB_BUCKETS) {
+            return bucket;
+        }
+        int exponent = bucket / SUB_BUCKETS + SUB_BUCKET_BITS - 1;
+        long width = 1L << (exponent - SUB_BUCKET_BITS);
+        return (SUB_BUCKETS + bucket % SUB_BUCKETS) * width + width - 1;
+    }
+}
@@ -0,0 +1,441 @@
+package com.example.cabbooking.service;
+
+import com.example.cabbooking.model.LedgerPosting;
+import com.example.cabbooking.model.LedgerTransaction;
+import com.example.cabbooking.repository.LedgerLog;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * records every movement of money as a balanced double-entry transaction in the LedgerLog.
+ * Callers wait until their transaction is on disk, but a writer thread gathers whatever is queued into one
+ * append, so concurrent postings share a single fsync. Account balances are kept in memory, rebuilt from
+ * the log at startup and updated as each batch is committed. A transaction posted with a reference is written
+ * once: posting the same reference again returns the transaction already written for it.
+ */
+@Service
+public class LedgerService {
+
+    public static final String PLATFORM_REVENUE = "platform:revenue";
+    public static final String DRIVERS_PAYABLE = "drivers:payable";
+
+    private static final long ENQUEUE_TIMEOUT_MILLIS = 100;
+    private static final long COMMIT_TIMEOUT_MILLIS = 5_000;
+    private static final long IDLE_POLL_MILLIS = 100;
+
+    private final LedgerLog ledgerLog;
+    private final double commissionRate;
+    private final int batchSize;
+    private final long lingerMillis;
+    private final BlockingQueue<PendingPosting> queue;
+    private final ThreadFactory threadFactory;
+    private final Map<String, AtomicLong> balances = new ConcurrentHashMap<>();
+    private final Map<String, LedgerTransaction> committedByReference = new ConcurrentHashMap<>();
+    private final Map<String, CompletableFuture<LedgerTransaction>> postingByReference = new ConcurrentHashMap<>();
+
+    private final AtomicLong transactionsWritten = new AtomicLong();
+    private final AtomicLong transactionsFailed = new AtomicLong();
+    private final AtomicLong batchesWritten = new AtomicLong();
+    private final AtomicLong duplicatesReturned = new AtomicLong();
+
+    private volatile boolean running;
+    private Thread writer;
+
+    public static class InvalidPostingException extends RuntimeException {
+        public InvalidPostingException(String message) {
+            super(message);
+        }
+    }
+
+    public static class LedgerException extends RuntimeException {
+        public LedgerException(String message) {
+            super(message);
+        }
+    }
+
+    /**
+     * @param ledgerLog log transactions are appended to, null to keep balances in memory only
+     */
+    @Autowired
+    public LedgerService(LedgerLog ledgerLog,
+                         @Value("${ledger.platform-commission-rate:0.2}") double commissionRate,
+                         @Value("${ledger.batch-size:1024}") int batchSize,
+                         @Value("${ledger.queue-capacity:65536}") int queueCapacity,
+                         @Value("${ledger.linger-ms:1}") long lingerMillis,
+                         ThreadFactory workerThreadFactory) {
+        if (commissionRate < 0 || commissionRate > 1 || batchSize <= 0 || queueCapacity <= 0 || lingerMillis < 0) {
+            throw new IllegalArgumentException("Ledger commission rate must be between 0 and 1, batch size and queue capacity "
+                    + "must be positive, linger cannot be negative");
+        }
+
+        this.ledgerLog = ledgerLog;
+        this.commissionRate = commissionRate;
+        this.batchSize = batchSize;
+        this.lingerMillis = lingerMillis;
+        this.queue = new ArrayBlockingQueue<>(queueCapacity);
+        this.threadFactory = workerThreadFactory;
+
+        if (ledgerLog != null) {
+            for (Map.Entry<String, Long> entry : ledgerLog.getRecoveredBalances().entrySet()) {
+                balances.put(entry.getKey(), new AtomicLong(entry.getValue()));
+            }
+            committedByReference.putAll(ledgerLog.getRecoveredTransactions());
+        }
+    }
+
+    /**
+     * starts the writer thread that appends queued transactions to the log in batches
+     */
+    @PostConstruct
+    public void start() {
+        if (running) {
+            return;
+        }
+
+        running = true;
+        writer = threadFactory.newThread(this::writeLoop);
+        writer.setName("ledger-writer");
+        writer.setDaemon(true);
+        writer.start();
+        System.out.println("✓ Ledger writer started (batch size " + batchSize + ", " + balances.size() + " accounts)");
+    }
+
+    /**
+     * stops the writer thread once every queued transaction has been written
+     */
+    @PreDestroy
+    public void stop() {
+        running = false;
+        if (writer == null) {
+            return;
+        }
+
+        try {
+            writer.join(COMMIT_TIMEOUT_MILLIS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+
+        if (!queue.isEmpty()) {
+            System.out.println("✗ Ledger writer stopped with " + queue.size() + " transactions still queued");
+        }
+        writer = null;
+    }
+
+    /**
+     * records a balanced transaction and waits until it is durable. A reference that has already been posted is
+     * not written again, the caller gets the transaction written for it the first time
+     * @param reference UUID of the payment or booking the money moved for, may be null
+     * @param postings at least two non-zero postings that add up to zero
+     * @return the written transaction, with its id and timestamp
+     */
+    public LedgerTransaction post(String reference, List<LedgerPosting> postings) {
+        validate(reference, postings);
+        LedgerTransaction transaction = new LedgerTransaction(0, reference, 0, new ArrayList<>(postings));
+        if (reference == null) {
+            return write(transaction);
+        }
+
+        LedgerTransaction existing = committedByReference.get(reference);
+        if (existing != null) {
+            duplicatesReturned.incrementAndGet();
+            return existing;
+        }
+
+        // a second caller with the same reference waits for the first one instead of queueing a copy
+        CompletableFuture<LedgerTransaction> claim = new CompletableFuture<>();
+        CompletableFuture<LedgerTransaction> inFlight = postingByReference.putIfAbsent(reference, claim);
+        if (inFlight != null) {
+            duplicatesReturned.incrementAndGet();
+            return await(inFlight);
+        }
+
+        try {
+            // the first caller may have finished between the lookup and the claim
+            existing = committedByReference.get(reference);
+            LedgerTransaction written = existing != null ? existing : write(transaction);
+            claim.complete(written);
+            return written;
+        } catch (RuntimeException e) {
+            claim.completeExceptionally(e);
+            throw e;
+        } finally {
+            postingByReference.remove(reference, claim);
+        }
+    }
+
+    /**
+     * records a fare paid by a rider: the rider's account is debited the whole fare, the platform is
+     * credited its commission and the rest is credited to the drivers' payable account until settlement
+     * @param reference UUID of the payment
+     * @param clientId id of the rider who paid
+     * @param fare dollar amount charged to the rider
+     * @return the written transaction
+     */
+    public LedgerTransaction recordFarePayment(String reference, Integer clientId, double fare) {
+        if (clientId == null) {
+            throw new InvalidPostingException("Fare payment needs the id of the client who paid");
+        }
+
+        long fareCents = Math.round(fare * 100);
+        if (fareCents <= 0) {
+            throw new InvalidPostingException("Fare payment must be at least one cent: " + fare);
+        }
+
+        long commissionCents = Math.round(fareCents * commissionRate);
+        List<LedgerPosting> postings = new ArrayList<>(3);
+        postings.add(LedgerPosting.debit(riderAccount(clientId), fareCents));
+        if (commissionCents > 0) {
+            postings.add(LedgerPosting.credit(PLATFORM_REVENUE, commissionCents));
+        }
+        if (fareCents > commissionCents) {
+            postings.add(LedgerPosting.credit(DRIVERS_PAYABLE, fareCents - commissionCents));
+        }
+        return post(reference, postings);
+    }
+
+    /**
+     * @param account name of the account
+     * @return balance in cents, credits minus debits, 0 for an account that has never been posted to
+     */
+    public long getBalanceCents(String account) {
+        AtomicLong balance = balances.get(account);
+        return balance == null ? 0 : balance.get();
+    }
+
+    /**
+     * @return balance in cents of every account that has been posted to
+     */
+    public Map<String, Long> getBalances() {
+        Map<String, Long> snapshot = new HashMap<>();
+        for (Map.Entry<String, AtomicLong> entry : balances.entrySet()) {
+            snapshot.put(entry.getKey(), entry.getValue().get());
+        }
+        return snapshot;
+    }
+
+    /**
+     * ledger writer counters
+     * @return map of metric names to values
+     */
+    public Map<String, Object> getMetrics() {
+        Map<String, Object> metrics = new HashMap<>();
+        metrics.put("transactionsWritten", transactionsWritten.get());
+        metrics.put("transactionsFailed", transactionsFailed.get());
+        metrics.put("batchesWritten", batchesWritten.get());
+        metrics.put("duplicatesReturned", duplicatesReturned.get());
+        metrics.put("queued", queue.size());
+        metrics.put("accounts", balances.size());
+        metrics.put("lastTransactionId", ledgerLog == null ? 0 : ledgerLog.getLastTransactionId());
+        return metrics;
+    }
+
+    public static String riderAccount(Integer clientId) {
+        return "rider:" + clientId;
+    }
+
+    //================Writer thread================
+
+    /**
+     * helper method which writes one transaction, through the writer thread when it is running
+     */
+    private LedgerTransaction write(LedgerTransaction transaction) {
+        // without a running writer there is nobody to drain the queue, so write on the caller thread
+        if (!running) {
+            List<LedgerTransaction> single = List.of(transaction);
+            try {
+                append(single);
+            } catch (RuntimeException e) {
+                transactionsFailed.incrementAndGet();
+                throw new LedgerException("Ledger transaction could not be written: " + e.getMessage());
+            }
+            apply(single);
+            return transaction;
+        }
+
+        PendingPosting pending = new PendingPosting(transaction);
+        try {
+            if (!queue.offer(pending, ENQUEUE_TIMEOUT_MILLIS, TimeUnit.MILLISECONDS)) {
+                throw new LedgerException("Ledger queue is full, please try again shortly");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new LedgerException("Interrupted while queueing ledger transaction");
+        }
+        return await(pending.committed);
+    }
+
+    private static LedgerTransaction await(CompletableFuture<LedgerTransaction> committed) {
+        try {
+            return committed.get(COMMIT_TIMEOUT_MILLIS, TimeUnit.MILLISECONDS);
+        } catch (TimeoutException e) {
+            throw new LedgerException("Timed out waiting for ledger transaction to be written");
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof LedgerException) {
+                throw (LedgerException) cause;
+            }
+            throw new LedgerException("Ledger transaction could not be written: " + cause.getMessage());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new LedgerException("Interrupted while writing ledger transaction");
+        }
+    }
+
+    private void writeLoop() {
+        List<PendingPosting> batch = new ArrayList<>(batchSize);
+
+        while (running || !queue.isEmpty()) {
+            try {
+                PendingPosting first = queue.poll(IDLE_POLL_MILLIS, TimeUnit.MILLISECONDS);
+                if (first == null) {
+                    continue;
+                }
+
+                batch.add(first);
+                queue.drainTo(batch, batchSize - 1);
+
+                // a short linger lets a burst of postings share one fsync instead of paying for one each
+                if (lingerMillis > 0 && batch.size() < batchSize) {
+                    long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(lingerMillis);
+                    while (batch.size() < batchSize) {
+                        long remaining = deadline - System.nanoTime();
+                        PendingPosting next = remaining > 0 ? queue.poll(remaining, TimeUnit.NANOSECONDS) : null;
+                        if (next == null) {
+                            break;
+                        }
+                        batch.add(next);
+                        queue.drainTo(batch, batchSize - batch.size());
+                    }
+                }
+
+                writeBatch(batch);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                running = false;
+                if (!batch.isEmpty()) {
+                    writeBatch(batch);
+                }
+            } finally {
+                batch.clear();
+            }
+        }
+    }
+
+    /**
+     * helper method which appends one batch of queued transactions and tells the waiting callers how it went;
+     * the log writes a batch entirely or not at all, so they all share the same outcome
+     * @param batch queued transactions to be written
+     */
+    private void writeBatch(List<PendingPosting> batch) {
+        List<LedgerTransaction> transactions = new ArrayList<>(batch.size());
+        for (PendingPosting pending : batch) {
+            transactions.add(pending.transaction);
+        }
+
+        try {
+            append(transactions);
+        } catch (RuntimeException e) {
+            System.out.println("✗ Ledger writer error: " + e.getMessage());
+            transactionsFailed.addAndGet(batch.size());
+            for (PendingPosting pending : batch) {
+                pending.committed.completeExceptionally(e);
+            }
+            return;
+        }
+
+        apply(transactions);
+        batchesWritten.incrementAndGet();
+        for (PendingPosting pending : batch) {
+            pending.committed.complete(pending.transaction);
+        }
+    }
+
+    private void append(List<LedgerTransaction> transactions) {
+        if (ledgerLog != null) {
+            ledgerLog.append(transactions);
+        }
+    }
+
+    /**
+     * helper method which adds written transactions to the balance and reference indexes
+     */
+    private void apply(List<LedgerTransaction> transactions) {
+        for (LedgerTransaction transaction : transactions) {
+            if (transaction.getReference() != null) {
+                committedByReference.putIfAbsent(transaction.getReference(), transaction);
+            }
+            for (LedgerPosting posting : transaction.getPostings()) {
+                balances.computeIfAbsent(posting.getAccount(), account -> new AtomicLong()).addAndGet(posting.getAmountCents());
+            }
+        }
+        transactionsWritten.addAndGet(transactions.size());
+    }
+
+    //================Validation================
+
+    private void validate(String reference, List<LedgerPosting> postings) {
+        if (postings == null || postings.size() < 2) {
+            throw new InvalidPostingException("A ledger transaction needs at least two postings");
+        }
+        if (postings.size() > LedgerLog.MAX_POSTINGS) {
+            throw new InvalidPostingException("A ledger transaction can have at most " + LedgerLog.MAX_POSTINGS + " postings");
+        }
+
+        long sum = 0;
+        for (LedgerPosting posting : postings) {
+            if (posting == null || posting.getAmountCents() == 0) {
+                throw new InvalidPostingException("Ledger postings must move a non-zero amount");
+            }
+            validateAccount(posting.getAccount());
+            sum = Math.addExact(sum, posting.getAmountCents());
+        }
+        if (sum != 0) {
+            throw new InvalidPostingException("Ledger transaction does not balance, postings add up to " + sum + " cents");
+        }
+
+        if (reference != null) {
+            try {
+                UUID.fromString(reference);
+            } catch (IllegalArgumentException e) {
+                throw new InvalidPostingException("Ledger reference must be a UUID: " + reference);
+            }
+        }
+    }
+
+    private static void validateAccount(String account) {
+        if (account == null || account.isEmpty() || account.length() > LedgerLog.MAX_ACCOUNT_LENGTH
+                || !StandardCharsets.US_ASCII.newEncoder().canEncode(account) || account.indexOf('\0') >= 0) {
+            throw new InvalidPostingException("Ledger account must be 1 to " + LedgerLog.MAX_ACCOUNT_LENGTH
+                    + " ASCII characters: " + account);
+        }
+    }
+
+    private static final class PendingPosting {
+        private final LedgerTransaction transaction;
+        private final CompletableFuture<LedgerTransaction> committed = new CompletableFuture<>();
+
+        private PendingPosting(LedgerTransaction transaction) {
+            this.transaction = transaction;
+        }
+    }
+}
@@ -0,0 +1,18 @@
+package com.example.cabbooking.service;
+
+/**
+ * invalidator for a single node: the node's own cache is already invalidated, so there is no one else to tell
+ */
+public class LocalClientCacheInvalidator implements ClientCacheInvalidator {
+
+    @Override
+    public void publish(Integer clientId, String email) {}
+
+    @Override
+    public void subscribe(Listener listener) {}
+
+    @Override
+    public String getName() {
+        return "local";
+    }
+}
@@ -0,0 +1,128 @@
+package com.example.cabbooking.service;
+
+import com.example.cabbooking.model.GatewayResponse;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * in-memory stand-in for a card payment provider, used until a real gateway is configured and in tests.
+ * It answers after a configurable delay without holding a thread, fails a configurable share of calls the way a
+ * flaky provider would, and declines the well-known test card 4000 0000 0000 0002.
+ */
+@Service
+public class LocalPaymentGateway implements PaymentGateway {
+
+    static final String DECLINED_TEST_CARD = "4000000000000002";
+
+    private final long latencyMillis;
+    private final double failureRate;
+
+    // replies by idempotency key, so a retried request gets the first answer back instead of a second charge
+    private final Map<String, CompletableFuture<GatewayResponse>> replies = new ConcurrentHashMap<>();
+    // authorized amount by authorization id, removed once captured or voided
+    private final Map<String, Double> authorizations = new ConcurrentHashMap<>();
+
+    @Autowired
+    public LocalPaymentGateway(@Value("${payment.gateway.local.latency-ms:0}") long latencyMillis,
+                               @Value("${payment.gateway.local.failure-rate:0.0}") double failureRate) {
+        if (latencyMillis < 0 || failureRate < 0 || failureRate > 1) {
+            throw new IllegalArgumentException("Local gateway latency must not be negative and its failure rate must be between 0 and 1");
+        }
+        this.latencyMillis = latencyMillis;
+        this.failureRate = failureRate;
+    }
+
+    @Override
+    public CompletableFuture<GatewayResponse> authorize(String idempotencyKey, String cardNumber, double amount) {
+        return reply(idempotencyKey, () -> {
+            String card = cardNumber == null ? "" : cardNumber.replaceAll("[\\s-]", "");
+            if (card.equals(DECLINED_TEST_CARD)) {
+                return new GatewayResponse(null, false, amount, "card_declined");
+            }
+            if (amount <= 0) {
+                return new GatewayResponse(null, false, amount, "invalid_amount");
+            }
+
+            String authorizationId = "auth_" + UUID.randomUUID();
+            authorizations.put(authorizationId, amount);
+            return new GatewayResponse(authorizationId, true, amount, null);
+        });
+    }
+
+    @Override
+    public CompletableFuture<GatewayResponse> capture(String idempotencyKey, String authorizationId, double amount) {
+        return reply(idempotencyKey, () -> {
+            Double authorized = authorizationId == null ? null : authorizations.get(authorizationId);
+            if (authorized == null) {
+                return new GatewayResponse(null, false, amount, "authorization_not_found");
+            }
+            if (amount > authorized + 0.005) {
+                return new GatewayResponse(null, false, amount, "amount_exceeds_authorization");
+            }
+
+            authorizations.remove(authorizationId);
+            return new GatewayResponse("cap_" + UUID.randomUUID(), true, amount, null);
+        });
+    }
+
+    @Override
+    public CompletableFuture<GatewayResponse> voidAuthorization(String idempotencyKey, String authorizationId) {
+        return reply(idempotencyKey, () -> {
+            Double authorized = authorizationId == null ? null : authorizations.remove(authorizationId);
+            if (authorized == null) {
+                return new GatewayResponse(null, false, 0, "authorization_not_found");
+            }
+            return new GatewayResponse("void_" + UUID.randomUUID(), true, authorized, null);
+        });
+    }
+
+    @Override
+    public String getName() {
+        return "local";
+    }
+
+    /**
+     * helper method which answers a request after the simulated latency; a simulated failure is not remembered,
+     * so the same key succeeds when it is retried
+     */
+    private CompletableFuture<GatewayResponse> reply(String idempotencyKey, Supplier<GatewayResponse> handler) {
+        if (idempotencyKey == null || idempotencyKey.isEmpty()) {
+            return CompletableFuture.failedFuture(new GatewayException("Idempotency key is required", false));
+        }
+
+        CompletableFuture<GatewayResponse> existing = replies.get(idempotencyKey);
+        if (existing != null) {
+            return existing;
+        }
+
+        CompletableFuture<GatewayResponse> response = new CompletableFuture<>();
+        Runnable answer = () -> {
+            if (failureRate > 0 && ThreadLocalRandom.current().nextDouble() < failureRate) {
+                response.completeExceptionally(new GatewayException("Simulated gateway failure", true));
+                return;
+            }
+            CompletableFuture<GatewayResponse> first = replies.putIfAbsent(idempotencyKey, response);
+            if (first != null) {
+                first.whenComplete((reply, failure) -> response.complete(reply));
+                return;
+            }
+            response.complete(handler.get());
+        };
+
+        if (latencyMillis > 0) {
+            CompletableFuture.delayedExecutor(latencyMillis, TimeUnit.MILLISECONDS).execute(answer);
+        } else {
+            answer.run();
+        }
+        return response;
+    }
+}
@@ -76,16 +76,7 @@ public class LocationDistanceCalculatorService {
         validateLocations(from, to);
 
         try {
-            double km = calculateDistanceUsingLocation(from, to);
-            double miles = distanceCalculatorService.kmToMiles(km);
-
-            System.out.println("=== Distance Report ===");
-            System.out.println("From: " + from);
-            System.out.println("To: " + to);
-            System.out.printf("Distance: %.2f km (%.2f miles)%n", km, miles);
-            System.out.println("=======================");
-
-            return miles;
+            return printDistanceReport(from, to, calculateDistanceUsingLocation(from, to));
 
         } catch (Exception e) {
             if (e instanceof InvalidLocationException || e instanceof DistanceCalculationException) {
@@ -95,6 +86,25 @@ public class LocationDistanceCalculatorService {
         }
     }
 
+    /**
+     * print a distance report for a distance that has already been calculated between validated locations
+     * @param from Location 1 (initial location)
+     * @param to Location 2 (destination location)
+     * @param km Distance between Location 1 and Location 2 in kilometers
+     * @return Distance between Location 1 and Location 2 in miles
+     */
+    public double printDistanceReport(Location from, Location to, double km) {
+        double miles = distanceCalculatorService.kmToMiles(km);
+
+        System.out.println("=== Distance Report ===");
+        System.out.println("From: " + from);
+        System.out.println("To: " + to);
+        System.out.printf("Distance: %.2f km (%.2f miles)%n", km, miles);
+        System.out.println("=======================");
+
+        return miles;
+    }
+
     /**
      * Helper method to validate that Location objects are not null
      * @param loc1 Location 1
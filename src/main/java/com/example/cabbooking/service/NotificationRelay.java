@@ -0,0 +1,158 @@
+package com.example.cabbooking.service;
+
+import com.example.cabbooking.model.OutboxMessage;
+import com.example.cabbooking.repository.OutboxRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * moves notifications from the outbox to the notifier in the background.
+ * Each pass reads a batch of due messages, delivers them and marks the delivered ones sent in one batch update.
+ * A message is only marked sent after it was delivered, so a crash in between delivers it again (at least once);
+ * notifiers recognise repeats by the event id. Failed deliveries are retried with jittered exponential backoff
+ * until maxAttempts, and messages the notifier says will never go through are given up on straight away.
+ */
+@Service
+public class NotificationRelay {
+
+    private static final int PURGE_CHUNK = 1000;
+
+    private final OutboxRepository outboxRepository;
+    private final Notifier notifier;
+    private final int batchSize;
+    private final int maxAttempts;
+    private final long retryBaseMillis;
+    private final long retryMaxMillis;
+    private final Duration retention;
+    private final AtomicBoolean relaying = new AtomicBoolean();
+
+    private final AtomicLong sent = new AtomicLong();
+    private final AtomicLong failed = new AtomicLong();
+    private final AtomicLong abandoned = new AtomicLong();
+
+    @Autowired
+    public NotificationRelay(OutboxRepository outboxRepository,
+                             Notifier notifier,
+                             @Value("${notification.relay.batch-size:100}") int batchSize,
+                             @Value("${notification.relay.max-attempts:8}") int maxAttempts,
+                             @Value("${notification.relay.retry-base-ms:1000}") long retryBaseMillis,
+                             @Value("${notification.relay.retry-max-ms:600000}") long retryMaxMillis,
+                             @Value("${notification.outbox.retention-hours:72}") long retentionHours) {
+        if (batchSize <= 0 || maxAttempts < 1 || retryBaseMillis < 0 || retryMaxMillis < retryBaseMillis || retentionHours < 0) {
+            throw new IllegalArgumentException("Notification relay batch size and attempts must be positive, "
+                    + "the retry cap no smaller than the base delay and the retention not negative");
+        }
+
+        this.outboxRepository = outboxRepository;
+        this.notifier = notifier;
+        this.batchSize = batchSize;
+        this.maxAttempts = maxAttempts;
+        this.retryBaseMillis = retryBaseMillis;
+        this.retryMaxMillis = retryMaxMillis;
+        this.retention = Duration.ofHours(retentionHours);
+    }
+
+    /**
+     * delivers everything that is due, a batch at a time
+     */
+    @Scheduled(fixedDelayString = "${notification.relay.poll-ms:500}")
+    public void relay() {
+        if (!relaying.compareAndSet(false, true)) {
+            return;
+        }
+        try {
+            int delivered;
+            do {
+                delivered = relayBatch();
+            } while (delivered == batchSize);
+        } finally {
+            relaying.set(false);
+        }
+    }
+
+    /**
+     * delivers one batch of due messages
+     * @return number of messages read from the outbox
+     */
+    int relayBatch() {
+        List<OutboxMessage> due = outboxRepository.findDue(Instant.now(), maxAttempts, batchSize);
+        if (due.isEmpty()) {
+            return 0;
+        }
+
+        List<Long> delivered = new ArrayList<>(due.size());
+        for (OutboxMessage message : due) {
+            try {
+                notifier.send(message);
+                delivered.add(message.getId());
+            } catch (Notifier.NotificationException e) {
+                recordFailure(message, e.getMessage(), e.isRetryable());
+            } catch (RuntimeException e) {
+                recordFailure(message, e.getMessage(), true);
+            }
+        }
+
+        // if this fails the messages go out again on the next pass, which the notifier's dedupe absorbs
+        if (outboxRepository.markSent(delivered, Instant.now())) {
+            sent.addAndGet(delivered.size());
+        }
+        return due.size();
+    }
+
+    /**
+     * deletes messages that were sent longer ago than the retention period
+     */
+    @Scheduled(fixedDelayString = "${notification.outbox.purge-ms:3600000}")
+    public void purge() {
+        Instant cutoff = Instant.now().minus(retention);
+        int deleted;
+        int total = 0;
+        do {
+            deleted = outboxRepository.deleteSentBefore(cutoff, PURGE_CHUNK);
+            total += deleted;
+        } while (deleted == PURGE_CHUNK);
+
+        if (total > 0) {
+            System.out.println("✓ Purged " + total + " sent notifications");
+        }
+    }
+
+    /**
+     * relay counters
+     * @return map of metric names to values
+     */
+    public Map<String, Object> getMetrics() {
+        Map<String, Object> metrics = new HashMap<>();
+        metrics.put("notifier", notifier.getName());
+        metrics.put("sent", sent.get());
+        metrics.put("failedAttempts", failed.get());
+        metrics.put("abandoned", abandoned.get());
+        return metrics;
+    }
+
+    private void recordFailure(OutboxMessage message, String error, boolean retryable) {
+        failed.incrementAndGet();
+        int attempts = retryable ? message.getAttempts() + 1 : maxAttempts;
+        if (attempts >= maxAttempts) {
+            abandoned.incrementAndGet();
+            System.out.println("✗ Notification " + message.getEventId() + " to " + message.getRecipient()
+                    + " given up after " + (message.getAttempts() + 1) + " attempts: " + error);
+        }
+
+        long cap = Math.min(retryMaxMillis, retryBaseMillis << Math.min(attempts - 1, 20));
+        long delay = ThreadLocalRandom.current().nextLong(cap + 1);
+        outboxRepository.markFailed(message.getId(), attempts, Instant.now().plusMillis(delay), error);
+    }
+}
@@ -0,0 +1,109 @@
+package com.example.cabbooking.service;
+
+import com.example.cabbooking.model.Booking;
+import com.example.cabbooking.model.Client;
+import com.example.cabbooking.model.FareQuote;
+import com.example.cabbooking.model.OutboxMessage;
+import com.example.cabbooking.repository.OutboxRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.util.UUID;
+
+/**
+ * writes the notifications clients get about their bookings and payments.
+ * Nothing is sent from here: messages go into the outbox, either with the booking they are about (see
+ * BookingWriteBehindService) or on their own through enqueue(), and the NotificationRelay delivers them later,
+ * so a slow mail server never holds up a request.
+ */
+@Service
+public class NotificationService {
+
+    public static final String BOOKING_CONFIRMED = "BOOKING_CONFIRMED";
+    public static final String PAYMENT_REQUESTED = "PAYMENT_REQUESTED";
+    public static final String PAYMENT_RECEIVED = "PAYMENT_RECEIVED";
+
+    private final OutboxRepository outboxRepository;
+
+    /**
+     * @param outboxRepository outbox messages are saved to, null to only print them
+     */
+    @Autowired
+    public NotificationService(OutboxRepository outboxRepository) {
+        this.outboxRepository = outboxRepository;
+    }
+
+    /**
+     * @param client client who booked
+     * @param booking the new booking
+     * @return message telling the client the booking was made, null if the client has no email address
+     */
+    public OutboxMessage bookingConfirmed(Client client, Booking booking) {
+        if (client.getEmail() == null || client.getEmail().isBlank()) {
+            return null;
+        }
+        String body = "Hi " + client.getName() + ",\n\n"
+                + "your cab from " + booking.getFrom().getLocationName() + " to " + booking.getTo().getLocationName()
+                + " is booked.\n"
+                + "Fare: $" + String.format("%.2f", booking.getFare()) + "\n"
+                + "Booking reference: " + booking.getId() + "\n";
+        return new OutboxMessage(BOOKING_CONFIRMED + ":" + booking.getId(), BOOKING_CONFIRMED, client.getEmail(),
+                "Your cab is booked", body, Instant.now());
+    }
+
+    /**
+     * @param client client who is to pay
+     * @param quote signed fare quote the client is asked to pay
+     * @return message asking the client to pay, one per quote
+     */
+    public OutboxMessage paymentRequested(Client client, FareQuote quote) {
+        String quoteId = UUID.nameUUIDFromBytes(quote.getToken().getBytes(StandardCharsets.UTF_8)).toString();
+        String body = "Hi " + client.getName() + ",\n\n"
+                + "please pay $" + String.format("%.2f", quote.getAmount()) + " to finish booking your cab.\n"
+                + "This fare is held until " + Instant.ofEpochMilli(quote.getExpiresAt()) + ".\n";
+        return new OutboxMessage(PAYMENT_REQUESTED + ":" + quoteId, PAYMENT_REQUESTED, client.getEmail(),
+                "Please pay for your cab", body, Instant.now());
+    }
+
+    /**
+     * @param client client who paid
+     * @param paymentId id of the payment
+     * @param amount dollar amount charged
+     * @param maskedCard masked number of the card that was charged
+     * @return receipt for the payment, one per payment id
+     */
+    public OutboxMessage paymentReceived(Client client, String paymentId, double amount, String maskedCard) {
+        String body = "Hi " + client.getName() + ",\n\n"
+                + "we received your payment of $" + String.format("%.2f", amount) + " from the card ending in " + maskedCard + ".\n"
+                + "Payment reference: " + paymentId + "\n";
+        return new OutboxMessage(PAYMENT_RECEIVED + ":" + paymentId, PAYMENT_RECEIVED, client.getEmail(),
+                "Payment received", body, Instant.now());
+    }
+
+    /**
+     * queues a message on its own, for events that have no database write of their own to share a transaction with
+     * @param message message to be delivered
+     * @return true if the message was queued, false if it could not be
+     */
+    public boolean enqueue(OutboxMessage message) {
+        if (outboxRepository == null) {
+            System.out.println("Notification to " + message.getRecipient() + ": " + message.getSubject());
+            return true;
+        }
+
+        if (!outboxRepository.save(message)) {
+            System.out.println("✗ Notification " + message.getEventId() + " to " + message.getRecipient() + " could not be queued");
+            return false;
+        }
+        return true;
+    }
+
+    /**
+     * @return true if messages are stored in the outbox, false if they are only printed
+     */
+    public boolean hasOutbox() {
+        return outboxRepository != null;
+    }
+}
@@ -0,0 +1,35 @@
+package com.example.cabbooking.service;
+
+import com.example.cabbooking.model.OutboxMessage;
+
+/**
+ * delivers notifications taken from the outbox.
+ * The relay may hand over a message it already delivered (it crashed before marking it sent), so notifiers
+ * pass the message's event id on, or skip messages they know they have delivered.
+ */
+public interface Notifier {
+
+    class NotificationException extends RuntimeException {
+        private final boolean retryable;
+
+        public NotificationException(String message, boolean retryable) {
+            super(message);
+            this.retryable = retryable;
+        }
+
+        /**
+         * @return true if the same message may be delivered later, e.g. the mail server was unreachable
+         */
+        public boolean isRetryable() {
+            return retryable;
+        }
+    }
+
+    /**
+     * @param message message to deliver
+     * @throws NotificationException if the message was not delivered
+     */
+    void send(OutboxMessage message);
+
+    String getName();
+}
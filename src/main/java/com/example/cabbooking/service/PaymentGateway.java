@@ -0,0 +1,57 @@
+package com.example.cabbooking.service;
+
+import com.example.cabbooking.model.GatewayResponse;
+
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * card payment provider.
+ * Every call returns straight away and completes its future when the provider answers. A declined card completes
+ * normally with an unapproved response; a failure to reach the provider completes exceptionally with a
+ * GatewayException. Requests carry an idempotency key, sending the same key again must not charge the card twice,
+ * which is what makes them safe to retry.
+ */
+public interface PaymentGateway {
+
+    class GatewayException extends RuntimeException {
+        private final boolean retryable;
+
+        public GatewayException(String message, boolean retryable) {
+            super(message);
+            this.retryable = retryable;
+        }
+
+        /**
+         * @return true if the provider may accept the same request later, e.g. a timeout or a 5xx
+         */
+        public boolean isRetryable() {
+            return retryable;
+        }
+    }
+
+    /**
+     * reserves an amount on a card
+     * @param idempotencyKey key identifying this authorization across retries
+     * @param cardNumber card to charge
+     * @param amount dollar amount to reserve
+     * @return response whose transaction id is passed to capture() or voidAuthorization()
+     */
+    CompletableFuture<GatewayResponse> authorize(String idempotencyKey, String cardNumber, double amount);
+
+    /**
+     * takes the money reserved by an authorization
+     * @param idempotencyKey key identifying this capture across retries
+     * @param authorizationId transaction id of the approved authorization
+     * @param amount dollar amount to capture, at most the amount authorized
+     */
+    CompletableFuture<GatewayResponse> capture(String idempotencyKey, String authorizationId, double amount);
+
+    /**
+     * releases an authorization that will not be captured
+     * @param idempotencyKey key identifying this void across retries
+     * @param authorizationId transaction id of the approved authorization
+     */
+    CompletableFuture<GatewayResponse> voidAuthorization(String idempotencyKey, String authorizationId);
+
+    String getName();
+}
@@ -0,0 +1,277 @@
+package com.example.cabbooking.service;
+
+import com.example.cabbooking.model.GatewayResponse;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+/**
+ * wraps the configured PaymentGateway so a slow or failing provider cannot take the booking flow down with it.
+ * Each call gets a bulkhead permit (refused straight away when too many calls are already waiting on the
+ * provider), a timeout, retries with jittered exponential backoff for failures the provider says are temporary,
+ * and goes through a circuit breaker that stops calling a provider which keeps failing.
+ * Nothing here blocks a thread while the provider is working; only charge() waits, and at most for
+ * maxAttempts timeouts plus the backoff between them.
+ */
+@Service
+public class PaymentGatewayClient {
+
+    static final String AUTHORIZE = "authorize";
+    static final String CAPTURE = "capture";
+    static final String VOID = "void";
+
+    private final PaymentGateway gateway;
+    private final long timeoutMillis;
+    private final int maxAttempts;
+    private final long retryBaseMillis;
+    private final long retryMaxMillis;
+    private final int maxConcurrentCalls;
+    private final Semaphore bulkhead;
+    private final CircuitBreaker circuitBreaker;
+
+    private final Map<String, LatencyHistogram> latencies = new HashMap<>();
+    private final AtomicLong calls = new AtomicLong();
+    private final AtomicLong retries = new AtomicLong();
+    private final AtomicLong timeouts = new AtomicLong();
+    private final AtomicLong failures = new AtomicLong();
+    private final AtomicLong bulkheadRejections = new AtomicLong();
+    private final AtomicLong circuitRejections = new AtomicLong();
+
+    public static class GatewayUnavailableException extends RuntimeException {
+        public GatewayUnavailableException(String message) {
+            super(message);
+        }
+    }
+
+    public PaymentGatewayClient(PaymentGateway gateway) {
+        this(gateway, 2000, 3, 100, 1000, 32, 20, 0.5, 10, 30000, 3);
+    }
+
+    @Autowired
+    public PaymentGatewayClient(PaymentGateway gateway,
+                                @Value("${payment.gateway.timeout-ms:2000}") long timeoutMillis,
+                                @Value("${payment.gateway.max-attempts:3}") int maxAttempts,
+                                @Value("${payment.gateway.retry-base-ms:100}") long retryBaseMillis,
+                                @Value("${payment.gateway.retry-max-ms:1000}") long retryMaxMillis,
+                                @Value("${payment.gateway.max-concurrent-calls:32}") int maxConcurrentCalls,
+                                @Value("${payment.gateway.breaker.window-size:20}") int breakerWindowSize,
+                                @Value("${payment.gateway.breaker.failure-rate:0.5}") double breakerFailureRate,
+                                @Value("${payment.gateway.breaker.minimum-calls:10}") int breakerMinimumCalls,
+                                @Value("${payment.gateway.breaker.open-ms:30000}") long breakerOpenMillis,
+                                @Value("${payment.gateway.breaker.half-open-calls:3}") int breakerHalfOpenCalls) {
+        this(gateway, timeoutMillis, maxAttempts, retryBaseMillis, retryMaxMillis, maxConcurrentCalls,
+                new CircuitBreaker(breakerWindowSize, breakerFailureRate, breakerMinimumCalls, breakerOpenMillis, breakerHalfOpenCalls));
+    }
+
+    PaymentGatewayClient(PaymentGateway gateway, long timeoutMillis, int maxAttempts, long retryBaseMillis,
+                         long retryMaxMillis, int maxConcurrentCalls, CircuitBreaker circuitBreaker) {
+        if (timeoutMillis <= 0 || maxAttempts < 1 || retryBaseMillis < 0 || retryMaxMillis < retryBaseMillis || maxConcurrentCalls < 1) {
+            throw new IllegalArgumentException("Payment gateway timeout, attempts and concurrent calls must be positive "
+                    + "and the retry cap no smaller than the base delay");
+        }
+
+        this.gateway = gateway;
+        this.timeoutMillis = timeoutMillis;
+        this.maxAttempts = maxAttempts;
+        this.retryBaseMillis = retryBaseMillis;
+        this.retryMaxMillis = retryMaxMillis;
+        this.maxConcurrentCalls = maxConcurrentCalls;
+        this.bulkhead = new Semaphore(maxConcurrentCalls);
+        this.circuitBreaker = circuitBreaker;
+        for (String operation : new String[] {AUTHORIZE, CAPTURE, VOID}) {
+            latencies.put(operation, new LatencyHistogram());
+        }
+        System.out.println("✓ Payment gateway '" + gateway.getName() + "' ready (timeout " + timeoutMillis + " ms, "
+                + maxAttempts + " attempts, " + maxConcurrentCalls + " concurrent calls)");
+    }
+
+    /**
+     * @param paymentId id of the payment, the same id always refers to the same authorization at the provider
+     * @param cardNumber card to charge
+     * @param amount dollar amount to reserve
+     * @return future of the provider's answer, failed with GatewayUnavailableException if it could not be reached
+     */
+    public CompletableFuture<GatewayResponse> authorize(String paymentId, String cardNumber, double amount) {
+        return call(AUTHORIZE, () -> gateway.authorize(paymentId + ":" + AUTHORIZE, cardNumber, amount));
+    }
+
+    public CompletableFuture<GatewayResponse> capture(String paymentId, String authorizationId, double amount) {
+        return call(CAPTURE, () -> gateway.capture(paymentId + ":" + CAPTURE, authorizationId, amount));
+    }
+
+    public CompletableFuture<GatewayResponse> voidAuthorization(String paymentId, String authorizationId) {
+        return call(VOID, () -> gateway.voidAuthorization(paymentId + ":" + VOID, authorizationId));
+    }
+
+    /**
+     * authorizes and captures an amount, waiting for the result; an authorization whose capture fails is voided
+     * so the client's card is not left with money on hold
+     * @param paymentId id of the payment, charging the same id twice charges the card once
+     * @param cardNumber card to charge
+     * @param amount dollar amount to charge
+     * @return the capture, or the unapproved response if the card was declined
+     */
+    public GatewayResponse charge(String paymentId, String cardNumber, double amount) {
+        GatewayResponse authorization = await(authorize(paymentId, cardNumber, amount));
+        if (!authorization.isApproved()) {
+            return authorization;
+        }
+
+        try {
+            GatewayResponse capture = await(capture(paymentId, authorization.getTransactionId(), amount));
+            if (!capture.isApproved()) {
+                voidQuietly(paymentId, authorization.getTransactionId());
+            }
+            return capture;
+        } catch (RuntimeException e) {
+            voidQuietly(paymentId, authorization.getTransactionId());
+            throw e;
+        }
+    }
+
+    /**
+     * gateway call counters and per-operation latency percentiles
+     * @return map of metric names to values
+     */
+    public Map<String, Object> getMetrics() {
+        Map<String, Object> metrics = new HashMap<>();
+        metrics.put("gateway", gateway.getName());
+        metrics.put("calls", calls.get());
+        metrics.put("retries", retries.get());
+        metrics.put("timeouts", timeouts.get());
+        metrics.put("failures", failures.get());
+        metrics.put("bulkheadRejections", bulkheadRejections.get());
+        metrics.put("circuitRejections", circuitRejections.get());
+        metrics.put("inFlight", maxConcurrentCalls - bulkhead.availablePermits());
+        metrics.put("circuitState", circuitBreaker.getState().name());
+        metrics.put("circuitFailureRate", circuitBreaker.getFailureRate());
+        metrics.put("circuitTimesOpened", circuitBreaker.getTimesOpened());
+
+        Map<String, Object> latency = new HashMap<>();
+        for (Map.Entry<String, LatencyHistogram> entry : latencies.entrySet()) {
+            latency.put(entry.getKey(), entry.getValue().snapshot());
+        }
+        metrics.put("latency", latency);
+        return metrics;
+    }
+
+    //================Helpers================
+
+    private CompletableFuture<GatewayResponse> call(String operation, Supplier<CompletableFuture<GatewayResponse>> request) {
+        CompletableFuture<GatewayResponse> result = new CompletableFuture<>();
+        attempt(operation, request, 1, result);
+        return result;
+    }
+
+    /**
+     * helper method which makes one attempt at a gateway call and, if it fails with something worth retrying,
+     * schedules the next attempt after a random delay of up to base * 2^(attempt - 1), capped at the max delay
+     */
+    private void attempt(String operation, Supplier<CompletableFuture<GatewayResponse>> request, int attempt,
+                         CompletableFuture<GatewayResponse> result) {
+        if (!bulkhead.tryAcquire()) {
+            bulkheadRejections.incrementAndGet();
+            result.completeExceptionally(new GatewayUnavailableException("Payment gateway is busy, "
+                    + maxConcurrentCalls + " calls already in flight"));
+            return;
+        }
+        if (!circuitBreaker.tryAcquire()) {
+            bulkhead.release();
+            circuitRejections.incrementAndGet();
+            result.completeExceptionally(new GatewayUnavailableException("Payment gateway circuit is open, "
+                    + operation + " not attempted"));
+            return;
+        }
+
+        calls.incrementAndGet();
+        long start = System.nanoTime();
+        CompletableFuture<GatewayResponse> response;
+        try {
+            // a copy, so the timeout below completes our view of the call and not the gateway's own future
+            response = request.get().copy();
+        } catch (RuntimeException e) {
+            response = CompletableFuture.failedFuture(e);
+        }
+
+        response.orTimeout(timeoutMillis, TimeUnit.MILLISECONDS).whenComplete((reply, failure) -> {
+            bulkhead.release();
+            latencies.get(operation).record(System.nanoTime() - start);
+
+            if (failure == null) {
+                circuitBreaker.onSuccess();
+                result.complete(reply);
+                return;
+            }
+
+            Throwable cause = unwrap(failure);
+            if (cause instanceof PaymentGateway.GatewayException && !((PaymentGateway.GatewayException) cause).isRetryable()) {
+                // the provider answered, it just refused the request, which says nothing about its health
+                circuitBreaker.onSuccess();
+                result.completeExceptionally(cause);
+                return;
+            }
+
+            circuitBreaker.onFailure();
+            if (cause instanceof TimeoutException) {
+                timeouts.incrementAndGet();
+            }
+
+            if (attempt < maxAttempts) {
+                retries.incrementAndGet();
+                long cap = Math.min(retryMaxMillis, retryBaseMillis << Math.min(attempt - 1, 20));
+                long delay = ThreadLocalRandom.current().nextLong(cap + 1);
+                CompletableFuture.delayedExecutor(delay, TimeUnit.MILLISECONDS)
+                        .execute(() -> attempt(operation, request, attempt + 1, result));
+                return;
+            }
+
+            failures.incrementAndGet();
+            String reason = cause instanceof TimeoutException ? "timed out after " + timeoutMillis + " ms" : cause.getMessage();
+            System.out.println("✗ Payment gateway " + operation + " failed after " + attempt + " attempts: " + reason);
+            result.completeExceptionally(new GatewayUnavailableException("Payment gateway " + operation
+                    + " failed after " + attempt + " attempts: " + reason));
+        });
+    }
+
+    private void voidQuietly(String paymentId, String authorizationId) {
+        voidAuthorization(paymentId, authorizationId).whenComplete((reply, failure) -> {
+            if (failure != null || !reply.isApproved()) {
+                System.out.println("✗ Authorization " + authorizationId + " could not be voided, it will expire at the provider");
+            }
+        });
+    }
+
+    private static GatewayResponse await(CompletableFuture<GatewayResponse> future) {
+        try {
+            return future.get();
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            throw new GatewayUnavailableException("Payment gateway call failed: " + cause);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new GatewayUnavailableException("Interrupted while waiting for the payment gateway");
+        }
+    }
+
+    private static Throwable unwrap(Throwable failure) {
+        while (failure instanceof CompletionException && failure.getCause() != null) {
+            failure = failure.getCause();
+        }
+        return failure;
+    }
+}
@@ -1,15 +1,26 @@
 package com.example.cabbooking.service;
 
+import com.example.cabbooking.model.BookingContext;
 import com.example.cabbooking.model.Client;
+import com.example.cabbooking.model.FareQuote;
+import com.example.cabbooking.model.GatewayResponse;
 import com.example.cabbooking.model.Route;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 
+import java.nio.charset.StandardCharsets;
+import java.util.UUID;
+
 @Service
 public class PaymentService {
 
     private final CalculateFareService calculateFareService;
     private final BookingService bookingService;
+    private final FareQuoteService fareQuoteService;
+    private final PaymentGatewayClient paymentGatewayClient;
+    private final CardVault cardVault;
+    private final LedgerService ledgerService;
+    private final NotificationService notificationService;
 
     // Custom exceptions for payment-related problems
     public static class InvalidPaymentException extends RuntimeException {
@@ -32,31 +43,52 @@ public class PaymentService {
 
     @Autowired
     PaymentService(CalculateFareService calculateFareService,
-                   BookingService bookingService) {
+                   BookingService bookingService,
+                   FareQuoteService fareQuoteService,
+                   PaymentGatewayClient paymentGatewayClient,
+                   CardVault cardVault,
+                   LedgerService ledgerService,
+                   NotificationService notificationService) {
         this.calculateFareService = calculateFareService;
         this.bookingService = bookingService;
+        this.fareQuoteService = fareQuoteService;
+        this.paymentGatewayClient = paymentGatewayClient;
+        this.cardVault = cardVault;
+        this.ledgerService = ledgerService;
+        this.notificationService = notificationService;
     }
 
     /**
      * requests a payment from the client calculated based on the route parameter
      * @param client client who is paying the cab fare
      * @param route the distance of this route will be used to calculate the fare
+     * @return signed quote of the requested fare, to be passed back when confirming the payment
      */
-    public void requestPayment(Client client, Route route) {
+    public FareQuote requestPayment(Client client, Route route) {
         // ✅ Validate inputs
         validatePaymentInputs(client, route);
 
         try {
-            double fare = calculateFareService.calculateFare(route);
+            return sendPaymentRequest(client, route, calculateFareService.calculateFare(route));
 
-            // Validate calculated fare
-            if (fare <= 0) {
-                throw new PaymentProcessException("Invalid fare calculated: " + fare);
+        } catch (CalculateFareService.FareCalculationException e) {
+            throw new PaymentProcessException("Cannot request payment due to fare calculation error: " + e.getMessage());
+        } catch (Exception e) {
+            if (e instanceof InvalidPaymentException || e instanceof PaymentProcessException) {
+                throw e;
             }
+            throw new PaymentProcessException("Failed to request payment: " + e.getMessage());
+        }
+    }
 
-            System.out.println(client.getName() + ", please pay $" + String.format("%.2f", fare) +
-                    " to finish booking your cab");
-            System.out.println("Payment request sent to " + client.getEmail());
+    /**
+     * requests a payment for a booking context, whose client and route were validated when it was created
+     * @param context booking context from BookingService.createContext()
+     * @return signed quote of the requested fare, to be passed back when confirming the payment
+     */
+    public FareQuote requestPayment(BookingContext context) {
+        try {
+            return sendPaymentRequest(context.getClient(), context.getRoute(), calculateFareService.calculateFareFor(context));
 
         } catch (CalculateFareService.FareCalculationException e) {
             throw new PaymentProcessException("Cannot request payment due to fare calculation error: " + e.getMessage());
@@ -68,6 +100,29 @@ public class PaymentService {
         }
     }
 
+    /**
+     * helper method which signs the fare and asks the client to pay it
+     * @param client client who is paying the cab fare
+     * @param route route the fare was calculated for
+     * @param fare calculated fare
+     * @return signed quote of the requested fare
+     */
+    private FareQuote sendPaymentRequest(Client client, Route route, double fare) {
+        // Validate calculated fare
+        if (fare <= 0) {
+            throw new PaymentProcessException("Invalid fare calculated: " + fare);
+        }
+
+        FareQuote quote = fareQuoteService.issueQuote(route, fare);
+
+        System.out.println(client.getName() + ", please pay $" + String.format("%.2f", quote.getAmount()) +
+                " to finish booking your cab");
+        if (notificationService.enqueue(notificationService.paymentRequested(client, quote))) {
+            System.out.println("Payment request sent to " + client.getEmail());
+        }
+        return quote;
+    }
+
     /**
      * confirming that the fare was successfully paid or if there were errors
      * @param client client who is paying the cab fare
@@ -92,10 +147,12 @@ public class PaymentService {
                         String.format("%.2f", expectedFare) + ", Received: $" + String.format("%.2f", paymentAmount));
             }
 
-            // Process successful payment
+            // Take the payment
+            GatewayResponse capture = chargeCard(UUID.randomUUID().toString(), client, expectedFare);
             System.out.println("✓ Payment from " + client.getName() + " confirmed");
             System.out.println("✓ $" + String.format("%.2f", expectedFare) +
-                    " charged to card ending in " + getMaskedCardNumber(client.getCredit_card()));
+                    " charged to card ending in " + getMaskedCardNumber(client.getCredit_card()) +
+                    " (" + capture.getTransactionId() + ")");
 
             // Finish the booking
             bookingService.finishBookingCab(client, route);
@@ -114,6 +171,151 @@ public class PaymentService {
         }
     }
 
+    /**
+     * confirming a payment against a signed fare quote, so the route is not re-priced and
+     * the client is charged exactly the fare they were shown
+     * @param client client who is paying the cab fare
+     * @param route the route the quote was issued for
+     * @param quoteToken signed token from the FareQuote returned by requestPayment()
+     * @param creditCardNumber confirmation that the credit card used to pay the fare matches the credit card
+     *                         the client has on file
+     */
+    public void paymentConfirmation(Client client, Route route, String quoteToken, String creditCardNumber) {
+        // Validate inputs
+        validatePaymentInputs(client, route);
+
+        if (creditCardNumber == null || creditCardNumber.trim().isEmpty()) {
+            throw new CreditCardException("Credit card number cannot be null or empty");
+        }
+
+        FareQuote quote = null;
+        boolean paid = false;
+        try {
+            quote = fareQuoteService.redeemQuote(quoteToken, route);
+            payQuote(client, quote, quoteToken, creditCardNumber);
+
+            // Finish the booking
+            bookingService.finishBookingCab(client, route);
+            paid = true;
+
+            System.out.println("✓ Payment processing completed successfully");
+
+        } catch (FareQuoteService.InvalidQuoteException e) {
+            throw new InvalidPaymentException("Fare quote rejected: " + e.getMessage());
+        } catch (BookingService.BookingProcessException e) {
+            throw new PaymentProcessException("Payment processed but booking completion failed: " + e.getMessage());
+        } catch (Exception e) {
+            if (e instanceof InvalidPaymentException || e instanceof PaymentProcessException || e instanceof CreditCardException) {
+                throw e;
+            }
+            throw new PaymentProcessException("Failed to confirm payment: " + e.getMessage());
+        } finally {
+            releaseUnpaidQuote(quote, paid, quoteToken);
+        }
+    }
+
+    /**
+     * confirming a payment against a signed fare quote for a booking context, whose client and route were
+     * validated when it was created
+     * @param context booking context from BookingService.createContext()
+     * @param quoteToken signed token from the FareQuote returned by requestPayment()
+     * @param creditCardNumber credit card used to pay, must match the card the client has on file
+     */
+    public void paymentConfirmation(BookingContext context, String quoteToken, String creditCardNumber) {
+        if (creditCardNumber == null || creditCardNumber.trim().isEmpty()) {
+            throw new CreditCardException("Credit card number cannot be null or empty");
+        }
+
+        FareQuote quote = null;
+        boolean paid = false;
+        try {
+            quote = fareQuoteService.redeemQuote(quoteToken, context.getRoute());
+            payQuote(context.getClient(), quote, quoteToken, creditCardNumber);
+
+            // Finish the booking
+            bookingService.finishBookingCab(context);
+            paid = true;
+
+            System.out.println("✓ Payment processing completed successfully");
+
+        } catch (FareQuoteService.InvalidQuoteException e) {
+            throw new InvalidPaymentException("Fare quote rejected: " + e.getMessage());
+        } catch (BookingService.BookingProcessException e) {
+            throw new PaymentProcessException("Payment processed but booking completion failed: " + e.getMessage());
+        } catch (Exception e) {
+            if (e instanceof InvalidPaymentException || e instanceof PaymentProcessException || e instanceof CreditCardException) {
+                throw e;
+            }
+            throw new PaymentProcessException("Failed to confirm payment: " + e.getMessage());
+        } finally {
+            releaseUnpaidQuote(quote, paid, quoteToken);
+        }
+    }
+
+    /**
+     * helper method which checks the card, then charges the fare of a redeemed quote
+     * @param client client who is paying the cab fare
+     * @param quote fare quote redeemed for this payment
+     * @param quoteToken signed token of the quote
+     * @param creditCardNumber credit card used to pay, must match the card the client has on file
+     */
+    private void payQuote(Client client, FareQuote quote, String quoteToken, String creditCardNumber) {
+        // Validate credit card
+        validateCreditCard(creditCardNumber, client.getCredit_card());
+
+        // Take the payment, keyed by the quote so confirming the same quote twice charges the card once
+        String paymentId = UUID.nameUUIDFromBytes(quoteToken.getBytes(StandardCharsets.UTF_8)).toString();
+        GatewayResponse capture = chargeCard(paymentId, client, quote.getAmount());
+        System.out.println("✓ Payment from " + client.getName() + " confirmed");
+        System.out.println("✓ $" + String.format("%.2f", quote.getAmount()) +
+                " charged to card ending in " + getMaskedCardNumber(client.getCredit_card()) +
+                " (" + capture.getTransactionId() + ")");
+    }
+
+    /**
+     * helper method which hands a redeemed quote back when its confirmation failed, so the client can try again with it;
+     * the charge is keyed by the quote, so a retry after a charge that did go through does not charge twice
+     */
+    private void releaseUnpaidQuote(FareQuote quote, boolean paid, String quoteToken) {
+        if (quote != null && !paid) {
+            fareQuoteService.releaseQuote(quoteToken);
+        }
+    }
+
+    /**
+     * confirming a payment for a booking made with bookCab(), the booking is claimed before the card is charged
+     * so two confirmations cannot both pay for it, and moved to PAID once the signed quote and card have been accepted
+     * @param bookingId id of the Booking being paid for
+     * @param client client who is paying the cab fare
+     * @param route the route the quote was issued for
+     * @param quoteToken signed token from the FareQuote returned by requestPayment()
+     * @param creditCardNumber credit card used to pay, must match the card the client has on file
+     */
+    public void paymentConfirmation(String bookingId, Client client, Route route, String quoteToken, String creditCardNumber) {
+        try {
+            bookingService.claimPayment(bookingId);
+        } catch (BookingLifecycleService.BookingNotFoundException e) {
+            throw new InvalidPaymentException("Cannot confirm payment: " + e.getMessage());
+        } catch (BookingLifecycleService.InvalidTransitionException e) {
+            throw new InvalidPaymentException(e.getMessage());
+        }
+
+        boolean paid = false;
+        try {
+            paymentConfirmation(client, route, quoteToken, creditCardNumber);
+            bookingService.completePayment(bookingId);
+            paid = true;
+
+        } catch (BookingLifecycleService.BookingNotFoundException | BookingLifecycleService.InvalidTransitionException e) {
+            throw new PaymentProcessException("Payment processed but booking status could not be updated: " + e.getMessage());
+        } finally {
+            // a failed charge leaves the booking unpaid for the client to try again
+            if (!paid) {
+                bookingService.releasePayment(bookingId);
+            }
+        }
+    }
+
     /**
      * helper method to validate payment inputs
      * @param client client paying the fare, whose information is to be validated
@@ -161,28 +363,60 @@ public class PaymentService {
     }
 
     /**
-     * helper method which removes any spaces or dashes from the credit card Strings for proper formating
-     * and then validates the credit card
+     * helper method which checks the provided card against the client's card on file, which is a vault token
+     * (or, for clients saved before the vault, the card number itself)
      * @param providedCard credit card provided to pay the cab fare which must match the client's card on file
-     * @param clientCard credit card the client has on file which must match the provided card
+     * @param clientCard vault token or card number the client has on file
      */
     private void validateCreditCard(String providedCard, String clientCard) {
         if (clientCard == null || clientCard.trim().isEmpty()) {
             throw new CreditCardException("Client does not have a credit card on file");
         }
 
-        // Remove any spaces or dashes for proper formating
-        String cleanProvidedCard = providedCard.replaceAll("[\\s-]", "");
-        String cleanClientCard = clientCard.replaceAll("[\\s-]", "");
+        try {
+            if (!cardVault.matches(providedCard, clientCard)) {
+                throw new CreditCardException("Credit card number does not match card on file");
+            }
+        } catch (CardVault.InvalidCardException e) {
+            throw new CreditCardException(e.getMessage());
+        }
+    }
+
+    /**
+     * helper method which authorizes and captures the fare through the payment gateway and records it in the ledger
+     * @param paymentId id of the payment, charging the same id twice charges the card once
+     * @param client client whose card on file is charged
+     * @param amount dollar amount to charge
+     * @return the gateway's capture
+     */
+    private GatewayResponse chargeCard(String paymentId, Client client, double amount) {
+        GatewayResponse response;
+        try {
+            response = paymentGatewayClient.charge(paymentId, cardVault.reveal(client.getCredit_card()), amount);
+        } catch (PaymentGatewayClient.GatewayUnavailableException | PaymentGateway.GatewayException
+                 | CardVault.CardVaultException e) {
+            throw new PaymentProcessException("Payment could not be taken: " + e.getMessage());
+        }
 
-        if (!cleanProvidedCard.equals(cleanClientCard)) {
-            throw new CreditCardException("Credit card number does not match card on file");
+        if (!response.isApproved()) {
+            throw new CreditCardException("Card ending in " + getMaskedCardNumber(client.getCredit_card()) +
+                    " was declined: " + response.getDeclineReason());
         }
 
-        // Credit card length validation
-        if (cleanClientCard.length() < 13 || cleanClientCard.length() > 19) {
-            throw new CreditCardException("Invalid credit card number format");
+        // the gateway and the ledger are both keyed by paymentId: confirming again after this fails records the fare
+        // without charging twice, and confirming again after it succeeded neither charges nor records it twice
+        try {
+            ledgerService.recordFarePayment(paymentId, client.getId(), amount);
+        } catch (LedgerService.LedgerException | LedgerService.InvalidPostingException e) {
+            throw new PaymentProcessException("Payment " + response.getTransactionId() +
+                    " was taken but could not be recorded: " + e.getMessage());
         }
+
+        // the ledger is not in the database, so the receipt is queued after it rather than with it; the event id is
+        // the paymentId, so a retried confirmation that gets this far again queues the same receipt, not a second one
+        notificationService.enqueue(notificationService.paymentReceived(client, paymentId, amount,
+                getMaskedCardNumber(client.getCredit_card())));
+        return response;
     }
 
     /**
@@ -191,16 +425,7 @@ public class PaymentService {
      * @return masked credit card number
      */
     private String getMaskedCardNumber(String cardNumber) {
-        if (cardNumber == null || cardNumber.length() < 4) {
-            return "****";
-        }
-
-        String cleanCard = cardNumber.replaceAll("[\\s-]", "");
-        if (cleanCard.length() < 4) {
-            return "****";
-        }
-
-        return "****" + cleanCard.substring(cleanCard.length() - 4);
+        return CardVault.mask(cardNumber);
     }
 
     /**
@@ -227,6 +452,30 @@ public class PaymentService {
         }
     }
 
+    /**
+     * Utility method to check if payment can be processed against a signed fare quote
+     * @param client client paying the fare
+     * @param route route the quote was issued for
+     * @param quoteToken signed token from the FareQuote returned by requestPayment()
+     * @return true if the quote is still valid and the client has a card on file, false if otherwise
+     */
+    public boolean canProcessPayment(Client client, Route route, String quoteToken) {
+        try {
+            validatePaymentInputs(client, route);
+
+            // Check if client has credit card
+            if (client.getCredit_card() == null || client.getCredit_card().trim().isEmpty()) {
+                return false;
+            }
+
+            fareQuoteService.verifyQuote(quoteToken, route);
+            return true;
+
+        } catch (Exception e) {
+            return false;
+        }
+    }
+
     /**
      * generates a payment summary for the client who booked the cab
      * @param client client who is paying the cab fare
@@ -247,4 +496,26 @@ public class PaymentService {
             throw new PaymentProcessException("Failed to generate payment summary: " + e.getMessage());
         }
     }
+
+    /**
+     * generates a payment summary from a signed fare quote instead of re-pricing the route
+     * @param client client who is paying the cab fare
+     * @param route route the quote was issued for
+     * @param quoteToken signed token from the FareQuote returned by requestPayment()
+     * @return generated payment summary
+     */
+    public String getPaymentSummary(Client client, Route route, String quoteToken) {
+        validatePaymentInputs(client, route);
+
+        try {
+            FareQuote quote = fareQuoteService.verifyQuote(quoteToken, route);
+            String maskedCard = getMaskedCardNumber(client.getCredit_card());
+
+            return String.format("Payment Summary for %s:%nFare: $%.2f%nCard: %s%nEmail: %s",
+                    client.getName(), quote.getAmount(), maskedCard, client.getEmail());
+
+        } catch (Exception e) {
+            throw new PaymentProcessException("Failed to generate payment summary: " + e.getMessage());
+        }
+    }
 }
\ No newline at end of file
@@ -0,0 +1,631 @@
+package com.example.cabbooking.service;
+
+import com.example.cabbooking.model.Location;
+import com.example.cabbooking.model.PoolAssignment;
+import com.example.cabbooking.model.PooledRide;
+import com.example.cabbooking.model.RideStop;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.locks.ReentrantLock;
+
+@Service
+public class PoolingService {
+
+    private static final double KM_PER_DEGREE = 111.32;
+    private static final int MAX_COMMIT_ATTEMPTS = 3;
+
+    private final double maxDetourRatio;
+    private final double maxDetourKm;
+    private final int seats;
+    private final int maxRiders;
+    private final double cellDegrees;
+
+    private final ConcurrentHashMap<String, Ride> rides = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<String, String> bookingRides = new ConcurrentHashMap<>();
+
+    // every open ride is listed in each cell within half the detour bound of its route, so a pickup only
+    // has to look at the rides in its own cell: anything further away would need a longer detour than allowed
+    private final ConcurrentHashMap<Long, Set<Ride>> grid = new ConcurrentHashMap<>();
+
+    private final AtomicLong requests = new AtomicLong();
+    private final AtomicLong pooledMatches = new AtomicLong();
+    private final AtomicLong newRides = new AtomicLong();
+    private final AtomicLong candidatesEvaluated = new AtomicLong();
+    private final AtomicLong totalMatchNanos = new AtomicLong();
+    private final AtomicLong maxMatchNanos = new AtomicLong();
+
+    public static class RideNotFoundException extends RuntimeException {
+        public RideNotFoundException(String message) {
+            super(message);
+        }
+    }
+
+    public static class InvalidPoolRequestException extends RuntimeException {
+        public InvalidPoolRequestException(String message) {
+            super(message);
+        }
+    }
+
+    @Autowired
+    public PoolingService(@Value("${pooling.max-detour-ratio:0.5}") double maxDetourRatio,
+                          @Value("${pooling.max-detour-km:4}") double maxDetourKm,
+                          @Value("${pooling.seats:3}") int seats,
+                          @Value("${pooling.max-riders:4}") int maxRiders,
+                          @Value("${pooling.grid.cell-degrees:0.02}") double cellDegrees) {
+        if (maxDetourRatio < 0 || maxDetourKm < 0 || seats <= 0 || maxRiders <= 0 || cellDegrees <= 0) {
+            throw new IllegalArgumentException("Pooling detour bounds cannot be negative, seats, riders and cell size must be positive");
+        }
+
+        this.maxDetourRatio = maxDetourRatio;
+        this.maxDetourKm = maxDetourKm;
+        this.seats = seats;
+        this.maxRiders = maxRiders;
+        this.cellDegrees = cellDegrees;
+    }
+
+    /**
+     * puts a booking into the open ride where it adds the fewest kilometers without pushing any rider
+     * past their detour bound, or starts a new ride if none can take it
+     * @param bookingId id of the booking
+     * @param pickup pickup location
+     * @param dropoff destination location
+     * @return the ride and where the booking's stops were inserted
+     */
+    public PoolAssignment requestRide(String bookingId, Location pickup, Location dropoff) {
+        validateRequest(bookingId, pickup, dropoff);
+        long start = System.nanoTime();
+        requests.incrementAndGet();
+
+        double directKm = DistanceCalculatorService.calculateDistance(pickup.getLatitude(), pickup.getLongitude(),
+                dropoff.getLatitude(), dropoff.getLongitude());
+        double budgetKm = riderBudget(directKm);
+
+        if (bookingRides.putIfAbsent(bookingId, "") != null) {
+            throw new InvalidPoolRequestException("Booking " + bookingId + " is already in a pooled ride");
+        }
+
+        try {
+            for (int attempt = 0; attempt < MAX_COMMIT_ATTEMPTS; attempt++) {
+                Insertion best = findBestInsertion(pickup, dropoff, directKm, budgetKm);
+                if (best == null) {
+                    break;
+                }
+
+                RidePlan updated = best.plan.insert(best.pickupPosition, best.dropoffPosition,
+                        new RideStop(bookingId, RideStop.StopType.PICKUP, pickup),
+                        new RideStop(bookingId, RideStop.StopType.DROPOFF, dropoff),
+                        new Rider(directKm, budgetKm, Double.NaN));
+
+                // another request changed the ride since it was evaluated, look again
+                if (best.ride.plan.compareAndSet(best.plan, updated)) {
+                    bookingRides.put(bookingId, best.ride.id);
+                    reindex(best.ride);
+                    pooledMatches.incrementAndGet();
+                    return new PoolAssignment(bookingId, best.ride.id, false, best.pickupPosition,
+                            best.dropoffPosition + 1, best.addedKm, best.riderKm, directKm);
+                }
+            }
+
+            Ride ride = new Ride(UUID.randomUUID().toString(), RidePlan.open(bookingId, pickup, dropoff,
+                    new Rider(directKm, budgetKm, Double.NaN)));
+            rides.put(ride.id, ride);
+            bookingRides.put(bookingId, ride.id);
+            reindex(ride);
+            newRides.incrementAndGet();
+            return new PoolAssignment(bookingId, ride.id, true, 0, 1, directKm, directKm, directKm);
+
+        } catch (RuntimeException e) {
+            bookingRides.remove(bookingId, "");
+            throw e;
+        } finally {
+            long elapsed = System.nanoTime() - start;
+            totalMatchNanos.addAndGet(elapsed);
+            maxMatchNanos.accumulateAndGet(elapsed, Math::max);
+        }
+    }
+
+    /**
+     * records that the vehicle reached its next stop
+     * @param rideId id of the ride
+     * @return the stop that was completed
+     */
+    public RideStop completeNextStop(String rideId) {
+        Ride ride = findRide(rideId);
+
+        while (true) {
+            RidePlan plan = ride.plan.get();
+            if (plan.stops.length == 0) {
+                throw new RideNotFoundException("Ride has already finished: " + rideId);
+            }
+
+            RidePlan advanced = plan.advance();
+            if (ride.plan.compareAndSet(plan, advanced)) {
+                RideStop stop = plan.stops[0];
+                if (stop.getType() == RideStop.StopType.DROPOFF) {
+                    bookingRides.remove(stop.getBookingId(), rideId);
+                }
+                closeIfFinished(ride, advanced);
+                reindex(ride);
+                return stop;
+            }
+        }
+    }
+
+    /**
+     * takes a booking that has not been picked up yet out of its pooled ride
+     * @param bookingId id of the booking
+     */
+    public void cancel(String bookingId) {
+        String rideId = bookingRides.get(bookingId);
+        if (rideId == null || rideId.isEmpty()) {
+            throw new RideNotFoundException("Booking is not in a pooled ride: " + bookingId);
+        }
+        Ride ride = findRide(rideId);
+
+        while (true) {
+            RidePlan plan = ride.plan.get();
+            Rider rider = plan.riders.get(bookingId);
+            if (rider == null) {
+                throw new RideNotFoundException("Booking is not in a pooled ride: " + bookingId);
+            }
+            if (!Double.isNaN(rider.pickedUpAtKm)) {
+                throw new InvalidPoolRequestException("Booking " + bookingId + " has already been picked up");
+            }
+
+            RidePlan updated = plan.without(bookingId);
+            if (ride.plan.compareAndSet(plan, updated)) {
+                bookingRides.remove(bookingId, rideId);
+                closeIfFinished(ride, updated);
+                reindex(ride);
+                return;
+            }
+        }
+    }
+
+    /**
+     * @param rideId id of the ride
+     * @return the ride's remaining stops and distances
+     */
+    public Optional<PooledRide> getRide(String rideId) {
+        Ride ride = rideId == null ? null : rides.get(rideId);
+        if (ride == null) {
+            return Optional.empty();
+        }
+
+        RidePlan plan = ride.plan.get();
+        return Optional.of(new PooledRide(ride.id, new ArrayList<>(Arrays.asList(plan.stops)), plan.riders.size(),
+                plan.started, plan.remainingKm, plan.completedKm));
+    }
+
+    public Optional<String> getRideIdForBooking(String bookingId) {
+        String rideId = bookingId == null ? null : bookingRides.get(bookingId);
+        return rideId == null || rideId.isEmpty() ? Optional.empty() : Optional.of(rideId);
+    }
+
+    public int getOpenRideCount() {
+        return rides.size();
+    }
+
+    /**
+     * pooling counters, including how long matching takes
+     * @return map of metric names to values
+     */
+    public Map<String, Object> getMetrics() {
+        long requestCount = requests.get();
+        Map<String, Object> metrics = new HashMap<>();
+        metrics.put("requests", requestCount);
+        metrics.put("pooledMatches", pooledMatches.get());
+        metrics.put("newRides", newRides.get());
+        metrics.put("openRides", rides.size());
+        metrics.put("candidatesEvaluated", candidatesEvaluated.get());
+        metrics.put("averageMatchMicros", requestCount == 0 ? 0.0 : totalMatchNanos.get() / 1000.0 / requestCount);
+        metrics.put("maxMatchMicros", maxMatchNanos.get() / 1000.0);
+        return metrics;
+    }
+
+    //================Matching================
+
+    /**
+     * helper method which tries every open ride listed in the pickup's cell and keeps the cheapest feasible insertion
+     */
+    private Insertion findBestInsertion(Location pickup, Location dropoff, double directKm, double budgetKm) {
+        Set<Ride> candidates = grid.get(cellKey(pickup.getLatitude(), pickup.getLongitude()));
+        if (candidates == null) {
+            return null;
+        }
+
+        Insertion best = null;
+        double[] distances = new double[0];
+        double[] pickupCum = new double[0];
+        double[] fromLat = {pickup.getLatitude(), dropoff.getLatitude()};
+        double[] fromLon = {pickup.getLongitude(), dropoff.getLongitude()};
+
+        for (Ride ride : candidates) {
+            RidePlan plan = ride.plan.get();
+            int n = plan.stops.length;
+            if (n == 0 || plan.riders.size() >= maxRiders) {
+                continue;
+            }
+            candidatesEvaluated.incrementAndGet();
+
+            // distances from the new pickup and dropoff to every remaining stop, computed once per ride
+            if (distances.length < 2 * n) {
+                distances = new double[2 * n];
+                pickupCum = new double[n];
+            }
+            DistanceCalculatorService.calculateDistanceMatrix(fromLat, fromLon, 2, plan.latitudes, plan.longitudes, n, distances);
+            double originToPickup = plan.started ? DistanceCalculatorService.calculateDistance(
+                    plan.origin.getLatitude(), plan.origin.getLongitude(), pickup.getLatitude(), pickup.getLongitude()) : 0;
+
+            for (int i = 0; i <= n; i++) {
+                for (int j = i; j <= n; j++) {
+                    double[] result = evaluate(plan, i, j, distances, n, originToPickup, directKm, budgetKm, pickupCum);
+                    if (result == null) {
+                        continue;
+                    }
+
+                    double addedKm = result[0] - plan.remainingKm;
+                    // pooling only pays off when sharing costs fewer kilometers than a separate trip
+                    if (addedKm < directKm && (best == null || addedKm < best.addedKm)) {
+                        best = new Insertion(ride, plan, i, j, addedKm, result[1]);
+                    }
+                }
+            }
+        }
+        return best;
+    }
+
+    /**
+     * walks the route with the pickup inserted before stop i and the dropoff before stop j (j >= i),
+     * using the ride's precomputed legs for the unchanged parts
+     * @return total remaining km and the new rider's km, or null if a seat or detour bound is broken
+     */
+    private double[] evaluate(RidePlan plan, int i, int j, double[] distances, int n, double originToPickup,
+                              double directKm, double budgetKm, double[] pickupCum) {
+        double cum = 0;
+        // previous point: -1 nothing yet, -2 the new pickup, -3 the new dropoff, otherwise an old stop index
+        int previous = -1;
+        int onboard = plan.onboard;
+        double newPickupCum = 0;
+        double newRiderKm = 0;
+
+        for (int m = 0; m <= n; m++) {
+            if (m == i) {
+                cum += previous == -1 ? originToPickup : distances[previous];
+                if (++onboard > seats) {
+                    return null;
+                }
+                newPickupCum = cum;
+                previous = -2;
+            }
+            if (m == j) {
+                cum += previous == -2 ? directKm : distances[n + previous];
+                newRiderKm = cum - newPickupCum;
+                if (newRiderKm > budgetKm + 1e-9) {
+                    return null;
+                }
+                onboard--;
+                previous = -3;
+            }
+            if (m == n) {
+                break;
+            }
+
+            if (previous == -2) {
+                cum += distances[m];
+            } else if (previous == -3) {
+                cum += distances[n + m];
+            } else {
+                cum += plan.legKm[m];
+            }
+            previous = m;
+
+            RideStop stop = plan.stops[m];
+            if (stop.getType() == RideStop.StopType.PICKUP) {
+                if (++onboard > seats) {
+                    return null;
+                }
+                pickupCum[m] = cum;
+            } else {
+                Rider rider = plan.riders.get(stop.getBookingId());
+                int pickupIndex = plan.partners[m];
+                double riderKm = pickupIndex >= 0 ? cum - pickupCum[pickupIndex]
+                        : plan.completedKm - rider.pickedUpAtKm + cum;
+                if (riderKm > rider.budgetKm + 1e-9) {
+                    return null;
+                }
+                onboard--;
+            }
+        }
+        return new double[]{cum, newRiderKm};
+    }
+
+    private double riderBudget(double directKm) {
+        return Math.min(directKm * (1 + maxDetourRatio), directKm + maxDetourKm);
+    }
+
+    //================Spatial index================
+
+    /**
+     * helper method which lists a ride in every cell its current route could pick someone up from
+     */
+    private void reindex(Ride ride) {
+        ride.indexLock.lock();
+        try {
+            RidePlan plan = ride.plan.get();
+            Set<Long> cells = plan.stops.length == 0 ? Collections.emptySet() : cellsFor(plan);
+
+            for (Long cell : ride.cells) {
+                if (!cells.contains(cell)) {
+                    grid.computeIfPresent(cell, (key, set) -> {
+                        set.remove(ride);
+                        return set.isEmpty() ? null : set;
+                    });
+                }
+            }
+            for (Long cell : cells) {
+                if (!ride.cells.contains(cell)) {
+                    grid.computeIfAbsent(cell, key -> ConcurrentHashMap.newKeySet()).add(ride);
+                }
+            }
+            ride.cells = cells;
+        } finally {
+            ride.indexLock.unlock();
+        }
+    }
+
+    private Set<Long> cellsFor(RidePlan plan) {
+        double minLat = Double.MAX_VALUE, maxLat = -Double.MAX_VALUE;
+        double minLng = Double.MAX_VALUE, maxLng = -Double.MAX_VALUE;
+        for (int k = 0; k < plan.stops.length; k++) {
+            minLat = Math.min(minLat, plan.latitudes[k]);
+            maxLat = Math.max(maxLat, plan.latitudes[k]);
+            minLng = Math.min(minLng, plan.longitudes[k]);
+            maxLng = Math.max(maxLng, plan.longitudes[k]);
+        }
+        if (plan.started) {
+            minLat = Math.min(minLat, plan.origin.getLatitude());
+            maxLat = Math.max(maxLat, plan.origin.getLatitude());
+            minLng = Math.min(minLng, plan.origin.getLongitude());
+            maxLng = Math.max(maxLng, plan.origin.getLongitude());
+        }
+
+        // a pickup further than half the detour bound from the route cannot be reached within it
+        double marginKm = maxDetourKm / 2;
+        double latMargin = marginKm / KM_PER_DEGREE;
+        double lngMargin = marginKm / (KM_PER_DEGREE * Math.max(0.01, Math.cos(Math.toRadians(Math.max(Math.abs(minLat), Math.abs(maxLat))))));
+
+        long firstRow = (long) Math.floor((minLat - latMargin) / cellDegrees);
+        long lastRow = (long) Math.floor((maxLat + latMargin) / cellDegrees);
+        long firstColumn = (long) Math.floor((minLng - lngMargin) / cellDegrees);
+        long lastColumn = (long) Math.floor((maxLng + lngMargin) / cellDegrees);
+
+        Set<Long> cells = new HashSet<>();
+        for (long row = firstRow; row <= lastRow; row++) {
+            for (long column = firstColumn; column <= lastColumn; column++) {
+                cells.add(cellKey(row, column));
+            }
+        }
+        return cells;
+    }
+
+    private long cellKey(double latitude, double longitude) {
+        return cellKey((long) Math.floor(latitude / cellDegrees), (long) Math.floor(longitude / cellDegrees));
+    }
+
+    private static long cellKey(long row, long column) {
+        return (row << 32) | (column & 0xffffffffL);
+    }
+
+    //================Helpers================
+
+    private Ride findRide(String rideId) {
+        Ride ride = rideId == null ? null : rides.get(rideId);
+        if (ride == null) {
+            throw new RideNotFoundException("Ride not found: " + rideId);
+        }
+        return ride;
+    }
+
+    private void closeIfFinished(Ride ride, RidePlan plan) {
+        if (plan.stops.length == 0) {
+            rides.remove(ride.id, ride);
+        }
+    }
+
+    private static void validateRequest(String bookingId, Location pickup, Location dropoff) {
+        if (bookingId == null || bookingId.isBlank()) {
+            throw new InvalidPoolRequestException("Booking id cannot be null or empty");
+        }
+        if (pickup == null || dropoff == null) {
+            throw new InvalidPoolRequestException("Pooled ride needs a pickup and a destination location");
+        }
+        if (pickup.equals(dropoff)) {
+            throw new InvalidPoolRequestException("Pickup and destination cannot be the same location");
+        }
+    }
+
+    private static final class Ride {
+        private final String id;
+        private final AtomicReference<RidePlan> plan;
+        private final ReentrantLock indexLock = new ReentrantLock();
+        private Set<Long> cells = Collections.emptySet();
+
+        private Ride(String id, RidePlan plan) {
+            this.id = id;
+            this.plan = new AtomicReference<>(plan);
+        }
+    }
+
+    private static final class Rider {
+        private final double directKm;
+        private final double budgetKm;
+        // odometer reading when the rider got in, NaN while they are still waiting
+        private final double pickedUpAtKm;
+
+        private Rider(double directKm, double budgetKm, double pickedUpAtKm) {
+            this.directKm = directKm;
+            this.budgetKm = budgetKm;
+            this.pickedUpAtKm = pickedUpAtKm;
+        }
+    }
+
+    private static final class Insertion {
+        private final Ride ride;
+        private final RidePlan plan;
+        private final int pickupPosition;
+        private final int dropoffPosition;
+        private final double addedKm;
+        private final double riderKm;
+
+        private Insertion(Ride ride, RidePlan plan, int pickupPosition, int dropoffPosition, double addedKm, double riderKm) {
+            this.ride = ride;
+            this.plan = plan;
+            this.pickupPosition = pickupPosition;
+            this.dropoffPosition = dropoffPosition;
+            this.addedKm = addedKm;
+            this.riderKm = riderKm;
+        }
+    }
+
+    /**
+     * immutable snapshot of a ride's remaining route; changes build a new plan and swap it in with a CAS
+     */
+    private static final class RidePlan {
+        private final boolean started;
+        // where the vehicle is, only known once the first stop has been made
+        private final Location origin;
+        private final RideStop[] stops;
+        private final double[] latitudes;
+        private final double[] longitudes;
+        // legKm[k] is the distance to stops[k] from the point before it (0 for the first stop of a ride not yet started)
+        private final double[] legKm;
+        // for a dropoff, the index of its pickup among the remaining stops, -1 if the rider is on board
+        private final int[] partners;
+        private final double remainingKm;
+        private final double completedKm;
+        private final int onboard;
+        private final Map<String, Rider> riders;
+
+        private RidePlan(boolean started, Location origin, RideStop[] stops, double completedKm, Map<String, Rider> riders) {
+            this.started = started;
+            this.origin = origin;
+            this.stops = stops;
+            this.completedKm = completedKm;
+            this.riders = riders;
+
+            int n = stops.length;
+            this.latitudes = new double[n];
+            this.longitudes = new double[n];
+            this.legKm = new double[n];
+            this.partners = new int[n];
+
+            Map<String, Integer> pickups = new HashMap<>();
+            double total = 0;
+            for (int k = 0; k < n; k++) {
+                Location location = stops[k].getLocation();
+                latitudes[k] = location.getLatitude();
+                longitudes[k] = location.getLongitude();
+
+                Location previous = k > 0 ? stops[k - 1].getLocation() : origin;
+                legKm[k] = previous == null ? 0 : DistanceCalculatorService.calculateDistance(
+                        previous.getLatitude(), previous.getLongitude(), location.getLatitude(), location.getLongitude());
+                total += legKm[k];
+
+                if (stops[k].getType() == RideStop.StopType.PICKUP) {
+                    pickups.put(stops[k].getBookingId(), k);
+                    partners[k] = -1;
+                } else {
+                    partners[k] = pickups.getOrDefault(stops[k].getBookingId(), -1);
+                }
+            }
+            this.remainingKm = total;
+
+            int riding = 0;
+            for (Rider rider : riders.values()) {
+                if (!Double.isNaN(rider.pickedUpAtKm)) {
+                    riding++;
+                }
+            }
+            this.onboard = riding;
+        }
+
+        private static RidePlan open(String bookingId, Location pickup, Location dropoff, Rider rider) {
+            RideStop[] stops = {
+                    new RideStop(bookingId, RideStop.StopType.PICKUP, pickup),
+                    new RideStop(bookingId, RideStop.StopType.DROPOFF, dropoff)
+            };
+            return new RidePlan(false, null, stops, 0, Map.of(bookingId, rider));
+        }
+
+        /**
+         * @return a copy with the pickup inserted before stop i and the dropoff before stop j of this plan
+         */
+        private RidePlan insert(int i, int j, RideStop pickup, RideStop dropoff, Rider rider) {
+            List<RideStop> updated = new ArrayList<>(stops.length + 2);
+            for (int m = 0; m <= stops.length; m++) {
+                if (m == i) {
+                    updated.add(pickup);
+                }
+                if (m == j) {
+                    updated.add(dropoff);
+                }
+                if (m < stops.length) {
+                    updated.add(stops[m]);
+                }
+            }
+
+            Map<String, Rider> updatedRiders = new HashMap<>(riders);
+            updatedRiders.put(pickup.getBookingId(), rider);
+            return new RidePlan(started, origin, updated.toArray(new RideStop[0]), completedKm, updatedRiders);
+        }
+
+        /**
+         * @return a copy where the vehicle has made the first remaining stop
+         */
+        private RidePlan advance() {
+            RideStop stop = stops[0];
+            double odometer = completedKm + legKm[0];
+
+            Map<String, Rider> updatedRiders = new HashMap<>(riders);
+            Rider rider = riders.get(stop.getBookingId());
+            if (stop.getType() == RideStop.StopType.PICKUP) {
+                updatedRiders.put(stop.getBookingId(), new Rider(rider.directKm, rider.budgetKm, odometer));
+            } else {
+                updatedRiders.remove(stop.getBookingId());
+            }
+            return new RidePlan(true, stop.getLocation(), Arrays.copyOfRange(stops, 1, stops.length), odometer, updatedRiders);
+        }
+
+        /**
+         * @return a copy without the stops of a booking
+         */
+        private RidePlan without(String bookingId) {
+            List<RideStop> updated = new ArrayList<>(stops.length);
+            for (RideStop stop : stops) {
+                if (!stop.getBookingId().equals(bookingId)) {
+                    updated.add(stop);
+                }
+            }
+
+            Map<String, Rider> updatedRiders = new HashMap<>(riders);
+            updatedRiders.remove(bookingId);
+            return new RidePlan(started, origin, updated.toArray(new RideStop[0]), completedKm, updatedRiders);
+        }
+    }
+}
@@ -0,0 +1,127 @@
+package com.example.cabbooking.service;
+
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * bounded lock-free queue on a fixed array, used to hand bookings between pipeline stages.
+ * Every slot carries a sequence number: producers claim a slot with a CAS on the head and publish it by
+ * moving the slot's sequence forward, consumers do the same on the tail. Nothing blocks, a full buffer
+ * simply refuses the offer so the caller can push back.
+ */
+final class RingBuffer<E> {
+
+    private final Object[] slots;
+    private final AtomicLongArray sequences;
+    private final int mask;
+
+    private final AtomicLong head = new AtomicLong();
+    private final AtomicLong tail = new AtomicLong();
+
+    RingBuffer(int requestedCapacity) {
+        if (requestedCapacity < 2 || requestedCapacity > (1 << 30)) {
+            throw new IllegalArgumentException("Ring buffer capacity must be between 2 and 2^30: " + requestedCapacity);
+        }
+
+        // round up to a power of two so a slot index is a mask instead of a modulo
+        int capacity = Integer.highestOneBit(requestedCapacity - 1) << 1;
+        this.slots = new Object[capacity];
+        this.sequences = new AtomicLongArray(capacity);
+        this.mask = capacity - 1;
+        for (int i = 0; i < capacity; i++) {
+            sequences.set(i, i);
+        }
+    }
+
+    /**
+     * adds an element if there is room, safe to call from any number of threads
+     * @param element element to add
+     * @return false if the buffer is full
+     */
+    boolean offer(E element) {
+        if (element == null) {
+            throw new NullPointerException("Ring buffer elements cannot be null");
+        }
+
+        long position = head.get();
+        while (true) {
+            int index = (int) (position & mask);
+            long difference = sequences.get(index) - position;
+
+            if (difference == 0) {
+                if (head.compareAndSet(position, position + 1)) {
+                    slots[index] = element;
+                    // publishing the sequence makes the slot write visible to the consumer
+                    sequences.lazySet(index, position + 1);
+                    return true;
+                }
+                position = head.get();
+            } else if (difference < 0) {
+                return false;
+            } else {
+                position = head.get();
+            }
+        }
+    }
+
+    /**
+     * takes the oldest element, safe to call from any number of threads
+     * @return the element, or null if the buffer is empty
+     */
+    @SuppressWarnings("unchecked")
+    E poll() {
+        long position = tail.get();
+        while (true) {
+            int index = (int) (position & mask);
+            long difference = sequences.get(index) - (position + 1);
+
+            if (difference == 0) {
+                if (tail.compareAndSet(position, position + 1)) {
+                    E element = (E) slots[index];
+                    slots[index] = null;
+                    // hand the slot back to producers one lap later
+                    sequences.lazySet(index, position + slots.length);
+                    return element;
+                }
+                position = tail.get();
+            } else if (difference < 0) {
+                return null;
+            } else {
+                position = tail.get();
+            }
+        }
+    }
+
+    /**
+     * moves up to maxElements elements into a list
+     * @param target list the elements are added to
+     * @param maxElements most elements to take
+     * @return number of elements taken
+     */
+    int drainTo(List<E> target, int maxElements) {
+        int drained = 0;
+        while (drained < maxElements) {
+            E element = poll();
+            if (element == null) {
+                break;
+            }
+            target.add(element);
+            drained++;
+        }
+        return drained;
+    }
+
+    int size() {
+        long size = head.get() - tail.get();
+        return (int) Math.max(0, Math.min(size, slots.length));
+    }
+
+    boolean isEmpty() {
+        return size() == 0;
+    }
+
+    int capacity() {
+        return slots.length;
+    }
+}
@@ -5,10 +5,13 @@ import com.example.cabbooking.model.Route;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 
+import java.time.LocalDateTime;
+
 @Service
 public class RouteService {
 
     private final LocationDistanceCalculatorService locationDistanceCalculatorService;
+    private final SpeedProfileService speedProfileService;
 
     public static class InvalidRouteException extends RuntimeException {
         public InvalidRouteException(String message) {
@@ -23,12 +26,15 @@ public class RouteService {
     }
 
     @Autowired
-    public RouteService(LocationDistanceCalculatorService locationDistanceCalculatorService) {
+    public RouteService(LocationDistanceCalculatorService locationDistanceCalculatorService,
+                        SpeedProfileService speedProfileService) {
         this.locationDistanceCalculatorService = locationDistanceCalculatorService;
+        this.speedProfileService = speedProfileService;
     }
 
     /**
-     * method which creates a new Route object from two Location object parameters
+     * method which creates a new Route object from two Location object parameters,
+     * with the estimated duration for a trip leaving now
      * @param from initial location
      * @param to location destination
      * @return the created Route
@@ -37,11 +43,35 @@ public class RouteService {
 
         validateRouteInputs(from, to);
 
+        return buildRoute(from, to, System.currentTimeMillis());
+    }
+
+    /**
+     * method which creates a new Route object from two Location object parameters,
+     * with the estimated duration for a trip leaving at departureTime
+     * @param from initial location
+     * @param to location destination
+     * @param departureTime local time the trip starts, used to pick the hourly speed profile
+     * @return the created Route
+     */
+    public Route createRoute(Location from, Location to, LocalDateTime departureTime) {
+
+        validateRouteInputs(from, to);
+
+        if (departureTime == null) {
+            throw new InvalidRouteException("Departure time cannot be null");
+        }
+
+        return buildRoute(from, to, speedProfileService.toEpochMillis(departureTime));
+    }
+
+    private Route buildRoute(Location from, Location to, long departureEpochMillis) {
         try {
             Route route = new Route();
             route.setFrom(from);
             route.setTo(to);
             route.setDistance(locationDistanceCalculatorService.calculateDistanceUsingLocation(from, to));
+            route.setDuration(speedProfileService.estimateDurationMinutes(from, to, route.getDistance(), departureEpochMillis));
             return route;
         } catch (Exception e) {
             throw new RouteCalculationException("Failed to calculate route distance: " + e.getMessage());
@@ -68,6 +98,21 @@ public class RouteService {
         return route.getDistance();
     }
 
+    /**
+     * gets the estimated trip duration of a Route
+     * @param route Route whose duration is returned
+     * @return estimated duration in minutes
+     */
+    public double getRouteDuration(Route route) {
+        validateRoute(route);
+
+        if (route.getDuration() < 0) {
+            throw new InvalidRouteException("Route duration cannot be negative: " + route.getDuration());
+        }
+
+        return route.getDuration();
+    }
+
     private void validateRouteInputs(Location from, Location to) {
         if (from == null) {
             throw new InvalidRouteException("Starting location cannot be null");
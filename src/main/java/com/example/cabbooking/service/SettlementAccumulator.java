@@ -0,0 +1,145 @@
+package com.example.cabbooking.service;
+
+/**
+ * running totals of one settlement partition.
+ * Zones are counted in arrays indexed by zone number, and drivers in an open-addressing table whose counters
+ * sit in parallel long arrays, so adding a ride allocates nothing and memory grows with the number of drivers,
+ * never with the number of rides. Not thread-safe: each partition fills its own and they are merged at the end.
+ */
+final class SettlementAccumulator {
+
+    private static final int INITIAL_CAPACITY = 1024;
+
+    interface DriverVisitor {
+        void visit(String driverId, long rides, long grossCents, long commissionCents);
+    }
+
+    private final double commissionRate;
+    private final long[] zoneRides;
+    private final long[] zoneGrossCents;
+    private final long[] zoneCommissionCents;
+
+    private String[] driverIds = new String[INITIAL_CAPACITY];
+    private long[] driverRides = new long[INITIAL_CAPACITY];
+    private long[] driverGrossCents = new long[INITIAL_CAPACITY];
+    private long[] driverCommissionCents = new long[INITIAL_CAPACITY];
+    private int driverCount;
+
+    private long rides;
+    private long grossCents;
+    private long commissionCents;
+
+    SettlementAccumulator(int zones, double commissionRate) {
+        this.commissionRate = commissionRate;
+        this.zoneRides = new long[zones];
+        this.zoneGrossCents = new long[zones];
+        this.zoneCommissionCents = new long[zones];
+    }
+
+    /**
+     * @param driverId driver who drove the ride
+     * @param zone zone the ride started in
+     * @param fareCents fare of the ride
+     */
+    void add(String driverId, int zone, long fareCents) {
+        // rounded per ride, the same way the ledger splits each fare, so the two can be reconciled to the cent
+        long commission = Math.round(fareCents * commissionRate);
+        addDriver(driverId, 1, fareCents, commission);
+
+        zoneRides[zone]++;
+        zoneGrossCents[zone] += fareCents;
+        zoneCommissionCents[zone] += commission;
+        rides++;
+        grossCents += fareCents;
+        commissionCents += commission;
+    }
+
+    /**
+     * adds another partition's totals to this one
+     */
+    void merge(SettlementAccumulator other) {
+        for (int slot = 0; slot < other.driverIds.length; slot++) {
+            if (other.driverIds[slot] != null) {
+                addDriver(other.driverIds[slot], other.driverRides[slot], other.driverGrossCents[slot], other.driverCommissionCents[slot]);
+            }
+        }
+        for (int zone = 0; zone < zoneRides.length; zone++) {
+            zoneRides[zone] += other.zoneRides[zone];
+            zoneGrossCents[zone] += other.zoneGrossCents[zone];
+            zoneCommissionCents[zone] += other.zoneCommissionCents[zone];
+        }
+        rides += other.rides;
+        grossCents += other.grossCents;
+        commissionCents += other.commissionCents;
+    }
+
+    void forEachDriver(DriverVisitor visitor) {
+        for (int slot = 0; slot < driverIds.length; slot++) {
+            if (driverIds[slot] != null) {
+                visitor.visit(driverIds[slot], driverRides[slot], driverGrossCents[slot], driverCommissionCents[slot]);
+            }
+        }
+    }
+
+    //================Getters================
+    int getDriverCount() {return driverCount;}
+    long getRides() {return rides;}
+    long getGrossCents() {return grossCents;}
+    long getCommissionCents() {return commissionCents;}
+    int getZoneCount() {return zoneRides.length;}
+    long getZoneRides(int zone) {return zoneRides[zone];}
+    long getZoneGrossCents(int zone) {return zoneGrossCents[zone];}
+    long getZoneCommissionCents(int zone) {return zoneCommissionCents[zone];}
+
+    //================Helpers================
+
+    private void addDriver(String driverId, long rideCount, long gross, long commission) {
+        int slot = slotOf(driverId);
+        if (driverIds[slot] == null) {
+            if ((driverCount + 1) * 2 > driverIds.length) {
+                grow();
+                slot = slotOf(driverId);
+            }
+            driverIds[slot] = driverId;
+            driverCount++;
+        }
+        driverRides[slot] += rideCount;
+        driverGrossCents[slot] += gross;
+        driverCommissionCents[slot] += commission;
+    }
+
+    /**
+     * helper method which finds the slot holding a driver, or the empty slot where it belongs (linear probing)
+     */
+    private int slotOf(String driverId) {
+        int mask = driverIds.length - 1;
+        int hash = driverId.hashCode();
+        int slot = (hash ^ (hash >>> 16)) & mask;
+        while (driverIds[slot] != null && !driverIds[slot].equals(driverId)) {
+            slot = (slot + 1) & mask;
+        }
+        return slot;
+    }
+
+    private void grow() {
+        String[] oldIds = driverIds;
+        long[] oldRides = driverRides;
+        long[] oldGross = driverGrossCents;
+        long[] oldCommission = driverCommissionCents;
+
+        int capacity = oldIds.length * 2;
+        driverIds = new String[capacity];
+        driverRides = new long[capacity];
+        driverGrossCents = new long[capacity];
+        driverCommissionCents = new long[capacity];
+        for (int i = 0; i < oldIds.length; i++) {
+            if (oldIds[i] != null) {
+                int slot = slotOf(oldIds[i]);
+                driverIds[slot] = oldIds[i];
+                driverRides[slot] = oldRides[i];
+                driverGrossCents[slot] = oldGross[i];
+                driverCommissionCents[slot] = oldCommission[i];
+            }
+        }
+    }
+}
@@ -0,0 +1,389 @@
+package com.example.cabbooking.service;
+
+import com.example.cabbooking.model.Driver;
+import com.example.cabbooking.model.SettlementSummary;
+import com.example.cabbooking.model.VehicleClass;
+import com.example.cabbooking.repository.BookingRepository;
+import com.example.cabbooking.repository.LedgerLog;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * end-of-day settlement: totals the day's completed rides per driver, per zone and per tariff and writes the
+ * payout files drivers are paid from.
+ * The day is cut into time slices that are streamed from the database in parallel, each into its own
+ * accumulator, while the ledger is replayed alongside for the amounts actually charged. No list of rides is
+ * ever built, so memory depends on the number of drivers and zones, not on the number of rides.
+ * Bookings do not record a tariff; rides are grouped by the vehicle class of their driver instead.
+ */
+@Service
+public class SettlementService {
+
+    static final String UNKNOWN_TARIFF = "UNKNOWN";
+    private static final VehicleClass[] VEHICLE_CLASSES = VehicleClass.values();
+
+    private final BookingRepository bookingRepository;
+    private final LedgerLog ledgerLog;
+    private final SpeedProfileService speedProfileService;
+    private final FleetService fleetService;
+    private final Path directory;
+    private final ZoneId zoneId;
+    private final int partitions;
+    private final double commissionRate;
+    private final ThreadFactory threadFactory;
+    private final AtomicBoolean settling = new AtomicBoolean();
+
+    public static class SettlementException extends RuntimeException {
+        public SettlementException(String message) {
+            super(message);
+        }
+    }
+
+    @Autowired
+    public SettlementService(BookingRepository bookingRepository,
+                             LedgerLog ledgerLog,
+                             SpeedProfileService speedProfileService,
+                             FleetService fleetService,
+                             @Value("${settlement.directory:data/settlements}") String directory,
+                             @Value("${settlement.time-zone:America/New_York}") String timeZone,
+                             @Value("${settlement.partitions:0}") int partitions,
+                             @Value("${ledger.platform-commission-rate:0.2}") double commissionRate,
+                             ThreadFactory workerThreadFactory) {
+        if (partitions < 0 || commissionRate < 0 || commissionRate > 1) {
+            throw new IllegalArgumentException("Settlement partitions cannot be negative and the commission rate must be between 0 and 1");
+        }
+
+        this.bookingRepository = bookingRepository;
+        this.ledgerLog = ledgerLog;
+        this.speedProfileService = speedProfileService;
+        this.fleetService = fleetService;
+        this.directory = Paths.get(directory);
+        this.zoneId = ZoneId.of(timeZone);
+        this.partitions = partitions == 0 ? Runtime.getRuntime().availableProcessors() : partitions;
+        this.commissionRate = commissionRate;
+        this.threadFactory = workerThreadFactory;
+    }
+
+    /**
+     * settles the previous day every night
+     */
+    @Scheduled(cron = "${settlement.cron:0 30 2 * * *}", zone = "${settlement.time-zone:America/New_York}")
+    public void settlePreviousDay() {
+        try {
+            settle(LocalDate.now(zoneId).minusDays(1));
+        } catch (SettlementException e) {
+            System.out.println("✗ Settlement failed: " + e.getMessage());
+        }
+    }
+
+    /**
+     * settles one day and writes its payout, zone and tariff files, replacing any written by an earlier run
+     * @param day day to settle, in the settlement time zone
+     * @return totals of the day
+     */
+    public SettlementSummary settle(LocalDate day) {
+        if (day == null) {
+            throw new SettlementException("Settlement day cannot be null");
+        }
+        if (!settling.compareAndSet(false, true)) {
+            throw new SettlementException("A settlement is already running");
+        }
+
+        long started = System.nanoTime();
+        Instant from = day.atStartOfDay(zoneId).toInstant();
+        Instant to = day.plusDays(1).atStartOfDay(zoneId).toInstant();
+        ExecutorService executor = Executors.newFixedThreadPool(partitions + 1, threadFactory);
+        try {
+            CompletableFuture<long[]> ledgerTotals = CompletableFuture.supplyAsync(
+                    () -> replayLedger(from.toEpochMilli(), to.toEpochMilli()), executor);
+
+            // equal time slices, the last one taking whatever the division leaves over
+            long sliceMillis = Math.max(1, (to.toEpochMilli() - from.toEpochMilli()) / partitions);
+            List<CompletableFuture<SettlementAccumulator>> slices = new ArrayList<>(partitions);
+            for (int i = 0; i < partitions; i++) {
+                Instant sliceFrom = from.plusMillis(sliceMillis * i);
+                Instant sliceTo = i == partitions - 1 ? to : from.plusMillis(sliceMillis * (i + 1));
+                slices.add(CompletableFuture.supplyAsync(() -> settleSlice(sliceFrom, sliceTo), executor));
+            }
+
+            SettlementAccumulator total = new SettlementAccumulator(speedProfileService.getZoneCount(), commissionRate);
+            for (CompletableFuture<SettlementAccumulator> slice : slices) {
+                total.merge(slice.join());
+            }
+            long[] ledger = ledgerTotals.join();
+
+            Path payoutFile = writeFiles(day, total);
+            long elapsedMillis = (System.nanoTime() - started) / 1_000_000;
+            SettlementSummary summary = new SettlementSummary(day.toString(), total.getRides(), total.getDriverCount(),
+                    total.getGrossCents(), total.getCommissionCents(), total.getGrossCents() - total.getCommissionCents(),
+                    ledger[0], ledger[1], payoutFile.toString(), elapsedMillis);
+
+            System.out.println("✓ Settled " + day + ": " + summary.getRides() + " rides, " + summary.getDrivers()
+                    + " drivers, " + formatCents(summary.getPayoutCents()) + " to pay out (" + elapsedMillis + " ms)");
+            if (ledgerLog != null && ledger[1] != summary.getPayoutCents()) {
+                System.out.println("✗ Settlement " + day + " payouts differ from the ledger's drivers payable by "
+                        + formatCents(summary.getPayoutCents() - ledger[1]) + " (rides are settled by booking day, payments by payment time)");
+            }
+            return summary;
+
+        } catch (CompletionException e) {
+            Throwable cause = e.getCause() != null ? e.getCause() : e;
+            throw new SettlementException("Settlement of " + day + " failed: " + cause.getMessage());
+        } finally {
+            executor.shutdownNow();
+            settling.set(false);
+        }
+    }
+
+    //================Partitions================
+
+    private SettlementAccumulator settleSlice(Instant from, Instant to) {
+        SettlementAccumulator accumulator = new SettlementAccumulator(speedProfileService.getZoneCount(), commissionRate);
+        boolean read = bookingRepository.streamCompletedRides(from, to, (driverId, latitude, longitude, fareCents) ->
+                accumulator.add(driverId, speedProfileService.zoneOf(latitude, longitude), fareCents));
+        if (!read) {
+            throw new SettlementException("Completed rides from " + from + " to " + to + " could not be read");
+        }
+        return accumulator;
+    }
+
+    /**
+     * helper method which totals what the ledger recorded during the day
+     * @return amount charged to riders and amount credited to drivers payable, in cents
+     */
+    private long[] replayLedger(long fromMillis, long toMillis) {
+        long[] totals = new long[2];
+        if (ledgerLog == null) {
+            return totals;
+        }
+
+        ledgerLog.replay(fromMillis, toMillis, (transactionId, timestamp, account, amountCents) -> {
+            if (amountCents < 0 && account.startsWith("rider:")) {
+                totals[0] -= amountCents;
+            } else if (amountCents > 0 && account.equals(LedgerService.DRIVERS_PAYABLE)) {
+                totals[1] += amountCents;
+            }
+        });
+        return totals;
+    }
+
+    //================Output files================
+
+    /**
+     * helper method which writes the day's files, each to a temporary name first and then moved into place,
+     * so a reader never sees a half-written payout file
+     * @return path of the payout file
+     */
+    private Path writeFiles(LocalDate day, SettlementAccumulator total) {
+        long[] tariffRides = new long[VEHICLE_CLASSES.length + 1];
+        long[] tariffGross = new long[VEHICLE_CLASSES.length + 1];
+        long[] tariffCommission = new long[VEHICLE_CLASSES.length + 1];
+
+        try {
+            Files.createDirectories(directory);
+
+            Path payouts = directory.resolve("payouts-" + day + ".csv");
+            try (CsvChannelWriter writer = new CsvChannelWriter(temporary(payouts))) {
+                writer.header("driver_id", "tariff", "rides", "gross", "commission", "payout");
+                IOException[] failure = new IOException[1];
+                total.forEachDriver((driverId, rides, gross, commission) -> {
+                    int tariff = tariffOf(driverId);
+                    tariffRides[tariff] += rides;
+                    tariffGross[tariff] += gross;
+                    tariffCommission[tariff] += commission;
+                    if (failure[0] != null) {
+                        return;
+                    }
+                    try {
+                        writer.text(driverId).comma().text(tariffName(tariff)).comma().number(rides).comma()
+                                .cents(gross).comma().cents(commission).comma().cents(gross - commission).endLine();
+                    } catch (IOException e) {
+                        failure[0] = e;
+                    }
+                });
+                if (failure[0] != null) {
+                    throw failure[0];
+                }
+            }
+            publish(payouts);
+
+            Path zones = directory.resolve("zones-" + day + ".csv");
+            try (CsvChannelWriter writer = new CsvChannelWriter(temporary(zones))) {
+                writer.header("zone", "rides", "gross", "commission", "payout");
+                for (int zone = 0; zone < total.getZoneCount(); zone++) {
+                    long gross = total.getZoneGrossCents(zone);
+                    long commission = total.getZoneCommissionCents(zone);
+                    writer.text(speedProfileService.getZoneName(zone)).comma().number(total.getZoneRides(zone)).comma()
+                            .cents(gross).comma().cents(commission).comma().cents(gross - commission).endLine();
+                }
+            }
+            publish(zones);
+
+            Path tariffs = directory.resolve("tariffs-" + day + ".csv");
+            try (CsvChannelWriter writer = new CsvChannelWriter(temporary(tariffs))) {
+                writer.header("tariff", "rides", "gross", "commission", "payout");
+                for (int tariff = 0; tariff < tariffRides.length; tariff++) {
+                    writer.text(tariffName(tariff)).comma().number(tariffRides[tariff]).comma().cents(tariffGross[tariff]).comma()
+                            .cents(tariffCommission[tariff]).comma().cents(tariffGross[tariff] - tariffCommission[tariff]).endLine();
+                }
+            }
+            publish(tariffs);
+
+            return payouts;
+        } catch (IOException e) {
+            throw new SettlementException("Settlement files for " + day + " could not be written: " + e.getMessage());
+        }
+    }
+
+    private int tariffOf(String driverId) {
+        return fleetService.getDriver(driverId)
+                .map(Driver::getVehicleClass)
+                .map(Enum::ordinal)
+                .orElse(VEHICLE_CLASSES.length);
+    }
+
+    private static String tariffName(int tariff) {
+        return tariff < VEHICLE_CLASSES.length ? VEHICLE_CLASSES[tariff].name() : UNKNOWN_TARIFF;
+    }
+
+    private static Path temporary(Path file) {
+        return file.resolveSibling(file.getFileName() + ".tmp");
+    }
+
+    private static void publish(Path file) throws IOException {
+        Files.move(temporary(file), file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    private static String formatCents(long cents) {
+        return String.format("%s$%d.%02d", cents < 0 ? "-" : "", Math.abs(cents / 100), Math.abs(cents % 100));
+    }
+
+    /**
+     * writes CSV lines through one direct buffer, handing the channel a full buffer at a time instead of a
+     * write per field; numbers are written digit by digit rather than formatted into strings
+     */
+    private static final class CsvChannelWriter implements AutoCloseable {
+
+        private static final int BUFFER_SIZE = 64 * 1024;
+        private static final int MAX_FIELD_BYTES = 64;
+
+        private final FileChannel channel;
+        private final ByteBuffer buffer = ByteBuffer.allocateDirect(BUFFER_SIZE);
+        private final byte[] digits = new byte[20];
+
+        private CsvChannelWriter(Path file) throws IOException {
+            this.channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                    StandardOpenOption.TRUNCATE_EXISTING);
+        }
+
+        private void header(String... columns) throws IOException {
+            for (int i = 0; i < columns.length; i++) {
+                if (i > 0) {
+                    comma();
+                }
+                text(columns[i]);
+            }
+            endLine();
+        }
+
+        private CsvChannelWriter text(String value) throws IOException {
+            for (int i = 0; i < value.length(); i++) {
+                if (buffer.remaining() < 1) {
+                    flush();
+                }
+                char c = value.charAt(i);
+                // keep a stray comma or line break in a name from shifting the columns
+                buffer.put(c == ',' || c == '\n' || c == '\r' || c > 0x7e ? (byte) '_' : (byte) c);
+            }
+            return this;
+        }
+
+        private CsvChannelWriter number(long value) throws IOException {
+            ensure(MAX_FIELD_BYTES);
+            if (value < 0) {
+                buffer.put((byte) '-');
+            }
+            int length = 0;
+            long rest = value;
+            do {
+                digits[length++] = (byte) ('0' + Math.abs(rest % 10));
+                rest /= 10;
+            } while (rest != 0);
+            while (length > 0) {
+                buffer.put(digits[--length]);
+            }
+            return this;
+        }
+
+        private CsvChannelWriter cents(long value) throws IOException {
+            ensure(MAX_FIELD_BYTES);
+            if (value < 0) {
+                buffer.put((byte) '-');
+            }
+            long magnitude = Math.abs(value);
+            number(magnitude / 100);
+            buffer.put((byte) '.');
+            buffer.put((byte) ('0' + magnitude % 100 / 10));
+            buffer.put((byte) ('0' + magnitude % 10));
+            return this;
+        }
+
+        private CsvChannelWriter comma() throws IOException {
+            ensure(1);
+            buffer.put((byte) ',');
+            return this;
+        }
+
+        private CsvChannelWriter endLine() throws IOException {
+            ensure(1);
+            buffer.put((byte) '\n');
+            return this;
+        }
+
+        private void ensure(int bytes) throws IOException {
+            if (buffer.remaining() < bytes) {
+                flush();
+            }
+        }
+
+        private void flush() throws IOException {
+            buffer.flip();
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+            buffer.clear();
+        }
+
+        @Override
+        public void close() throws IOException {
+            try {
+                flush();
+                channel.force(true);
+            } finally {
+                channel.close();
+            }
+        }
+    }
+}
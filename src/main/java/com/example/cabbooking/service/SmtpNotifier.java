@@ -0,0 +1,103 @@
+package com.example.cabbooking.service;
+
+import com.example.cabbooking.model.OutboxMessage;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+
+/**
+ * sends notifications as plain-text email through an SMTP relay such as a local mail server or a sidecar;
+ * there is no TLS or authentication, the relay is expected to be on the local network. The event id goes out
+ * as the Message-ID, so a message delivered twice can be recognised by the receiving side.
+ * 4xx replies are temporary and the message is retried, 5xx replies mean it will never be accepted.
+ */
+public class SmtpNotifier implements Notifier {
+
+    private final String host;
+    private final int port;
+    private final String from;
+    private final int timeoutMillis;
+
+    public SmtpNotifier(String host, int port, String from, int timeoutMillis) {
+        this.host = host;
+        this.port = port;
+        this.from = from;
+        this.timeoutMillis = timeoutMillis;
+    }
+
+    @Override
+    public void send(OutboxMessage message) {
+        try (Socket socket = new Socket()) {
+            socket.connect(new InetSocketAddress(host, port), timeoutMillis);
+            socket.setSoTimeout(timeoutMillis);
+            BufferedReader in = new BufferedReader(new InputStreamReader(socket.getInputStream(), StandardCharsets.US_ASCII));
+            BufferedWriter out = new BufferedWriter(new OutputStreamWriter(socket.getOutputStream(), StandardCharsets.UTF_8));
+
+            expect(in, "greeting", 220);
+            command(in, out, "HELO cabbooking", 250);
+            command(in, out, "MAIL FROM:<" + from + ">", 250);
+            command(in, out, "RCPT TO:<" + message.getRecipient() + ">", 250, 251);
+            command(in, out, "DATA", 354);
+
+            out.write("From: " + from + "\r\n");
+            out.write("To: " + message.getRecipient() + "\r\n");
+            out.write("Subject: " + message.getSubject() + "\r\n");
+            out.write("Message-ID: <" + message.getEventId() + "@cabbooking>\r\n");
+            out.write("Date: " + DateTimeFormatter.RFC_1123_DATE_TIME.format(message.getCreatedAt().atOffset(ZoneOffset.UTC)) + "\r\n");
+            out.write("Content-Type: text/plain; charset=UTF-8\r\n\r\n");
+            for (String line : message.getBody().split("\r?\n", -1)) {
+                // a line starting with a dot gets a second one so the server does not read it as the end of the data
+                out.write(line.startsWith(".") ? "." + line : line);
+                out.write("\r\n");
+            }
+            command(in, out, ".", 250);
+            command(in, out, "QUIT", 221);
+        } catch (IOException e) {
+            throw new NotificationException("Mail server " + host + ":" + port + " could not be reached: " + e.getMessage(), true);
+        }
+    }
+
+    @Override
+    public String getName() {
+        return "smtp";
+    }
+
+    private static void command(BufferedReader in, BufferedWriter out, String command, int... expected) throws IOException {
+        out.write(command);
+        out.write("\r\n");
+        out.flush();
+        expect(in, command.split(":")[0], expected);
+    }
+
+    private static void expect(BufferedReader in, Object step, int... expected) throws IOException {
+        String line = in.readLine();
+        // multi-line replies repeat the code with a dash, the last line has a space
+        while (line != null && line.length() > 3 && line.charAt(3) == '-') {
+            line = in.readLine();
+        }
+        if (line == null || line.length() < 3) {
+            throw new IOException("connection closed during " + step);
+        }
+
+        int code;
+        try {
+            code = Integer.parseInt(line.substring(0, 3));
+        } catch (NumberFormatException e) {
+            throw new IOException("unreadable reply to " + step + ": " + line);
+        }
+        for (int accepted : expected) {
+            if (code == accepted) {
+                return;
+            }
+        }
+        throw new NotificationException("Mail server refused " + step + ": " + line, code < 500);
+    }
+}
@@ -0,0 +1,246 @@
+package com.example.cabbooking.service;
+
+import com.example.cabbooking.model.Location;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.ZonedDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+@Service
+public class SpeedProfileService {
+
+    public static final String DEFAULT_PROFILE_LOCATION = "classpath:speed-profiles.csv";
+    public static final String DEFAULT_TIME_ZONE = "America/New_York";
+    public static final int HOURS_PER_WEEK = 7 * 24;
+
+    private static final float FALLBACK_SPEED_KMH = 30.0f;
+
+    /**
+     * zone bounding boxes, four values per zone: minLat, minLng, maxLat, maxLng
+     */
+    private final double[] zoneBounds;
+
+    /**
+     * average speeds in km/h, HOURS_PER_WEEK values per zone indexed by hour of week
+     */
+    private final float[] speeds;
+
+    private final String[] zoneNames;
+    private final ZoneId zoneId;
+
+    /**
+     * hour of week for the current wall-clock hour, so most lookups skip calendar arithmetic
+     */
+    private volatile HourWindow currentHour = new HourWindow(Long.MIN_VALUE, Long.MIN_VALUE, 0);
+
+    public static class SpeedProfileException extends RuntimeException {
+        public SpeedProfileException(String message) {
+            super(message);
+        }
+    }
+
+    @Autowired
+    public SpeedProfileService(@Value("${route.speed-profile.location:" + DEFAULT_PROFILE_LOCATION + "}") String profileLocation,
+                               @Value("${route.speed-profile.time-zone:" + DEFAULT_TIME_ZONE + "}") String timeZone) {
+        this.zoneId = ZoneId.of(timeZone);
+
+        List<String> names = new ArrayList<>();
+        List<double[]> bounds = new ArrayList<>();
+        List<String[]> speedRows = new ArrayList<>();
+
+        try (BufferedReader reader = openProfile(profileLocation)) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                line = line.trim();
+                if (line.isEmpty() || line.startsWith("#")) {
+                    continue;
+                }
+
+                String[] fields = line.split(",");
+                if (fields[0].equals("ZONE") && fields.length == 6) {
+                    names.add(fields[1]);
+                    bounds.add(new double[]{Double.parseDouble(fields[2]), Double.parseDouble(fields[3]),
+                            Double.parseDouble(fields[4]), Double.parseDouble(fields[5])});
+                } else if (fields[0].equals("SPEED") && fields.length == 27) {
+                    speedRows.add(fields);
+                } else {
+                    throw new SpeedProfileException("Malformed speed profile line: " + line);
+                }
+            }
+        } catch (IOException e) {
+            System.out.println("✗ Speed profiles could not be loaded from " + profileLocation + ": " + e.getMessage());
+            System.out.println("  Falling back to a flat " + FALLBACK_SPEED_KMH + " km/h for every hour");
+            names.clear();
+            bounds.clear();
+            speedRows.clear();
+        }
+
+        if (names.isEmpty()) {
+            names.add("DEFAULT");
+            bounds.add(new double[]{-90.0, -180.0, 90.0, 180.0});
+        }
+
+        this.zoneNames = names.toArray(new String[0]);
+        this.zoneBounds = new double[zoneNames.length * 4];
+        this.speeds = new float[zoneNames.length * HOURS_PER_WEEK];
+        Arrays.fill(speeds, FALLBACK_SPEED_KMH);
+
+        for (int zone = 0; zone < zoneNames.length; zone++) {
+            System.arraycopy(bounds.get(zone), 0, zoneBounds, zone * 4, 4);
+        }
+
+        for (String[] row : speedRows) {
+            int zone = names.indexOf(row[1]);
+            int dayOfWeek = Integer.parseInt(row[2]);
+            if (zone < 0 || dayOfWeek < 1 || dayOfWeek > 7) {
+                throw new SpeedProfileException("Speed profile row refers to unknown zone or day: " + String.join(",", row));
+            }
+
+            int offset = zone * HOURS_PER_WEEK + (dayOfWeek - 1) * 24;
+            for (int hour = 0; hour < 24; hour++) {
+                float speed = Float.parseFloat(row[3 + hour]);
+                if (!(speed > 0)) {
+                    throw new SpeedProfileException("Speed must be positive in zone " + row[1] + ", day " + dayOfWeek + ", hour " + hour);
+                }
+                speeds[offset + hour] = speed;
+            }
+        }
+
+        System.out.println("✓ Speed profiles loaded for " + zoneNames.length + " zone(s)");
+    }
+
+    /**
+     * estimates how long a trip takes if it leaves now
+     * @param from pickup location
+     * @param to destination location
+     * @param distanceKm trip distance in kilometers
+     * @return estimated trip duration in minutes
+     */
+    public double estimateDurationMinutes(Location from, Location to, double distanceKm) {
+        return estimateDurationMinutes(from, to, distanceKm, System.currentTimeMillis());
+    }
+
+    /**
+     * estimates how long a trip takes for a given departure time
+     * @param from pickup location
+     * @param to destination location
+     * @param distanceKm trip distance in kilometers
+     * @param departureEpochMillis departure time in epoch milliseconds
+     * @return estimated trip duration in minutes
+     */
+    public double estimateDurationMinutes(Location from, Location to, double distanceKm, long departureEpochMillis) {
+        int zone = zoneOf((from.getLatitude() + to.getLatitude()) / 2,
+                (from.getLongitude() + to.getLongitude()) / 2);
+        float speed = speeds[zone * HOURS_PER_WEEK + hourOfWeek(departureEpochMillis)];
+        return distanceKm / speed * 60.0;
+    }
+
+    /**
+     * converts a local departure time in the profile time zone to epoch milliseconds
+     * @param departureTime local departure time
+     * @return departure time in epoch milliseconds
+     */
+    public long toEpochMillis(LocalDateTime departureTime) {
+        return departureTime.atZone(zoneId).toInstant().toEpochMilli();
+    }
+
+    /**
+     * finds the first zone whose bounding box contains the coordinates
+     * @param latitude latitude to look up
+     * @param longitude longitude to look up
+     * @return zone index, or the last (catch-all) zone when none match
+     */
+    public int zoneOf(double latitude, double longitude) {
+        int last = zoneNames.length - 1;
+        for (int zone = 0; zone < last; zone++) {
+            int b = zone * 4;
+            if (latitude >= zoneBounds[b] && longitude >= zoneBounds[b + 1]
+                    && latitude <= zoneBounds[b + 2] && longitude <= zoneBounds[b + 3]) {
+                return zone;
+            }
+        }
+        return last;
+    }
+
+    /**
+     * works out the hour of week (0 = Monday 00:00) in the profile time zone
+     * @param epochMillis point in time in epoch milliseconds
+     * @return hour of week between 0 and HOURS_PER_WEEK - 1
+     */
+    public int hourOfWeek(long epochMillis) {
+        HourWindow window = currentHour;
+        if (epochMillis >= window.start && epochMillis < window.end) {
+            return window.hourOfWeek;
+        }
+
+        ZonedDateTime hourStart = ZonedDateTime.ofInstant(Instant.ofEpochMilli(epochMillis), zoneId)
+                .truncatedTo(ChronoUnit.HOURS);
+        int hourOfWeek = (hourStart.getDayOfWeek().getValue() - 1) * 24 + hourStart.getHour();
+
+        // only cache the window for "now", not arbitrary departure times
+        long now = System.currentTimeMillis();
+        long start = hourStart.toInstant().toEpochMilli();
+        long end = hourStart.plusHours(1).toInstant().toEpochMilli();
+        if (now >= start && now < end) {
+            currentHour = new HourWindow(start, end, hourOfWeek);
+        }
+        return hourOfWeek;
+    }
+
+    /**
+     * gets the average speed for a zone and hour of week
+     * @param zone zone index from zoneOf()
+     * @param hourOfWeek hour of week from hourOfWeek()
+     * @return average speed in km/h
+     */
+    public float getSpeed(int zone, int hourOfWeek) {
+        return speeds[zone * HOURS_PER_WEEK + hourOfWeek];
+    }
+
+    public String getZoneName(int zone) {
+        return zoneNames[zone];
+    }
+
+    public int getZoneCount() {
+        return zoneNames.length;
+    }
+
+    private static BufferedReader openProfile(String location) throws IOException {
+        if (location.startsWith("classpath:")) {
+            InputStream in = SpeedProfileService.class.getClassLoader()
+                    .getResourceAsStream(location.substring("classpath:".length()));
+            if (in == null) {
+                throw new IOException("resource not found");
+            }
+            return new BufferedReader(new InputStreamReader(in, StandardCharsets.UTF_8));
+        }
+        return Files.newBufferedReader(Paths.get(location), StandardCharsets.UTF_8);
+    }
+
+    private static final class HourWindow {
+        private final long start;
+        private final long end;
+        private final int hourOfWeek;
+
+        private HourWindow(long start, long end, int hourOfWeek) {
+            this.start = start;
+            this.end = end;
+            this.hourOfWeek = hourOfWeek;
+        }
+    }
+}
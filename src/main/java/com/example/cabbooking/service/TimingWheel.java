@@ -0,0 +1,195 @@
+package com.example.cabbooking.service;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.function.ObjLongConsumer;
+
+/**
+ * hierarchical timing wheel holding one timer per key.
+ * Level 0 has one slot per tick, every higher level has slots 64 times wider than the one below. A timer goes into
+ * the lowest level whose span covers its deadline, and when time reaches a higher-level slot its timers are moved
+ * down a level, so scheduling and cancelling are O(1) and only the slots time passes over are ever looked at.
+ * Slots are intrusive linked lists, a timer costs one node however far away its deadline is.
+ * Not thread-safe, callers guard it with their own lock.
+ */
+final class TimingWheel {
+
+    private static final int SLOT_BITS = 6;
+    private static final int SLOTS = 1 << SLOT_BITS;
+    private static final int SLOT_MASK = SLOTS - 1;
+
+    private final long tickMillis;
+    private final int levels;
+    private final long maxDelayTicks;
+    // slots[level][slot] is the sentinel of a circular list
+    private final Node[][] slots;
+    private final Map<String, Node> timers = new HashMap<>();
+    private long currentTick;
+
+    TimingWheel(long tickMillis, int levels, long startMillis) {
+        if (tickMillis <= 0 || levels < 1 || levels * SLOT_BITS > 62) {
+            throw new IllegalArgumentException("Timing wheel needs a positive tick and between 1 and " + (62 / SLOT_BITS) + " levels");
+        }
+
+        this.tickMillis = tickMillis;
+        this.levels = levels;
+        this.maxDelayTicks = (1L << (levels * SLOT_BITS)) - 1;
+        this.slots = new Node[levels][SLOTS];
+        for (int level = 0; level < levels; level++) {
+            for (int slot = 0; slot < SLOTS; slot++) {
+                Node sentinel = new Node(null, 0, 0);
+                sentinel.previous = sentinel;
+                sentinel.next = sentinel;
+                slots[level][slot] = sentinel;
+            }
+        }
+        this.currentTick = Math.floorDiv(startMillis, tickMillis);
+    }
+
+    /**
+     * adds a timer, replacing any timer already held for the key
+     * @param key timer key
+     * @param deadlineMillis time the timer fires, a deadline already passed fires on the next advance
+     */
+    void schedule(String key, long deadlineMillis) {
+        cancel(key);
+
+        // rounded up so a timer never fires before its deadline
+        long expiryTick = Math.max(Math.floorDiv(deadlineMillis + tickMillis - 1, tickMillis), currentTick + 1);
+        Node node = new Node(key, deadlineMillis, expiryTick);
+        timers.put(key, node);
+        place(node);
+    }
+
+    /**
+     * @param key timer key
+     * @return true if a timer was removed
+     */
+    boolean cancel(String key) {
+        Node node = timers.remove(key);
+        if (node == null) {
+            return false;
+        }
+        unlink(node);
+        return true;
+    }
+
+    /**
+     * moves time forward, firing every timer whose deadline is reached
+     * @param nowMillis current time
+     * @param expired receives the key and deadline of each timer that fires, in deadline order
+     * @return number of timers fired
+     */
+    int advanceTo(long nowMillis, ObjLongConsumer<String> expired) {
+        long targetTick = Math.floorDiv(nowMillis, tickMillis);
+        int fired = 0;
+
+        while (currentTick < targetTick) {
+            currentTick++;
+
+            // move the timers of every higher-level slot that starts at this tick one level down, highest first,
+            // so timers cascaded from level 2 into slot 0 of level 1 are cascaded again straight away
+            for (int level = levels - 1; level > 0; level--) {
+                long shift = (long) level * SLOT_BITS;
+                if ((currentTick & ((1L << shift) - 1)) == 0) {
+                    Node sentinel = slots[level][(int) ((currentTick >>> shift) & SLOT_MASK)];
+                    Node node = sentinel.next;
+                    while (node != sentinel) {
+                        Node next = node.next;
+                        unlink(node);
+                        place(node);
+                        node = next;
+                    }
+                }
+            }
+
+            Node sentinel = slots[0][(int) (currentTick & SLOT_MASK)];
+            Node node = sentinel.next;
+            while (node != sentinel) {
+                Node next = node.next;
+                unlink(node);
+                if (node.expiryTick <= currentTick) {
+                    timers.remove(node.key);
+                    expired.accept(node.key, node.deadlineMillis);
+                    fired++;
+                } else {
+                    // a deadline beyond the wheel's span comes round again until it is in range
+                    place(node);
+                }
+                node = next;
+            }
+        }
+        return fired;
+    }
+
+    /**
+     * @param key timer key
+     * @return deadline of the timer, or -1 if there is none
+     */
+    long getDeadline(String key) {
+        Node node = timers.get(key);
+        return node == null ? -1 : node.deadlineMillis;
+    }
+
+    /**
+     * @param action receives the key and deadline of every pending timer
+     */
+    void forEach(ObjLongConsumer<String> action) {
+        for (Node node : timers.values()) {
+            action.accept(node.key, node.deadlineMillis);
+        }
+    }
+
+    int size() {
+        return timers.size();
+    }
+
+    long getTickMillis() {
+        return tickMillis;
+    }
+
+    /**
+     * @return longest delay a timer can have before it needs to go round the top level again
+     */
+    long getSpanMillis() {
+        return maxDelayTicks * tickMillis;
+    }
+
+    private void place(Node node) {
+        // timers further away than the wheel spans wait in the top level and are placed again when it comes round
+        long delay = Math.min(node.expiryTick - currentTick, maxDelayTicks);
+        long placementTick = currentTick + Math.max(delay, 0);
+
+        int level = 0;
+        while (level < levels - 1 && delay >= (1L << ((level + 1) * SLOT_BITS))) {
+            level++;
+        }
+
+        Node sentinel = slots[level][(int) ((placementTick >>> (level * SLOT_BITS)) & SLOT_MASK)];
+        node.previous = sentinel.previous;
+        node.next = sentinel;
+        sentinel.previous.next = node;
+        sentinel.previous = node;
+    }
+
+    private static void unlink(Node node) {
+        node.previous.next = node.next;
+        node.next.previous = node.previous;
+        node.previous = null;
+        node.next = null;
+    }
+
+    private static final class Node {
+        private final String key;
+        private final long deadlineMillis;
+        private final long expiryTick;
+        private Node previous;
+        private Node next;
+
+        private Node(String key, long deadlineMillis, long expiryTick) {
+            this.key = key;
+            this.deadlineMillis = deadlineMillis;
+            this.expiryTick = expiryTick;
+        }
+    }
+}
@@ -1,5 +1,6 @@
 package com.example.cabbooking.controller;
 
+import com.example.cabbooking.model.BookingStatus;
 import com.example.cabbooking.model.Client;
 import com.example.cabbooking.model.Location;
 import com.example.cabbooking.model.Route;
@@ -51,11 +52,14 @@ public class BookingControllerTest {
         MockitoAnnotations.openMocks(this);
 
         // Create the controller with the mock dependencies
+        IdempotencyStore idempotencyStore = new IdempotencyStore(86400, 100000, 10000);
         bookingController = new BookingController(
                 bookingService,
                 calculateFareService,
                 locationService,
-                routeService
+                routeService,
+                new FareQuoteService(calculateFareService, idempotencyStore, "test-secret", 300),
+                idempotencyStore
         );
 
         // Set up realistic test data
@@ -108,6 +112,7 @@ public class BookingControllerTest {
         assertEquals("Lincoln Memorial", responseBody.get("dropoffLocation"));
         assertEquals(2.5, responseBody.get("distance"));
         assertEquals(7.65, responseBody.get("fareAmount"));
+        assertNotNull(responseBody.get("quoteToken"));
 
         // VERIFY: Make sure the services were called correctly
         verify(locationService).findLocationByName("The White House");
@@ -248,6 +253,168 @@ public class BookingControllerTest {
         verify(calculateFareService).calculateFare(testRoute);
     }
 
+    @Test
+    public void testBookCab_RetryWithSameIdempotencyKeyBooksOnce() {
+        bookingController.bookCab("retry-1", testClient, testRoute);
+        bookingController.bookCab("retry-1", testClient, testRoute);
+
+        verify(bookingService, times(1)).bookCab(testClient, testRoute);
+    }
+
+    @Test
+    public void testBookCab_KeyReusedForDifferentBookingIs422() {
+        Route otherRoute = new Route(whiteHouse, new Location("The Pentagon", 38.8719, -77.0563), 4.0);
+        bookingController.bookCab("retry-2", testClient, testRoute);
+
+        IdempotencyStore.KeyReusedException exception = assertThrows(IdempotencyStore.KeyReusedException.class,
+                () -> bookingController.bookCab("retry-2", testClient, otherRoute));
+        ResponseEntity<Map<String, Object>> response = bookingController.handleKeyReused(exception);
+
+        assertEquals(HttpStatus.UNPROCESSABLE_ENTITY, response.getStatusCode());
+        assertEquals(false, response.getBody().get("success"));
+        verify(bookingService, times(1)).bookCab(any(Client.class), any(Route.class));
+    }
+
+    @Test
+    public void testBookCab_RequestInProgressIs409() {
+        ResponseEntity<Map<String, Object>> response = bookingController.handleRequestInProgress(
+                new IdempotencyStore.RequestInProgressException("Request with this key is still in progress"));
+
+        assertEquals(HttpStatus.CONFLICT, response.getStatusCode());
+        assertEquals("Request with this key is still in progress", response.getBody().get("error"));
+    }
+
+    @Test
+    public void testBookCab_InvalidIdempotencyKeyIs400() {
+        IdempotencyStore.InvalidIdempotencyKeyException exception = assertThrows(
+                IdempotencyStore.InvalidIdempotencyKeyException.class,
+                () -> bookingController.bookCab("x".repeat(300), testClient, testRoute));
+        ResponseEntity<Map<String, Object>> response = bookingController.handleInvalidIdempotencyKey(exception);
+
+        assertEquals(HttpStatus.BAD_REQUEST, response.getStatusCode());
+        verify(bookingService, never()).bookCab(any(Client.class), any(Route.class));
+    }
+
+    // === TESTING IDEMPOTENT TEST BOOKINGS ===
+
+    @Test
+    public void testTestBooking_RetryReplaysStoredResponse() {
+        BookingController.TestBookingRequest request = idempotencyTestRequest("Lincoln Memorial");
+        when(locationService.findLocationByName("The White House")).thenReturn(whiteHouse);
+        when(locationService.findLocationByName("Lincoln Memorial")).thenReturn(lincolnMemorial);
+        when(routeService.createRoute(whiteHouse, lincolnMemorial)).thenReturn(testRoute);
+        when(calculateFareService.calculateFare(testRoute)).thenReturn(7.65);
+
+        ResponseEntity<Map<String, Object>> first = bookingController.testBooking("key-1", request);
+        ResponseEntity<Map<String, Object>> retry = bookingController.testBooking("key-1", request);
+
+        assertEquals(HttpStatus.OK, retry.getStatusCode());
+        assertSame(first, retry, "Retry should replay the stored response");
+        verify(bookingService, times(1)).bookCab(any(Client.class), eq(testRoute));
+    }
+
+    @Test
+    public void testTestBooking_KeyReusedForDifferentRequest() {
+        when(locationService.findLocationByName("The White House")).thenReturn(whiteHouse);
+        when(locationService.findLocationByName("Lincoln Memorial")).thenReturn(lincolnMemorial);
+        when(routeService.createRoute(whiteHouse, lincolnMemorial)).thenReturn(testRoute);
+        when(calculateFareService.calculateFare(testRoute)).thenReturn(7.65);
+
+        bookingController.testBooking("key-2", idempotencyTestRequest("Lincoln Memorial"));
+        ResponseEntity<Map<String, Object>> response =
+                bookingController.testBooking("key-2", idempotencyTestRequest("Pentagon"));
+
+        assertEquals(HttpStatus.UNPROCESSABLE_ENTITY, response.getStatusCode());
+        verify(bookingService, times(1)).bookCab(any(Client.class), any(Route.class));
+    }
+
+    @Test
+    public void testTestBooking_FailedAttemptIsNotStored() {
+        BookingController.TestBookingRequest request = idempotencyTestRequest("Lincoln Memorial");
+        when(locationService.findLocationByName("The White House")).thenReturn(whiteHouse);
+        when(locationService.findLocationByName("Lincoln Memorial")).thenReturn(lincolnMemorial);
+        when(routeService.createRoute(whiteHouse, lincolnMemorial)).thenReturn(testRoute);
+        when(calculateFareService.calculateFare(testRoute))
+                .thenThrow(new RuntimeException("Fare service unavailable"))
+                .thenReturn(7.65);
+
+        ResponseEntity<Map<String, Object>> failed = bookingController.testBooking("key-3", request);
+        ResponseEntity<Map<String, Object>> retry = bookingController.testBooking("key-3", request);
+
+        assertEquals(HttpStatus.INTERNAL_SERVER_ERROR, failed.getStatusCode());
+        assertEquals(HttpStatus.OK, retry.getStatusCode());
+        verify(bookingService, times(1)).bookCab(any(Client.class), eq(testRoute));
+    }
+
+    private BookingController.TestBookingRequest idempotencyTestRequest(String dropoffLocation) {
+        BookingController.TestBookingRequest.TestClient testClientData =
+                new BookingController.TestBookingRequest.TestClient();
+        testClientData.setId(7);
+        testClientData.setName("Retry Test Client");
+        testClientData.setEmail("retry@test.com");
+        testClientData.setCredit_card("4111-1111-1111-1111");
+
+        BookingController.TestBookingRequest request = new BookingController.TestBookingRequest();
+        request.setClient(testClientData);
+        request.setPickupLocation("The White House");
+        request.setDropoffLocation(dropoffLocation);
+        return request;
+    }
+
+    // === TESTING BOOKING STATUS ENDPOINTS ===
+
+    @Test
+    public void testGetBookingStatus_Success() {
+        when(bookingService.getBookingStatus("booking-1")).thenReturn(BookingStatus.PAID);
+
+        ResponseEntity<Map<String, Object>> response = bookingController.getBookingStatus("booking-1");
+
+        assertEquals(HttpStatus.OK, response.getStatusCode());
+        assertEquals(BookingStatus.PAID, response.getBody().get("status"));
+    }
+
+    @Test
+    public void testGetBookingStatus_NotFound() {
+        when(bookingService.getBookingStatus("missing"))
+                .thenThrow(new BookingLifecycleService.BookingNotFoundException("Booking not found: missing"));
+
+        ResponseEntity<Map<String, Object>> response = bookingController.getBookingStatus("missing");
+
+        assertEquals(HttpStatus.NOT_FOUND, response.getStatusCode());
+    }
+
+    @Test
+    public void testUpdateBookingStatus_Cancel() {
+        when(bookingService.updateBookingStatus("booking-1", BookingStatus.CANCELLED)).thenReturn(BookingStatus.QUOTED);
+
+        ResponseEntity<Map<String, Object>> response =
+                bookingController.updateBookingStatus("booking-1", Map.of("status", "cancelled"));
+
+        assertEquals(HttpStatus.OK, response.getStatusCode());
+        assertEquals(BookingStatus.QUOTED, response.getBody().get("previousStatus"));
+        assertEquals(BookingStatus.CANCELLED, response.getBody().get("status"));
+    }
+
+    @Test
+    public void testUpdateBookingStatus_InvalidTransition() {
+        when(bookingService.updateBookingStatus("booking-1", BookingStatus.COMPLETED))
+                .thenThrow(new BookingLifecycleService.InvalidTransitionException("cannot move from REQUESTED to COMPLETED"));
+
+        ResponseEntity<Map<String, Object>> response =
+                bookingController.updateBookingStatus("booking-1", Map.of("status", "COMPLETED"));
+
+        assertEquals(HttpStatus.CONFLICT, response.getStatusCode());
+    }
+
+    @Test
+    public void testUpdateBookingStatus_UnknownStatus() {
+        ResponseEntity<Map<String, Object>> response =
+                bookingController.updateBookingStatus("booking-1", Map.of("status", "TELEPORTED"));
+
+        assertEquals(HttpStatus.BAD_REQUEST, response.getStatusCode());
+        verify(bookingService, never()).updateBookingStatus(any(), any());
+    }
+
     // === TESTING EDGE CASES AND DATA VALIDATION ===
 
     @Test
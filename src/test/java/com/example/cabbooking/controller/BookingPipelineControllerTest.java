@@ -0,0 +1,85 @@
+package com.example.cabbooking.controller;
+
+import com.example.cabbooking.model.Client;
+import com.example.cabbooking.model.Location;
+import com.example.cabbooking.service.BookingPipelineService;
+import com.example.cabbooking.service.LocationService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+
+import java.util.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+public class BookingPipelineControllerTest {
+
+    @Mock
+    private BookingPipelineService bookingPipelineService;
+
+    @Mock
+    private LocationService locationService;
+
+    private BookingPipelineController bookingPipelineController;
+
+    private Location whiteHouse;
+    private Location lincolnMemorial;
+
+    @BeforeEach
+    public void setUp() {
+        MockitoAnnotations.openMocks(this);
+        bookingPipelineController = new BookingPipelineController(bookingPipelineService, locationService);
+
+        whiteHouse = new Location("The White House", 38.8977, -77.0365);
+        lincolnMemorial = new Location("Lincoln Memorial", 38.8893, -77.0502);
+        when(locationService.findLocationByName("The White House")).thenReturn(whiteHouse);
+        when(locationService.findLocationByName("Lincoln Memorial")).thenReturn(lincolnMemorial);
+    }
+
+    @Test
+    public void testSubmitBooking_PipelineFull() {
+        when(bookingPipelineService.submit(any(Client.class), eq(whiteHouse), eq(lincolnMemorial)))
+                .thenThrow(new BookingPipelineService.PipelineFullException("Booking pipeline is full, please try again shortly"));
+
+        ResponseEntity<Map<String, Object>> response = bookingPipelineController.submitBooking(request("Lincoln Memorial"));
+
+        assertEquals(HttpStatus.TOO_MANY_REQUESTS, response.getStatusCode());
+        assertEquals("1", response.getHeaders().getFirst(HttpHeaders.RETRY_AFTER));
+        assertFalse((Boolean) response.getBody().get("success"));
+    }
+
+    @Test
+    public void testSubmitBooking_UnknownLocation() {
+        ResponseEntity<Map<String, Object>> response = bookingPipelineController.submitBooking(request("Atlantis"));
+
+        assertEquals(HttpStatus.BAD_REQUEST, response.getStatusCode());
+        verify(bookingPipelineService, never()).submit(any(), any(), any());
+    }
+
+    @Test
+    public void testGetBookingResult_Unknown() {
+        when(bookingPipelineService.getTicket("missing")).thenReturn(Optional.empty());
+
+        ResponseEntity<Map<String, Object>> response = bookingPipelineController.getBookingResult("missing");
+
+        assertEquals(HttpStatus.NOT_FOUND, response.getStatusCode());
+    }
+
+    private static BookingController.TestBookingRequest request(String dropoffLocation) {
+        BookingController.TestBookingRequest.TestClient testClient = new BookingController.TestBookingRequest.TestClient();
+        testClient.setId(1);
+        testClient.setName("John Doe");
+        testClient.setEmail("john@example.com");
+
+        BookingController.TestBookingRequest request = new BookingController.TestBookingRequest();
+        request.setClient(testClient);
+        request.setPickupLocation("The White House");
+        request.setDropoffLocation(dropoffLocation);
+        return request;
+    }
+}
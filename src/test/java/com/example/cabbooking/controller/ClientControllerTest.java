@@ -1,17 +1,28 @@
 package com.example.cabbooking.controller;
 
+import com.example.cabbooking.model.Booking;
+import com.example.cabbooking.model.BookingHistoryPage;
+import com.example.cabbooking.model.BookingStatus;
+import com.example.cabbooking.model.BookingSummary;
 import com.example.cabbooking.model.Client;
+import com.example.cabbooking.model.ClientPage;
 import com.example.cabbooking.repository.ClientRepository;
+import com.example.cabbooking.service.BookingHistoryService;
 import com.example.cabbooking.service.ClientService;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.BeforeEach;
 import org.mockito.Mock;
 import org.mockito.MockitoAnnotations;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.jdbc.core.RowMapper;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.time.Instant;
 import java.util.*;
 
 import static org.junit.jupiter.api.Assertions.*;
@@ -23,13 +34,16 @@ public class ClientControllerTest {
     private ClientService clientService;
     private ClientRepository clientRepository;
 
+    @Mock
+    private BookingHistoryService bookingHistoryService;
+
     private ClientController clientController;
     private Client testClient;
 
     @BeforeEach
     public void setUp() {
         MockitoAnnotations.openMocks(this);
-        clientController = new ClientController(clientService, clientRepository);
+        clientController = new ClientController(clientService, clientRepository, bookingHistoryService);
 
         testClient = new Client(1, "John Doe", "john@email.com",
                 "555-1234", "123 Main St", "4111-1111-1111-1111");
@@ -44,47 +58,96 @@ public class ClientControllerTest {
                 testClient,
                 new Client(2, "Jane Smith", "jane@email.com", "555-5678", "456 Oak Ave", "5555-5555-5555-4444")
         );
-        when(clientService.getAllClients()).thenReturn(expectedClients);
+        when(clientService.getClients(null, null)).thenReturn(new ClientPage(expectedClients, null));
 
         // Act
-        ResponseEntity<List<Client>> response = clientController.getAllClients();
+        ResponseEntity<List<Client>> response = clientController.getAllClients(null, null);
 
         // Assert
         assertEquals(HttpStatus.OK, response.getStatusCode());
         assertEquals(2, response.getBody().size());
         assertEquals("John Doe", response.getBody().get(0).getName());
         assertEquals("Jane Smith", response.getBody().get(1).getName());
+        assertNull(response.getHeaders().getFirst(HttpHeaders.LINK));
 
-        verify(clientService).getAllClients();
+        verify(clientService).getClients(null, null);
     }
 
     @Test
     public void testGetAllClientsWhenEmpty() {
         // Arrange
-        when(clientService.getAllClients()).thenReturn(new ArrayList<>());
+        when(clientService.getClients(null, null)).thenReturn(new ClientPage(new ArrayList<>(), null));
 
         // Act
-        ResponseEntity<List<Client>> response = clientController.getAllClients();
+        ResponseEntity<List<Client>> response = clientController.getAllClients(null, null);
 
         // Assert
         assertEquals(HttpStatus.OK, response.getStatusCode());
         assertTrue(response.getBody().isEmpty());
 
-        verify(clientService).getAllClients();
+        verify(clientService).getClients(null, null);
+    }
+
+    @Test
+    public void testGetAllClientsLinksToNextPage() {
+        // Arrange
+        when(clientService.getClients(0, 1)).thenReturn(new ClientPage(List.of(testClient), 1));
+
+        // Act
+        ResponseEntity<List<Client>> response = clientController.getAllClients(0, 1);
+
+        // Assert
+        assertEquals(HttpStatus.OK, response.getStatusCode());
+        assertEquals(1, response.getBody().size());
+        assertEquals("</clients?after=1&limit=1>; rel=\"next\"", response.getHeaders().getFirst(HttpHeaders.LINK));
+    }
+
+    @Test
+    public void testGetAllClientsWithInvalidLimit() {
+        // Arrange
+        when(clientService.getClients(null, 0))
+                .thenThrow(new ClientService.InvalidPageRequestException("Page size must be between 1 and 1000, got: 0"));
+
+        // Act & Assert
+        assertThrows(ClientController.InvalidClientDataException.class,
+                () -> clientController.getAllClients(null, 0));
     }
 
     @Test
     public void testGetAllClientsThrowsException() {
         // Arrange
-        when(clientService.getAllClients()).thenThrow(new RuntimeException("Database error"));
+        when(clientService.getClients(null, null)).thenThrow(new RuntimeException("Database error"));
 
         // Act & Assert
         RuntimeException exception = assertThrows(RuntimeException.class,
-                () -> clientController.getAllClients());
+                () -> clientController.getAllClients(null, null));
 
         assertTrue(exception.getMessage().contains("Failed to retrieve clients"));
     }
 
+    @Test
+    public void testStreamClientsWritesThroughService() throws Exception {
+        when(clientService.streamClients(any())).thenReturn(true);
+
+        // Act
+        ResponseEntity<StreamingResponseBody> response = clientController.streamClients();
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        response.getBody().writeTo(out);
+
+        // Assert
+        assertEquals(HttpStatus.OK, response.getStatusCode());
+        verify(clientService).streamClients(out);
+    }
+
+    @Test
+    public void testIncompleteStreamAbortsResponse() {
+        when(clientService.streamClients(any())).thenReturn(false);
+
+        ResponseEntity<StreamingResponseBody> response = clientController.streamClients();
+
+        assertThrows(IOException.class, () -> response.getBody().writeTo(new ByteArrayOutputStream()));
+    }
+
     // ================= GET CLIENT BY ID TESTS =================
 
     @Test
@@ -256,7 +319,6 @@ public class ClientControllerTest {
     @Test
     public void testUpdateClientSuccess() {
         // Arrange
-        when(clientService.clientExists(1)).thenReturn(true);
         when(clientService.updateClient(testClient)).thenReturn(true);
 
         // Act
@@ -267,23 +329,27 @@ public class ClientControllerTest {
         assertEquals("John Doe", response.getBody().getName());
         assertEquals(Integer.valueOf(1), response.getBody().getId());
 
-        verify(clientService).clientExists(1);
+        // a successful update is a single statement, nothing is checked first
+        verify(clientService, never()).clientExists(anyInt());
         verify(clientService).updateClient(testClient);
     }
 
     @Test
     public void testUpdateClientNotFound() {
         // Arrange
+        Client unknownClient = new Client(999, "John Doe", "john@email.com",
+                "555-1234", "123 Main St", "4111-1111-1111-1111");
+        when(clientService.updateClient(unknownClient)).thenReturn(false);
         when(clientService.clientExists(999)).thenReturn(false);
 
         // Act & Assert
         ClientController.ClientNotFoundException exception = assertThrows(
                 ClientController.ClientNotFoundException.class,
-                () -> clientController.updateClient(999, testClient)
+                () -> clientController.updateClient(999, unknownClient)
         );
 
         assertEquals("Client with ID 999 not found", exception.getMessage());
-        verify(clientService, never()).updateClient(any(Client.class));
+        verify(clientService).updateClient(unknownClient);
     }
 
     @Test
@@ -364,7 +430,6 @@ public class ClientControllerTest {
     @Test
     public void testDeleteClientSuccess() {
         // Arrange
-        when(clientService.clientExists(1)).thenReturn(true);
         when(clientService.deleteClient(1)).thenReturn(true);
 
         // Act
@@ -374,13 +439,15 @@ public class ClientControllerTest {
         assertEquals(HttpStatus.NO_CONTENT, response.getStatusCode());
         assertNull(response.getBody());
 
-        verify(clientService).clientExists(1);
+        // a successful delete is a single statement, nothing is checked first
+        verify(clientService, never()).clientExists(anyInt());
         verify(clientService).deleteClient(1);
     }
 
     @Test
     public void testDeleteClientNotFound() {
         // Arrange
+        when(clientService.deleteClient(999)).thenReturn(false);
         when(clientService.clientExists(999)).thenReturn(false);
 
         // Act & Assert
@@ -390,8 +457,8 @@ public class ClientControllerTest {
         );
 
         assertEquals("Client with ID 999 not found", exception.getMessage());
+        verify(clientService).deleteClient(999);
         verify(clientService).clientExists(999);
-        verify(clientService, never()).deleteClient(anyInt());
     }
 
     @Test
@@ -424,6 +491,127 @@ public class ClientControllerTest {
         verify(clientService, never()).deleteClient(anyInt());
     }
 
+    // ================= CLIENT COUNT TESTS =================
+
+    @Test
+    public void testGetClientCount() {
+        when(clientService.getClientCount()).thenReturn(42L);
+
+        ResponseEntity<Map<String, Object>> response = clientController.getClientCount(false);
+
+        assertEquals(HttpStatus.OK, response.getStatusCode());
+        assertEquals(42L, response.getBody().get("count"));
+        assertEquals(false, response.getBody().get("approximate"));
+        verify(clientService, never()).getApproximateClientCount();
+    }
+
+    @Test
+    public void testGetApproximateClientCount() {
+        when(clientService.getApproximateClientCount()).thenReturn(40L);
+
+        ResponseEntity<Map<String, Object>> response = clientController.getClientCount(true);
+
+        assertEquals(40L, response.getBody().get("count"));
+        assertEquals(true, response.getBody().get("approximate"));
+        verify(clientService, never()).getClientCount();
+    }
+
+    @Test
+    public void testGetClientCountWhenDatabaseError() {
+        when(clientService.getClientCount()).thenReturn(-1L);
+
+        RuntimeException exception = assertThrows(RuntimeException.class,
+                () -> clientController.getClientCount(false));
+
+        assertTrue(exception.getMessage().contains("Failed to count clients"));
+    }
+
+    @Test
+    public void testGetCacheMetrics() {
+        Map<String, Object> metrics = new HashMap<>();
+        metrics.put("hitRatio", 0.9);
+        when(clientService.getCacheMetrics()).thenReturn(metrics);
+
+        ResponseEntity<Map<String, Object>> response = clientController.getCacheMetrics();
+
+        assertEquals(HttpStatus.OK, response.getStatusCode());
+        assertEquals(0.9, response.getBody().get("hitRatio"));
+    }
+
+    // ================= CLIENT SEARCH TESTS =================
+
+    @Test
+    public void testSearchClientsByPhone() {
+        when(clientService.searchClients(null, "(555) 123-4567", null, 10)).thenReturn(Arrays.asList(testClient));
+
+        ResponseEntity<List<Client>> response = clientController.searchClients(null, "(555) 123-4567", null, 10);
+
+        assertEquals(HttpStatus.OK, response.getStatusCode());
+        assertEquals(1, response.getBody().size());
+    }
+
+    @Test
+    public void testSearchClientsWithInvalidCriteria() {
+        when(clientService.searchClients("john@email.com", null, "Jo", null))
+                .thenThrow(new ClientService.InvalidSearchException("Search by exactly one of email, phone or name"));
+
+        assertThrows(ClientController.InvalidClientDataException.class,
+                () -> clientController.searchClients("john@email.com", null, "Jo", null));
+    }
+
+    // ================= CLIENT BOOKING HISTORY TESTS =================
+
+    @Test
+    public void testGetClientBookingsFullView() {
+        BookingHistoryPage<Booking> page = new BookingHistoryPage<>(new ArrayList<>(), "next");
+        when(clientService.clientExists(1)).thenReturn(true);
+        when(bookingHistoryService.getBookings(1, null, 10)).thenReturn(page);
+
+        ResponseEntity<BookingHistoryPage<?>> response = clientController.getClientBookings(1, null, 10, "full");
+
+        assertEquals(HttpStatus.OK, response.getStatusCode());
+        assertSame(page, response.getBody());
+        verify(bookingHistoryService, never()).getBookingSummaries(anyInt(), any(), any());
+    }
+
+    @Test
+    public void testGetClientBookingsSummaryView() {
+        BookingHistoryPage<BookingSummary> page = new BookingHistoryPage<>(List.of(
+                new BookingSummary("b1", Instant.now(), "The White House", "Lincoln Memorial", 12.5, BookingStatus.COMPLETED)), null);
+        when(clientService.clientExists(1)).thenReturn(true);
+        when(bookingHistoryService.getBookingSummaries(1, "abc", null)).thenReturn(page);
+
+        ResponseEntity<BookingHistoryPage<?>> response = clientController.getClientBookings(1, "abc", null, "summary");
+
+        assertEquals(HttpStatus.OK, response.getStatusCode());
+        assertSame(page, response.getBody());
+    }
+
+    @Test
+    public void testGetClientBookingsUnknownClient() {
+        when(clientService.clientExists(99)).thenReturn(false);
+
+        assertThrows(ClientController.ClientNotFoundException.class,
+                () -> clientController.getClientBookings(99, null, null, "full"));
+        verify(bookingHistoryService, never()).getBookings(anyInt(), any(), any());
+    }
+
+    @Test
+    public void testGetClientBookingsInvalidView() {
+        assertThrows(ClientController.InvalidClientDataException.class,
+                () -> clientController.getClientBookings(1, null, null, "everything"));
+    }
+
+    @Test
+    public void testGetClientBookingsInvalidCursor() {
+        when(clientService.clientExists(1)).thenReturn(true);
+        when(bookingHistoryService.getBookings(1, "garbage", null))
+                .thenThrow(new BookingHistoryService.InvalidPageRequestException("Invalid page cursor: garbage"));
+
+        assertThrows(ClientController.InvalidClientDataException.class,
+                () -> clientController.getClientBookings(1, "garbage", null, "full"));
+    }
+
     // ================= INTEGRATION-STYLE TESTS =================
 
     @Test
@@ -442,13 +630,11 @@ public class ClientControllerTest {
 
         // 3. Update the client
         testClient.setName("John Updated");
-        when(clientService.clientExists(1)).thenReturn(true);
         when(clientService.updateClient(testClient)).thenReturn(true);
         ResponseEntity<Client> updateResponse = clientController.updateClient(1, testClient);
         assertEquals(HttpStatus.OK, updateResponse.getStatusCode());
 
         // 4. Delete the client
-        when(clientService.clientExists(1)).thenReturn(true);
         when(clientService.deleteClient(1)).thenReturn(true);
         ResponseEntity<Void> deleteResponse = clientController.deleteClient(1);
         assertEquals(HttpStatus.NO_CONTENT, deleteResponse.getStatusCode());
@@ -456,7 +642,7 @@ public class ClientControllerTest {
         // Verify all calls were made
         verify(clientService).addClient(testClient);
         verify(clientService).getClientById(1);
-        verify(clientService, times(2)).clientExists(1); // Called in update and delete
+        verify(clientService, never()).clientExists(anyInt()); // only checked when an update or delete finds no row
         verify(clientService).updateClient(testClient);
         verify(clientService).deleteClient(1);
     }
@@ -0,0 +1,74 @@
+package com.example.cabbooking.controller;
+
+import com.example.cabbooking.service.ClientExportService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+public class ClientExportControllerTest {
+
+    @Mock
+    private ClientExportService clientExportService;
+
+    private ClientExportController clientExportController;
+
+    @BeforeEach
+    public void setUp() {
+        MockitoAnnotations.openMocks(this);
+        clientExportController = new ClientExportController(clientExportService);
+    }
+
+    @Test
+    public void testExportCsvGzipped() throws Exception {
+        ResponseEntity<StreamingResponseBody> response = clientExportController.exportClients("csv", true);
+
+        assertEquals(HttpStatus.OK, response.getStatusCode());
+        assertEquals("attachment; filename=\"clients.csv.gz\"",
+                response.getHeaders().getFirst(HttpHeaders.CONTENT_DISPOSITION));
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        response.getBody().writeTo(out);
+        verify(clientExportService).export(out, ClientExportService.Format.CSV, true);
+    }
+
+    @Test
+    public void testExportDefaultsToNdjson() throws Exception {
+        ResponseEntity<StreamingResponseBody> response = clientExportController.exportClients("ndjson", false);
+
+        assertEquals("attachment; filename=\"clients.ndjson\"",
+                response.getHeaders().getFirst(HttpHeaders.CONTENT_DISPOSITION));
+    }
+
+    @Test
+    public void testIncompleteExportAbortsResponse() {
+        when(clientExportService.export(any(), eq(ClientExportService.Format.NDJSON), eq(false))).thenReturn(-1L);
+
+        ResponseEntity<StreamingResponseBody> response = clientExportController.exportClients("ndjson", false);
+
+        assertThrows(IOException.class, () -> response.getBody().writeTo(new ByteArrayOutputStream()));
+    }
+
+    @Test
+    public void testExportWithUnknownFormat() {
+        assertThrows(ClientExportService.InvalidExportException.class,
+                () -> clientExportController.exportClients("xml", false));
+        verifyNoInteractions(clientExportService);
+    }
+
+    @Test
+    public void testExportCommandRequested() {
+        assertTrue(ClientExportCommand.isRequested("--server.port=0", "--export-clients=clients.csv"));
+        assertFalse(ClientExportCommand.isRequested("--export-format=csv"));
+    }
+}
@@ -0,0 +1,65 @@
+package com.example.cabbooking.controller;
+
+import com.example.cabbooking.model.ClientImportResult;
+import com.example.cabbooking.service.ClientImportService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+public class ClientImportControllerTest {
+
+    @Mock
+    private ClientImportService clientImportService;
+
+    private ClientImportController clientImportController;
+    private InputStream body;
+
+    @BeforeEach
+    public void setUp() {
+        MockitoAnnotations.openMocks(this);
+        clientImportController = new ClientImportController(clientImportService);
+        body = new ByteArrayInputStream("name,email\nJohn Doe,john@email.com\n".getBytes());
+    }
+
+    @Test
+    public void testImportCsvCreated() {
+        ClientImportResult result = new ClientImportResult();
+        result.setRows(1);
+        result.setImported(1);
+        when(clientImportService.importClients(body, ClientImportService.Format.CSV)).thenReturn(result);
+
+        ResponseEntity<ClientImportResult> response = clientImportController.importClients("text/csv", body);
+
+        assertEquals(HttpStatus.CREATED, response.getStatusCode());
+        assertEquals(1, response.getBody().getImported());
+    }
+
+    @Test
+    public void testImportNdjsonWithNothingImported() {
+        ClientImportResult result = new ClientImportResult();
+        result.setRows(1);
+        result.setFailed(1);
+        when(clientImportService.importClients(body, ClientImportService.Format.NDJSON)).thenReturn(result);
+
+        ResponseEntity<ClientImportResult> response = clientImportController.importClients("application/x-ndjson", body);
+
+        assertEquals(HttpStatus.OK, response.getStatusCode());
+        assertEquals(1, response.getBody().getFailed());
+    }
+
+    @Test
+    public void testImportWithUnsupportedContentType() {
+        assertThrows(ClientImportService.InvalidImportException.class,
+                () -> clientImportController.importClients("application/json", body));
+        verifyNoInteractions(clientImportService);
+    }
+}
@@ -0,0 +1,41 @@
+package com.example.cabbooking.controller;
+
+import com.example.cabbooking.service.ConnectionPoolMetrics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+
+import java.util.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+public class DatabaseControllerTest {
+
+    @Mock
+    private ConnectionPoolMetrics connectionPoolMetrics;
+
+    private DatabaseController databaseController;
+
+    @BeforeEach
+    public void setUp() {
+        MockitoAnnotations.openMocks(this);
+        databaseController = new DatabaseController(connectionPoolMetrics);
+    }
+
+    @Test
+    public void testGetPoolMetrics() {
+        Map<String, Object> metrics = new HashMap<>();
+        metrics.put("active", 3);
+        metrics.put("pending", 0);
+        when(connectionPoolMetrics.getMetrics()).thenReturn(metrics);
+
+        ResponseEntity<Map<String, Object>> response = databaseController.getPoolMetrics();
+
+        assertEquals(HttpStatus.OK, response.getStatusCode());
+        assertEquals(3, response.getBody().get("active"));
+    }
+}
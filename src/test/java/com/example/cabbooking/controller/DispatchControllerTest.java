@@ -0,0 +1,42 @@
+package com.example.cabbooking.controller;
+
+import com.example.cabbooking.service.DispatchService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+
+import java.util.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+public class DispatchControllerTest {
+
+    @Mock
+    private DispatchService dispatchService;
+
+    private DispatchController dispatchController;
+
+    @BeforeEach
+    public void setUp() {
+        MockitoAnnotations.openMocks(this);
+        dispatchController = new DispatchController(dispatchService);
+    }
+
+    @Test
+    public void testGetMetrics() {
+        Map<String, Object> metrics = new HashMap<>();
+        metrics.put("mode", DispatchService.DispatchMode.BATCH);
+        metrics.put("batchPickupKm", 12.5);
+        metrics.put("greedyPickupKm", 15.0);
+        when(dispatchService.getMetrics()).thenReturn(metrics);
+
+        ResponseEntity<Map<String, Object>> response = dispatchController.getMetrics();
+
+        assertEquals(HttpStatus.OK, response.getStatusCode());
+        assertEquals(12.5, response.getBody().get("batchPickupKm"));
+    }
+}
@@ -0,0 +1,82 @@
+package com.example.cabbooking.controller;
+
+import com.example.cabbooking.model.Driver;
+import com.example.cabbooking.model.DriverStatus;
+import com.example.cabbooking.model.VehicleClass;
+import com.example.cabbooking.service.FleetService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+
+import java.util.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+public class FleetControllerTest {
+
+    @Mock
+    private FleetService fleetService;
+
+    private FleetController fleetController;
+    private Driver testDriver;
+
+    @BeforeEach
+    public void setUp() {
+        MockitoAnnotations.openMocks(this);
+        fleetController = new FleetController(fleetService);
+
+        testDriver = new Driver("d1", "Sam", 38.8980, -77.0360, DriverStatus.AVAILABLE, VehicleClass.STANDARD);
+    }
+
+    @Test
+    public void testRegisterDriver() {
+        when(fleetService.registerDriver(testDriver)).thenReturn(testDriver);
+
+        ResponseEntity<Driver> response = fleetController.registerDriver(testDriver);
+
+        assertEquals(HttpStatus.CREATED, response.getStatusCode());
+        assertEquals("d1", response.getBody().getId());
+    }
+
+    @Test
+    public void testGetDriverNotFound() {
+        when(fleetService.getDriver("missing")).thenReturn(Optional.empty());
+
+        assertThrows(FleetService.DriverNotFoundException.class, () -> fleetController.getDriver("missing"));
+    }
+
+    @Test
+    public void testUpdateLocation() {
+        ResponseEntity<Void> response = fleetController.updateLocation("d1", 38.9, -77.0);
+
+        assertEquals(HttpStatus.NO_CONTENT, response.getStatusCode());
+        verify(fleetService).updateLocation("d1", 38.9, -77.0);
+    }
+
+    @Test
+    public void testFindNearest() {
+        when(fleetService.findNearestAvailable(38.8977, -77.0365, 5, VehicleClass.STANDARD))
+                .thenReturn(Arrays.asList(testDriver));
+
+        ResponseEntity<List<Driver>> response = fleetController.findNearest(38.8977, -77.0365, 5, VehicleClass.STANDARD);
+
+        assertEquals(HttpStatus.OK, response.getStatusCode());
+        assertEquals(1, response.getBody().size());
+    }
+
+    @Test
+    public void testExceptionHandlers() {
+        ResponseEntity<Map<String, Object>> notFound =
+                fleetController.handleDriverNotFound(new FleetService.DriverNotFoundException("Driver not found: d9"));
+        ResponseEntity<Map<String, Object>> invalid =
+                fleetController.handleInvalidDriver(new FleetService.InvalidDriverException("Invalid coordinates"));
+
+        assertEquals(HttpStatus.NOT_FOUND, notFound.getStatusCode());
+        assertEquals(HttpStatus.BAD_REQUEST, invalid.getStatusCode());
+        assertEquals(false, invalid.getBody().get("success"));
+    }
+}
@@ -0,0 +1,115 @@
+package com.example.cabbooking.controller;
+
+import com.example.cabbooking.model.Location;
+import com.example.cabbooking.model.PoolAssignment;
+import com.example.cabbooking.model.PooledRide;
+import com.example.cabbooking.model.RideStop;
+import com.example.cabbooking.service.LocationService;
+import com.example.cabbooking.service.PoolingService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+
+import java.util.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+public class PoolControllerTest {
+
+    @Mock
+    private PoolingService poolingService;
+
+    @Mock
+    private LocationService locationService;
+
+    private PoolController poolController;
+
+    private Location whiteHouse;
+    private Location capitol;
+
+    @BeforeEach
+    public void setUp() {
+        MockitoAnnotations.openMocks(this);
+        poolController = new PoolController(poolingService, locationService);
+
+        whiteHouse = new Location("The White House", 38.8977, -77.0365);
+        capitol = new Location("US Capitol", 38.8899, -77.0091);
+        when(locationService.findLocationByName("The White House")).thenReturn(whiteHouse);
+        when(locationService.findLocationByName("US Capitol")).thenReturn(capitol);
+    }
+
+    // =================== SUCCESS CASE TESTS ===================
+
+    @Test
+    public void testRequestRide_Success() {
+        PoolAssignment assignment = new PoolAssignment("b1", "ride-1", true, 0, 1, 2.5, 2.5, 2.5);
+        when(poolingService.requestRide("b1", whiteHouse, capitol)).thenReturn(assignment);
+
+        ResponseEntity<?> response = poolController.requestRide(
+                new PoolController.PoolRequest("b1", "The White House", "US Capitol"));
+
+        assertEquals(HttpStatus.CREATED, response.getStatusCode());
+        assertEquals(assignment, response.getBody());
+    }
+
+    @Test
+    public void testGetRide_Success() {
+        PooledRide ride = new PooledRide("ride-1", new ArrayList<>(), 1, false, 2.5, 0);
+        when(poolingService.getRide("ride-1")).thenReturn(Optional.of(ride));
+
+        ResponseEntity<PooledRide> response = poolController.getRide("ride-1");
+
+        assertEquals(HttpStatus.OK, response.getStatusCode());
+        assertEquals(ride, response.getBody());
+    }
+
+    @Test
+    public void testCompleteNextStop_Success() {
+        RideStop stop = new RideStop("b1", RideStop.StopType.PICKUP, whiteHouse);
+        when(poolingService.completeNextStop("ride-1")).thenReturn(stop);
+
+        ResponseEntity<RideStop> response = poolController.completeNextStop("ride-1");
+
+        assertEquals(HttpStatus.OK, response.getStatusCode());
+        assertEquals(stop, response.getBody());
+    }
+
+    @Test
+    public void testCancel_Success() {
+        ResponseEntity<Void> response = poolController.cancel("b1");
+
+        assertEquals(HttpStatus.NO_CONTENT, response.getStatusCode());
+        verify(poolingService).cancel("b1");
+    }
+
+    // =================== ERROR CASE TESTS ===================
+
+    @Test
+    public void testRequestRide_UnknownLocation() {
+        ResponseEntity<?> response = poolController.requestRide(
+                new PoolController.PoolRequest("b1", "Atlantis", "US Capitol"));
+
+        assertEquals(HttpStatus.BAD_REQUEST, response.getStatusCode());
+        verify(poolingService, never()).requestRide(any(), any(), any());
+    }
+
+    @Test
+    public void testGetRide_NotFound() {
+        when(poolingService.getRide("missing")).thenReturn(Optional.empty());
+
+        assertThrows(PoolingService.RideNotFoundException.class, () -> poolController.getRide("missing"));
+    }
+
+    @Test
+    public void testHandleInvalidRequest_ReturnsConflict() {
+        ResponseEntity<Map<String, Object>> response = poolController.handleInvalidRequest(
+                new PoolingService.InvalidPoolRequestException("Booking b1 has already been picked up"));
+
+        assertEquals(HttpStatus.CONFLICT, response.getStatusCode());
+        assertFalse((Boolean) response.getBody().get("success"));
+    }
+}
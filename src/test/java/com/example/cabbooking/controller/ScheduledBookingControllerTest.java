@@ -0,0 +1,134 @@
+package com.example.cabbooking.controller;
+
+import com.example.cabbooking.model.Booking;
+import com.example.cabbooking.model.BookingStatus;
+import com.example.cabbooking.model.Client;
+import com.example.cabbooking.model.Location;
+import com.example.cabbooking.service.AdvanceBookingService;
+import com.example.cabbooking.service.LocationService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+
+import java.time.Instant;
+import java.util.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+public class ScheduledBookingControllerTest {
+
+    private static final String PICKUP_TIME = "2030-01-01T09:30:00Z";
+
+    @Mock
+    private AdvanceBookingService advanceBookingService;
+
+    @Mock
+    private LocationService locationService;
+
+    private ScheduledBookingController scheduledBookingController;
+
+    private Location whiteHouse;
+    private Location lincolnMemorial;
+
+    @BeforeEach
+    public void setUp() {
+        MockitoAnnotations.openMocks(this);
+        scheduledBookingController = new ScheduledBookingController(advanceBookingService, locationService);
+
+        whiteHouse = new Location("The White House", 38.8977, -77.0365);
+        lincolnMemorial = new Location("Lincoln Memorial", 38.8893, -77.0502);
+        when(locationService.findLocationByName("The White House")).thenReturn(whiteHouse);
+        when(locationService.findLocationByName("Lincoln Memorial")).thenReturn(lincolnMemorial);
+    }
+
+    // =================== SUCCESS CASE TESTS ===================
+
+    @Test
+    public void testScheduleBooking_Success() {
+        Booking booking = new Booking("b1", 1, whiteHouse, lincolnMemorial, 1.6, 5.0, 12.5, BookingStatus.REQUESTED, Instant.now());
+        when(advanceBookingService.scheduleBooking(any(Client.class), eq(whiteHouse), eq(lincolnMemorial),
+                eq(Instant.parse(PICKUP_TIME)))).thenReturn(booking);
+
+        ResponseEntity<Map<String, Object>> response = scheduledBookingController.scheduleBooking(request(PICKUP_TIME));
+
+        assertEquals(HttpStatus.CREATED, response.getStatusCode());
+        assertEquals("b1", response.getBody().get("bookingId"));
+        assertEquals(PICKUP_TIME, response.getBody().get("pickupTime"));
+    }
+
+    @Test
+    public void testGetScheduledBooking_Pending() {
+        when(advanceBookingService.getPickupTime("b1")).thenReturn(Optional.of(Instant.parse(PICKUP_TIME)));
+
+        ResponseEntity<Map<String, Object>> response = scheduledBookingController.getScheduledBooking("b1");
+
+        assertEquals(HttpStatus.OK, response.getStatusCode());
+        assertEquals(PICKUP_TIME, response.getBody().get("pickupTime"));
+    }
+
+    @Test
+    public void testCancelScheduledBooking_Success() {
+        ResponseEntity<Map<String, Object>> response = scheduledBookingController.cancelScheduledBooking("b1");
+
+        assertEquals(HttpStatus.NO_CONTENT, response.getStatusCode());
+        verify(advanceBookingService).cancelScheduled("b1");
+    }
+
+    // =================== ERROR CASE TESTS ===================
+
+    @Test
+    public void testScheduleBooking_InvalidPickupTime() {
+        ResponseEntity<Map<String, Object>> response = scheduledBookingController.scheduleBooking(request("tomorrow morning"));
+
+        assertEquals(HttpStatus.BAD_REQUEST, response.getStatusCode());
+        verify(advanceBookingService, never()).scheduleBooking(any(), any(), any(), any());
+    }
+
+    @Test
+    public void testScheduleBooking_TooSoon() {
+        when(advanceBookingService.scheduleBooking(any(Client.class), any(), any(), any()))
+                .thenThrow(new AdvanceBookingService.InvalidScheduleException("Advance bookings must be made at least 30 minutes before pickup"));
+
+        ResponseEntity<Map<String, Object>> response = scheduledBookingController.scheduleBooking(request(PICKUP_TIME));
+
+        assertEquals(HttpStatus.BAD_REQUEST, response.getStatusCode());
+        assertFalse((Boolean) response.getBody().get("success"));
+    }
+
+    @Test
+    public void testGetScheduledBooking_NotPending() {
+        when(advanceBookingService.getPickupTime("b1")).thenReturn(Optional.empty());
+
+        ResponseEntity<Map<String, Object>> response = scheduledBookingController.getScheduledBooking("b1");
+
+        assertEquals(HttpStatus.NOT_FOUND, response.getStatusCode());
+    }
+
+    @Test
+    public void testCancelScheduledBooking_NotPending() {
+        doThrow(new AdvanceBookingService.ScheduledBookingNotFoundException("No pending advance booking: b1"))
+                .when(advanceBookingService).cancelScheduled("b1");
+
+        ResponseEntity<Map<String, Object>> response = scheduledBookingController.cancelScheduledBooking("b1");
+
+        assertEquals(HttpStatus.NOT_FOUND, response.getStatusCode());
+    }
+
+    private static ScheduledBookingController.ScheduledBookingRequest request(String pickupTime) {
+        BookingController.TestBookingRequest.TestClient testClient = new BookingController.TestBookingRequest.TestClient();
+        testClient.setId(1);
+        testClient.setName("John Doe");
+        testClient.setEmail("john@example.com");
+
+        ScheduledBookingController.ScheduledBookingRequest request = new ScheduledBookingController.ScheduledBookingRequest();
+        request.setClient(testClient);
+        request.setPickupLocation("The White House");
+        request.setDropoffLocation("Lincoln Memorial");
+        request.setPickupTime(pickupTime);
+        return request;
+    }
+}
@@ -0,0 +1,50 @@
+package com.example.cabbooking.model;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class BookingStatusTest {
+
+    @Test
+    void happyPathTransitionsAreAllowedTest() {
+        assertTrue(BookingStatus.REQUESTED.canTransitionTo(BookingStatus.QUOTED));
+        assertTrue(BookingStatus.QUOTED.canTransitionTo(BookingStatus.PAID));
+        assertTrue(BookingStatus.PAID.canTransitionTo(BookingStatus.DISPATCHED));
+        assertTrue(BookingStatus.DISPATCHED.canTransitionTo(BookingStatus.COMPLETED));
+    }
+
+    @Test
+    void activeBookingsCanBeCancelledTest() {
+        assertTrue(BookingStatus.REQUESTED.canTransitionTo(BookingStatus.CANCELLED));
+        assertTrue(BookingStatus.QUOTED.canTransitionTo(BookingStatus.CANCELLED));
+        assertTrue(BookingStatus.PAID.canTransitionTo(BookingStatus.CANCELLED));
+        assertTrue(BookingStatus.DISPATCHED.canTransitionTo(BookingStatus.CANCELLED));
+    }
+
+    @Test
+    void skippingPaymentIsNotAllowedTest() {
+        assertFalse(BookingStatus.REQUESTED.canTransitionTo(BookingStatus.DISPATCHED));
+        assertFalse(BookingStatus.QUOTED.canTransitionTo(BookingStatus.COMPLETED));
+        assertFalse(BookingStatus.PAID.canTransitionTo(BookingStatus.QUOTED));
+        assertFalse(BookingStatus.REQUESTED.canTransitionTo(null));
+    }
+
+    @Test
+    void terminalStatusesCannotMoveTest() {
+        for (BookingStatus next : BookingStatus.values()) {
+            assertFalse(BookingStatus.COMPLETED.canTransitionTo(next));
+            assertFalse(BookingStatus.CANCELLED.canTransitionTo(next));
+        }
+        assertTrue(BookingStatus.COMPLETED.isTerminal());
+        assertTrue(BookingStatus.CANCELLED.isTerminal());
+        assertFalse(BookingStatus.PAID.isTerminal());
+    }
+
+    @Test
+    void fromOrdinalTest() {
+        assertEquals(BookingStatus.DISPATCHED, BookingStatus.fromOrdinal(BookingStatus.DISPATCHED.ordinal()));
+        assertThrows(IllegalArgumentException.class, () -> BookingStatus.fromOrdinal(-1));
+        assertThrows(IllegalArgumentException.class, () -> BookingStatus.fromOrdinal(BookingStatus.values().length));
+    }
+}
@@ -0,0 +1,183 @@
+package com.example.cabbooking.repository;
+
+import com.example.cabbooking.model.BookingStatus;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class BookingJournalTest {
+
+    @TempDir
+    Path tempDir;
+
+    // =================== APPEND AND RECOVERY TESTS ===================
+
+    @Test
+    void emptyDirectoryRecoversNothingTest() {
+        BookingJournal journal = new BookingJournal(tempDir.toString(), 16, false);
+
+        assertTrue(journal.getRecoveredState().isEmpty());
+        assertEquals(0, journal.getLastSequence());
+        journal.close();
+    }
+
+    @Test
+    void transitionsAreReplayedOnRestartTest() {
+        String first = UUID.randomUUID().toString();
+        String second = UUID.randomUUID().toString();
+
+        BookingJournal journal = new BookingJournal(tempDir.toString(), 16, false);
+        assertEquals(1, journal.append(first, null, BookingStatus.REQUESTED));
+        journal.append(second, null, BookingStatus.REQUESTED);
+        journal.append(first, BookingStatus.REQUESTED, BookingStatus.QUOTED);
+        journal.append(first, BookingStatus.QUOTED, BookingStatus.PAID);
+        journal.append(second, BookingStatus.REQUESTED, BookingStatus.CANCELLED);
+        journal.close();
+
+        BookingJournal reopened = new BookingJournal(tempDir.toString(), 16, false);
+        Map<String, BookingStatus> state = reopened.getRecoveredState();
+
+        assertEquals(2, state.size());
+        assertEquals(BookingStatus.PAID, state.get(first));
+        assertEquals(BookingStatus.CANCELLED, state.get(second));
+        assertEquals(5, reopened.getLastSequence());
+        assertEquals(6, reopened.append(first, BookingStatus.PAID, BookingStatus.COMPLETED));
+        reopened.close();
+    }
+
+    @Test
+    void fullSegmentRollsOverTest() {
+        BookingJournal journal = new BookingJournal(tempDir.toString(), 4, false);
+        for (int i = 0; i < 10; i++) {
+            journal.append(UUID.randomUUID().toString(), null, BookingStatus.REQUESTED);
+        }
+
+        assertEquals(3, journal.getSegmentCount());
+        journal.close();
+
+        BookingJournal reopened = new BookingJournal(tempDir.toString(), 4, false);
+        assertEquals(10, reopened.getRecoveredState().size());
+        assertEquals(10, reopened.getLastSequence());
+        reopened.close();
+    }
+
+    @Test
+    void tornRecordIsIgnoredAndOverwrittenTest() throws IOException {
+        String booking = UUID.randomUUID().toString();
+        BookingJournal journal = new BookingJournal(tempDir.toString(), 16, false);
+        journal.append(booking, null, BookingStatus.REQUESTED);
+        journal.append(booking, BookingStatus.REQUESTED, BookingStatus.QUOTED);
+        journal.close();
+
+        // corrupt the second record as if the process died half way through writing it
+        Path segment = segmentFiles().get(0);
+        try (RandomAccessFile file = new RandomAccessFile(segment.toFile(), "rw")) {
+            file.seek(BookingJournal.RECORD_SIZE + 33);
+            file.writeByte(BookingStatus.COMPLETED.ordinal());
+        }
+
+        BookingJournal reopened = new BookingJournal(tempDir.toString(), 16, false);
+        assertEquals(BookingStatus.REQUESTED, reopened.getRecoveredState().get(booking));
+        assertEquals(2, reopened.append(booking, BookingStatus.REQUESTED, BookingStatus.CANCELLED));
+        reopened.close();
+
+        BookingJournal again = new BookingJournal(tempDir.toString(), 16, false);
+        assertEquals(BookingStatus.CANCELLED, again.getRecoveredState().get(booking));
+        again.close();
+    }
+
+    // =================== SNAPSHOT TESTS ===================
+
+    @Test
+    void snapshotReplacesOldSegmentsTest() throws IOException {
+        BookingJournal journal = new BookingJournal(tempDir.toString(), 4, false);
+        Map<String, BookingStatus> state = new HashMap<>();
+        for (int i = 0; i < 10; i++) {
+            String id = UUID.randomUUID().toString();
+            journal.append(id, null, BookingStatus.REQUESTED);
+            state.put(id, BookingStatus.REQUESTED);
+        }
+
+        journal.snapshot(journal.getLastSequence(), state);
+
+        assertEquals(10, journal.getSnapshotSequence());
+        assertEquals(0, journal.getRecordsSinceSnapshot());
+        assertEquals(1, journal.getSegmentCount());
+        assertEquals(1, segmentFiles().size());
+
+        String late = UUID.randomUUID().toString();
+        journal.append(late, null, BookingStatus.REQUESTED);
+        journal.close();
+
+        BookingJournal reopened = new BookingJournal(tempDir.toString(), 4, false);
+        Map<String, BookingStatus> recovered = reopened.getRecoveredState();
+        assertEquals(11, recovered.size());
+        assertEquals(BookingStatus.REQUESTED, recovered.get(late));
+        assertEquals(11, reopened.getLastSequence());
+        reopened.close();
+    }
+
+    @Test
+    void newerSnapshotRemovesOlderOneTest() throws IOException {
+        String id = UUID.randomUUID().toString();
+        BookingJournal journal = new BookingJournal(tempDir.toString(), 16, false);
+        Map<String, BookingStatus> state = new HashMap<>();
+
+        journal.append(id, null, BookingStatus.REQUESTED);
+        state.put(id, BookingStatus.REQUESTED);
+        journal.snapshot(journal.getLastSequence(), state);
+
+        journal.append(id, BookingStatus.REQUESTED, BookingStatus.PAID);
+        state.put(id, BookingStatus.PAID);
+        journal.snapshot(journal.getLastSequence(), state);
+        journal.close();
+
+        try (Stream<Path> files = Files.list(tempDir)) {
+            assertEquals(1, files.filter(path -> path.toString().endsWith(".snap")).count());
+        }
+        assertEquals(BookingStatus.PAID, new BookingJournal(tempDir.toString(), 16, false).getRecoveredState().get(id));
+    }
+
+    // =================== EXCEPTION TESTS ===================
+
+    @Test
+    void directoryInUseIsNotOpenedTwiceTest() {
+        BookingJournal journal = new BookingJournal(tempDir.toString(), 16, false);
+
+        assertThrows(BookingJournal.JournalException.class, () -> new BookingJournal(tempDir.toString(), 16, false));
+        journal.close();
+        new BookingJournal(tempDir.toString(), 16, false).close();
+    }
+
+    @Test
+    void nonUuidBookingIdShouldThrowException() {
+        BookingJournal journal = new BookingJournal(tempDir.toString(), 16, false);
+
+        assertThrows(BookingJournal.JournalException.class, () -> journal.append("booking-1", null, BookingStatus.REQUESTED));
+        assertThrows(BookingJournal.JournalException.class, () -> journal.append(null, null, BookingStatus.REQUESTED));
+        journal.close();
+    }
+
+    @Test
+    void invalidSegmentSizeShouldThrowException() {
+        assertThrows(IllegalArgumentException.class, () -> new BookingJournal(tempDir.toString(), 0, false));
+    }
+
+    private List<Path> segmentFiles() throws IOException {
+        try (Stream<Path> files = Files.list(tempDir)) {
+            return files.filter(path -> path.toString().endsWith(".journal")).sorted().collect(Collectors.toList());
+        }
+    }
+}
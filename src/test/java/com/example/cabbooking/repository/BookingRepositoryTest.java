@@ -0,0 +1,169 @@
+package com.example.cabbooking.repository;
+
+import com.example.cabbooking.model.Booking;
+import com.example.cabbooking.model.BookingStatus;
+import com.example.cabbooking.model.Location;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.springframework.jdbc.core.BatchPreparedStatementSetter;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.PreparedStatementCreator;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.jdbc.core.RowMapper;
+
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.util.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+public class BookingRepositoryTest {
+
+    @Mock
+    private JdbcTemplate jdbcTemplate;
+
+    private BookingRepository bookingRepository;
+    private Booking testBooking;
+
+    @BeforeEach
+    public void setUp() {
+        MockitoAnnotations.openMocks(this);
+        bookingRepository = new BookingRepository(jdbcTemplate, jdbcTemplate);
+
+        testBooking = new Booking("7b1e4c1a-0000-4000-8000-000000000001", 1,
+                new Location("The White House", 38.8977, -77.0365),
+                new Location("Lincoln Memorial", 38.8893, -77.0502),
+                1.5, 6.0, 9.75, BookingStatus.REQUESTED, Instant.parse("2025-06-02T12:00:00Z"));
+    }
+
+    // === SAVE TESTS ===
+    @Test
+    public void testSaveSuccess() {
+        when(jdbcTemplate.update(anyString(), any(Object[].class))).thenReturn(1);
+
+        assertTrue(bookingRepository.save(testBooking));
+    }
+
+    @Test
+    public void testSaveWhenDatabaseError() {
+        when(jdbcTemplate.update(anyString(), any(Object[].class)))
+                .thenThrow(new RuntimeException("Database connection failed"));
+
+        assertFalse(bookingRepository.save(testBooking));
+    }
+
+    @Test
+    public void testSaveNullBooking() {
+        assertFalse(bookingRepository.save(null));
+        verify(jdbcTemplate, never()).update(anyString(), any(Object[].class));
+    }
+
+    @Test
+    public void testSaveBookingMissingClient() {
+        testBooking.setClientId(null);
+
+        assertFalse(bookingRepository.save(testBooking));
+        verify(jdbcTemplate, never()).update(anyString(), any(Object[].class));
+    }
+
+    // === SAVE ALL TESTS ===
+    @Test
+    public void testSaveAllUsesOneBatch() {
+        when(jdbcTemplate.batchUpdate(anyString(), any(BatchPreparedStatementSetter.class)))
+                .thenReturn(new int[]{1, 1});
+
+        Booking second = new Booking("7b1e4c1a-0000-4000-8000-000000000002", 2,
+                testBooking.getTo(), testBooking.getFrom(), 1.5, 6.0, 9.75, BookingStatus.REQUESTED, Instant.now());
+
+        assertTrue(bookingRepository.saveAll(Arrays.asList(testBooking, second)));
+        verify(jdbcTemplate, times(1)).batchUpdate(anyString(), any(BatchPreparedStatementSetter.class));
+    }
+
+    @Test
+    public void testSaveAllEmptyList() {
+        assertTrue(bookingRepository.saveAll(new ArrayList<>()));
+        verify(jdbcTemplate, never()).batchUpdate(anyString(), any(BatchPreparedStatementSetter.class));
+    }
+
+    @Test
+    public void testSaveAllWhenDatabaseError() {
+        when(jdbcTemplate.batchUpdate(anyString(), any(BatchPreparedStatementSetter.class)))
+                .thenThrow(new RuntimeException("Duplicate entry"));
+
+        assertFalse(bookingRepository.saveAll(Collections.singletonList(testBooking)));
+    }
+
+    // === FIND BY ID TESTS ===
+    @Test
+    public void testFindByIdSuccess() {
+        when(jdbcTemplate.query(anyString(), any(RowMapper.class), eq(testBooking.getId())))
+                .thenReturn(Arrays.asList(testBooking));
+
+        Optional<Booking> result = bookingRepository.findById(testBooking.getId());
+
+        assertTrue(result.isPresent());
+        assertEquals(1, result.get().getClientId());
+    }
+
+    @Test
+    public void testFindByIdNotFound() {
+        when(jdbcTemplate.query(anyString(), any(RowMapper.class), eq("missing")))
+                .thenReturn(new ArrayList<>());
+
+        assertFalse(bookingRepository.findById("missing").isPresent());
+    }
+
+    @Test
+    public void testFindByIdWithInvalidId() {
+        assertFalse(bookingRepository.findById(" ").isPresent());
+        verify(jdbcTemplate, never()).query(anyString(), any(RowMapper.class), any());
+    }
+
+    // === CLIENT PAGE TESTS ===
+    @Test
+    public void testFindPageByClientFirstPageHasNoSeekCondition() {
+        List<Booking> page = bookingRepository.findPageByClient(1, null, null, 11);
+
+        assertTrue(page.isEmpty());
+        verify(jdbcTemplate).query(contains("WHERE client_id = ? ORDER BY created_at DESC, id DESC LIMIT ?"),
+                any(RowCallbackHandler.class), eq(1), eq(11));
+    }
+
+    @Test
+    public void testFindPageByClientSeeksPastPreviousPage() {
+        Instant after = Instant.parse("2025-06-02T12:00:00Z");
+
+        bookingRepository.findSummaryPageByClient(1, after, "b9", 11);
+
+        verify(jdbcTemplate).query(contains("(created_at < ? OR (created_at = ? AND id < ?))"),
+                any(RowCallbackHandler.class), eq(1), eq(Timestamp.from(after)), eq(Timestamp.from(after)), eq("b9"), eq(11));
+    }
+
+    @Test
+    public void testFindPageByClientWithZeroLimit() {
+        assertTrue(bookingRepository.findPageByClient(1, null, null, 0).isEmpty());
+        verify(jdbcTemplate, never()).query(anyString(), any(RowCallbackHandler.class), any());
+    }
+
+    // === SETTLEMENT STREAM TESTS ===
+    @Test
+    public void testStreamCompletedRidesUsesOneStreamingQuery() {
+        boolean read = bookingRepository.streamCompletedRides(Instant.parse("2025-06-02T00:00:00Z"),
+                Instant.parse("2025-06-03T00:00:00Z"), (driverId, latitude, longitude, fareCents) -> fail("no rows expected"));
+
+        assertTrue(read);
+        verify(jdbcTemplate, times(1)).query(any(PreparedStatementCreator.class), any(RowCallbackHandler.class));
+    }
+
+    @Test
+    public void testStreamCompletedRidesWhenDatabaseError() {
+        doThrow(new RuntimeException("Connection lost")).when(jdbcTemplate)
+                .query(any(PreparedStatementCreator.class), any(RowCallbackHandler.class));
+
+        assertFalse(bookingRepository.streamCompletedRides(Instant.parse("2025-06-02T00:00:00Z"),
+                Instant.parse("2025-06-03T00:00:00Z"), (driverId, latitude, longitude, fareCents) -> {}));
+    }
+}
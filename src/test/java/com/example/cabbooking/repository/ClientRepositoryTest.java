@@ -5,7 +5,10 @@ import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.BeforeEach;
 import org.mockito.Mock;
 import org.mockito.MockitoAnnotations;
+import org.springframework.jdbc.core.BatchPreparedStatementSetter;
 import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.PreparedStatementCreator;
+import org.springframework.jdbc.core.RowCallbackHandler;
 import org.springframework.jdbc.core.RowMapper;
 
 import java.util.*;
@@ -24,7 +27,7 @@ public class ClientRepositoryTest {
     @BeforeEach
     public void setUp() {
         MockitoAnnotations.openMocks(this);
-        clientRepository = new ClientRepository(jdbcTemplate);
+        clientRepository = new ClientRepository(jdbcTemplate, jdbcTemplate);
 
         testClient = new Client(1, "John Doe", "john@email.com",
                 "555-1234", "123 Main St", "4111-1111-1111-1111");
@@ -53,6 +56,201 @@ public class ClientRepositoryTest {
         assertTrue(result.isEmpty());
     }
 
+    // === FIND PAGE TESTS ===
+    @Test
+    public void testFindPageStartsAfterLastId() {
+        when(jdbcTemplate.query(contains("WHERE id > ? ORDER BY id LIMIT ?"), any(RowMapper.class), eq(10), eq(21)))
+                .thenReturn(Arrays.asList(testClient));
+
+        List<Client> result = clientRepository.findPage(10, 21);
+
+        assertEquals(1, result.size());
+        verify(jdbcTemplate).query(contains("WHERE id > ? ORDER BY id LIMIT ?"), any(RowMapper.class), eq(10), eq(21));
+    }
+
+    @Test
+    public void testFindPageWithZeroLimit() {
+        List<Client> result = clientRepository.findPage(0, 0);
+
+        assertTrue(result.isEmpty());
+        verifyNoInteractions(jdbcTemplate);
+    }
+
+    @Test
+    public void testFindPageWhenDatabaseError() {
+        when(jdbcTemplate.query(anyString(), any(RowMapper.class), eq(0), eq(21)))
+                .thenThrow(new RuntimeException("Database connection failed"));
+
+        List<Client> result = clientRepository.findPage(0, 21);
+
+        assertTrue(result.isEmpty());
+    }
+
+    // === STREAM ALL TESTS ===
+    @Test
+    public void testStreamAllUsesOneStreamingQuery() {
+        boolean read = clientRepository.streamAll(client -> fail("no rows expected"));
+
+        assertTrue(read);
+        verify(jdbcTemplate, times(1)).query(any(PreparedStatementCreator.class), any(RowCallbackHandler.class));
+    }
+
+    @Test
+    public void testStreamAllWhenDatabaseError() {
+        doThrow(new RuntimeException("Connection lost")).when(jdbcTemplate)
+                .query(any(PreparedStatementCreator.class), any(RowCallbackHandler.class));
+
+        assertFalse(clientRepository.streamAll(client -> {}));
+    }
+
+    // === FIND BY EMAIL TESTS ===
+    @Test
+    public void testFindByEmailSuccess() {
+        when(jdbcTemplate.query(contains("WHERE email = ?"), any(RowMapper.class), eq("john@email.com")))
+                .thenReturn(Arrays.asList(testClient));
+
+        Optional<Client> result = clientRepository.findByEmail(" john@email.com ");
+
+        assertTrue(result.isPresent());
+        assertEquals(Integer.valueOf(1), result.get().getId());
+    }
+
+    @Test
+    public void testFindByEmailWithBlankEmail() {
+        assertFalse(clientRepository.findByEmail(" ").isPresent());
+        verifyNoInteractions(jdbcTemplate);
+    }
+
+    // === SEARCH TESTS ===
+    @Test
+    public void testFindByPhoneComparesDigits() {
+        when(jdbcTemplate.query(contains("WHERE phone_digits = ? ORDER BY id LIMIT ?"),
+                any(RowMapper.class), eq("5551234567"), eq(20)))
+                .thenReturn(Arrays.asList(testClient));
+
+        List<Client> result = clientRepository.findByPhone("(555) 123-4567", 20);
+
+        assertEquals(1, result.size());
+    }
+
+    @Test
+    public void testFindByPhoneWithoutDigits() {
+        assertTrue(clientRepository.findByPhone("n/a", 20).isEmpty());
+        verifyNoInteractions(jdbcTemplate);
+    }
+
+    @Test
+    public void testFindByNamePrefixMatchesWildcardsLiterally() {
+        clientRepository.findByNamePrefix("50%_off", 10);
+
+        verify(jdbcTemplate, times(1)).query(contains("WHERE name LIKE ? ORDER BY name, id LIMIT ?"),
+                any(RowMapper.class), eq("50\\%\\_off%"), eq(10));
+    }
+
+    @Test
+    public void testFindByNamePrefixWhenDatabaseError() {
+        when(jdbcTemplate.query(anyString(), any(RowMapper.class), any(), any()))
+                .thenThrow(new RuntimeException("Database error"));
+
+        assertTrue(clientRepository.findByNamePrefix("Jo", 10).isEmpty());
+    }
+
+    @Test
+    public void testPhoneDigitsMatchesBigintAndTextPhones() {
+        assertEquals("5551234567", ClientRepository.phoneDigits("(555) 123-4567"));
+        assertEquals("5551234567", ClientRepository.phoneDigits("555.123.4567"));
+        assertEquals("5551234567", ClientRepository.phoneDigits("0555 123 4567"));
+        assertEquals("", ClientRepository.phoneDigits("000"));
+        assertEquals("", ClientRepository.phoneDigits(null));
+    }
+
+    // === EXISTS AND COUNT TESTS ===
+    @Test
+    public void testExistsSelectsOneWithoutReadingRow() {
+        when(jdbcTemplate.query(eq("SELECT 1 FROM clients WHERE id = ? LIMIT 1"), any(RowMapper.class), eq(1)))
+                .thenReturn(Arrays.asList(1));
+
+        assertTrue(clientRepository.exists(1));
+    }
+
+    @Test
+    public void testExistsWhenNotFound() {
+        when(jdbcTemplate.query(anyString(), any(RowMapper.class), eq(999)))
+                .thenReturn(new ArrayList<>());
+
+        assertFalse(clientRepository.exists(999));
+    }
+
+    @Test
+    public void testExistsWithInvalidId() {
+        assertFalse(clientRepository.exists(0));
+        verifyNoInteractions(jdbcTemplate);
+    }
+
+    @Test
+    public void testCountUsesCountQuery() {
+        when(jdbcTemplate.queryForObject("SELECT COUNT(*) FROM clients", Long.class)).thenReturn(42L);
+
+        assertEquals(42L, clientRepository.count());
+    }
+
+    @Test
+    public void testCountWhenDatabaseError() {
+        when(jdbcTemplate.queryForObject("SELECT COUNT(*) FROM clients", Long.class))
+                .thenThrow(new RuntimeException("Database connection failed"));
+
+        assertEquals(-1L, clientRepository.count());
+    }
+
+    // === BATCH IMPORT TESTS ===
+    @Test
+    public void testInsertBatchIsOneJdbcBatch() {
+        List<Client> clients = Arrays.asList(testClient, new Client(null, "Jane Doe", "jane@email.com", null, null, null));
+        when(jdbcTemplate.batchUpdate(anyString(), any(BatchPreparedStatementSetter.class)))
+                .thenReturn(new int[]{-2, -2});
+
+        clientRepository.insertBatch(clients);
+        verify(jdbcTemplate, times(1)).batchUpdate(contains("INSERT INTO clients"), any(BatchPreparedStatementSetter.class));
+    }
+
+    @Test
+    public void testInsertBatchWhenDatabaseError() {
+        when(jdbcTemplate.batchUpdate(anyString(), any(BatchPreparedStatementSetter.class)))
+                .thenThrow(new RuntimeException("Duplicate entry"));
+
+        assertThrows(RuntimeException.class, () -> clientRepository.insertBatch(Arrays.asList(testClient)));
+    }
+
+    @Test
+    public void testInsertBatchEmptySkipsDatabase() {
+        clientRepository.insertBatch(new ArrayList<>());
+        verifyNoInteractions(jdbcTemplate);
+    }
+
+    @Test
+    public void testFindExistingEmailsWithOneQuery() {
+        clientRepository.findExistingEmails(Arrays.asList("john@email.com", "jane@email.com"));
+
+        verify(jdbcTemplate, times(1)).query(eq("SELECT email FROM clients WHERE email IN (?, ?)"),
+                any(RowCallbackHandler.class), eq("john@email.com"), eq("jane@email.com"));
+    }
+
+    @Test
+    public void testFindExistingEmailsWhenDatabaseError() {
+        doThrow(new RuntimeException("Database error")).when(jdbcTemplate)
+                .query(anyString(), any(RowCallbackHandler.class), any(Object[].class));
+
+        // a failed check must not read as no email being taken
+        assertThrows(RuntimeException.class, () -> clientRepository.findExistingEmails(Arrays.asList("john@email.com")));
+    }
+
+    @Test
+    public void testApproximateCountReadsTableEstimate() {
+        when(jdbcTemplate.queryForObject(contains("mysql.innodb_table_stats"), eq(Long.class))).thenReturn(40L);
+
+        assertEquals(40L, clientRepository.approximateCount());
+    }
+
     // === FIND BY ID TESTS ===
     @Test
     public void testFindByIdSuccess() {
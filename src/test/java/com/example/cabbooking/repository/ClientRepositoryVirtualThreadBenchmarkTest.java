@@ -0,0 +1,97 @@
+package com.example.cabbooking.repository;
+
+import com.example.cabbooking.model.Client;
+import org.junit.jupiter.api.Test;
+import org.springframework.core.task.VirtualThreadTaskExecutor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowMapper;
+
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+/**
+ * Compares how many blocking client lookups the app can serve at once on Tomcat's default
+ * 200 platform threads against one virtual thread per request, with every query taking DB_LATENCY_MILLIS.
+ * Only runs on Java 21+, e.g. mvn -Pvirtual-threads test -Dtest=ClientRepositoryVirtualThreadBenchmarkTest
+ */
+class ClientRepositoryVirtualThreadBenchmarkTest {
+
+    private static final int REQUESTS = 4000;
+    private static final int TOMCAT_MAX_THREADS = 200;
+    private static final long DB_LATENCY_MILLIS = 20;
+
+    @Test
+    void virtualThreadsServeMoreConcurrentLookupsTest() throws Exception {
+        assumeTrue(Runtime.version().feature() >= 21, "virtual threads need Java 21");
+
+        ClientRepository clientRepository = new ClientRepository(new SlowJdbcTemplate(), null);
+
+        ExecutorService platformThreads = Executors.newFixedThreadPool(TOMCAT_MAX_THREADS);
+        long platformMillis;
+        try {
+            platformMillis = runLookups(clientRepository, platformThreads);
+        } finally {
+            platformThreads.shutdownNow();
+        }
+        long virtualMillis = runLookups(clientRepository, new VirtualThreadTaskExecutor("benchmark-")::execute);
+
+        System.out.println("✓ " + REQUESTS + " lookups with " + DB_LATENCY_MILLIS + " ms DB latency:");
+        System.out.println("  platform threads (" + TOMCAT_MAX_THREADS + "): " + platformMillis + " ms, "
+                + REQUESTS * 1000L / Math.max(1, platformMillis) + " requests/s");
+        System.out.println("  virtual threads: " + virtualMillis + " ms, "
+                + REQUESTS * 1000L / Math.max(1, virtualMillis) + " requests/s");
+
+        // 200 platform threads need REQUESTS / 200 rounds of latency, virtual threads wait on all lookups at once
+        assertTrue(virtualMillis * 2 < platformMillis,
+                "virtual threads took " + virtualMillis + " ms, platform threads " + platformMillis + " ms");
+    }
+
+    private static long runLookups(ClientRepository clientRepository, Executor executor) throws InterruptedException {
+        CountDownLatch done = new CountDownLatch(REQUESTS);
+        AtomicInteger found = new AtomicInteger();
+
+        long start = System.nanoTime();
+        for (int i = 0; i < REQUESTS; i++) {
+            int id = i % 100 + 1;
+            executor.execute(() -> {
+                try {
+                    if (clientRepository.findById(id).isPresent()) {
+                        found.incrementAndGet();
+                    }
+                } finally {
+                    done.countDown();
+                }
+            });
+        }
+        assertTrue(done.await(60, TimeUnit.SECONDS), "lookups did not finish");
+        long elapsedMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+
+        assertEquals(REQUESTS, found.get());
+        return elapsedMillis;
+    }
+
+    /**
+     * JdbcTemplate stand-in which blocks like a round trip to MySQL
+     */
+    private static class SlowJdbcTemplate extends JdbcTemplate {
+        @Override
+        @SuppressWarnings("unchecked")
+        public <T> List<T> query(String sql, RowMapper<T> rowMapper, Object... args) {
+            try {
+                Thread.sleep(DB_LATENCY_MILLIS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            return (List<T>) List.of(new Client((Integer) args[0], "Client " + args[0], "client@example.com",
+                    "555-0100", "1 Main St", "4111-1111-1111-1111"));
+        }
+    }
+}
@@ -0,0 +1,273 @@
+package com.example.cabbooking.repository;
+
+import com.example.cabbooking.model.LedgerPosting;
+import com.example.cabbooking.model.LedgerTransaction;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class LedgerLogTest {
+
+    private static final long MIN_SEGMENT_BYTES = LedgerLog.RECORD_SIZE * LedgerLog.MAX_POSTINGS;
+
+    @TempDir
+    Path tempDir;
+
+    // =================== APPEND AND RECOVERY TESTS ===================
+
+    @Test
+    void emptyDirectoryRecoversNothingTest() {
+        LedgerLog log = new LedgerLog(tempDir.toString(), 1 << 20, false);
+
+        assertTrue(log.getRecoveredBalances().isEmpty());
+        assertEquals(0, log.getLastTransactionId());
+        assertEquals(0, log.getTransactionCount());
+        log.close();
+    }
+
+    @Test
+    void appendAssignsIdsInOrderTest() {
+        LedgerLog log = new LedgerLog(tempDir.toString(), 1 << 20, false);
+        LedgerTransaction first = transfer("rider:1", "platform:revenue", 500);
+        LedgerTransaction second = transfer("rider:2", "platform:revenue", 700);
+
+        log.append(List.of(first, second));
+        LedgerTransaction third = transfer("rider:1", "drivers:payable", 100);
+        log.append(List.of(third));
+
+        assertEquals(1, first.getId());
+        assertEquals(2, second.getId());
+        assertEquals(3, third.getId());
+        assertTrue(first.getTimestamp() > 0);
+        assertEquals(3, log.getLastTransactionId());
+        log.close();
+    }
+
+    @Test
+    void balancesAreRebuiltOnRestartTest() {
+        LedgerLog log = new LedgerLog(tempDir.toString(), 1 << 20, false);
+        log.append(List.of(transfer("rider:1", "platform:revenue", 500), transfer("rider:2", "platform:revenue", 700)));
+        log.append(List.of(new LedgerTransaction(0, UUID.randomUUID().toString(), 0, List.of(
+                LedgerPosting.debit("rider:1", 1000),
+                LedgerPosting.credit("platform:revenue", 200),
+                LedgerPosting.credit("drivers:payable", 800)))));
+        log.close();
+
+        LedgerLog reopened = new LedgerLog(tempDir.toString(), 1 << 20, false);
+        Map<String, Long> balances = reopened.getRecoveredBalances();
+
+        assertEquals(-1500L, balances.get("rider:1"));
+        assertEquals(-700L, balances.get("rider:2"));
+        assertEquals(1400L, balances.get("platform:revenue"));
+        assertEquals(800L, balances.get("drivers:payable"));
+        assertEquals(3, reopened.getLastTransactionId());
+        assertEquals(3, reopened.getTransactionCount());
+        reopened.close();
+    }
+
+    @Test
+    void transactionsAreIndexedByReferenceOnRestartTest() {
+        String reference = UUID.randomUUID().toString();
+        LedgerLog log = new LedgerLog(tempDir.toString(), 1 << 20, false);
+        log.append(List.of(transfer("rider:1", "platform:revenue", 500), new LedgerTransaction(0, reference, 0, List.of(
+                LedgerPosting.debit("rider:2", 1000),
+                LedgerPosting.credit("platform:revenue", 1000)))));
+        log.close();
+
+        LedgerLog reopened = new LedgerLog(tempDir.toString(), 1 << 20, false);
+        Map<String, LedgerTransaction> recovered = reopened.getRecoveredTransactions();
+
+        assertEquals(2, recovered.size());
+        LedgerTransaction transaction = recovered.get(reference);
+        assertEquals(2, transaction.getId());
+        assertTrue(transaction.getTimestamp() > 0);
+        assertEquals(List.of(LedgerPosting.debit("rider:2", 1000), LedgerPosting.credit("platform:revenue", 1000)),
+                transaction.getPostings());
+        reopened.close();
+    }
+
+    @Test
+    void partialTransactionIsTruncatedOnRecoveryTest() throws IOException {
+        LedgerLog log = new LedgerLog(tempDir.toString(), 1 << 20, false);
+        log.append(List.of(transfer("rider:1", "platform:revenue", 500)));
+        log.append(List.of(new LedgerTransaction(0, null, 0, List.of(
+                LedgerPosting.debit("rider:2", 1000),
+                LedgerPosting.credit("platform:revenue", 200),
+                LedgerPosting.credit("drivers:payable", 800)))));
+        log.close();
+
+        // keep only the first two postings of the second transaction, as if the process died halfway through it
+        Path segment = onlySegment();
+        try (RandomAccessFile raf = new RandomAccessFile(segment.toFile(), "rw")) {
+            raf.setLength(LedgerLog.RECORD_SIZE * 4L);
+        }
+
+        LedgerLog reopened = new LedgerLog(tempDir.toString(), 1 << 20, false);
+        assertEquals(Map.of("rider:1", -500L, "platform:revenue", 500L), reopened.getRecoveredBalances());
+        assertEquals(1, reopened.getLastTransactionId());
+        assertEquals(LedgerLog.RECORD_SIZE * 2L, Files.size(segment));
+
+        LedgerTransaction next = transfer("rider:3", "platform:revenue", 300);
+        reopened.append(List.of(next));
+        assertEquals(2, next.getId());
+        reopened.close();
+
+        LedgerLog again = new LedgerLog(tempDir.toString(), 1 << 20, false);
+        assertEquals(800L, again.getRecoveredBalances().get("platform:revenue"));
+        again.close();
+    }
+
+    @Test
+    void tornRecordIsTruncatedOnRecoveryTest() throws IOException {
+        LedgerLog log = new LedgerLog(tempDir.toString(), 1 << 20, false);
+        log.append(List.of(transfer("rider:1", "platform:revenue", 500), transfer("rider:2", "platform:revenue", 700)));
+        log.close();
+
+        Path segment = onlySegment();
+        try (RandomAccessFile raf = new RandomAccessFile(segment.toFile(), "rw")) {
+            raf.setLength(LedgerLog.RECORD_SIZE * 3L + 10);
+        }
+
+        LedgerLog reopened = new LedgerLog(tempDir.toString(), 1 << 20, false);
+        assertEquals(Map.of("rider:1", -500L, "platform:revenue", 500L), reopened.getRecoveredBalances());
+        assertEquals(LedgerLog.RECORD_SIZE * 2L, Files.size(segment));
+        reopened.close();
+    }
+
+    // =================== SEGMENT TESTS ===================
+
+    @Test
+    void segmentsRollOverAndAreAllReplayedTest() {
+        LedgerLog log = new LedgerLog(tempDir.toString(), MIN_SEGMENT_BYTES, false);
+        for (int i = 0; i < 150; i++) {
+            log.append(List.of(transfer("rider:" + (i % 3), "platform:revenue", 100)));
+        }
+        assertTrue(log.getSegmentCount() >= 2);
+        log.close();
+
+        LedgerLog reopened = new LedgerLog(tempDir.toString(), MIN_SEGMENT_BYTES, false);
+        assertEquals(150, reopened.getLastTransactionId());
+        assertEquals(15_000L, reopened.getRecoveredBalances().get("platform:revenue"));
+        assertEquals(-5_000L, reopened.getRecoveredBalances().get("rider:0"));
+        reopened.close();
+    }
+
+    @Test
+    void damagedOlderSegmentRefusesToOpenTest() throws IOException {
+        LedgerLog log = new LedgerLog(tempDir.toString(), MIN_SEGMENT_BYTES, false);
+        for (int i = 0; i < 150; i++) {
+            log.append(List.of(transfer("rider:1", "platform:revenue", 100)));
+        }
+        log.close();
+
+        Path oldest = segments().get(0);
+        try (RandomAccessFile raf = new RandomAccessFile(oldest.toFile(), "rw")) {
+            raf.seek(LedgerLog.RECORD_SIZE + 20);
+            raf.write(0x7f);
+        }
+
+        assertThrows(LedgerLog.LedgerException.class, () -> new LedgerLog(tempDir.toString(), MIN_SEGMENT_BYTES, false));
+    }
+
+    // =================== REPLAY TESTS ===================
+
+    @Test
+    void replayStreamsPostingsInRangeTest() {
+        LedgerLog log = new LedgerLog(tempDir.toString(), MIN_SEGMENT_BYTES, false);
+        List<LedgerTransaction> written = new ArrayList<>();
+        for (int i = 0; i < 150; i++) {
+            LedgerTransaction transaction = transfer("rider:1", "platform:revenue", 100);
+            log.append(List.of(transaction));
+            written.add(transaction);
+        }
+
+        long[] total = new long[2];
+        log.replay(0, Long.MAX_VALUE, (transactionId, timestamp, account, amountCents) -> {
+            total[0]++;
+            if (account.equals("platform:revenue")) {
+                total[1] += amountCents;
+            }
+        });
+        assertEquals(300, total[0]);
+        assertEquals(15_000, total[1]);
+
+        long[] none = new long[1];
+        long last = written.get(149).getTimestamp();
+        log.replay(last + 1, Long.MAX_VALUE, (transactionId, timestamp, account, amountCents) -> none[0]++);
+        assertEquals(0, none[0]);
+        log.close();
+    }
+
+    @Test
+    void replayStopsAtEndOfRangeTest() {
+        LedgerLog log = new LedgerLog(tempDir.toString(), 1 << 20, false);
+        LedgerTransaction first = transfer("rider:1", "platform:revenue", 100);
+        log.append(List.of(first));
+
+        List<Long> seen = new ArrayList<>();
+        log.replay(first.getTimestamp(), first.getTimestamp() + 1, (transactionId, timestamp, account, amountCents) -> seen.add(transactionId));
+        assertEquals(List.of(1L, 1L), seen);
+
+        seen.clear();
+        log.replay(0, first.getTimestamp(), (transactionId, timestamp, account, amountCents) -> seen.add(transactionId));
+        assertTrue(seen.isEmpty());
+        log.close();
+    }
+
+    // =================== VALIDATION TESTS ===================
+
+    @Test
+    void directoryInUseIsNotOpenedTwiceTest() {
+        LedgerLog log = new LedgerLog(tempDir.toString(), 1 << 20, false);
+
+        assertThrows(LedgerLog.LedgerException.class, () -> new LedgerLog(tempDir.toString(), 1 << 20, false));
+        log.close();
+        new LedgerLog(tempDir.toString(), 1 << 20, false).close();
+    }
+
+    @Test
+    void accountNameTooLongIsRejectedTest() {
+        LedgerLog log = new LedgerLog(tempDir.toString(), 1 << 20, false);
+        LedgerTransaction transaction = transfer("rider:" + "9".repeat(40), "platform:revenue", 100);
+
+        assertThrows(LedgerLog.LedgerException.class, () -> log.append(List.of(transaction)));
+        assertEquals(0, transaction.getId());
+        assertEquals(0, log.getLastTransactionId());
+        log.close();
+    }
+
+    @Test
+    void segmentSmallerThanOneTransactionIsRejectedTest() {
+        assertThrows(IllegalArgumentException.class, () -> new LedgerLog(tempDir.toString(), 1000, false));
+    }
+
+    private static LedgerTransaction transfer(String from, String to, long cents) {
+        List<LedgerPosting> postings = new ArrayList<>();
+        postings.add(LedgerPosting.debit(from, cents));
+        postings.add(LedgerPosting.credit(to, cents));
+        return new LedgerTransaction(0, UUID.randomUUID().toString(), 0, postings);
+    }
+
+    private Path onlySegment() throws IOException {
+        List<Path> segments = segments();
+        assertEquals(1, segments.size());
+        return segments.get(0);
+    }
+
+    private List<Path> segments() throws IOException {
+        try (Stream<Path> files = Files.list(tempDir)) {
+            return files.filter(file -> file.getFileName().toString().endsWith(".log")).sorted().toList();
+        }
+    }
+}
@@ -0,0 +1,142 @@
+package com.example.cabbooking.repository;
+
+import com.example.cabbooking.model.OutboxMessage;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.springframework.jdbc.core.BatchPreparedStatementSetter;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowMapper;
+
+import java.time.Instant;
+import java.util.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+public class OutboxRepositoryTest {
+
+    @Mock
+    private JdbcTemplate jdbcTemplate;
+
+    private OutboxRepository outboxRepository;
+    private OutboxMessage testMessage;
+
+    @BeforeEach
+    public void setUp() {
+        MockitoAnnotations.openMocks(this);
+        outboxRepository = new OutboxRepository(jdbcTemplate);
+
+        testMessage = new OutboxMessage("BOOKING_CONFIRMED:7b1e4c1a", "BOOKING_CONFIRMED", "john@email.com",
+                "Your cab is booked", "Hi John Doe", Instant.parse("2025-06-02T12:00:00Z"));
+    }
+
+    // === SAVE TESTS ===
+    @Test
+    public void testSaveSuccess() {
+        when(jdbcTemplate.update(anyString(), any(Object[].class))).thenReturn(1);
+
+        assertTrue(outboxRepository.save(testMessage));
+        verify(jdbcTemplate).update(contains("INSERT IGNORE"), any(Object[].class));
+    }
+
+    @Test
+    public void testSaveDuplicateEventIsNotAnError() {
+        when(jdbcTemplate.update(anyString(), any(Object[].class))).thenReturn(0);
+
+        assertTrue(outboxRepository.save(testMessage));
+    }
+
+    @Test
+    public void testSaveWhenDatabaseError() {
+        when(jdbcTemplate.update(anyString(), any(Object[].class)))
+                .thenThrow(new RuntimeException("Database connection failed"));
+
+        assertFalse(outboxRepository.save(testMessage));
+    }
+
+    @Test
+    public void testSaveMessageMissingRecipient() {
+        testMessage.setRecipient(null);
+
+        assertFalse(outboxRepository.save(testMessage));
+        verify(jdbcTemplate, never()).update(anyString(), any(Object[].class));
+    }
+
+    // === SAVE ALL TESTS ===
+    @Test
+    public void testSaveAllSendsOneBatch() {
+        when(jdbcTemplate.batchUpdate(anyString(), any(BatchPreparedStatementSetter.class))).thenReturn(new int[]{1, 1});
+
+        OutboxMessage second = new OutboxMessage("BOOKING_CONFIRMED:9c2f", "BOOKING_CONFIRMED", "jane@email.com",
+                "Your cab is booked", "Hi Jane Doe", Instant.parse("2025-06-02T12:00:01Z"));
+
+        assertTrue(outboxRepository.saveAll(List.of(testMessage, second)));
+        verify(jdbcTemplate, times(1)).batchUpdate(anyString(), any(BatchPreparedStatementSetter.class));
+    }
+
+    @Test
+    public void testSaveAllEmptyList() {
+        assertTrue(outboxRepository.saveAll(List.of()));
+        verify(jdbcTemplate, never()).batchUpdate(anyString(), any(BatchPreparedStatementSetter.class));
+    }
+
+    @Test
+    public void testSaveAllWhenDatabaseError() {
+        when(jdbcTemplate.batchUpdate(anyString(), any(BatchPreparedStatementSetter.class)))
+                .thenThrow(new RuntimeException("Deadlock found"));
+
+        assertFalse(outboxRepository.saveAll(List.of(testMessage)));
+    }
+
+    // === RELAY TESTS ===
+    @Test
+    @SuppressWarnings("unchecked")
+    public void testFindDue() {
+        when(jdbcTemplate.query(anyString(), any(RowMapper.class), any(), any(), any())).thenReturn(List.of(testMessage));
+
+        List<OutboxMessage> due = outboxRepository.findDue(Instant.now(), 8, 100);
+
+        assertEquals(1, due.size());
+        verify(jdbcTemplate).query(contains("sent_at IS NULL"), any(RowMapper.class), any(), eq(8), eq(100));
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void testFindDueWhenDatabaseError() {
+        when(jdbcTemplate.query(anyString(), any(RowMapper.class), any(), any(), any()))
+                .thenThrow(new RuntimeException("Database connection failed"));
+
+        assertTrue(outboxRepository.findDue(Instant.now(), 8, 100).isEmpty());
+    }
+
+    @Test
+    public void testMarkSentSendsOneBatch() {
+        when(jdbcTemplate.batchUpdate(anyString(), anyList())).thenReturn(new int[]{1, 1, 1});
+
+        assertTrue(outboxRepository.markSent(List.of(1L, 2L, 3L), Instant.now()));
+        verify(jdbcTemplate, times(1)).batchUpdate(contains("sent_at"), anyList());
+    }
+
+    @Test
+    public void testMarkSentNothingDelivered() {
+        assertTrue(outboxRepository.markSent(List.of(), Instant.now()));
+        verify(jdbcTemplate, never()).batchUpdate(anyString(), anyList());
+    }
+
+    @Test
+    public void testMarkFailedTruncatesLongErrors() {
+        when(jdbcTemplate.update(anyString(), any(), any(), any(), any())).thenReturn(1);
+
+        assertTrue(outboxRepository.markFailed(1L, 2, Instant.now(), "x".repeat(1000)));
+        verify(jdbcTemplate).update(anyString(), eq(2), any(), eq("x".repeat(255)), eq(1L));
+    }
+
+    @Test
+    public void testDeleteSentBeforeWhenDatabaseError() {
+        when(jdbcTemplate.update(anyString(), any(), any())).thenThrow(new RuntimeException("Lock wait timeout"));
+
+        assertEquals(0, outboxRepository.deleteSentBefore(Instant.now(), 1000));
+    }
+}
@@ -0,0 +1,174 @@
+package com.example.cabbooking.repository;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ScheduledBookingLogTest {
+
+    @TempDir
+    Path tempDir;
+
+    // =================== APPEND AND RECOVERY TESTS ===================
+
+    @Test
+    void emptyDirectoryRecoversNothingTest() {
+        ScheduledBookingLog log = new ScheduledBookingLog(tempDir.toString(), false);
+
+        assertTrue(log.getRecoveredBookings().isEmpty());
+        assertEquals(0, log.getRecordCount());
+        log.close();
+    }
+
+    @Test
+    void pendingBookingsAreRecoveredOnRestartTest() {
+        String kept = UUID.randomUUID().toString();
+        String released = UUID.randomUUID().toString();
+        String rescheduled = UUID.randomUUID().toString();
+
+        ScheduledBookingLog log = new ScheduledBookingLog(tempDir.toString(), false);
+        log.appendScheduled(kept, 1_000L);
+        log.appendScheduled(released, 2_000L);
+        log.appendScheduled(rescheduled, 3_000L);
+        log.appendRemoved(released);
+        log.appendScheduled(rescheduled, 4_000L);
+        log.close();
+
+        ScheduledBookingLog reopened = new ScheduledBookingLog(tempDir.toString(), false);
+        Map<String, Long> recovered = reopened.getRecoveredBookings();
+
+        assertEquals(2, recovered.size());
+        assertEquals(1_000L, recovered.get(kept));
+        assertEquals(4_000L, recovered.get(rescheduled));
+        assertEquals(5, reopened.getRecordCount());
+        reopened.close();
+    }
+
+    @Test
+    void tornRecordIsTruncatedOnRecoveryTest() throws IOException {
+        String first = UUID.randomUUID().toString();
+        String second = UUID.randomUUID().toString();
+
+        ScheduledBookingLog log = new ScheduledBookingLog(tempDir.toString(), false);
+        log.appendScheduled(first, 1_000L);
+        log.appendScheduled(second, 2_000L);
+        log.close();
+
+        // cut the second record short, as if the process died halfway through writing it
+        Path file = logFile();
+        try (RandomAccessFile raf = new RandomAccessFile(file.toFile(), "rw")) {
+            raf.setLength(ScheduledBookingLog.RECORD_SIZE + 10);
+        }
+
+        ScheduledBookingLog reopened = new ScheduledBookingLog(tempDir.toString(), false);
+        assertEquals(Map.of(first, 1_000L), reopened.getRecoveredBookings());
+        assertEquals(ScheduledBookingLog.RECORD_SIZE, Files.size(file));
+
+        String third = UUID.randomUUID().toString();
+        reopened.appendScheduled(third, 3_000L);
+        reopened.close();
+
+        ScheduledBookingLog again = new ScheduledBookingLog(tempDir.toString(), false);
+        assertEquals(2, again.getRecoveredBookings().size());
+        assertEquals(3_000L, again.getRecoveredBookings().get(third));
+        again.close();
+    }
+
+    @Test
+    void corruptRecordStopsReplayTest() throws IOException {
+        String first = UUID.randomUUID().toString();
+        ScheduledBookingLog log = new ScheduledBookingLog(tempDir.toString(), false);
+        log.appendScheduled(first, 1_000L);
+        log.appendScheduled(UUID.randomUUID().toString(), 2_000L);
+        log.close();
+
+        try (RandomAccessFile raf = new RandomAccessFile(logFile().toFile(), "rw")) {
+            raf.seek(ScheduledBookingLog.RECORD_SIZE + 20);
+            raf.writeLong(99L);
+        }
+
+        ScheduledBookingLog reopened = new ScheduledBookingLog(tempDir.toString(), false);
+        assertEquals(Map.of(first, 1_000L), reopened.getRecoveredBookings());
+        reopened.close();
+    }
+
+    // =================== COMPACTION TESTS ===================
+
+    @Test
+    void compactionKeepsOnlyPendingBookingsTest() throws IOException {
+        ScheduledBookingLog log = new ScheduledBookingLog(tempDir.toString(), false);
+        Map<String, Long> pending = new HashMap<>();
+        for (int i = 0; i < 3000; i++) {
+            String bookingId = UUID.randomUUID().toString();
+            log.appendScheduled(bookingId, i);
+            if (i % 10 == 0) {
+                pending.put(bookingId, (long) i);
+            } else {
+                log.appendRemoved(bookingId);
+            }
+        }
+        assertTrue(log.needsCompaction());
+
+        log.compact(writer -> pending.forEach(writer::accept));
+
+        assertEquals(pending.size(), log.getRecordCount());
+        assertEquals((long) pending.size() * ScheduledBookingLog.RECORD_SIZE, Files.size(logFile()));
+        assertFalse(log.needsCompaction());
+
+        // appends after compaction go to the new file
+        String later = UUID.randomUUID().toString();
+        log.appendScheduled(later, 42L);
+        log.close();
+
+        ScheduledBookingLog reopened = new ScheduledBookingLog(tempDir.toString(), false);
+        Map<String, Long> recovered = reopened.getRecoveredBookings();
+        assertEquals(pending.size() + 1, recovered.size());
+        assertEquals(42L, recovered.get(later));
+        pending.forEach((bookingId, pickup) -> assertEquals(pickup, recovered.get(bookingId)));
+        reopened.close();
+    }
+
+    @Test
+    void smallLogDoesNotNeedCompactionTest() {
+        ScheduledBookingLog log = new ScheduledBookingLog(tempDir.toString(), false);
+        String bookingId = UUID.randomUUID().toString();
+        log.appendScheduled(bookingId, 1L);
+        log.appendRemoved(bookingId);
+
+        assertFalse(log.needsCompaction());
+        log.close();
+    }
+
+    // =================== ERROR CASE TESTS ===================
+
+    @Test
+    void directoryInUseIsNotOpenedTwiceTest() {
+        ScheduledBookingLog log = new ScheduledBookingLog(tempDir.toString(), false);
+
+        assertThrows(ScheduledBookingLog.ScheduleLogException.class, () -> new ScheduledBookingLog(tempDir.toString(), false));
+        log.close();
+        new ScheduledBookingLog(tempDir.toString(), false).close();
+    }
+
+    @Test
+    void nonUuidBookingIdRejectedTest() {
+        ScheduledBookingLog log = new ScheduledBookingLog(tempDir.toString(), false);
+
+        assertThrows(ScheduledBookingLog.ScheduleLogException.class, () -> log.appendScheduled("not-a-uuid", 1L));
+        assertThrows(ScheduledBookingLog.ScheduleLogException.class, () -> log.appendRemoved(null));
+        log.close();
+    }
+
+    private Path logFile() {
+        return tempDir.resolve("scheduled-bookings.log");
+    }
+}
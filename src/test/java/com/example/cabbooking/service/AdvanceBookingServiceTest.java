@@ -0,0 +1,225 @@
+package com.example.cabbooking.service;
+
+import com.example.cabbooking.model.Booking;
+import com.example.cabbooking.model.BookingStatus;
+import com.example.cabbooking.model.Client;
+import com.example.cabbooking.model.Driver;
+import com.example.cabbooking.model.DriverStatus;
+import com.example.cabbooking.model.Location;
+import com.example.cabbooking.model.VehicleClass;
+import com.example.cabbooking.repository.BookingJournal;
+import com.example.cabbooking.repository.BookingRepository;
+import com.example.cabbooking.repository.ScheduledBookingLog;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+import java.time.Instant;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class AdvanceBookingServiceTest {
+
+    private static final long HOUR = TimeUnit.HOURS.toMillis(1);
+    private static final long LEAD = TimeUnit.MINUTES.toMillis(20);
+
+    @TempDir
+    Path tempDir;
+
+    private InMemoryBookingRepository bookingRepository;
+    private BookingJournal bookingJournal;
+    private BookingLifecycleService bookingLifecycleService;
+    private FleetService fleetService;
+    private BookingService bookingService;
+    private RouteService routeService;
+    private BookingWriteBehindService writeBehind;
+    private DispatchService dispatchService;
+    private ScheduledBookingLog scheduledBookingLog;
+    private AdvanceBookingService advanceBookingService;
+
+    private Client client;
+    private Location whiteHouse;
+    private Location lincolnMemorial;
+
+    @BeforeEach
+    void setUp() {
+        bookingRepository = new InMemoryBookingRepository();
+        bookingJournal = new BookingJournal(tempDir.resolve("journal").toString(), 1024, false);
+        bookingLifecycleService = new BookingLifecycleService(bookingJournal, 10000, 3600000);
+        fleetService = new FleetService(0.01, 15.0, 8);
+
+        LocationDistanceCalculatorService distances = new LocationDistanceCalculatorService(new DistanceCalculatorService());
+        routeService = new RouteService(distances, new SpeedProfileService("classpath:speed-profiles.csv", "America/New_York"));
+        writeBehind = new BookingWriteBehindService(bookingRepository, BookingWriteBehindService.DurabilityMode.SYNC, 50, 100, 0);
+        dispatchService = new DispatchService(fleetService, bookingRepository, DispatchService.DispatchMode.GREEDY, 500, 5, 500, 120);
+        bookingService = new BookingService(routeService, distances, new CalculateFareService(routeService),
+                writeBehind, bookingLifecycleService, dispatchService, new NotificationService(null));
+
+        scheduledBookingLog = new ScheduledBookingLog(tempDir.resolve("schedule").toString(), false);
+        advanceBookingService = newService(scheduledBookingLog);
+
+        client = new Client(1, "John Doe", "john@example.com", "555-1234", "123 Main St", "4111-1111-1111-1111");
+        whiteHouse = new Location("The White House", 38.8977, -77.0365);
+        lincolnMemorial = new Location("Lincoln Memorial", 38.8893, -77.0502);
+        fleetService.registerDriver(new Driver("d1", "Driver d1", 38.8980, -77.0360, DriverStatus.AVAILABLE, VehicleClass.STANDARD));
+    }
+
+    @AfterEach
+    void tearDown() {
+        scheduledBookingLog.close();
+        bookingJournal.close();
+    }
+
+    // =================== SUCCESS CASE TESTS ===================
+
+    @Test
+    void bookingIsReleasedAtDispatchLeadTimeTest() {
+        Instant pickupAt = Instant.ofEpochMilli(System.currentTimeMillis() + 2 * HOUR);
+        Booking booking = advanceBookingService.scheduleBooking(client, whiteHouse, lincolnMemorial, pickupAt);
+
+        assertTrue(booking.getFare() > 0);
+        assertNull(booking.getDriverId());
+        assertTrue(bookingRepository.bookings.containsKey(booking.getId()));
+        assertEquals(pickupAt, advanceBookingService.getPickupTime(booking.getId()).orElseThrow());
+
+        // nothing is dispatched until the lead time before pickup
+        assertEquals(0, advanceBookingService.releaseDue(pickupAt.toEpochMilli() - LEAD - 1000));
+        assertTrue(bookingRepository.drivers.isEmpty());
+
+        assertEquals(1, advanceBookingService.releaseDue(pickupAt.toEpochMilli() - LEAD + 1000));
+        assertEquals(List.of("d1"), bookingRepository.drivers);
+        assertTrue(advanceBookingService.getPickupTime(booking.getId()).isEmpty());
+        assertEquals(0, advanceBookingService.getPendingCount());
+    }
+
+    @Test
+    void pendingBookingsSurviveRestartTest() {
+        Instant pickupAt = Instant.ofEpochMilli(System.currentTimeMillis() + 3 * HOUR);
+        Booking booking = advanceBookingService.scheduleBooking(client, whiteHouse, lincolnMemorial, pickupAt);
+        scheduledBookingLog.close();
+
+        scheduledBookingLog = new ScheduledBookingLog(tempDir.resolve("schedule").toString(), false);
+        AdvanceBookingService restarted = newService(scheduledBookingLog);
+
+        assertEquals(1, restarted.getPendingCount());
+        assertEquals(pickupAt, restarted.getPickupTime(booking.getId()).orElseThrow());
+        assertEquals(1, restarted.releaseDue(pickupAt.toEpochMilli()));
+        assertEquals(List.of("d1"), bookingRepository.drivers);
+    }
+
+    @Test
+    void cancelledBookingIsNotReleasedTest() {
+        Instant pickupAt = Instant.ofEpochMilli(System.currentTimeMillis() + 2 * HOUR);
+        Booking booking = advanceBookingService.scheduleBooking(client, whiteHouse, lincolnMemorial, pickupAt);
+
+        advanceBookingService.cancelScheduled(booking.getId());
+
+        assertEquals(BookingStatus.CANCELLED, bookingLifecycleService.getStatus(booking.getId()));
+        assertEquals(0, advanceBookingService.releaseDue(pickupAt.toEpochMilli()));
+        assertTrue(bookingRepository.drivers.isEmpty());
+        assertEquals(1L, advanceBookingService.getMetrics().get("cancelled"));
+
+        // the cancellation is in the log too, so a restart does not bring the booking back
+        scheduledBookingLog.close();
+        scheduledBookingLog = new ScheduledBookingLog(tempDir.resolve("schedule").toString(), false);
+        assertTrue(scheduledBookingLog.getRecoveredBookings().isEmpty());
+    }
+
+    @Test
+    void failedReleaseIsRetriedBeforePickupTest() {
+        Instant pickupAt = Instant.ofEpochMilli(System.currentTimeMillis() + 2 * HOUR);
+        Booking booking = advanceBookingService.scheduleBooking(client, whiteHouse, lincolnMemorial, pickupAt);
+        long releaseAt = pickupAt.toEpochMilli() - LEAD;
+
+        bookingRepository.unavailable = true;
+        assertEquals(0, advanceBookingService.releaseDue(releaseAt + 1000));
+        assertEquals(pickupAt, advanceBookingService.getPickupTime(booking.getId()).orElseThrow());
+        assertEquals(1L, advanceBookingService.getMetrics().get("releaseRetries"));
+
+        bookingRepository.unavailable = false;
+        assertEquals(1, advanceBookingService.releaseDue(releaseAt + 60_000));
+        assertEquals(List.of("d1"), bookingRepository.drivers);
+    }
+
+    // =================== ERROR CASE TESTS ===================
+
+    @Test
+    void pickupTooSoonOrTooFarRejectedTest() {
+        long now = System.currentTimeMillis();
+
+        assertThrows(AdvanceBookingService.InvalidScheduleException.class, () -> advanceBookingService.scheduleBooking(
+                client, whiteHouse, lincolnMemorial, Instant.ofEpochMilli(now + TimeUnit.MINUTES.toMillis(5))));
+        assertThrows(AdvanceBookingService.InvalidScheduleException.class, () -> advanceBookingService.scheduleBooking(
+                client, whiteHouse, lincolnMemorial, Instant.ofEpochMilli(now + TimeUnit.DAYS.toMillis(60))));
+        assertThrows(AdvanceBookingService.InvalidScheduleException.class, () -> advanceBookingService.scheduleBooking(
+                client, whiteHouse, lincolnMemorial, null));
+        assertEquals(0, advanceBookingService.getPendingCount());
+    }
+
+    @Test
+    void invalidBookingRejectedTest() {
+        Instant pickupAt = Instant.ofEpochMilli(System.currentTimeMillis() + 2 * HOUR);
+
+        assertThrows(BookingService.InvalidBookingException.class,
+                () -> advanceBookingService.scheduleBooking(client, whiteHouse, whiteHouse, pickupAt));
+        assertEquals(0, advanceBookingService.getPendingCount());
+    }
+
+    @Test
+    void cancelUnknownBookingRejectedTest() {
+        assertThrows(AdvanceBookingService.ScheduledBookingNotFoundException.class,
+                () -> advanceBookingService.cancelScheduled("00000000-0000-0000-0000-000000000000"));
+    }
+
+    private AdvanceBookingService newService(ScheduledBookingLog log) {
+        return new AdvanceBookingService(bookingService, routeService, writeBehind, bookingLifecycleService,
+                bookingRepository, dispatchService, log, 1000, 4, 20, 30, 30, 30);
+    }
+
+    /**
+     * in-memory repository which can pretend the database is down
+     */
+    private static class InMemoryBookingRepository extends BookingRepository {
+        private final Map<String, Booking> bookings = new ConcurrentHashMap<>();
+        private final List<String> drivers = new CopyOnWriteArrayList<>();
+        private volatile boolean unavailable;
+
+        InMemoryBookingRepository() {
+            super(null, null);
+        }
+
+        @Override
+        public boolean save(Booking booking) {
+            bookings.put(booking.getId(), booking);
+            return true;
+        }
+
+        @Override
+        public boolean saveAll(List<Booking> batch) {
+            batch.forEach(this::save);
+            return true;
+        }
+
+        @Override
+        public Optional<Booking> findById(String id) {
+            if (unavailable) {
+                throw new IllegalStateException("database unavailable");
+            }
+            return Optional.ofNullable(bookings.get(id));
+        }
+
+        @Override
+        public boolean updateDriver(String bookingId, String driverId) {
+            drivers.add(driverId);
+            return true;
+        }
+    }
+}
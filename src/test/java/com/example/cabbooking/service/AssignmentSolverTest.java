@@ -0,0 +1,113 @@
+package com.example.cabbooking.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class AssignmentSolverTest {
+
+    private static final long NO_DEADLINE = Long.MAX_VALUE;
+
+    @Test
+    void optimalBeatsGreedyOnClassicCaseTest() {
+        // booking 0 arrives first and takes driver 0, leaving booking 1 with a long pickup
+        double[] cost = {
+                1.0, 2.0,
+                1.5, 9.0
+        };
+
+        int[] greedy = AssignmentSolver.solveGreedy(cost, 2, 2);
+        int[] optimal = AssignmentSolver.solveOptimal(cost, 2, 2, NO_DEADLINE);
+
+        assertArrayEquals(new int[]{0, 1}, greedy);
+        assertArrayEquals(new int[]{1, 0}, optimal);
+        assertEquals(10.0, AssignmentSolver.totalCost(cost, 2, greedy), 1e-9);
+        assertEquals(3.5, AssignmentSolver.totalCost(cost, 2, optimal), 1e-9);
+    }
+
+    @Test
+    void optimalMatchesBruteForceTest() {
+        Random random = new Random(11);
+        for (int round = 0; round < 50; round++) {
+            int rows = 1 + random.nextInt(6);
+            int cols = 1 + random.nextInt(6);
+            double[] cost = new double[rows * cols];
+            for (int k = 0; k < cost.length; k++) {
+                cost[k] = random.nextDouble() * 10;
+            }
+
+            int[] optimal = AssignmentSolver.solveOptimal(cost, rows, cols, NO_DEADLINE);
+
+            assertEquals(Math.min(rows, cols), AssignmentSolver.matchedCount(optimal));
+            assertEquals(bruteForce(cost, rows, cols, 0, new boolean[cols], Math.min(rows, cols)),
+                    AssignmentSolver.totalCost(cost, cols, optimal), 1e-9);
+        }
+    }
+
+    @Test
+    void infeasiblePairsAreLeftUnmatchedTest() {
+        double inf = AssignmentSolver.INFEASIBLE;
+        double[] cost = {
+                2.0, inf,
+                3.0, inf
+        };
+
+        int[] optimal = AssignmentSolver.solveOptimal(cost, 2, 2, NO_DEADLINE);
+        int[] greedy = AssignmentSolver.solveGreedy(cost, 2, 2);
+
+        assertEquals(1, AssignmentSolver.matchedCount(optimal));
+        assertEquals(0, optimal[0]);
+        assertEquals(-1, optimal[1]);
+        assertArrayEquals(new int[]{0, -1}, greedy);
+    }
+
+    @Test
+    void moreBookingsThanDriversTest() {
+        double[] cost = {
+                5.0,
+                1.0,
+                3.0
+        };
+
+        int[] optimal = AssignmentSolver.solveOptimal(cost, 3, 1, NO_DEADLINE);
+
+        assertArrayEquals(new int[]{-1, 0, -1}, optimal);
+    }
+
+    @Test
+    void passedDeadlineReturnsNullTest() {
+        double[] cost = {1.0, 2.0, 3.0, 4.0};
+
+        assertNull(AssignmentSolver.solveOptimal(cost, 2, 2, System.nanoTime() - 1));
+    }
+
+    @Test
+    void emptyMatrixTest() {
+        assertArrayEquals(new int[]{-1, -1}, AssignmentSolver.solveOptimal(new double[0], 2, 0, NO_DEADLINE));
+        assertArrayEquals(new int[0], AssignmentSolver.solveGreedy(new double[0], 0, 3));
+    }
+
+    /**
+     * cheapest assignment that matches min(rows, cols) pairs, by trying every possibility
+     */
+    private static double bruteForce(double[] cost, int rows, int cols, int row, boolean[] used, int matchesLeft) {
+        if (matchesLeft == 0) {
+            return 0;
+        }
+        if (rows - row < matchesLeft) {
+            return Double.POSITIVE_INFINITY;
+        }
+
+        double best = bruteForce(cost, rows, cols, row + 1, used, matchesLeft);
+        for (int j = 0; j < cols; j++) {
+            if (!used[j]) {
+                used[j] = true;
+                best = Math.min(best, cost[row * cols + j] + bruteForce(cost, rows, cols, row + 1, used, matchesLeft - 1));
+                used[j] = false;
+            }
+        }
+        return best;
+    }
+}
@@ -0,0 +1,150 @@
+package com.example.cabbooking.service;
+
+import com.example.cabbooking.model.BookingContext;
+import com.example.cabbooking.model.Client;
+import com.example.cabbooking.model.Location;
+import com.example.cabbooking.model.Route;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.util.function.DoubleSupplier;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Compares the CPU a paid booking spends on the client and route when every service checks them again
+ * (how bookCab, requestPayment and finishBookingCab worked before BookingContext) against validating once
+ * into a BookingContext that the services trust. Console output is discarded while timing so only the
+ * booking work is measured. The timing is left out of the normal build, run it with mvn -Pbenchmarks test
+ */
+class BookingContextBenchmarkTest {
+
+    private static final int BOOKINGS = 50_000;
+    private static final int ROUNDS = 5;
+
+    private final LocationDistanceCalculatorService distances = new LocationDistanceCalculatorService(new DistanceCalculatorService());
+    private final RouteService routeService = new RouteService(distances,
+            new SpeedProfileService("classpath:speed-profiles.csv", "America/New_York"));
+    private final CalculateFareService fares = new CalculateFareService(routeService);
+    private final BookingService bookingService = new BookingService(routeService, distances, fares, null, null, null,
+            new NotificationService(null));
+
+    private final Client client = new Client(1, "John Doe", "john@example.com", "555-1234", "123 Main St", "4111-1111-1111-1111");
+    private final Route route = routeService.createRoute(new Location("The White House", 38.8977, -77.0365),
+            new Location("Lincoln Memorial", 38.8893, -77.0502));
+
+    @Test
+    void validatedContextGivesSameFareTest() {
+        PrintStream console = System.out;
+        System.setOut(new DiscardingPrintStream());
+        try {
+            assertEquals(validateOnEveryCall(client, route), validateOnce(client, route), 0.0001);
+        } finally {
+            System.setOut(console);
+        }
+    }
+
+    @Test
+    @Tag("benchmark")
+    void validatedContextCutsPerBookingWorkTest() {
+        long validateEveryCallNanos = Long.MAX_VALUE;
+        long validateOnceNanos = Long.MAX_VALUE;
+        double fareEveryCall = 0;
+        double fareOnce = 0;
+
+        PrintStream console = System.out;
+        System.setOut(new DiscardingPrintStream());
+        try {
+            // the first rounds warm up the JIT, the fastest round of each is kept
+            for (int round = 0; round < ROUNDS; round++) {
+                long start = System.nanoTime();
+                fareEveryCall = run(() -> validateOnEveryCall(client, route));
+                validateEveryCallNanos = Math.min(validateEveryCallNanos, System.nanoTime() - start);
+
+                start = System.nanoTime();
+                fareOnce = run(() -> validateOnce(client, route));
+                validateOnceNanos = Math.min(validateOnceNanos, System.nanoTime() - start);
+            }
+        } finally {
+            System.setOut(console);
+        }
+
+        System.out.println("✓ " + BOOKINGS + " paid bookings:");
+        System.out.println("  validated in every service: " + validateEveryCallNanos / BOOKINGS + " ns per booking");
+        System.out.println("  validated once into a BookingContext: " + validateOnceNanos / BOOKINGS + " ns per booking");
+
+        assertEquals(fareEveryCall, fareOnce, 0.0001);
+        assertTrue(validateOnceNanos < validateEveryCallNanos,
+                "context took " + validateOnceNanos + " ns, per-call validation " + validateEveryCallNanos + " ns");
+    }
+
+    private static double run(DoubleSupplier booking) {
+        double total = 0;
+        for (int i = 0; i < BOOKINGS; i++) {
+            total += booking.getAsDouble();
+        }
+        return total / BOOKINGS;
+    }
+
+    /**
+     * the calls a paid booking made before, each checking the client, route or locations again
+     */
+    private double validateOnEveryCall(Client client, Route route) {
+        // bookCab and priceBooking
+        bookingService.validateBookingInputs(client, route);
+        bookingService.validateBookingInputs(client, route);
+        Location from = routeService.getRouteLocationFrom(route);
+        Location to = routeService.getRouteLocationTo(route);
+        distances.calculateDistanceUsingLocation(from, to);
+        routeService.getRouteDistance(route);
+        distances.printDistanceReport(from, to);
+        double fare = fares.calculateFare(route);
+        routeService.getRouteDuration(route);
+
+        // requestPayment
+        fare += fares.calculateFare(route);
+
+        // paymentConfirmation
+        bookingService.finishBookingCab(client, route);
+        return fare;
+    }
+
+    /**
+     * the same booking validated once at the edge
+     */
+    private double validateOnce(Client client, Route route) {
+        BookingContext context = bookingService.createContext(client, route);
+        distances.printDistanceReport(context.getFrom(), context.getTo(), context.getDirectDistance());
+        double fare = fares.calculateFareFor(context);
+
+        fare += fares.calculateFareFor(context);
+
+        bookingService.finishBookingCab(context);
+        return fare;
+    }
+
+    /**
+     * console that drops output before it is formatted or encoded, so printing does not drown out the booking work
+     */
+    private static class DiscardingPrintStream extends PrintStream {
+        DiscardingPrintStream() {
+            super(OutputStream.nullOutputStream());
+        }
+
+        @Override
+        public void println(String line) {}
+
+        @Override
+        public void println(Object line) {}
+
+        @Override
+        public void print(String text) {}
+
+        @Override
+        public PrintStream printf(String format, Object... args) {
+            return this;
+        }
+    }
+}
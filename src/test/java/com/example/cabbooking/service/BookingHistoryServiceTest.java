@@ -0,0 +1,222 @@
+package com.example.cabbooking.service;
+
+import com.example.cabbooking.model.Booking;
+import com.example.cabbooking.model.BookingHistoryPage;
+import com.example.cabbooking.model.BookingStatus;
+import com.example.cabbooking.model.BookingSummary;
+import com.example.cabbooking.model.Location;
+import com.example.cabbooking.repository.BookingJournal;
+import com.example.cabbooking.repository.BookingRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class BookingHistoryServiceTest {
+
+    private static final Instant BASE = Instant.parse("2025-01-01T00:00:00Z");
+
+    @TempDir
+    Path tempDir;
+
+    private SeekingBookingRepository bookingRepository;
+    private BookingJournal bookingJournal;
+    private BookingLifecycleService bookingLifecycleService;
+    private BookingHistoryService bookingHistoryService;
+
+    @BeforeEach
+    void setUp() {
+        bookingRepository = new SeekingBookingRepository();
+        bookingJournal = new BookingJournal(tempDir.toString(), 1024, false);
+        bookingLifecycleService = new BookingLifecycleService(bookingJournal, 10000, 3600000);
+        bookingHistoryService = new BookingHistoryService(bookingRepository, bookingLifecycleService, 20, 100);
+    }
+
+    @AfterEach
+    void tearDown() {
+        bookingJournal.close();
+    }
+
+    // =================== SUCCESS CASE TESTS ===================
+
+    @Test
+    void pagesWalkEveryBookingNewestFirstTest() {
+        // several bookings share a timestamp, so the id has to break ties
+        for (int i = 0; i < 57; i++) {
+            bookingRepository.add(booking(1, String.format("b%03d", i), BASE.plusSeconds(i / 3)));
+        }
+        bookingRepository.add(booking(2, "other", BASE.plusSeconds(100)));
+
+        List<String> seen = new ArrayList<>();
+        String cursor = null;
+        int pages = 0;
+        do {
+            BookingHistoryPage<Booking> page = bookingHistoryService.getBookings(1, cursor, 10);
+            page.getBookings().forEach(booking -> seen.add(booking.getId()));
+            cursor = page.getNextCursor();
+            pages++;
+        } while (cursor != null);
+
+        assertEquals(6, pages);
+        assertEquals(57, seen.size());
+        assertEquals(57, new HashSet<>(seen).size());
+        assertEquals("b056", seen.get(0));
+        assertEquals("b000", seen.get(56));
+    }
+
+    @Test
+    void summaryViewUsesSamePagingTest() {
+        for (int i = 0; i < 5; i++) {
+            bookingRepository.add(booking(1, "b" + i, BASE.plusSeconds(i)));
+        }
+
+        BookingHistoryPage<BookingSummary> first = bookingHistoryService.getBookingSummaries(1, null, 3);
+        BookingHistoryPage<BookingSummary> second = bookingHistoryService.getBookingSummaries(1, first.getNextCursor(), 3);
+
+        assertEquals(List.of("b4", "b3", "b2"), ids(first.getBookings()));
+        assertEquals("The White House", first.getBookings().get(0).getPickupLocation());
+        assertTrue(first.isHasMore());
+        assertEquals(List.of("b1", "b0"), ids(second.getBookings()));
+        assertFalse(second.isHasMore());
+    }
+
+    @Test
+    void exactlyFullLastPageHasNoCursorTest() {
+        for (int i = 0; i < 4; i++) {
+            bookingRepository.add(booking(1, "b" + i, BASE.plusSeconds(i)));
+        }
+
+        BookingHistoryPage<Booking> page = bookingHistoryService.getBookings(1, null, 4);
+
+        assertEquals(4, page.getBookings().size());
+        assertNull(page.getNextCursor());
+    }
+
+    @Test
+    void defaultPageSizeUsedWithoutLimitTest() {
+        for (int i = 0; i < 30; i++) {
+            bookingRepository.add(booking(1, String.format("b%02d", i), BASE.plusSeconds(i)));
+        }
+
+        assertEquals(20, bookingHistoryService.getBookings(1, null, null).getBookings().size());
+        // one extra row is read to tell whether another page follows
+        assertEquals(21, bookingRepository.lastLimit);
+    }
+
+    @Test
+    void pageShowsCurrentStatusTest() {
+        // the rows still say REQUESTED, as they do while their status updates wait behind the write-behind queue
+        List<String> ids = new ArrayList<>();
+        for (int i = 0; i < 3; i++) {
+            Booking booking = booking(1, UUID.randomUUID().toString(), BASE.plusSeconds(i));
+            booking.setStatus(BookingStatus.REQUESTED);
+            bookingRepository.add(booking);
+            bookingLifecycleService.register(booking.getId());
+            ids.add(booking.getId());
+        }
+        bookingLifecycleService.transition(ids.get(2), BookingStatus.PAID);
+        bookingLifecycleService.transition(ids.get(2), BookingStatus.DISPATCHED);
+        bookingLifecycleService.transition(ids.get(0), BookingStatus.CANCELLED);
+
+        BookingHistoryPage<Booking> bookings = bookingHistoryService.getBookings(1, null, 10);
+        BookingHistoryPage<BookingSummary> summaries = bookingHistoryService.getBookingSummaries(1, null, 10);
+
+        List<BookingStatus> expected = List.of(BookingStatus.DISPATCHED, BookingStatus.REQUESTED, BookingStatus.CANCELLED);
+        assertEquals(expected, bookings.getBookings().stream().map(Booking::getStatus).collect(Collectors.toList()));
+        assertEquals(expected, summaries.getBookings().stream().map(BookingSummary::getStatus).collect(Collectors.toList()));
+    }
+
+    @Test
+    void bookingUnknownToLifecycleKeepsRowStatusTest() {
+        // completed bookings are purged from the lifecycle after the retention, their row has the final status
+        bookingRepository.add(booking(1, "b0", BASE));
+
+        assertEquals(BookingStatus.COMPLETED, bookingHistoryService.getBookings(1, null, 10).getBookings().get(0).getStatus());
+    }
+
+    @Test
+    void cursorRoundTripsTimestampAndIdTest() {
+        Instant createdAt = Instant.parse("2025-03-04T05:06:07.123Z");
+        BookingHistoryService.Position position = BookingHistoryService.decodeCursor(
+                BookingHistoryService.encodeCursor(createdAt, "a:b"));
+
+        assertEquals(createdAt, position.getCreatedAt());
+        assertEquals("a:b", position.getId());
+    }
+
+    // =================== ERROR CASE TESTS ===================
+
+    @Test
+    void invalidLimitRejectedTest() {
+        assertThrows(BookingHistoryService.InvalidPageRequestException.class, () -> bookingHistoryService.getBookings(1, null, 0));
+        assertThrows(BookingHistoryService.InvalidPageRequestException.class, () -> bookingHistoryService.getBookings(1, null, 101));
+    }
+
+    @Test
+    void garbledCursorRejectedTest() {
+        assertThrows(BookingHistoryService.InvalidPageRequestException.class,
+                () -> bookingHistoryService.getBookings(1, "not a cursor!", 10));
+        assertThrows(BookingHistoryService.InvalidPageRequestException.class,
+                () -> bookingHistoryService.getBookings(1, "bm90LWEtbnVtYmVyOjA6eA", 10));
+    }
+
+    private static Booking booking(int clientId, String id, Instant createdAt) {
+        return new Booking(id, clientId, new Location("The White House", 38.8977, -77.0365),
+                new Location("Lincoln Memorial", 38.8893, -77.0502), 1.6, 5.0, 12.5, BookingStatus.COMPLETED, createdAt);
+    }
+
+    private static List<String> ids(List<BookingSummary> summaries) {
+        return summaries.stream().map(BookingSummary::getId).collect(Collectors.toList());
+    }
+
+    /**
+     * in-memory repository applying the same seek condition and ordering as the SQL
+     */
+    private static class SeekingBookingRepository extends BookingRepository {
+        private final List<Booking> bookings = new ArrayList<>();
+        private int lastLimit;
+
+        SeekingBookingRepository() {
+            super(null, null);
+        }
+
+        void add(Booking booking) {
+            bookings.add(booking);
+        }
+
+        @Override
+        public List<Booking> findPageByClient(int clientId, Instant afterCreatedAt, String afterId, int limit) {
+            lastLimit = limit;
+            Comparator<Booking> newestFirst = Comparator.comparing(Booking::getCreatedAt).thenComparing(Booking::getId).reversed();
+            return bookings.stream()
+                    .filter(booking -> booking.getClientId() == clientId)
+                    .filter(booking -> afterCreatedAt == null
+                            || booking.getCreatedAt().isBefore(afterCreatedAt)
+                            || booking.getCreatedAt().equals(afterCreatedAt) && booking.getId().compareTo(afterId) < 0)
+                    .sorted(newestFirst)
+                    .limit(limit)
+                    .collect(Collectors.toList());
+        }
+
+        @Override
+        public List<BookingSummary> findSummaryPageByClient(int clientId, Instant afterCreatedAt, String afterId, int limit) {
+            return findPageByClient(clientId, afterCreatedAt, afterId, limit).stream()
+                    .map(booking -> new BookingSummary(booking.getId(), booking.getCreatedAt(),
+                            booking.getFrom().getLocationName(), booking.getTo().getLocationName(),
+                            booking.getFare(), booking.getStatus()))
+                    .collect(Collectors.toList());
+        }
+    }
+}
@@ -0,0 +1,230 @@
+package com.example.cabbooking.service;
+
+import com.example.cabbooking.model.BookingStatus;
+import com.example.cabbooking.repository.BookingJournal;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class BookingLifecycleServiceTest {
+
+    @TempDir
+    Path tempDir;
+
+    private BookingJournal bookingJournal;
+    private BookingLifecycleService lifecycleService;
+    private String bookingId;
+
+    @BeforeEach
+    void setUp() {
+        bookingJournal = new BookingJournal(tempDir.toString(), 64, false);
+        lifecycleService = new BookingLifecycleService(bookingJournal, 5, 3600000);
+        bookingId = UUID.randomUUID().toString();
+    }
+
+    @AfterEach
+    void tearDown() {
+        bookingJournal.close();
+    }
+
+    // =================== SUCCESS CASE TESTS ===================
+
+    @Test
+    void registerStartsInRequestedTest() {
+        lifecycleService.register(bookingId);
+
+        assertEquals(BookingStatus.REQUESTED, lifecycleService.getStatus(bookingId));
+        assertEquals(1, bookingJournal.getLastSequence());
+    }
+
+    @Test
+    void fullLifecycleTest() {
+        lifecycleService.register(bookingId);
+
+        assertEquals(BookingStatus.REQUESTED, lifecycleService.transition(bookingId, BookingStatus.QUOTED));
+        assertEquals(BookingStatus.QUOTED, lifecycleService.transition(bookingId, BookingStatus.PAID));
+        assertEquals(BookingStatus.PAID, lifecycleService.transition(bookingId, BookingStatus.DISPATCHED));
+        assertEquals(BookingStatus.DISPATCHED, lifecycleService.transition(bookingId, BookingStatus.COMPLETED));
+        assertEquals(BookingStatus.COMPLETED, lifecycleService.getStatus(bookingId));
+    }
+
+    @Test
+    void statusSurvivesRestartTest() {
+        lifecycleService.register(bookingId);
+        lifecycleService.transition(bookingId, BookingStatus.PAID);
+        bookingJournal.close();
+
+        bookingJournal = new BookingJournal(tempDir.toString(), 64, false);
+        BookingLifecycleService restarted = new BookingLifecycleService(bookingJournal, 5, 3600000);
+
+        assertEquals(BookingStatus.PAID, restarted.getStatus(bookingId));
+    }
+
+    @Test
+    void snapshotIsTakenAfterIntervalTest() {
+        for (int i = 0; i < 6; i++) {
+            lifecycleService.register(UUID.randomUUID().toString());
+        }
+
+        assertTrue(bookingJournal.getSnapshotSequence() >= 5);
+        assertTrue(bookingJournal.getRecordsSinceSnapshot() < 5);
+        bookingJournal.close();
+
+        bookingJournal = new BookingJournal(tempDir.toString(), 64, false);
+        assertEquals(6, new BookingLifecycleService(bookingJournal, 5, 3600000).getBookingCount());
+    }
+
+    @Test
+    void claimedPaymentCompletesToPaidTest() {
+        lifecycleService.register(bookingId);
+        lifecycleService.transition(bookingId, BookingStatus.QUOTED);
+
+        assertEquals(BookingStatus.QUOTED, lifecycleService.claimPayment(bookingId));
+        assertEquals(BookingStatus.QUOTED, lifecycleService.completePayment(bookingId));
+
+        assertEquals(BookingStatus.PAID, lifecycleService.getStatus(bookingId));
+        assertThrows(BookingLifecycleService.InvalidTransitionException.class, () -> lifecycleService.claimPayment(bookingId));
+    }
+
+    @Test
+    void releasedClaimCanBeTakenAgainTest() {
+        lifecycleService.register(bookingId);
+
+        lifecycleService.claimPayment(bookingId);
+        lifecycleService.releasePayment(bookingId);
+
+        assertEquals(BookingStatus.REQUESTED, lifecycleService.claimPayment(bookingId));
+        assertEquals(BookingStatus.REQUESTED, lifecycleService.getStatus(bookingId));
+    }
+
+    @Test
+    void terminalBookingsPurgedAfterRetentionTest() {
+        BookingLifecycleService noRetention = new BookingLifecycleService(bookingJournal, 10000, 0);
+        String active = UUID.randomUUID().toString();
+        noRetention.register(bookingId);
+        noRetention.register(active);
+        noRetention.transition(bookingId, BookingStatus.CANCELLED);
+
+        assertEquals(0, lifecycleService.purgeTerminal());
+        assertEquals(1, noRetention.purgeTerminal());
+
+        assertEquals(1, noRetention.getBookingCount());
+        assertEquals(BookingStatus.REQUESTED, noRetention.getStatus(active));
+        assertThrows(BookingLifecycleService.BookingNotFoundException.class, () -> noRetention.getStatus(bookingId));
+    }
+
+    @Test
+    void terminalBookingsLeftOutOfSnapshotTest() {
+        lifecycleService.register(bookingId);
+        lifecycleService.transition(bookingId, BookingStatus.CANCELLED);
+        for (int i = 0; i < 3; i++) {
+            lifecycleService.register(UUID.randomUUID().toString());
+        }
+        assertEquals(5, bookingJournal.getSnapshotSequence());
+        bookingJournal.close();
+
+        bookingJournal = new BookingJournal(tempDir.toString(), 64, false);
+        BookingLifecycleService restarted = new BookingLifecycleService(bookingJournal, 5, 3600000);
+
+        assertEquals(3, restarted.getBookingCount());
+        assertThrows(BookingLifecycleService.BookingNotFoundException.class, () -> restarted.getStatus(bookingId));
+    }
+
+    // =================== EXCEPTION TESTS ===================
+
+    @Test
+    void invalidTransitionShouldThrowException() {
+        lifecycleService.register(bookingId);
+
+        BookingLifecycleService.InvalidTransitionException exception = assertThrows(
+                BookingLifecycleService.InvalidTransitionException.class,
+                () -> lifecycleService.transition(bookingId, BookingStatus.COMPLETED));
+
+        assertTrue(exception.getMessage().contains("cannot move from REQUESTED to COMPLETED"));
+        assertEquals(BookingStatus.REQUESTED, lifecycleService.getStatus(bookingId));
+        assertEquals(1, bookingJournal.getLastSequence());
+    }
+
+    @Test
+    void cancelledBookingCannotBePaidTest() {
+        lifecycleService.register(bookingId);
+        lifecycleService.transition(bookingId, BookingStatus.CANCELLED);
+
+        assertThrows(BookingLifecycleService.InvalidTransitionException.class,
+                () -> lifecycleService.transition(bookingId, BookingStatus.PAID));
+    }
+
+    @Test
+    void unknownBookingShouldThrowException() {
+        assertThrows(BookingLifecycleService.BookingNotFoundException.class, () -> lifecycleService.getStatus(bookingId));
+        assertThrows(BookingLifecycleService.BookingNotFoundException.class,
+                () -> lifecycleService.transition(bookingId, BookingStatus.PAID));
+        assertThrows(BookingLifecycleService.BookingNotFoundException.class, () -> lifecycleService.getStatus(null));
+    }
+
+    @Test
+    void registeringTwiceShouldThrowException() {
+        lifecycleService.register(bookingId);
+
+        assertThrows(BookingLifecycleService.InvalidTransitionException.class, () -> lifecycleService.register(bookingId));
+    }
+
+    @Test
+    void bookingCanOnlyBeClaimedOnceTest() throws Exception {
+        lifecycleService.register(bookingId);
+
+        ExecutorService pool = Executors.newFixedThreadPool(8);
+        List<Future<Boolean>> claims = new ArrayList<>();
+        for (int i = 0; i < 16; i++) {
+            claims.add(pool.submit(() -> {
+                try {
+                    lifecycleService.claimPayment(bookingId);
+                    return true;
+                } catch (BookingLifecycleService.InvalidTransitionException e) {
+                    return false;
+                }
+            }));
+        }
+        int won = 0;
+        for (Future<Boolean> claim : claims) {
+            won += claim.get() ? 1 : 0;
+        }
+        pool.shutdown();
+
+        assertEquals(1, won);
+    }
+
+    @Test
+    void claimedBookingCannotMoveUntilPaidTest() {
+        lifecycleService.register(bookingId);
+        lifecycleService.claimPayment(bookingId);
+
+        BookingLifecycleService.InvalidTransitionException exception = assertThrows(
+                BookingLifecycleService.InvalidTransitionException.class,
+                () -> lifecycleService.transition(bookingId, BookingStatus.CANCELLED));
+
+        assertTrue(exception.getMessage().contains("while its payment is being taken"));
+        assertThrows(BookingLifecycleService.InvalidTransitionException.class,
+                () -> lifecycleService.transition(bookingId, BookingStatus.PAID));
+        assertEquals(BookingStatus.REQUESTED, lifecycleService.getStatus(bookingId));
+    }
+
+    @Test
+    void completingUnclaimedPaymentShouldThrowException() {
+        lifecycleService.register(bookingId);
+
+        assertThrows(BookingLifecycleService.InvalidTransitionException.class, () -> lifecycleService.completePayment(bookingId));
+        assertEquals(BookingStatus.REQUESTED, lifecycleService.getStatus(bookingId));
+    }
+}
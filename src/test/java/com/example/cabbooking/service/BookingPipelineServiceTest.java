@@ -0,0 +1,249 @@
+package com.example.cabbooking.service;
+
+import com.example.cabbooking.model.Booking;
+import com.example.cabbooking.model.BookingStatus;
+import com.example.cabbooking.model.Client;
+import com.example.cabbooking.model.Driver;
+import com.example.cabbooking.model.DriverStatus;
+import com.example.cabbooking.model.Location;
+import com.example.cabbooking.model.VehicleClass;
+import com.example.cabbooking.repository.BookingJournal;
+import com.example.cabbooking.repository.BookingRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class BookingPipelineServiceTest {
+
+    @TempDir
+    Path tempDir;
+
+    private RecordingBookingRepository bookingRepository;
+    private BookingJournal bookingJournal;
+    private BookingLifecycleService bookingLifecycleService;
+    private FleetService fleetService;
+    private BookingService bookingService;
+    private RouteService routeService;
+    private BookingWriteBehindService writeBehind;
+    private DispatchService dispatchService;
+    private BookingPipelineService pipeline;
+
+    private Client client;
+    private Location whiteHouse;
+    private Location lincolnMemorial;
+
+    @BeforeEach
+    void setUp() {
+        bookingRepository = new RecordingBookingRepository();
+        bookingJournal = new BookingJournal(tempDir.toString(), 1024, false);
+        bookingLifecycleService = new BookingLifecycleService(bookingJournal, 10000, 3600000);
+        fleetService = new FleetService(0.01, 15.0, 8);
+
+        LocationDistanceCalculatorService distances = new LocationDistanceCalculatorService(new DistanceCalculatorService());
+        routeService = new RouteService(distances, new SpeedProfileService("classpath:speed-profiles.csv", "America/New_York"));
+        writeBehind = new BookingWriteBehindService(bookingRepository, BookingWriteBehindService.DurabilityMode.SYNC, 50, 100, 0);
+        dispatchService = new DispatchService(fleetService, bookingRepository, DispatchService.DispatchMode.GREEDY, 500, 5, 500, 120);
+        bookingService = new BookingService(routeService, distances, new CalculateFareService(routeService),
+                writeBehind, bookingLifecycleService, dispatchService, new NotificationService(null));
+
+        client = new Client(1, "John Doe", "john@example.com", "555-1234", "123 Main St", "4111-1111-1111-1111");
+        whiteHouse = new Location("The White House", 38.8977, -77.0365);
+        lincolnMemorial = new Location("Lincoln Memorial", 38.8893, -77.0502);
+    }
+
+    @AfterEach
+    void tearDown() {
+        if (pipeline != null) {
+            pipeline.stop();
+        }
+        bookingJournal.close();
+    }
+
+    // =================== SUCCESS CASE TESTS ===================
+
+    @Test
+    void bookingRunsThroughEveryStageTest() {
+        fleetService.registerDriver(new Driver("d1", "Driver d1", 38.8980, -77.0360, DriverStatus.AVAILABLE, VehicleClass.STANDARD));
+        pipeline = newPipeline(64, 10);
+        pipeline.start();
+
+        BookingPipelineService.Ticket ticket = pipeline.submit(client, whiteHouse, lincolnMemorial);
+        assertNotNull(ticket.getBookingId());
+
+        awaitFinished(ticket);
+
+        assertEquals(BookingPipelineService.Stage.COMPLETED, ticket.getStage());
+        assertTrue(ticket.getBooking().getFare() > 0);
+        assertEquals("d1", ticket.getBooking().getDriverId());
+        assertEquals(BookingStatus.REQUESTED, bookingLifecycleService.getStatus(ticket.getBookingId()));
+        assertEquals("d1", bookingRepository.drivers.get(0));
+        assertSame(ticket, pipeline.getTicket(ticket.getBookingId()).orElseThrow());
+    }
+
+    @Test
+    void persistStageWritesBurstsInBatchesTest() {
+        pipeline = newPipeline(256, 50);
+        pipeline.start();
+        bookingRepository.holdWrites();
+
+        List<BookingPipelineService.Ticket> submitted = new ArrayList<>();
+        for (int i = 0; i < 100; i++) {
+            submitted.add(pipeline.submit(client, whiteHouse, lincolnMemorial));
+        }
+        bookingRepository.releaseWrites();
+
+        for (BookingPipelineService.Ticket ticket : submitted) {
+            awaitFinished(ticket);
+            assertEquals(BookingPipelineService.Stage.COMPLETED, ticket.getStage());
+        }
+        int saved = bookingRepository.batches.stream().mapToInt(List::size).sum();
+        assertEquals(100, saved);
+        assertTrue(bookingRepository.batches.size() < 100, "bookings queued behind a slow write should share batches");
+    }
+
+    @Test
+    void finishedTicketsArePurgedTest() {
+        pipeline = newPipeline(64, 10, 0);
+        pipeline.start();
+
+        BookingPipelineService.Ticket ticket = pipeline.submit(client, whiteHouse, lincolnMemorial);
+        awaitFinished(ticket);
+
+        assertEquals(1, pipeline.purgeFinished());
+        assertTrue(pipeline.getTicket(ticket.getBookingId()).isEmpty());
+    }
+
+    // =================== BACKPRESSURE AND ERROR TESTS ===================
+
+    @Test
+    void fullPipelineRejectsNewBookings() {
+        pipeline = newPipeline(2, 1);
+        pipeline.start();
+        bookingRepository.holdWrites();
+
+        int accepted = 0;
+        boolean rejected = false;
+        try {
+            for (int i = 0; i < 100 && !rejected; i++) {
+                try {
+                    pipeline.submit(client, whiteHouse, lincolnMemorial);
+                    accepted++;
+                } catch (BookingPipelineService.PipelineFullException e) {
+                    rejected = true;
+                }
+            }
+        } finally {
+            bookingRepository.releaseWrites();
+        }
+
+        assertTrue(rejected, "a stalled persist stage should back up until submit is refused");
+        assertTrue(accepted >= 2);
+        assertEquals(1L, pipeline.getMetrics().get("rejected"));
+    }
+
+    @Test
+    void failedSaveMarksTicketFailed() {
+        bookingRepository.failAll = true;
+        pipeline = newPipeline(64, 10);
+        pipeline.start();
+
+        BookingPipelineService.Ticket ticket = pipeline.submit(client, whiteHouse, lincolnMemorial);
+        awaitFinished(ticket);
+
+        assertEquals(BookingPipelineService.Stage.FAILED, ticket.getStage());
+        assertTrue(ticket.getError().contains("Cannot save booking"));
+    }
+
+    @Test
+    void invalidBookingIsRejectedAtSubmit() {
+        pipeline = newPipeline(64, 10);
+        pipeline.start();
+
+        assertThrows(BookingService.InvalidBookingException.class,
+                () -> pipeline.submit(client, whiteHouse, whiteHouse));
+        assertThrows(BookingService.InvalidBookingException.class,
+                () -> pipeline.submit(new Client(), whiteHouse, lincolnMemorial));
+    }
+
+    @Test
+    void stoppedPipelineRejectsBookings() {
+        pipeline = newPipeline(64, 10);
+
+        assertThrows(BookingPipelineService.PipelineFullException.class,
+                () -> pipeline.submit(client, whiteHouse, lincolnMemorial));
+    }
+
+    private BookingPipelineService newPipeline(int queueCapacity, int persistBatchSize) {
+        return newPipeline(queueCapacity, persistBatchSize, 600);
+    }
+
+    private BookingPipelineService newPipeline(int queueCapacity, int persistBatchSize, long resultTtlSeconds) {
+        return new BookingPipelineService(bookingService, routeService, writeBehind, bookingLifecycleService,
+                dispatchService, Thread::new, queueCapacity, persistBatchSize, resultTtlSeconds);
+    }
+
+    private static void awaitFinished(BookingPipelineService.Ticket ticket) {
+        long deadline = System.currentTimeMillis() + 5_000;
+        while (!ticket.isFinished()) {
+            assertTrue(System.currentTimeMillis() < deadline, "booking " + ticket.getBookingId() + " stuck in " + ticket.getStage());
+            Thread.onSpinWait();
+        }
+    }
+
+    /**
+     * in-memory repository which can hold writes back to simulate a slow database
+     */
+    private static class RecordingBookingRepository extends BookingRepository {
+        private final List<List<Booking>> batches = new CopyOnWriteArrayList<>();
+        private final List<String> drivers = new CopyOnWriteArrayList<>();
+        private volatile CountDownLatch gate = new CountDownLatch(0);
+        private volatile boolean failAll;
+
+        RecordingBookingRepository() {
+            super(null, null);
+        }
+
+        void holdWrites() {
+            gate = new CountDownLatch(1);
+        }
+
+        void releaseWrites() {
+            gate.countDown();
+        }
+
+        @Override
+        public boolean saveAll(List<Booking> bookings) {
+            try {
+                gate.await(5, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            if (failAll) {
+                return false;
+            }
+            batches.add(new ArrayList<>(bookings));
+            return true;
+        }
+
+        @Override
+        public boolean save(Booking booking) {
+            return !failAll;
+        }
+
+        @Override
+        public boolean updateDriver(String bookingId, String driverId) {
+            drivers.add(driverId);
+            return true;
+        }
+    }
+}
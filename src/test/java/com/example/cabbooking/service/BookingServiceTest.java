@@ -1,13 +1,24 @@
 package com.example.cabbooking.service;
 
+import com.example.cabbooking.model.Booking;
+import com.example.cabbooking.model.BookingContext;
+import com.example.cabbooking.model.BookingStatus;
 import com.example.cabbooking.model.Client;
+import com.example.cabbooking.model.Driver;
+import com.example.cabbooking.model.DriverStatus;
+import com.example.cabbooking.model.VehicleClass;
 import com.example.cabbooking.model.Location;
+import com.example.cabbooking.model.OutboxMessage;
 import com.example.cabbooking.model.Route;
+import com.example.cabbooking.repository.BookingJournal;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
 import org.mockito.Mock;
 import org.mockito.MockitoAnnotations;
 
+import java.util.Optional;
+
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.Mockito.*;
@@ -20,6 +31,18 @@ class BookingServiceTest {
     @Mock
     private LocationDistanceCalculatorService locationDistanceCalculatorService;
 
+    @Mock
+    private CalculateFareService calculateFareService;
+
+    @Mock
+    private BookingWriteBehindService bookingWriteBehindService;
+
+    @Mock
+    private BookingLifecycleService bookingLifecycleService;
+
+    @Mock
+    private DispatchService dispatchService;
+
     private BookingService bookingService;
     private Client validClient;
     private Location startLocation;
@@ -29,7 +52,9 @@ class BookingServiceTest {
     @BeforeEach
     void setUp() {
         MockitoAnnotations.openMocks(this);
-        bookingService = new BookingService(routeService, locationDistanceCalculatorService);
+        bookingService = new BookingService(routeService, locationDistanceCalculatorService,
+                calculateFareService, bookingWriteBehindService, bookingLifecycleService, dispatchService,
+                new NotificationService(null));
 
         // Set up test data
         validClient = new Client(1, "John Doe", "john@email.com", "555-1234", "123 Main St", "4111-1111-1111-1111");
@@ -59,7 +84,113 @@ class BookingServiceTest {
         verify(routeService).getRouteLocationTo(validRoute);
         verify(routeService).getRouteDistance(validRoute);
         verify(locationDistanceCalculatorService).calculateDistanceUsingLocation(startLocation, endLocation);
-        verify(locationDistanceCalculatorService).printDistanceReport(startLocation, endLocation);
+        verify(locationDistanceCalculatorService).printDistanceReport(startLocation, endLocation, 2.5);
+    }
+
+    @Test
+    void testBookCabPersistsBooking() {
+        when(calculateFareService.calculateFareFor(any(BookingContext.class))).thenReturn(12.345);
+        when(routeService.getRouteDuration(validRoute)).thenReturn(9.0);
+
+        Booking booking = bookingService.bookCab(validClient, validRoute);
+
+        assertNotNull(booking.getId());
+        assertEquals(1, booking.getClientId());
+        assertEquals(startLocation, booking.getFrom());
+        assertEquals(endLocation, booking.getTo());
+        assertEquals(2.5, booking.getDistance(), 0.0001);
+        assertEquals(9.0, booking.getDuration(), 0.0001);
+        assertEquals(12.35, booking.getFare(), 0.0001);
+        assertEquals(BookingStatus.REQUESTED, booking.getStatus());
+        verify(bookingWriteBehindService).persist(eq(booking), any(OutboxMessage.class));
+        verify(bookingLifecycleService).register(booking.getId());
+    }
+
+    @Test
+    void testBookCabSavesConfirmationWithBooking() {
+        Booking booking = bookingService.bookCab(validClient, validRoute);
+
+        ArgumentCaptor<OutboxMessage> confirmation = ArgumentCaptor.forClass(OutboxMessage.class);
+        verify(bookingWriteBehindService).persist(eq(booking), confirmation.capture());
+        assertEquals(NotificationService.BOOKING_CONFIRMED + ":" + booking.getId(), confirmation.getValue().getEventId());
+        assertEquals(validClient.getEmail(), confirmation.getValue().getRecipient());
+        assertTrue(confirmation.getValue().getBody().contains(booking.getId()));
+    }
+
+    @Test
+    void testBookCabWithContextDoesNotValidateAgain() {
+        BookingContext context = new BookingContext(validClient, startLocation, endLocation, 2.5, 9.0, 2.5);
+        when(calculateFareService.calculateFareFor(context)).thenReturn(12.345);
+
+        Booking booking = bookingService.bookCab(context);
+
+        assertEquals(12.35, booking.getFare(), 0.0001);
+        assertEquals(9.0, booking.getDuration(), 0.0001);
+        verifyNoInteractions(routeService);
+        verify(locationDistanceCalculatorService, never()).calculateDistanceUsingLocation(any(), any());
+        verify(calculateFareService, never()).calculateFare(any(Route.class));
+    }
+
+    @Test
+    void testCreateContextKeepsItsOwnCopy() {
+        when(routeService.getRouteDuration(validRoute)).thenReturn(9.0);
+
+        BookingContext context = bookingService.createContext(validClient, validRoute);
+        validClient.setEmail("changed@email.com");
+        startLocation.setLatitude(0);
+
+        assertEquals("john@email.com", context.getClient().getEmail());
+        assertEquals(40.7829, context.getFrom().getLatitude(), 0.0001);
+        assertEquals(2.5, context.getDistance(), 0.0001);
+        assertEquals(9.0, context.getDuration(), 0.0001);
+        assertEquals(2.5, context.getDirectDistance(), 0.0001);
+    }
+
+    @Test
+    void testContextGettersReturnCopies() {
+        BookingContext context = new BookingContext(validClient, startLocation, endLocation, 2.5, 9.0, 2.5);
+
+        context.getClient().setEmail("changed@email.com");
+        context.getFrom().setLatitude(0);
+        context.getRoute().getTo().setLatitude(0);
+
+        assertEquals("john@email.com", context.getClient().getEmail());
+        assertEquals(40.7829, context.getFrom().getLatitude(), 0.0001);
+        assertEquals(endLocation.getLatitude(), context.getTo().getLatitude(), 0.0001);
+    }
+
+    @Test
+    void testBookCabReservesNearestDriver() {
+        Driver driver = new Driver("driver-7", "Sam", 40.7830, -73.9650, DriverStatus.RESERVED, VehicleClass.STANDARD);
+        when(dispatchService.reserveDriver(any(Booking.class))).thenReturn(Optional.of(driver));
+
+        Booking booking = bookingService.bookCab(validClient, validRoute);
+
+        assertEquals("driver-7", booking.getDriverId());
+        verify(dispatchService).reserveDriver(booking);
+        verify(dispatchService).queueForNextTick(booking);
+    }
+
+    @Test
+    void testBookCabWithoutAvailableDriverStillBooks() {
+        when(dispatchService.reserveDriver(any(Booking.class))).thenReturn(Optional.empty());
+
+        Booking booking = bookingService.bookCab(validClient, validRoute);
+
+        assertNull(booking.getDriverId());
+        verify(bookingWriteBehindService).persist(eq(booking), any(OutboxMessage.class));
+    }
+
+    @Test
+    void testUpdateBookingStatusKeepsDriverInStep() {
+        when(bookingLifecycleService.transition("booking-1", BookingStatus.DISPATCHED)).thenReturn(BookingStatus.PAID);
+        when(bookingLifecycleService.transition("booking-1", BookingStatus.COMPLETED)).thenReturn(BookingStatus.DISPATCHED);
+
+        assertEquals(BookingStatus.PAID, bookingService.updateBookingStatus("booking-1", BookingStatus.DISPATCHED));
+        verify(dispatchService).startTrip("booking-1");
+
+        bookingService.updateBookingStatus("booking-1", BookingStatus.COMPLETED);
+        verify(dispatchService).release("booking-1");
     }
 
     @Test
@@ -237,6 +368,37 @@ class BookingServiceTest {
         System.out.println(exception.getMessage());
     }
 
+    @Test
+    void testBookCabWhenBookingCannotBeSavedShouldThrowBookingProcessException() {
+        doThrow(new BookingWriteBehindService.BookingPersistenceException("Booking queue is full"))
+                .when(bookingWriteBehindService).persist(any(Booking.class), any());
+
+        BookingService.BookingProcessException exception = assertThrows(
+                BookingService.BookingProcessException.class,
+                () -> bookingService.bookCab(validClient, validRoute)
+        );
+
+        assertTrue(exception.getMessage().contains("Cannot save booking"));
+        verify(bookingLifecycleService, never()).register(anyString());
+        verify(dispatchService).release(anyString());
+        System.out.println(exception.getMessage());
+    }
+
+    @Test
+    void testBookCabWhenBookingCannotBeRegisteredReleasesDriver() {
+        doThrow(new BookingJournal.JournalException("Could not append to booking journal: disk full"))
+                .when(bookingLifecycleService).register(anyString());
+
+        BookingService.BookingProcessException exception = assertThrows(
+                BookingService.BookingProcessException.class,
+                () -> bookingService.bookCab(validClient, validRoute)
+        );
+
+        assertTrue(exception.getMessage().contains("Cannot register booking"));
+        verify(dispatchService).release(anyString());
+        verify(dispatchService, never()).queueForNextTick(any(Booking.class));
+    }
+
     // =================== FINISH BOOKING EXCEPTION TESTS ===================
 
     @Test
@@ -368,6 +530,6 @@ class BookingServiceTest {
         verify(routeService, times(2)).getRouteLocationTo(validRoute);
         verify(routeService).getRouteDistance(validRoute);
         verify(locationDistanceCalculatorService).calculateDistanceUsingLocation(startLocation, endLocation);
-        verify(locationDistanceCalculatorService).printDistanceReport(startLocation, endLocation);
+        verify(locationDistanceCalculatorService).printDistanceReport(startLocation, endLocation, 2.5);
     }
 }
\ No newline at end of file
@@ -0,0 +1,355 @@
+package com.example.cabbooking.service;
+
+import com.example.cabbooking.model.Booking;
+import com.example.cabbooking.model.BookingStatus;
+import com.example.cabbooking.model.Location;
+import com.example.cabbooking.model.OutboxMessage;
+import com.example.cabbooking.repository.BookingRepository;
+import com.example.cabbooking.repository.OutboxRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.transaction.support.SimpleTransactionStatus;
+import org.springframework.transaction.support.TransactionCallback;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class BookingWriteBehindServiceTest {
+
+    private RecordingBookingRepository repository;
+    private BookingWriteBehindService writeBehind;
+
+    @BeforeEach
+    void setUp() {
+        repository = new RecordingBookingRepository();
+    }
+
+    @AfterEach
+    void tearDown() {
+        if (writeBehind != null) {
+            writeBehind.stop();
+        }
+    }
+
+    // =================== SUCCESS CASE TESTS ===================
+
+    @Test
+    void syncModeWritesOnCallerThreadTest() {
+        writeBehind = new BookingWriteBehindService(repository, BookingWriteBehindService.DurabilityMode.SYNC, 50, 100, 0);
+        writeBehind.start();
+
+        writeBehind.persist(newBooking());
+
+        assertEquals(1, repository.singleInserts.size());
+        assertTrue(repository.batches.isEmpty());
+        assertEquals(1, writeBehind.getBookingsWritten());
+    }
+
+    @Test
+    void groupCommitWaitsForBatchTest() {
+        writeBehind = new BookingWriteBehindService(repository, BookingWriteBehindService.DurabilityMode.GROUP_COMMIT, 50, 100, 0);
+        writeBehind.start();
+
+        Booking booking = newBooking();
+        writeBehind.persist(booking);
+
+        // persist only returns once the batch holding the booking has been written
+        assertEquals(1, repository.batches.size());
+        assertTrue(repository.batches.get(0).contains(booking));
+    }
+
+    @Test
+    void concurrentBookingsShareBatchesTest() throws Exception {
+        writeBehind = new BookingWriteBehindService(repository, BookingWriteBehindService.DurabilityMode.GROUP_COMMIT, 50, 1000, 20);
+        writeBehind.start();
+
+        int threads = 8;
+        int perThread = 25;
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        CountDownLatch ready = new CountDownLatch(1);
+        List<Future<?>> futures = new ArrayList<>();
+        for (int t = 0; t < threads; t++) {
+            futures.add(executor.submit(() -> {
+                ready.await();
+                for (int i = 0; i < perThread; i++) {
+                    writeBehind.persist(newBooking());
+                }
+                return null;
+            }));
+        }
+        ready.countDown();
+        for (Future<?> future : futures) {
+            future.get(10, TimeUnit.SECONDS);
+        }
+        executor.shutdown();
+
+        int written = repository.batches.stream().mapToInt(List::size).sum();
+        assertEquals(threads * perThread, written);
+        assertTrue(repository.batches.size() < threads * perThread);
+        assertTrue(repository.batches.stream().allMatch(batch -> batch.size() <= 50));
+    }
+
+    @Test
+    void asyncModeIsFlushedOnStopTest() {
+        writeBehind = new BookingWriteBehindService(repository, BookingWriteBehindService.DurabilityMode.ASYNC, 50, 100, 0);
+        writeBehind.start();
+
+        for (int i = 0; i < 10; i++) {
+            writeBehind.persist(newBooking());
+        }
+        writeBehind.stop();
+
+        assertEquals(10, writeBehind.getBookingsWritten());
+        assertEquals(0, writeBehind.getQueuedCount());
+    }
+
+    @Test
+    void failedBatchFallsBackToSingleInsertsTest() {
+        repository.failBatches = true;
+        repository.rejectedClientId = 99;
+        writeBehind = new BookingWriteBehindService(repository, BookingWriteBehindService.DurabilityMode.GROUP_COMMIT, 50, 100, 0);
+        writeBehind.start();
+
+        writeBehind.persist(newBooking());
+
+        Booking rejected = newBooking();
+        rejected.setClientId(99);
+        assertThrows(BookingWriteBehindService.BookingPersistenceException.class, () -> writeBehind.persist(rejected));
+        assertEquals(1, writeBehind.getBookingsFailed());
+    }
+
+    @Test
+    void notificationsAreWrittenInBookingTransactionTest() {
+        RecordingOutboxRepository outbox = new RecordingOutboxRepository();
+        RecordingTransactionTemplate transactions = new RecordingTransactionTemplate();
+        writeBehind = new BookingWriteBehindService(repository, outbox, transactions,
+                BookingWriteBehindService.DurabilityMode.GROUP_COMMIT, 50, 100, 0, 5000, Thread::new);
+        writeBehind.start();
+
+        Booking booking = newBooking();
+        writeBehind.persist(booking, confirmation(booking));
+
+        assertEquals(1, repository.batches.size());
+        assertEquals(1, outbox.saved.size());
+        assertEquals("BOOKING_CONFIRMED:" + booking.getId(), outbox.saved.get(0).getEventId());
+        assertEquals(1, transactions.committed);
+        assertEquals(0, transactions.rolledBack);
+    }
+
+    @Test
+    void statusUpdateIsWrittenAfterQueuedInsertTest() {
+        writeBehind = new BookingWriteBehindService(repository, BookingWriteBehindService.DurabilityMode.ASYNC, 50, 100, 0);
+        writeBehind.start();
+
+        Booking booking = newBooking();
+        writeBehind.persist(booking);
+        writeBehind.updateStatus(booking.getId(), BookingStatus.PAID);
+        writeBehind.updateStatus(booking.getId(), BookingStatus.DISPATCHED);
+        writeBehind.stop();
+
+        // the row exists before its status is written, and only the latest status reaches it
+        assertEquals(List.of("insert " + booking.getId(), "status " + booking.getId() + " DISPATCHED"), repository.writes);
+    }
+
+    @Test
+    void syncModeWritesStatusOnCallerThreadTest() {
+        writeBehind = new BookingWriteBehindService(repository, BookingWriteBehindService.DurabilityMode.SYNC, 50, 100, 0);
+        writeBehind.start();
+
+        Booking booking = newBooking();
+        writeBehind.persist(booking);
+        writeBehind.updateStatus(booking.getId(), BookingStatus.CANCELLED);
+
+        assertEquals(List.of("insert " + booking.getId(), "status " + booking.getId() + " CANCELLED"), repository.writes);
+    }
+
+    // =================== EXCEPTION TESTS ===================
+
+    @Test
+    void failedNotificationRollsBackBookingTest() {
+        RecordingOutboxRepository outbox = new RecordingOutboxRepository();
+        outbox.fail = true;
+        RecordingTransactionTemplate transactions = new RecordingTransactionTemplate();
+        writeBehind = new BookingWriteBehindService(repository, outbox, transactions,
+                BookingWriteBehindService.DurabilityMode.SYNC, 50, 100, 0, 5000, Thread::new);
+
+        Booking booking = newBooking();
+        assertThrows(BookingWriteBehindService.BookingPersistenceException.class,
+                () -> writeBehind.persist(booking, confirmation(booking)));
+
+        assertEquals(0, transactions.committed);
+        assertEquals(1, transactions.rolledBack);
+        assertEquals(1, writeBehind.getBookingsFailed());
+    }
+
+    @Test
+    void timedOutBookingIsNeverSavedTest() throws Exception {
+        repository.batchStarted = new CountDownLatch(1);
+        repository.releaseBatches = new CountDownLatch(1);
+        writeBehind = new BookingWriteBehindService(repository, null, null,
+                BookingWriteBehindService.DurabilityMode.GROUP_COMMIT, 1, 100, 0, 100, Thread::new);
+        writeBehind.start();
+
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            // the first booking holds the writer in a slow batch, so the second one waits in the queue past its timeout
+            Booking first = newBooking();
+            Future<?> firstSaved = executor.submit(() -> writeBehind.persist(first));
+            assertTrue(repository.batchStarted.await(5, TimeUnit.SECONDS));
+
+            Booking second = newBooking();
+            BookingWriteBehindService.BookingPersistenceException exception = assertThrows(
+                    BookingWriteBehindService.BookingPersistenceException.class, () -> writeBehind.persist(second));
+            assertTrue(exception.getMessage().startsWith("Timed out"));
+            assertEquals(0, writeBehind.getQueuedCount());
+
+            repository.releaseBatches.countDown();
+            firstSaved.get(5, TimeUnit.SECONDS);
+            writeBehind.stop();
+
+            assertEquals(List.of("insert " + first.getId()), repository.writes);
+            assertEquals(1, writeBehind.getBookingsWritten());
+            assertEquals(1, writeBehind.getBookingsFailed());
+        } finally {
+            repository.releaseBatches.countDown();
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    void persistNullBookingShouldThrowException() {
+        writeBehind = new BookingWriteBehindService(repository, BookingWriteBehindService.DurabilityMode.SYNC, 50, 100, 0);
+
+        assertThrows(BookingWriteBehindService.BookingPersistenceException.class, () -> writeBehind.persist(null));
+    }
+
+    @Test
+    void invalidSettingsShouldThrowException() {
+        assertThrows(IllegalArgumentException.class, () -> new BookingWriteBehindService(
+                repository, BookingWriteBehindService.DurabilityMode.ASYNC, 0, 100, 0));
+        assertThrows(IllegalArgumentException.class, () -> new BookingWriteBehindService(
+                repository, BookingWriteBehindService.DurabilityMode.ASYNC, 50, 0, 0));
+        assertThrows(IllegalArgumentException.class, () -> new BookingWriteBehindService(
+                repository, null, null, BookingWriteBehindService.DurabilityMode.GROUP_COMMIT, 50, 100, 0, 0, Thread::new));
+    }
+
+    private static Booking newBooking() {
+        return new Booking(UUID.randomUUID().toString(), 1,
+                new Location("The White House", 38.8977, -77.0365),
+                new Location("Lincoln Memorial", 38.8893, -77.0502),
+                1.5, 6.0, 9.75, BookingStatus.REQUESTED, Instant.now());
+    }
+
+    private static OutboxMessage confirmation(Booking booking) {
+        return new OutboxMessage("BOOKING_CONFIRMED:" + booking.getId(), NotificationService.BOOKING_CONFIRMED,
+                "john@email.com", "Your cab is booked", "Hi John Doe", Instant.now());
+    }
+
+    private static class RecordingOutboxRepository extends OutboxRepository {
+        private final List<OutboxMessage> saved = new CopyOnWriteArrayList<>();
+        private volatile boolean fail;
+
+        RecordingOutboxRepository() {
+            super(null);
+        }
+
+        @Override
+        public boolean save(OutboxMessage message) {
+            return saveAll(List.of(message));
+        }
+
+        @Override
+        public boolean saveAll(List<OutboxMessage> messages) {
+            if (fail) {
+                return false;
+            }
+            saved.addAll(messages);
+            return true;
+        }
+    }
+
+    /**
+     * runs the callback straight away and counts how each transaction ended
+     */
+    private static class RecordingTransactionTemplate extends TransactionTemplate {
+        private volatile int committed;
+        private volatile int rolledBack;
+
+        @Override
+        public <T> T execute(TransactionCallback<T> action) {
+            SimpleTransactionStatus status = new SimpleTransactionStatus();
+            T result = action.doInTransaction(status);
+            if (status.isRollbackOnly()) {
+                rolledBack++;
+            } else {
+                committed++;
+            }
+            return result;
+        }
+    }
+
+    /**
+     * in-memory repository which records how bookings reached it
+     */
+    private static class RecordingBookingRepository extends BookingRepository {
+        private final List<List<Booking>> batches = new CopyOnWriteArrayList<>();
+        private final List<Booking> singleInserts = new CopyOnWriteArrayList<>();
+        private final List<String> writes = new CopyOnWriteArrayList<>();
+        private volatile boolean failBatches;
+        private volatile int rejectedClientId = -1;
+        private volatile CountDownLatch batchStarted;
+        private volatile CountDownLatch releaseBatches;
+
+        RecordingBookingRepository() {
+            super(null, null);
+        }
+
+        @Override
+        public boolean saveAll(List<Booking> bookings) {
+            if (failBatches) {
+                return false;
+            }
+            if (releaseBatches != null) {
+                batchStarted.countDown();
+                try {
+                    releaseBatches.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return false;
+                }
+            }
+            batches.add(new ArrayList<>(bookings));
+            bookings.forEach(booking -> writes.add("insert " + booking.getId()));
+            return true;
+        }
+
+        @Override
+        public boolean save(Booking booking) {
+            if (booking.getClientId() == rejectedClientId) {
+                return false;
+            }
+            singleInserts.add(booking);
+            writes.add("insert " + booking.getId());
+            return true;
+        }
+
+        @Override
+        public boolean updateStatuses(Map<String, BookingStatus> statuses) {
+            statuses.forEach((id, status) -> writes.add("status " + id + " " + status));
+            return true;
+        }
+    }
+}
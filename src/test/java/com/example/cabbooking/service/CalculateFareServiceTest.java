@@ -55,7 +55,8 @@ class CalculateFareServiceTest {
 
         DistanceCalculatorService realDistanceService = new DistanceCalculatorService();
         LocationDistanceCalculatorService realLocationDistanceCalculatorService = new LocationDistanceCalculatorService(realDistanceService);
-        RouteService realRouteService = new RouteService(realLocationDistanceCalculatorService);
+        RouteService realRouteService = new RouteService(realLocationDistanceCalculatorService,
+                new SpeedProfileService("classpath:speed-profiles.csv", "America/New_York"));
 
         double distance = realRouteService.getRouteDistance(route);
 
@@ -207,6 +208,30 @@ class CalculateFareServiceTest {
         assertTrue(exception.getMessage().contains("Route is invalid"));
     }
 
+    @Test
+    void calculateFareAddsPerMinuteComponentTest() {
+        when(routeServiceMock.getRouteDistance(route)).thenReturn(10.0);
+        when(routeServiceMock.getRouteDuration(route)).thenReturn(20.0);
+
+        double cabFare = calculateFareService.calculateFare(route);
+
+        assertEquals(3 + (10.0 * 3) + (20.0 * 0.35), cabFare, 0.0001);
+    }
+
+    @Test
+    void calculateFareWithNegativeDurationShouldThrowException() {
+        when(routeServiceMock.getRouteDuration(route)).thenReturn(-5.0);
+
+        assertThrows(CalculateFareService.FareCalculationException.class,
+                () -> calculateFareService.calculateFare(route));
+    }
+
+    @Test
+    void setDollarsPerMinuteWithNegativeValueShouldThrowException() {
+        assertThrows(CalculateFareService.InvalidFareParametersException.class,
+                () -> calculateFareService.setDollarsPerMinute(-0.1));
+    }
+
     // =================== SETTER/GETTER TESTS ===================
 
     @Test
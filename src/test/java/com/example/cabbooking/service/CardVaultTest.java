@@ -0,0 +1,190 @@
+package com.example.cabbooking.service;
+
+import com.example.cabbooking.repository.CardVaultRepository;
+import org.junit.jupiter.api.Test;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CardVaultTest {
+
+    private static final String VISA = "4111-1111-1111-1111";
+
+    /**
+     * keeps ciphertexts in a map instead of MySQL
+     */
+    private static class InMemoryCardVaultRepository extends CardVaultRepository {
+        private final Map<String, byte[]> ciphertexts = new HashMap<>();
+        private int batches;
+
+        InMemoryCardVaultRepository() {
+            super(null);
+        }
+
+        @Override
+        public boolean save(String token, byte[] ciphertext) {
+            ciphertexts.putIfAbsent(token, ciphertext);
+            return true;
+        }
+
+        @Override
+        public boolean saveAll(Map<String, byte[]> ciphertexts) {
+            batches++;
+            ciphertexts.forEach(this.ciphertexts::putIfAbsent);
+            return true;
+        }
+
+        @Override
+        public Optional<byte[]> findCiphertext(String token) {
+            return Optional.ofNullable(ciphertexts.get(token));
+        }
+    }
+
+    // =================== SUCCESS CASE TESTS ===================
+
+    @Test
+    void tokenCarriesLastFourOnlyTest() {
+        CardVault vault = new CardVault(null, "");
+
+        String token = vault.tokenize(VISA);
+
+        assertTrue(CardVault.isToken(token));
+        assertTrue(token.startsWith("tok_1111_"));
+        assertFalse(token.contains("411111"));
+        assertEquals("1111", CardVault.lastFour(token));
+    }
+
+    @Test
+    void sameCardSameTokenWhateverTheFormattingTest() {
+        CardVault vault = new CardVault(null, "");
+
+        assertEquals(vault.tokenize(VISA), vault.tokenize("4111 1111 1111 1111"));
+        assertEquals(vault.tokenize(VISA), vault.tokenize("4111111111111111"));
+        assertNotEquals(vault.tokenize(VISA), vault.tokenize("5555-5555-5555-4444"));
+    }
+
+    @Test
+    void tokenDigestIsHmacSha256Test() throws Exception {
+        CardVault vault = new CardVault(new InMemoryCardVaultRepository(), "vault-secret");
+        String token = vault.tokenize(VISA);
+
+        Mac derive = Mac.getInstance("HmacSHA256");
+        derive.init(new SecretKeySpec("vault-secret".getBytes(StandardCharsets.UTF_8), "HmacSHA256"));
+        byte[] tokenKey = derive.doFinal("card-vault-token".getBytes(StandardCharsets.UTF_8));
+        Mac mac = Mac.getInstance("HmacSHA256");
+        mac.init(new SecretKeySpec(tokenKey, "HmacSHA256"));
+        byte[] expected = mac.doFinal("4111111111111111".getBytes(StandardCharsets.US_ASCII));
+
+        StringBuilder hex = new StringBuilder();
+        for (int i = 0; i < 16; i++) {
+            hex.append(String.format("%02x", expected[i]));
+        }
+        assertEquals("tok_1111_" + hex, token);
+    }
+
+    @Test
+    void matchesTokenAndLegacyCardTest() {
+        CardVault vault = new CardVault(null, "");
+        String token = vault.tokenize(VISA);
+
+        assertTrue(vault.matches("4111 1111 1111 1111", token));
+        assertFalse(vault.matches("5555-5555-5555-4444", token));
+        assertTrue(vault.matches("4111111111111111", VISA));
+        assertFalse(vault.matches("5555-5555-5555-4444", VISA));
+        assertFalse(vault.matches(VISA, "not a card"));
+    }
+
+    @Test
+    void revealDecryptsStoredCardTest() {
+        InMemoryCardVaultRepository repository = new InMemoryCardVaultRepository();
+        String token = new CardVault(repository, "vault-secret").tokenize(VISA);
+
+        // a vault restarted with the same secret reads the card back
+        CardVault restarted = new CardVault(repository, "vault-secret");
+        assertEquals("4111111111111111", restarted.reveal(token));
+        assertEquals("4111111111111111", restarted.reveal(VISA));
+
+        byte[] ciphertext = repository.findCiphertext(token).get();
+        assertFalse(new String(ciphertext, StandardCharsets.ISO_8859_1).contains("4111111111111111"));
+    }
+
+    @Test
+    void sealedCardsStoredInOneBatchTest() {
+        InMemoryCardVaultRepository repository = new InMemoryCardVaultRepository();
+        CardVault vault = new CardVault(repository, "vault-secret");
+
+        CardVault.SealedCard visa = vault.seal(VISA);
+        CardVault.SealedCard mastercard = vault.seal("5555-5555-5555-4444");
+        assertEquals(vault.tokenize(VISA), visa.getToken());
+        assertTrue(repository.findCiphertext(mastercard.getToken()).isEmpty());
+
+        vault.storeAll(List.of(visa, mastercard, vault.seal("4111 1111 1111 1111")));
+
+        assertEquals(1, repository.batches);
+        assertEquals(2, repository.ciphertexts.size());
+        assertEquals("5555555555554444", vault.reveal(mastercard.getToken()));
+    }
+
+    @Test
+    void normalizeAndLuhnTest() {
+        byte[] digits = new byte[CardVault.MAX_DIGITS];
+
+        int length = CardVault.normalize("4111-1111 1111\t1111", digits);
+
+        assertEquals(16, length);
+        assertTrue(CardVault.luhn(digits, length));
+        assertEquals(-1, CardVault.normalize("4111-1111-1111-111a", digits));
+        assertEquals(-1, CardVault.normalize("411111111111", digits));
+        assertEquals(-1, CardVault.normalize("41111111111111111111", digits));
+
+        length = CardVault.normalize("4111111111111112", digits);
+        assertFalse(CardVault.luhn(digits, length));
+    }
+
+    // =================== ERROR CASE TESTS ===================
+
+    @Test
+    void invalidCardsRejectedTest() {
+        CardVault vault = new CardVault(null, "");
+
+        CardVault.InvalidCardException format = assertThrows(CardVault.InvalidCardException.class, () -> vault.tokenize("123"));
+        assertEquals("Invalid credit card number format", format.getMessage());
+        assertThrows(CardVault.InvalidCardException.class, () -> vault.tokenize("4111-1111-1111-1112"));
+        assertThrows(CardVault.InvalidCardException.class, () -> vault.tokenize(null));
+        assertThrows(CardVault.InvalidCardException.class, () -> vault.matches("4111-1111-1111-1112", VISA));
+    }
+
+    @Test
+    void wrongSecretCannotRevealTest() {
+        InMemoryCardVaultRepository repository = new InMemoryCardVaultRepository();
+        String token = new CardVault(repository, "vault-secret").tokenize(VISA);
+
+        CardVault otherKey = new CardVault(repository, "another-secret");
+
+        assertThrows(CardVault.CardVaultException.class, () -> otherKey.reveal(token));
+        // and its tokens are different, so the old token does not match the card either
+        assertFalse(otherKey.matches(VISA, token));
+    }
+
+    @Test
+    void unknownTokenCannotBeRevealedTest() {
+        CardVault vault = new CardVault(null, "");
+        String token = new CardVault(null, "").tokenize(VISA);
+
+        assertThrows(CardVault.CardVaultException.class, () -> vault.reveal(token));
+    }
+
+    @Test
+    void lastFourOfShortCardTest() {
+        assertNull(CardVault.lastFour("123"));
+        assertNull(CardVault.lastFour(null));
+        assertEquals("4444", CardVault.lastFour("5555-5555-5555-4444"));
+    }
+}
@@ -0,0 +1,128 @@
+package com.example.cabbooking.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CircuitBreakerTest {
+
+    private final AtomicLong now = new AtomicLong(1_000_000);
+
+    private CircuitBreaker breaker() {
+        // window of 10, opens at 50% failures once 4 calls are in, stays open 1s, 2 trial calls
+        return new CircuitBreaker(10, 0.5, 4, 1000, 2, now::get);
+    }
+
+    private void fail(CircuitBreaker breaker, int times) {
+        for (int i = 0; i < times; i++) {
+            assertTrue(breaker.tryAcquire());
+            breaker.onFailure();
+        }
+    }
+
+    private void succeed(CircuitBreaker breaker, int times) {
+        for (int i = 0; i < times; i++) {
+            assertTrue(breaker.tryAcquire());
+            breaker.onSuccess();
+        }
+    }
+
+    // =================== SUCCESS CASE TESTS ===================
+
+    @Test
+    void staysClosedBelowMinimumCallsTest() {
+        CircuitBreaker breaker = breaker();
+
+        fail(breaker, 3);
+
+        assertEquals(CircuitBreaker.State.CLOSED, breaker.getState());
+        assertEquals(1.0, breaker.getFailureRate());
+    }
+
+    @Test
+    void staysClosedBelowFailureRateTest() {
+        CircuitBreaker breaker = breaker();
+
+        succeed(breaker, 6);
+        fail(breaker, 4);
+
+        assertEquals(CircuitBreaker.State.CLOSED, breaker.getState());
+        assertEquals(0.4, breaker.getFailureRate(), 1e-9);
+    }
+
+    @Test
+    void oldOutcomesLeaveTheWindowTest() {
+        CircuitBreaker breaker = breaker();
+
+        succeed(breaker, 4);
+        fail(breaker, 1);
+        succeed(breaker, 10);
+
+        assertEquals(0.0, breaker.getFailureRate());
+    }
+
+    @Test
+    void closesAfterSuccessfulTrialsTest() {
+        CircuitBreaker breaker = breaker();
+        fail(breaker, 4);
+        now.addAndGet(1000);
+
+        assertEquals(CircuitBreaker.State.HALF_OPEN, breaker.getState());
+        succeed(breaker, 2);
+
+        assertEquals(CircuitBreaker.State.CLOSED, breaker.getState());
+        assertEquals(0.0, breaker.getFailureRate());
+    }
+
+    // =================== ERROR CASE TESTS ===================
+
+    @Test
+    void opensAtFailureRateAndRefusesCallsTest() {
+        CircuitBreaker breaker = breaker();
+
+        succeed(breaker, 2);
+        fail(breaker, 2);
+
+        assertEquals(CircuitBreaker.State.OPEN, breaker.getState());
+        assertFalse(breaker.tryAcquire());
+        assertEquals(1, breaker.getTimesOpened());
+    }
+
+    @Test
+    void halfOpenLimitsTrialCallsTest() {
+        CircuitBreaker breaker = breaker();
+        fail(breaker, 4);
+        now.addAndGet(1000);
+
+        assertTrue(breaker.tryAcquire());
+        assertTrue(breaker.tryAcquire());
+        assertFalse(breaker.tryAcquire());
+
+        // a permit handed back unused lets another trial through
+        breaker.release();
+        assertTrue(breaker.tryAcquire());
+    }
+
+    @Test
+    void failedTrialReopensTest() {
+        CircuitBreaker breaker = breaker();
+        fail(breaker, 4);
+        now.addAndGet(1000);
+
+        assertTrue(breaker.tryAcquire());
+        breaker.onFailure();
+
+        assertEquals(CircuitBreaker.State.OPEN, breaker.getState());
+        assertFalse(breaker.tryAcquire());
+        assertEquals(2, breaker.getTimesOpened());
+    }
+
+    @Test
+    void invalidSettingsRejectedTest() {
+        assertThrows(IllegalArgumentException.class, () -> new CircuitBreaker(5, 0.5, 10, 1000, 1));
+        assertThrows(IllegalArgumentException.class, () -> new CircuitBreaker(10, 0, 5, 1000, 1));
+        assertThrows(IllegalArgumentException.class, () -> new CircuitBreaker(10, 0.5, 5, 0, 1));
+    }
+}
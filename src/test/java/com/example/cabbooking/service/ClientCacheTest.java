@@ -0,0 +1,144 @@
+package com.example.cabbooking.service;
+
+import com.example.cabbooking.model.Client;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ClientCacheTest {
+
+    private long now;
+    private ClientCache cache;
+
+    @BeforeEach
+    void setUp() {
+        cache = new ClientCache(2, 60000, 1000, () -> now);
+    }
+
+    // =================== SUCCESS CASE TESTS ===================
+
+    @Test
+    void clientIsFoundByIdAndEmailTest() {
+        cache.putById(1, Optional.of(client(1, "john@email.com")), cache.generation());
+
+        assertEquals("John Doe", cache.getById(1).get().getName());
+        assertEquals(Integer.valueOf(1), cache.getByEmail(" JOHN@email.com").get().getId());
+        assertEquals(2L, cache.getMetrics().get("hits"));
+    }
+
+    @Test
+    void unknownKeyIsAMissTest() {
+        assertNull(cache.getById(1));
+        assertNull(cache.getByEmail("john@email.com"));
+        assertEquals(2L, cache.getMetrics().get("misses"));
+    }
+
+    @Test
+    void missIsCachedForTheNegativeTtlTest() {
+        cache.putById(7, Optional.empty(), cache.generation());
+        cache.putByEmail("nobody@email.com", Optional.empty(), cache.generation());
+
+        assertEquals(Optional.empty(), cache.getById(7));
+        assertEquals(Optional.empty(), cache.getByEmail("nobody@email.com"));
+        assertEquals(2L, cache.getMetrics().get("negativeHits"));
+
+        now += TimeUnit.MILLISECONDS.toNanos(1001);
+        assertNull(cache.getById(7));
+        assertNull(cache.getByEmail("nobody@email.com"));
+    }
+
+    @Test
+    void clientExpiresAfterTtlTest() {
+        cache.putById(1, Optional.of(client(1, "john@email.com")), cache.generation());
+
+        now += TimeUnit.MILLISECONDS.toNanos(60001);
+
+        assertNull(cache.getById(1));
+        assertNull(cache.getByEmail("john@email.com"));
+    }
+
+    @Test
+    void cachedClientIsACopyTest() {
+        Client client = client(1, "john@email.com");
+        cache.putById(1, Optional.of(client), cache.generation());
+        client.setName("Changed");
+        cache.getById(1).get().setName("Changed again");
+
+        assertEquals("John Doe", cache.getById(1).get().getName());
+    }
+
+    @Test
+    void invalidateRemovesBothKeysTest() {
+        cache.putById(1, Optional.of(client(1, "john@email.com")), cache.generation());
+
+        cache.invalidate(1, null);
+
+        assertNull(cache.getById(1));
+        assertNull(cache.getByEmail("john@email.com"));
+        assertEquals(1L, cache.getMetrics().get("invalidations"));
+    }
+
+    @Test
+    void invalidateEmailRemovesCachedMissTest() {
+        cache.putByEmail("new@email.com", Optional.empty(), cache.generation());
+
+        cache.invalidate(null, "new@email.com");
+
+        assertNull(cache.getByEmail("new@email.com"));
+    }
+
+    @Test
+    void loadStartedBeforeInvalidationIsNotStoredTest() {
+        long generation = cache.generation();
+        // the client changes while the old row is being read
+        cache.invalidate(1, "john@email.com");
+
+        cache.putById(1, Optional.of(client(1, "john@email.com")), generation);
+
+        assertNull(cache.getById(1));
+    }
+
+    @Test
+    void leastRecentlyUsedClientIsEvictedTest() {
+        cache.putById(1, Optional.of(client(1, "one@email.com")), cache.generation());
+        cache.putById(2, Optional.of(client(2, "two@email.com")), cache.generation());
+        cache.getById(1);
+
+        cache.putById(3, Optional.of(client(3, "three@email.com")), cache.generation());
+
+        assertNotNull(cache.getById(1));
+        assertNull(cache.getById(2));
+        assertNull(cache.getByEmail("two@email.com"));
+        assertNotNull(cache.getById(3));
+        assertEquals(1L, cache.getMetrics().get("evictions"));
+    }
+
+    @Test
+    void hitRatioCountsHitsAndNegativeHitsTest() {
+        cache.putById(1, Optional.of(client(1, "john@email.com")), cache.generation());
+        cache.putById(2, Optional.empty(), cache.generation());
+
+        cache.getById(1);
+        cache.getById(2);
+        cache.getById(3);
+        cache.getById(1);
+
+        assertEquals(0.75, (double) cache.getMetrics().get("hitRatio"), 0.0001);
+    }
+
+    // =================== EXCEPTION TESTS ===================
+
+    @Test
+    void negativeSettingsShouldThrowException() {
+        assertThrows(IllegalArgumentException.class, () -> new ClientCache(-1, 1000, 1000));
+        assertThrows(IllegalArgumentException.class, () -> new ClientCache(10, -1, 1000));
+    }
+
+    private static Client client(int id, String email) {
+        return new Client(id, "John Doe", email, "555-1234", "123 Main St", null);
+    }
+}
@@ -0,0 +1,167 @@
+package com.example.cabbooking.service;
+
+import com.example.cabbooking.model.Client;
+import com.example.cabbooking.repository.ClientRepository;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.zip.GZIPInputStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ClientExportServiceTest {
+
+    /**
+     * hands its clients to streamAll one at a time, as the streaming result set does
+     */
+    private static class InMemoryClientRepository extends ClientRepository {
+        private final List<Client> clients = new ArrayList<>();
+        private boolean failAfterFirst;
+
+        InMemoryClientRepository() {
+            super(null, null);
+        }
+
+        @Override
+        public boolean streamAll(ClientRowHandler handler) {
+            try {
+                for (Client client : clients) {
+                    handler.onClient(client);
+                    if (failAfterFirst) {
+                        throw new RuntimeException("Connection lost");
+                    }
+                }
+                return true;
+            } catch (RuntimeException e) {
+                return false;
+            }
+        }
+    }
+
+    @TempDir
+    Path directory;
+
+    private final InMemoryClientRepository repository = new InMemoryClientRepository();
+    private final ClientExportService service = new ClientExportService(repository);
+
+    private String export(ClientExportService.Format format) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        assertEquals(repository.clients.size(), service.export(out, format, false));
+        return out.toString(StandardCharsets.UTF_8);
+    }
+
+    // =================== SUCCESS CASE TESTS ===================
+
+    @Test
+    void ndjsonOneClientPerLineWithCardMaskedTest() {
+        repository.clients.add(new Client(1, "John Doe", "john@example.com", "555-1234", "123 Main St", "4111-1111-1111-1111"));
+        repository.clients.add(new Client(2, "Jane \"JJ\" Doe", "jane@example.com", null, "1 Elm St\nApt 2", null));
+
+        String ndjson = export(ClientExportService.Format.NDJSON);
+
+        assertEquals("{\"id\":1,\"name\":\"John Doe\",\"email\":\"john@example.com\",\"phone\":\"555-1234\","
+                + "\"address\":\"123 Main St\",\"credit_card\":\"****1111\"}\n"
+                + "{\"id\":2,\"name\":\"Jane \\\"JJ\\\" Doe\",\"email\":\"jane@example.com\",\"phone\":null,"
+                + "\"address\":\"1 Elm St\\nApt 2\",\"credit_card\":null}\n", ndjson);
+    }
+
+    @Test
+    void csvQuotesOnlyFieldsThatNeedItTest() {
+        String token = new CardVault(null, "").tokenize("5555-5555-5555-4444");
+        repository.clients.add(new Client(1, "Smith, Jane", "jane@example.com", null, "12 \"Elm\" St", token));
+        repository.clients.add(new Client(2, "John Doe", "john@example.com", "555-1234", "123 Main St", null));
+
+        String csv = export(ClientExportService.Format.CSV);
+
+        assertEquals("id,name,email,phone,address,credit_card\n"
+                + "1,\"Smith, Jane\",jane@example.com,,\"12 \"\"Elm\"\" St\",****4444\n"
+                + "2,John Doe,john@example.com,555-1234,123 Main St,\n", csv);
+    }
+
+    @Test
+    void nonAsciiWrittenAsUtf8Test() {
+        String name = "Zoë Łukasz 李 🚕";
+        repository.clients.add(new Client(1, name, "zoe@example.com", null, null, null));
+
+        assertTrue(export(ClientExportService.Format.CSV).contains("1," + name + ",zoe@example.com"));
+        assertTrue(export(ClientExportService.Format.NDJSON).contains("\"name\":\"" + name + "\""));
+    }
+
+    @Test
+    void gzipExportTest() throws IOException {
+        for (int i = 1; i <= 5000; i++) {
+            repository.clients.add(new Client(i, "Client " + i, "client" + i + "@example.com", null, null, null));
+        }
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+        assertEquals(5000, service.export(out, ClientExportService.Format.CSV, true));
+
+        String csv = new String(new GZIPInputStream(new ByteArrayInputStream(out.toByteArray())).readAllBytes(),
+                StandardCharsets.UTF_8);
+        String[] lines = csv.split("\n");
+        assertEquals(5001, lines.length);
+        assertEquals("5000,Client 5000,client5000@example.com,,,", lines[5000]);
+    }
+
+    @Test
+    void exportToFileReplacesItWhenCompleteTest() throws IOException {
+        repository.clients.add(new Client(1, "John Doe", "john@example.com", null, null, "4111111111111111"));
+        Path file = directory.resolve("clients.ndjson");
+        Files.writeString(file, "old export");
+
+        assertEquals(1, service.exportToFile(file, ClientExportService.Format.NDJSON, false));
+
+        assertTrue(Files.readString(file).contains("\"credit_card\":\"****1111\""));
+        assertFalse(Files.exists(directory.resolve("clients.ndjson.tmp")));
+    }
+
+    @Test
+    void formatFromNameTest() {
+        assertEquals(ClientExportService.Format.CSV, ClientExportService.formatOf("/exports/Clients.CSV.gz"));
+        assertEquals(ClientExportService.Format.NDJSON, ClientExportService.formatOf("clients.ndjson"));
+        assertEquals(ClientExportService.Format.CSV, ClientExportService.Format.fromName(" CSV "));
+    }
+
+    // =================== ERROR CASE TESTS ===================
+
+    @Test
+    void failedExportLeavesPreviousFileTest() throws IOException {
+        repository.clients.add(new Client(1, "John Doe", "john@example.com", null, null, null));
+        repository.clients.add(new Client(2, "Jane Doe", "jane@example.com", null, null, null));
+        repository.failAfterFirst = true;
+        Path file = directory.resolve("clients.csv");
+        Files.writeString(file, "old export");
+
+        assertEquals(-1, service.exportToFile(file, ClientExportService.Format.CSV, false));
+
+        assertEquals("old export", Files.readString(file));
+        assertFalse(Files.exists(directory.resolve("clients.csv.tmp")));
+    }
+
+    @Test
+    void closedStreamStopsExportTest() {
+        repository.clients.add(new Client(1, "John Doe", "john@example.com", null, null, null));
+        OutputStream closed = new OutputStream() {
+            @Override
+            public void write(int b) throws IOException {
+                throw new IOException("Broken pipe");
+            }
+        };
+
+        assertEquals(-1, service.export(closed, ClientExportService.Format.NDJSON, false));
+    }
+
+    @Test
+    void unknownFormatRejectedTest() {
+        assertThrows(ClientExportService.InvalidExportException.class, () -> ClientExportService.Format.fromName("xml"));
+    }
+}
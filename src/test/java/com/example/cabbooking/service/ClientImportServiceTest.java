@@ -0,0 +1,236 @@
+package com.example.cabbooking.service;
+
+import com.example.cabbooking.model.Client;
+import com.example.cabbooking.model.ClientImportResult;
+import com.example.cabbooking.repository.ClientRepository;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ClientImportServiceTest {
+
+    private static final String HEADER = "name,email,phone,address,credit_card\n";
+
+    /**
+     * keeps clients in a list instead of MySQL, recording each batch insert.
+     * A batch holding a rejected email fails as a whole, as it would in a transaction
+     */
+    private static class InMemoryClientRepository extends ClientRepository {
+        private final List<Client> clients = new ArrayList<>();
+        private final List<Integer> batches = new ArrayList<>();
+        private final Set<String> rejectedEmails = new HashSet<>();
+        private boolean failLookups;
+
+        InMemoryClientRepository() {
+            super(null, null);
+        }
+
+        @Override
+        public synchronized void insertBatch(List<Client> batch) {
+            batches.add(batch.size());
+            for (Client client : batch) {
+                if (rejectedEmails.contains(client.getEmail())) {
+                    throw new RuntimeException("Batch failed", new RuntimeException("Data too long for column 'email'"));
+                }
+            }
+            clients.addAll(batch);
+        }
+
+        @Override
+        public synchronized Set<String> findExistingEmails(Collection<String> emails) {
+            if (failLookups) {
+                throw new RuntimeException("Connection lost");
+            }
+            Set<String> existing = new HashSet<>();
+            for (Client client : clients) {
+                String email = client.getEmail().toLowerCase(Locale.ROOT);
+                if (emails.contains(email)) {
+                    existing.add(email);
+                }
+            }
+            return existing;
+        }
+    }
+
+    private final InMemoryClientRepository repository = new InMemoryClientRepository();
+    private final CardVault cardVault = new CardVault(null, "");
+    private final ClientCache clientCache = new ClientCache();
+
+    private ClientImportService service(int batchSize, int maxErrors) {
+        return new ClientImportService(repository, cardVault, clientCache, null, batchSize, maxErrors, 4, Thread::new);
+    }
+
+    private static InputStream csv(String text) {
+        return new ByteArrayInputStream(text.getBytes(StandardCharsets.UTF_8));
+    }
+
+    // =================== SUCCESS CASE TESTS ===================
+
+    @Test
+    void importsCsvInBatchesTest() {
+        StringBuilder file = new StringBuilder(HEADER);
+        for (int i = 0; i < 2500; i++) {
+            file.append("Client ").append(i).append(",client").append(i).append("@example.com,555-").append(i)
+                    .append(",").append(i).append(" Main St,\n");
+        }
+
+        ClientImportResult result = service(1000, 100).importClients(csv(file.toString()), ClientImportService.Format.CSV);
+
+        assertEquals(2500, result.getRows());
+        assertEquals(2500, result.getImported());
+        assertEquals(0, result.getFailed());
+        assertEquals(List.of(1000, 1000, 500), repository.batches);
+        // rows keep the file's order across the validator threads
+        assertEquals("client0@example.com", repository.clients.get(0).getEmail());
+        assertEquals("client2499@example.com", repository.clients.get(2499).getEmail());
+        assertNull(repository.clients.get(0).getCredit_card());
+    }
+
+    @Test
+    void cardsAreTokenisedBeforeInsertTest() {
+        String file = HEADER + "John Doe,john@example.com,555-1234,123 Main St,4111-1111-1111-1111\n";
+
+        service(1000, 100).importClients(csv(file), ClientImportService.Format.CSV);
+
+        String card = repository.clients.get(0).getCredit_card();
+        assertTrue(CardVault.isToken(card));
+        assertEquals("4111111111111111", cardVault.reveal(card));
+    }
+
+    @Test
+    void quotedFieldsAndColumnOrderTest() {
+        String file = "email,Name,address\n"
+                + "jane@example.com,\"Smith, Jane\",\"12 \"\"Elm\"\" St\"\n";
+
+        ClientImportResult result = service(1000, 100).importClients(csv(file), ClientImportService.Format.CSV);
+
+        assertEquals(1, result.getImported());
+        Client client = repository.clients.get(0);
+        assertEquals("Smith, Jane", client.getName());
+        assertEquals("12 \"Elm\" St", client.getAddress());
+        assertNull(client.getPhone());
+    }
+
+    @Test
+    void importedEmailNoLongerCachedAsMissTest() {
+        clientCache.putByEmail("john@example.com", Optional.empty(), clientCache.generation());
+        assertNotNull(clientCache.getByEmail("john@example.com"));
+
+        service(1000, 100).importClients(csv(HEADER + "John Doe,John@Example.com,,,\n"), ClientImportService.Format.CSV);
+
+        assertNull(clientCache.getByEmail("john@example.com"));
+    }
+
+    @Test
+    void formatFromContentTypeTest() {
+        assertEquals(ClientImportService.Format.CSV, ClientImportService.Format.fromContentType("text/csv; charset=UTF-8"));
+        assertEquals(ClientImportService.Format.NDJSON, ClientImportService.Format.fromContentType("application/x-ndjson"));
+        assertThrows(ClientImportService.InvalidImportException.class,
+                () -> ClientImportService.Format.fromContentType("application/json"));
+    }
+
+    // =================== ERROR CASE TESTS ===================
+
+    @Test
+    void invalidRowsReportedWithTheirLineTest() {
+        String file = HEADER
+                + "John Doe,john@example.com,,,\n"
+                + ",noname@example.com,,,\n"
+                + "Bad Email,not-an-email,,,\n"
+                + "\n"
+                + "Bad Card,card@example.com,,,4111-1111-1111-1112\n"
+                + "Short Row,short@example.com\n"
+                + "\"Open Quote,quote@example.com,,,\n"
+                + "Jane Doe,jane@example.com,,,\n";
+
+        ClientImportResult result = service(1000, 100).importClients(csv(file), ClientImportService.Format.CSV);
+
+        assertEquals(7, result.getRows());
+        assertEquals(2, result.getImported());
+        assertEquals(5, result.getFailed());
+        List<Long> lines = new ArrayList<>();
+        result.getErrors().forEach(error -> lines.add(error.getLine()));
+        assertEquals(List.of(3L, 4L, 6L, 7L, 8L), lines);
+        assertEquals("Client name is required", result.getErrors().get(0).getMessage());
+        assertFalse(result.getErrors().get(2).getMessage().contains("4111"));
+    }
+
+    @Test
+    void duplicateEmailsRejectedAcrossBatchesTest() {
+        repository.clients.add(new Client(1, "Existing", "taken@example.com", null, null, null));
+        String file = HEADER
+                + "A,a@example.com,,,\n"
+                + "B,TAKEN@example.com,,,\n"
+                + "C,A@Example.com,,,\n"
+                + "D,d@example.com,,,\n"
+                + "E,a@example.com,,,\n";
+
+        ClientImportResult result = service(3, 100).importClients(csv(file), ClientImportService.Format.CSV);
+
+        assertEquals(2, result.getImported());
+        assertEquals(3, result.getFailed());
+        assertEquals("Email A@Example.com is already used on line 2", result.getErrors().get(0).getMessage());
+        assertEquals("Client with email TAKEN@example.com already exists", result.getErrors().get(1).getMessage());
+        // the first batch was committed before the second one was checked
+        assertEquals("Client with email a@example.com already exists", result.getErrors().get(2).getMessage());
+    }
+
+    @Test
+    void failedBatchRetriedToFindTheFailingRowTest() {
+        repository.rejectedEmails.add("c@example.com");
+        StringBuilder file = new StringBuilder(HEADER);
+        for (char name = 'A'; name <= 'H'; name++) {
+            file.append(name).append(',').append(Character.toLowerCase(name)).append("@example.com,,,\n");
+        }
+
+        ClientImportResult result = service(1000, 100).importClients(csv(file.toString()), ClientImportService.Format.CSV);
+
+        assertEquals(7, result.getImported());
+        assertEquals(1, result.getFailed());
+        assertEquals(4, result.getErrors().get(0).getLine());
+        assertEquals("Client could not be written: Data too long for column 'email'", result.getErrors().get(0).getMessage());
+        // only the halves holding the failing row are split again
+        assertEquals(List.of(8, 4, 2, 2, 1, 1, 4), repository.batches);
+    }
+
+    @Test
+    void failedEmailCheckRejectsBatchWithoutInsertingTest() {
+        repository.failLookups = true;
+
+        ClientImportResult result = service(1000, 100).importClients(
+                csv(HEADER + "A,a@example.com,,,\nB,b@example.com,,,\n"), ClientImportService.Format.CSV);
+
+        assertEquals(0, result.getImported());
+        assertEquals(2, result.getFailed());
+        assertTrue(result.getErrors().get(0).getMessage().contains("Connection lost"));
+        assertTrue(repository.batches.isEmpty());
+    }
+
+    @Test
+    void errorListCappedTest() {
+        StringBuilder file = new StringBuilder(HEADER);
+        for (int i = 0; i < 20; i++) {
+            file.append("No Email ").append(i).append(",,,,\n");
+        }
+
+        ClientImportResult result = service(1000, 5).importClients(csv(file.toString()), ClientImportService.Format.CSV);
+
+        assertEquals(20, result.getFailed());
+        assertEquals(5, result.getErrors().size());
+        assertTrue(result.isErrorsTruncated());
+    }
+
+    @Test
+    void headerWithoutEmailRejectedTest() {
+        assertThrows(ClientImportService.InvalidImportException.class,
+                () -> service(1000, 100).importClients(csv("name,phone\nJohn,555\n"), ClientImportService.Format.CSV));
+        assertThrows(ClientImportService.InvalidImportException.class,
+                () -> service(1000, 100).importClients(csv(""), ClientImportService.Format.CSV));
+        assertTrue(repository.batches.isEmpty());
+    }
+}
@@ -1,12 +1,14 @@
 package com.example.cabbooking.service;
 
 import com.example.cabbooking.model.Client;
+import com.example.cabbooking.model.ClientPage;
 import com.example.cabbooking.repository.ClientRepository;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.BeforeEach;
 import org.mockito.Mock;
 import org.mockito.MockitoAnnotations;
 
+import java.io.ByteArrayOutputStream;
 import java.util.*;
 
 import static org.junit.jupiter.api.Assertions.*;
@@ -67,6 +69,211 @@ public class ClientServiceTest {
         verify(clientRepository).findAll();
     }
 
+    // === CLIENT CACHE TESTS ===
+    @Test
+    public void testGetClientByIdIsReadThrough() {
+        // Arrange
+        when(clientRepository.findById(1)).thenReturn(Optional.of(testClient));
+
+        // Act: the second lookup is answered by the cache
+        clientService.getClientById(1);
+        Optional<Client> result = clientService.getClientById(1);
+
+        // Assert
+        assertEquals("John Doe", result.get().getName());
+        verify(clientRepository, times(1)).findById(1);
+        assertEquals(1L, clientService.getCacheMetrics().get("hits"));
+    }
+
+    @Test
+    public void testMissingClientIsCached() {
+        // Arrange
+        when(clientRepository.findById(999)).thenReturn(Optional.empty());
+
+        // Act
+        clientService.getClientById(999);
+        boolean exists = clientService.clientExists(999);
+
+        // Assert: neither the second lookup nor the existence check reach the database
+        assertFalse(exists);
+        verify(clientRepository, times(1)).findById(999);
+        verify(clientRepository, never()).exists(anyInt());
+    }
+
+    @Test
+    public void testGetClientByEmailIsReadThrough() {
+        // Arrange
+        when(clientRepository.findByEmail("john@email.com")).thenReturn(Optional.of(testClient));
+
+        // Act: once found by email, the client is cached by id too
+        clientService.getClientByEmail("john@email.com");
+        Optional<Client> byEmail = clientService.getClientByEmail("John@Email.com");
+        Optional<Client> byId = clientService.getClientById(1);
+
+        // Assert
+        assertEquals(Integer.valueOf(1), byEmail.get().getId());
+        assertEquals("John Doe", byId.get().getName());
+        verify(clientRepository, times(1)).findByEmail("john@email.com");
+        verify(clientRepository, never()).findById(anyInt());
+    }
+
+    @Test
+    public void testUpdateClientInvalidatesCache() {
+        // Arrange
+        when(clientRepository.findById(1)).thenReturn(Optional.of(testClient));
+        when(clientRepository.updateClient(testClient)).thenReturn(true);
+        clientService.getClientById(1);
+
+        // Act
+        clientService.updateClient(testClient);
+        clientService.getClientById(1);
+
+        // Assert: the lookup after the update reads the database again
+        verify(clientRepository, times(2)).findById(1);
+    }
+
+    @Test
+    public void testDeleteClientInvalidatesCache() {
+        // Arrange
+        when(clientRepository.findById(1)).thenReturn(Optional.of(testClient));
+        when(clientRepository.deleteClient(1)).thenReturn(true);
+        clientService.getClientById(1);
+
+        // Act
+        clientService.deleteClient(1);
+        clientService.getClientById(1);
+
+        // Assert
+        verify(clientRepository, times(2)).findById(1);
+    }
+
+    @Test
+    public void testAddClientInvalidatesCachedMissForEmail() {
+        // Arrange
+        when(clientRepository.findByEmail("john@email.com")).thenReturn(Optional.empty());
+        when(clientRepository.newClient(testClient)).thenReturn(true);
+        clientService.getClientByEmail("john@email.com");
+
+        // Act
+        clientService.addClient(testClient);
+        clientService.getClientByEmail("john@email.com");
+
+        // Assert
+        verify(clientRepository, times(2)).findByEmail("john@email.com");
+    }
+
+    @Test
+    public void testChangesAreBroadcastAndReceived() {
+        // Arrange: an invalidator that records what this node publishes and lets the test play another node
+        RecordingInvalidator invalidator = new RecordingInvalidator();
+        ClientService service = new ClientService(clientRepository, new CardVault(null, ""), new ClientCache(), invalidator,
+                100, 1000, 0, 20, 100);
+        when(clientRepository.findById(1)).thenReturn(Optional.of(testClient));
+        when(clientRepository.deleteClient(2)).thenReturn(true);
+        service.getClientById(1);
+
+        // Act
+        service.deleteClient(2);
+        invalidator.listener.onInvalidate(1, "john@email.com");
+        service.getClientById(1);
+
+        // Assert
+        assertEquals(List.of(2), invalidator.published);
+        verify(clientRepository, times(2)).findById(1);
+    }
+
+    // === GET CLIENT PAGE TESTS ===
+    @Test
+    public void testGetClientsFirstPageHasNextAfter() {
+        // Arrange: one row more than the page size means another page follows
+        Client second = new Client(2, "Jane Smith", "jane@email.com", "555-5678", "456 Oak Ave", "5555-5555-5555-4444");
+        Client third = new Client(3, "Bob Stone", "bob@email.com", "555-9012", "789 Elm St", null);
+        when(clientRepository.findPage(0, 3)).thenReturn(new ArrayList<>(Arrays.asList(testClient, second, third)));
+
+        // Act
+        ClientPage page = clientService.getClients(null, 2);
+
+        // Assert
+        assertEquals(2, page.getClients().size());
+        assertEquals(Integer.valueOf(2), page.getNextAfter());
+        assertTrue(page.isHasMore());
+    }
+
+    @Test
+    public void testGetClientsLastPage() {
+        // Arrange
+        when(clientRepository.findPage(1, 101)).thenReturn(new ArrayList<>(List.of(testClient)));
+
+        // Act
+        ClientPage page = clientService.getClients(1, null);
+
+        // Assert
+        assertEquals(1, page.getClients().size());
+        assertNull(page.getNextAfter());
+        assertFalse(page.isHasMore());
+        verify(clientRepository, never()).findAll();
+    }
+
+    @Test
+    public void testGetClientsWithInvalidPageRequest() {
+        assertThrows(ClientService.InvalidPageRequestException.class, () -> clientService.getClients(null, 0));
+        assertThrows(ClientService.InvalidPageRequestException.class, () -> clientService.getClients(null, 1001));
+        assertThrows(ClientService.InvalidPageRequestException.class, () -> clientService.getClients(-1, null));
+        verifyNoInteractions(clientRepository);
+    }
+
+    @Test
+    public void testStreamClientsWhenDatabaseError() {
+        // Arrange
+        when(clientRepository.streamAll(any(ClientRepository.ClientRowHandler.class))).thenReturn(false);
+
+        // Act & Assert
+        assertFalse(clientService.streamClients(new ByteArrayOutputStream()));
+    }
+
+    // === SEARCH CLIENTS TESTS ===
+    @Test
+    public void testSearchClientsByPhoneUsesDefaultLimit() {
+        when(clientRepository.findByPhone("(555) 123-4567", 20)).thenReturn(Arrays.asList(testClient));
+
+        List<Client> result = clientService.searchClients(null, "(555) 123-4567", null, null);
+
+        assertEquals(1, result.size());
+        verify(clientRepository, times(1)).findByPhone("(555) 123-4567", 20);
+    }
+
+    @Test
+    public void testSearchClientsByNamePrefix() {
+        when(clientRepository.findByNamePrefix("Jo", 5)).thenReturn(Arrays.asList(testClient));
+
+        List<Client> result = clientService.searchClients(null, "", " Jo ", 5);
+
+        assertEquals("John Doe", result.get(0).getName());
+    }
+
+    @Test
+    public void testSearchClientsByEmailIsCached() {
+        when(clientRepository.findByEmail("john@email.com")).thenReturn(Optional.of(testClient));
+
+        assertEquals(1, clientService.searchClients("john@email.com", null, null, null).size());
+        assertEquals(1, clientService.searchClients("john@email.com", null, null, null).size());
+
+        verify(clientRepository, times(1)).findByEmail("john@email.com");
+    }
+
+    @Test
+    public void testSearchClientsNeedsExactlyOneCriterion() {
+        assertThrows(ClientService.InvalidSearchException.class,
+                () -> clientService.searchClients(null, " ", null, null));
+        assertThrows(ClientService.InvalidSearchException.class,
+                () -> clientService.searchClients("john@email.com", null, "Jo", null));
+        assertThrows(ClientService.InvalidSearchException.class,
+                () -> clientService.searchClients(null, "ext.", null, null));
+        assertThrows(ClientService.InvalidSearchException.class,
+                () -> clientService.searchClients(null, null, "Jo", 101));
+        verifyNoInteractions(clientRepository);
+    }
+
     // === GET CLIENT BY ID TESTS ===
     @Test
     public void testGetClientByIdWhenFound() {
@@ -155,6 +362,27 @@ public class ClientServiceTest {
         verify(clientRepository, never()).newClient(any(Client.class));
     }
 
+    @Test
+    public void testAddClientStoresCardTokenNotCardNumber() {
+        when(clientRepository.newClient(testClient)).thenReturn(true);
+
+        boolean result = clientService.addClient(testClient);
+
+        assertTrue(result);
+        assertTrue(CardVault.isToken(testClient.getCredit_card()));
+        assertEquals("1111", CardVault.lastFour(testClient.getCredit_card()));
+    }
+
+    @Test
+    public void testAddClientWithInvalidCard() {
+        Client clientWithBadCard = new Client(2, "Jane Smith", "jane@email.com", "555-5678", "456 Oak Ave", "4111-1111-1111-1112");
+
+        boolean result = clientService.addClient(clientWithBadCard);
+
+        assertFalse(result);
+        verify(clientRepository, never()).newClient(any(Client.class));
+    }
+
     // === UPDATE CLIENT TESTS ===
     @Test
     public void testUpdateClientSuccess() {
@@ -186,6 +414,18 @@ public class ClientServiceTest {
         verify(clientRepository).updateClient(testClient);
     }
 
+    @Test
+    public void testUpdateClientKeepsExistingToken() {
+        clientService.addClient(testClient);
+        String token = testClient.getCredit_card();
+        when(clientRepository.updateClient(testClient)).thenReturn(true);
+
+        boolean result = clientService.updateClient(testClient);
+
+        assertTrue(result);
+        assertEquals(token, testClient.getCredit_card());
+    }
+
     @Test
     public void testUpdateClientWithNull() {
         // Act: Service handles null without calling repository
@@ -271,8 +511,8 @@ public class ClientServiceTest {
     // === UTILITY METHOD TESTS ===
     @Test
     public void testClientExistsWhenFound() {
-        // Arrange: Mock repository to return client
-        when(clientRepository.findById(1)).thenReturn(Optional.of(testClient));
+        // Arrange: Mock repository to find the client
+        when(clientRepository.exists(1)).thenReturn(true);
 
         // Act
         boolean result = clientService.clientExists(1);
@@ -280,14 +520,15 @@ public class ClientServiceTest {
         // Assert
         assertTrue(result);
 
-        // Verify
-        verify(clientRepository).findById(1);
+        // Verify: existence is checked without reading the row
+        verify(clientRepository).exists(1);
+        verify(clientRepository, never()).findById(anyInt());
     }
 
     @Test
     public void testClientExistsWhenNotFound() {
         // Arrange: Mock repository to return empty
-        when(clientRepository.findById(999)).thenReturn(Optional.empty());
+        when(clientRepository.exists(999)).thenReturn(false);
 
         // Act
         boolean result = clientService.clientExists(999);
@@ -296,7 +537,7 @@ public class ClientServiceTest {
         assertFalse(result);
 
         // Verify
-        verify(clientRepository).findById(999);
+        verify(clientRepository).exists(999);
     }
 
     @Test
@@ -308,24 +549,68 @@ public class ClientServiceTest {
         assertFalse(result);
 
         // Verify: Repository should NOT be called
-        verify(clientRepository, never()).findById(anyInt());
+        verify(clientRepository, never()).exists(anyInt());
     }
 
     @Test
     public void testGetClientCount() {
-        // Arrange: Mock repository to return list of clients
-        List<Client> clients = Arrays.asList(testClient,
-                new Client(2, "Jane", "jane@email.com", "555-5678", "456 Oak Ave", "5555-5555"));
-        when(clientRepository.findAll()).thenReturn(clients);
+        // Arrange: Mock repository to count the clients
+        when(clientRepository.count()).thenReturn(2L);
 
         // Act
-        int count = clientService.getClientCount();
+        long count = clientService.getClientCount();
 
         // Assert
         assertEquals(2, count);
 
-        // Verify
-        verify(clientRepository).findAll();
+        // Verify: the rows are counted by the database, not loaded
+        verify(clientRepository).count();
+        verify(clientRepository, never()).findAll();
+    }
+
+    @Test
+    public void testApproximateClientCountIsCached() {
+        // Arrange
+        when(clientRepository.approximateCount()).thenReturn(1000L);
+
+        // Act
+        long first = clientService.getApproximateClientCount();
+        long second = clientService.getApproximateClientCount();
+
+        // Assert: the estimate is read once and reused within the TTL
+        assertEquals(1000, first);
+        assertEquals(1000, second);
+        verify(clientRepository, times(1)).approximateCount();
+    }
+
+    @Test
+    public void testApproximateClientCountWithoutCache() {
+        // Arrange: a TTL of 0 reads the estimate every time
+        ClientService uncached = new ClientService(clientRepository, new CardVault(null, ""), new ClientCache(),
+                new LocalClientCacheInvalidator(), 100, 1000, 0, 20, 100);
+        when(clientRepository.approximateCount()).thenReturn(1000L);
+
+        // Act
+        uncached.getApproximateClientCount();
+        uncached.getApproximateClientCount();
+
+        // Assert
+        verify(clientRepository, times(2)).approximateCount();
+    }
+
+    @Test
+    public void testApproximateClientCountKeptWhenEstimateFails() {
+        // Arrange
+        ClientService uncached = new ClientService(clientRepository, new CardVault(null, ""), new ClientCache(),
+                new LocalClientCacheInvalidator(), 100, 1000, 0, 20, 100);
+        when(clientRepository.approximateCount()).thenReturn(1000L, -1L);
+
+        // Act
+        uncached.getApproximateClientCount();
+        long second = uncached.getApproximateClientCount();
+
+        // Assert: a failed read keeps the last estimate
+        assertEquals(1000, second);
     }
 
     // === INTEGRATION-STYLE TESTS ===
@@ -360,4 +645,24 @@ public class ClientServiceTest {
         verify(clientRepository).updateClient(testClient);
         verify(clientRepository).deleteClient(1);
     }
-}
\ No newline at end of file
+
+    private static class RecordingInvalidator implements ClientCacheInvalidator {
+        private final List<Integer> published = new ArrayList<>();
+        private Listener listener;
+
+        @Override
+        public void publish(Integer clientId, String email) {
+            published.add(clientId);
+        }
+
+        @Override
+        public void subscribe(Listener listener) {
+            this.listener = listener;
+        }
+
+        @Override
+        public String getName() {
+            return "recording";
+        }
+    }
+}
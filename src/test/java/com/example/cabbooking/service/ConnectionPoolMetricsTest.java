@@ -0,0 +1,84 @@
+package com.example.cabbooking.service;
+
+import com.zaxxer.hikari.metrics.IMetricsTracker;
+import com.zaxxer.hikari.metrics.PoolStats;
+import org.junit.jupiter.api.Test;
+
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ConnectionPoolMetricsTest {
+
+    // =================== SUCCESS CASE TESTS ===================
+
+    @Test
+    void metricsReadPoolCountsTest() {
+        ConnectionPoolMetrics poolMetrics = new ConnectionPoolMetrics();
+        poolMetrics.create("cab-booking-db", new FixedPoolStats(3, 17, 2, 20));
+
+        Map<String, Object> metrics = poolMetrics.getMetrics();
+
+        assertEquals("cab-booking-db", metrics.get("pool"));
+        assertEquals(3, metrics.get("active"));
+        assertEquals(17, metrics.get("idle"));
+        assertEquals(20, metrics.get("total"));
+        assertEquals(2, metrics.get("pending"));
+        assertEquals(20, metrics.get("maxConnections"));
+    }
+
+    @Test
+    void acquireLatencyAndTimeoutsAreRecordedTest() {
+        ConnectionPoolMetrics poolMetrics = new ConnectionPoolMetrics();
+        IMetricsTracker tracker = poolMetrics.create("cab-booking-db", new FixedPoolStats(0, 20, 0, 20));
+
+        for (int i = 0; i < 99; i++) {
+            tracker.recordConnectionAcquiredNanos(TimeUnit.MICROSECONDS.toNanos(50));
+        }
+        tracker.recordConnectionAcquiredNanos(TimeUnit.MILLISECONDS.toNanos(40));
+        tracker.recordConnectionUsageMillis(12);
+        tracker.recordConnectionTimeout();
+
+        Map<String, Object> metrics = poolMetrics.getMetrics();
+        Map<?, ?> acquire = (Map<?, ?>) metrics.get("acquireLatency");
+        assertEquals(100L, acquire.get("count"));
+        assertTrue((double) acquire.get("p50Ms") < 0.1);
+        assertEquals(40.0, (double) acquire.get("maxMs"), 0.001);
+        assertEquals(1L, ((Map<?, ?>) metrics.get("usageTime")).get("count"));
+        assertEquals(1L, metrics.get("timeouts"));
+    }
+
+    @Test
+    void metricsBeforePoolStartsTest() {
+        Map<String, Object> metrics = new ConnectionPoolMetrics().getMetrics();
+
+        assertEquals("not started", metrics.get("pool"));
+        assertEquals(0, metrics.get("active"));
+        assertEquals(0L, metrics.get("timeouts"));
+    }
+
+    private static class FixedPoolStats extends PoolStats {
+        private final int active;
+        private final int idle;
+        private final int pending;
+        private final int max;
+
+        FixedPoolStats(int active, int idle, int pending, int max) {
+            super(0);
+            this.active = active;
+            this.idle = idle;
+            this.pending = pending;
+            this.max = max;
+        }
+
+        @Override
+        protected void update() {
+            activeConnections = active;
+            idleConnections = idle;
+            totalConnections = active + idle;
+            pendingThreads = pending;
+            maxConnections = max;
+        }
+    }
+}
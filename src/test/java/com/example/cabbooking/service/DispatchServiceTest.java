@@ -0,0 +1,236 @@
+package com.example.cabbooking.service;
+
+import com.example.cabbooking.model.Booking;
+import com.example.cabbooking.model.BookingStatus;
+import com.example.cabbooking.model.Driver;
+import com.example.cabbooking.model.DriverStatus;
+import com.example.cabbooking.model.Location;
+import com.example.cabbooking.model.VehicleClass;
+import com.example.cabbooking.repository.BookingRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class DispatchServiceTest {
+
+    private FleetService fleetService;
+    private RecordingBookingRepository bookingRepository;
+    private DispatchService batchDispatch;
+
+    @BeforeEach
+    void setUp() {
+        fleetService = new FleetService(0.01, 15.0, 8);
+        bookingRepository = new RecordingBookingRepository();
+        batchDispatch = new DispatchService(fleetService, bookingRepository, DispatchService.DispatchMode.BATCH, 500, 5, 500, 120);
+    }
+
+    // =================== GREEDY MODE TESTS ===================
+
+    @Test
+    void greedyModeReservesImmediatelyTest() {
+        DispatchService greedy = new DispatchService(fleetService, bookingRepository, DispatchService.DispatchMode.GREEDY, 500, 5, 500, 120);
+        registerDriver("d1", 38.8980, -77.0360);
+
+        Booking booking = booking(38.8977, -77.0365);
+        Driver driver = greedy.reserveDriver(booking).orElseThrow();
+        greedy.queueForNextTick(booking);
+
+        assertEquals("d1", driver.getId());
+        assertEquals(0, greedy.getPendingCount());
+    }
+
+    // =================== BATCH MODE TESTS ===================
+
+    @Test
+    void batchModeWaitsForTickTest() {
+        registerDriver("d1", 38.8980, -77.0360);
+        Booking booking = booking(38.8977, -77.0365);
+
+        assertFalse(batchDispatch.reserveDriver(booking).isPresent());
+        batchDispatch.queueForNextTick(booking);
+        assertEquals(1, batchDispatch.getPendingCount());
+
+        assertEquals(1, batchDispatch.dispatchPending());
+        assertEquals(0, batchDispatch.getPendingCount());
+        assertEquals("d1", fleetService.getDriverForBooking(booking.getId()).orElseThrow().getId());
+        assertEquals("d1", bookingRepository.drivers.get(booking.getId()));
+    }
+
+    @Test
+    void batchUsesLessPickupDistanceThanGreedyTest() {
+        // driver A sits between both pickups, driver B is only close to the first one
+        registerDriver("A", 38.9000, -77.0300);
+        registerDriver("B", 38.9000, -77.0200);
+        Booking first = booking(38.9000, -77.0250);
+        Booking second = booking(38.9000, -77.0400);
+        batchDispatch.queueForNextTick(first);
+        batchDispatch.queueForNextTick(second);
+
+        assertEquals(2, batchDispatch.dispatchPending());
+
+        assertEquals("B", bookingRepository.drivers.get(first.getId()));
+        assertEquals("A", bookingRepository.drivers.get(second.getId()));
+        Map<String, Object> metrics = batchDispatch.getMetrics();
+        assertTrue((double) metrics.get("batchPickupKm") < (double) metrics.get("greedyPickupKm"));
+        assertEquals(2L, metrics.get("assigned"));
+    }
+
+    @Test
+    void bookingsWithoutDriverStayQueuedTest() {
+        registerDriver("d1", 38.8980, -77.0360);
+        Booking first = booking(38.8977, -77.0365);
+        Booking second = booking(38.8990, -77.0370);
+        batchDispatch.queueForNextTick(first);
+        batchDispatch.queueForNextTick(second);
+
+        assertEquals(1, batchDispatch.dispatchPending());
+        assertEquals(1, batchDispatch.getPendingCount());
+
+        registerDriver("d2", 38.8995, -77.0375);
+        assertEquals(1, batchDispatch.dispatchPending());
+        assertEquals(0, batchDispatch.getPendingCount());
+    }
+
+    @Test
+    void driverBeyondPickupRadiusIsNotAssignedTest() {
+        registerDriver("dulles", 38.9531, -77.4565);
+        batchDispatch.queueForNextTick(booking(38.8977, -77.0365));
+
+        assertEquals(0, batchDispatch.dispatchPending());
+        assertEquals(1, batchDispatch.getPendingCount());
+    }
+
+    @Test
+    void releaseRemovesWaitingBookingTest() {
+        registerDriver("d1", 38.8980, -77.0360);
+        Booking booking = booking(38.8977, -77.0365);
+        batchDispatch.queueForNextTick(booking);
+
+        batchDispatch.release(booking.getId());
+
+        assertEquals(0, batchDispatch.dispatchPending());
+        assertEquals(DriverStatus.AVAILABLE, fleetService.getDriver("d1").orElseThrow().getStatus());
+    }
+
+    // =================== WRITE-BEHIND TESTS ===================
+
+    @Test
+    void driverIsWrittenOnceAsyncBookingIsSavedTest() throws Exception {
+        registerDriver("d1", 38.8980, -77.0360);
+        bookingRepository.requireSaved = true;
+        BookingWriteBehindService writeBehind = new BookingWriteBehindService(bookingRepository,
+                BookingWriteBehindService.DurabilityMode.ASYNC, 16, 64, 0);
+        writeBehind.start();
+        Booking booking = booking(38.8977, -77.0365);
+
+        // the writer thread holds the booking until the tick has assigned its driver
+        writeBehind.persist(booking);
+        batchDispatch.queueForNextTick(booking);
+        assertEquals(1, batchDispatch.dispatchPending());
+        assertNull(bookingRepository.drivers.get(booking.getId()));
+        assertEquals(1, batchDispatch.getMetrics().get("driverUpdatesPending"));
+
+        bookingRepository.saves.countDown();
+        long deadline = System.currentTimeMillis() + 5_000;
+        while (writeBehind.getBookingsWritten() == 0 && System.currentTimeMillis() < deadline) {
+            Thread.sleep(5);
+        }
+        batchDispatch.tick();
+        writeBehind.stop();
+
+        assertEquals("d1", bookingRepository.drivers.get(booking.getId()));
+        assertEquals(0, batchDispatch.getMetrics().get("driverUpdatesPending"));
+        assertEquals("d1", fleetService.getDriverForBooking(booking.getId()).orElseThrow().getId());
+    }
+
+    @Test
+    void releaseDropsUnsavedDriverUpdateTest() {
+        registerDriver("d1", 38.8980, -77.0360);
+        bookingRepository.requireSaved = true;
+        Booking booking = booking(38.8977, -77.0365);
+        batchDispatch.queueForNextTick(booking);
+        batchDispatch.dispatchPending();
+
+        batchDispatch.release(booking.getId());
+
+        assertEquals(0, batchDispatch.retryDriverUpdates());
+        assertEquals(0, batchDispatch.getMetrics().get("driverUpdatesPending"));
+        assertEquals(DriverStatus.AVAILABLE, fleetService.getDriver("d1").orElseThrow().getStatus());
+    }
+
+    @Test
+    void tickDoesNothingInGreedyModeTest() {
+        DispatchService greedy = new DispatchService(fleetService, bookingRepository, DispatchService.DispatchMode.GREEDY, 500, 5, 500, 120);
+        registerDriver("d1", 38.8980, -77.0360);
+
+        greedy.tick();
+
+        assertEquals(DriverStatus.AVAILABLE, fleetService.getDriver("d1").orElseThrow().getStatus());
+    }
+
+    @Test
+    void invalidSettingsShouldThrowException() {
+        assertThrows(IllegalArgumentException.class, () -> new DispatchService(
+                fleetService, bookingRepository, DispatchService.DispatchMode.BATCH, 0, 5, 500, 120));
+        assertThrows(IllegalArgumentException.class, () -> new DispatchService(
+                fleetService, bookingRepository, DispatchService.DispatchMode.BATCH, 500, 0, 500, 120));
+    }
+
+    private void registerDriver(String id, double latitude, double longitude) {
+        fleetService.registerDriver(new Driver(id, "Driver " + id, latitude, longitude, DriverStatus.AVAILABLE, VehicleClass.STANDARD));
+    }
+
+    private static Booking booking(double latitude, double longitude) {
+        return new Booking(UUID.randomUUID().toString(), 1,
+                new Location("Pickup", latitude, longitude),
+                new Location("Lincoln Memorial", 38.8893, -77.0502),
+                1.5, 6.0, 9.75, BookingStatus.REQUESTED, Instant.now());
+    }
+
+    /**
+     * in-memory repository which records driver assignments; with requireSaved a driver can only be written to a
+     * booking that has been saved, and saves wait until they are let through
+     */
+    private static class RecordingBookingRepository extends BookingRepository {
+        private final Map<String, String> drivers = new ConcurrentHashMap<>();
+        private final Set<String> saved = ConcurrentHashMap.newKeySet();
+        private final CountDownLatch saves = new CountDownLatch(1);
+        private volatile boolean requireSaved;
+
+        RecordingBookingRepository() {
+            super(null, null);
+        }
+
+        @Override
+        public boolean saveAll(List<Booking> bookings) {
+            try {
+                saves.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return false;
+            }
+            for (Booking booking : bookings) {
+                saved.add(booking.getId());
+            }
+            return true;
+        }
+
+        @Override
+        public boolean updateDriver(String bookingId, String driverId) {
+            if (requireSaved && !saved.contains(bookingId)) {
+                return false;
+            }
+            drivers.put(bookingId, driverId);
+            return true;
+        }
+    }
+}
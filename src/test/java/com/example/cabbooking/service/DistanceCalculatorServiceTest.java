@@ -101,4 +101,22 @@ class DistanceCalculatorServiceTest {
         System.out.println(miles * 1.60934 + " : miles converted to kilometers should = about 3935.746");
         System.out.println(kilometers * 0.621371 + " : kilometers converted to miles should = about 2445.559");
     }
-}
\ No newline at end of file
+
+    @Test
+    void calculateDistanceMatrixMatchesSingleCalculationTest() {
+        double[] pickupLat = {38.8977, 38.8899};
+        double[] pickupLon = {-77.0365, -77.0091};
+        double[] driverLat = {38.8893, 38.9531, 38.8977};
+        double[] driverLon = {-77.0502, -77.4565, -77.0365};
+        double[] matrix = new double[6];
+
+        DistanceCalculatorService.calculateDistanceMatrix(pickupLat, pickupLon, 2, driverLat, driverLon, 3, matrix);
+
+        for (int i = 0; i < 2; i++) {
+            for (int j = 0; j < 3; j++) {
+                assertEquals(calculateDistance(pickupLat[i], pickupLon[i], driverLat[j], driverLon[j]), matrix[i * 3 + j], 1e-9);
+            }
+        }
+        assertEquals(0, matrix[2], 1e-9);
+    }
+}
@@ -0,0 +1,168 @@
+package com.example.cabbooking.service;
+
+import com.example.cabbooking.model.FareQuote;
+import com.example.cabbooking.model.Location;
+import com.example.cabbooking.model.Route;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class FareQuoteServiceTest {
+
+    private CalculateFareService calculateFareService;
+    private FareQuoteService fareQuoteService;
+    private Route route;
+
+    @BeforeEach
+    void setUp() {
+        RouteService routeService = new RouteService(
+                new LocationDistanceCalculatorService(new DistanceCalculatorService()),
+                new SpeedProfileService("classpath:speed-profiles.csv", "America/New_York"));
+        calculateFareService = new CalculateFareService(routeService);
+        fareQuoteService = new FareQuoteService(calculateFareService, spentQuotes(), "test-secret", 300);
+
+        Location whiteHouse = new Location("The White House", 38.8977, -77.0365);
+        Location lincolnMemorial = new Location("Lincoln Memorial", 38.8893, -77.0502);
+        route = new Route(whiteHouse, lincolnMemorial, 1.5, 6.0);
+    }
+
+    // =================== SUCCESS CASE TESTS ===================
+
+    @Test
+    void quoteFareRoundTripTest() {
+        FareQuote quote = fareQuoteService.quoteFare(route);
+        FareQuote verified = fareQuoteService.verifyQuote(quote.getToken(), route);
+
+        assertEquals(Math.round(calculateFareService.calculateFare(route) * 100) / 100.0, quote.getAmount(), 0.0001);
+        assertEquals(quote.getAmount(), verified.getAmount(), 0.0001);
+        assertEquals(quote.getExpiresAt(), verified.getExpiresAt());
+        assertEquals(calculateFareService.getTariffVersion(), verified.getTariffVersion());
+    }
+
+    @Test
+    void tokenIsCompactTest() {
+        String token = fareQuoteService.issueQuote(route, 12.34).getToken();
+
+        assertTrue(token.length() < 64);
+        assertFalse(token.contains("="));
+    }
+
+    @Test
+    void quoteVerifiesOnAnotherInstanceWithSameSecretTest() {
+        FareQuoteService otherNode = new FareQuoteService(calculateFareService, spentQuotes(), "test-secret", 300);
+        String token = fareQuoteService.issueQuote(route, 12.34).getToken();
+
+        assertEquals(12.34, otherNode.verifyQuote(token, route).getAmount(), 0.0001);
+    }
+
+    @Test
+    void quotesSignedConcurrentlyVerifyTest() throws Exception {
+        // more callers than the Mac pool has slots, so some Macs are built and dropped again
+        ExecutorService pool = Executors.newFixedThreadPool(32);
+        try {
+            List<Future<Boolean>> results = new ArrayList<>();
+            for (int i = 0; i < 2000; i++) {
+                double amount = (1000 + i) / 100.0;
+                results.add(pool.submit(() -> {
+                    String token = fareQuoteService.issueQuote(route, amount).getToken();
+                    return fareQuoteService.verifyQuote(token, route).getAmount() == amount;
+                }));
+            }
+            for (Future<Boolean> result : results) {
+                assertTrue(result.get());
+            }
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    @Test
+    void quotesForSameFareCanEachBeRedeemedTest() {
+        String first = fareQuoteService.issueQuote(route, 12.34).getToken();
+        String second = fareQuoteService.issueQuote(route, 12.34).getToken();
+
+        assertNotEquals(first, second);
+        // checking a quote does not spend it
+        fareQuoteService.verifyQuote(first, route);
+        fareQuoteService.redeemQuote(first, route);
+        fareQuoteService.redeemQuote(second, route);
+    }
+
+    @Test
+    void releasedQuoteCanBeRedeemedAgainTest() {
+        String token = fareQuoteService.issueQuote(route, 12.34).getToken();
+        fareQuoteService.redeemQuote(token, route);
+
+        fareQuoteService.releaseQuote(token);
+
+        assertEquals(12.34, fareQuoteService.redeemQuote(token, route).getAmount(), 0.0001);
+    }
+
+    // =================== REJECTION TESTS ===================
+
+    @Test
+    void redeemedQuoteShouldBeRejected() {
+        String token = fareQuoteService.issueQuote(route, 12.34).getToken();
+
+        assertEquals(12.34, fareQuoteService.redeemQuote(token, route).getAmount(), 0.0001);
+        FareQuoteService.InvalidQuoteException exception = assertThrows(
+                FareQuoteService.InvalidQuoteException.class, () -> fareQuoteService.redeemQuote(token, route));
+        assertTrue(exception.getMessage().contains("already been used"));
+    }
+
+    @Test
+    void quoteSignedWithDifferentSecretShouldBeRejected() {
+        FareQuoteService otherKey = new FareQuoteService(calculateFareService, spentQuotes(), "other-secret", 300);
+        String token = otherKey.issueQuote(route, 12.34).getToken();
+
+        assertThrows(FareQuoteService.InvalidQuoteException.class, () -> fareQuoteService.verifyQuote(token, route));
+    }
+
+    @Test
+    void expiredQuoteShouldBeRejected() {
+        FareQuoteService noTtl = new FareQuoteService(calculateFareService, spentQuotes(), "test-secret", 0);
+        String token = noTtl.issueQuote(route, 12.34).getToken();
+
+        FareQuoteService.InvalidQuoteException exception = assertThrows(
+                FareQuoteService.InvalidQuoteException.class, () -> noTtl.verifyQuote(token, route));
+        assertTrue(exception.getMessage().contains("expired"));
+    }
+
+    @Test
+    void quoteIssuedBeforeTariffChangeShouldBeRejected() {
+        String token = fareQuoteService.issueQuote(route, 12.34).getToken();
+
+        calculateFareService.setDollarsPerMile(4);
+
+        FareQuoteService.InvalidQuoteException exception = assertThrows(
+                FareQuoteService.InvalidQuoteException.class, () -> fareQuoteService.verifyQuote(token, route));
+        assertTrue(exception.getMessage().contains("Fares have changed"));
+    }
+
+    @Test
+    void quoteForDifferentRouteShouldBeRejected() {
+        String token = fareQuoteService.issueQuote(route, 12.34).getToken();
+        Route reversed = new Route(route.getTo(), route.getFrom(), 1.5);
+
+        assertThrows(FareQuoteService.InvalidQuoteException.class, () -> fareQuoteService.verifyQuote(token, reversed));
+    }
+
+    @Test
+    void malformedTokensShouldBeRejected() {
+        assertThrows(FareQuoteService.InvalidQuoteException.class, () -> fareQuoteService.verifyQuote(null, route));
+        assertThrows(FareQuoteService.InvalidQuoteException.class, () -> fareQuoteService.verifyQuote("", route));
+        assertThrows(FareQuoteService.InvalidQuoteException.class, () -> fareQuoteService.verifyQuote("%%%", route));
+        assertThrows(FareQuoteService.InvalidQuoteException.class, () -> fareQuoteService.verifyQuote("c2hvcnQ", route));
+    }
+
+    private static IdempotencyStore spentQuotes() {
+        return new IdempotencyStore(86400, 1000, 5000);
+    }
+}
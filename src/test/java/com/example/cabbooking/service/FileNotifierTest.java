@@ -0,0 +1,89 @@
+package com.example.cabbooking.service;
+
+import com.example.cabbooking.model.OutboxMessage;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Instant;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class FileNotifierTest {
+
+    @TempDir
+    Path directory;
+
+    // =================== SUCCESS CASE TESTS ===================
+
+    @Test
+    void sendAppendsMessageToMailboxTest() throws IOException {
+        FileNotifier notifier = new FileNotifier(directory.toString(), "no-reply@cabbooking.local");
+
+        notifier.send(message("BOOKING_CONFIRMED:1", "Hi John Doe,\n\nyour cab is booked."));
+        notifier.close();
+
+        String mailbox = Files.readString(notifier.getFile(), StandardCharsets.UTF_8);
+        assertTrue(mailbox.startsWith("From no-reply@cabbooking.local "));
+        assertTrue(mailbox.contains("To: john@email.com\n"));
+        assertTrue(mailbox.contains("Message-ID: <BOOKING_CONFIRMED:1>\n"));
+        assertTrue(mailbox.contains("your cab is booked."));
+    }
+
+    @Test
+    void repeatedEventIsWrittenOnceTest() throws IOException {
+        FileNotifier notifier = new FileNotifier(directory.toString(), "no-reply@cabbooking.local");
+        notifier.send(message("BOOKING_CONFIRMED:1", "Hi"));
+        notifier.send(message("BOOKING_CONFIRMED:1", "Hi"));
+        notifier.close();
+
+        // a restart remembers what is already in the file
+        FileNotifier restarted = new FileNotifier(directory.toString(), "no-reply@cabbooking.local");
+        restarted.send(message("BOOKING_CONFIRMED:1", "Hi"));
+        restarted.send(message("BOOKING_CONFIRMED:2", "Hi"));
+        restarted.close();
+
+        String mailbox = Files.readString(restarted.getFile(), StandardCharsets.UTF_8);
+        assertEquals(1, count(mailbox, "Message-ID: <BOOKING_CONFIRMED:1>"));
+        assertEquals(1, count(mailbox, "Message-ID: <BOOKING_CONFIRMED:2>"));
+    }
+
+    @Test
+    void bodyLineStartingWithFromIsQuotedTest() throws IOException {
+        FileNotifier notifier = new FileNotifier(directory.toString(), "no-reply@cabbooking.local");
+
+        notifier.send(message("BOOKING_CONFIRMED:1", "Hi\nFrom the White House to Lincoln Memorial"));
+        notifier.close();
+
+        String mailbox = Files.readString(notifier.getFile(), StandardCharsets.UTF_8);
+        assertTrue(mailbox.contains("\n>From the White House"));
+        assertEquals(0, count(mailbox, "\nFrom "));
+    }
+
+    // =================== EXCEPTION TESTS ===================
+
+    @Test
+    void unwritableDirectoryShouldThrowException() throws IOException {
+        Path file = Files.createFile(directory.resolve("not-a-directory"));
+
+        Notifier.NotificationException exception = assertThrows(Notifier.NotificationException.class,
+                () -> new FileNotifier(file.toString(), "no-reply@cabbooking.local"));
+        assertFalse(exception.isRetryable());
+    }
+
+    private static OutboxMessage message(String eventId, String body) {
+        return new OutboxMessage(eventId, NotificationService.BOOKING_CONFIRMED, "john@email.com",
+                "Your cab is booked", body, Instant.parse("2025-06-02T12:00:00Z"));
+    }
+
+    private static int count(String text, String part) {
+        int count = 0;
+        for (int at = text.indexOf(part); at >= 0; at = text.indexOf(part, at + 1)) {
+            count++;
+        }
+        return count;
+    }
+}
@@ -0,0 +1,269 @@
+package com.example.cabbooking.service;
+
+import com.example.cabbooking.model.Driver;
+import com.example.cabbooking.model.DriverStatus;
+import com.example.cabbooking.model.VehicleClass;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Optional;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class FleetServiceTest {
+
+    // The White House
+    private static final double PICKUP_LAT = 38.8977;
+    private static final double PICKUP_LNG = -77.0365;
+
+    private FleetService fleetService;
+
+    @BeforeEach
+    void setUp() {
+        fleetService = new FleetService(0.01, 15.0, 8);
+    }
+
+    // =================== REGISTRY TESTS ===================
+
+    @Test
+    void registerAndGetDriverTest() {
+        fleetService.registerDriver(driver("d1", 38.90, -77.03, VehicleClass.STANDARD));
+
+        Driver driver = fleetService.getDriver("d1").orElseThrow();
+        assertEquals(DriverStatus.AVAILABLE, driver.getStatus());
+        assertEquals(38.90, driver.getLatitude(), 0.0001);
+        assertEquals(1, fleetService.getDriverCount());
+    }
+
+    @Test
+    void removedDriverIsNoLongerMatchedTest() {
+        fleetService.registerDriver(driver("d1", 38.8980, -77.0360, VehicleClass.STANDARD));
+        fleetService.removeDriver("d1");
+
+        assertTrue(fleetService.findNearestAvailable(PICKUP_LAT, PICKUP_LNG, 5, null).isEmpty());
+        assertFalse(fleetService.getDriver("d1").isPresent());
+    }
+
+    @Test
+    void offlineDriverIsNotMatchedTest() {
+        fleetService.registerDriver(driver("d1", 38.8980, -77.0360, VehicleClass.STANDARD));
+        fleetService.updateStatus("d1", DriverStatus.OFFLINE);
+
+        assertTrue(fleetService.findNearestAvailable(PICKUP_LAT, PICKUP_LNG, 5, null).isEmpty());
+
+        fleetService.updateStatus("d1", DriverStatus.AVAILABLE);
+        assertEquals(1, fleetService.findNearestAvailable(PICKUP_LAT, PICKUP_LNG, 5, null).size());
+    }
+
+    // =================== MATCHING TESTS ===================
+
+    @Test
+    void nearestDriversAreReturnedClosestFirstTest() {
+        fleetService.registerDriver(driver("far", 38.95, -77.10, VehicleClass.STANDARD));
+        fleetService.registerDriver(driver("near", 38.8980, -77.0360, VehicleClass.STANDARD));
+        fleetService.registerDriver(driver("middle", 38.91, -77.04, VehicleClass.STANDARD));
+
+        List<Driver> nearest = fleetService.findNearestAvailable(PICKUP_LAT, PICKUP_LNG, 2, null);
+
+        assertEquals(2, nearest.size());
+        assertEquals("near", nearest.get(0).getId());
+        assertEquals("middle", nearest.get(1).getId());
+    }
+
+    @Test
+    void vehicleClassFilterTest() {
+        fleetService.registerDriver(driver("standard", 38.8980, -77.0360, VehicleClass.STANDARD));
+        fleetService.registerDriver(driver("xl", 38.91, -77.04, VehicleClass.XL));
+
+        List<Driver> nearest = fleetService.findNearestAvailable(PICKUP_LAT, PICKUP_LNG, 5, VehicleClass.XL);
+
+        assertEquals(1, nearest.size());
+        assertEquals("xl", nearest.get(0).getId());
+    }
+
+    @Test
+    void movedDriverIsFoundInNewCellTest() {
+        fleetService.registerDriver(driver("d1", 38.99, -77.20, VehicleClass.STANDARD));
+        fleetService.registerDriver(driver("d2", 38.92, -77.05, VehicleClass.STANDARD));
+
+        fleetService.updateLocation("d1", 38.8978, -77.0366);
+
+        assertEquals("d1", fleetService.findNearestAvailable(PICKUP_LAT, PICKUP_LNG, 1, null).get(0).getId());
+    }
+
+    @Test
+    void driversBeyondPickupRadiusAreIgnoredTest() {
+        FleetService smallRadius = new FleetService(0.01, 2.0, 8);
+        smallRadius.registerDriver(driver("dulles", 38.9531, -77.4565, VehicleClass.STANDARD));
+
+        assertTrue(smallRadius.findNearestAvailable(PICKUP_LAT, PICKUP_LNG, 5, null).isEmpty());
+        assertFalse(smallRadius.reserveNearest(PICKUP_LAT, PICKUP_LNG, null, "booking-1").isPresent());
+    }
+
+    @Test
+    void nearestMatchesBruteForceTest() {
+        Random random = new Random(42);
+        List<Driver> all = new ArrayList<>();
+        for (int i = 0; i < 2000; i++) {
+            Driver driver = driver("d" + i, 38.80 + random.nextDouble() * 0.2, -77.15 + random.nextDouble() * 0.2, VehicleClass.STANDARD);
+            fleetService.registerDriver(driver);
+            all.add(driver);
+        }
+
+        all.sort((a, b) -> Double.compare(
+                DistanceCalculatorService.calculateDistance(PICKUP_LAT, PICKUP_LNG, a.getLatitude(), a.getLongitude()),
+                DistanceCalculatorService.calculateDistance(PICKUP_LAT, PICKUP_LNG, b.getLatitude(), b.getLongitude())));
+
+        List<Driver> nearest = fleetService.findNearestAvailable(PICKUP_LAT, PICKUP_LNG, 10, null);
+        for (int i = 0; i < 10; i++) {
+            assertEquals(all.get(i).getId(), nearest.get(i).getId());
+        }
+    }
+
+    @Test
+    void matchingFiftyThousandDriversIsFastTest() {
+        Random random = new Random(7);
+        for (int i = 0; i < 50_000; i++) {
+            fleetService.registerDriver(driver("d" + i, 38.80 + random.nextDouble() * 0.2,
+                    -77.15 + random.nextDouble() * 0.2, VehicleClass.values()[i % 4]));
+        }
+
+        // warm up, then time a batch of searches
+        for (int i = 0; i < 500; i++) {
+            fleetService.findNearestAvailable(38.85 + random.nextDouble() * 0.1, -77.10 + random.nextDouble() * 0.1, 8, null);
+        }
+        int searches = 2000;
+        long start = System.nanoTime();
+        for (int i = 0; i < searches; i++) {
+            fleetService.findNearestAvailable(38.85 + random.nextDouble() * 0.1, -77.10 + random.nextDouble() * 0.1, 8, null);
+        }
+        double averageMillis = (System.nanoTime() - start) / 1_000_000.0 / searches;
+
+        assertTrue(averageMillis < 5.0, "average search took " + averageMillis + " ms");
+    }
+
+    // =================== RESERVATION TESTS ===================
+
+    @Test
+    void reserveNearestReservesClosestDriverTest() {
+        fleetService.registerDriver(driver("near", 38.8980, -77.0360, VehicleClass.STANDARD));
+        fleetService.registerDriver(driver("far", 38.92, -77.05, VehicleClass.STANDARD));
+
+        Driver reserved = fleetService.reserveNearest(PICKUP_LAT, PICKUP_LNG, null, "booking-1").orElseThrow();
+
+        assertEquals("near", reserved.getId());
+        assertEquals(DriverStatus.RESERVED, reserved.getStatus());
+        assertEquals("booking-1", reserved.getBookingId());
+        assertEquals("far", fleetService.reserveNearest(PICKUP_LAT, PICKUP_LNG, null, "booking-2").orElseThrow().getId());
+        assertFalse(fleetService.reserveNearest(PICKUP_LAT, PICKUP_LNG, null, "booking-3").isPresent());
+    }
+
+    @Test
+    void tripLifecycleReleasesDriverTest() {
+        fleetService.registerDriver(driver("d1", 38.8980, -77.0360, VehicleClass.STANDARD));
+        fleetService.reserveNearest(PICKUP_LAT, PICKUP_LNG, null, "booking-1");
+
+        assertTrue(fleetService.startTrip("booking-1"));
+        assertEquals(DriverStatus.ON_TRIP, fleetService.getDriver("d1").orElseThrow().getStatus());
+
+        assertTrue(fleetService.releaseBooking("booking-1"));
+        Driver released = fleetService.getDriver("d1").orElseThrow();
+        assertEquals(DriverStatus.AVAILABLE, released.getStatus());
+        assertNull(released.getBookingId());
+        assertFalse(fleetService.releaseBooking("booking-1"));
+    }
+
+    @Test
+    void concurrentReservationsNeverShareADriverTest() throws Exception {
+        int driverCount = 50;
+        for (int i = 0; i < driverCount; i++) {
+            fleetService.registerDriver(driver("d" + i, PICKUP_LAT + i * 0.0005, PICKUP_LNG, VehicleClass.STANDARD));
+        }
+
+        int threads = 8;
+        int bookingsPerThread = 20;
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        CountDownLatch start = new CountDownLatch(1);
+        Set<String> reservedDrivers = ConcurrentHashMap.newKeySet();
+        List<Future<Integer>> results = new ArrayList<>();
+
+        for (int t = 0; t < threads; t++) {
+            int thread = t;
+            results.add(executor.submit(() -> {
+                start.await();
+                int reservations = 0;
+                for (int i = 0; i < bookingsPerThread; i++) {
+                    Optional<Driver> driver = fleetService.reserveNearest(PICKUP_LAT, PICKUP_LNG, null, "b-" + thread + "-" + i);
+                    if (driver.isPresent()) {
+                        assertTrue(reservedDrivers.add(driver.get().getId()), "driver reserved twice");
+                        reservations++;
+                    }
+                }
+                return reservations;
+            }));
+        }
+        start.countDown();
+
+        int total = 0;
+        for (Future<Integer> result : results) {
+            total += result.get(10, TimeUnit.SECONDS);
+        }
+        executor.shutdown();
+
+        assertEquals(driverCount, total);
+        assertEquals(new HashSet<>(reservedDrivers).size(), driverCount);
+    }
+
+    // =================== EXCEPTION TESTS ===================
+
+    @Test
+    void invalidDriverShouldThrowException() {
+        assertThrows(FleetService.InvalidDriverException.class, () -> fleetService.registerDriver(null));
+        assertThrows(FleetService.InvalidDriverException.class,
+                () -> fleetService.registerDriver(driver(" ", 38.9, -77.0, VehicleClass.STANDARD)));
+        assertThrows(FleetService.InvalidDriverException.class,
+                () -> fleetService.registerDriver(driver("d1", 91, -77.0, VehicleClass.STANDARD)));
+        assertThrows(FleetService.InvalidDriverException.class,
+                () -> fleetService.registerDriver(driver("d1", 38.9, -77.0, null)));
+    }
+
+    @Test
+    void reservedDriverCannotBeRemovedOrReRegistered() {
+        fleetService.registerDriver(driver("d1", 38.8980, -77.0360, VehicleClass.STANDARD));
+        fleetService.reserveNearest(PICKUP_LAT, PICKUP_LNG, null, "booking-1");
+
+        assertThrows(FleetService.InvalidDriverException.class, () -> fleetService.removeDriver("d1"));
+        assertThrows(FleetService.InvalidDriverException.class,
+                () -> fleetService.registerDriver(driver("d1", 38.9, -77.0, VehicleClass.STANDARD)));
+        assertThrows(FleetService.InvalidDriverException.class, () -> fleetService.updateStatus("d1", DriverStatus.OFFLINE));
+    }
+
+    @Test
+    void unknownDriverShouldThrowException() {
+        assertThrows(FleetService.DriverNotFoundException.class, () -> fleetService.updateLocation("missing", 38.9, -77.0));
+        assertThrows(FleetService.DriverNotFoundException.class, () -> fleetService.removeDriver("missing"));
+        assertThrows(FleetService.DriverNotFoundException.class, () -> fleetService.updateStatus("missing", DriverStatus.OFFLINE));
+    }
+
+    @Test
+    void invalidCandidateCountShouldThrowException() {
+        assertThrows(FleetService.InvalidDriverException.class, () -> fleetService.findNearestAvailable(PICKUP_LAT, PICKUP_LNG, 0, null));
+        assertThrows(FleetService.InvalidDriverException.class,
+                () -> fleetService.findNearestAvailable(PICKUP_LAT, PICKUP_LNG, FleetService.MAX_CANDIDATES + 1, null));
+    }
+
+    private static Driver driver(String id, double latitude, double longitude, VehicleClass vehicleClass) {
+        return new Driver(id, "Driver " + id, latitude, longitude, DriverStatus.AVAILABLE, vehicleClass);
+    }
+}
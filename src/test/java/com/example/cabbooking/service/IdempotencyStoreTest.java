@@ -0,0 +1,175 @@
+package com.example.cabbooking.service;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class IdempotencyStoreTest {
+
+    private IdempotencyStore idempotencyStore;
+
+    @BeforeEach
+    void setUp() {
+        idempotencyStore = new IdempotencyStore(3600, 1000, 5000);
+    }
+
+    // =================== SUCCESS CASE TESTS ===================
+
+    @Test
+    void repeatedKeyReturnsStoredResultTest() {
+        AtomicInteger executions = new AtomicInteger();
+
+        Object first = idempotencyStore.execute("key-1", "body", () -> new Object[]{executions.incrementAndGet()});
+        Object second = idempotencyStore.execute("key-1", "body", () -> new Object[]{executions.incrementAndGet()});
+
+        assertSame(first, second);
+        assertEquals(1, executions.get());
+    }
+
+    @Test
+    void differentKeysRunSeparatelyTest() {
+        AtomicInteger executions = new AtomicInteger();
+
+        idempotencyStore.execute("key-1", "body", executions::incrementAndGet);
+        idempotencyStore.execute("key-2", "body", executions::incrementAndGet);
+
+        assertEquals(2, executions.get());
+        assertEquals(2, idempotencyStore.size());
+    }
+
+    @Test
+    void concurrentDuplicatesWaitForFirstExecutionTest() throws Exception {
+        AtomicInteger executions = new AtomicInteger();
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+
+        try {
+            Future<Integer> first = executor.submit(() -> idempotencyStore.execute("key-1", "body", () -> {
+                started.countDown();
+                await(release);
+                return executions.incrementAndGet();
+            }));
+            assertTrue(started.await(5, TimeUnit.SECONDS));
+
+            List<Future<Integer>> duplicates = new ArrayList<>();
+            for (int i = 0; i < 7; i++) {
+                duplicates.add(executor.submit(() -> idempotencyStore.execute("key-1", "body", executions::incrementAndGet)));
+            }
+            release.countDown();
+
+            assertEquals(1, first.get(5, TimeUnit.SECONDS));
+            for (Future<Integer> duplicate : duplicates) {
+                assertEquals(1, duplicate.get(5, TimeUnit.SECONDS));
+            }
+            assertEquals(1, executions.get());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    void failedExecutionIsNotStoredTest() {
+        assertThrows(IllegalStateException.class, () -> idempotencyStore.execute("key-1", "body", () -> {
+            throw new IllegalStateException("database down");
+        }));
+
+        assertEquals("booked", idempotencyStore.execute("key-1", "body", () -> "booked"));
+    }
+
+    @Test
+    void expiredResultsArePurgedTest() {
+        IdempotencyStore noTtl = new IdempotencyStore(0, 1000, 5000);
+        AtomicInteger executions = new AtomicInteger();
+
+        noTtl.execute("key-1", "body", executions::incrementAndGet);
+        assertEquals(1, noTtl.purgeExpired());
+        noTtl.execute("key-1", "body", executions::incrementAndGet);
+
+        assertEquals(2, executions.get());
+    }
+
+    @Test
+    void storeEvictsOldestCompletedEntriesWhenFullTest() {
+        IdempotencyStore small = new IdempotencyStore(3600, 2, 5000);
+
+        small.execute("key-1", "body", () -> 1);
+        small.execute("key-2", "body", () -> 2);
+        small.execute("key-3", "body", () -> 3);
+
+        assertEquals(2, small.size());
+        // key-1 was evicted, so it runs again
+        assertEquals(10, small.execute("key-1", "body", () -> 10));
+        assertEquals(3, small.execute("key-3", "body", () -> 30));
+    }
+
+    @Test
+    void singleUseKeyIsOnlyAcceptedOnceTest() {
+        assertTrue(idempotencyStore.markUsed("fare-quote:abc"));
+        assertFalse(idempotencyStore.markUsed("fare-quote:abc"));
+
+        idempotencyStore.forget("fare-quote:abc");
+        assertTrue(idempotencyStore.markUsed("fare-quote:abc"));
+    }
+
+    // =================== REJECTION TESTS ===================
+
+    @Test
+    void keyReusedForDifferentRequestShouldThrowException() {
+        idempotencyStore.execute("key-1", "body-a", () -> "a");
+
+        assertThrows(IdempotencyStore.KeyReusedException.class,
+                () -> idempotencyStore.execute("key-1", "body-b", () -> "b"));
+    }
+
+    @Test
+    void duplicateTimesOutWhileFirstIsStillRunning() throws Exception {
+        IdempotencyStore impatient = new IdempotencyStore(3600, 1000, 50);
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+
+        try {
+            executor.submit(() -> impatient.execute("key-1", "body", () -> {
+                started.countDown();
+                await(release);
+                return "done";
+            }));
+            assertTrue(started.await(5, TimeUnit.SECONDS));
+
+            assertThrows(IdempotencyStore.RequestInProgressException.class,
+                    () -> impatient.execute("key-1", "body", () -> "second"));
+        } finally {
+            release.countDown();
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    void invalidKeysShouldThrowException() {
+        assertThrows(IdempotencyStore.InvalidIdempotencyKeyException.class,
+                () -> idempotencyStore.execute(null, "body", () -> "x"));
+        assertThrows(IdempotencyStore.InvalidIdempotencyKeyException.class,
+                () -> idempotencyStore.execute(" ", "body", () -> "x"));
+        assertThrows(IdempotencyStore.InvalidIdempotencyKeyException.class,
+                () -> idempotencyStore.execute("k".repeat(IdempotencyStore.MAX_KEY_LENGTH + 1), "body", () -> "x"));
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
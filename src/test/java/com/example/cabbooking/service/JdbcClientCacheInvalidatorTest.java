@@ -0,0 +1,132 @@
+package com.example.cabbooking.service;
+
+import com.example.cabbooking.model.Client;
+import com.example.cabbooking.model.ClientInvalidation;
+import com.example.cabbooking.repository.ClientInvalidationRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class JdbcClientCacheInvalidatorTest {
+
+    private InMemoryClientInvalidationRepository invalidations;
+
+    @BeforeEach
+    void setUp() {
+        invalidations = new InMemoryClientInvalidationRepository();
+    }
+
+    // =================== SUCCESS CASE TESTS ===================
+
+    @Test
+    void changeReachesOtherNodeTest() {
+        JdbcClientCacheInvalidator first = new JdbcClientCacheInvalidator(invalidations, 2, 1);
+        JdbcClientCacheInvalidator second = new JdbcClientCacheInvalidator(invalidations, 2, 1);
+        ClientCache secondCache = new ClientCache();
+        secondCache.putById(1, Optional.of(new Client(1, "John Doe", "john@email.com", "555-1234", "123 Main St", null)),
+                secondCache.generation());
+        second.subscribe(secondCache::invalidate);
+
+        first.publish(1, "john.doe@email.com");
+        first.publish(null, "jane@email.com");
+        first.publish(2, null);
+
+        // three changes in batches of two
+        assertEquals(3, second.poll());
+        assertNull(secondCache.getById(1));
+        assertEquals(0, second.poll());
+    }
+
+    @Test
+    void nodeSkipsItsOwnChangesTest() {
+        JdbcClientCacheInvalidator node = new JdbcClientCacheInvalidator(invalidations, 10, 1);
+        List<Integer> seen = new ArrayList<>();
+        node.subscribe((clientId, email) -> seen.add(clientId));
+
+        node.publish(1, null);
+        node.poll();
+
+        assertTrue(seen.isEmpty());
+    }
+
+    @Test
+    void startingNodeIgnoresOlderChangesTest() {
+        new JdbcClientCacheInvalidator(invalidations, 10, 1).publish(1, null);
+        JdbcClientCacheInvalidator started = new JdbcClientCacheInvalidator(invalidations, 10, 1);
+        List<Integer> seen = new ArrayList<>();
+        started.subscribe((clientId, email) -> seen.add(clientId));
+
+        started.poll();
+
+        assertTrue(seen.isEmpty());
+    }
+
+    @Test
+    void purgeDeletesOldChangesTest() {
+        JdbcClientCacheInvalidator node = new JdbcClientCacheInvalidator(invalidations, 10, 1);
+        node.publish(1, null);
+        invalidations.rows.get(0).setCreatedAt(Instant.now().minusSeconds(7200));
+        node.publish(2, null);
+
+        node.purge();
+
+        assertEquals(1, invalidations.rows.size());
+        assertEquals(Integer.valueOf(2), invalidations.rows.get(0).getClientId());
+    }
+
+    // =================== EXCEPTION TESTS ===================
+
+    @Test
+    void invalidSettingsShouldThrowException() {
+        assertThrows(IllegalArgumentException.class, () -> new JdbcClientCacheInvalidator(invalidations, 0, 1));
+        assertThrows(IllegalArgumentException.class, () -> new JdbcClientCacheInvalidator(invalidations, 10, 0));
+    }
+
+    /**
+     * in-memory invalidation log with the same ordering as the table
+     */
+    private static class InMemoryClientInvalidationRepository extends ClientInvalidationRepository {
+        private final List<ClientInvalidation> rows = new ArrayList<>();
+        private long nextId = 1;
+
+        InMemoryClientInvalidationRepository() {
+            super(null);
+        }
+
+        @Override
+        public boolean save(ClientInvalidation invalidation) {
+            invalidation.setId(nextId++);
+            rows.add(invalidation);
+            return true;
+        }
+
+        @Override
+        public List<ClientInvalidation> findAfter(long afterId, int limit) {
+            List<ClientInvalidation> after = new ArrayList<>();
+            for (ClientInvalidation row : rows) {
+                if (row.getId() > afterId && after.size() < limit) {
+                    after.add(row);
+                }
+            }
+            return after;
+        }
+
+        @Override
+        public long findLatestId() {
+            return rows.isEmpty() ? 0 : rows.get(rows.size() - 1).getId();
+        }
+
+        @Override
+        public int deleteCreatedBefore(Instant createdBefore, int limit) {
+            int before = rows.size();
+            rows.removeIf(row -> row.getCreatedAt().isBefore(createdBefore));
+            return before - rows.size();
+        }
+    }
+}
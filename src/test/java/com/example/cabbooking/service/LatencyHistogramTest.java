@@ -0,0 +1,89 @@
+package com.example.cabbooking.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class LatencyHistogramTest {
+
+    // =================== SUCCESS CASE TESTS ===================
+
+    @Test
+    void bucketsAreContiguousAndCoverTheirBoundsTest() {
+        for (long micros = 0; micros < 100_000; micros++) {
+            int bucket = LatencyHistogram.bucket(micros);
+            assertTrue(LatencyHistogram.upperBound(bucket) >= micros);
+            if (bucket > 0) {
+                assertTrue(LatencyHistogram.upperBound(bucket - 1) < micros);
+            }
+        }
+    }
+
+    @Test
+    void percentilesWithinBucketErrorTest() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        // 1 ms to 100 ms, one call each
+        for (int ms = 1; ms <= 100; ms++) {
+            histogram.record(TimeUnit.MILLISECONDS.toNanos(ms));
+        }
+
+        assertEquals(100, histogram.getCount());
+        assertEquals(50.0, histogram.getPercentileMillis(50), 50 * 0.125);
+        assertEquals(95.0, histogram.getPercentileMillis(95), 95 * 0.125);
+        assertEquals(99.0, histogram.getPercentileMillis(99), 99 * 0.125);
+        assertEquals(100.0, histogram.getMaxMillis());
+        assertEquals(50.5, histogram.getMeanMillis(), 1e-9);
+    }
+
+    @Test
+    void percentileNeverExceedsMaxTest() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        histogram.record(TimeUnit.MILLISECONDS.toNanos(9));
+
+        assertEquals(9.0, histogram.getPercentileMillis(99));
+    }
+
+    @Test
+    void concurrentRecordsAreAllCountedTest() throws Exception {
+        LatencyHistogram histogram = new LatencyHistogram();
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        for (int t = 0; t < 4; t++) {
+            executor.submit(() -> {
+                for (int i = 0; i < 10_000; i++) {
+                    histogram.record(i * 1000L);
+                }
+            });
+        }
+        executor.shutdown();
+        assertTrue(executor.awaitTermination(10, TimeUnit.SECONDS));
+
+        assertEquals(40_000, histogram.getCount());
+    }
+
+    // =================== EDGE CASE TESTS ===================
+
+    @Test
+    void emptyHistogramReportsZeroTest() {
+        Map<String, Object> snapshot = new LatencyHistogram().snapshot();
+
+        assertEquals(0L, snapshot.get("count"));
+        assertEquals(0.0, snapshot.get("p99Ms"));
+        assertEquals(0.0, snapshot.get("meanMs"));
+    }
+
+    @Test
+    void hugeAndNegativeValuesAreClampedTest() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        histogram.record(-5);
+        histogram.record(Long.MAX_VALUE);
+
+        assertEquals(2, histogram.getCount());
+        assertEquals(0.0, histogram.getPercentileMillis(50));
+        assertTrue(histogram.getPercentileMillis(100) > 60 * 60 * 1000);
+    }
+}
@@ -0,0 +1,192 @@
+package com.example.cabbooking.service;
+
+import com.example.cabbooking.model.LedgerPosting;
+import com.example.cabbooking.model.LedgerTransaction;
+import com.example.cabbooking.repository.LedgerLog;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class LedgerServiceTest {
+
+    @TempDir
+    Path tempDir;
+
+    private LedgerLog ledgerLog;
+    private LedgerService ledgerService;
+
+    @AfterEach
+    void tearDown() {
+        if (ledgerService != null) {
+            ledgerService.stop();
+        }
+        if (ledgerLog != null) {
+            ledgerLog.close();
+        }
+    }
+
+    // =================== SUCCESS CASE TESTS ===================
+
+    @Test
+    void farePaymentSplitsBetweenPlatformAndDriversTest() {
+        ledgerService = new LedgerService(null, 0.2, 16, 64, 0, Thread::new);
+
+        LedgerTransaction transaction = ledgerService.recordFarePayment(UUID.randomUUID().toString(), 7, 25.0);
+
+        assertEquals(3, transaction.getPostings().size());
+        assertEquals(-2500, ledgerService.getBalanceCents(LedgerService.riderAccount(7)));
+        assertEquals(500, ledgerService.getBalanceCents(LedgerService.PLATFORM_REVENUE));
+        assertEquals(2000, ledgerService.getBalanceCents(LedgerService.DRIVERS_PAYABLE));
+    }
+
+    @Test
+    void fullCommissionLeavesOutDriverPostingTest() {
+        ledgerService = new LedgerService(null, 1.0, 16, 64, 0, Thread::new);
+
+        LedgerTransaction transaction = ledgerService.recordFarePayment(null, 7, 10.0);
+
+        assertEquals(2, transaction.getPostings().size());
+        assertEquals(0, ledgerService.getBalanceCents(LedgerService.DRIVERS_PAYABLE));
+        assertEquals(1000, ledgerService.getBalanceCents(LedgerService.PLATFORM_REVENUE));
+    }
+
+    @Test
+    void concurrentPostingsShareBatchesTest() throws Exception {
+        ledgerLog = new LedgerLog(tempDir.toString(), 1 << 20, false);
+        ledgerService = new LedgerService(ledgerLog, 0.2, 256, 4096, 2, Thread::new);
+        ledgerService.start();
+
+        ExecutorService pool = Executors.newFixedThreadPool(8);
+        List<Future<LedgerTransaction>> results = new ArrayList<>();
+        for (int i = 0; i < 400; i++) {
+            int client = i % 4;
+            results.add(pool.submit(() -> ledgerService.recordFarePayment(UUID.randomUUID().toString(), client, 10.0)));
+        }
+        for (Future<LedgerTransaction> result : results) {
+            assertTrue(result.get().getId() > 0);
+        }
+        pool.shutdown();
+
+        assertEquals(400 * 200, ledgerService.getBalanceCents(LedgerService.PLATFORM_REVENUE));
+        assertEquals(-100 * 1000, ledgerService.getBalanceCents(LedgerService.riderAccount(0)));
+        assertEquals(400L, ledgerService.getMetrics().get("transactionsWritten"));
+        assertTrue((Long) ledgerService.getMetrics().get("batchesWritten") <= 400);
+    }
+
+    @Test
+    void balancesAreRebuiltFromLogOnRestartTest() {
+        ledgerLog = new LedgerLog(tempDir.toString(), 1 << 20, false);
+        ledgerService = new LedgerService(ledgerLog, 0.2, 16, 64, 0, Thread::new);
+        ledgerService.start();
+        ledgerService.recordFarePayment(UUID.randomUUID().toString(), 1, 10.0);
+        ledgerService.recordFarePayment(UUID.randomUUID().toString(), 2, 5.0);
+        ledgerService.stop();
+        ledgerLog.close();
+
+        ledgerLog = new LedgerLog(tempDir.toString(), 1 << 20, false);
+        ledgerService = new LedgerService(ledgerLog, 0.2, 16, 64, 0, Thread::new);
+
+        assertEquals(-1000, ledgerService.getBalanceCents(LedgerService.riderAccount(1)));
+        assertEquals(300, ledgerService.getBalanceCents(LedgerService.PLATFORM_REVENUE));
+        assertEquals(1200, ledgerService.getBalanceCents(LedgerService.DRIVERS_PAYABLE));
+    }
+
+    @Test
+    void sameReferenceIsPostedOnceTest() {
+        ledgerService = new LedgerService(null, 0.2, 16, 64, 0, Thread::new);
+        String reference = UUID.randomUUID().toString();
+
+        LedgerTransaction first = ledgerService.recordFarePayment(reference, 7, 25.0);
+        LedgerTransaction second = ledgerService.recordFarePayment(reference, 7, 25.0);
+
+        assertSame(first, second);
+        assertEquals(-2500, ledgerService.getBalanceCents(LedgerService.riderAccount(7)));
+        assertEquals(1L, ledgerService.getMetrics().get("transactionsWritten"));
+        assertEquals(1L, ledgerService.getMetrics().get("duplicatesReturned"));
+    }
+
+    @Test
+    void concurrentPostingsOfSameReferenceWriteOnceTest() throws Exception {
+        ledgerLog = new LedgerLog(tempDir.toString(), 1 << 20, false);
+        ledgerService = new LedgerService(ledgerLog, 0.2, 256, 4096, 2, Thread::new);
+        ledgerService.start();
+        String reference = UUID.randomUUID().toString();
+
+        ExecutorService pool = Executors.newFixedThreadPool(8);
+        List<Future<LedgerTransaction>> results = new ArrayList<>();
+        for (int i = 0; i < 50; i++) {
+            results.add(pool.submit(() -> ledgerService.recordFarePayment(reference, 3, 10.0)));
+        }
+        for (Future<LedgerTransaction> result : results) {
+            assertEquals(1, result.get().getId());
+        }
+        pool.shutdown();
+
+        assertEquals(-1000, ledgerService.getBalanceCents(LedgerService.riderAccount(3)));
+        assertEquals(1, ledgerLog.getTransactionCount());
+    }
+
+    @Test
+    void referencesPostedBeforeRestartAreNotWrittenAgainTest() {
+        String reference = UUID.randomUUID().toString();
+        ledgerLog = new LedgerLog(tempDir.toString(), 1 << 20, false);
+        ledgerService = new LedgerService(ledgerLog, 0.2, 16, 64, 0, Thread::new);
+        LedgerTransaction written = ledgerService.recordFarePayment(reference, 1, 10.0);
+        ledgerLog.close();
+
+        ledgerLog = new LedgerLog(tempDir.toString(), 1 << 20, false);
+        ledgerService = new LedgerService(ledgerLog, 0.2, 16, 64, 0, Thread::new);
+        LedgerTransaction again = ledgerService.recordFarePayment(reference, 1, 10.0);
+
+        assertEquals(written.getId(), again.getId());
+        assertEquals(-1000, ledgerService.getBalanceCents(LedgerService.riderAccount(1)));
+        assertEquals(1, ledgerLog.getTransactionCount());
+    }
+
+    // =================== VALIDATION TESTS ===================
+
+    @Test
+    void unbalancedTransactionIsRejectedTest() {
+        ledgerService = new LedgerService(null, 0.2, 16, 64, 0, Thread::new);
+
+        LedgerService.InvalidPostingException exception = assertThrows(LedgerService.InvalidPostingException.class,
+                () -> ledgerService.post(null, List.of(LedgerPosting.debit("rider:1", 100), LedgerPosting.credit("platform:revenue", 90))));
+
+        assertEquals("Ledger transaction does not balance, postings add up to -10 cents", exception.getMessage());
+        assertTrue(ledgerService.getBalances().isEmpty());
+    }
+
+    @Test
+    void invalidPostingsAreRejectedTest() {
+        ledgerService = new LedgerService(null, 0.2, 16, 64, 0, Thread::new);
+
+        assertThrows(LedgerService.InvalidPostingException.class,
+                () -> ledgerService.post(null, List.of(LedgerPosting.debit("rider:1", 100))));
+        assertThrows(LedgerService.InvalidPostingException.class,
+                () -> ledgerService.post(null, List.of(LedgerPosting.debit("rider:1", 0), LedgerPosting.credit("platform:revenue", 0))));
+        assertThrows(LedgerService.InvalidPostingException.class,
+                () -> ledgerService.post(null, List.of(LedgerPosting.debit("rider:" + "1".repeat(40), 100), LedgerPosting.credit("platform:revenue", 100))));
+        assertThrows(LedgerService.InvalidPostingException.class,
+                () -> ledgerService.post(null, List.of(LedgerPosting.debit("ridér:1", 100), LedgerPosting.credit("platform:revenue", 100))));
+        assertThrows(LedgerService.InvalidPostingException.class,
+                () -> ledgerService.post("booking-1", List.of(LedgerPosting.debit("rider:1", 100), LedgerPosting.credit("platform:revenue", 100))));
+    }
+
+    @Test
+    void farePaymentWithoutClientIsRejectedTest() {
+        ledgerService = new LedgerService(null, 0.2, 16, 64, 0, Thread::new);
+
+        assertThrows(LedgerService.InvalidPostingException.class, () -> ledgerService.recordFarePayment(null, null, 10.0));
+        assertThrows(LedgerService.InvalidPostingException.class, () -> ledgerService.recordFarePayment(null, 1, 0.001));
+    }
+}
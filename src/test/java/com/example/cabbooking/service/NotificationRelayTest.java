@@ -0,0 +1,243 @@
+package com.example.cabbooking.service;
+
+import com.example.cabbooking.model.OutboxMessage;
+import com.example.cabbooking.repository.OutboxRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class NotificationRelayTest {
+
+    private InMemoryOutboxRepository outbox;
+    private RecordingNotifier notifier;
+    private NotificationRelay relay;
+
+    @BeforeEach
+    void setUp() {
+        outbox = new InMemoryOutboxRepository();
+        notifier = new RecordingNotifier();
+        relay = new NotificationRelay(outbox, notifier, 2, 3, 0, 0, 72);
+    }
+
+    // =================== SUCCESS CASE TESTS ===================
+
+    @Test
+    void relaySendsEveryDueMessageTest() {
+        for (int i = 0; i < 5; i++) {
+            outbox.save(message("booking-" + i));
+        }
+
+        relay.relay();
+
+        assertEquals(5, notifier.sent.size());
+        assertEquals(0, outbox.pendingCount());
+        // five messages in batches of two mark sent three times, not once per message
+        assertEquals(3, outbox.markSentCalls);
+        assertEquals(5L, relay.getMetrics().get("sent"));
+    }
+
+    @Test
+    void sameEventIsQueuedOnceTest() {
+        outbox.save(message("booking-1"));
+        outbox.save(message("booking-1"));
+
+        relay.relay();
+
+        assertEquals(List.of("booking-1"), notifier.sent);
+    }
+
+    @Test
+    void failedMessageIsRetriedTest() {
+        outbox.save(message("booking-1"));
+        notifier.failuresLeft = 1;
+
+        relay.relay();
+        assertTrue(notifier.sent.isEmpty());
+        assertEquals(1, outbox.messages.get(1L).getAttempts());
+
+        relay.relay();
+        assertEquals(List.of("booking-1"), notifier.sent);
+        assertEquals(0, outbox.pendingCount());
+    }
+
+    @Test
+    void unsentMessageGoesOutAgainTest() {
+        outbox.save(message("booking-1"));
+        outbox.failMarkSent = true;
+
+        relay.relay();
+        outbox.failMarkSent = false;
+        relay.relay();
+
+        // at least once: the notifier sees it twice and is the one that recognises the repeat
+        assertEquals(List.of("booking-1", "booking-1"), notifier.sent);
+        assertEquals(0, outbox.pendingCount());
+    }
+
+    @Test
+    void purgeDeletesOldSentMessagesTest() {
+        outbox.save(message("booking-1"));
+        outbox.save(message("booking-2"));
+        relay.relay();
+        outbox.sentAt.put(1L, Instant.now().minusSeconds(73 * 3600));
+
+        relay.purge();
+
+        assertFalse(outbox.messages.containsKey(1L));
+        assertTrue(outbox.messages.containsKey(2L));
+    }
+
+    // =================== EXCEPTION TESTS ===================
+
+    @Test
+    void messageIsAbandonedAfterMaxAttemptsTest() {
+        outbox.save(message("booking-1"));
+        notifier.failuresLeft = 10;
+
+        for (int i = 0; i < 5; i++) {
+            relay.relay();
+        }
+
+        assertEquals(3, outbox.messages.get(1L).getAttempts());
+        assertEquals(3L, relay.getMetrics().get("failedAttempts"));
+        assertEquals(1L, relay.getMetrics().get("abandoned"));
+    }
+
+    @Test
+    void permanentFailureIsNotRetriedTest() {
+        outbox.save(message("booking-1"));
+        notifier.failuresLeft = 1;
+        notifier.retryable = false;
+
+        relay.relay();
+        relay.relay();
+
+        assertTrue(notifier.sent.isEmpty());
+        assertEquals(3, outbox.messages.get(1L).getAttempts());
+        assertEquals(1L, relay.getMetrics().get("abandoned"));
+    }
+
+    @Test
+    void invalidSettingsShouldThrowException() {
+        assertThrows(IllegalArgumentException.class, () -> new NotificationRelay(outbox, notifier, 0, 3, 0, 0, 72));
+        assertThrows(IllegalArgumentException.class, () -> new NotificationRelay(outbox, notifier, 2, 3, 1000, 10, 72));
+    }
+
+    private static OutboxMessage message(String eventId) {
+        return new OutboxMessage(eventId, NotificationService.BOOKING_CONFIRMED, "john@email.com",
+                "Your cab is booked", "Hi John Doe", Instant.now());
+    }
+
+    /**
+     * in-memory outbox with the same due, sent and dedupe rules as the table
+     */
+    private static class InMemoryOutboxRepository extends OutboxRepository {
+        private final Map<Long, OutboxMessage> messages = new TreeMap<>();
+        private final Map<Long, Instant> sentAt = new TreeMap<>();
+        private final Map<Long, Instant> nextAttemptAt = new TreeMap<>();
+        private final Set<String> eventIds = new HashSet<>();
+        private long nextId = 1;
+        private int markSentCalls;
+        private boolean failMarkSent;
+
+        InMemoryOutboxRepository() {
+            super(null);
+        }
+
+        @Override
+        public boolean save(OutboxMessage message) {
+            if (eventIds.add(message.getEventId())) {
+                message.setId(nextId++);
+                messages.put(message.getId(), message);
+                nextAttemptAt.put(message.getId(), message.getCreatedAt());
+            }
+            return true;
+        }
+
+        @Override
+        public boolean saveAll(List<OutboxMessage> batch) {
+            batch.forEach(this::save);
+            return true;
+        }
+
+        @Override
+        public List<OutboxMessage> findDue(Instant now, int maxAttempts, int limit) {
+            List<OutboxMessage> due = new ArrayList<>();
+            for (OutboxMessage message : messages.values()) {
+                if (due.size() < limit && !sentAt.containsKey(message.getId()) && message.getAttempts() < maxAttempts
+                        && !nextAttemptAt.get(message.getId()).isAfter(now)) {
+                    due.add(message);
+                }
+            }
+            return due;
+        }
+
+        @Override
+        public boolean markSent(List<Long> ids, Instant when) {
+            if (ids.isEmpty()) {
+                return true;
+            }
+            markSentCalls++;
+            if (failMarkSent) {
+                return false;
+            }
+            ids.forEach(id -> sentAt.put(id, when));
+            return true;
+        }
+
+        @Override
+        public boolean markFailed(long id, int attempts, Instant next, String error) {
+            messages.get(id).setAttempts(attempts);
+            nextAttemptAt.put(id, next);
+            return true;
+        }
+
+        @Override
+        public int deleteSentBefore(Instant cutoff, int limit) {
+            List<Long> old = new ArrayList<>();
+            sentAt.forEach((id, when) -> {
+                if (old.size() < limit && when.isBefore(cutoff)) {
+                    old.add(id);
+                }
+            });
+            old.forEach(id -> {
+                messages.remove(id);
+                sentAt.remove(id);
+            });
+            return old.size();
+        }
+
+        int pendingCount() {
+            return messages.size() - sentAt.size();
+        }
+    }
+
+    private static class RecordingNotifier implements Notifier {
+        private final List<String> sent = new ArrayList<>();
+        private int failuresLeft;
+        private boolean retryable = true;
+
+        @Override
+        public void send(OutboxMessage message) {
+            if (failuresLeft > 0) {
+                failuresLeft--;
+                throw new NotificationException("Mail server unavailable", retryable);
+            }
+            sent.add(message.getEventId());
+        }
+
+        @Override
+        public String getName() {
+            return "recording";
+        }
+    }
+}
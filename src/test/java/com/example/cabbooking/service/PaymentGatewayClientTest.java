@@ -0,0 +1,239 @@
+package com.example.cabbooking.service;
+
+import com.example.cabbooking.model.GatewayResponse;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class PaymentGatewayClientTest {
+
+    /**
+     * gateway which fails its first few calls, then defers to the local gateway
+     */
+    private static class FlakyGateway implements PaymentGateway {
+        private final LocalPaymentGateway delegate = new LocalPaymentGateway(0, 0.0);
+        private final AtomicInteger failuresLeft;
+        private final boolean retryable;
+        private final AtomicInteger calls = new AtomicInteger();
+        private final List<CompletableFuture<GatewayResponse>> hanging = new ArrayList<>();
+        private volatile boolean hang;
+
+        FlakyGateway(int failures, boolean retryable) {
+            this.failuresLeft = new AtomicInteger(failures);
+            this.retryable = retryable;
+        }
+
+        private CompletableFuture<GatewayResponse> maybeFail(CompletableFuture<GatewayResponse> onSuccess) {
+            calls.incrementAndGet();
+            if (hang) {
+                CompletableFuture<GatewayResponse> never = new CompletableFuture<>();
+                hanging.add(never);
+                return never;
+            }
+            if (failuresLeft.getAndDecrement() > 0) {
+                return CompletableFuture.failedFuture(new GatewayException("503 from provider", retryable));
+            }
+            return onSuccess;
+        }
+
+        @Override
+        public CompletableFuture<GatewayResponse> authorize(String idempotencyKey, String cardNumber, double amount) {
+            return maybeFail(delegate.authorize(idempotencyKey, cardNumber, amount));
+        }
+
+        @Override
+        public CompletableFuture<GatewayResponse> capture(String idempotencyKey, String authorizationId, double amount) {
+            return maybeFail(delegate.capture(idempotencyKey, authorizationId, amount));
+        }
+
+        @Override
+        public CompletableFuture<GatewayResponse> voidAuthorization(String idempotencyKey, String authorizationId) {
+            return maybeFail(delegate.voidAuthorization(idempotencyKey, authorizationId));
+        }
+
+        @Override
+        public String getName() {
+            return "flaky";
+        }
+    }
+
+    private PaymentGatewayClient client(PaymentGateway gateway, int maxAttempts, int maxConcurrentCalls, CircuitBreaker breaker) {
+        return new PaymentGatewayClient(gateway, 200, maxAttempts, 1, 5, maxConcurrentCalls, breaker);
+    }
+
+    private CircuitBreaker lenientBreaker() {
+        return new CircuitBreaker(100, 1.0, 100, 1000, 1);
+    }
+
+    // =================== SUCCESS CASE TESTS ===================
+
+    @Test
+    void chargeAuthorizesAndCapturesTest() {
+        PaymentGatewayClient client = new PaymentGatewayClient(new LocalPaymentGateway(0, 0.0));
+
+        GatewayResponse capture = client.charge("payment-1", "4111-1111-1111-1111", 12.5);
+
+        assertTrue(capture.isApproved());
+        assertTrue(capture.getTransactionId().startsWith("cap_"));
+        assertEquals(12.5, capture.getAmount());
+    }
+
+    @Test
+    void chargingSamePaymentTwiceChargesOnceTest() {
+        PaymentGatewayClient client = new PaymentGatewayClient(new LocalPaymentGateway(0, 0.0));
+
+        GatewayResponse first = client.charge("payment-1", "4111111111111111", 12.5);
+        GatewayResponse second = client.charge("payment-1", "4111111111111111", 12.5);
+
+        assertEquals(first.getTransactionId(), second.getTransactionId());
+    }
+
+    @Test
+    void retryableFailuresAreRetriedTest() {
+        FlakyGateway gateway = new FlakyGateway(2, true);
+        PaymentGatewayClient client = client(gateway, 3, 4, lenientBreaker());
+
+        GatewayResponse capture = client.charge("payment-1", "4111111111111111", 10.0);
+
+        assertTrue(capture.isApproved());
+        assertEquals(4, gateway.calls.get());
+        assertEquals(2L, client.getMetrics().get("retries"));
+    }
+
+    @Test
+    void latencyRecordedPerOperationTest() {
+        PaymentGatewayClient client = new PaymentGatewayClient(new LocalPaymentGateway(0, 0.0));
+        client.charge("payment-1", "4111111111111111", 10.0);
+        client.charge("payment-2", "4111111111111111", 10.0);
+
+        @SuppressWarnings("unchecked")
+        Map<String, Map<String, Object>> latency = (Map<String, Map<String, Object>>) client.getMetrics().get("latency");
+
+        assertEquals(2L, latency.get(PaymentGatewayClient.AUTHORIZE).get("count"));
+        assertEquals(2L, latency.get(PaymentGatewayClient.CAPTURE).get("count"));
+        assertEquals(0L, latency.get(PaymentGatewayClient.VOID).get("count"));
+    }
+
+    // =================== ERROR CASE TESTS ===================
+
+    @Test
+    void declinedCardIsNotRetriedTest() {
+        PaymentGatewayClient client = new PaymentGatewayClient(new LocalPaymentGateway(0, 0.0));
+
+        GatewayResponse response = client.charge("payment-1", LocalPaymentGateway.DECLINED_TEST_CARD, 10.0);
+
+        assertFalse(response.isApproved());
+        assertEquals("card_declined", response.getDeclineReason());
+        assertEquals(0L, client.getMetrics().get("retries"));
+    }
+
+    @Test
+    void nonRetryableFailureFailsAtOnceTest() {
+        FlakyGateway gateway = new FlakyGateway(1, false);
+        PaymentGatewayClient client = client(gateway, 3, 4, lenientBreaker());
+
+        assertThrows(PaymentGateway.GatewayException.class, () -> client.charge("payment-1", "4111111111111111", 10.0));
+        assertEquals(1, gateway.calls.get());
+    }
+
+    @Test
+    void exhaustedRetriesReportUnavailableTest() {
+        FlakyGateway gateway = new FlakyGateway(10, true);
+        PaymentGatewayClient client = client(gateway, 3, 4, lenientBreaker());
+
+        assertThrows(PaymentGatewayClient.GatewayUnavailableException.class,
+                () -> client.charge("payment-1", "4111111111111111", 10.0));
+        assertEquals(3, gateway.calls.get());
+        assertEquals(1L, client.getMetrics().get("failures"));
+    }
+
+    @Test
+    void slowGatewayTimesOutTest() {
+        FlakyGateway gateway = new FlakyGateway(0, true);
+        gateway.hang = true;
+        PaymentGatewayClient client = client(gateway, 2, 4, lenientBreaker());
+
+        long start = System.nanoTime();
+        assertThrows(PaymentGatewayClient.GatewayUnavailableException.class,
+                () -> client.charge("payment-1", "4111111111111111", 10.0));
+
+        assertTrue(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start) < 2000);
+        assertEquals(2L, client.getMetrics().get("timeouts"));
+        // the gateway's own futures are left alone, only the client's view of them timed out
+        assertFalse(gateway.hanging.get(0).isDone());
+    }
+
+    @Test
+    void bulkheadRefusesCallsBeyondLimitTest() {
+        FlakyGateway gateway = new FlakyGateway(0, true);
+        gateway.hang = true;
+        PaymentGatewayClient client = new PaymentGatewayClient(gateway, 60_000, 1, 0, 0, 2, lenientBreaker());
+
+        CompletableFuture<GatewayResponse> first = client.authorize("p1", "4111111111111111", 10.0);
+        CompletableFuture<GatewayResponse> second = client.authorize("p2", "4111111111111111", 10.0);
+        CompletableFuture<GatewayResponse> third = client.authorize("p3", "4111111111111111", 10.0);
+
+        assertFalse(first.isDone());
+        assertFalse(second.isDone());
+        ExecutionException e = assertThrows(ExecutionException.class, third::get);
+        assertTrue(e.getCause() instanceof PaymentGatewayClient.GatewayUnavailableException);
+        assertEquals(2, gateway.calls.get());
+        assertEquals(1L, client.getMetrics().get("bulkheadRejections"));
+
+        // a finished call frees its permit
+        gateway.hanging.get(0).complete(new GatewayResponse("auth_1", true, 10.0, null));
+        gateway.hang = false;
+        assertDoesNotThrow(() -> client.authorize("p4", "4111111111111111", 10.0).get());
+    }
+
+    @Test
+    void openCircuitStopsCallingGatewayTest() {
+        FlakyGateway gateway = new FlakyGateway(100, true);
+        PaymentGatewayClient client = client(gateway, 1, 4, new CircuitBreaker(4, 0.5, 4, 60_000, 1));
+
+        for (int i = 0; i < 4; i++) {
+            String paymentId = "payment-" + i;
+            assertThrows(PaymentGatewayClient.GatewayUnavailableException.class,
+                    () -> client.charge(paymentId, "4111111111111111", 10.0));
+        }
+        assertEquals(4, gateway.calls.get());
+        assertEquals("OPEN", client.getMetrics().get("circuitState"));
+
+        assertThrows(PaymentGatewayClient.GatewayUnavailableException.class,
+                () -> client.charge("payment-5", "4111111111111111", 10.0));
+        assertEquals(4, gateway.calls.get());
+        assertEquals(1L, client.getMetrics().get("circuitRejections"));
+    }
+
+    @Test
+    void failedCaptureVoidsAuthorizationTest() throws Exception {
+        LocalPaymentGateway local = new LocalPaymentGateway(0, 0.0);
+        PaymentGatewayClient client = new PaymentGatewayClient(local);
+
+        // capturing more than was authorized is declined, and the hold is released
+        GatewayResponse authorization = client.authorize("payment-1", "4111111111111111", 10.0).get();
+        GatewayResponse capture = client.capture("payment-1", authorization.getTransactionId(), 25.0).get();
+        assertFalse(capture.isApproved());
+        assertEquals("amount_exceeds_authorization", capture.getDeclineReason());
+
+        GatewayResponse voided = client.voidAuthorization("payment-1", authorization.getTransactionId()).get();
+        assertTrue(voided.isApproved());
+        assertEquals(10.0, voided.getAmount());
+    }
+
+    @Test
+    void invalidSettingsRejectedTest() {
+        LocalPaymentGateway local = new LocalPaymentGateway(0, 0.0);
+        assertThrows(IllegalArgumentException.class, () -> new PaymentGatewayClient(local, 0, 3, 1, 5, 4, lenientBreaker()));
+        assertThrows(IllegalArgumentException.class, () -> new PaymentGatewayClient(local, 100, 3, 10, 5, 4, lenientBreaker()));
+        assertThrows(IllegalArgumentException.class, () -> new LocalPaymentGateway(0, 1.5));
+    }
+}
@@ -1,10 +1,16 @@
 package com.example.cabbooking.service;
 
+import com.example.cabbooking.model.BookingContext;
+import com.example.cabbooking.model.BookingStatus;
 import com.example.cabbooking.model.Client;
+import com.example.cabbooking.model.FareQuote;
 import com.example.cabbooking.model.Location;
+import com.example.cabbooking.model.OutboxMessage;
 import com.example.cabbooking.model.Route;
+import com.example.cabbooking.repository.OutboxRepository;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
 import org.mockito.Mock;
 import org.mockito.MockitoAnnotations;
 
@@ -20,6 +26,7 @@ class PaymentServiceTest {
     @Mock
     private BookingService bookingService;
 
+    private FareQuoteService fareQuoteService;
     private PaymentService paymentService;
     private Client validClient;
     private Route validRoute;
@@ -29,7 +36,10 @@ class PaymentServiceTest {
     @BeforeEach
     void setUp() {
         MockitoAnnotations.openMocks(this);
-        paymentService = new PaymentService(calculateFareService, bookingService);
+        fareQuoteService = new FareQuoteService(calculateFareService, new IdempotencyStore(86400, 1000, 5000), "test-secret", 300);
+        paymentService = new PaymentService(calculateFareService, bookingService, fareQuoteService,
+                new PaymentGatewayClient(new LocalPaymentGateway(0, 0.0)), new CardVault(null, ""), inMemoryLedger(),
+                new NotificationService(null));
 
         // Set up test data
         validClient = new Client(1, "John Doe", "john@email.com", "555-1234", "123 Main St", "4111-1111-1111-1111");
@@ -41,6 +51,13 @@ class PaymentServiceTest {
         when(calculateFareService.calculateFare(validRoute)).thenReturn(10.0);
     }
 
+    /**
+     * ledger that keeps its balances in memory
+     */
+    private static LedgerService inMemoryLedger() {
+        return new LedgerService(null, 0.2, 16, 64, 0, Thread::new);
+    }
+
     // =================== SUCCESS CASE TESTS ===================
 
     @Test
@@ -114,6 +131,137 @@ class PaymentServiceTest {
         verify(calculateFareService).calculateFare(validRoute);
     }
 
+    // =================== SIGNED QUOTE TESTS ===================
+
+    @Test
+    void testRequestPaymentReturnsSignedQuote() {
+        FareQuote quote = paymentService.requestPayment(validClient, validRoute);
+
+        assertNotNull(quote);
+        assertNotNull(quote.getToken());
+        assertEquals(10.0, quote.getAmount(), 0.001);
+    }
+
+    @Test
+    void testPaymentConfirmationWithQuoteTokenDoesNotRecalculateFare() {
+        FareQuote quote = paymentService.requestPayment(validClient, validRoute);
+
+        assertDoesNotThrow(() -> {
+            paymentService.paymentConfirmation(validClient, validRoute, quote.getToken(), "4111-1111-1111-1111");
+        });
+
+        // Priced once when the quote was issued, never again when confirming
+        verify(calculateFareService, times(1)).calculateFare(validRoute);
+        verify(bookingService).finishBookingCab(validClient, validRoute);
+    }
+
+    @Test
+    void testPaymentConfirmationWithTamperedQuoteTokenShouldThrowException() {
+        String token = paymentService.requestPayment(validClient, validRoute).getToken();
+        // flip a character inside the signed amount
+        char c = token.charAt(10);
+        String tampered = token.substring(0, 10) + (c == 'A' ? 'B' : 'A') + token.substring(11);
+
+        PaymentService.InvalidPaymentException exception = assertThrows(
+                PaymentService.InvalidPaymentException.class,
+                () -> paymentService.paymentConfirmation(validClient, validRoute, tampered, "4111-1111-1111-1111")
+        );
+
+        assertTrue(exception.getMessage().contains("Fare quote rejected"));
+        verify(bookingService, never()).finishBookingCab(any(), any());
+    }
+
+    @Test
+    void testPaymentConfirmationWithQuoteForDifferentRouteShouldThrowException() {
+        String token = paymentService.requestPayment(validClient, validRoute).getToken();
+        Route otherRoute = new Route(endLocation, startLocation, 2.5);
+
+        assertThrows(PaymentService.InvalidPaymentException.class,
+                () -> paymentService.paymentConfirmation(validClient, otherRoute, token, "4111-1111-1111-1111"));
+    }
+
+    @Test
+    void testCanProcessPaymentAndSummaryWithQuoteToken() {
+        String token = paymentService.requestPayment(validClient, validRoute).getToken();
+
+        assertTrue(paymentService.canProcessPayment(validClient, validRoute, token));
+        assertFalse(paymentService.canProcessPayment(validClient, validRoute, "not-a-token"));
+
+        String summary = paymentService.getPaymentSummary(validClient, validRoute, token);
+        assertTrue(summary.contains("$10.00"));
+        assertTrue(summary.contains("****1111"));
+
+        verify(calculateFareService, times(1)).calculateFare(validRoute);
+    }
+
+    // =================== BOOKING STATUS TESTS ===================
+
+    @Test
+    void testPaymentConfirmationForBookingMovesItToPaid() {
+        when(bookingService.claimPayment("booking-1")).thenReturn(BookingStatus.QUOTED);
+        String token = paymentService.requestPayment(validClient, validRoute).getToken();
+
+        assertDoesNotThrow(() -> {
+            paymentService.paymentConfirmation("booking-1", validClient, validRoute, token, "4111-1111-1111-1111");
+        });
+
+        verify(bookingService).finishBookingCab(validClient, validRoute);
+        verify(bookingService).completePayment("booking-1");
+        verify(bookingService, never()).releasePayment(any());
+    }
+
+    @Test
+    void testPaymentConfirmationForCancelledBookingShouldThrowException() {
+        when(bookingService.claimPayment("booking-1")).thenThrow(new BookingLifecycleService.InvalidTransitionException(
+                "Booking booking-1 cannot be paid while it is CANCELLED"));
+        String token = paymentService.requestPayment(validClient, validRoute).getToken();
+
+        PaymentService.InvalidPaymentException exception = assertThrows(
+                PaymentService.InvalidPaymentException.class,
+                () -> paymentService.paymentConfirmation("booking-1", validClient, validRoute, token, "4111-1111-1111-1111")
+        );
+
+        assertTrue(exception.getMessage().contains("cannot be paid"));
+        verify(bookingService, never()).finishBookingCab(any(), any());
+        verify(bookingService, never()).completePayment(any());
+    }
+
+    @Test
+    void testPaymentConfirmationForBookingAlreadyBeingPaidShouldThrowException() {
+        when(bookingService.claimPayment("booking-1")).thenThrow(new BookingLifecycleService.InvalidTransitionException(
+                "Booking booking-1 is already being paid"));
+        String token = paymentService.requestPayment(validClient, validRoute).getToken();
+
+        assertThrows(PaymentService.InvalidPaymentException.class,
+                () -> paymentService.paymentConfirmation("booking-1", validClient, validRoute, token, "4111-1111-1111-1111"));
+
+        verify(bookingService, never()).finishBookingCab(any(), any());
+        // the claim belongs to the confirmation already running, so it is left alone
+        verify(bookingService, never()).releasePayment(any());
+    }
+
+    @Test
+    void testFailedChargeReleasesBookingClaim() {
+        when(bookingService.claimPayment("booking-1")).thenReturn(BookingStatus.QUOTED);
+        String token = paymentService.requestPayment(validClient, validRoute).getToken();
+
+        assertThrows(PaymentService.CreditCardException.class,
+                () -> paymentService.paymentConfirmation("booking-1", validClient, validRoute, token, "5555-5555-5555-4444"));
+
+        verify(bookingService).releasePayment("booking-1");
+        verify(bookingService, never()).completePayment(any());
+    }
+
+    @Test
+    void testPaymentConfirmationForUnknownBookingShouldThrowException() {
+        when(bookingService.claimPayment("missing"))
+                .thenThrow(new BookingLifecycleService.BookingNotFoundException("Booking not found: missing"));
+        String token = paymentService.requestPayment(validClient, validRoute).getToken();
+
+        assertThrows(PaymentService.InvalidPaymentException.class,
+                () -> paymentService.paymentConfirmation("missing", validClient, validRoute, token, "4111-1111-1111-1111"));
+    }
+
     // =================== REQUEST PAYMENT EXCEPTION TESTS ===================
 
     @Test
@@ -349,6 +497,155 @@ class PaymentServiceTest {
         System.out.println(exception.getMessage());
     }
 
+    // =================== PAYMENT GATEWAY TESTS ===================
+
+    @Test
+    void testPaymentConfirmationWithDeclinedCardShouldThrowException() {
+        Client declinedClient = new Client(2, "Jane Doe", "jane@email.com", "555-5678", "456 Oak St", "4000-0000-0000-0002");
+
+        PaymentService.CreditCardException exception = assertThrows(
+                PaymentService.CreditCardException.class,
+                () -> paymentService.paymentConfirmation(declinedClient, validRoute, 10.0, "4000-0000-0000-0002")
+        );
+
+        assertEquals("Card ending in ****0002 was declined: card_declined", exception.getMessage());
+        verify(bookingService, never()).finishBookingCab(any(), any());
+    }
+
+    @Test
+    void testPaymentConfirmationWithGatewayDownShouldThrowException() {
+        PaymentGateway downGateway = new LocalPaymentGateway(0, 1.0);
+        PaymentService serviceWithDownGateway = new PaymentService(calculateFareService, bookingService, fareQuoteService,
+                new PaymentGatewayClient(downGateway, 100, 2, 1, 2, 4, new CircuitBreaker(10, 0.5, 10, 1000, 1)),
+                new CardVault(null, ""), inMemoryLedger(), new NotificationService(null));
+
+        PaymentService.PaymentProcessException exception = assertThrows(
+                PaymentService.PaymentProcessException.class,
+                () -> serviceWithDownGateway.paymentConfirmation(validClient, validRoute, 10.0, "4111-1111-1111-1111")
+        );
+
+        assertTrue(exception.getMessage().startsWith("Payment could not be taken"));
+        verify(bookingService, never()).finishBookingCab(any(), any());
+    }
+
+    @Test
+    void testPaymentConfirmationWithVaultedCard() {
+        CardVault cardVault = new CardVault(null, "");
+        PaymentService vaultedService = new PaymentService(calculateFareService, bookingService, fareQuoteService,
+                new PaymentGatewayClient(new LocalPaymentGateway(0, 0.0)), cardVault, inMemoryLedger(),
+                new NotificationService(null));
+        Client vaultedClient = new Client(1, "John Doe", "john@email.com", "555-1234", "123 Main St",
+                cardVault.tokenize("4111-1111-1111-1111"));
+
+        assertDoesNotThrow(() -> vaultedService.paymentConfirmation(vaultedClient, validRoute, 10.0, "4111 1111 1111 1111"));
+        verify(bookingService).finishBookingCab(vaultedClient, validRoute);
+
+        PaymentService.CreditCardException exception = assertThrows(
+                PaymentService.CreditCardException.class,
+                () -> vaultedService.paymentConfirmation(vaultedClient, validRoute, 10.0, "5555-5555-5555-4444")
+        );
+        assertEquals("Credit card number does not match card on file", exception.getMessage());
+        assertTrue(vaultedService.getPaymentSummary(vaultedClient, validRoute).contains("****1111"));
+    }
+
+    @Test
+    void testPaymentConfirmationRecordsFareInLedger() {
+        LedgerService ledgerService = inMemoryLedger();
+        PaymentService ledgerBackedService = new PaymentService(calculateFareService, bookingService, fareQuoteService,
+                new PaymentGatewayClient(new LocalPaymentGateway(0, 0.0)), new CardVault(null, ""), ledgerService, new NotificationService(null));
+
+        ledgerBackedService.paymentConfirmation(validClient, validRoute, 10.0, "4111-1111-1111-1111");
+
+        assertEquals(-1000, ledgerService.getBalanceCents(LedgerService.riderAccount(1)));
+        assertEquals(200, ledgerService.getBalanceCents(LedgerService.PLATFORM_REVENUE));
+        assertEquals(800, ledgerService.getBalanceCents(LedgerService.DRIVERS_PAYABLE));
+    }
+
+    @Test
+    void testReplayedQuoteShouldBeRejected() {
+        LedgerService ledgerService = inMemoryLedger();
+        PaymentService ledgerBackedService = new PaymentService(calculateFareService, bookingService, fareQuoteService,
+                new PaymentGatewayClient(new LocalPaymentGateway(0, 0.0)), new CardVault(null, ""), ledgerService, new NotificationService(null));
+        String token = ledgerBackedService.requestPayment(validClient, validRoute).getToken();
+
+        ledgerBackedService.paymentConfirmation(validClient, validRoute, token, "4111-1111-1111-1111");
+        PaymentService.InvalidPaymentException exception = assertThrows(PaymentService.InvalidPaymentException.class,
+                () -> ledgerBackedService.paymentConfirmation(validClient, validRoute, token, "4111-1111-1111-1111"));
+
+        assertTrue(exception.getMessage().contains("already been used"));
+        verify(bookingService, times(1)).finishBookingCab(validClient, validRoute);
+
+        assertEquals(-1000, ledgerService.getBalanceCents(LedgerService.riderAccount(1)));
+        assertEquals(200, ledgerService.getBalanceCents(LedgerService.PLATFORM_REVENUE));
+        assertEquals(800, ledgerService.getBalanceCents(LedgerService.DRIVERS_PAYABLE));
+        assertEquals(1L, ledgerService.getMetrics().get("transactionsWritten"));
+    }
+
+    @Test
+    void testFailedConfirmationLeavesQuoteUsable() {
+        String token = paymentService.requestPayment(validClient, validRoute).getToken();
+
+        assertThrows(PaymentService.CreditCardException.class,
+                () -> paymentService.paymentConfirmation(validClient, validRoute, token, "5555-5555-5555-4444"));
+
+        assertDoesNotThrow(() -> paymentService.paymentConfirmation(validClient, validRoute, token, "4111-1111-1111-1111"));
+        verify(bookingService).finishBookingCab(validClient, validRoute);
+    }
+
+    @Test
+    void testDeclinedPaymentIsNotRecordedInLedger() {
+        LedgerService ledgerService = inMemoryLedger();
+        PaymentService ledgerBackedService = new PaymentService(calculateFareService, bookingService, fareQuoteService,
+                new PaymentGatewayClient(new LocalPaymentGateway(0, 0.0)), new CardVault(null, ""), ledgerService, new NotificationService(null));
+        Client declinedClient = new Client(2, "Jane Doe", "jane@email.com", "555-5678", "456 Oak St", "4000-0000-0000-0002");
+
+        assertThrows(PaymentService.CreditCardException.class,
+                () -> ledgerBackedService.paymentConfirmation(declinedClient, validRoute, 10.0, "4000-0000-0000-0002"));
+        assertTrue(ledgerService.getBalances().isEmpty());
+    }
+
+    @Test
+    void testPaymentRequestAndReceiptAreQueued() {
+        OutboxRepository outboxRepository = mock(OutboxRepository.class);
+        when(outboxRepository.save(any(OutboxMessage.class))).thenReturn(true);
+        PaymentService notifyingService = new PaymentService(calculateFareService, bookingService, fareQuoteService,
+                new PaymentGatewayClient(new LocalPaymentGateway(0, 0.0)), new CardVault(null, ""), inMemoryLedger(),
+                new NotificationService(outboxRepository));
+
+        String token = notifyingService.requestPayment(validClient, validRoute).getToken();
+        notifyingService.paymentConfirmation(validClient, validRoute, token, "4111-1111-1111-1111");
+
+        ArgumentCaptor<OutboxMessage> queued = ArgumentCaptor.forClass(OutboxMessage.class);
+        verify(outboxRepository, times(2)).save(queued.capture());
+        assertEquals(NotificationService.PAYMENT_REQUESTED, queued.getAllValues().get(0).getType());
+        assertEquals(NotificationService.PAYMENT_RECEIVED, queued.getAllValues().get(1).getType());
+        assertEquals("john@email.com", queued.getAllValues().get(1).getRecipient());
+        assertTrue(queued.getAllValues().get(1).getBody().contains("****1111"));
+    }
+
+    @Test
+    void testPaymentWithBookingContext() {
+        BookingContext context = new BookingContext(validClient, startLocation, endLocation, 2.5, 0, 2.5);
+        when(calculateFareService.calculateFareFor(context)).thenReturn(10.0);
+
+        FareQuote quote = paymentService.requestPayment(context);
+        assertDoesNotThrow(() -> paymentService.paymentConfirmation(context, quote.getToken(), "4111-1111-1111-1111"));
+
+        assertEquals(10.0, quote.getAmount(), 0.001);
+        verify(calculateFareService, never()).calculateFare(any(Route.class));
+        verify(bookingService).finishBookingCab(context);
+    }
+
+    @Test
+    void testPaymentConfirmationWithBadCheckDigitShouldThrowException() {
+        PaymentService.CreditCardException exception = assertThrows(
+                PaymentService.CreditCardException.class,
+                () -> paymentService.paymentConfirmation(validClient, validRoute, 10.0, "4111-1111-1111-1112")
+        );
+
+        assertEquals("Credit card number failed its check digit", exception.getMessage());
+    }
+
     // =================== UTILITY METHOD TESTS ===================
 
     @Test
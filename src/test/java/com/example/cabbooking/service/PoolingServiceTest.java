@@ -0,0 +1,204 @@
+package com.example.cabbooking.service;
+
+import com.example.cabbooking.model.Location;
+import com.example.cabbooking.model.PoolAssignment;
+import com.example.cabbooking.model.PooledRide;
+import com.example.cabbooking.model.RideStop;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class PoolingServiceTest {
+
+    private PoolingService poolingService;
+
+    private Location whiteHouse;
+    private Location lincolnMemorial;
+    private Location washingtonMonument;
+    private Location capitol;
+    private Location dulles;
+
+    @BeforeEach
+    void setUp() {
+        poolingService = new PoolingService(0.5, 4.0, 3, 4, 0.02);
+
+        whiteHouse = new Location("The White House", 38.8977, -77.0365);
+        lincolnMemorial = new Location("Lincoln Memorial", 38.8893, -77.0502);
+        washingtonMonument = new Location("Washington Monument", 38.8895, -77.0353);
+        capitol = new Location("US Capitol", 38.8899, -77.0091);
+        dulles = new Location("Dulles Airport", 38.9531, -77.4565);
+    }
+
+    // =================== SUCCESS CASE TESTS ===================
+
+    @Test
+    void testRequestRide_FirstRequestOpensNewRide() {
+        PoolAssignment assignment = poolingService.requestRide("b1", whiteHouse, capitol);
+
+        assertTrue(assignment.isNewRide());
+        assertEquals(1, poolingService.getOpenRideCount());
+
+        PooledRide ride = poolingService.getRide(assignment.getRideId()).orElseThrow();
+        assertEquals(2, ride.getStops().size());
+        assertEquals(RideStop.StopType.PICKUP, ride.getStops().get(0).getType());
+        assertEquals(RideStop.StopType.DROPOFF, ride.getStops().get(1).getType());
+        assertFalse(ride.isStarted());
+    }
+
+    @Test
+    void testRequestRide_CompatibleRiderJoinsExistingRide() {
+        PoolAssignment first = poolingService.requestRide("b1", whiteHouse, capitol);
+        // the monument sits almost on the way from the White House to the Capitol
+        PoolAssignment second = poolingService.requestRide("b2", washingtonMonument, capitol);
+
+        assertFalse(second.isNewRide());
+        assertEquals(first.getRideId(), second.getRideId());
+        assertTrue(second.getAddedKm() < second.getDirectKm());
+        assertEquals(1, poolingService.getOpenRideCount());
+
+        PooledRide ride = poolingService.getRide(first.getRideId()).orElseThrow();
+        assertEquals(4, ride.getStops().size());
+        assertEquals(2, ride.getRiders());
+        assertEquals(first.getRideId(), poolingService.getRideIdForBooking("b2").orElseThrow());
+    }
+
+    @Test
+    void testRequestRide_DetourTooLongOpensNewRide() {
+        PoolAssignment first = poolingService.requestRide("b1", whiteHouse, washingtonMonument);
+        // going out to Dulles would take the first rider far past their detour bound
+        PoolAssignment second = poolingService.requestRide("b2", lincolnMemorial, dulles);
+
+        assertTrue(second.isNewRide());
+        assertNotEquals(first.getRideId(), second.getRideId());
+        assertEquals(2, poolingService.getOpenRideCount());
+    }
+
+    @Test
+    void testRequestRide_RespectsSeatCapacity() {
+        PoolingService twoSeats = new PoolingService(0.5, 4.0, 2, 4, 0.02);
+        PoolAssignment first = twoSeats.requestRide("b1", whiteHouse, capitol);
+        PoolAssignment second = twoSeats.requestRide("b2", whiteHouse, capitol);
+        PoolAssignment third = twoSeats.requestRide("b3", whiteHouse, capitol);
+
+        assertEquals(first.getRideId(), second.getRideId());
+        assertTrue(third.isNewRide());
+    }
+
+    @Test
+    void testCompleteNextStop_DropsRidersAndClosesRide() {
+        PoolAssignment assignment = poolingService.requestRide("b1", whiteHouse, capitol);
+        String rideId = assignment.getRideId();
+
+        RideStop pickup = poolingService.completeNextStop(rideId);
+        assertEquals(RideStop.StopType.PICKUP, pickup.getType());
+        PooledRide ride = poolingService.getRide(rideId).orElseThrow();
+        assertTrue(ride.isStarted());
+        assertEquals(1, ride.getStops().size());
+
+        RideStop dropoff = poolingService.completeNextStop(rideId);
+        assertEquals(RideStop.StopType.DROPOFF, dropoff.getType());
+        assertTrue(poolingService.getRide(rideId).isEmpty());
+        assertTrue(poolingService.getRideIdForBooking("b1").isEmpty());
+        assertEquals(0, poolingService.getOpenRideCount());
+    }
+
+    @Test
+    void testRequestRide_JoinsRideInProgress() {
+        PoolAssignment first = poolingService.requestRide("b1", whiteHouse, capitol);
+        poolingService.completeNextStop(first.getRideId());
+
+        PoolAssignment second = poolingService.requestRide("b2", washingtonMonument, capitol);
+
+        assertEquals(first.getRideId(), second.getRideId());
+        PooledRide ride = poolingService.getRide(first.getRideId()).orElseThrow();
+        assertEquals(3, ride.getStops().size());
+    }
+
+    @Test
+    void testCancel_RemovesWaitingRider() {
+        PoolAssignment first = poolingService.requestRide("b1", whiteHouse, capitol);
+        poolingService.requestRide("b2", washingtonMonument, capitol);
+
+        poolingService.cancel("b2");
+
+        PooledRide ride = poolingService.getRide(first.getRideId()).orElseThrow();
+        assertEquals(2, ride.getStops().size());
+        assertEquals(1, ride.getRiders());
+        assertTrue(poolingService.getRideIdForBooking("b2").isEmpty());
+    }
+
+    @Test
+    void testGetMetrics() {
+        poolingService.requestRide("b1", whiteHouse, capitol);
+        poolingService.requestRide("b2", washingtonMonument, capitol);
+
+        Map<String, Object> metrics = poolingService.getMetrics();
+        assertEquals(2L, metrics.get("requests"));
+        assertEquals(1L, metrics.get("pooledMatches"));
+        assertEquals(1L, metrics.get("newRides"));
+    }
+
+    // =================== ERROR CASE TESTS ===================
+
+    @Test
+    void testCancel_AfterPickupRejected() {
+        PoolAssignment assignment = poolingService.requestRide("b1", whiteHouse, capitol);
+        poolingService.completeNextStop(assignment.getRideId());
+
+        assertThrows(PoolingService.InvalidPoolRequestException.class, () -> poolingService.cancel("b1"));
+    }
+
+    @Test
+    void testRequestRide_DuplicateBookingRejected() {
+        poolingService.requestRide("b1", whiteHouse, capitol);
+
+        assertThrows(PoolingService.InvalidPoolRequestException.class,
+                () -> poolingService.requestRide("b1", whiteHouse, capitol));
+    }
+
+    @Test
+    void testRequestRide_InvalidInputsRejected() {
+        assertThrows(PoolingService.InvalidPoolRequestException.class,
+                () -> poolingService.requestRide(null, whiteHouse, capitol));
+        assertThrows(PoolingService.InvalidPoolRequestException.class,
+                () -> poolingService.requestRide("b1", whiteHouse, null));
+        assertThrows(PoolingService.InvalidPoolRequestException.class,
+                () -> poolingService.requestRide("b1", whiteHouse, whiteHouse));
+    }
+
+    @Test
+    void testCompleteNextStop_UnknownRide() {
+        assertThrows(PoolingService.RideNotFoundException.class, () -> poolingService.completeNextStop("missing"));
+    }
+
+    // =================== PERFORMANCE TESTS ===================
+
+    @Test
+    void testRequestRide_FastWithThousandsOfOpenRides() {
+        Random random = new Random(42);
+        for (int i = 0; i < 5000; i++) {
+            poolingService.requestRide("seed-" + i, randomPoint(random), randomPoint(random));
+        }
+        assertTrue(poolingService.getOpenRideCount() > 1000);
+
+        int requests = 500;
+        long start = System.nanoTime();
+        for (int i = 0; i < requests; i++) {
+            poolingService.requestRide("timed-" + i, randomPoint(random), randomPoint(random));
+        }
+        double averageMillis = (System.nanoTime() - start) / 1_000_000.0 / requests;
+
+        System.out.println("Pooling match with " + poolingService.getOpenRideCount() + " open rides: "
+                + String.format("%.3f", averageMillis) + " ms on average");
+        assertTrue(averageMillis < 10, "Matching took " + averageMillis + " ms on average");
+    }
+
+    private Location randomPoint(Random random) {
+        // roughly the District plus the inner suburbs
+        return new Location("point", 38.80 + random.nextDouble() * 0.20, -77.12 + random.nextDouble() * 0.22);
+    }
+}
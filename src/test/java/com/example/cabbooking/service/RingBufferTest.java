@@ -0,0 +1,111 @@
+package com.example.cabbooking.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class RingBufferTest {
+
+    // =================== SUCCESS CASE TESTS ===================
+
+    @Test
+    void elementsComeOutInOrderTest() {
+        RingBuffer<Integer> ring = new RingBuffer<>(8);
+
+        for (int i = 0; i < 5; i++) {
+            assertTrue(ring.offer(i));
+        }
+
+        assertEquals(5, ring.size());
+        for (int i = 0; i < 5; i++) {
+            assertEquals(i, ring.poll());
+        }
+        assertNull(ring.poll());
+        assertTrue(ring.isEmpty());
+    }
+
+    @Test
+    void capacityIsRoundedUpToPowerOfTwoTest() {
+        assertEquals(8, new RingBuffer<>(5).capacity());
+        assertEquals(16, new RingBuffer<>(16).capacity());
+    }
+
+    @Test
+    void fullBufferRefusesOfferUntilDrainedTest() {
+        RingBuffer<Integer> ring = new RingBuffer<>(4);
+        for (int i = 0; i < 4; i++) {
+            assertTrue(ring.offer(i));
+        }
+
+        assertFalse(ring.offer(99));
+
+        List<Integer> drained = new ArrayList<>();
+        assertEquals(2, ring.drainTo(drained, 2));
+        assertEquals(List.of(0, 1), drained);
+        assertTrue(ring.offer(4));
+        assertTrue(ring.offer(5));
+        assertFalse(ring.offer(6));
+    }
+
+    @Test
+    void concurrentProducersAndConsumerLoseNothingTest() throws Exception {
+        int producers = 4;
+        int perProducer = 50_000;
+        RingBuffer<Integer> ring = new RingBuffer<>(1024);
+        Set<Integer> received = ConcurrentHashMap.newKeySet();
+        ExecutorService executor = Executors.newFixedThreadPool(producers + 1);
+        CountDownLatch producersDone = new CountDownLatch(producers);
+
+        try {
+            for (int p = 0; p < producers; p++) {
+                int base = p * perProducer;
+                executor.submit(() -> {
+                    for (int i = 0; i < perProducer; i++) {
+                        while (!ring.offer(base + i)) {
+                            Thread.onSpinWait();
+                        }
+                    }
+                    producersDone.countDown();
+                });
+            }
+
+            executor.submit(() -> {
+                while (received.size() < producers * perProducer) {
+                    Integer value = ring.poll();
+                    if (value == null) {
+                        Thread.onSpinWait();
+                    } else {
+                        assertTrue(received.add(value), "value delivered twice: " + value);
+                    }
+                }
+            }).get(30, TimeUnit.SECONDS);
+
+            assertTrue(producersDone.await(5, TimeUnit.SECONDS));
+            assertEquals(producers * perProducer, received.size());
+            assertTrue(ring.isEmpty());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    // =================== ERROR CASE TESTS ===================
+
+    @Test
+    void invalidCapacityShouldThrowException() {
+        assertThrows(IllegalArgumentException.class, () -> new RingBuffer<>(1));
+    }
+
+    @Test
+    void nullElementShouldThrowException() {
+        assertThrows(NullPointerException.class, () -> new RingBuffer<String>(4).offer(null));
+    }
+}
@@ -7,6 +7,8 @@ import org.junit.jupiter.api.Test;
 import org.mockito.Mock;
 import org.mockito.MockitoAnnotations;
 
+import java.time.LocalDateTime;
+
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.Mockito.*;
 
@@ -15,6 +17,9 @@ class RouteServiceTest {
     @Mock
     private LocationDistanceCalculatorService locationDistanceCalculatorService;
 
+    @Mock
+    private SpeedProfileService speedProfileService;
+
     private RouteService routeService;
     private Location startLocation;
     private Location endLocation;
@@ -22,7 +27,7 @@ class RouteServiceTest {
     @BeforeEach
     void setUp() {
         MockitoAnnotations.openMocks(this);
-        routeService = new RouteService(locationDistanceCalculatorService);
+        routeService = new RouteService(locationDistanceCalculatorService, speedProfileService);
 
         startLocation = new Location("Central Park", 40.7829, -73.9654);
         endLocation = new Location("Times Square", 40.7580, -73.9855);
@@ -66,7 +71,8 @@ class RouteServiceTest {
         // Create a real LocationDistanceCalculatorService
         DistanceCalculatorService realDistanceService = new DistanceCalculatorService();
         LocationDistanceCalculatorService realLocationService = new LocationDistanceCalculatorService(realDistanceService);
-        RouteService realRouteService = new RouteService(realLocationService);
+        RouteService realRouteService = new RouteService(realLocationService,
+                new SpeedProfileService("classpath:speed-profiles.csv", "America/New_York"));
 
         // Act: Call the method with real services
         Route route = realRouteService.createRoute(newYork, losAngeles);
@@ -127,8 +133,44 @@ class RouteServiceTest {
         assertEquals(7.5, result);
     }
 
+    @Test
+    void createRouteSetsEstimatedDurationTest() {
+        when(speedProfileService.estimateDurationMinutes(eq(startLocation), eq(endLocation), eq(2.5), anyLong()))
+                .thenReturn(6.0);
+
+        Route route = routeService.createRoute(startLocation, endLocation);
+
+        assertEquals(6.0, route.getDuration());
+        assertEquals(6.0, routeService.getRouteDuration(route));
+    }
+
+    @Test
+    void createRouteWithDepartureTimeUsesThatTimeTest() {
+        LocalDateTime departure = LocalDateTime.of(2025, 6, 2, 8, 0);
+        when(speedProfileService.toEpochMillis(departure)).thenReturn(123L);
+        when(speedProfileService.estimateDurationMinutes(startLocation, endLocation, 2.5, 123L)).thenReturn(9.0);
+
+        Route route = routeService.createRoute(startLocation, endLocation, departure);
+
+        assertEquals(9.0, route.getDuration());
+        verify(speedProfileService).estimateDurationMinutes(startLocation, endLocation, 2.5, 123L);
+    }
+
     // =================== EXCEPTION TESTS ===================
 
+    @Test
+    void createRouteWithNullDepartureTimeShouldThrowException() {
+        assertThrows(RouteService.InvalidRouteException.class,
+                () -> routeService.createRoute(startLocation, endLocation, null));
+    }
+
+    @Test
+    void getRouteDurationWithNegativeDurationShouldThrowException() {
+        Route route = new Route(startLocation, endLocation, 2.5, -1.0);
+
+        assertThrows(RouteService.InvalidRouteException.class, () -> routeService.getRouteDuration(route));
+    }
+
     @Test
     void createRouteWithNullFromLocationShouldThrowException() {
         RouteService.InvalidRouteException exception = assertThrows(
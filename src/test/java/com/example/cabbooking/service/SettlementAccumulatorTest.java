@@ -0,0 +1,59 @@
+package com.example.cabbooking.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SettlementAccumulatorTest {
+
+    @Test
+    void ridesAreTotalledPerDriverAndZoneTest() {
+        SettlementAccumulator accumulator = new SettlementAccumulator(2, 0.2);
+        accumulator.add("d1", 0, 1000);
+        accumulator.add("d1", 1, 333);
+        accumulator.add("d2", 1, 500);
+
+        assertEquals(2, accumulator.getDriverCount());
+        assertEquals(3, accumulator.getRides());
+        assertEquals(1833, accumulator.getGrossCents());
+        // 200 + 67 + 100, each ride rounded on its own
+        assertEquals(367, accumulator.getCommissionCents());
+        assertEquals(1, accumulator.getZoneRides(0));
+        assertEquals(833, accumulator.getZoneGrossCents(1));
+    }
+
+    @Test
+    void tableGrowsPastInitialCapacityTest() {
+        SettlementAccumulator accumulator = new SettlementAccumulator(1, 0.2);
+        for (int i = 0; i < 5000; i++) {
+            accumulator.add("driver-" + (i % 2500), 0, 100);
+        }
+
+        Map<String, Long> rides = new HashMap<>();
+        accumulator.forEachDriver((driverId, count, gross, commission) -> rides.put(driverId, count));
+
+        assertEquals(2500, accumulator.getDriverCount());
+        assertEquals(2500, rides.size());
+        assertEquals(2L, rides.get("driver-1234"));
+    }
+
+    @Test
+    void mergeAddsOtherPartitionTest() {
+        SettlementAccumulator first = new SettlementAccumulator(2, 0.2);
+        SettlementAccumulator second = new SettlementAccumulator(2, 0.2);
+        first.add("d1", 0, 1000);
+        second.add("d1", 1, 1000);
+        second.add("d2", 1, 500);
+
+        first.merge(second);
+
+        Map<String, Long> gross = new HashMap<>();
+        first.forEachDriver((driverId, count, driverGross, commission) -> gross.put(driverId, driverGross));
+        assertEquals(Map.of("d1", 2000L, "d2", 500L), gross);
+        assertEquals(3, first.getRides());
+        assertEquals(2, first.getZoneRides(1));
+    }
+}
@@ -0,0 +1,284 @@
+package com.example.cabbooking.service;
+
+import com.example.cabbooking.model.Booking;
+import com.example.cabbooking.model.BookingStatus;
+import com.example.cabbooking.model.Client;
+import com.example.cabbooking.model.Driver;
+import com.example.cabbooking.model.DriverStatus;
+import com.example.cabbooking.model.Location;
+import com.example.cabbooking.model.SettlementSummary;
+import com.example.cabbooking.model.VehicleClass;
+import com.example.cabbooking.repository.BookingJournal;
+import com.example.cabbooking.repository.BookingRepository;
+import com.example.cabbooking.repository.LedgerLog;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SettlementServiceTest {
+
+    private static final LocalDate DAY = LocalDate.of(2025, 6, 2);
+
+    @TempDir
+    Path tempDir;
+
+    private InMemoryRideRepository rideRepository;
+    private FleetService fleetService;
+
+    /**
+     * hands out rides the way the streaming query does, one row at a time and only those inside the range
+     */
+    private static class InMemoryRideRepository extends BookingRepository {
+        private final List<Object[]> rides = new ArrayList<>();
+        private final List<Instant[]> slices = new ArrayList<>();
+        private boolean failing;
+
+        InMemoryRideRepository() {
+            super(null, null);
+        }
+
+        void add(String createdAt, String driverId, double latitude, double longitude, long fareCents) {
+            rides.add(new Object[]{Instant.parse(createdAt), driverId, latitude, longitude, fareCents});
+        }
+
+        @Override
+        public boolean streamCompletedRides(Instant from, Instant to, SettlementRowHandler handler) {
+            synchronized (slices) {
+                slices.add(new Instant[]{from, to});
+            }
+            if (failing) {
+                return false;
+            }
+            for (Object[] ride : rides) {
+                Instant createdAt = (Instant) ride[0];
+                if (!createdAt.isBefore(from) && createdAt.isBefore(to)) {
+                    handler.onRow((String) ride[1], (Double) ride[2], (Double) ride[3], (Long) ride[4]);
+                }
+            }
+            return true;
+        }
+    }
+
+    /**
+     * keeps bookings and their status the way the bookings table does, and settles from that status
+     */
+    private static class BookingTable extends BookingRepository {
+        private final Map<String, Booking> bookings = new ConcurrentHashMap<>();
+        private final Map<String, BookingStatus> statuses = new ConcurrentHashMap<>();
+
+        BookingTable() {
+            super(null, null);
+        }
+
+        @Override
+        public boolean save(Booking booking) {
+            bookings.put(booking.getId(), booking);
+            statuses.put(booking.getId(), booking.getStatus());
+            return true;
+        }
+
+        @Override
+        public boolean saveAll(List<Booking> batch) {
+            batch.forEach(this::save);
+            return true;
+        }
+
+        @Override
+        public boolean updateStatuses(Map<String, BookingStatus> updates) {
+            if (!bookings.keySet().containsAll(updates.keySet())) {
+                return false;
+            }
+            statuses.putAll(updates);
+            return true;
+        }
+
+        @Override
+        public boolean updateDriver(String bookingId, String driverId) {
+            return bookings.containsKey(bookingId);
+        }
+
+        @Override
+        public boolean streamCompletedRides(Instant from, Instant to, SettlementRowHandler handler) {
+            for (Booking booking : bookings.values()) {
+                if (statuses.get(booking.getId()) == BookingStatus.COMPLETED && booking.getDriverId() != null
+                        && !booking.getCreatedAt().isBefore(from) && booking.getCreatedAt().isBefore(to)) {
+                    handler.onRow(booking.getDriverId(), booking.getFrom().getLatitude(),
+                            booking.getFrom().getLongitude(), Math.round(booking.getFare() * 100));
+                }
+            }
+            return true;
+        }
+    }
+
+    @BeforeEach
+    void setUp() {
+        rideRepository = new InMemoryRideRepository();
+        rideRepository.add("2025-06-02T01:00:00Z", "d1", 38.89, -77.03, 1000L);
+        rideRepository.add("2025-06-02T13:00:00Z", "d1", 38.90, -77.02, 2000L);
+        rideRepository.add("2025-06-02T23:59:59Z", "d2", 40.70, -74.00, 1500L);
+        rideRepository.add("2025-06-02T06:00:00Z", "d3", 40.71, -74.01, 500L);
+        rideRepository.add("2025-06-01T23:59:59Z", "d1", 38.89, -77.03, 9900L);
+        rideRepository.add("2025-06-03T00:00:00Z", "d2", 38.89, -77.03, 9900L);
+
+        fleetService = new FleetService(0.01, 15.0, 8);
+        fleetService.registerDriver(new Driver("d1", "Driver d1", 38.89, -77.03, DriverStatus.AVAILABLE, VehicleClass.STANDARD));
+        fleetService.registerDriver(new Driver("d2", "Driver d2", 40.70, -74.00, DriverStatus.AVAILABLE, VehicleClass.XL));
+    }
+
+    private SettlementService settlementService(LedgerLog ledgerLog, int partitions) {
+        return new SettlementService(rideRepository, ledgerLog,
+                new SpeedProfileService("classpath:speed-profiles.csv", "America/New_York"), fleetService,
+                tempDir.resolve("settlements").toString(), "UTC", partitions, 0.2, Thread::new);
+    }
+
+    // =================== SUCCESS CASE TESTS ===================
+
+    @Test
+    void dayIsTotalledAcrossPartitionsTest() {
+        SettlementSummary summary = settlementService(null, 4).settle(DAY);
+
+        assertEquals("2025-06-02", summary.getDay());
+        assertEquals(4, summary.getRides());
+        assertEquals(3, summary.getDrivers());
+        assertEquals(5000, summary.getGrossCents());
+        assertEquals(1000, summary.getCommissionCents());
+        assertEquals(4000, summary.getPayoutCents());
+    }
+
+    @Test
+    void partitionsCoverTheDayWithoutGapsTest() {
+        settlementService(null, 7).settle(DAY);
+
+        List<Instant[]> slices = new ArrayList<>(rideRepository.slices);
+        slices.sort((a, b) -> a[0].compareTo(b[0]));
+        assertEquals(7, slices.size());
+        assertEquals(DAY.atStartOfDay(ZoneOffset.UTC).toInstant(), slices.get(0)[0]);
+        for (int i = 1; i < slices.size(); i++) {
+            assertEquals(slices.get(i - 1)[1], slices.get(i)[0]);
+        }
+        assertEquals(DAY.plusDays(1).atStartOfDay(ZoneOffset.UTC).toInstant(), slices.get(6)[1]);
+    }
+
+    @Test
+    void payoutZoneAndTariffFilesAreWrittenTest() throws IOException {
+        SettlementSummary summary = settlementService(null, 2).settle(DAY);
+
+        List<String> payouts = Files.readAllLines(Path.of(summary.getPayoutFile()));
+        assertEquals("driver_id,tariff,rides,gross,commission,payout", payouts.get(0));
+        assertEquals(4, payouts.size());
+        assertTrue(payouts.contains("d1,STANDARD,2,30.00,6.00,24.00"));
+        assertTrue(payouts.contains("d2,XL,1,15.00,3.00,12.00"));
+        assertTrue(payouts.contains("d3,UNKNOWN,1,5.00,1.00,4.00"));
+
+        List<String> zones = Files.readAllLines(tempDir.resolve("settlements").resolve("zones-2025-06-02.csv"));
+        assertTrue(zones.contains("DOWNTOWN,2,30.00,6.00,24.00"));
+        assertTrue(zones.contains("DEFAULT,2,20.00,4.00,16.00"));
+
+        List<String> tariffs = Files.readAllLines(tempDir.resolve("settlements").resolve("tariffs-2025-06-02.csv"));
+        assertTrue(tariffs.contains("STANDARD,2,30.00,6.00,24.00"));
+        assertTrue(tariffs.contains("XL,1,15.00,3.00,12.00"));
+        assertTrue(tariffs.contains("PREMIUM,0,0.00,0.00,0.00"));
+        assertTrue(tariffs.contains("UNKNOWN,1,5.00,1.00,4.00"));
+    }
+
+    @Test
+    void rerunReplacesFilesTest() throws IOException {
+        SettlementService settlementService = settlementService(null, 2);
+        settlementService.settle(DAY);
+        rideRepository.rides.clear();
+
+        SettlementSummary summary = settlementService.settle(DAY);
+
+        assertEquals(0, summary.getRides());
+        assertEquals(1, Files.readAllLines(Path.of(summary.getPayoutFile())).size());
+        try (var files = Files.list(tempDir.resolve("settlements"))) {
+            assertTrue(files.noneMatch(file -> file.toString().endsWith(".tmp")));
+        }
+    }
+
+    @Test
+    void ledgerTotalsAreReconciledTest() {
+        LedgerLog ledgerLog = new LedgerLog(tempDir.resolve("ledger").toString(), 1 << 20, false);
+        LedgerService ledgerService = new LedgerService(ledgerLog, 0.2, 16, 64, 0, Thread::new);
+        long paidAt = ledgerService.recordFarePayment(UUID.randomUUID().toString(), 1, 10.0).getTimestamp();
+        ledgerService.recordFarePayment(UUID.randomUUID().toString(), 2, 5.0);
+        LocalDate paidOn = Instant.ofEpochMilli(paidAt).atZone(ZoneOffset.UTC).toLocalDate();
+
+        SettlementSummary summary = settlementService(ledgerLog, 2).settle(paidOn);
+
+        assertEquals(1500, summary.getLedgerChargedCents());
+        assertEquals(1200, summary.getLedgerDriversPayableCents());
+        ledgerLog.close();
+    }
+
+    @Test
+    void completedBookingIsSettledTest() {
+        BookingTable bookingTable = new BookingTable();
+        BookingJournal bookingJournal = new BookingJournal(tempDir.resolve("journal").toString(), 1024, false);
+        fleetService.registerDriver(new Driver("d4", "Driver d4", 38.8980, -77.0360, DriverStatus.AVAILABLE, VehicleClass.STANDARD));
+
+        LocationDistanceCalculatorService distances = new LocationDistanceCalculatorService(new DistanceCalculatorService());
+        RouteService routeService = new RouteService(distances,
+                new SpeedProfileService("classpath:speed-profiles.csv", "America/New_York"));
+        BookingService bookingService = new BookingService(routeService, distances, new CalculateFareService(routeService),
+                new BookingWriteBehindService(bookingTable, BookingWriteBehindService.DurabilityMode.SYNC, 50, 100, 0),
+                new BookingLifecycleService(bookingJournal, 10000, 3600000),
+                new DispatchService(fleetService, bookingTable, DispatchService.DispatchMode.GREEDY, 500, 5, 500, 120),
+                new NotificationService(null));
+
+        Client client = new Client(1, "John Doe", "john@example.com", "555-1234", "123 Main St", "4111-1111-1111-1111");
+        Booking completed = bookingService.bookCab(client, routeService.createRoute(
+                new Location("The White House", 38.8977, -77.0365), new Location("Lincoln Memorial", 38.8893, -77.0502)));
+        bookingService.updateBookingStatus(completed.getId(), BookingStatus.PAID);
+        bookingService.updateBookingStatus(completed.getId(), BookingStatus.DISPATCHED);
+        bookingService.updateBookingStatus(completed.getId(), BookingStatus.COMPLETED);
+
+        // a ride that is only paid for is not settled yet
+        Booking paid = bookingService.bookCab(client, routeService.createRoute(
+                new Location("The White House", 38.8977, -77.0365), new Location("Lincoln Memorial", 38.8893, -77.0502)));
+        bookingService.updateBookingStatus(paid.getId(), BookingStatus.PAID);
+
+        LocalDate day = completed.getCreatedAt().atZone(ZoneOffset.UTC).toLocalDate();
+        SettlementSummary summary = new SettlementService(bookingTable, null,
+                new SpeedProfileService("classpath:speed-profiles.csv", "America/New_York"), fleetService,
+                tempDir.resolve("settlements").toString(), "UTC", 2, 0.2, Thread::new).settle(day);
+
+        assertEquals(BookingStatus.COMPLETED, bookingTable.statuses.get(completed.getId()));
+        assertEquals(1, summary.getRides());
+        assertEquals(1, summary.getDrivers());
+        assertEquals(Math.round(completed.getFare() * 100), summary.getGrossCents());
+        bookingJournal.close();
+    }
+
+    // =================== ERROR CASE TESTS ===================
+
+    @Test
+    void unreadablePartitionFailsSettlementTest() {
+        rideRepository.failing = true;
+
+        SettlementService.SettlementException exception = assertThrows(SettlementService.SettlementException.class,
+                () -> settlementService(null, 3).settle(DAY));
+
+        assertTrue(exception.getMessage().startsWith("Settlement of 2025-06-02 failed"));
+        assertFalse(Files.exists(tempDir.resolve("settlements").resolve("payouts-2025-06-02.csv")));
+    }
+
+    @Test
+    void nullDayIsRejectedTest() {
+        assertThrows(SettlementService.SettlementException.class, () -> settlementService(null, 1).settle(null));
+    }
+}
@@ -0,0 +1,135 @@
+package com.example.cabbooking.service;
+
+import com.example.cabbooking.model.OutboxMessage;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.PrintWriter;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SmtpNotifierTest {
+
+    private ServerSocket server;
+    private final List<String> received = new CopyOnWriteArrayList<>();
+
+    @AfterEach
+    void tearDown() throws IOException {
+        if (server != null) {
+            server.close();
+        }
+    }
+
+    // =================== SUCCESS CASE TESTS ===================
+
+    @Test
+    void sendTalksSmtpTest() throws Exception {
+        startServer(null);
+        SmtpNotifier notifier = new SmtpNotifier("localhost", server.getLocalPort(), "no-reply@cabbooking.local", 2000);
+
+        notifier.send(message("Hi John Doe,\n.\nsee you soon"));
+
+        assertTrue(received.contains("HELO cabbooking"));
+        assertTrue(received.contains("MAIL FROM:<no-reply@cabbooking.local>"));
+        assertTrue(received.contains("RCPT TO:<john@email.com>"));
+        assertTrue(received.contains("Message-ID: <BOOKING_CONFIRMED:1@cabbooking>"));
+        // a lone dot in the body is doubled so it does not end the message early
+        assertTrue(received.contains(".."));
+        assertTrue(received.contains("see you soon"));
+        assertEquals("QUIT", received.get(received.size() - 1));
+    }
+
+    // =================== EXCEPTION TESTS ===================
+
+    @Test
+    void temporaryRejectionIsRetryableTest() throws Exception {
+        startServer("451 4.3.0 try again later");
+        SmtpNotifier notifier = new SmtpNotifier("localhost", server.getLocalPort(), "no-reply@cabbooking.local", 2000);
+
+        Notifier.NotificationException exception = assertThrows(Notifier.NotificationException.class,
+                () -> notifier.send(message("Hi")));
+        assertTrue(exception.isRetryable());
+    }
+
+    @Test
+    void permanentRejectionIsNotRetryableTest() throws Exception {
+        startServer("550 5.1.1 no such user");
+        SmtpNotifier notifier = new SmtpNotifier("localhost", server.getLocalPort(), "no-reply@cabbooking.local", 2000);
+
+        Notifier.NotificationException exception = assertThrows(Notifier.NotificationException.class,
+                () -> notifier.send(message("Hi")));
+        assertFalse(exception.isRetryable());
+    }
+
+    @Test
+    void unreachableServerIsRetryableTest() throws Exception {
+        int port;
+        try (ServerSocket closed = new ServerSocket(0)) {
+            port = closed.getLocalPort();
+        }
+        SmtpNotifier notifier = new SmtpNotifier("localhost", port, "no-reply@cabbooking.local", 500);
+
+        Notifier.NotificationException exception = assertThrows(Notifier.NotificationException.class,
+                () -> notifier.send(message("Hi")));
+        assertTrue(exception.isRetryable());
+    }
+
+    private static OutboxMessage message(String body) {
+        return new OutboxMessage("BOOKING_CONFIRMED:1", NotificationService.BOOKING_CONFIRMED, "john@email.com",
+                "Your cab is booked", body, Instant.parse("2025-06-02T12:00:00Z"));
+    }
+
+    /**
+     * minimal SMTP server for one connection, answering RCPT TO with rcptReply when it is given
+     */
+    private void startServer(String rcptReply) throws IOException {
+        server = new ServerSocket(0);
+        Thread thread = new Thread(() -> {
+            try (Socket socket = server.accept();
+                 BufferedReader in = new BufferedReader(new InputStreamReader(socket.getInputStream(), StandardCharsets.UTF_8));
+                 PrintWriter out = new PrintWriter(socket.getOutputStream(), true)) {
+                out.print("220 localhost ready\r\n");
+                out.flush();
+                boolean inData = false;
+                String line;
+                while ((line = in.readLine()) != null) {
+                    received.add(line);
+                    if (inData) {
+                        if (line.equals(".")) {
+                            inData = false;
+                            reply(out, "250 queued");
+                        }
+                    } else if (line.startsWith("RCPT") && rcptReply != null) {
+                        reply(out, rcptReply);
+                    } else if (line.equals("DATA")) {
+                        inData = true;
+                        reply(out, "354 go ahead");
+                    } else if (line.equals("QUIT")) {
+                        reply(out, "221 bye");
+                        return;
+                    } else {
+                        reply(out, "250 ok");
+                    }
+                }
+            } catch (IOException ignored) {
+                // the test closed the server
+            }
+        });
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    private static void reply(PrintWriter out, String line) {
+        out.print(line + "\r\n");
+        out.flush();
+    }
+}
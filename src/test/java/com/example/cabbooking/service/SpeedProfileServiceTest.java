@@ -0,0 +1,124 @@
+package com.example.cabbooking.service;
+
+import com.example.cabbooking.model.Location;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SpeedProfileServiceTest {
+
+    private SpeedProfileService speedProfileService;
+    private Location whiteHouse;
+    private Location capitol;
+    private Location dulles;
+
+    @TempDir
+    Path tempDir;
+
+    @BeforeEach
+    void setUp() {
+        speedProfileService = new SpeedProfileService("classpath:speed-profiles.csv", "America/New_York");
+
+        whiteHouse = new Location("The White House", 38.8977, -77.0365);
+        capitol = new Location("U.S. Capitol Building", 38.8899, -77.0091);
+        dulles = new Location("Washington Dulles International Airport", 38.9531, -77.4565);
+    }
+
+    // =================== LOADING TESTS ===================
+
+    @Test
+    void loadsBundledProfileTest() {
+        assertEquals(2, speedProfileService.getZoneCount());
+        assertEquals("DOWNTOWN", speedProfileService.getZoneName(0));
+        assertEquals("DEFAULT", speedProfileService.getZoneName(1));
+    }
+
+    @Test
+    void missingProfileFallsBackToFlatSpeedTest() {
+        SpeedProfileService fallback = new SpeedProfileService(tempDir.resolve("missing.csv").toString(), "UTC");
+
+        assertEquals(1, fallback.getZoneCount());
+        assertEquals(30.0f, fallback.getSpeed(0, 0));
+        assertEquals(30.0f, fallback.getSpeed(0, SpeedProfileService.HOURS_PER_WEEK - 1));
+    }
+
+    @Test
+    void malformedProfileShouldThrowException() throws IOException {
+        Path profile = tempDir.resolve("bad.csv");
+        Files.writeString(profile, "ZONE,DEFAULT,-90,-180,90,180\nSPEED,DEFAULT,1,40\n");
+
+        assertThrows(SpeedProfileService.SpeedProfileException.class,
+                () -> new SpeedProfileService(profile.toString(), "UTC"));
+    }
+
+    @Test
+    void unknownZoneInSpeedRowShouldThrowException() throws IOException {
+        Path profile = tempDir.resolve("unknown-zone.csv");
+        Files.writeString(profile, "ZONE,DEFAULT,-90,-180,90,180\n" + speedRow("NOWHERE", 1, 40));
+
+        assertThrows(SpeedProfileService.SpeedProfileException.class,
+                () -> new SpeedProfileService(profile.toString(), "UTC"));
+    }
+
+    // =================== LOOKUP TESTS ===================
+
+    @Test
+    void zoneOfTest() {
+        assertEquals(0, speedProfileService.zoneOf(whiteHouse.getLatitude(), whiteHouse.getLongitude()));
+        assertEquals(1, speedProfileService.zoneOf(dulles.getLatitude(), dulles.getLongitude()));
+    }
+
+    @Test
+    void hourOfWeekTest() {
+        // Monday 2 June 2025, 08:00 in Washington DC
+        long mondayMorning = speedProfileService.toEpochMillis(LocalDateTime.of(2025, 6, 2, 8, 0));
+        // Sunday 8 June 2025, 23:30 in Washington DC
+        long sundayNight = speedProfileService.toEpochMillis(LocalDateTime.of(2025, 6, 8, 23, 30));
+
+        assertEquals(8, speedProfileService.hourOfWeek(mondayMorning));
+        assertEquals(SpeedProfileService.HOURS_PER_WEEK - 1, speedProfileService.hourOfWeek(sundayNight));
+    }
+
+    @Test
+    void estimateDurationUsesZoneAndHourTest() {
+        long mondayMorning = speedProfileService.toEpochMillis(LocalDateTime.of(2025, 6, 2, 8, 0));
+
+        // downtown Monday 08:00 runs at 14 km/h, so 7 km takes 30 minutes
+        double minutes = speedProfileService.estimateDurationMinutes(whiteHouse, capitol, 7.0, mondayMorning);
+
+        assertEquals(30.0, minutes, 0.0001);
+    }
+
+    @Test
+    void rushHourIsSlowerThanNightTest() {
+        long rushHour = speedProfileService.toEpochMillis(LocalDateTime.of(2025, 6, 3, 17, 0));
+        long night = speedProfileService.toEpochMillis(LocalDateTime.of(2025, 6, 3, 3, 0));
+
+        double rushMinutes = speedProfileService.estimateDurationMinutes(whiteHouse, capitol, 3.0, rushHour);
+        double nightMinutes = speedProfileService.estimateDurationMinutes(whiteHouse, capitol, 3.0, night);
+
+        assertTrue(rushMinutes > nightMinutes);
+    }
+
+    @Test
+    void estimateDurationForNowIsPositiveTest() {
+        double minutes = speedProfileService.estimateDurationMinutes(whiteHouse, dulles, 40.0);
+
+        assertTrue(minutes > 0);
+    }
+
+    private static String speedRow(String zone, int day, int speed) {
+        StringBuilder row = new StringBuilder("SPEED," + zone + "," + day);
+        for (int hour = 0; hour < 24; hour++) {
+            row.append(',').append(speed);
+        }
+        return row.append('\n').toString();
+    }
+}
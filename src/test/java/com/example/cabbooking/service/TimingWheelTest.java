@@ -0,0 +1,160 @@
+package com.example.cabbooking.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TimingWheelTest {
+
+    private static final long START = 1_000_000_000L;
+
+    // =================== SUCCESS CASE TESTS ===================
+
+    @Test
+    void timerFiresOnceItsDeadlineIsReachedTest() {
+        TimingWheel wheel = new TimingWheel(1000, 4, START);
+        wheel.schedule("a", START + 5_000);
+        List<String> fired = new ArrayList<>();
+
+        assertEquals(0, wheel.advanceTo(START + 4_999, (key, deadline) -> fired.add(key)));
+        assertEquals(1, wheel.advanceTo(START + 5_000, (key, deadline) -> fired.add(key)));
+
+        assertEquals(List.of("a"), fired);
+        assertEquals(0, wheel.size());
+    }
+
+    @Test
+    void timersCascadeFromHigherLevelsInDeadlineOrderTest() {
+        TimingWheel wheel = new TimingWheel(1000, 4, START);
+        // a minute, an hour, a day and a week out, so every level is used
+        wheel.schedule("week", START + 7L * 24 * 3600_000);
+        wheel.schedule("day", START + 24L * 3600_000);
+        wheel.schedule("hour", START + 3600_000);
+        wheel.schedule("minute", START + 60_000);
+        List<String> fired = new ArrayList<>();
+        List<Long> firedAt = new ArrayList<>();
+
+        wheel.advanceTo(START + 8L * 24 * 3600_000, (key, deadline) -> {
+            fired.add(key);
+            firedAt.add(deadline);
+        });
+
+        assertEquals(List.of("minute", "hour", "day", "week"), fired);
+        assertEquals(START + 60_000, firedAt.get(0));
+    }
+
+    @Test
+    void timerNeverFiresEarlyTest() {
+        TimingWheel wheel = new TimingWheel(100, 3, START);
+        Random random = new Random(7);
+        long[] deadlines = new long[2000];
+        for (int i = 0; i < deadlines.length; i++) {
+            deadlines[i] = START + 1 + random.nextInt(3_000_000);
+            wheel.schedule("t" + i, deadlines[i]);
+        }
+
+        long[] now = {START};
+        int fired = 0;
+        while (wheel.size() > 0) {
+            now[0] += 250;
+            fired += wheel.advanceTo(now[0], (key, deadline) -> {
+                assertTrue(deadline <= now[0], key + " fired before its deadline");
+                // at most one tick plus one advance step late
+                assertTrue(now[0] - deadline < 100 + 250, key + " fired too late");
+            });
+        }
+        assertEquals(deadlines.length, fired);
+    }
+
+    @Test
+    void cancelledTimerDoesNotFireTest() {
+        TimingWheel wheel = new TimingWheel(1000, 4, START);
+        wheel.schedule("a", START + 10_000);
+        wheel.schedule("b", START + 10_000);
+
+        assertTrue(wheel.cancel("a"));
+        assertFalse(wheel.cancel("a"));
+
+        List<String> fired = new ArrayList<>();
+        wheel.advanceTo(START + 20_000, (key, deadline) -> fired.add(key));
+        assertEquals(List.of("b"), fired);
+    }
+
+    @Test
+    void schedulingAgainReplacesTheTimerTest() {
+        TimingWheel wheel = new TimingWheel(1000, 4, START);
+        wheel.schedule("a", START + 10_000);
+        wheel.schedule("a", START + 90_000);
+
+        assertEquals(1, wheel.size());
+        assertEquals(START + 90_000, wheel.getDeadline("a"));
+        assertEquals(0, wheel.advanceTo(START + 20_000, (key, deadline) -> {}));
+        assertEquals(1, wheel.advanceTo(START + 90_000, (key, deadline) -> {}));
+    }
+
+    @Test
+    void pastDeadlineFiresOnNextTickTest() {
+        TimingWheel wheel = new TimingWheel(1000, 4, START);
+        wheel.schedule("late", START - 60_000);
+
+        assertEquals(1, wheel.advanceTo(START + 1000, (key, deadline) -> {}));
+    }
+
+    @Test
+    void deadlineBeyondWheelSpanStillFiresTest() {
+        // two levels of 64 one-second slots only span about 68 minutes
+        TimingWheel wheel = new TimingWheel(1000, 2, START);
+        long deadline = START + 3 * wheel.getSpanMillis() + 12_345;
+        wheel.schedule("far", deadline);
+
+        assertEquals(0, wheel.advanceTo(deadline - 1000, (key, d) -> {}));
+        assertEquals(1, wheel.advanceTo(deadline + 1000, (key, d) -> {}));
+    }
+
+    @Test
+    void forEachReportsPendingTimersTest() {
+        TimingWheel wheel = new TimingWheel(1000, 4, START);
+        wheel.schedule("a", START + 1000);
+        wheel.schedule("b", START + 2000);
+
+        List<String> keys = new ArrayList<>();
+        wheel.forEach((key, deadline) -> keys.add(key + "@" + (deadline - START)));
+        keys.sort(null);
+        assertEquals(List.of("a@1000", "b@2000"), keys);
+    }
+
+    // =================== ERROR CASE TESTS ===================
+
+    @Test
+    void invalidConfigurationRejectedTest() {
+        assertThrows(IllegalArgumentException.class, () -> new TimingWheel(0, 4, START));
+        assertThrows(IllegalArgumentException.class, () -> new TimingWheel(1000, 0, START));
+        assertThrows(IllegalArgumentException.class, () -> new TimingWheel(1000, 11, START));
+    }
+
+    // =================== PERFORMANCE TESTS ===================
+
+    @Test
+    void millionTimersScheduleAndCancelQuicklyTest() {
+        TimingWheel wheel = new TimingWheel(1000, 4, START);
+        Random random = new Random(11);
+        int timers = 1_000_000;
+
+        long begin = System.nanoTime();
+        for (int i = 0; i < timers; i++) {
+            wheel.schedule("t" + i, START + 60_000 + random.nextInt(30 * 24 * 3600) * 1000L);
+        }
+        for (int i = 0; i < timers; i += 2) {
+            wheel.cancel("t" + i);
+        }
+        double millis = (System.nanoTime() - begin) / 1_000_000.0;
+
+        System.out.println("Scheduled " + timers + " timers and cancelled half in " + String.format("%.1f", millis) + " ms");
+        assertEquals(timers / 2, wheel.size());
+        assertTrue(millis < 10_000, "schedule and cancel took " + millis + " ms");
+    }
+}
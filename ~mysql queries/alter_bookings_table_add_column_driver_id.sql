@@ -0,0 +1,2 @@
+ALTER TABLE bookings
+ADD COLUMN driver_id varchar(64) null;
@@ -0,0 +1,3 @@
+ALTER TABLE bookings
+ADD INDEX idx_bookings_client_created_id (client_id, created_at, id),
+DROP INDEX idx_bookings_client_id;
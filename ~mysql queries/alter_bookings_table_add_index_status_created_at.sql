@@ -0,0 +1,2 @@
+ALTER TABLE bookings
+ADD INDEX idx_bookings_status_created_at (status, created_at);
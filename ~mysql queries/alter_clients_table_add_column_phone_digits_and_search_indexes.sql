@@ -0,0 +1,17 @@
+-- phone is bigint or text depending on which migration ran, phone_digits is the same number either way:
+-- separators and leading zeros removed, so (555) 123-4567, 555.123.4567 and 5551234567 all match.
+-- VIRTUAL is added without copying the table, only the index stores the values
+ALTER TABLE `cab_booking_db`.`clients`
+ADD COLUMN `phone_digits` VARCHAR(32) GENERATED ALWAYS AS (
+    NULLIF(TRIM(LEADING '0' FROM
+        REPLACE(REPLACE(REPLACE(REPLACE(REPLACE(REPLACE(CAST(`phone` AS CHAR), '-', ''), ' ', ''), '(', ''), ')', ''), '.', ''), '+', '')
+    ), '')
+) VIRTUAL,
+ALGORITHM = INSTANT;
+
+-- built online, clients can still be read and written meanwhile. email is already covered by email_UNIQUE;
+-- the name index also holds the id, so name prefix searches come back in (name, id) order without a sort
+ALTER TABLE `cab_booking_db`.`clients`
+ADD INDEX `idx_clients_phone_digits` (`phone_digits` ASC),
+ADD INDEX `idx_clients_name` (`name` ASC),
+ALGORITHM = INPLACE, LOCK = NONE;
@@ -0,0 +1,16 @@
+CREATE TABLE bookings(
+id char(36) primary key,
+client_id int not null,
+pickup_location varchar(255),
+pickup_latitude double not null,
+pickup_longitude double not null,
+dropoff_location varchar(255),
+dropoff_latitude double not null,
+dropoff_longitude double not null,
+distance_km double not null,
+duration_minutes double not null,
+fare decimal(10,2) not null,
+status varchar(20) not null,
+created_at timestamp(3) not null,
+index idx_bookings_client_id (client_id)
+);
@@ -0,0 +1,5 @@
+CREATE TABLE card_vault(
+token varchar(64) primary key,
+ciphertext varbinary(64) not null,
+created_at timestamp(3) not null default current_timestamp(3)
+);
@@ -0,0 +1,8 @@
+CREATE TABLE client_cache_invalidation(
+id bigint auto_increment primary key,
+node varchar(64) not null,
+client_id int null,
+email varchar(255) null,
+created_at timestamp(3) not null,
+index idx_client_cache_invalidation_created_at (created_at)
+);
@@ -0,0 +1,15 @@
+CREATE TABLE notification_outbox(
+id bigint auto_increment primary key,
+event_id varchar(64) not null,
+type varchar(32) not null,
+recipient varchar(255) not null,
+subject varchar(255) not null,
+body text not null,
+created_at timestamp(3) not null,
+attempts int not null default 0,
+next_attempt_at timestamp(3) not null,
+last_error varchar(255) null,
+sent_at timestamp(3) null,
+unique index idx_outbox_event_id (event_id),
+index idx_outbox_pending (sent_at, next_attempt_at)
+);